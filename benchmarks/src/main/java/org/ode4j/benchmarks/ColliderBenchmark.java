@@ -0,0 +1,152 @@
+/*************************************************************************
+ *                                                                       *
+ * Open Dynamics Engine 4J, Copyright (C) 2009-2014 Tilmann Zaeschke     *
+ * All rights reserved.  Email: ode4j@gmx.de   Web: www.ode4j.org        *
+ *                                                                       *
+ * This library is free software; you can redistribute it and/or         *
+ * modify it under the terms of EITHER:                                  *
+ *   (1) The GNU Lesser General Public License as published by the Free  *
+ *       Software Foundation; either version 2.1 of the License, or (at  *
+ *       your option) any later version. The text of the GNU Lesser      *
+ *       General Public License is included with this library in the     *
+ *       file LICENSE.TXT.                                               *
+ *   (2) The BSD-style license that is included with this library in     *
+ *       the file ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT.         *
+ *                                                                       *
+ * This library is distributed in the hope that it will be useful,       *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the files    *
+ * LICENSE.TXT, ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT for more   *
+ * details.                                                              *
+ *                                                                       *
+ *************************************************************************/
+package org.ode4j.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.ode4j.math.DMatrix3;
+import org.ode4j.ode.DContactGeomBuffer;
+import org.ode4j.ode.DGeom;
+import org.ode4j.ode.OdeHelper;
+import org.ode4j.ode.OdeMath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Narrowphase of pairs of primitives: one call of OdeHelper.collide() for
+ * two slightly rotated, overlapping geoms.
+ * <p>
+ * The cylinder and convex pairs run through libccd, as long as
+ * OdeConfig.dLIBCCD is enabled (the default). libccd works on per-thread
+ * temporaries, so these pairs should not allocate (gc.alloc.rate.norm of
+ * the GC profiler, see BenchmarkMain).
+ * @see MeshColliderBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColliderBenchmark {
+
+	public enum Pair {
+		SPHERE_SPHERE,
+		SPHERE_BOX,
+		BOX_BOX,
+		CAPSULE_CAPSULE,
+		CAPSULE_BOX,
+		/** libccd */
+		CYLINDER_CYLINDER,
+		/** libccd */
+		BOX_CYLINDER,
+		/** libccd */
+		CAPSULE_CYLINDER,
+		/** libccd */
+		CONVEX_SPHERE,
+		/** libccd */
+		CONVEX_BOX,
+		/** libccd */
+		CONVEX_CAPSULE,
+		/** libccd */
+		CONVEX_CYLINDER,
+		/** libccd */
+		CONVEX_CONVEX
+	}
+
+	static final int MAX_CONTACTS = 16;
+
+	@Param({"SPHERE_SPHERE", "SPHERE_BOX", "BOX_BOX", "CAPSULE_CAPSULE",
+		"CAPSULE_BOX", "CYLINDER_CYLINDER", "BOX_CYLINDER", "CAPSULE_CYLINDER",
+		"CONVEX_SPHERE", "CONVEX_BOX", "CONVEX_CAPSULE", "CONVEX_CYLINDER",
+		"CONVEX_CONVEX"})
+	public Pair pair;
+
+	private DGeom g1;
+	private DGeom g2;
+	private final DContactGeomBuffer contacts = new DContactGeomBuffer(MAX_CONTACTS);
+
+	@Setup
+	public void setUp() {
+		OdeHelper.initODE2(0);
+		String[] names = pair.name().split("_");
+		g1 = createGeom(names[0]);
+		g2 = createGeom(names[1]);
+		place(g1, g2);
+	}
+
+	@TearDown
+	public void tearDown() {
+		g1.destroy();
+		g2.destroy();
+		OdeHelper.closeODE();
+	}
+
+	/**
+	 * @return a primitive with a size of about one unit.
+	 */
+	private static DGeom createGeom(String name) {
+		if ("SPHERE".equals(name)) {
+			return OdeHelper.createSphere(0.5);
+		} else if ("BOX".equals(name)) {
+			return OdeHelper.createBox(1, 1, 1);
+		} else if ("CAPSULE".equals(name)) {
+			return OdeHelper.createCapsule(0.3, 0.8);
+		} else if ("CYLINDER".equals(name)) {
+			return OdeHelper.createCylinder(0.5, 1);
+		} else if ("CONVEX".equals(name)) {
+			return Shapes.createCubeConvex(0.5);
+		}
+		throw new IllegalArgumentException(name);
+	}
+
+	/**
+	 * g1 stays at the origin, g2 is tilted and slightly penetrates g1 from
+	 * above, so the colliders have to do more than the axis aligned case.
+	 */
+	static void place(DGeom g1, DGeom g2) {
+		g1.setPosition(0, 0, 0);
+		DMatrix3 R = new DMatrix3();
+		OdeMath.dRFromAxisAndAngle(R, 1, 1, 0, 0.3);
+		g2.setRotation(R);
+		g2.setPosition(0.1, 0.05, 0.9);
+	}
+
+	/**
+	 * @return number of contacts
+	 */
+	@Benchmark
+	public int collide() {
+		return OdeHelper.collide(g1, g2, MAX_CONTACTS, contacts);
+	}
+}
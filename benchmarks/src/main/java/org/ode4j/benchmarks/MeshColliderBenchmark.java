@@ -0,0 +1,166 @@
+/*************************************************************************
+ *                                                                       *
+ * Open Dynamics Engine 4J, Copyright (C) 2009-2014 Tilmann Zaeschke     *
+ * All rights reserved.  Email: ode4j@gmx.de   Web: www.ode4j.org        *
+ *                                                                       *
+ * This library is free software; you can redistribute it and/or         *
+ * modify it under the terms of EITHER:                                  *
+ *   (1) The GNU Lesser General Public License as published by the Free  *
+ *       Software Foundation; either version 2.1 of the License, or (at  *
+ *       your option) any later version. The text of the GNU Lesser      *
+ *       General Public License is included with this library in the     *
+ *       file LICENSE.TXT.                                               *
+ *   (2) The BSD-style license that is included with this library in     *
+ *       the file ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT.         *
+ *                                                                       *
+ * This library is distributed in the hope that it will be useful,       *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the files    *
+ * LICENSE.TXT, ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT for more   *
+ * details.                                                              *
+ *                                                                       *
+ *************************************************************************/
+package org.ode4j.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.ode4j.math.DMatrix3;
+import org.ode4j.ode.DContactGeomBuffer;
+import org.ode4j.ode.DGeom;
+import org.ode4j.ode.DHeightfield;
+import org.ode4j.ode.DTriMesh;
+import org.ode4j.ode.OdeHelper;
+import org.ode4j.ode.OdeMath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Narrowphase of trimeshes, heightfields and convex hulls, which get more
+ * expensive with the number of triangles or faces.
+ * <p>
+ * The terrains (trimesh and heightfield) have resolution x resolution
+ * cells. The trimesh and convex spheres have resolution segments and
+ * resolution/2 rings.
+ * @see ColliderBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MeshColliderBenchmark {
+
+	public enum Pair {
+		TRIMESH_SPHERE,
+		TRIMESH_BOX,
+		TRIMESH_CAPSULE,
+		TRIMESH_CYLINDER,
+		/** a trimesh sphere on the trimesh terrain */
+		TRIMESH_TRIMESH,
+		HEIGHTFIELD_SPHERE,
+		HEIGHTFIELD_BOX,
+		HEIGHTFIELD_CAPSULE,
+		HEIGHTFIELD_CYLINDER,
+		/** a convex sphere on the heightfield */
+		HEIGHTFIELD_CONVEX,
+		/** two convex spheres, libccd */
+		CONVEX_CONVEX
+	}
+
+	@Param({"TRIMESH_SPHERE", "TRIMESH_BOX", "TRIMESH_CAPSULE",
+		"TRIMESH_CYLINDER", "TRIMESH_TRIMESH", "HEIGHTFIELD_SPHERE",
+		"HEIGHTFIELD_BOX", "HEIGHTFIELD_CAPSULE", "HEIGHTFIELD_CYLINDER",
+		"HEIGHTFIELD_CONVEX", "CONVEX_CONVEX"})
+	public Pair pair;
+
+	@Param({"8", "32"})
+	public int resolution;
+
+	private DGeom g1;
+	private DGeom g2;
+	private double step;
+	private final DContactGeomBuffer contacts =
+			new DContactGeomBuffer(ColliderBenchmark.MAX_CONTACTS);
+
+	@Setup
+	public void setUp() {
+		OdeHelper.initODE2(0);
+		String[] names = pair.name().split("_");
+		if ("TRIMESH".equals(names[0])) {
+			g1 = Shapes.createTerrainTriMesh(resolution);
+			g2 = createGeom(names[1]);
+			ColliderBenchmark.place(g1, g2);
+		} else if ("HEIGHTFIELD".equals(names[0])) {
+			g1 = Shapes.createTerrainHeightfield(resolution);
+			g2 = createGeom(names[1]);
+			// heightfields have the y axis up
+			DMatrix3 R = new DMatrix3();
+			OdeMath.dRFromAxisAndAngle(R, 1, 0, 0, Math.PI / 2);
+			g1.setRotation(R);
+			ColliderBenchmark.place(g1, g2);
+		} else {
+			g1 = Shapes.createSphereConvex(0.5, resolution);
+			g2 = Shapes.createSphereConvex(0.5, resolution);
+			ColliderBenchmark.place(g1, g2);
+		}
+		// the terrain dents are 0.3 high, this lets the geoms touch them
+		if (g1 instanceof DTriMesh || g1 instanceof DHeightfield) {
+			g2.setPosition(0.1, 0.05, 0.4);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		g1.destroy();
+		g2.destroy();
+		OdeHelper.closeODE();
+	}
+
+	private DGeom createGeom(String name) {
+		if ("SPHERE".equals(name)) {
+			return OdeHelper.createSphere(0.5);
+		} else if ("BOX".equals(name)) {
+			return OdeHelper.createBox(1, 1, 1);
+		} else if ("CAPSULE".equals(name)) {
+			return OdeHelper.createCapsule(0.3, 0.8);
+		} else if ("CYLINDER".equals(name)) {
+			return OdeHelper.createCylinder(0.5, 1);
+		} else if ("TRIMESH".equals(name)) {
+			return Shapes.createSphereTriMesh(0.5, resolution);
+		} else if ("CONVEX".equals(name)) {
+			return Shapes.createSphereConvex(0.5, resolution);
+		}
+		throw new IllegalArgumentException(name);
+	}
+
+	/**
+	 * @return number of contacts
+	 */
+	@Benchmark
+	public int collide() {
+		return OdeHelper.collide(g1, g2, ColliderBenchmark.MAX_CONTACTS, contacts);
+	}
+
+	/**
+	 * The first geom moves a bit before each collision, so a trimesh has
+	 * to be updated every time.
+	 * @return number of contacts
+	 */
+	@Benchmark
+	public int collideMoving() {
+		step += 0.001;
+		g1.setPosition(0.01 * Math.sin(step), 0, 0);
+		return OdeHelper.collide(g1, g2, ColliderBenchmark.MAX_CONTACTS, contacts);
+	}
+}
@@ -0,0 +1,245 @@
+/*************************************************************************
+ *                                                                       *
+ * Open Dynamics Engine 4J, Copyright (C) 2009-2014 Tilmann Zaeschke     *
+ * All rights reserved.  Email: ode4j@gmx.de   Web: www.ode4j.org        *
+ *                                                                       *
+ * This library is free software; you can redistribute it and/or         *
+ * modify it under the terms of EITHER:                                  *
+ *   (1) The GNU Lesser General Public License as published by the Free  *
+ *       Software Foundation; either version 2.1 of the License, or (at  *
+ *       your option) any later version. The text of the GNU Lesser      *
+ *       General Public License is included with this library in the     *
+ *       file LICENSE.TXT.                                               *
+ *   (2) The BSD-style license that is included with this library in     *
+ *       the file ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT.         *
+ *                                                                       *
+ * This library is distributed in the hope that it will be useful,       *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the files    *
+ * LICENSE.TXT, ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT for more   *
+ * details.                                                              *
+ *                                                                       *
+ *************************************************************************/
+package org.ode4j.benchmarks;
+
+import org.ode4j.ode.DConvex;
+import org.ode4j.ode.DHeightfield;
+import org.ode4j.ode.DHeightfieldData;
+import org.ode4j.ode.DTriMesh;
+import org.ode4j.ode.DTriMeshData;
+import org.ode4j.ode.OdeHelper;
+
+/**
+ * Generated meshes, heightfields and convex hulls with a given resolution.
+ * All polygons are counter-clockwise when seen from the outside.
+ */
+final class Shapes {
+
+	static final double TERRAIN_SIZE = 10;
+
+	private Shapes() {
+		//nothing
+	}
+
+	private static double terrainHeight(double x, double y) {
+		return 0.3 * Math.sin(x) * Math.cos(y);
+	}
+
+	/**
+	 * @return A square terrain of resolution x resolution quads, centered at
+	 * the origin, with the z axis up.
+	 */
+	static DTriMesh createTerrainTriMesh(int resolution) {
+		int n = resolution + 1;
+		float[] vertices = new float[n * n * 3];
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				double x = TERRAIN_SIZE * ((double) i / resolution - 0.5);
+				double y = TERRAIN_SIZE * ((double) j / resolution - 0.5);
+				int v = (i * n + j) * 3;
+				vertices[v] = (float) x;
+				vertices[v + 1] = (float) y;
+				vertices[v + 2] = (float) terrainHeight(x, y);
+			}
+		}
+		int[] indices = new int[resolution * resolution * 6];
+		int t = 0;
+		for (int i = 0; i < resolution; i++) {
+			for (int j = 0; j < resolution; j++) {
+				int v00 = i * n + j;
+				int v10 = v00 + n;
+				int v11 = v10 + 1;
+				int v01 = v00 + 1;
+				indices[t++] = v00;
+				indices[t++] = v10;
+				indices[t++] = v11;
+				indices[t++] = v00;
+				indices[t++] = v11;
+				indices[t++] = v01;
+			}
+		}
+		DTriMeshData data = OdeHelper.createTriMeshData();
+		data.build(vertices, indices);
+		return OdeHelper.createTriMesh(null, data, null, null, null);
+	}
+
+	/**
+	 * @return The terrain of {@link #createTerrainTriMesh(int)} as heightfield.
+	 * Heightfields have the y axis up.
+	 */
+	static DHeightfield createTerrainHeightfield(int resolution) {
+		int n = resolution + 1;
+		double[] heights = new double[n * n];
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				double x = TERRAIN_SIZE * ((double) j / resolution - 0.5);
+				double z = TERRAIN_SIZE * ((double) i / resolution - 0.5);
+				heights[i * n + j] = terrainHeight(x, z);
+			}
+		}
+		DHeightfieldData data = OdeHelper.createHeightfieldData();
+		data.build(heights, false, TERRAIN_SIZE, TERRAIN_SIZE, n, n, 1.0, 0.0, 1.0, false);
+		return OdeHelper.createHeightfield(null, data, true);
+	}
+
+	/**
+	 * Vertices of a UV sphere with resolution segments around the z axis
+	 * and resolution/2 rings: the north pole, the rings, the south pole.
+	 */
+	private static double[] sphereVertices(double radius, int resolution) {
+		int rings = Math.max(resolution / 2, 2);
+		int count = 2 + (rings - 1) * resolution;
+		double[] v = new double[count * 3];
+		v[2] = radius;
+		for (int i = 1; i < rings; i++) {
+			double theta = Math.PI * i / rings;
+			for (int j = 0; j < resolution; j++) {
+				double phi = 2 * Math.PI * j / resolution;
+				int p = (1 + (i - 1) * resolution + j) * 3;
+				v[p] = radius * Math.sin(theta) * Math.cos(phi);
+				v[p + 1] = radius * Math.sin(theta) * Math.sin(phi);
+				v[p + 2] = radius * Math.cos(theta);
+			}
+		}
+		v[count * 3 - 1] = -radius;
+		return v;
+	}
+
+	/**
+	 * Faces of the UV sphere, each face is the number of vertices followed
+	 * by the vertex indices, like the polygons of a DConvex.
+	 */
+	private static int[] sphereFaces(int resolution) {
+		int rings = Math.max(resolution / 2, 2);
+		int south = 1 + (rings - 1) * resolution;
+		int[] f = new int[resolution * 4 * 2 + (rings - 2) * resolution * 5];
+		int p = 0;
+		for (int j = 0; j < resolution; j++) {
+			int j1 = (j + 1) % resolution;
+			f[p++] = 3;
+			f[p++] = 0;
+			f[p++] = 1 + j;
+			f[p++] = 1 + j1;
+		}
+		for (int i = 1; i < rings - 1; i++) {
+			int upper = 1 + (i - 1) * resolution;
+			int lower = upper + resolution;
+			for (int j = 0; j < resolution; j++) {
+				int j1 = (j + 1) % resolution;
+				f[p++] = 4;
+				f[p++] = upper + j;
+				f[p++] = lower + j;
+				f[p++] = lower + j1;
+				f[p++] = upper + j1;
+			}
+		}
+		int last = 1 + (rings - 2) * resolution;
+		for (int j = 0; j < resolution; j++) {
+			int j1 = (j + 1) % resolution;
+			f[p++] = 3;
+			f[p++] = last + j;
+			f[p++] = south;
+			f[p++] = last + j1;
+		}
+		return f;
+	}
+
+	/**
+	 * @return A closed UV sphere mesh.
+	 */
+	static DTriMesh createSphereTriMesh(double radius, int resolution) {
+		double[] v = sphereVertices(radius, resolution);
+		float[] vertices = new float[v.length];
+		for (int i = 0; i < v.length; i++) {
+			vertices[i] = (float) v[i];
+		}
+		int[] faces = sphereFaces(resolution);
+		int triangles = 0;
+		for (int p = 0; p < faces.length; p += faces[p] + 1) {
+			triangles += faces[p] - 2;
+		}
+		int[] indices = new int[triangles * 3];
+		int t = 0;
+		for (int p = 0; p < faces.length; p += faces[p] + 1) {
+			// fan triangulation
+			for (int k = 2; k < faces[p]; k++) {
+				indices[t++] = faces[p + 1];
+				indices[t++] = faces[p + k];
+				indices[t++] = faces[p + k + 1];
+			}
+		}
+		DTriMeshData data = OdeHelper.createTriMeshData();
+		data.build(vertices, indices);
+		return OdeHelper.createTriMesh(null, data, null, null, null);
+	}
+
+	/**
+	 * @return The convex hull of a UV sphere.
+	 */
+	static DConvex createSphereConvex(double radius, int resolution) {
+		double[] points = sphereVertices(radius, resolution);
+		int[] polygons = sphereFaces(resolution);
+		int planeCount = 0;
+		for (int p = 0; p < polygons.length; p += polygons[p] + 1) {
+			planeCount++;
+		}
+		double[] planes = new double[planeCount * 4];
+		int pl = 0;
+		for (int p = 0; p < polygons.length; p += polygons[p] + 1) {
+			int a = polygons[p + 1] * 3, b = polygons[p + 2] * 3, c = polygons[p + 3] * 3;
+			double ux = points[b] - points[a], uy = points[b + 1] - points[a + 1], uz = points[b + 2] - points[a + 2];
+			double vx = points[c] - points[a], vy = points[c + 1] - points[a + 1], vz = points[c + 2] - points[a + 2];
+			double nx = uy * vz - uz * vy, ny = uz * vx - ux * vz, nz = ux * vy - uy * vx;
+			double len = Math.sqrt(nx * nx + ny * ny + nz * nz);
+			nx /= len;
+			ny /= len;
+			nz /= len;
+			planes[pl++] = nx;
+			planes[pl++] = ny;
+			planes[pl++] = nz;
+			planes[pl++] = nx * points[a] + ny * points[a + 1] + nz * points[a + 2];
+		}
+		return OdeHelper.createConvex(planes, planeCount, points, points.length / 3, polygons);
+	}
+
+	/**
+	 * @return A cube with the given half side length as DConvex.
+	 */
+	static DConvex createCubeConvex(double h) {
+		double[] planes = {
+				1, 0, 0, h,   0, 1, 0, h,   0, 0, 1, h,
+				0, 0, -1, h,  0, -1, 0, h,  -1, 0, 0, h };
+		double[] points = {
+				h, h, h,    -h, h, h,    h, -h, h,    -h, -h, h,
+				h, h, -h,   -h, h, -h,   h, -h, -h,   -h, -h, -h };
+		int[] polygons = {
+				4, 0, 2, 6, 4, // positive X
+				4, 1, 0, 4, 5, // positive Y
+				4, 0, 1, 3, 2, // positive Z
+				4, 3, 1, 5, 7, // negative X
+				4, 2, 3, 7, 6, // negative Y
+				4, 5, 4, 6, 7, // negative Z
+		};
+		return OdeHelper.createConvex(planes, 6, points, 8, polygons);
+	}
+}
@@ -0,0 +1,193 @@
+/*************************************************************************
+ *                                                                       *
+ * Open Dynamics Engine 4J, Copyright (C) 2009-2014 Tilmann Zaeschke     *
+ * All rights reserved.  Email: ode4j@gmx.de   Web: www.ode4j.org        *
+ *                                                                       *
+ * This library is free software; you can redistribute it and/or         *
+ * modify it under the terms of EITHER:                                  *
+ *   (1) The GNU Lesser General Public License as published by the Free  *
+ *       Software Foundation; either version 2.1 of the License, or (at  *
+ *       your option) any later version. The text of the GNU Lesser      *
+ *       General Public License is included with this library in the     *
+ *       file LICENSE.TXT.                                               *
+ *   (2) The BSD-style license that is included with this library in     *
+ *       the file ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT.         *
+ *                                                                       *
+ * This library is distributed in the hope that it will be useful,       *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the files    *
+ * LICENSE.TXT, ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT for more   *
+ * details.                                                              *
+ *                                                                       *
+ *************************************************************************/
+package org.ode4j.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.ode4j.math.DVector3;
+import org.ode4j.ode.DGeom;
+import org.ode4j.ode.DGeom.DNearCallback;
+import org.ode4j.ode.DSapSpace;
+import org.ode4j.ode.DSpace;
+import org.ode4j.ode.OdeHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Broadphase of the space implementations: collide() of a space with
+ * randomly placed boxes and spheres, and collide2() of a probe geom
+ * with the space. The near callback only counts the pairs, so no
+ * narrowphase is included.
+ * <p>
+ * The geoms are distributed with a constant density, so the number of
+ * overlapping pairs grows linearly with the number of geoms.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpaceBenchmark {
+
+	public enum SpaceType {
+		SIMPLE,
+		HASH,
+		SAP,
+		SAP_INCREMENTAL,
+		QUADTREE,
+		DYNAMIC_TREE,
+		LOOSE_OCTREE
+	}
+
+	private static final double GEOM_SIZE = 1.0;
+	/** Average number of geoms per unit cube */
+	private static final double DENSITY = 0.1;
+	private static final long SEED = 4711;
+
+	@Param({"SIMPLE", "HASH", "SAP", "SAP_INCREMENTAL", "QUADTREE", "DYNAMIC_TREE", "LOOSE_OCTREE"})
+	public SpaceType type;
+
+	@Param({"100", "1000"})
+	public int count;
+
+	private DSpace space;
+	private DGeom[] geoms;
+	private DVector3[] positions;
+	private DGeom probe;
+	private double step;
+	private int pairs;
+
+	private final DNearCallback countingCallback = new DNearCallback() {
+		@Override
+		public void call(Object data, DGeom o1, DGeom o2) {
+			pairs++;
+		}
+	};
+
+	@Setup
+	public void setUp() {
+		OdeHelper.initODE2(0);
+		double extent = Math.cbrt(count / DENSITY);
+		space = createSpace(type, extent);
+		Random r = new Random(SEED);
+		geoms = new DGeom[count];
+		positions = new DVector3[count];
+		for (int i = 0; i < count; i++) {
+			DGeom g;
+			if ((i & 1) == 0) {
+				g = OdeHelper.createBox(space, GEOM_SIZE, GEOM_SIZE, GEOM_SIZE);
+			} else {
+				g = OdeHelper.createSphere(space, GEOM_SIZE / 2);
+			}
+			positions[i] = new DVector3(r.nextDouble() * extent,
+					r.nextDouble() * extent, r.nextDouble() * extent);
+			g.setPosition(positions[i]);
+			geoms[i] = g;
+		}
+		// the probe covers about 1% of the volume
+		double probeSize = extent * Math.cbrt(0.01);
+		probe = OdeHelper.createBox(probeSize, probeSize, probeSize);
+		probe.setPosition(extent / 2, extent / 2, extent / 2);
+	}
+
+	@TearDown
+	public void tearDown() {
+		probe.destroy();
+		space.destroy();
+		OdeHelper.closeODE();
+	}
+
+	private static DSpace createSpace(SpaceType type, double extent) {
+		switch (type) {
+		case SIMPLE:
+			return OdeHelper.createSimpleSpace();
+		case HASH:
+			return OdeHelper.createHashSpace();
+		case SAP:
+			return OdeHelper.createSapSpace(DSapSpace.AXES.XYZ);
+		case SAP_INCREMENTAL:
+			return OdeHelper.createIncrementalSapSpace(DSapSpace.AXES.XYZ);
+		case QUADTREE: {
+			DVector3 center = new DVector3(extent / 2, extent / 2, extent / 2);
+			DVector3 extents = new DVector3(extent, extent, extent);
+			return OdeHelper.createQuadTreeSpace(center, extents, 6);
+		}
+		case DYNAMIC_TREE:
+			return OdeHelper.createDynamicTreeSpace();
+		case LOOSE_OCTREE:
+			return OdeHelper.createLooseOctreeSpace();
+		default:
+			throw new IllegalArgumentException(type.name());
+		}
+	}
+
+	/**
+	 * @return number of potentially colliding pairs
+	 */
+	@Benchmark
+	public int collide() {
+		pairs = 0;
+		space.collide(null, countingCallback);
+		return pairs;
+	}
+
+	/**
+	 * All geoms move a bit before collide() is called, as in a simulation
+	 * where everything moves.
+	 * @return number of potentially colliding pairs
+	 */
+	@Benchmark
+	public int collideMoving() {
+		step += 0.01;
+		double dx = 0.1 * Math.sin(step);
+		for (int i = 0; i < geoms.length; i++) {
+			DVector3 p = positions[i];
+			geoms[i].setPosition(p.get0() + dx, p.get1(), p.get2() - dx);
+		}
+		pairs = 0;
+		space.collide(null, countingCallback);
+		return pairs;
+	}
+
+	/**
+	 * @return number of geoms that are near the probe
+	 */
+	@Benchmark
+	public int collide2() {
+		pairs = 0;
+		space.collide2(probe, null, countingCallback);
+		return pairs;
+	}
+}
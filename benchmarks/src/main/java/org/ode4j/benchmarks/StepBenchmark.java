@@ -0,0 +1,341 @@
+/*************************************************************************
+ *                                                                       *
+ * Open Dynamics Engine 4J, Copyright (C) 2009-2014 Tilmann Zaeschke     *
+ * All rights reserved.  Email: ode4j@gmx.de   Web: www.ode4j.org        *
+ *                                                                       *
+ * This library is free software; you can redistribute it and/or         *
+ * modify it under the terms of EITHER:                                  *
+ *   (1) The GNU Lesser General Public License as published by the Free  *
+ *       Software Foundation; either version 2.1 of the License, or (at  *
+ *       your option) any later version. The text of the GNU Lesser      *
+ *       General Public License is included with this library in the     *
+ *       file LICENSE.TXT.                                               *
+ *   (2) The BSD-style license that is included with this library in     *
+ *       the file ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT.         *
+ *                                                                       *
+ * This library is distributed in the hope that it will be useful,       *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the files    *
+ * LICENSE.TXT, ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT for more   *
+ * details.                                                              *
+ *                                                                       *
+ *************************************************************************/
+package org.ode4j.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.ode4j.math.DMatrix3;
+import org.ode4j.math.DVector3;
+import org.ode4j.ode.DBallJoint;
+import org.ode4j.ode.DBody;
+import org.ode4j.ode.DContact;
+import org.ode4j.ode.DContactBuffer;
+import org.ode4j.ode.DContactGeom;
+import org.ode4j.ode.DContactGeomBuffer;
+import org.ode4j.ode.DGeom;
+import org.ode4j.ode.DGeom.DNearCallback;
+import org.ode4j.ode.DHingeJoint;
+import org.ode4j.ode.DJoint;
+import org.ode4j.ode.DJoint.PARAM_N;
+import org.ode4j.ode.DJointGroup;
+import org.ode4j.ode.DMass;
+import org.ode4j.ode.DPairManager;
+import org.ode4j.ode.DPairManager.DPairListener;
+import org.ode4j.ode.DSpace;
+import org.ode4j.ode.DUniversalJoint;
+import org.ode4j.ode.DWorld;
+import org.ode4j.ode.OdeConstants;
+import org.ode4j.ode.OdeHelper;
+import org.ode4j.ode.OdeMath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One simulation step (collision, stepping, contact group cleanup) of
+ * DWorld.quickStep() and DWorld.step(), and of DWorld.quickStep() with the
+ * contacts of a DPairManager.
+ * <p>
+ * The scene is rebuilt before every iteration, so all iterations simulate
+ * the same time span of the scene.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StepBenchmark {
+
+	public enum SceneType {
+		/** size boxes in stacks of five */
+		BOX_STACK,
+		/** a hanging chain of size spheres */
+		CHAIN,
+		/** size ragdolls falling on the ground */
+		RAGDOLL
+	}
+
+	private static final double STEP_SIZE = 0.01;
+	private static final int MAX_CONTACTS = 4;
+	private static final int STACK_HEIGHT = 5;
+	private static final double BOX_SIZE = 0.5;
+	private static final double LINK_RADIUS = 0.1;
+
+	@Param({"BOX_STACK", "CHAIN", "RAGDOLL"})
+	public SceneType scene;
+
+	@Param({"10", "100"})
+	public int size;
+
+	private DWorld world;
+	private DSpace space;
+	private DJointGroup contactGroup;
+	private DPairManager pairManager;
+	// the contact joints keep their DContact, so each joint of a step gets
+	// its own one
+	private DContactBuffer contacts = new DContactBuffer(256);
+	private DContactGeomBuffer contactView = contacts.getGeomBuffer().createView(0);
+	private int contactCount = 0;
+
+	private final DNearCallback nearCallback = new DNearCallback() {
+		@Override
+		public void call(Object data, DGeom o1, DGeom o2) {
+			if (isConnected(o1, o2)) {
+				return;
+			}
+			reserveContacts();
+			contactView.setView(contacts.getGeomBuffer(), contactCount);
+			int n = OdeHelper.collide(o1, o2, MAX_CONTACTS, contactView);
+			createContactJoints(o1, o2, n);
+		}
+	};
+
+	private final DPairListener pairListener = new DPairListener() {
+		@Override
+		public void begin(Object data, DGeom o1, DGeom o2, DContactGeomBuffer geoms, int count) {
+			persist(data, o1, o2, geoms, count);
+		}
+
+		@Override
+		public void persist(Object data, DGeom o1, DGeom o2, DContactGeomBuffer geoms, int count) {
+			if (isConnected(o1, o2)) {
+				return;
+			}
+			reserveContacts();
+			for (int i = 0; i < count; i++) {
+				DContactGeom src = geoms.get(i);
+				DContactGeom dst = contacts.get(contactCount + i).geom;
+				dst.pos.set(src.pos);
+				dst.normal.set(src.normal);
+				dst.depth = src.depth;
+				dst.g1 = src.g1;
+				dst.g2 = src.g2;
+				dst.side1 = src.side1;
+				dst.side2 = src.side2;
+			}
+			createContactJoints(o1, o2, count);
+		}
+
+		@Override
+		public void end(Object data, DGeom o1, DGeom o2) {
+		}
+	};
+
+	private static boolean isConnected(DGeom o1, DGeom o2) {
+		DBody b1 = o1.getBody();
+		DBody b2 = o2.getBody();
+		return b1 != null && b2 != null && OdeHelper.areConnected(b1, b2);
+	}
+
+	private void reserveContacts() {
+		if (contactCount + MAX_CONTACTS > contacts.size()) {
+			// the joints of this step keep the old buffer
+			contacts = new DContactBuffer(contacts.size() * 2);
+			contactView = contacts.getGeomBuffer().createView(0);
+			contactCount = 0;
+		}
+	}
+
+	private void createContactJoints(DGeom o1, DGeom o2, int n) {
+		for (int i = 0; i < n; i++) {
+			DContact contact = contacts.get(contactCount++);
+			contact.surface.mode = OdeConstants.dContactApprox1 | OdeConstants.dContactSoftCFM;
+			contact.surface.mu = 0.5;
+			contact.surface.soft_cfm = 1e-5;
+			DJoint c = OdeHelper.createContactJoint(world, contactGroup, contact);
+			c.attach(o1.getBody(), o2.getBody());
+		}
+	}
+
+	@Setup(Level.Iteration)
+	public void setUp() {
+		OdeHelper.initODE2(0);
+		world = OdeHelper.createWorld();
+		world.setGravity(0, 0, -9.81);
+		world.setQuickStepNumIterations(20);
+		space = OdeHelper.createHashSpace();
+		contactGroup = OdeHelper.createJointGroup();
+		pairManager = OdeHelper.createPairManager(space, MAX_CONTACTS);
+		OdeHelper.createPlane(space, 0, 0, 1, 0);
+		switch (scene) {
+		case BOX_STACK: createBoxStacks(); break;
+		case CHAIN: createChain(); break;
+		case RAGDOLL: createRagdolls(); break;
+		default: throw new IllegalArgumentException(scene.name());
+		}
+	}
+
+	@TearDown(Level.Iteration)
+	public void tearDown() {
+		contactGroup.destroy();
+		space.destroy();
+		world.destroy();
+		OdeHelper.closeODE();
+	}
+
+	@Benchmark
+	public void quickStep() {
+		space.collide(null, nearCallback);
+		world.quickStep(STEP_SIZE);
+		contactGroup.empty();
+		contactCount = 0;
+	}
+
+	@Benchmark
+	public void quickStepPairManager() {
+		pairManager.update(null, pairListener);
+		world.quickStep(STEP_SIZE);
+		contactGroup.empty();
+		contactCount = 0;
+	}
+
+	@Benchmark
+	public void step() {
+		space.collide(null, nearCallback);
+		world.step(STEP_SIZE);
+		contactGroup.empty();
+		contactCount = 0;
+	}
+
+	private DBody createBody(double x, double y, double z) {
+		DBody b = OdeHelper.createBody(world);
+		b.setPosition(x, y, z);
+		return b;
+	}
+
+	private void createBoxStacks() {
+		DMass m = OdeHelper.createMass();
+		m.setBox(1, BOX_SIZE, BOX_SIZE, BOX_SIZE);
+		for (int i = 0; i < size; i++) {
+			int stack = i / STACK_HEIGHT;
+			int level = i % STACK_HEIGHT;
+			DBody b = createBody(stack * 2 * BOX_SIZE, 0, (level + 0.5) * BOX_SIZE);
+			b.setMass(m);
+			OdeHelper.createBox(space, BOX_SIZE, BOX_SIZE, BOX_SIZE).setBody(b);
+		}
+	}
+
+	private void createChain() {
+		DMass m = OdeHelper.createMass();
+		m.setSphere(1, LINK_RADIUS);
+		double top = 2 * LINK_RADIUS * size + 1;
+		DBody prev = null;
+		for (int i = 0; i < size; i++) {
+			// the chain hangs sideways, so it swings and hits the ground
+			DBody b = createBody(2 * LINK_RADIUS * (i + 1), 0, top);
+			b.setMass(m);
+			OdeHelper.createSphere(space, LINK_RADIUS).setBody(b);
+			DBallJoint j = OdeHelper.createBallJoint(world);
+			j.attach(b, prev);
+			j.setAnchor(2 * LINK_RADIUS * i + LINK_RADIUS, 0, top);
+			prev = b;
+		}
+	}
+
+	private void createRagdolls() {
+		for (int i = 0; i < size; i++) {
+			createRagdoll((i % 10) * 2.0, (i / 10) * 2.0, 2.0);
+		}
+	}
+
+	/**
+	 * A simple human shaped ragdoll of eleven capsules, standing at (x, y)
+	 * with the pelvis at height z.
+	 */
+	private void createRagdoll(double x, double y, double z) {
+		DBody pelvis = createCapsule(x, y, z, x, y, z + 0.2, 0.12);
+		DBody torso = createCapsule(x, y, z + 0.3, x, y, z + 0.6, 0.15);
+		DBody head = createCapsule(x, y, z + 0.85, x, y, z + 0.9, 0.1);
+		createUniversal(pelvis, torso, x, y, z + 0.25);
+		createBall(torso, head, x, y, z + 0.72);
+		for (int side = -1; side <= 1; side += 2) {
+			double sx = x + side * 0.25;
+			DBody upperArm = createCapsule(sx, y, z + 0.6, sx + side * 0.3, y, z + 0.6, 0.05);
+			DBody foreArm = createCapsule(sx + side * 0.4, y, z + 0.6, sx + side * 0.65, y, z + 0.6, 0.04);
+			createBall(torso, upperArm, sx - side * 0.05, y, z + 0.6);
+			createHinge(upperArm, foreArm, sx + side * 0.35, y, z + 0.6, 0, 0, 1);
+			double lx = x + side * 0.1;
+			DBody upperLeg = createCapsule(lx, y, z - 0.1, lx, y, z - 0.5, 0.07);
+			DBody lowerLeg = createCapsule(lx, y, z - 0.65, lx, y, z - 1.05, 0.06);
+			createBall(pelvis, upperLeg, lx, y, z);
+			createHinge(upperLeg, lowerLeg, lx, y, z - 0.58, 1, 0, 0);
+		}
+	}
+
+	private DBody createCapsule(double x1, double y1, double z1,
+			double x2, double y2, double z2, double radius) {
+		double dx = x2 - x1, dy = y2 - y1, dz = z2 - z1;
+		double length = Math.sqrt(dx * dx + dy * dy + dz * dz);
+		DBody b = createBody((x1 + x2) / 2, (y1 + y2) / 2, (z1 + z2) / 2);
+		DMass m = OdeHelper.createMass();
+		m.setCapsule(1, 3, radius, length);
+		b.setMass(m);
+		if (length > 0 && Math.abs(dz) < length) {
+			// capsules are aligned with the z axis of their body
+			DMatrix3 R = new DMatrix3();
+			OdeMath.dRFromZAxis(R, new DVector3(dx, dy, dz));
+			b.setRotation(R);
+		}
+		OdeHelper.createCapsule(space, radius, length).setBody(b);
+		return b;
+	}
+
+	private void createBall(DBody b1, DBody b2, double x, double y, double z) {
+		DBallJoint j = OdeHelper.createBallJoint(world);
+		j.attach(b1, b2);
+		j.setAnchor(x, y, z);
+	}
+
+	private void createHinge(DBody b1, DBody b2, double x, double y, double z,
+			double ax, double ay, double az) {
+		DHingeJoint j = OdeHelper.createHingeJoint(world);
+		j.attach(b1, b2);
+		j.setAnchor(x, y, z);
+		j.setAxis(ax, ay, az);
+		j.setParamLoStop(0);
+		j.setParamHiStop(2.5);
+	}
+
+	private void createUniversal(DBody b1, DBody b2, double x, double y, double z) {
+		DUniversalJoint j = OdeHelper.createUniversalJoint(world);
+		j.attach(b1, b2);
+		j.setAnchor(x, y, z);
+		j.setAxis1(1, 0, 0);
+		j.setAxis2(0, 1, 0);
+		j.setParam(PARAM_N.dParamLoStop1, -0.5);
+		j.setParam(PARAM_N.dParamHiStop1, 0.5);
+		j.setParam(PARAM_N.dParamLoStop2, -0.5);
+		j.setParam(PARAM_N.dParamHiStop2, 0.5);
+	}
+}
@@ -0,0 +1,141 @@
+/*************************************************************************
+ *                                                                       *
+ * Open Dynamics Engine 4J, Copyright (C) 2009-2014 Tilmann Zaeschke     *
+ * All rights reserved.  Email: ode4j@gmx.de   Web: www.ode4j.org        *
+ *                                                                       *
+ * This library is free software; you can redistribute it and/or         *
+ * modify it under the terms of EITHER:                                  *
+ *   (1) The GNU Lesser General Public License as published by the Free  *
+ *       Software Foundation; either version 2.1 of the License, or (at  *
+ *       your option) any later version. The text of the GNU Lesser      *
+ *       General Public License is included with this library in the     *
+ *       file LICENSE.TXT.                                               *
+ *   (2) The BSD-style license that is included with this library in     *
+ *       the file ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT.         *
+ *                                                                       *
+ * This library is distributed in the hope that it will be useful,       *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the files    *
+ * LICENSE.TXT, ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT for more   *
+ * details.                                                              *
+ *                                                                       *
+ *************************************************************************/
+package org.ode4j.ode.internal;
+
+import static org.ode4j.ode.internal.Common.dPAD;
+
+import java.util.concurrent.TimeUnit;
+
+import org.ode4j.ode.internal.processmem.DxWorldProcessMemArena;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The dense solvers of DWorld.step(): the LDLT factorization (FastLDLT)
+ * and the Dantzig LCP solver (DLCP), with a random positive definite
+ * problem of size n, as in DLCP.dTestSolveLCP().
+ * <p>
+ * This benchmark lives in the internal package, because DLCP is not
+ * public.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LcpBenchmark {
+
+	private static final long SEED = 4711;
+
+	@Param({"30", "100"})
+	public int n;
+
+	private int nskip;
+	private int nub;
+	private double[] A, b, lo, hi;
+	private double[] A2, b2, lo2, hi2, x, w, d;
+	private DxWorldProcessMemArena arena;
+
+	@Setup
+	public void setUp() {
+		nskip = dPAD(n);
+		A = new double[n * nskip];
+		b = new double[n];
+		lo = new double[n];
+		hi = new double[n];
+		A2 = new double[n * nskip];
+		b2 = new double[n];
+		lo2 = new double[n];
+		hi2 = new double[n];
+		x = new double[n];
+		w = new double[n];
+		d = new double[n];
+
+		// form (A,b) = a random positive definite LCP problem
+		Misc.dRandSetSeed(SEED);
+		Misc.dMakeRandomMatrix(A2, n, n, 1.0);
+		Matrix.dMultiply2(A, A2, A2, n, n, n);
+		Misc.dMakeRandomMatrix(x, n, 1, 1.0);
+		Matrix.dMultiply0(b, A, x, n, n, 1);
+		for (int i = 0; i < n; i++) b[i] += (Misc.dRandReal() * 0.2) - 0.1;
+		// half of the variables are unbounded
+		nub = n / 2;
+		for (int i = 0; i < nub; i++) {
+			lo[i] = Double.NEGATIVE_INFINITY;
+			hi[i] = Double.POSITIVE_INFINITY;
+		}
+		for (int i = nub; i < n; i++) {
+			lo[i] = -Misc.dRandReal() - 0.01;
+			hi[i] = Misc.dRandReal() + 0.01;
+		}
+		arena = DxWorldProcessMemArena.allocateTemporary(
+				DLCP.dEstimateSolveLCPMemoryReq(n, false), null, null);
+	}
+
+	@TearDown
+	public void tearDown() {
+		DxWorldProcessMemArena.freeTemporary(arena);
+	}
+
+	/**
+	 * Factorizes A and solves A*x=b.
+	 */
+	@Benchmark
+	public double[] factorLDLT() {
+		System.arraycopy(A, 0, A2, 0, A.length);
+		System.arraycopy(b, 0, b2, 0, n);
+		Matrix.dFactorLDLT(A2, d, n, nskip);
+		Matrix.dSolveLDLT(A2, d, b2, n, nskip);
+		return b2;
+	}
+
+	/**
+	 * Solves the LCP, the solver permutes A, b, lo and hi, so these are
+	 * copied first.
+	 */
+	@Benchmark
+	public double[] solveLCP() {
+		System.arraycopy(A, 0, A2, 0, A.length);
+		Misc.dClearUpperTriangle(A2, n);
+		System.arraycopy(b, 0, b2, 0, n);
+		System.arraycopy(lo, 0, lo2, 0, n);
+		System.arraycopy(hi, 0, hi2, 0, n);
+		Matrix.dSetZero(x);
+		Matrix.dSetZero(w);
+		int saveInner = arena.BEGIN_STATE_SAVE();
+		DLCP.dSolveLCP(arena, n, A2, x, b2, w, nub, lo2, hi2, null);
+		arena.END_STATE_SAVE(saveInner);
+		return x;
+	}
+}
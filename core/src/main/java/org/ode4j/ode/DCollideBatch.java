@@ -0,0 +1,93 @@
+/*************************************************************************
+ *                                                                       *
+ * Open Dynamics Engine, Copyright (C) 2001,2002 Russell L. Smith.       *
+ * All rights reserved.  Email: russ@q12.org   Web: www.q12.org          *
+ * Open Dynamics Engine 4J, Copyright (C) 2009-2014 Tilmann Zaeschke     *
+ * All rights reserved.  Email: ode4j@gmx.de   Web: www.ode4j.org        *
+ *                                                                       *
+ * This library is free software; you can redistribute it and/or         *
+ * modify it under the terms of EITHER:                                  *
+ *   (1) The GNU Lesser General Public License as published by the Free  *
+ *       Software Foundation; either version 2.1 of the License, or (at  *
+ *       your option) any later version. The text of the GNU Lesser      *
+ *       General Public License is included with this library in the     *
+ *       file LICENSE.TXT.                                               *
+ *   (2) The BSD-style license that is included with this library in     *
+ *       the file ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT.         *
+ *                                                                       *
+ * This library is distributed in the hope that it will be useful,       *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the files    *
+ * LICENSE.TXT, ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT for more   *
+ * details.                                                              *
+ *                                                                       *
+ *************************************************************************/
+package org.ode4j.ode;
+
+import org.ode4j.ode.threading.DThreadingImplementation;
+import org.ode4j.ode.threading.Threading_H.DThreadingFunctionsInfo;
+
+/**
+ * Narrow phase for a list of geom pairs, e.g. the pairs collected in the
+ * near callback of a space, that writes the contacts of all pairs into one
+ * contact buffer.
+ * <p>
+ * Compared to calling <tt>OdeHelper.collide()</tt> for each pair, the pairs
+ * are grouped by the classes of their geoms, so that pairs with the same
+ * collider are collided one after another, no contact buffer view is
+ * created per pair, and the pairs can be collided on all threads of a
+ * threading implementation.
+ * <p>
+ * A batch keeps its working memory between calls and must not be used by
+ * several threads at the same time.
+ *
+ * @see OdeHelper#createCollideBatch()
+ */
+public interface DCollideBatch {
+
+	/**
+	 * Collide the pairs <tt>(geoms[pairs[2*i]], geoms[pairs[2*i+1]])</tt>
+	 * for <tt>i</tt> in <tt>[0, pairCount)</tt>.
+	 * <p>
+	 * The contacts of pair <tt>i</tt> are written to
+	 * <tt>contacts.get(offsets[i])</tt> to
+	 * <tt>contacts.get(offsets[i] + counts[i] - 1)</tt>. The contacts of all
+	 * pairs are stored without gaps, but not in the order of the pairs. If
+	 * the rest of the buffer can not hold the maximum number of contacts
+	 * of a pair, the pair and all following pairs are skipped and get a
+	 * count of -1.
+	 * <p>
+	 * The result is the same with or without threading implementation.
+	 *
+	 * @param geoms the geoms that are referred to by <tt>pairs</tt>
+	 * @param pairs two indices into <tt>geoms</tt> per pair
+	 * @param pairCount number of pairs
+	 * @param flags maximum number of contacts per pair, like for
+	 * <tt>OdeHelper.collide()</tt>
+	 * @param contacts the buffer for the contacts of all pairs
+	 * @param offsets returns the index of the first contact of each pair
+	 * @param counts returns the number of contacts of each pair
+	 * @return the number of contacts in <tt>contacts</tt>
+	 * @see OdeHelper#collide(DGeom, DGeom, int, DContactGeomBuffer)
+	 */
+	int collide (DGeom[] geoms, int[] pairs, int pairCount, int flags,
+			DContactGeomBuffer contacts, int[] offsets, int[] counts);
+
+	/**
+	 * Assign threading implementation to be used by <tt>collide()</tt>.
+	 * <p>
+	 * The pairs are collided concurrently, so user defined colliders (see
+	 * <tt>OdeHelper.setColliderOverride()</tt>) have to be thread-safe.
+	 * The heightfield colliders move the other geom of the pair while
+	 * they collide, pairs with a heightfield are therefore collided on
+	 * the calling thread after the other pairs.
+	 *
+	 * @param functions_info Pointer to threading functions structure, or
+	 * <tt>null</tt> to collide on the calling thread
+	 * @param threading_impl ID of threading implementation object, or <tt>null</tt>
+	 * @see OdeHelper#allocateMultiThreaded()
+	 * @see OdeHelper#allocateThreadPool(int, int, Object[][])
+	 */
+	void setThreadingImplementation (DThreadingFunctionsInfo functions_info,
+			DThreadingImplementation threading_impl);
+}
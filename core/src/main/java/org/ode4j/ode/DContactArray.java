@@ -0,0 +1,363 @@
+/*************************************************************************
+ *                                                                       *
+ * Open Dynamics Engine, Copyright (C) 2001,2002 Russell L. Smith.       *
+ * All rights reserved.  Email: russ@q12.org   Web: www.q12.org          *
+ * Open Dynamics Engine 4J, Copyright (C) 2009-2014 Tilmann Zaeschke     *
+ * All rights reserved.  Email: ode4j@gmx.de   Web: www.ode4j.org        *
+ *                                                                       *
+ * This library is free software; you can redistribute it and/or         *
+ * modify it under the terms of EITHER:                                  *
+ *   (1) The GNU Lesser General Public License as published by the Free  *
+ *       Software Foundation; either version 2.1 of the License, or (at  *
+ *       your option) any later version. The text of the GNU Lesser      *
+ *       General Public License is included with this library in the     *
+ *       file LICENSE.TXT.                                               *
+ *   (2) The BSD-style license that is included with this library in     *
+ *       the file ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT.         *
+ *                                                                       *
+ * This library is distributed in the hope that it will be useful,       *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the files    *
+ * LICENSE.TXT, ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT for more   *
+ * details.                                                              *
+ *                                                                       *
+ *************************************************************************/
+package org.ode4j.ode;
+
+import java.util.Arrays;
+
+import org.ode4j.math.DVector3;
+import org.ode4j.math.DVector3C;
+import org.ode4j.ode.DContact.DSurfaceParameters;
+import org.ode4j.ode.internal.DxGeom;
+
+
+/**
+ * A growable collection of contacts that stores the contact data in
+ * arrays of primitives instead of DContact objects.
+ * <p>
+ * The array is meant to be cleared and filled again in every step:
+ * <pre>
+ * contacts.clear();
+ * // in the near callback
+ * int first = contacts.size();
+ * int n = contacts.collide(o1, o2, MAX_CONTACTS);
+ * contacts.setSurface(first, first + n, surface);
+ * for (int i = first; i &lt; first + n; i++) {
+ *     OdeHelper.createContactJoint(world, contactGroup, contacts, i)
+ *         .attach(b1, b2);
+ * }
+ * </pre>
+ * The colliders write into one scratch buffer that is reused for all
+ * pairs, and the contact joints use DContact objects that are reused in
+ * the next steps, so no objects are created per contact once the array
+ * has grown to the number of contacts of a step.
+ */
+public final class DContactArray {
+
+	// offsets of the surface parameters
+	private static final int MU = 0;
+	private static final int MU2 = 1;
+	private static final int RHO = 2;
+	private static final int RHO2 = 3;
+	private static final int RHO_N = 4;
+	private static final int BOUNCE = 5;
+	private static final int BOUNCE_VEL = 6;
+	private static final int SOFT_ERP = 7;
+	private static final int SOFT_CFM = 8;
+	private static final int MOTION1 = 9;
+	private static final int MOTION2 = 10;
+	private static final int MOTION_N = 11;
+	private static final int SLIP1 = 12;
+	private static final int SLIP2 = 13;
+	private static final int SURFACE_SIZE = 14;
+
+	private int _size = 0;
+	private double[] _pos;
+	private double[] _normal;
+	private double[] _depth;
+	private DGeom[] _g1;
+	private DGeom[] _g2;
+	private int[] _side1;
+	private int[] _side2;
+	private double[] _fdir1;
+	private int[] _mode;
+	private double[] _surface;
+
+	// scratch buffer for the colliders
+	private DContactGeomBuffer _scratch = new DContactGeomBuffer(0);
+	// contacts of the contact joints, created on demand
+	private DContact[] _contacts;
+
+	public DContactArray(int capacity) {
+		capacity = Math.max(capacity, 1);
+		_pos = new double[3 * capacity];
+		_normal = new double[3 * capacity];
+		_depth = new double[capacity];
+		_g1 = new DGeom[capacity];
+		_g2 = new DGeom[capacity];
+		_side1 = new int[capacity];
+		_side2 = new int[capacity];
+		_fdir1 = new double[3 * capacity];
+		_mode = new int[capacity];
+		_surface = new double[SURFACE_SIZE * capacity];
+		_contacts = new DContact[capacity];
+	}
+
+	/**
+	 * @return the number of contacts in this array
+	 */
+	public int size() {
+		return _size;
+	}
+
+	/**
+	 * Remove all contacts. The memory of the array is kept.
+	 * <p>
+	 * Contact joints that were created from this array must not be used
+	 * after the array was cleared.
+	 */
+	public void clear() {
+		for (int i = 0; i < _size; i++) {
+			_g1[i] = null;
+			_g2[i] = null;
+		}
+		_size = 0;
+	}
+
+	/**
+	 * Collide two geoms like <tt>OdeHelper.collide()</tt> and append the
+	 * contacts to this array. The surface parameters and fdir1 of the new
+	 * contacts are zero.
+	 * @param o1 The first geometry to test.
+	 * @param o2 The second geometry to test.
+	 * @param flags The maximum number of contacts, like for
+	 * <tt>OdeHelper.collide()</tt>
+	 * @return the number of new contacts
+	 * @see OdeHelper#collide(DGeom, DGeom, int, DContactGeomBuffer)
+	 */
+	public int collide(DGeom o1, DGeom o2, int flags) {
+		int max = flags & DxGeom.NUMC_MASK;
+		if (_scratch.size() < max) {
+			_scratch = new DContactGeomBuffer(max);
+		}
+		int n = OdeHelper.collide(o1, o2, flags, _scratch);
+		add(_scratch, n);
+		return n;
+	}
+
+	/**
+	 * Append the first <tt>count</tt> contacts of <tt>contacts</tt> to
+	 * this array. The surface parameters and fdir1 of the new contacts
+	 * are zero.
+	 * @param contacts the contacts to copy
+	 * @param count number of contacts to copy
+	 * @return the index of the first new contact
+	 */
+	public int add(DContactGeomBuffer contacts, int count) {
+		int first = _size;
+		ensureCapacity(_size + count);
+		for (int c = 0; c < count; c++) {
+			DContactGeom g = contacts.get(c);
+			int i = _size++;
+			set3(_pos, i, g.pos);
+			set3(_normal, i, g.normal);
+			_depth[i] = g.depth;
+			_g1[i] = g.g1;
+			_g2[i] = g.g2;
+			_side1[i] = g.side1;
+			_side2[i] = g.side2;
+			_fdir1[3*i] = 0;
+			_fdir1[3*i+1] = 0;
+			_fdir1[3*i+2] = 0;
+			_mode[i] = 0;
+			Arrays.fill(_surface, SURFACE_SIZE * i, SURFACE_SIZE * (i + 1), 0);
+		}
+		return first;
+	}
+
+	private void ensureCapacity(int capacity) {
+		int old = _depth.length;
+		if (capacity <= old) {
+			return;
+		}
+		int n = Math.max(capacity, 2 * old);
+		_pos = Arrays.copyOf(_pos, 3 * n);
+		_normal = Arrays.copyOf(_normal, 3 * n);
+		_depth = Arrays.copyOf(_depth, n);
+		_g1 = Arrays.copyOf(_g1, n);
+		_g2 = Arrays.copyOf(_g2, n);
+		_side1 = Arrays.copyOf(_side1, n);
+		_side2 = Arrays.copyOf(_side2, n);
+		_fdir1 = Arrays.copyOf(_fdir1, 3 * n);
+		_mode = Arrays.copyOf(_mode, n);
+		_surface = Arrays.copyOf(_surface, SURFACE_SIZE * n);
+		_contacts = Arrays.copyOf(_contacts, n);
+	}
+
+	private static void set3(double[] a, int i, DVector3C v) {
+		a[3*i] = v.get0();
+		a[3*i+1] = v.get1();
+		a[3*i+2] = v.get2();
+	}
+
+	private void checkIndex(int i) {
+		if (i < 0 || i >= _size) {
+			throw new IndexOutOfBoundsException("Index=" + i + "; size=" + _size);
+		}
+	}
+
+	/**
+	 * @param i index of the contact
+	 * @param result contact position
+	 */
+	public void getPos(int i, DVector3 result) {
+		checkIndex(i);
+		result.set(_pos[3*i], _pos[3*i+1], _pos[3*i+2]);
+	}
+
+	/**
+	 * @param i index of the contact
+	 * @param result normal vector
+	 */
+	public void getNormal(int i, DVector3 result) {
+		checkIndex(i);
+		result.set(_normal[3*i], _normal[3*i+1], _normal[3*i+2]);
+	}
+
+	/**
+	 * @param i index of the contact
+	 * @return penetration depth
+	 */
+	public double getDepth(int i) {
+		checkIndex(i);
+		return _depth[i];
+	}
+
+	public DGeom getG1(int i) {
+		checkIndex(i);
+		return _g1[i];
+	}
+
+	public DGeom getG2(int i) {
+		checkIndex(i);
+		return _g2[i];
+	}
+
+	public int getSide1(int i) {
+		checkIndex(i);
+		return _side1[i];
+	}
+
+	public int getSide2(int i) {
+		checkIndex(i);
+		return _side2[i];
+	}
+
+	/**
+	 * @param i index of the contact
+	 * @param result first friction direction
+	 */
+	public void getFdir1(int i, DVector3 result) {
+		checkIndex(i);
+		result.set(_fdir1[3*i], _fdir1[3*i+1], _fdir1[3*i+2]);
+	}
+
+	/**
+	 * @param i index of the contact
+	 * @param fdir1 first friction direction, used with
+	 * <tt>dContactFDir1</tt>
+	 */
+	public void setFdir1(int i, DVector3C fdir1) {
+		checkIndex(i);
+		set3(_fdir1, i, fdir1);
+	}
+
+	/**
+	 * @param i index of the contact
+	 * @param result the surface parameters of the contact
+	 */
+	public void getSurface(int i, DSurfaceParameters result) {
+		checkIndex(i);
+		int s = SURFACE_SIZE * i;
+		result.mode = _mode[i];
+		result.mu = _surface[s + MU];
+		result.mu2 = _surface[s + MU2];
+		result.rho = _surface[s + RHO];
+		result.rho2 = _surface[s + RHO2];
+		result.rhoN = _surface[s + RHO_N];
+		result.bounce = _surface[s + BOUNCE];
+		result.bounce_vel = _surface[s + BOUNCE_VEL];
+		result.soft_erp = _surface[s + SOFT_ERP];
+		result.soft_cfm = _surface[s + SOFT_CFM];
+		result.motion1 = _surface[s + MOTION1];
+		result.motion2 = _surface[s + MOTION2];
+		result.motionN = _surface[s + MOTION_N];
+		result.slip1 = _surface[s + SLIP1];
+		result.slip2 = _surface[s + SLIP2];
+	}
+
+	/**
+	 * @param i index of the contact
+	 * @param surface the surface parameters of the contact
+	 */
+	public void setSurface(int i, DSurfaceParameters surface) {
+		setSurface(i, i + 1, surface);
+	}
+
+	/**
+	 * Set the surface parameters of the contacts <tt>[begin, end)</tt>,
+	 * e.g. of all contacts of a pair.
+	 * @param begin index of the first contact
+	 * @param end index after the last contact
+	 * @param surface the surface parameters of the contacts
+	 */
+	public void setSurface(int begin, int end, DSurfaceParameters surface) {
+		if (begin < 0 || begin > end || end > _size) {
+			throw new IndexOutOfBoundsException("Range=" + begin + "-" + end + "; size=" + _size);
+		}
+		for (int i = begin; i < end; i++) {
+			int s = SURFACE_SIZE * i;
+			_mode[i] = surface.mode;
+			_surface[s + MU] = surface.mu;
+			_surface[s + MU2] = surface.mu2;
+			_surface[s + RHO] = surface.rho;
+			_surface[s + RHO2] = surface.rho2;
+			_surface[s + RHO_N] = surface.rhoN;
+			_surface[s + BOUNCE] = surface.bounce;
+			_surface[s + BOUNCE_VEL] = surface.bounce_vel;
+			_surface[s + SOFT_ERP] = surface.soft_erp;
+			_surface[s + SOFT_CFM] = surface.soft_cfm;
+			_surface[s + MOTION1] = surface.motion1;
+			_surface[s + MOTION2] = surface.motion2;
+			_surface[s + MOTION_N] = surface.motionN;
+			_surface[s + SLIP1] = surface.slip1;
+			_surface[s + SLIP2] = surface.slip2;
+		}
+	}
+
+	/**
+	 * @param i index of the contact
+	 * @return the contact for a contact joint, reused after the next
+	 * <tt>clear()</tt>
+	 */
+	DContact getContact(int i) {
+		checkIndex(i);
+		DContact c = _contacts[i];
+		if (c == null) {
+			c = new DContact();
+			_contacts[i] = c;
+		}
+		DContactGeom g = c.geom;
+		g.pos.set(_pos[3*i], _pos[3*i+1], _pos[3*i+2]);
+		g.normal.set(_normal[3*i], _normal[3*i+1], _normal[3*i+2]);
+		g.depth = _depth[i];
+		g.g1 = _g1[i];
+		g.g2 = _g2[i];
+		g.side1 = _side1[i];
+		g.side2 = _side2[i];
+		c.fdir1.set(_fdir1[3*i], _fdir1[3*i+1], _fdir1[3*i+2]);
+		getSurface(i, c.surface);
+		return c;
+	}
+}
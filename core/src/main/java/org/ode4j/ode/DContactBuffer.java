@@ -50,6 +50,13 @@ public class DContactBuffer implements Iterable<DContact> {
     public void set(int i, DContact c) {
         buf.set(i, c);
     }
+
+    /**
+     * @return the number of contacts in this buffer
+     */
+    public int size() {
+        return buf.size();
+    }
     
 	public DContactGeomBuffer getGeomBuffer() {
 		return new DContactGeomBuffer(this);
@@ -64,6 +64,28 @@ public final class DContactGeomBuffer {
 		return new DContactGeomBuffer(this, skip);
 	}
 
+	/**
+	 * Turn this buffer into a view of <tt>base</tt> like
+	 * <tt>base.createView(skip)</tt>, without creating a new object. Both
+	 * buffers have to share the same underlying contacts, e.g. because this
+	 * buffer was created with <tt>base.createView()</tt>.
+	 * @param base the buffer to view
+	 * @param skip number of contacts of <tt>base</tt> to skip
+	 */
+	public void setView(DContactGeomBuffer base, int skip) {
+		if (base._buf != _buf) {
+			throw new IllegalArgumentException("Different contact buffers");
+		}
+		_ofs = base._ofs + skip;
+	}
+
+	/**
+	 * @return the number of contacts that are visible through this buffer
+	 */
+	public int size() {
+		return _buf.size() - _ofs;
+	}
+
 	public DContactGeom getSafe(int flags, int index) {
 		if (!(index >= 0 && index < (flags & DxGeom.NUMC_MASK))) {
 			throw new IllegalStateException("Index="+index + "; flags="+flags);
@@ -0,0 +1,99 @@
+/*************************************************************************
+ *                                                                       *
+ * Open Dynamics Engine, Copyright (C) 2001,2002 Russell L. Smith.       *
+ * All rights reserved.  Email: russ@q12.org   Web: www.q12.org          *
+ * Open Dynamics Engine 4J, Copyright (C) 2009-2014 Tilmann Zaeschke     *
+ * All rights reserved.  Email: ode4j@gmx.de   Web: www.ode4j.org        *
+ *                                                                       *
+ * This library is free software; you can redistribute it and/or         *
+ * modify it under the terms of EITHER:                                  *
+ *   (1) The GNU Lesser General Public License as published by the Free  *
+ *       Software Foundation; either version 2.1 of the License, or (at  *
+ *       your option) any later version. The text of the GNU Lesser      *
+ *       General Public License is included with this library in the     *
+ *       file LICENSE.TXT.                                               *
+ *   (2) The BSD-style license that is included with this library in     *
+ *       the file ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT.         *
+ *                                                                       *
+ * This library is distributed in the hope that it will be useful,       *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the files    *
+ * LICENSE.TXT, ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT for more   *
+ * details.                                                              *
+ *                                                                       *
+ *************************************************************************/
+package org.ode4j.ode;
+
+import org.ode4j.math.DVector3C;
+
+/**
+ * Dynamic AABB tree space.
+ * <p>
+ * The geoms are the leaves of a balanced binary tree of bounding boxes.
+ * Each leaf stores a 'fat' AABB, which is the AABB of the geom enlarged by
+ * a margin. Geoms that move inside their fat AABB do not change the tree,
+ * only geoms that leave it are reinserted. Unlike the other spaces,
+ * collide2() and the queries only visit the parts of the tree that overlap
+ * the query, which takes O(log n) for small queries.
+ * <p>
+ * Geoms with infinite AABBs, such as planes, are kept outside of the tree
+ * and are tested against all other geoms.
+ */
+public interface DDynamicTreeSpace extends DSpace {
+
+	/**
+	 * User callback for the geoms found by the queries of a
+	 * DDynamicTreeSpace.
+	 */
+	public interface DQueryCallback {
+		/**
+		 * @param data The user data object, as passed to the query.
+		 * @param geom A geom whose AABB overlaps the query.
+		 */
+		public void call (Object data, DGeom geom);
+	}
+
+	/**
+	 * Set the margin by which the AABBs in the tree are larger than the
+	 * AABBs of the geoms. A larger margin means that moving geoms have to
+	 * be reinserted less often, but that more nodes overlap.
+	 * <p>
+	 * The new margin is only used for geoms that are added or reinserted
+	 * after this call.
+	 *
+	 * @param margin The default is <tt>0.1</tt>.
+	 */
+	void setMargin (double margin);
+
+	/**
+	 * @return The margin of the AABBs in the tree.
+	 * @see #setMargin(double)
+	 */
+	double getMargin ();
+
+	/**
+	 * Report all enabled geoms in this space whose AABB overlaps
+	 * the given AABB.
+	 *
+	 * @param aabb the AABB to test
+	 * @param data user data, passed to the callback
+	 * @param callback called for each geom found
+	 */
+	void queryAABB (DAABBC aabb, Object data, DQueryCallback callback);
+
+	/**
+	 * Report all enabled geoms in this space whose AABB is hit by a ray.
+	 * <p>
+	 * This is only a broadphase test. To find the contact points, use
+	 * raycastClosest() or raycastAll(), which visit the tree front to
+	 * back.
+	 *
+	 * @param start start of the ray
+	 * @param dir direction of the ray
+	 * @param length The ray ends at <tt>start + length * dir</tt>.
+	 * @param data user data, passed to the callback
+	 * @param callback called for each geom found
+	 */
+	void raycast (DVector3C start, DVector3C dir, double length,
+			Object data, DQueryCallback callback);
+}
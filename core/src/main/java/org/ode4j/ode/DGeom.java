@@ -64,7 +64,9 @@ public interface DGeom {
 	public static final int   dHashSpaceClass = 11;
 	public static final int   dSweepAndPruneSpaceClass = 12;
 	public static final int   dQuadTreeSpaceClass = 13;
-	public static final int   dLastSpaceClass = dQuadTreeSpaceClass; //13
+	public static final int   dDynamicTreeSpaceClass = 14;
+	public static final int   dLooseOctreeSpaceClass = 15;
+	public static final int   dLastSpaceClass = dLooseOctreeSpaceClass; //15
 
 	/** 
 	 * ID of the first user defined class. 
@@ -72,8 +74,13 @@ public interface DGeom {
 	 * To avoid problem, user defined classes should have their IDs allocated 
 	 * based on <tt>dFirstUserClass</tt>, for example: 
 	 * <tt>int myCLassID = dFirstUserClass + x;</tt>, where (x >= 1). 
+	 * <p>
+	 * This is a compile time constant, so code using it must be recompiled
+	 * when it changes. It moved from 14 to 16 when 
+	 * <tt>dDynamicTreeSpaceClass</tt> (14) and 
+	 * <tt>dLooseOctreeSpaceClass</tt> (15) were added.
 	 */
-	public static final int   dFirstUserClass = 14;
+	public static final int   dFirstUserClass = 16;
 	public static final int   dLastUserClass = dFirstUserClass + dMaxUserClasses - 1;
 	public static final int   dGeomNumClasses = dLastUserClass + 1; 
 	//	};
@@ -110,6 +117,8 @@ public interface DGeom {
 	 *  <li> dSimpleSpaceClass </li>
 	 *  <li> dHashSpaceClass </li>
 	 *  <li> dQuadTreeSpaceClass </li>
+	 *  <li> dDynamicTreeSpaceClass </li>
+	 *  <li> dLooseOctreeSpaceClass </li>
 	 *  <li> dFirstUserClass </li>
 	 *  <li> dLastUserClass </li>
 	 * <p>
@@ -0,0 +1,68 @@
+/*************************************************************************
+ *                                                                       *
+ * Open Dynamics Engine, Copyright (C) 2001,2002 Russell L. Smith.       *
+ * All rights reserved.  Email: russ@q12.org   Web: www.q12.org          *
+ * Open Dynamics Engine 4J, Copyright (C) 2009-2014 Tilmann Zaeschke     *
+ * All rights reserved.  Email: ode4j@gmx.de   Web: www.ode4j.org        *
+ *                                                                       *
+ * This library is free software; you can redistribute it and/or         *
+ * modify it under the terms of EITHER:                                  *
+ *   (1) The GNU Lesser General Public License as published by the Free  *
+ *       Software Foundation; either version 2.1 of the License, or (at  *
+ *       your option) any later version. The text of the GNU Lesser      *
+ *       General Public License is included with this library in the     *
+ *       file LICENSE.TXT.                                               *
+ *   (2) The BSD-style license that is included with this library in     *
+ *       the file ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT.         *
+ *                                                                       *
+ * This library is distributed in the hope that it will be useful,       *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the files    *
+ * LICENSE.TXT, ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT for more   *
+ * details.                                                              *
+ *                                                                       *
+ *************************************************************************/
+package org.ode4j.ode;
+
+/**
+ * Loose octree space.
+ * <p>
+ * The space is an octree of cubic nodes, whose children are created when
+ * they are needed. A geom is stored in the smallest node that is not smaller
+ * than the geom and whose cell contains the center of the geom. The bounds of
+ * a node are 'loose', twice as large as its cell, so that they contain the
+ * AABBs of all geoms in the node.
+ * <p>
+ * Unlike the quadtree space, this space needs no extents or depth: the root
+ * grows when a geom is added outside of it, and nodes are only created
+ * where there are geoms. A geom that moves is only moved to another node
+ * when its center leaves the cell of its node or when its size changes by
+ * a factor of two. Each node counts the geoms of its subtree, so that empty
+ * subtrees are skipped and recycled.
+ * <p>
+ * Geoms with infinite AABBs, such as planes, are kept outside of the tree
+ * and are tested against all other geoms.
+ */
+public interface DLooseOctreeSpace extends DSpace {
+
+	/**
+	 * Set the maximum depth of the tree below the root. Geoms that are
+	 * smaller than the nodes at this depth are stored in these nodes.
+	 * The geoms are moved to their new nodes by the next collide().
+	 *
+	 * @param maxDepth The default is <tt>10</tt>.
+	 */
+	void setMaxDepth (int maxDepth);
+
+	/**
+	 * @return The maximum depth of the tree below the root.
+	 * @see #setMaxDepth(int)
+	 */
+	int getMaxDepth ();
+
+	/**
+	 * @return The number of nodes in the tree, computed by the last
+	 * collide() or query.
+	 */
+	int getNodeCount ();
+}
@@ -0,0 +1,141 @@
+/*************************************************************************
+ *                                                                       *
+ * Open Dynamics Engine, Copyright (C) 2001,2002 Russell L. Smith.       *
+ * All rights reserved.  Email: russ@q12.org   Web: www.q12.org          *
+ * Open Dynamics Engine 4J, Copyright (C) 2009-2014 Tilmann Zaeschke     *
+ * All rights reserved.  Email: ode4j@gmx.de   Web: www.ode4j.org        *
+ *                                                                       *
+ * This library is free software; you can redistribute it and/or         *
+ * modify it under the terms of EITHER:                                  *
+ *   (1) The GNU Lesser General Public License as published by the Free  *
+ *       Software Foundation; either version 2.1 of the License, or (at  *
+ *       your option) any later version. The text of the GNU Lesser      *
+ *       General Public License is included with this library in the     *
+ *       file LICENSE.TXT.                                               *
+ *   (2) The BSD-style license that is included with this library in     *
+ *       the file ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT.         *
+ *                                                                       *
+ * This library is distributed in the hope that it will be useful,       *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the files    *
+ * LICENSE.TXT, ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT for more   *
+ * details.                                                              *
+ *                                                                       *
+ *************************************************************************/
+package org.ode4j.ode;
+
+/**
+ * Persistent contacts of the overlapping geom pairs of a space.
+ * <p>
+ * <tt>update()</tt> runs the broad phase of the space and the narrow phase
+ * of the overlapping pairs, like a near callback that calls
+ * <tt>OdeHelper.collide()</tt>, but keeps the contacts of each pair until
+ * the next update. If neither geom of a pair has moved or turned by more
+ * than the tolerances since its contacts were computed, e.g. for resting
+ * contacts, the narrow phase is skipped and the old contacts are reported
+ * again. Since reused contacts keep their positions, they are also matched
+ * by the warm starting of QuickStep.
+ * <p>
+ * The contacts only depend on the positions and rotations of the geoms.
+ * After other changes, e.g. of the size of a geom, call <tt>reset()</tt>.
+ * <p>
+ * Nested spaces are collided with their parent space and with each other.
+ *
+ * @see OdeHelper#createPairManager(DSpace, int)
+ */
+public interface DPairManager {
+
+	/**
+	 * Events of the geom pairs of a pair manager. A pair touches if the
+	 * narrow phase returns at least one contact.
+	 */
+	public interface DPairListener {
+		/**
+		 * A pair started touching.
+		 *
+		 * @param data The user data object, as passed to <tt>update()</tt>.
+		 * @param o1 The first geom of the pair, the same in all events.
+		 * @param o2 The second geom of the pair.
+		 * @param contacts The contacts, valid until the next update.
+		 * @param count The number of contacts.
+		 */
+		void begin (Object data, DGeom o1, DGeom o2, DContactGeomBuffer contacts,
+				int count);
+
+		/**
+		 * A pair that touched in the last update still touches.
+		 *
+		 * @param data The user data object, as passed to <tt>update()</tt>.
+		 * @param o1 The first geom of the pair, the same in all events.
+		 * @param o2 The second geom of the pair.
+		 * @param contacts The contacts, valid until the next update.
+		 * @param count The number of contacts.
+		 */
+		void persist (Object data, DGeom o1, DGeom o2, DContactGeomBuffer contacts,
+				int count);
+
+		/**
+		 * A pair that touched in the last update does not touch anymore, or
+		 * one of its geoms was removed from the space or destroyed.
+		 *
+		 * @param data The user data object, as passed to <tt>update()</tt>.
+		 * @param o1 The first geom of the pair, the same in all events.
+		 * @param o2 The second geom of the pair.
+		 */
+		void end (Object data, DGeom o1, DGeom o2);
+	}
+
+	/**
+	 * Find the touching pairs of the space and report their events.
+	 *
+	 * @param data user data, passed to the listener
+	 * @param listener called for the events of the pairs
+	 */
+	void update (Object data, DPairListener listener);
+
+	/**
+	 * Set how far the geoms of a pair may move and turn before its
+	 * contacts are recomputed.
+	 *
+	 * @param linear maximum change of each coordinate of the positions,
+	 * the default is <tt>0.001</tt>
+	 * @param angular maximum change of each element of the rotation
+	 * matrices, about the angle in radians, the default is <tt>0.001</tt>
+	 */
+	void setTolerance (double linear, double angular);
+
+	/**
+	 * @return The maximum change of the positions.
+	 * @see #setTolerance(double, double)
+	 */
+	double getLinearTolerance ();
+
+	/**
+	 * @return The maximum change of the rotation matrices.
+	 * @see #setTolerance(double, double)
+	 */
+	double getAngularTolerance ();
+
+	/**
+	 * Recompute the contacts of all pairs in the next update. The pairs
+	 * keep touching, so no events other than <tt>persist()</tt> are
+	 * reported for pairs that still touch.
+	 */
+	void reset ();
+
+	/**
+	 * @return The number of overlapping pairs found by the last update.
+	 */
+	int getPairCount ();
+
+	/**
+	 * @return The number of pairs of the last update whose contacts were
+	 * reused instead of computed.
+	 */
+	int getReusedCount ();
+
+	/**
+	 * @return The space of this pair manager.
+	 */
+	DSpace getSpace ();
+}
@@ -24,7 +24,10 @@
  *************************************************************************/
 package org.ode4j.ode;
 
+import org.ode4j.math.DVector3C;
 import org.ode4j.ode.internal.DxGeom;
+import org.ode4j.ode.threading.DThreadingImplementation;
+import org.ode4j.ode.threading.Threading_H.DThreadingFunctionsInfo;
 
 /**
  * collision space.
@@ -53,6 +56,154 @@ public interface DSpace extends DGeom {
 
 	/** This is equivalent to OdeHelper.spaceCollide(...) */
 	void collide (Object data, DNearCallback callback);
+
+	/**
+	 * Like <tt>collide()</tt>, but SAP and hash spaces search for
+	 * potentially intersecting pairs on all threads of the threading
+	 * implementation of the space, and call the callback from these
+	 * threads. This allows to run the narrow phase (e.g.
+	 * <tt>OdeHelper.collide()</tt>) in parallel.
+	 * <p>
+	 * The heightfield colliders move the other geom of the pair while they
+	 * collide, so they must not run at the same time as other colliders.
+	 * Pairs with a heightfield are therefore passed to the callback on the
+	 * calling thread, after the other pairs are done.
+	 * <p>
+	 * The callback is called concurrently and must be thread-safe. In
+	 * particular, creating contact joints has to be synchronized, or the
+	 * contacts have to be collected and the joints created after the call
+	 * returns. The callback should not collide nested spaces with
+	 * <tt>OdeHelper.spaceCollide2()</tt>. The order of the pairs is not
+	 * defined.
+	 * <p>
+	 * Without threading implementation, and for other spaces, this is
+	 * equivalent to <tt>collide()</tt>.
+	 *
+	 * @param data passed to the callback
+	 * @param callback the thread-safe callback
+	 * @see #setThreadingImplementation(DThreadingFunctionsInfo, DThreadingImplementation)
+	 */
+	void collideThreaded (Object data, DNearCallback callback);
+
+	/**
+	 * Assign threading implementation to be used by <tt>collideThreaded()</tt>.
+	 *
+	 * @param functions_info Pointer to threading functions structure, or
+	 * <tt>null</tt> to collide on the calling thread
+	 * @param threading_impl ID of threading implementation object, or <tt>null</tt>
+	 * @see #collideThreaded(Object, DNearCallback)
+	 * @see OdeHelper#allocateMultiThreaded()
+	 * @see OdeHelper#allocateThreadPool(int, int, Object[][])
+	 */
+	void setThreadingImplementation (DThreadingFunctionsInfo functions_info,
+			DThreadingImplementation threading_impl);
+
+	/**
+	 * Skip the pairs of geoms of which neither is attached to an enabled
+	 * body in <tt>collide()</tt> and <tt>collideThreaded()</tt>: pairs of
+	 * geoms on disabled (sleeping) bodies, pairs of such geoms with static
+	 * geoms without body, and pairs of static geoms. Contact joints
+	 * between such geoms have no effect, because the step functions do not
+	 * move disabled bodies.
+	 * <p>
+	 * Spaces in this space count as geoms on enabled bodies.
+	 * <p>
+	 * The SAP space keeps the sleeping and static geoms in a separate
+	 * sorted list that is only tested against the other geoms, and the
+	 * dynamic AABB tree space skips subtrees without geoms on enabled
+	 * bodies. The other spaces skip the pairs before the AABB test.
+	 * <p>
+	 * <tt>collide2()</tt> is not affected.
+	 *
+	 * @param skip The default is <tt>false</tt>.
+	 */
+	void setSkipSleepingPairs (boolean skip);
+
+	/**
+	 * @return <tt>true</tt> if pairs without geom on an enabled body are
+	 * skipped
+	 * @see #setSkipSleepingPairs(boolean)
+	 */
+	boolean getSkipSleepingPairs ();
+
+	/**
+	 * Find the closest point where a ray hits an enabled geom of this
+	 * space or of a space in this space.
+	 * <p>
+	 * This uses the same colliders as a DRay that is collided with the
+	 * geoms, but needs no DRay and does not create objects. Only geoms
+	 * closer than the closest hit so far are tested, and the dynamic AABB
+	 * tree space visits its geoms front to back, so most geoms behind the
+	 * first hit are skipped.
+	 * <p>
+	 * The <tt>depth</tt> of the result is the distance from the start of
+	 * the ray, <tt>g2</tt> is the geom that was hit and <tt>normal</tt> is
+	 * the surface normal, as for a DRay that is the first geom. <tt>g1</tt>
+	 * is <tt>null</tt>.
+	 * <p>
+	 * The ray queries are not thread-safe: like <tt>collide()</tt> they
+	 * update the AABBs of moved geoms and reuse scratch objects of the
+	 * space. A space must not be ray cast from several threads at the same
+	 * time, nor while it is changed or collided on another thread.
+	 *
+	 * @param start start of the ray
+	 * @param dir direction of the ray, need not be normalized
+	 * @param length length of the ray
+	 * @param result returns the closest hit
+	 * @return <tt>true</tt> if the ray hits a geom
+	 */
+	boolean raycastClosest (DVector3C start, DVector3C dir, double length,
+			DContactGeom result);
+
+	/**
+	 * Like <tt>raycastClosest()</tt>, but stops at the first hit that is
+	 * found, which need not be the closest one. Use this for visibility
+	 * tests.
+	 *
+	 * @param start start of the ray
+	 * @param dir direction of the ray, need not be normalized
+	 * @param length length of the ray
+	 * @param result returns the hit
+	 * @return <tt>true</tt> if the ray hits a geom
+	 * @see #raycastClosest(DVector3C, DVector3C, double, DContactGeom)
+	 */
+	boolean raycastAny (DVector3C start, DVector3C dir, double length,
+			DContactGeom result);
+
+	/**
+	 * Find the closest hit of a ray with each geom, like
+	 * <tt>raycastClosest()</tt>. The hits are sorted by distance. If there
+	 * are more than <tt>maxHits</tt> hits, the closest <tt>maxHits</tt>
+	 * hits are returned.
+	 *
+	 * @param start start of the ray
+	 * @param dir direction of the ray, need not be normalized
+	 * @param length length of the ray
+	 * @param hits returns the hits
+	 * @param maxHits maximum number of hits
+	 * @return the number of hits
+	 * @see #raycastClosest(DVector3C, DVector3C, double, DContactGeom)
+	 */
+	int raycastAll (DVector3C start, DVector3C dir, double length,
+			DContactGeomBuffer hits, int maxHits);
+
+	/**
+	 * Find the closest hit of many rays, like <tt>raycastClosest()</tt>.
+	 * <p>
+	 * Ray <tt>i</tt> starts at <tt>rays[7*i]</tt>, <tt>rays[7*i+1]</tt>,
+	 * <tt>rays[7*i+2]</tt>, has the direction <tt>rays[7*i+3]</tt>,
+	 * <tt>rays[7*i+4]</tt>, <tt>rays[7*i+5]</tt> and the length
+	 * <tt>rays[7*i+6]</tt>. Its hit is returned in
+	 * <tt>results.get(i)</tt>. The <tt>g2</tt> of rays without hit is
+	 * <tt>null</tt>.
+	 *
+	 * @param rays start, direction and length of the rays
+	 * @param rayCount number of rays
+	 * @param results returns the hit of each ray
+	 * @return the number of rays that hit a geom
+	 * @see #raycastClosest(DVector3C, DVector3C, double, DContactGeom)
+	 */
+	int raycastClosest (double[] rays, int rayCount, DContactGeomBuffer results);
 	
 	
 	/**
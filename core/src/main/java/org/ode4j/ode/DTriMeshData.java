@@ -73,7 +73,18 @@ public interface DTriMeshData {
 //		final int[] indices,
 //		final int[] normals);
 
-	
+	/**
+	 * Call this after the vertices that were passed to build() have been
+	 * changed, for example for deformable meshes. The number of vertices and
+	 * the triangles must remain the same.
+	 * <p>
+	 * This refits the bounding volume tree of the triangles. TriMesh geoms
+	 * with this data use the new vertices from the next time they are
+	 * moved, e.g. with setPosition().
+	 */
+	//ODE_API void dGeomTriMeshDataUpdate(dTriMeshDataID g);
+	void update();
+
 	void destroy();
 
 	//Not available in GIMPACT
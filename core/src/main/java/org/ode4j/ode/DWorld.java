@@ -202,7 +202,6 @@ public interface DWorld {
 	 * @param count Thread count limit value for island stepping
 	 * @see #getStepIslandsProcessingMaxThreadCount()
 	 */
-	@Deprecated
 	void setStepIslandsProcessingMaxThreadCount(int count);
 	
 	/**
@@ -215,9 +214,64 @@ public interface DWorld {
 	 * @return Current thread count limit value for island stepping
 	 * @see #setStepIslandsProcessingMaxThreadCount(int)
 	 */
-	@Deprecated
 	int getStepIslandsProcessingMaxThreadCount();
 
+	/**
+	 * Islands processing report of the last world step.
+	 *
+	 * The report describes the islands that have been stepped and how well the
+	 * island stepping threads were utilized. Times are measured in nanoseconds.
+	 *
+	 * @see DWorld#setStepReportEnabled(boolean)
+	 * @see DWorld#getStepReport()
+	 */
+	public interface DWorldStepReport {
+		/** @return Number of islands stepped. */
+		int getIslandCount();
+		/** @return Number of bodies in the given island. */
+		int getIslandBodyCount(int island);
+		/** @return Number of joints in the given island. */
+		int getIslandJointCount(int island);
+		/** 
+		 * @return Number of QuickStep iterations performed for the given island,
+		 * 0 if the island had no constraints or was not stepped by QuickStep.
+		 */
+		int getIslandIterationCount(int island);
+		/** @return Number of threads that were allowed to step islands. */
+		int getThreadCount();
+		/** @return Wall clock time of the islands processing. */
+		long getElapsedTime();
+		/** @return Sum of the stepping times of all islands. */
+		long getSteppingTime();
+		/** @return Stepping time of the slowest island. */
+		long getLongestIslandSteppingTime();
+		/** 
+		 * @return Stepping time divided by the time available to all stepping threads, 
+		 * between 0 and 1. 
+		 */
+		double getThreadUtilization();
+	}
+
+	/**
+	 * Enable or disable collection of the islands processing report.
+	 *
+	 * The report is disabled by default as it adds time measurements 
+	 * to every island stepped.
+	 *
+	 * @param enabled true to collect a report with every step
+	 * @see #getStepReport()
+	 */
+	void setStepReportEnabled(boolean enabled);
+
+	/**
+	 * Get the islands processing report of the last {@code step()} or {@code quickStep()}.
+	 *
+	 * @return The report or null if reporting is disabled. The returned
+	 * instance is updated by subsequent steps.
+	 * @see #setStepReportEnabled(boolean)
+	 */
+	DWorldStepReport getStepReport();
+
 	/**
 	 * Set the world to use shared working memory along with another world.
 	 *
@@ -339,7 +393,8 @@ public interface DWorld {
 	 * @param w The world to change threading implementation for.
 	 * @param functions_info Pointer to threading functions structure
 	 * @param threading_impl ID of threading implementation object
-	 * @deprecated This is not supported by ode4j.
+	 * @see OdeHelper#allocateMultiThreaded()
+	 * @see OdeHelper#allocateThreadPool(int, int, Object[][])
 	 */
 	void setStepThreadingImplementation(final DThreadingFunctionsInfo functions_info, 
 			DThreadingImplementation threading_impl);
@@ -454,6 +509,94 @@ public interface DWorld {
 	 */
 	double getQuickStepW();
 
+
+	/**
+	 * Enable or disable the parallel SOR solver of QuickStep.
+	 * 
+	 * <p>REMARK:
+	 * The joints of an island are coloured so that no two joints of one
+	 * colour share a body. The colours are solved one after the other, the
+	 * joints of one colour are solved on all threads the island may use.
+	 * The result does not depend on the number of threads, but it is
+	 * different from the one of the default solver, which sweeps all rows in
+	 * one sequence.
+	 * 
+	 * @param parallel The default is <tt>false</tt>.
+	 * @see #setStepThreadingImplementation(DThreadingFunctionsInfo, DThreadingImplementation)
+	 */
+	void setQuickStepParallelSOR(boolean parallel);
+
+
+	/**
+	 * Get whether QuickStep uses the parallel SOR solver.
+	 * @return <tt>true</tt> if the parallel solver is enabled
+	 */
+	boolean getQuickStepParallelSOR();
+
+
+	/**
+	 * Enable or disable warm starting of QuickStep.
+	 * 
+	 * <p>REMARK:
+	 * With warm starting the solver starts from the constraint forces of 
+	 * the previous step instead of zero, so fewer iterations are needed for 
+	 * stable stacks. Contact joints are usually recreated every step, they 
+	 * are matched with the contacts of the previous step by their geoms, 
+	 * their features (<tt>side1</tt>, <tt>side2</tt>) and their position.
+	 * 
+	 * @param warm The default is <tt>false</tt>.
+	 */
+	void setQuickStepWarmStarting(boolean warm);
+
+
+	/**
+	 * Get whether QuickStep uses warm starting.
+	 * @return <tt>true</tt> if warm starting is enabled
+	 */
+	boolean getQuickStepWarmStarting();
+
+
+	/**
+	 * Set the number of iterations that the QuickStep method performs before
+	 * it checks for convergence.
+	 * 
+	 * @param num The default is 1 iteration.
+	 * @see #setQuickStepTolerance(double)
+	 */
+	void setQuickStepMinIterations(int num);
+
+
+	/**
+	 * Get the number of iterations that the QuickStep method performs before
+	 * it checks for convergence.
+	 * @return nr of iterations
+	 */
+	int getQuickStepMinIterations();
+
+
+	/**
+	 * Set the convergence tolerance of QuickStep.
+	 * 
+	 * <p>REMARK:
+	 * With a tolerance the solver of an island stops as soon as an iteration
+	 * changes no constraint force by more than the tolerance, but not before
+	 * the minimum number of iterations is reached. The number of iterations 
+	 * set with {@link #setQuickStepNumIterations(int)} is the maximum. 
+	 * The iterations used by every island are part of the step report.
+	 * 
+	 * @param tolerance The default is 0, which always performs all iterations.
+	 * @see #setQuickStepMinIterations(int)
+	 * @see DWorldStepReport#getIslandIterationCount(int)
+	 */
+	void setQuickStepTolerance(double tolerance);
+
+
+	/**
+	 * Get the convergence tolerance of QuickStep.
+	 * @return the tolerance, 0 if all iterations are always performed
+	 */
+	double getQuickStepTolerance();
+
 	
 	/**
 	 * Set auto disable linear threshold for newly created bodies.
@@ -34,6 +34,7 @@ public class OdeConfig {
 
 	private static final boolean dDOUBLE = true;
 	private static boolean dLIBCCD = true;
+	private static int dSEPARATING_AXIS_CACHE_SIZE = 0;
 	
 	/** 
 	 * This enables contact sorting by penetration depth. 
@@ -87,6 +88,34 @@ public class OdeConfig {
 		dLIBCCD = enable;
 	}
 	
+	/**
+	 * @return The number of geom pairs for which the box-box and the 
+	 * convex-convex colliders remember the separating axis, 0 if disabled.
+	 */
+	public static int getSeparatingAxisCacheSize() {
+		return dSEPARATING_AXIS_CACHE_SIZE;
+	}
+	
+	/**
+	 * Let the box-box and the convex-convex (without LIBCCD) colliders 
+	 * remember the separating axis of the last collision of each geom 
+	 * pair and test it first. Pairs that stay separated by the same axis 
+	 * then need only one axis test. The convex-convex colliders (also with
+	 * LIBCCD) also remember the support points of the pair, large convex
+	 * shapes start their support point searches there. The contacts are
+	 * the same with or without the cache, except for poses in which a face
+	 * of a large convex is perpendicular to a search direction.
+	 * <p>
+	 * Every thread has its own cache. When it is full, new pairs replace 
+	 * pairs that were not used recently.
+	 * @param size Maximum number of geom pairs per thread, rounded down to 
+	 * a power of two (at least 2). 0 disables the cache, this is the 
+	 * default.
+	 */
+	public static void setSeparatingAxisCacheSize(int size) {
+		dSEPARATING_AXIS_CACHE_SIZE = size;
+	}
+	
 /* Pull in the standard headers */
 //#include <stdio.h>
 //#include <stdlib.h>
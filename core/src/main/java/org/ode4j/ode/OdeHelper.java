@@ -36,13 +36,18 @@ import org.ode4j.ode.DTriMesh.DTriRayCallback;
 import org.ode4j.ode.internal.DxBody;
 import org.ode4j.ode.internal.DxBox;
 import org.ode4j.ode.internal.DxCapsule;
+import org.ode4j.ode.internal.DxCollideBatch;
 import org.ode4j.ode.internal.DxConvex;
 import org.ode4j.ode.internal.DxCylinder;
+import org.ode4j.ode.internal.DxDynamicTreeSpace;
 import org.ode4j.ode.internal.DxGeom;
 import org.ode4j.ode.internal.DxHashSpace;
 import org.ode4j.ode.internal.DxHeightfield;
 import org.ode4j.ode.internal.DxHeightfieldData;
+import org.ode4j.ode.internal.DxIncrementalSAPSpace;
+import org.ode4j.ode.internal.DxLooseOctreeSpace;
 import org.ode4j.ode.internal.DxMass;
+import org.ode4j.ode.internal.DxPairManager;
 import org.ode4j.ode.internal.DxPlane;
 import org.ode4j.ode.internal.DxQuadTreeSpace;
 import org.ode4j.ode.internal.DxRay;
@@ -188,6 +193,22 @@ public abstract class OdeHelper {
 	public static DContactJoint createContactJoint (DWorld world, DContact c) {
 		return ODE.dJointCreateContact(world, null, c);
 	}
+	/**
+	 * Create a new joint of the contact type for the contact
+	 * <tt>index</tt> of <tt>contacts</tt>.
+	 * <p>
+	 * The joint uses the contact until <tt>contacts</tt> is cleared, so
+	 * the array must not be cleared before the joint is destroyed.
+	 * @param world
+	 * @param group set to null to allocate the joint normally
+	 * @param contacts
+	 * @param index index of the contact in <tt>contacts</tt>
+	 * @return the new joint
+	 */
+	public static DContactJoint createContactJoint (DWorld world, DJointGroup group,
+			DContactArray contacts, int index) {
+		return ODE.dJointCreateContact(world, group, contacts.getContact(index));
+	}
 
 	/**
 	 * Create a new joint of the double ball type.
@@ -456,6 +477,24 @@ public abstract class OdeHelper {
 		return DxBody.dBodyCreate((DxWorld) w);
 	}
 
+	/**
+	 * @return new batch for the narrow phase of many geom pairs
+	 * @see DCollideBatch
+	 */
+	public static DCollideBatch createCollideBatch () {
+		return DxCollideBatch.dCollideBatchCreate();
+	}
+
+	/**
+	 * @param space the space whose pairs are managed
+	 * @param maxContacts maximum number of contacts per pair
+	 * @return new pair manager for the space
+	 * @see DPairManager
+	 */
+	public static DPairManager createPairManager (DSpace space, int maxContacts) {
+		return DxPairManager.dPairManagerCreate((DxSpace) space, maxContacts);
+	}
+
 	//ODE_API 
 	public static DSimpleSpace createSimpleSpace () {
 		return DxSimpleSpace.dSimpleSpaceCreate(null);
@@ -480,6 +519,27 @@ public abstract class OdeHelper {
 	public static DSapSpace createSapSpace (DSpace space, DSapSpace.AXES axes) {
 		return DxSAPSpace.dSweepAndPruneSpaceCreate((DxSpace) space, axes.getCode());
 	}
+	/**
+	 * Create a sweep and prune space that keeps its sorted AABB endpoints
+	 * and its overlapping pairs between steps and only updates them for
+	 * the geoms that moved. It is faster than the space returned by
+	 * createSapSpace() if most geoms are static or move only a little
+	 * per step.
+	 * @param axes DSapSpace.AXES
+	 * @return SAP space
+	 */
+	public static DSapSpace createIncrementalSapSpace (DSapSpace.AXES axes) {
+		return DxIncrementalSAPSpace.dIncrementalSweepAndPruneSpaceCreate(null, axes.getCode());
+	}
+	/**
+	 * @param space
+	 * @param axes DSapSpace.AXES
+	 * @return SAP space
+	 * @see #createIncrementalSapSpace(DSapSpace.AXES)
+	 */
+	public static DSapSpace createIncrementalSapSpace (DSpace space, DSapSpace.AXES axes) {
+		return DxIncrementalSAPSpace.dIncrementalSweepAndPruneSpaceCreate((DxSpace) space, axes.getCode());
+	}
 	//ODE_API 
 	public static DHashSpace createHashSpace () {
 		return DxHashSpace.dHashSpaceCreate(null);
@@ -500,6 +560,36 @@ public abstract class OdeHelper {
 		return DxQuadTreeSpace.dQuadTreeSpaceCreate((DxSpace) space, 
 				Center, Extents, Depth);
 	}
+	/**
+	 * @return Dynamic AABB tree space
+	 * @see DDynamicTreeSpace
+	 */
+	public static DDynamicTreeSpace createDynamicTreeSpace () {
+		return DxDynamicTreeSpace.dDynamicTreeSpaceCreate(null);
+	}
+	/**
+	 * @param space parent space
+	 * @return Dynamic AABB tree space
+	 * @see DDynamicTreeSpace
+	 */
+	public static DDynamicTreeSpace createDynamicTreeSpace (DSpace space) {
+		return DxDynamicTreeSpace.dDynamicTreeSpaceCreate((DxSpace) space);
+	}
+	/**
+	 * @return Loose octree space
+	 * @see DLooseOctreeSpace
+	 */
+	public static DLooseOctreeSpace createLooseOctreeSpace () {
+		return DxLooseOctreeSpace.dLooseOctreeSpaceCreate(null);
+	}
+	/**
+	 * @param space parent space
+	 * @return Loose octree space
+	 * @see DLooseOctreeSpace
+	 */
+	public static DLooseOctreeSpace createLooseOctreeSpace (DSpace space) {
+		return DxLooseOctreeSpace.dLooseOctreeSpaceCreate((DxSpace) space);
+	}
 
 	/**
 	 * Create a box geom with the provided side lengths.
@@ -1042,7 +1132,6 @@ public abstract class OdeHelper {
 	 * @see DThreadingImplementation#dExternalThreadingServeMultiThreadedImplementation
 	 * @see DThreadingImplementation#free()
 	 */
-	@Deprecated
 	public static DThreadingImplementation allocateMultiThreaded() {
 		return DxThreadingImplementation.dThreadingAllocateMultiThreadedImplementation();
 	}
@@ -1072,7 +1161,6 @@ public abstract class OdeHelper {
 	 * @see DThreadingImplementation#shutdownProcessing()
 	 * @see DThreadingThreadPool#freeThreadPool()
 	 */
-	@Deprecated
 	public static DThreadingThreadPool allocateThreadPool(int thread_count, int stack_size, 
 			//int ode_data_allocate_flags, 
 			Object[][] reserved) {
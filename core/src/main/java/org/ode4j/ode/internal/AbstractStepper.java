@@ -24,6 +24,9 @@
  *************************************************************************/
 package org.ode4j.ode.internal;
 
+import org.ode4j.math.DMatrix3;
+import org.ode4j.math.DVector3;
+
 
 /**
  * Abstract base class for different Stepper implementations.
@@ -32,4 +35,29 @@ package org.ode4j.ode.internal;
  */
 abstract class AbstractStepper {
 
+	/**
+	 * Temporaries of the body stage (inertia tensors and gyroscopic torques). 
+	 * They are kept per thread because the bodies of an island may be 
+	 * processed by several threads at the same time.
+	 */
+	static final class dxBodyTemporaries {
+		final DMatrix3 tmp = new DMatrix3();
+		final DMatrix3 I = new DMatrix3();
+		final DMatrix3 Itild = new DMatrix3();
+		final DMatrix3 itInv = new DMatrix3();
+		final DVector3 L = new DVector3();
+		final DVector3 tau0 = new DVector3();
+	}
+
+	private static final ThreadLocal<dxBodyTemporaries> bodyTemporaries = 
+			new ThreadLocal<dxBodyTemporaries>() {
+		@Override
+		protected dxBodyTemporaries initialValue() {
+			return new dxBodyTemporaries();
+		}
+	};
+
+	static dxBodyTemporaries GetBodyTemporaries() {
+		return bodyTemporaries.get();
+	}
 }
@@ -32,6 +32,7 @@ import org.ode4j.ode.DColliderFn;
 import org.ode4j.ode.internal.cpp4j.java.RefDouble;
 import org.ode4j.ode.internal.cpp4j.java.RefInt;
 
+import static org.ode4j.ode.OdeConstants.CONTACTS_UNIMPORTANT;
 import static org.ode4j.ode.internal.Common.*;
 
 /**
@@ -49,6 +50,20 @@ public class CollideBoxBox implements DColliderFn {
 //		dIASSERT (o2.type == dBoxClass);
 		dIASSERT ((flags & DxGeom.NUMC_MASK) >= 1);
 
+		//TZ with CONTACTS_UNIMPORTANT dBoxBox() stops at the first axis, the
+		// cache would find more separated pairs than dBoxBox() itself.
+		final DxSeparatingAxisCache cache = (flags & CONTACTS_UNIMPORTANT) == 0 ?
+				DxSeparatingAxisCache.get() : null;
+		if (cache != null) {
+			int axis = cache.find(o1, o2);
+			if (axis != 0 && DxBox.dBoxBoxSeparated(
+					o1.final_posr().pos(), o1.final_posr().R(),o1.side,
+					o2.final_posr().pos(), o2.final_posr().R(),o2.side,
+					axis, cache.tmp1, cache.tmp2)) {
+				return 0;
+			}
+		}
+
 		DVector3 normal = new DVector3();
 		RefDouble depth = new RefDouble(0); //double depth;
 		RefInt code = new RefInt();//int code;
@@ -59,6 +74,10 @@ public class CollideBoxBox implements DColliderFn {
 				o1.final_posr().pos(), o1.final_posr().R(),o1.side, 
 				o2.final_posr().pos(), o2.final_posr().R(),o2.side,
 				normal,depth,code,flags,contacts,skip);
+		if (cache != null) {
+			// the separating axis, or the axis of the contact
+			cache.put(o1, o2, code.get());
+		}
 //		for (int i=0; i<num; i++) {
 //			CONTACT(contact,i*skip).normal[0] = -normal.v[0];
 //			CONTACT(contact,i*skip).normal[1] = -normal.v[1];
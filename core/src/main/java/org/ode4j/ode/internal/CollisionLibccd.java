@@ -25,7 +25,6 @@
 package org.ode4j.ode.internal;
 
 import org.ode4j.math.DQuaternion;
-import org.ode4j.math.DQuaternionC;
 import org.ode4j.math.DVector3;
 import org.ode4j.math.DVector3C;
 import org.ode4j.ode.DColliderFn;
@@ -56,6 +55,9 @@ public class CollisionLibccd {
 	private static class ccd_obj_t {
 		final ccd_vec3_t pos = new ccd_vec3_t();
 		final ccd_quat_t rot = new ccd_quat_t(), rot_inv = new ccd_quat_t();
+		//TZ temporaries of ccdGeomToObj() and of the support functions
+		final DQuaternion ode_rot = new DQuaternion();
+		final ccd_vec3_t dir = new ccd_vec3_t();
 	};
 	//typedef struct _ccd_obj_t ccd_obj_t;
 
@@ -92,6 +94,8 @@ public class CollisionLibccd {
 	private static class ccd_convex_t extends ccd_obj_t {
 		//ccd_obj_t o;
 		DxConvex convex;
+		/** support point of the last query, the next query starts there */
+		int support;
 	};
 	//typedef struct _ccd_convex_t ccd_convex_t;
 
@@ -124,10 +128,10 @@ public class CollisionLibccd {
 	static void ccdGeomToObj(final DGeom g, ccd_obj_t o)
 	{
 		DVector3C ode_pos;
-		DQuaternionC ode_rot;
+		final DQuaternion ode_rot = o.ode_rot;
 
 		ode_pos = g.getPosition();
-		ode_rot = g.getQuaternion();
+		((DxGeom) g).dGeomGetQuaternion(ode_rot);
 
 		ccdVec3Set(o.pos, ode_pos);
 		ccdQuatSet(o.rot, ode_rot.get1(), ode_rot.get2(), ode_rot.get3(), ode_rot.get0());
@@ -137,11 +141,11 @@ public class CollisionLibccd {
 
 	static void ccdGeomToBox(final DxBox g, ccd_box_t box)
 	{
-		DVector3 dim = new DVector3();
+		DVector3C dim;
 
 		ccdGeomToObj(g, box);
 
-		g.getLengths(dim);
+		dim = g.getLengths();
 		box.dim[0] = dim.get0() / 2.;
 		box.dim[1] = dim.get1() / 2.;
 		box.dim[2] = dim.get2() / 2.;
@@ -190,6 +194,7 @@ public class CollisionLibccd {
 	{
 		ccdGeomToObj(g, c);
 		c.convex = g;
+		c.support = 0;
 	}
 
 
@@ -197,7 +202,7 @@ public class CollisionLibccd {
 		@Override
 		public void run(Object obj, ccd_vec3_t _dir, ccd_vec3_t v) {
 			final ccd_box_t o = (ccd_box_t)obj;
-			final ccd_vec3_t dir = new ccd_vec3_t();
+			final ccd_vec3_t dir = o.dir;
 
 			ccdVec3Copy(dir, _dir);
 			ccdQuatRotVec(dir, o.rot_inv);
@@ -230,7 +235,7 @@ public class CollisionLibccd {
 		@Override
 		public void run(Object obj, ccd_vec3_t _dir, ccd_vec3_t v) {
 			final ccd_cyl_t cyl = (ccd_cyl_t)obj;
-			final ccd_vec3_t dir = new ccd_vec3_t();
+			final ccd_vec3_t dir = cyl.dir;
 
 			double dot = ccdVec3Dot(_dir, cyl.axis);
 			if (dot > 0.0){
@@ -264,25 +269,17 @@ public class CollisionLibccd {
 		@Override
 		public void run(Object obj, ccd_vec3_t _dir, ccd_vec3_t v) {
 			final ccd_convex_t c = (ccd_convex_t )obj;
-			final ccd_vec3_t dir = new ccd_vec3_t(), p = new ccd_vec3_t();
-			double maxdot, dot;
-			int i;
+			final ccd_vec3_t dir = c.dir;
 			double []curp;
 
 			ccdVec3Copy(dir, _dir);
 			ccdQuatRotVec(dir, c.rot_inv);
 
-			maxdot = -CCD_REAL_MAX;
+			//TZ hill-climbing from the last support point instead of looking at all points
 			curp = c.convex.getPoints();
-			int curpI = 0;
-			for (i = 0; i < c.convex.getPointcount(); i++, curpI += 3){
-				ccdVec3Set(p, curp[curpI+0], curp[curpI+1], curp[curpI+2]);
-				dot = ccdVec3Dot(dir, p);
-				if (dot > maxdot){
-					ccdVec3Copy(v, p);
-					maxdot = dot;
-				}
-			}
+			c.support = c.convex.SupportIndex(ccdVec3X(dir), ccdVec3Y(dir), ccdVec3Z(dir), c.support);
+			final int maxI = c.support * 3;
+			ccdVec3Set(v, curp[maxI+0], curp[maxI+1], curp[maxI+2]);
 
 
 			// transform support vertex
@@ -300,27 +297,57 @@ public class CollisionLibccd {
 	};
 
 
+	//TZ temporaries of the colliders, these live on the stack in C++.
+	private static final class dxLibccdTemporaries {
+		final ccd_t ccd = new ccd_t();
+		final RefDouble depth = new RefDouble();
+		final ccd_vec3_t dir = new ccd_vec3_t(), pos = new ccd_vec3_t();
+		final ccd_box_t box = new ccd_box_t();
+		final ccd_cap_t cap = new ccd_cap_t();
+		final ccd_cyl_t cyl1 = new ccd_cyl_t(), cyl2 = new ccd_cyl_t();
+		final ccd_sphere_t sphere = new ccd_sphere_t();
+		final ccd_convex_t conv1 = new ccd_convex_t(), conv2 = new ccd_convex_t();
+		final ccd_triangle_t triangle = new ccd_triangle_t();
+		final DVector3[] triangleVertices = { new DVector3(), new DVector3(), new DVector3() };
+		final DContactGeomBuffer tempContacts = new DContactGeomBuffer(1);
+		final DVector3 upAxis = new DVector3(), cross = new DVector3();
+		final DVector3 p = new DVector3(), perturbed = new DVector3(), contactPos = new DVector3();
+		final DQuaternion q1 = new DQuaternion(), q2 = new DQuaternion(), qr = new DQuaternion();
+
+		dxLibccdTemporaries() {
+			CCD_INIT(ccd);
+			ccd.max_iterations = 500;
+			ccd.mpr_tolerance = 1E-6;
+		}
+	}
+
+	private static final ThreadLocal<dxLibccdTemporaries> libccdTemporaries = 
+			new ThreadLocal<dxLibccdTemporaries>() {
+		@Override
+		protected dxLibccdTemporaries initialValue() {
+			return new dxLibccdTemporaries();
+		}
+	};
+
 	static int ccdCollide(DGeom o1, DGeom o2, int flags,
 			DContactGeomBuffer contacts,
 			ccd_obj_t obj1, ccd_support_fn supp1, ccd_center_fn cen1,
 			ccd_obj_t obj2, ccd_support_fn supp2, ccd_center_fn cen2)
 	{
-		ccd_t ccd = new ccd_t();
+		final dxLibccdTemporaries tmp = libccdTemporaries.get();
+		final ccd_t ccd = tmp.ccd;
 		int res;
-		final RefDouble depth = new RefDouble();
-		final ccd_vec3_t dir = new ccd_vec3_t(), pos = new ccd_vec3_t();
+		final RefDouble depth = tmp.depth;
+		final ccd_vec3_t dir = tmp.dir, pos = tmp.pos;
 		int max_contacts = (flags & 0xffff);
 
 		if (max_contacts < 1)
 			return 0;
 
-		CCD_INIT(ccd);
 		ccd.support1 = supp1;
 		ccd.support2 = supp2;
 		ccd.center1  = cen1;
 		ccd.center2  = cen2;
-		ccd.max_iterations = 500;
-		ccd.mpr_tolerance = 1E-6;
 
 
 		if ((flags & OdeConstants.CONTACTS_UNIMPORTANT)!=0){
@@ -356,7 +383,8 @@ public class CollisionLibccd {
 		@Override
 		public int dColliderFn(DGeom o1, DGeom o2, int flags,
 				DContactGeomBuffer contacts) {
-			final ccd_cyl_t cyl1 = new ccd_cyl_t(), cyl2 = new ccd_cyl_t();
+			final dxLibccdTemporaries tmp = libccdTemporaries.get();
+			final ccd_cyl_t cyl1 = tmp.cyl1, cyl2 = tmp.cyl2;
 
 			ccdGeomToCyl((DxCylinder) o1, cyl1);
 			ccdGeomToCyl((DxCylinder) o2, cyl2);
@@ -375,8 +403,9 @@ public class CollisionLibccd {
 		@Override
 		public int dColliderFn(DGeom o1, DGeom o2, int flags,
 				DContactGeomBuffer contacts) {
-			ccd_cyl_t cyl = new ccd_cyl_t();
-			ccd_box_t box = new ccd_box_t();
+			final dxLibccdTemporaries tmp = libccdTemporaries.get();
+			final ccd_cyl_t cyl = tmp.cyl1;
+			final ccd_box_t box = tmp.box;
 			ccdGeomToBox((DxBox) o1, box);
 			ccdGeomToCyl((DxCylinder) o2, cyl);
 
@@ -390,8 +419,9 @@ public class CollisionLibccd {
 		@Override
 		public int dColliderFn(DGeom o1, DGeom o2, int flags,
 				DContactGeomBuffer contacts) {
-			ccd_cap_t cap = new ccd_cap_t();
-			ccd_cyl_t cyl = new ccd_cyl_t();
+			final dxLibccdTemporaries tmp = libccdTemporaries.get();
+			final ccd_cap_t cap = tmp.cap;
+			final ccd_cyl_t cyl = tmp.cyl1;
 
 			ccdGeomToCap((DxCapsule) o1, cap);
 			ccdGeomToCyl((DxCylinder) o2, cyl);
@@ -406,8 +436,9 @@ public class CollisionLibccd {
 		@Override
 		public int dColliderFn(DGeom o1, DGeom o2, int flags,
 				DContactGeomBuffer contacts) {
-			ccd_box_t box = new ccd_box_t();
-			ccd_convex_t conv = new ccd_convex_t();
+			final dxLibccdTemporaries tmp = libccdTemporaries.get();
+			final ccd_box_t box = tmp.box;
+			final ccd_convex_t conv = tmp.conv1;
 	
 			ccdGeomToConvex((DxConvex) o1, conv);
 			ccdGeomToBox((DxBox) o2, box);
@@ -422,8 +453,9 @@ public class CollisionLibccd {
 		@Override
 		public int dColliderFn(DGeom o1, DGeom o2, int flags,
 				DContactGeomBuffer contacts) {
-			ccd_cap_t cap = new ccd_cap_t();
-			ccd_convex_t conv = new ccd_convex_t();
+			final dxLibccdTemporaries tmp = libccdTemporaries.get();
+			final ccd_cap_t cap = tmp.cap;
+			final ccd_convex_t conv = tmp.conv1;
 
 			ccdGeomToConvex((DxConvex) o1, conv);
 			ccdGeomToCap((DxCapsule) o2, cap);
@@ -438,8 +470,9 @@ public class CollisionLibccd {
 		@Override
 		public int dColliderFn(DGeom o1, DGeom o2, int flags,
 				DContactGeomBuffer contacts) {
-			ccd_sphere_t sphere = new ccd_sphere_t();
-			ccd_convex_t conv = new ccd_convex_t();
+			final dxLibccdTemporaries tmp = libccdTemporaries.get();
+			final ccd_sphere_t sphere = tmp.sphere;
+			final ccd_convex_t conv = tmp.conv1;
 
 			ccdGeomToConvex((DxConvex) o1, conv);
 			ccdGeomToSphere((DxSphere) o2, sphere);
@@ -454,8 +487,9 @@ public class CollisionLibccd {
 		@Override
 		public int dColliderFn(DGeom o1, DGeom o2, int flags,
 				DContactGeomBuffer contacts) {
-			ccd_cyl_t cyl = new ccd_cyl_t();
-			ccd_convex_t conv = new ccd_convex_t();
+			final dxLibccdTemporaries tmp = libccdTemporaries.get();
+			final ccd_cyl_t cyl = tmp.cyl1;
+			final ccd_convex_t conv = tmp.conv1;
 
 			ccdGeomToConvex((DxConvex) o1, conv);
 			ccdGeomToCyl((DxCylinder) o2, cyl);
@@ -470,14 +504,25 @@ public class CollisionLibccd {
 		@Override
 		public int dColliderFn(DGeom o1, DGeom o2, int flags,
 				DContactGeomBuffer contacts) {
-			ccd_convex_t c1 = new ccd_convex_t(), c2 = new ccd_convex_t();
+			final dxLibccdTemporaries tmp = libccdTemporaries.get();
+			final ccd_convex_t c1 = tmp.conv1, c2 = tmp.conv2;
 
 			ccdGeomToConvex((DxConvex) o1, c1);
 			ccdGeomToConvex((DxConvex) o2, c2);
 
-			return ccdCollide(o1, o2, flags, contacts,
+			//TZ start at the support points of the last collision of the pair
+			final DxSeparatingAxisCache cache = DxSeparatingAxisCache.get();
+			if (cache != null && cache.findSupport(c1.convex, c2.convex)) {
+				c1.support = cache.support1;
+				c2.support = cache.support2;
+			}
+			int n = ccdCollide(o1, o2, flags, contacts,
 					c1, ccdSupportConvex, ccdCenter,
 					c2, ccdSupportConvex, ccdCenter);
+			if (cache != null) {
+				cache.putSupport(c1.convex, c2.convex, c1.support, c2.support);
+			}
+			return n;
 		}
 	};
 
@@ -512,14 +557,15 @@ public class CollisionLibccd {
 
 	public static class CollideConvexTrimeshTrianglesCCD {
 		public int collide(DGeom o1, DGeom o2, int[] triindices, int flags, DContactGeomBuffer contacts) {
-			ccd_convex_t c1 = new ccd_convex_t();
-			ccd_triangle_t c2 = new ccd_triangle_t();
+			final dxLibccdTemporaries tmp = libccdTemporaries.get();
+			final ccd_convex_t c1 = tmp.conv1;
+			final ccd_triangle_t c2 = tmp.triangle;
 			ccdGeomToConvex((DxConvex) o1, c1);
 			ccdGeomToObj(o2, c2);
 			int maxcontacts = (flags & 0xffff);
-			final DVector3[] triangle = new DVector3[] { new DVector3(), new DVector3(), new DVector3() };
+			final DVector3[] triangle = tmp.triangleVertices;
 			int contactcount = 0;
-			DContactGeomBuffer tempContacts = new DContactGeomBuffer(1);
+			final DContactGeomBuffer tempContacts = tmp.tempContacts;
 			for (int i : triindices) {
 				((DxTriMesh) o2).FetchTransformedTriangle(i, triangle);
 				for (int j = 0; j < 3; j++) {
@@ -538,7 +584,7 @@ public class CollisionLibccd {
 			if (contactcount == 1 && (flags & OdeConstants.CONTACTS_UNIMPORTANT) == 0) {
 				DContactGeom contact = contacts.get(0);
 				((DxTriMesh) o2).FetchTransformedTriangle(contact.side2, triangle);
-				contactcount = addPerturbedContacts(o1, o2, flags, c1, c2, contacts, triangle, contact, contactcount);
+				contactcount = addPerturbedContacts(o1, o2, flags, c1, c2, contacts, triangle, contact, contactcount, tmp);
 			}
 			return contactcount;
 		}
@@ -574,24 +620,27 @@ public class CollisionLibccd {
 		}
 
 		private int addPerturbedContacts(DGeom o1, DGeom o2, int flags, ccd_convex_t c1, ccd_triangle_t c2,
-				DContactGeomBuffer contacts, DVector3[] triangle, DContactGeom contact, int contactcount) {
+				DContactGeomBuffer contacts, DVector3[] triangle, DContactGeom contact, int contactcount,
+				dxLibccdTemporaries tmp) {
 			int maxcontacts = (flags & 0xffff);
-			DVector3 upAxis = new DVector3(0, 1, 0);
+			final DVector3 upAxis = tmp.upAxis;
+			upAxis.set(0, 1, 0);
 			if (Math.abs(contact.normal.dot(upAxis)) > 0.7) {
 				upAxis.set(0, 0, 1);
 			}
-			DVector3 cross = new DVector3();
+			final DVector3 cross = tmp.cross;
 			cross.eqCross(contact.normal, upAxis);
 			cross.safeNormalize();
 			upAxis.eqCross(cross, contact.normal);
 			upAxis.safeNormalize();
-			DQuaternion q1 = new DQuaternion();
-			DQuaternion q2 = new DQuaternion();
-			DQuaternion qr = new DQuaternion();
-			DVector3 p = new DVector3();
-			DVector3 perturbed = new DVector3();
-			DVector3 pos = new DVector3(contact.pos);
-			DContactGeomBuffer perturbedContacts = new DContactGeomBuffer(1);
+			final DQuaternion q1 = tmp.q1;
+			final DQuaternion q2 = tmp.q2;
+			final DQuaternion qr = tmp.qr;
+			final DVector3 p = tmp.p;
+			final DVector3 perturbed = tmp.perturbed;
+			final DVector3 pos = tmp.contactPos;
+			pos.set(contact.pos);
+			final DContactGeomBuffer perturbedContacts = tmp.tempContacts;
 			for (int k = 0; k < 4; k++) {
 				dQFromAxisAndAngle(q1, upAxis, k % 2 == 0 ? CONTACT_PERTURBATION_ANGLE : -CONTACT_PERTURBATION_ANGLE);
 				dQFromAxisAndAngle(q2, cross, k / 2 == 0 ? CONTACT_PERTURBATION_ANGLE : -CONTACT_PERTURBATION_ANGLE);
@@ -17,6 +17,23 @@ import org.ode4j.ode.internal.libccd.CCDVec3.ccd_vec3_t;
 
 public class CollisionLibccdCylinderStacking {
 
+	//TZ temporaries of collideCylCyl(), these live on the stack in C++.
+	private static final class dxCylCylTemporaries {
+		final ccd_vec3_t p = new ccd_vec3_t();
+		final ccd_vec3_t proj = new ccd_vec3_t();
+		final ccd_vec3_t proj2 = new ccd_vec3_t();
+		final ccd_vec3_t discP = new ccd_vec3_t();
+		final ccd_vec3_t discP2 = new ccd_vec3_t();
+	}
+
+	private static final ThreadLocal<dxCylCylTemporaries> cylCylTemporaries = 
+			new ThreadLocal<dxCylCylTemporaries>() {
+		@Override
+		protected dxCylCylTemporaries initialValue() {
+			return new dxCylCylTemporaries();
+		}
+	};
+
 	public static int collideCylCyl(DGeom o1, DGeom o2, ccd_cyl_t cyl1, ccd_cyl_t cyl2, int flags,
 			DContactGeomBuffer contacts) {
 		int maxContacts = Math.min(flags & DxGeom.NUMC_MASK, 8);
@@ -26,7 +43,8 @@ public class CollisionLibccdCylinderStacking {
 		double axesProd = Math.abs(ccdVec3Dot(cyl1.axis, cyl2.axis));
 		// Check if cylinders' axes are in line
 		if (1.0 - axesProd < 1e-3) {
-			ccd_vec3_t p = new ccd_vec3_t();
+			final dxCylCylTemporaries tmp = cylCylTemporaries.get();
+			final ccd_vec3_t p = tmp.p;
 			double r1 = ((DxCylinder) o1).getRadius();
 			double r2 = ((DxCylinder) o2).getRadius();
 			// Determine the cylinder with smaller radius (minCyl) and bigger
@@ -49,7 +67,7 @@ public class CollisionLibccdCylinderStacking {
 			}
 			// Project the smaller cylinder's center onto the larger cylinder's
 			// plane
-			ccd_vec3_t proj = new ccd_vec3_t();
+			final ccd_vec3_t proj = tmp.proj;
 			ccdVec3Copy(proj, maxCyl.axis);
 			ccdVec3Scale(proj, -dot);
 			ccdVec3Add(proj, p);
@@ -80,7 +98,7 @@ public class CollisionLibccdCylinderStacking {
 					for (int i = 0; i < maxContacts; i++) {
 						double a = i * maxContactRecip;
 						contactCount = testAndAddDiscContact(a, rmin, lmin, lSum, minCyl, maxCyl, normaldir, o1, o2,
-								contacts, contactCount);
+								contacts, contactCount, tmp);
 						if (contactCount > 0 && (flags & OdeConstants.CONTACTS_UNIMPORTANT) != 0) {
 							break;
 						}
@@ -91,7 +109,7 @@ public class CollisionLibccdCylinderStacking {
 					// Firstly, find intersections assuming the larger cylinder
 					// is placed at (0,0,0)
 					// http://math.stackexchange.com/questions/256100/how-can-i-find-the-points-at-which-two-circles-intersect
-					ccd_vec3_t proj2 = new ccd_vec3_t();
+					final ccd_vec3_t proj2 = tmp.proj2;
 					ccdVec3Copy(proj2, proj);
 					ccdQuatRotVec(proj, maxCyl.rot_inv);
 					double d = Math.sqrt(proj.get0() * proj.get0() + proj.get1() * proj.get1());
@@ -168,7 +186,7 @@ public class CollisionLibccdCylinderStacking {
 					for (int i = 1; i <= nMin; i++) {
 						a = minB + nMinRecip * i;
 						contactCount = testAndAddDiscContact(a, rmin, lmin, lSum, minCyl, maxCyl, normaldir, o1, o2,
-								contacts, contactCount);
+								contacts, contactCount, tmp);
 						if (contactCount > 0 && (flags & OdeConstants.CONTACTS_UNIMPORTANT) != 0) {
 							break;
 						}
@@ -183,7 +201,7 @@ public class CollisionLibccdCylinderStacking {
 						for (int i = 0; i < nMax; i++) {
 							a = adjustedMinA + nMaxRecip * i;
 							contactCount = testAndAddDiscContact(a, rmax, lmax, lSum, maxCyl, minCyl, normaldir, o1, o2,
-									contacts, contactCount);
+									contacts, contactCount, tmp);
 							if (contactCount > 0 && (flags & OdeConstants.CONTACTS_UNIMPORTANT) != 0) {
 								break;
 							}
@@ -197,10 +215,11 @@ public class CollisionLibccdCylinderStacking {
 	}
 
 	private static int testAndAddDiscContact(double angle, double radius, double length, double lSum, ccd_cyl_t c1,
-			ccd_cyl_t maxCyl, double normaldir, DGeom o1, DGeom o2, DContactGeomBuffer contacts, int contactCount) {
-		ccd_vec3_t p = new ccd_vec3_t();
+			ccd_cyl_t maxCyl, double normaldir, DGeom o1, DGeom o2, DContactGeomBuffer contacts, int contactCount,
+			dxCylCylTemporaries tmp) {
+		final ccd_vec3_t p = tmp.discP;
 		p.set(Math.cos(angle) * radius, Math.sin(angle) * radius, 0);
-		ccd_vec3_t p2 = new ccd_vec3_t();
+		final ccd_vec3_t p2 = tmp.discP2;
 		// Transform to world coordinates
 		ccdQuatRotVec(p, c1.rot);
 		ccdVec3Add(p, c1.pos);
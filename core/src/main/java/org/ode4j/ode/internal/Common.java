@@ -28,6 +28,7 @@ import java.io.PrintWriter;
 import java.io.StringWriter;
 
 import org.ode4j.math.DVector3;
+import org.ode4j.ode.DContactGeomBuffer;
 import org.ode4j.ode.DGeom.DNearCallback;
 import org.ode4j.ode.DWorld;
 import org.ode4j.ode.OdeConstants;
@@ -191,6 +192,12 @@ public class Common extends OdeConstants {
 		}
 	}
 
+	public static void dAASSERT(DContactGeomBuffer a) {
+		if (a == null) {
+			dUASSERT(0, "Bad argument(s)");
+		}
+	}
+
 	/** Assert 'true'. */
 	public static void dAASSERT(boolean b) {
 		if (!b)
@@ -267,8 +267,8 @@ public class DLCP {
 
 //#ifdef dLCP_FAST
 
-    private final int m_n;
-    private final int m_nskip;
+    private int m_n;
+    private int m_nskip;
     private int m_nub;
     private int m_nC, m_nN;              // size of each index set
 	//  ATYPE A;				// A rows
@@ -327,7 +327,13 @@ public class DLCP {
 	//		    dReal *_lo, dReal *_hi, dReal *_L, dReal *_d,
 	//		    dReal *_Dell, dReal *_ell, dReal *_tmp,
 	//		    int *_state, int *_findex, int *_p, int *_C, dReal **Arows)
-	DLCP (int _n, int _nskip, int _nub, double []_Adata, double[] _x, double[] _b, double[] _w,
+	//TZ The LCP object is allocated from the arena with AllocateBlock() and 
+	// reused in the following steps, the constructor became Initialize().
+	DLCP() {
+		//nothing
+	}
+
+	void Initialize (int _n, int _nskip, int _nub, double []_Adata, double[] _x, double[] _b, double[] _w,
 			double[] _lo, double[] _hi, double[] _L, double[] _d,
 			double[] _Dell, double[] _ell, double[] _tmp,
 			boolean []_state, int []_findex, int []_p, int []_C, double[][]Arows)
@@ -335,6 +341,8 @@ public class DLCP {
 	    m_n = _n;
 	    m_nskip = _nskip;
 	    m_nub = _nub;
+	    m_nC = 0;
+	    m_nN = 0;
 	    if (ROWPTRS) {//# ifdef ROWPTRS
 	        //m_A(Arows),
 	        throw new UnsupportedOperationException();
@@ -774,7 +782,8 @@ public class DLCP {
 
 		// create LCP object. note that tmp is set to delta_w to save space, this
 		// optimization relies on knowledge of how tmp is used, so be careful!
-		DLCP lcp = new DLCP(n,nskip,nub,A,x,b,w,lo,hi,L,d,Dell,ell,delta_w,state,findex,p,C,Arows);
+		DLCP lcp = memarena.AllocateBlock(DLCP.class);
+		lcp.Initialize(n,nskip,nub,A,x,b,w,lo,hi,L,d,Dell,ell,delta_w,state,findex,p,C,Arows);
 		int adj_nub = lcp.getNub();
 
 		// loop over all indexes adj_nub..n-1. for index i, if x(i),w(i) satisfy the
@@ -1130,7 +1139,7 @@ public class DLCP {
 
         double total_time = 0;
         for (int count=0; count < 1000; count++) {
-            BlockPointer saveInner = arena.BEGIN_STATE_SAVE(); 
+            int saveInner = arena.BEGIN_STATE_SAVE(); 
             {
 
             // form (A,b) = a random positive definite LCP problem
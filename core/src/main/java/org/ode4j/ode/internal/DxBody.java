@@ -1023,11 +1023,30 @@ public class DxBody extends DObject implements DBody, Cloneable {
 	}
 
 
+	//TZ temporaries of dxStepBody(), these live on the stack in C++.
+	private static final class dxStepBodyTemporaries {
+		final DVector3 irv = new DVector3();
+		final DVector3 frv = new DVector3();
+		final DQuaternion q = new DQuaternion();
+		final DQuaternion q2 = new DQuaternion();
+		final DQuaternion dq = new DQuaternion();
+	}
+
+	private static final ThreadLocal<dxStepBodyTemporaries> stepBodyTemporaries = 
+			new ThreadLocal<dxStepBodyTemporaries>() {
+		@Override
+		protected dxStepBodyTemporaries initialValue() {
+			return new dxStepBodyTemporaries();
+		}
+	};
+
 	// given a body b, apply its linear and angular rotation over the time
 	// interval h, thereby adjusting its position and orientation.
 
 	void dxStepBody (double h)
 	{
+		final dxStepBodyTemporaries temps = stepBodyTemporaries.get();
+
 		// cap the angular velocity
 		if ((flags & dxBodyMaxAngularSpeed) != 0) {
 			final double max_ang_speed = max_angular_speed;
@@ -1044,13 +1063,13 @@ public class DxBody extends DObject implements DBody, Cloneable {
 		_posr.pos.eqSum(_posr.pos(), lvel, h);
 
 		if ((flags & dxBodyFlagFiniteRotation) != 0) {
-			DVector3 irv = new DVector3();	// infitesimal rotation vector
-			DQuaternion q = new DQuaternion();	// quaternion for finite rotation
+			DVector3 irv = temps.irv;	// infitesimal rotation vector
+			DQuaternion q = temps.q;	// quaternion for finite rotation
 
 			if ((flags & dxBodyFlagFiniteRotationAxis) != 0) {
 				// split the angular velocity vector into a component along the finite
 				// rotation axis, and a component orthogonal to it.
-				DVector3 frv = new DVector3();		// finite rotation vector
+				DVector3 frv = temps.frv;		// finite rotation vector
 				double k = dCalcVectorDot3 (finite_rot_axis,avel);
 				//				frv.v[0] = finite_rot_axis.v[0] * k;
 				//				frv.v[1] = finite_rot_axis.v[1] * k;
@@ -1087,14 +1106,14 @@ public class DxBody extends DObject implements DBody, Cloneable {
 			}
 
 			// do the finite rotation
-			DQuaternion q2 = new DQuaternion();
+			DQuaternion q2 = temps.q2;
 			dQMultiply0 (q2,q,_q);
 			//for (j=0; j<4; j++) _q.v[j] = q2.v[j];
 			_q.set(q2);
 
 			// do the infitesimal rotation if required
 			if ((flags & dxBodyFlagFiniteRotationAxis) != 0) {
-				DQuaternion dq = new DQuaternion();
+				DQuaternion dq = temps.dq;
 				dDQfromW (dq,irv,_q);
 				//for (j=0; j<4; j++) _q.v[j] += h * dq[j];
 				_q.sum( _q, dq, h);
@@ -1102,7 +1121,7 @@ public class DxBody extends DObject implements DBody, Cloneable {
 		}
 		else {
 			// the normal way - do an infitesimal rotation
-			DQuaternion dq = new DQuaternion();
+			DQuaternion dq = temps.dq;
 			dDQfromW (dq,avel,_q);
 			//for (j=0; j<4; j++) _q.v[j] += h * dq[j];
 			_q.sum( _q, dq, h);
@@ -1114,8 +1133,6 @@ public class DxBody extends DObject implements DBody, Cloneable {
 
 
 		// notify all attached geoms that this body has moved
-		for (DxGeom geom2 = geom; geom2 != null; geom2 = geom2.dGeomGetBodyNext ())
-			geom2.dGeomMoved ();
 	    DxWorldProcessContext world_process_context = world.UnsafeGetWorldProcessingContext(); 
 	    for (DxGeom geom2 = geom; geom2 != null; geom2 = geom2.dGeomGetBodyNext ()) {
 	        world_process_context.LockForStepbodySerialization();
@@ -367,7 +367,10 @@ public class DxBox extends DxGeom implements DBox {
 			TstClass tst1) {
 		double expr1_val = (expr1); /* Avoid duplicate evaluation of expr1 */ 
 		double s2 = dFabs(expr1_val) - (expr2); 
-		if (s2 > 0) return false; 
+		if (s2 > 0) {
+			tst1._separating = cc;
+			return false; 
+		}
 		if (s2 > tst1._s) { 
 			tst1._s = s2; 
 //			tst1._normalR_A = norm_A.v; 
@@ -389,7 +392,10 @@ public class DxBox extends DxGeom implements DBox {
 			TstClass tst2) {
 		double expr1_val = (expr1); /* Avoid duplicate evaluation of expr1 */ 
 		double s2 = dFabs(expr1_val) - (expr2); 
-		if (s2 > 0) return false; 
+		if (s2 > 0) {
+			tst2._separating = cc;
+			return false; 
+		}
 		double l = dSqrt ((n1)*(n1) + (n2)*(n2) + (n3)*(n3)); 
 		if (l > 0) { 
 			s2 /= l; 
@@ -422,6 +428,8 @@ public class DxBox extends DxGeom implements DBox {
 		double _fudge_factor;
 		final int _flags;
 		boolean _invert_normal;
+		// the axis that separates the boxes, 0 if none
+		int _separating;
 		TstClass(int flags, double fudge_factor) {
 			_flags = flags;
 			_fudge_factor = fudge_factor;
@@ -429,6 +437,64 @@ public class DxBox extends DxGeom implements DBox {
 		boolean _break = false;
 	}
 
+	private static int separated(TstClass tst, RefInt return_code) {
+		return_code.set(tst._separating);
+		return 0;
+	}
+
+	/**
+	 * Tests a single separating axis of dBoxBox(), with the same expressions.
+	 * @param code the axis, numbered as the `return_code' of dBoxBox()
+	 * @param p temporary vector
+	 * @param pp temporary vector
+	 * @return true if the axis separates the boxes, then dBoxBox() returns 0
+	 * as well.
+	 */
+	static boolean dBoxBoxSeparated (final DVector3C p1, final DMatrix3C R1,
+			final DVector3C side1, final DVector3C p2,
+			final DMatrix3C R2, final DVector3C side2, int code,
+			DVector3 p, DVector3 pp)
+	{
+		double R11,R12,R13,R21,R22,R23,R31,R32,R33,
+		Q11,Q12,Q13,Q21,Q22,Q23,Q31,Q32,Q33,expr1,expr2;
+		p.eqDiff(p2, p1);
+		dMultiply1_331 (pp,R1,p);
+		final double A0 = side1.get0()*(0.5), A1 = side1.get1()*(0.5), A2 = side1.get2()*(0.5);
+		final double B0 = side2.get0()*(0.5), B1 = side2.get1()*(0.5), B2 = side2.get2()*(0.5);
+
+		R11 = dCalcVectorDot3_44(R1,0,R2,0); R12 = dCalcVectorDot3_44(R1,0,R2,1); R13 = dCalcVectorDot3_44(R1,0,R2,2);
+		R21 = dCalcVectorDot3_44(R1,1,R2,0); R22 = dCalcVectorDot3_44(R1,1,R2,1); R23 = dCalcVectorDot3_44(R1,1,R2,2);
+		R31 = dCalcVectorDot3_44(R1,2,R2,0); R32 = dCalcVectorDot3_44(R1,2,R2,1); R33 = dCalcVectorDot3_44(R1,2,R2,2);
+
+		Q11 = dFabs(R11); Q12 = dFabs(R12); Q13 = dFabs(R13);
+		Q21 = dFabs(R21); Q22 = dFabs(R22); Q23 = dFabs(R23);
+		Q31 = dFabs(R31); Q32 = dFabs(R32); Q33 = dFabs(R33);
+
+		switch (code) {
+		// separating axis = u1,u2,u3
+		case 1: expr1 = pp.get0(); expr2 = A0 + B0*Q11 + B1*Q12 + B2*Q13; break;
+		case 2: expr1 = pp.get1(); expr2 = A1 + B0*Q21 + B1*Q22 + B2*Q23; break;
+		case 3: expr1 = pp.get2(); expr2 = A2 + B0*Q31 + B1*Q32 + B2*Q33; break;
+		// separating axis = v1,v2,v3
+		case 4: expr1 = dCalcVectorDot3_41(R2,0,p); expr2 = A0*Q11 + A1*Q21 + A2*Q31 + B0; break;
+		case 5: expr1 = dCalcVectorDot3_41(R2,1,p); expr2 = A0*Q12 + A1*Q22 + A2*Q32 + B1; break;
+		case 6: expr1 = dCalcVectorDot3_41(R2,2,p); expr2 = A0*Q13 + A1*Q23 + A2*Q33 + B2; break;
+		// separating axis = u1 x (v1,v2,v3)
+		case 7: expr1 = pp.get2()*R21-pp.get1()*R31; expr2 = A1*Q31+A2*Q21+B1*Q13+B2*Q12; break;
+		case 8: expr1 = pp.get2()*R22-pp.get1()*R32; expr2 = A1*Q32+A2*Q22+B0*Q13+B2*Q11; break;
+		case 9: expr1 = pp.get2()*R23-pp.get1()*R33; expr2 = A1*Q33+A2*Q23+B0*Q12+B1*Q11; break;
+		// separating axis = u2 x (v1,v2,v3)
+		case 10: expr1 = pp.get0()*R31-pp.get2()*R11; expr2 = A0*Q31+A2*Q11+B1*Q23+B2*Q22; break;
+		case 11: expr1 = pp.get0()*R32-pp.get2()*R12; expr2 = A0*Q32+A2*Q12+B0*Q23+B2*Q21; break;
+		case 12: expr1 = pp.get0()*R33-pp.get2()*R13; expr2 = A0*Q33+A2*Q13+B0*Q22+B1*Q21; break;
+		// separating axis = u3 x (v1,v2,v3)
+		case 13: expr1 = pp.get1()*R11-pp.get0()*R21; expr2 = A0*Q21+A1*Q11+B1*Q33+B2*Q32; break;
+		case 14: expr1 = pp.get1()*R12-pp.get0()*R22; expr2 = A0*Q22+A1*Q12+B0*Q33+B2*Q31; break;
+		case 15: expr1 = pp.get1()*R13-pp.get0()*R23; expr2 = A0*Q23+A1*Q13+B0*Q32+B1*Q31; break;
+		default: return false;
+		}
+		return dFabs(expr1) - expr2 > 0;
+	}
 
 	/** 
 	 * given two boxes (p1,R1,side1) and (p2,R2,side2), collide them together and
@@ -441,6 +507,8 @@ public class DxBox extends DxGeom implements DBox {
 	 *        1,2,3 = box 2 intersects with a face of box 1		<br>
 	 *        4,5,6 = box 1 intersects with a face of box 2		<br>
 	 *        7..15 = edge-edge contact							<br>
+	 * If there is no contact, `return_code' returns the separating axis in
+	 * the same numbering, or 0.<br>
 	 * `maxc' is the maximum number of contacts allowed to be generated, i.e.
 	 * the size of the `contact' array.		<br>
 	 * `contact' and `skip' are the contact array information provided to the
@@ -525,19 +593,19 @@ public class DxBox extends DxGeom implements DBox {
 			tst._code = 0;
 
 			// separating axis = u1,u2,u3
-			if (!TST1 (pp.get0(),(A.get0() + B.get0()*Q11 + B.get1()*Q12 + B.get2()*Q13),R1,0,1,tst)) return 0;
+			if (!TST1 (pp.get0(),(A.get0() + B.get0()*Q11 + B.get1()*Q12 + B.get2()*Q13),R1,0,1,tst)) return separated(tst, return_code);
 			if (tst._break) break;
-			if (!TST1 (pp.get1(),(A.get1() + B.get0()*Q21 + B.get1()*Q22 + B.get2()*Q23),R1,1,2,tst)) return 0;
+			if (!TST1 (pp.get1(),(A.get1() + B.get0()*Q21 + B.get1()*Q22 + B.get2()*Q23),R1,1,2,tst)) return separated(tst, return_code);
 			if (tst._break) break;
-			if (!TST1 (pp.get2(),(A.get2() + B.get0()*Q31 + B.get1()*Q32 + B.get2()*Q33),R1,2,3,tst)) return 0;
+			if (!TST1 (pp.get2(),(A.get2() + B.get0()*Q31 + B.get1()*Q32 + B.get2()*Q33),R1,2,3,tst)) return separated(tst, return_code);
 			if (tst._break) break;
 
 			// separating axis = v1,v2,v3
-			if (!TST1 (dCalcVectorDot3_41(R2,0,p),(A.get0()*Q11 + A.get1()*Q21 + A.get2()*Q31 + B.get0()),R2,0,4,tst)) return 0;
+			if (!TST1 (dCalcVectorDot3_41(R2,0,p),(A.get0()*Q11 + A.get1()*Q21 + A.get2()*Q31 + B.get0()),R2,0,4,tst)) return separated(tst, return_code);
 			if (tst._break) break;
-			if (!TST1 (dCalcVectorDot3_41(R2,1,p),(A.get0()*Q12 + A.get1()*Q22 + A.get2()*Q32 + B.get1()),R2,1,5,tst)) return 0;
+			if (!TST1 (dCalcVectorDot3_41(R2,1,p),(A.get0()*Q12 + A.get1()*Q22 + A.get2()*Q32 + B.get1()),R2,1,5,tst)) return separated(tst, return_code);
 			if (tst._break) break;
-			if (!TST1 (dCalcVectorDot3_41(R2,2,p),(A.get0()*Q13 + A.get1()*Q23 + A.get2()*Q33 + B.get2()),R2,2,6,tst)) return 0;
+			if (!TST1 (dCalcVectorDot3_41(R2,2,p),(A.get0()*Q13 + A.get1()*Q23 + A.get2()*Q33 + B.get2()),R2,2,6,tst)) return separated(tst, return_code);
 			if (tst._break) break;
 
 			// note: cross product axes need to be scaled when s is computed.
@@ -564,32 +632,32 @@ public class DxBox extends DxGeom implements DBox {
 			// since parallel edges are equivalent.
 
 			// separating axis = u1 x (v1,v2,v3)
-			if (!TST2(pp.get2()*R21-pp.get1()*R31,(A.get1()*Q31+A.get2()*Q21+B.get1()*Q13+B.get2()*Q12),0,-R31,R21,7, tst)) return 0;
+			if (!TST2(pp.get2()*R21-pp.get1()*R31,(A.get1()*Q31+A.get2()*Q21+B.get1()*Q13+B.get2()*Q12),0,-R31,R21,7, tst)) return separated(tst, return_code);
 			if (tst._break) break;
-			if (!TST2(pp.get2()*R22-pp.get1()*R32,(A.get1()*Q32+A.get2()*Q22+B.get0()*Q13+B.get2()*Q11),0,-R32,R22,8, tst)) return 0;
+			if (!TST2(pp.get2()*R22-pp.get1()*R32,(A.get1()*Q32+A.get2()*Q22+B.get0()*Q13+B.get2()*Q11),0,-R32,R22,8, tst)) return separated(tst, return_code);
 			if (tst._break) break;
-			if (!TST2(pp.get2()*R23-pp.get1()*R33,(A.get1()*Q33+A.get2()*Q23+B.get0()*Q12+B.get1()*Q11),0,-R33,R23,9, tst)) return 0;
+			if (!TST2(pp.get2()*R23-pp.get1()*R33,(A.get1()*Q33+A.get2()*Q23+B.get0()*Q12+B.get1()*Q11),0,-R33,R23,9, tst)) return separated(tst, return_code);
 			if (tst._break) break;
 
 			// separating axis = u2 x (v1,v2,v3)
-			if (!TST2(pp.get0()*R31-pp.get2()*R11,(A.get0()*Q31+A.get2()*Q11+B.get1()*Q23+B.get2()*Q22),R31,0,-R11,10, tst)) return 0;
+			if (!TST2(pp.get0()*R31-pp.get2()*R11,(A.get0()*Q31+A.get2()*Q11+B.get1()*Q23+B.get2()*Q22),R31,0,-R11,10, tst)) return separated(tst, return_code);
 			if (tst._break) break;
-			if (!TST2(pp.get0()*R32-pp.get2()*R12,(A.get0()*Q32+A.get2()*Q12+B.get0()*Q23+B.get2()*Q21),R32,0,-R12,11, tst)) return 0;
+			if (!TST2(pp.get0()*R32-pp.get2()*R12,(A.get0()*Q32+A.get2()*Q12+B.get0()*Q23+B.get2()*Q21),R32,0,-R12,11, tst)) return separated(tst, return_code);
 			if (tst._break) break;
-			if (!TST2(pp.get0()*R33-pp.get2()*R13,(A.get0()*Q33+A.get2()*Q13+B.get0()*Q22+B.get1()*Q21),R33,0,-R13,12, tst)) return 0;
+			if (!TST2(pp.get0()*R33-pp.get2()*R13,(A.get0()*Q33+A.get2()*Q13+B.get0()*Q22+B.get1()*Q21),R33,0,-R13,12, tst)) return separated(tst, return_code);
 			if (tst._break) break;
 
 			// separating axis = u3 x (v1,v2,v3)
-			if (!TST2(pp.get1()*R11-pp.get0()*R21,(A.get0()*Q21+A.get1()*Q11+B.get1()*Q33+B.get2()*Q32),-R21,R11,0,13, tst)) return 0;
+			if (!TST2(pp.get1()*R11-pp.get0()*R21,(A.get0()*Q21+A.get1()*Q11+B.get1()*Q33+B.get2()*Q32),-R21,R11,0,13, tst)) return separated(tst, return_code);
 			if (tst._break) break;
-			if (!TST2(pp.get1()*R12-pp.get0()*R22,(A.get0()*Q22+A.get1()*Q12+B.get0()*Q33+B.get2()*Q31),-R22,R12,0,14, tst)) return 0;
+			if (!TST2(pp.get1()*R12-pp.get0()*R22,(A.get0()*Q22+A.get1()*Q12+B.get0()*Q33+B.get2()*Q31),-R22,R12,0,14, tst)) return separated(tst, return_code);
 			if (tst._break) break;
-			if (!TST2(pp.get1()*R13-pp.get0()*R23,(A.get0()*Q23+A.get1()*Q13+B.get0()*Q32+B.get1()*Q31),-R23,R13,0,15, tst)) return 0;
+			if (!TST2(pp.get1()*R13-pp.get0()*R23,(A.get0()*Q23+A.get1()*Q13+B.get0()*Q32+B.get1()*Q31),-R23,R13,0,15, tst)) return separated(tst, return_code);
 			if (tst._break) break;
 			//	#undef TST
 		} while (false);//(0);
 
-		if (tst._code == 0) return 0;//(!code) return 0;
+		if (tst._code == 0) return separated(tst, return_code);//(!code) return 0;
 
 		// if we get to this point, the boxes interpenetrate. compute the normal
 		// in global coordinates.
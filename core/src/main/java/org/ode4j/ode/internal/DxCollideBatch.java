@@ -0,0 +1,220 @@
+/*************************************************************************
+ *                                                                       *
+ * Open Dynamics Engine, Copyright (C) 2001,2002 Russell L. Smith.       *
+ * All rights reserved.  Email: russ@q12.org   Web: www.q12.org          *
+ * Open Dynamics Engine 4J, Copyright (C) 2009-2014 Tilmann Zaeschke     *
+ * All rights reserved.  Email: ode4j@gmx.de   Web: www.ode4j.org        *
+ *                                                                       *
+ * This library is free software; you can redistribute it and/or         *
+ * modify it under the terms of EITHER:                                  *
+ *   (1) The GNU Lesser General Public License as published by the Free  *
+ *       Software Foundation; either version 2.1 of the License, or (at  *
+ *       your option) any later version. The text of the GNU Lesser      *
+ *       General Public License is included with this library in the     *
+ *       file LICENSE.TXT.                                               *
+ *   (2) The BSD-style license that is included with this library in     *
+ *       the file ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT.         *
+ *                                                                       *
+ * This library is distributed in the hope that it will be useful,       *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the files    *
+ * LICENSE.TXT, ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT for more   *
+ * details.                                                              *
+ *                                                                       *
+ *************************************************************************/
+package org.ode4j.ode.internal;
+
+import static org.ode4j.ode.DGeom.dGeomNumClasses;
+import static org.ode4j.ode.internal.Common.*;
+
+import org.ode4j.ode.DCollideBatch;
+import org.ode4j.ode.DContactBuffer;
+import org.ode4j.ode.DContactGeom;
+import org.ode4j.ode.DContactGeomBuffer;
+import org.ode4j.ode.DGeom;
+import org.ode4j.ode.threading.DThreadingImplementation;
+import org.ode4j.ode.threading.Threading_H.DThreadingFunctionsInfo;
+
+/**
+ * Batched narrow phase, see DCollideBatch.
+ * <p>
+ * The pairs are sorted by the classes of their geoms with a counting sort.
+ * On one thread, the contacts are written directly to the buffer of the
+ * caller. With threads, each pair gets room for its maximum number of
+ * contacts in a scratch buffer, and the contacts are copied to the buffer
+ * of the caller afterwards, in the same order as on one thread.
+ */
+public class DxCollideBatch implements DCollideBatch {
+
+	private static final int NUM_KEYS = dGeomNumClasses * dGeomNumClasses;
+
+	// pair indices sorted by the classes of their geoms
+	private int[] m_order = new int[0];
+	private final int[] m_keyStart = new int[NUM_KEYS + 1];
+	// view that is moved over the contact buffer
+	private DContactGeomBuffer m_view = null;
+	private DContactGeomBuffer m_viewBase = null;
+
+	private DxThreadedChunks m_threading = null;
+	// each pair i of m_order gets the contacts [i*max, (i+1)*max)
+	private DContactGeomBuffer m_scratch = null;
+
+	public static DxCollideBatch dCollideBatchCreate()
+	{
+		return new DxCollideBatch();
+	}
+
+	private DxCollideBatch()
+	{
+	}
+
+	@Override
+	public void setThreadingImplementation (DThreadingFunctionsInfo functions_info,
+			DThreadingImplementation threading_impl)
+	{
+		if (m_threading == null) {
+			m_threading = new DxThreadedChunks();
+		}
+		m_threading.setThreadingImplementation(functions_info, threading_impl);
+	}
+
+	@Override
+	public int collide (DGeom[] geoms, int[] pairs, int pairCount, int flags,
+			DContactGeomBuffer contacts, int[] offsets, int[] counts)
+	{
+		dAASSERT (geoms, pairs, contacts, offsets, counts);
+		dUASSERT (pairs.length >= 2 * pairCount && offsets.length >= pairCount &&
+				counts.length >= pairCount, "arrays too short for pairCount");
+		int max = flags & DxGeom.NUMC_MASK;
+		dUASSERT (max > 0, "no contacts requested");
+
+		SortPairs(geoms, pairs, pairCount);
+
+		if (m_threading != null && m_threading.isThreaded() && pairCount > 1) {
+			return CollideThreaded(geoms, pairs, pairCount, flags, contacts, offsets, counts);
+		}
+
+		if (m_viewBase != contacts) {
+			m_view = contacts.createView(0);
+			m_viewBase = contacts;
+		}
+		int capacity = contacts.size();
+		int total = 0;
+		for (int k = 0; k < pairCount; k++) {
+			int i = m_order[k];
+			if (total + max > capacity) {
+				offsets[i] = -1;
+				counts[i] = -1;
+				continue;
+			}
+			m_view.setView(contacts, total);
+			int n = DxGeom.dCollide((DxGeom) geoms[pairs[2*i]], (DxGeom) geoms[pairs[2*i+1]],
+					flags, m_view, 1);
+			offsets[i] = total;
+			counts[i] = n;
+			total += n;
+		}
+		return total;
+	}
+
+	private int CollideThreaded (final DGeom[] geoms, final int[] pairs, int pairCount,
+			final int flags, DContactGeomBuffer contacts, int[] offsets, final int[] counts)
+	{
+		final int max = flags & DxGeom.NUMC_MASK;
+		if (m_scratch == null || m_scratch.size() < pairCount * max) {
+			m_scratch = new DContactGeomBuffer(new DContactBuffer(pairCount * max));
+		}
+
+		// the colliders only read the positions, so compute them beforehand
+		for (int i = 0; i < 2 * pairCount; i++) {
+			((DxGeom) geoms[pairs[i]]).recomputePosr();
+		}
+
+		final int[] order = m_order;
+		final DContactGeomBuffer scratch = m_scratch;
+		m_threading.run(pairCount, new DxThreadedChunks.dxChunkFunction() {
+			@Override
+			public void run(int begin, int end) {
+				DContactGeomBuffer view = scratch.createView(0);
+				for (int k = begin; k < end; k++) {
+					int i = order[k];
+					if (DxGeom.dCollideIsSerial(geoms[pairs[2*i]], geoms[pairs[2*i+1]])) {
+						continue;
+					}
+					view.setView(scratch, k * max);
+					counts[i] = DxGeom.dCollide((DxGeom) geoms[pairs[2*i]], (DxGeom) geoms[pairs[2*i+1]],
+							flags, view, 1);
+				}
+			}
+		});
+
+		// the pairs that must not be collided concurrently
+		DContactGeomBuffer view = scratch.createView(0);
+		for (int k = 0; k < pairCount; k++) {
+			int i = order[k];
+			if (DxGeom.dCollideIsSerial(geoms[pairs[2*i]], geoms[pairs[2*i+1]])) {
+				view.setView(scratch, k * max);
+				counts[i] = DxGeom.dCollide((DxGeom) geoms[pairs[2*i]], (DxGeom) geoms[pairs[2*i+1]],
+						flags, view, 1);
+			}
+		}
+
+		// copy the contacts without gaps
+		int capacity = contacts.size();
+		int total = 0;
+		for (int k = 0; k < pairCount; k++) {
+			int i = order[k];
+			if (total + max > capacity) {
+				offsets[i] = -1;
+				counts[i] = -1;
+				continue;
+			}
+			int n = counts[i];
+			for (int c = 0; c < n; c++) {
+				CopyContact(scratch.get(k * max + c), contacts.get(total + c));
+			}
+			offsets[i] = total;
+			total += n;
+		}
+		return total;
+	}
+
+	/**
+	 * Sort the pair indices by the classes of their geoms into m_order.
+	 */
+	private void SortPairs (DGeom[] geoms, int[] pairs, int pairCount)
+	{
+		if (m_order.length < pairCount) {
+			m_order = new int[pairCount];
+		}
+		int[] keyStart = m_keyStart;
+		for (int key = 0; key <= NUM_KEYS; key++) {
+			keyStart[key] = 0;
+		}
+		for (int i = 0; i < pairCount; i++) {
+			keyStart[Key(geoms, pairs, i) + 1]++;
+		}
+		for (int key = 0; key < NUM_KEYS; key++) {
+			keyStart[key + 1] += keyStart[key];
+		}
+		for (int i = 0; i < pairCount; i++) {
+			m_order[keyStart[Key(geoms, pairs, i)]++] = i;
+		}
+	}
+
+	private static int Key (DGeom[] geoms, int[] pairs, int i)
+	{
+		return ((DxGeom) geoms[pairs[2*i]]).type * dGeomNumClasses + ((DxGeom) geoms[pairs[2*i+1]]).type;
+	}
+
+	private static void CopyContact (DContactGeom src, DContactGeom dst)
+	{
+		dst.pos.set(src.pos);
+		dst.normal.set(src.normal);
+		dst.depth = src.depth;
+		dst.g1 = src.g1;
+		dst.g2 = src.g2;
+		dst.side1 = src.side1;
+		dst.side2 = src.side2;
+	}
+}
@@ -0,0 +1,178 @@
+/*************************************************************************
+ *                                                                       *
+ * Open Dynamics Engine, Copyright (C) 2001,2002 Russell L. Smith.       *
+ * All rights reserved.  Email: russ@q12.org   Web: www.q12.org          *
+ * Open Dynamics Engine 4J, Copyright (C) 2009-2014 Tilmann Zaeschke     *
+ * All rights reserved.  Email: ode4j@gmx.de   Web: www.ode4j.org        *
+ *                                                                       *
+ * This library is free software; you can redistribute it and/or         *
+ * modify it under the terms of EITHER:                                  *
+ *   (1) The GNU Lesser General Public License as published by the Free  *
+ *       Software Foundation; either version 2.1 of the License, or (at  *
+ *       your option) any later version. The text of the GNU Lesser      *
+ *       General Public License is included with this library in the     *
+ *       file LICENSE.TXT.                                               *
+ *   (2) The BSD-style license that is included with this library in     *
+ *       the file ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT.         *
+ *                                                                       *
+ * This library is distributed in the hope that it will be useful,       *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the files    *
+ * LICENSE.TXT, ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT for more   *
+ * details.                                                              *
+ *                                                                       *
+ *************************************************************************/
+package org.ode4j.ode.internal;
+
+import java.util.Arrays;
+
+import org.ode4j.ode.DContactGeom;
+import org.ode4j.ode.DGeom;
+import org.ode4j.ode.internal.joints.DxJoint;
+import org.ode4j.ode.internal.joints.DxJointContact;
+
+/**
+ * Constraint impulses of the contact joints of the last step, used by 
+ * QuickStep for warm starting. Contact joints are usually recreated every 
+ * step, so a new contact is matched to an old one by its geom pair, its 
+ * features (<tt>side1</tt>, <tt>side2</tt>) and its position.
+ * <p>
+ * The cache is filled by the world after every step and only read while 
+ * islands are stepped.
+ */
+public class DxContactCache {
+
+	/** Old contacts further away than this are not matched. */
+	public static final double MAX_CONTACT_DISTANCE = 0.05;
+	private static final int MAX_ROWS = 6;
+
+	// open addressing table of geom pairs, each pointing to a list of entries
+	private DGeom[] m_keys1 = new DGeom[16];
+	private DGeom[] m_keys2 = new DGeom[16];
+	private int[] m_heads = new int[16];
+
+	private int m_count;
+	private int[] m_next = new int[8];
+	private int[] m_sides = new int[8 * 2];
+	private double[] m_pos = new double[8 * 3];
+	private double[] m_lambda = new double[8 * MAX_ROWS];
+	// entries already taken by a new contact
+	private boolean[] m_used = new boolean[8];
+
+	private static int hash(DGeom g1, DGeom g2) {
+		int h = System.identityHashCode(g1) * 31 + System.identityHashCode(g2);
+		return h ^ (h >>> 16);
+	}
+
+	private int find(DGeom g1, DGeom g2) {
+		final int mask = m_keys1.length - 1;
+		int i = hash(g1, g2) & mask;
+		while (m_keys1[i] != null && (m_keys1[i] != g1 || m_keys2[i] != g2)) {
+			i = (i + 1) & mask;
+		}
+		return i;
+	}
+
+	/**
+	 * Replaces the cache with the contact joints of the world.
+	 */
+	void Store(DxWorld world) {
+		int contacts = 0;
+		for (DxJoint j = world.firstjoint.get(); j != null; j = (DxJoint) j.getNext()) {
+			if (j instanceof DxJointContact) {
+				contacts++;
+			}
+		}
+		if (m_keys1.length < contacts * 2) {
+			int size = m_keys1.length;
+			while (size < contacts * 2) {
+				size *= 2;
+			}
+			m_keys1 = new DGeom[size];
+			m_keys2 = new DGeom[size];
+			m_heads = new int[size];
+		} else {
+			Arrays.fill(m_keys1, null);
+			Arrays.fill(m_keys2, null);
+		}
+		if (m_next.length < contacts) {
+			int size = Math.max(contacts, m_next.length * 2);
+			m_next = new int[size];
+			m_sides = new int[size * 2];
+			m_pos = new double[size * 3];
+			m_lambda = new double[size * MAX_ROWS];
+			m_used = new boolean[size];
+		}
+
+		m_count = 0;
+		for (DxJoint j = world.firstjoint.get(); j != null; j = (DxJoint) j.getNext()) {
+			if (!(j instanceof DxJointContact)) {
+				continue;
+			}
+			DContactGeom geom = ((DxJointContact) j).contact.geom;
+			if (geom.g1 == null || geom.g2 == null) {
+				continue;
+			}
+			int e = m_count++;
+			int k = find(geom.g1, geom.g2);
+			if (m_keys1[k] == null) {
+				m_keys1[k] = geom.g1;
+				m_keys2[k] = geom.g2;
+				m_next[e] = -1;
+			} else {
+				m_next[e] = m_heads[k];
+			}
+			m_heads[k] = e;
+			m_sides[e * 2] = geom.side1;
+			m_sides[e * 2 + 1] = geom.side2;
+			m_pos[e * 3] = geom.pos.get0();
+			m_pos[e * 3 + 1] = geom.pos.get1();
+			m_pos[e * 3 + 2] = geom.pos.get2();
+			System.arraycopy(j.lambda, 0, m_lambda, e * MAX_ROWS, Math.min(j.lambda.length, MAX_ROWS));
+			m_used[e] = false;
+		}
+	}
+
+	/**
+	 * Copies the impulses of the closest old contact with the same geoms and 
+	 * features into <tt>lambda</tt>, or zeros if there is none.
+	 * <p>
+	 * Different islands never share a contact, so this may be called for 
+	 * several islands at the same time.
+	 */
+	void Load(DContactGeom geom, double[] lambda, int ofs, int m) {
+		int best = -1;
+		if (m_count != 0 && geom.g1 != null && geom.g2 != null) {
+			double bestDist = MAX_CONTACT_DISTANCE * MAX_CONTACT_DISTANCE;
+			int k = find(geom.g1, geom.g2);
+			for (int e = m_keys1[k] != null ? m_heads[k] : -1; e != -1; e = m_next[e]) {
+				if (m_used[e] || m_sides[e * 2] != geom.side1 || 
+						m_sides[e * 2 + 1] != geom.side2) {
+					continue;
+				}
+				double dx = m_pos[e * 3] - geom.pos.get0();
+				double dy = m_pos[e * 3 + 1] - geom.pos.get1();
+				double dz = m_pos[e * 3 + 2] - geom.pos.get2();
+				double dist = dx * dx + dy * dy + dz * dz;
+				if (dist <= bestDist) {
+					bestDist = dist;
+					best = e;
+				}
+			}
+		}
+		if (best == -1) {
+			Arrays.fill(lambda, ofs, ofs + m, 0);
+			return;
+		}
+		m_used[best] = true;
+		int n = Math.min(m, MAX_ROWS);
+		System.arraycopy(m_lambda, best * MAX_ROWS, lambda, ofs, n);
+		Arrays.fill(lambda, ofs + n, ofs + m, 0);
+	}
+
+	void Clear() {
+		Arrays.fill(m_keys1, null);
+		Arrays.fill(m_keys2, null);
+		m_count = 0;
+	}
+}
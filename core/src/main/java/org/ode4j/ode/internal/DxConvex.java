@@ -41,6 +41,9 @@ import static org.ode4j.ode.internal.cpp4j.Cmath.fabs;
 import static org.ode4j.ode.internal.cpp4j.Cstdio.fprintf;
 import static org.ode4j.ode.internal.cpp4j.Cstdio.stdout;
 
+import java.util.Arrays;
+import java.util.HashSet;
+
 import org.ode4j.math.DVector3;
 import org.ode4j.math.DVector3C;
 import org.ode4j.ode.DColliderFn;
@@ -113,29 +116,90 @@ public class DxConvex extends DxGeom implements DConvex {
 	//edge* edges;
 	private Edge[] edges;
 
+	/**
+	 * The edges of each point, as indices into edges. The edges of point i
+	 * are vertexEdges[vertexEdgeStart[i]] to vertexEdges[vertexEdgeStart[i+1]-1],
+	 * in the order of edges.
+	 * This is <tt>null</tt> if a point is not part of any polygon.
+	 */
+	private int[] vertexEdgeStart;
+	private int[] vertexEdges;
+
+	/**
+	 * Convex shapes with at least this many points use hill-climbing over
+	 * the edges for support queries, smaller ones scan all points.
+	 */
+	private static final int HILL_CLIMBING_MIN_POINTS = 32;
+
 	/** 
 	 * A Support mapping function for convex shapes.
 	 * @param dir [IN] direction to find the Support Point for
+	 * @param start [IN] index of the point to start from
 	 * @return the index of the support vertex.
 	 */
 	//inline unsigned int SupportIndex(dVector3 dir)
-	private int SupportIndex(DVector3 dir)
+	private int SupportIndex(DVector3 dir, int start)
 	{
 		DVector3 rdir = new DVector3();
-		//unsigned 
-		int index=0;
 		dMultiply1_331 (rdir,final_posr().R(),dir);
-		double max = dCalcVectorDot3(points,0,rdir);
-		double tmp;
-		for (int i = 1; i < pointcount; ++i)
+		return SupportIndex(rdir.get0(), rdir.get1(), rdir.get2(), start);
+	}
+
+	/**
+	 * A Support mapping function in the coordinates of the convex.
+	 * Large convex shapes start at the given point and move to the best
+	 * neighbour until no neighbour is further in direction dir. Starting at
+	 * the support point of a previous query in a similar direction takes
+	 * only a few steps.
+	 * <p>
+	 * The result has the largest projection on dir, like the point of a scan
+	 * of all points. If several points share it, e.g. the points of a face
+	 * that is perpendicular to dir, the climb may end at another of them
+	 * than the scan, which returns the lowest index: on the face 0-5-3-7 a
+	 * climb that starts at 3 stays there, its neighbours 5 and 7 are no
+	 * lower indices.
+	 * @param start index of the point to start from
+	 * @return the index of the support vertex.
+	 */
+	int SupportIndex(double dirX, double dirY, double dirZ, int start)
+	{
+		double max, tmp;
+		//unsigned 
+		int index;
+		if (vertexEdgeStart == null || pointcount < HILL_CLIMBING_MIN_POINTS)
 		{
-			tmp = dCalcVectorDot3(points,(i*3),rdir);
-			if (tmp > max)
+			index=0;
+			max = points[0]*dirX + points[1]*dirY + points[2]*dirZ;
+			for (int i = 1; i < pointcount; ++i)
 			{
-				index=i;
-				max = tmp;
+				tmp = points[i*3]*dirX + points[i*3+1]*dirY + points[i*3+2]*dirZ;
+				if (tmp > max)
+				{
+					index=i;
+					max = tmp;
+				}
 			}
+			return index;
 		}
+		index = (start >= 0 && start < pointcount) ? start : 0;
+		max = points[index*3]*dirX + points[index*3+1]*dirY + points[index*3+2]*dirZ;
+		int previous;
+		do
+		{
+			previous = index;
+			for (int k = vertexEdgeStart[previous]; k < vertexEdgeStart[previous+1]; ++k)
+			{
+				Edge e = edges[vertexEdges[k]];
+				int i = e.first == previous ? e.second : e.first;
+				tmp = points[i*3]*dirX + points[i*3+1]*dirY + points[i*3+2]*dirZ;
+				// on ties only move to a lower index, so the climb cannot cycle
+				if (tmp > max || (tmp == max && i < index))
+				{
+					index=i;
+					max = tmp;
+				}
+			}
+		} while (index != previous);
 		return index;
 	}
 
@@ -314,6 +378,9 @@ public class DxConvex extends DxGeom implements DConvex {
 		edgecount = 0;
 		Edge e = new Edge();
 		boolean isinset;
+		//TZ the set replaces the linear search through all edges
+		HashSet<Long> edgeset = new HashSet<Long>();
+		edges = new Edge[16];
 		for( int i=0;i<planecount;++i)
 		{
 			for( int j=0;j<polygons[points_in_polyPos];++j)
@@ -322,23 +389,15 @@ public class DxConvex extends DxGeom implements DConvex {
 //				e.second = dMAX(index[j],index[(j+1)%*points_in_poly]);
 				e.first = dMIN(polygons[indexPos + j],polygons[indexPos + (j+1)%polygons[points_in_polyPos]]);
 				e.second = dMAX(polygons[indexPos + j],polygons[indexPos + (j+1)%polygons[points_in_polyPos]]);
-				isinset=false;
-				for( int k=0;k<edgecount;++k)
-				{
-					if((edges[k].first==e.first)&&(edges[k].second==e.second))
-					{
-						isinset=true;
-						break;
-					}
-				}
+				isinset=!edgeset.add(((long)e.first << 32) | e.second);
 				if(!isinset)
 				{
-					Edge[] tmp = new Edge[edgecount+1];				
-					if(edgecount!=0)
+					Edge[] tmp = edges;
+					if(edgecount==edges.length)
 					{
 //						memcpy(tmp,edges,(edgecount)*sizeof(edge));
 //						delete[] edges;
-						for (int ii=0; ii<edges.length; ii++) tmp[ii] = edges[ii];
+						tmp = Arrays.copyOf(edges, edgecount*2);
 					}
 					tmp[edgecount] = new Edge();
 					tmp[edgecount].first=e.first;
@@ -351,6 +410,38 @@ public class DxConvex extends DxGeom implements DConvex {
 			points_in_polyPos+= polygons[points_in_polyPos]+1;
 			indexPos=points_in_polyPos+1;//index=points_in_poly+1;
 		}
+		FillVertexEdges();
+	}
+
+	/**
+	 * Populates the edges of each point from the edges set.
+	 */
+	private void FillVertexEdges()
+	{
+		vertexEdgeStart = new int[pointcount+1];
+		for (int i=0;i<edgecount;++i)
+		{
+			++vertexEdgeStart[edges[i].first+1];
+			++vertexEdgeStart[edges[i].second+1];
+		}
+		for (int i=0;i<pointcount;++i)
+		{
+			if (vertexEdgeStart[i+1]==0)
+			{
+				// not part of the hull, the support queries have to look at all points
+				vertexEdgeStart = null;
+				vertexEdges = null;
+				return;
+			}
+			vertexEdgeStart[i+1]+=vertexEdgeStart[i];
+		}
+		vertexEdges = new int[edgecount*2];
+		int[] next = Arrays.copyOf(vertexEdgeStart, pointcount);
+		for (int i=0;i<edgecount;++i)
+		{
+			vertexEdges[next[edges[i].first]++]=i;
+			vertexEdges[next[edges[i].second]++]=i;
+		}
 	}
 	//#if 0
 	//dxConvex::BSPNode* dxConvex::CreateNode(std::vector<Arc> Arcs,std::vector<Polygon> Polygons)
@@ -432,6 +523,7 @@ public class DxConvex extends DxGeom implements DConvex {
 		this.points = points;
 		this.pointcount = pointcount;
 		this.polygons=polygons;
+		FillEdges();
 	}
 
 	//****************************************************************************
@@ -1112,12 +1204,36 @@ public class DxConvex extends DxGeom implements DConvex {
 		}
 	}
 
+	/**
+	 * The support points of the last interval of a convex, the next
+	 * interval of the same convex starts the hill-climbing there.
+	 */
+	private static class SupportHint
+	{
+		int min;
+		int max;
+	};
+
 	//inline void ComputeInterval(dxConvex& cvx,dVector4 axis,dReal& min,dReal& max)
-	private static void ComputeInterval(DxConvex cvx,DVector3 axis, double axisD, RefDouble min, RefDouble max)
+	private static void ComputeInterval(DxConvex cvx,DVector3 axis, double axisD, RefDouble min, RefDouble max,
+			SupportHint hint)
 	{
-		/* TODO: Use Support points here */
 		DVector3 point=new DVector3();
 		double value;
+		if (cvx.vertexEdgeStart != null && cvx.pointcount >= HILL_CLIMBING_MIN_POINTS)
+		{
+			// Use Support points here
+			dMultiply1_331(point, cvx.final_posr().R(), axis);
+			hint.min = cvx.SupportIndex(-point.get0(), -point.get1(), -point.get2(), hint.min);
+			hint.max = cvx.SupportIndex(point.get0(), point.get1(), point.get2(), hint.max);
+			dMultiply0_331(point, cvx.final_posr().R(), cvx.points, hint.min*3);
+			point.add(cvx.final_posr().pos());
+			min.set( dCalcVectorDot3(point,axis)-axisD );
+			dMultiply0_331(point, cvx.final_posr().R(), cvx.points, hint.max*3);
+			point.add(cvx.final_posr().pos());
+			max.set( dCalcVectorDot3(point,axis)-axisD );
+			return;
+		}
 		//fprintf(stdout,"Compute Interval Axis %f,%f,%f\n",axis[0],axis[1],axis[2]);
 		dMultiply0_331(point, cvx.final_posr().R(), cvx.points,0);
 		//fprintf(stdout,"initial point %f,%f,%f\n",point[0],point[1],point[2]);
@@ -1250,13 +1366,48 @@ Helper struct
 		 // e1a to e1b = edge in cvx1,e2a to e2b = edge in cvx2.
 		DVector3 e1a = new DVector3(), e1b = new DVector3();
 		DVector3 e2a = new DVector3(), e2b = new DVector3();
+		// support points of the last intervals of the first and the second convex
+		SupportHint hint1 = new SupportHint(), hint2 = new SupportHint();
+		// face of the separating axis or of the minimum depth, i+1 for the
+		// faces of cvx1, -(i+1) for the faces of cvx2, 0 for edges
+		int axis;
 	};
 
+	/**
+	 * Computes the intervals of both convex shapes on the normal of a
+	 * face of cvx1.
+	 * @param i [IN] Face of cvx1
+	 * @param planeV [OUT] Normal of the face in world coordinates
+	 * @return true if the face separates the convex shapes
+	 */
+	private static boolean SeparatedByFace(DxConvex cvx1, DxConvex cvx2, int i,
+			SupportHint hint1, SupportHint hint2, DVector3 planeV,
+			RefDouble min1, RefDouble max1, RefDouble min2, RefDouble max2)
+	{
+		// -- Apply Transforms --
+		// Rotate
+		dMultiply0_331(planeV, cvx1.final_posr().R(), cvx1.planesV[i]);
+		dNormalize3(planeV);
+		// Translate
+		double planeD = //plane[3]=
+			cvx1.planesD[i]+//(cvx1.planes[(i*4)+3])+
+//			((plane[0] * cvx1.final_posr.pos[0]) + 
+//					(plane[1] * cvx1.final_posr.pos[1])  + 
+//					(plane[2] * cvx1.final_posr.pos[2]));
+			planeV.dot(cvx1.final_posr().pos());
+		ComputeInterval(cvx1,planeV,planeD,min1,max1,hint1);
+		ComputeInterval(cvx2,planeV,planeD,min2,max2,hint2);
+		return max2.get()<min1.get() || max1.get()<min2.get();
+	}
+
 	/** 
 	 * Does an axis separation test using cvx1 planes on cvx1 and cvx2, 
 	 * returns true for a collision false for no collision.
 	 * @param cvx1 [IN] First Convex object, its planes are used to do the tests
 	 * @param cvx2 [IN] Second Convex object
+	 * @param hint1 [IN/OUT] Support points of the last interval of cvx1
+	 * @param hint2 [IN/OUT] Support points of the last interval of cvx2
+	 * @param side [IN] 1 if cvx1 is the first convex of the pair, -1 if not
 	 * @param min_depth [IN/OUT] Used to input as well as output the minimum 
 	 * depth so far, must be set to a huge value such as dInfinity for initialization.
 	 * @param g1 [OUT] Pointer to the convex which should be used in the returned contact as g1
@@ -1266,7 +1417,7 @@ Helper struct
 	//				dxConvex& cvx2,
 	//				ConvexConvexSATOutput& ccso)
 	private static boolean CheckSATConvexFaces(DxConvex cvx1,
-			DxConvex cvx2,
+			DxConvex cvx2, SupportHint hint1, SupportHint hint2, int side,
 			ConvexConvexSATOutput ccso)
 	{
 		//double min,max,min1,max1,min2,max2,depth;
@@ -1275,23 +1426,13 @@ Helper struct
 		RefDouble min2=new RefDouble(), max2=new RefDouble();
 		//dVector4 plane;
 		DVector3 planeV = new DVector3();
-		double planeD;
 		for(int i=0;i<cvx1.planecount;++i)
 		{
-			// -- Apply Transforms --
-			// Rotate
-			dMultiply0_331(planeV, cvx1.final_posr().R(), cvx1.planesV[i]);
-			dNormalize3(planeV);
-			// Translate
-			planeD = //plane[3]=
-				cvx1.planesD[i]+//(cvx1.planes[(i*4)+3])+
-//				((plane[0] * cvx1.final_posr.pos[0]) + 
-//						(plane[1] * cvx1.final_posr.pos[1])  + 
-//						(plane[2] * cvx1.final_posr.pos[2]));
-				planeV.dot(cvx1.final_posr().pos());
-			ComputeInterval(cvx1,planeV,planeD,min1,max1);
-			ComputeInterval(cvx2,planeV,planeD,min2,max2);
-			if(max2.get()<min1.get() || max1.get()<min2.get()) return false;
+			if (SeparatedByFace(cvx1,cvx2,i,hint1,hint2,planeV,min1,max1,min2,max2))
+			{
+				ccso.axis = side*(i+1);
+				return false;
+			}
 			min = dMAX(min1.get(), min2.get());
 			max = dMIN(max1.get(), max2.get());
 			depth = max-min;
@@ -1307,6 +1448,7 @@ Helper struct
 				// plus the integrator seems to like positive depths better than negative ones
 				ccso.min_depth=-depth;
 				ccso.depth_type = 1; // 1 = face-something
+				ccso.axis = side*(i+1);
 			}
 		}
 		return true;
@@ -1341,12 +1483,27 @@ Helper struct
 		DVector3 e1b = new DVector3(),e2a = new DVector3(),e2b = new DVector3();
 		DVector3 dist = new DVector3(ccso.dist);
 		//dVector3Copy(ccso.dist,dist);
-		int s1 = cvx1.SupportIndex(dist);
+		int s1 = cvx1.SupportIndex(dist, ccso.hint1.max);
 		// invert direction
 		dist.scale(-1);//dVector3Inv(dist);  
-		int s2 = cvx2.SupportIndex(dist);
-		for(int i = 0;i<cvx1.edgecount;++i)
+		int s2 = cvx2.SupportIndex(dist, ccso.hint2.max);
+		// Only the edges of the extremal vertices are tested, the edges
+		// of each point are known unless a point is not part of the hull.
+		int begin1 = 0, end1 = cvx1.edgecount;
+		if (cvx1.vertexEdgeStart != null)
+		{
+			begin1 = cvx1.vertexEdgeStart[s1];
+			end1 = cvx1.vertexEdgeStart[s1+1];
+		}
+		int begin2 = 0, end2 = cvx2.edgecount;
+		if (cvx2.vertexEdgeStart != null)
+		{
+			begin2 = cvx2.vertexEdgeStart[s2];
+			end2 = cvx2.vertexEdgeStart[s2+1];
+		}
+		for(int ii = begin1;ii<end1;++ii)
 		{
+			int i = cvx1.vertexEdgeStart != null ? cvx1.vertexEdges[ii] : ii;
 			// Skip edge if it doesn't contain the extremal vertex
 			if((cvx1.edges[i].first!=s1)&&(cvx1.edges[i].second!=s1)) continue;
 			// we only need to apply rotation here
@@ -1356,8 +1513,9 @@ Helper struct
 //			e1[1]=e1b[1]-e1a[1];
 //			e1[2]=e1b[2]-e1a[2];
 			e1.eqDiff(e1b, e1a);
-			for(int j = 0;j<cvx2.edgecount;++j)
+			for(int jj = begin2;jj<end2;++jj)
 			{
+				int j = cvx2.vertexEdgeStart != null ? cvx2.vertexEdges[jj] : jj;
 				// Skip edge if it doesn't contain the extremal vertex
 				if((cvx2.edges[j].first!=s2)&&(cvx2.edges[j].second!=s2)) continue;
 				// we only need to apply rotation here
@@ -1371,9 +1529,13 @@ Helper struct
 				if(planeV.dot(planeV) < dEpsilon) /* edges are parallel */ continue;
 				dNormalize3(planeV);
 				planeD = 0;//plane[3]=0;
-				ComputeInterval(cvx1,planeV,planeD,min1,max1);
-				ComputeInterval(cvx2,planeV,planeD,min2,max2);
-				if(max2.get() < min1.get() || max1.get() < min2.get()) return false;
+				ComputeInterval(cvx1,planeV,planeD,min1,max1,ccso.hint1);
+				ComputeInterval(cvx2,planeV,planeD,min2,max2,ccso.hint2);
+				if(max2.get() < min1.get() || max1.get() < min2.get())
+				{
+					ccso.axis = 0;
+					return false;
+				}
 				min = dMAX(min1.get(), min2.get());
 				max = dMIN(max1.get(), max2.get());
 				depth = max-min;
@@ -1381,6 +1543,7 @@ Helper struct
 				{
 					ccso.min_depth=depth;
 					ccso.depth_type = 2; // 2 = edge-edge
+					ccso.axis = 0;
 					// use cached values, add position
 					ccso.e1a.set(e1a);//(dVector3Copy(e1a,ccso.e1a);
 					ccso.e1b.set(e1b);//dVector3Copy(e1b,ccso.e1b);
@@ -1464,6 +1627,27 @@ Helper struct
 		return side;
 	}
 
+	/** 
+	 * Tests the face that separated the 2 convex shapes the last time,
+	 * see {@link DxSeparatingAxisCache}.
+	 * @param axis [IN] i+1 for face i of cvx1, -(i+1) for face i of cvx2
+	 * @return true if the face still separates the convex shapes
+	 */
+	private static boolean SeparatedByCachedFace(DxConvex cvx1, DxConvex cvx2,
+			int axis, ConvexConvexSATOutput ccso)
+	{
+		RefDouble min1=new RefDouble(), max1=new RefDouble(); 
+		RefDouble min2=new RefDouble(), max2=new RefDouble();
+		DVector3 planeV = new DVector3();
+		if (axis > 0)
+		{
+			return axis <= cvx1.planecount && SeparatedByFace(cvx1,cvx2,axis-1,
+					ccso.hint1,ccso.hint2,planeV,min1,max1,min2,max2);
+		}
+		return -axis <= cvx2.planecount && SeparatedByFace(cvx2,cvx1,-axis-1,
+				ccso.hint2,ccso.hint1,planeV,min1,max1,min2,max2);
+	}
+
 	/** 
 	 * Does an axis separation test between the 2 convex shapes
 	 * using faces and edges.
@@ -1486,15 +1670,29 @@ Helper struct
 		DVector3 i1 = new DVector3(),i2 = new DVector3(),
 			r1 = new DVector3(),r2 = new DVector3(); // edges of incident and reference faces respectively
 		int contacts=0;
-		if(!CheckSATConvexFaces(cvx1,cvx2,ccso))
+		DxSeparatingAxisCache cache = DxSeparatingAxisCache.get();
+		if (cache != null)
 		{
-			return 0;
+			if (cache.findSupport(cvx1, cvx2))
+			{
+				ccso.hint1.max = cache.support1;
+				ccso.hint2.max = cache.support2;
+			}
+			int axis = cache.find(cvx1, cvx2);
+			if (axis != 0 && SeparatedByCachedFace(cvx1,cvx2,axis,ccso))
+			{
+				return 0;
+			}
 		}
-		else if(!CheckSATConvexFaces(cvx2,cvx1,ccso))
+		boolean separated = !CheckSATConvexFaces(cvx1,cvx2,ccso.hint1,ccso.hint2,1,ccso)
+				|| !CheckSATConvexFaces(cvx2,cvx1,ccso.hint2,ccso.hint1,-1,ccso)
+				|| !CheckSATConvexEdges(cvx1,cvx2,ccso);
+		if (cache != null)
 		{
-			return 0;
+			cache.put(cvx1, cvx2, ccso.axis);
+			cache.putSupport(cvx1, cvx2, ccso.hint1.max, ccso.hint2.max);
 		}
-		else if(!CheckSATConvexEdges(cvx1,cvx2,ccso))
+		if (separated)
 		{
 			return 0;
 		}
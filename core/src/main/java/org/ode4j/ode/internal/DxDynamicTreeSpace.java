@@ -0,0 +1,1008 @@
+/*************************************************************************
+ *                                                                       *
+ * Open Dynamics Engine, Copyright (C) 2001,2002 Russell L. Smith.       *
+ * All rights reserved.  Email: russ@q12.org   Web: www.q12.org          *
+ * Open Dynamics Engine 4J, Copyright (C) 2009-2014 Tilmann Zaeschke     *
+ * All rights reserved.  Email: ode4j@gmx.de   Web: www.ode4j.org        *
+ *                                                                       *
+ * This library is free software; you can redistribute it and/or         *
+ * modify it under the terms of EITHER:                                  *
+ *   (1) The GNU Lesser General Public License as published by the Free  *
+ *       Software Foundation; either version 2.1 of the License, or (at  *
+ *       your option) any later version. The text of the GNU Lesser      *
+ *       General Public License is included with this library in the     *
+ *       file LICENSE.TXT.                                               *
+ *   (2) The BSD-style license that is included with this library in     *
+ *       the file ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT.         *
+ *                                                                       *
+ * This library is distributed in the hope that it will be useful,       *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the files    *
+ * LICENSE.TXT, ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT for more   *
+ * details.                                                              *
+ *                                                                       *
+ *************************************************************************/
+package org.ode4j.ode.internal;
+
+import static org.ode4j.ode.internal.Common.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.ode4j.math.DVector3;
+import org.ode4j.math.DVector3C;
+import org.ode4j.ode.DAABB;
+import org.ode4j.ode.DAABBC;
+import org.ode4j.ode.DDynamicTreeSpace;
+
+/**
+ * Dynamic AABB tree space.
+ * <p>
+ * The tree follows the dynamic tree of Box2D (Erin Catto) and the DBVT of
+ * Bullet: the leaves hold fat AABBs, new leaves are inserted next to the
+ * sibling with the lowest surface area cost, and the tree is balanced with
+ * AVL like rotations while walking back up from an inserted or removed leaf.
+ * <p>
+ * The nodes are stored in parallel arrays and are recycled with a free list,
+ * so the tree does not create garbage once it has grown to its final size.
+ * Only dirty geoms are refitted in cleanGeoms(), and only those that left
+ * their fat AABB are reinserted.
+ */
+public class DxDynamicTreeSpace extends DxSpace implements DDynamicTreeSpace {
+
+	private static final int NULL_NODE = -1;
+	/** Value of DxGeom._dtIdxEx for geoms with infinite AABBs. */
+	private static final int INFINITE_LEAF = -2;
+	private static final double DEFAULT_MARGIN = 0.1;
+	/** The fat AABB of a moving geom is extended by this times its last motion. */
+	private static final double DISPLACEMENT_MULTIPLIER = 2;
+	private static final int INITIAL_CAPACITY = 16;
+	private static final int INITIAL_STACK_SIZE = 64;
+
+	private double m_margin = DEFAULT_MARGIN;
+
+	private int m_root = NULL_NODE;
+	private int m_nodeCount = 0;
+	private int m_nodeCapacity = 0;
+	private int m_freeList = NULL_NODE;
+	// fat AABBs, 6 per node: min0, min1, min2, max0, max1, max2
+	private double[] m_aabb = new double[0];
+	// parent of used nodes, next node of free nodes
+	private int[] m_parent = new int[0];
+	// children, NULL_NODE for leaves
+	private int[] m_child1 = new int[0];
+	private int[] m_child2 = new int[0];
+	// 0 for leaves, -1 for free nodes
+	private int[] m_height = new int[0];
+	// geoms of the leaves
+	private DxGeom[] m_geom = new DxGeom[0];
+	// nodes with active geoms, computed by collide() if sleeping pairs are skipped
+	private boolean[] m_active = new boolean[0];
+
+	// geoms with infinite AABBs, they are not in the tree
+	private final List<DxGeom> m_infiniteGeoms = new ArrayList<DxGeom>();
+
+	// null while in use, e.g. by a callback that calls a query of this space
+	private Traversal m_traversal = new Traversal();
+
+	/**
+	 * Scratch data of a traversal.
+	 */
+	private static class Traversal {
+		int[] stack = new int[INITIAL_STACK_SIZE];
+		// entry distances of the nodes on the stack of ray queries
+		double[] dist = new double[INITIAL_STACK_SIZE];
+		// start, direction and length of a ray
+		final double[] ray = new double[7];
+		final DVector3 start = new DVector3();
+		final DVector3 dir = new DVector3();
+	}
+
+
+	public static DxDynamicTreeSpace dDynamicTreeSpaceCreate (DxSpace space)
+	{
+		return new DxDynamicTreeSpace (space);
+	}
+
+
+	private DxDynamicTreeSpace (DxSpace space)
+	{
+		super(space);
+		type = dDynamicTreeSpaceClass;
+	}
+
+
+	@Override
+	void add (DxGeom g)
+	{
+		CHECK_NOT_LOCKED (this);
+		dUASSERT(g.parent_space == null, "geom is already in a space");
+
+		// the geom is inserted into the tree by cleanGeoms(), when its AABB
+		// is known
+		g._dtIdxEx = NULL_NODE;
+		super.add(g);
+	}
+
+
+	@Override
+	void remove (DxGeom g)
+	{
+		CHECK_NOT_LOCKED (this);
+		dUASSERT(g.parent_space == this, "object is not in this space");
+
+		int leaf = g._dtIdxEx;
+		if (leaf >= 0) {
+			RemoveLeaf(leaf);
+			FreeNode(leaf);
+		} else if (leaf == INFINITE_LEAF) {
+			m_infiniteGeoms.remove(g);
+		}
+		g._dtIdxEx = NULL_NODE;
+		super.remove(g);
+	}
+
+
+	@Override
+	public void cleanGeoms()
+	{
+		// compute the AABBs of all dirty geoms, clear the dirty flags and
+		// update their leaves. The dirty geoms are at the front of the list.
+		lock_count++;
+		for (DxGeom g = _first; g != null && g.hasFlagDirty(); g = g.getNext()) {
+			if (g instanceof DxSpace) {
+				((DxSpace)g).cleanGeoms();
+			}
+			g.recomputeAABB();
+			g.unsetFlagDirtyAndBad();
+			UpdateLeaf(g);
+		}
+		lock_count--;
+	}
+
+
+	@Override
+	public void collide (Object data, DNearCallback callback)
+	{
+		dAASSERT (callback);
+
+		lock_count++;
+		cleanGeoms();
+
+		boolean skip = skipSleepingPairs;
+		if (skip) {
+			MarkActiveNodes();
+		}
+
+		if (m_root != NULL_NODE) {
+			Traversal t = AcquireTraversal();
+			int[] stack = t.stack;
+			int top = 0;
+			// a pair (a, a) stands for the pairs inside of subtree a
+			stack[top++] = m_root;
+			stack[top++] = m_root;
+			while (top > 0) {
+				int b = stack[--top];
+				int a = stack[--top];
+				if (top + 6 > stack.length) {
+					stack = Arrays.copyOf(stack, stack.length * 2);
+				}
+				if (a == b) {
+					if (m_height[a] == 0 || (skip && !m_active[a])) {
+						continue;
+					}
+					int c1 = m_child1[a], c2 = m_child2[a];
+					stack[top++] = c1;
+					stack[top++] = c1;
+					stack[top++] = c2;
+					stack[top++] = c2;
+					stack[top++] = c1;
+					stack[top++] = c2;
+				} else if ((!skip || m_active[a] || m_active[b]) && Overlaps(a, b)) {
+					boolean leafA = m_height[a] == 0;
+					boolean leafB = m_height[b] == 0;
+					if (leafA && leafB) {
+						DxGeom g1 = m_geom[a];
+						DxGeom g2 = m_geom[b];
+						if (GEOM_ENABLED(g1) && GEOM_ENABLED(g2)) {
+							collideAABBs (g1, g2, data, callback);
+						}
+					} else if (leafA || (!leafB && m_height[a] < m_height[b])) {
+						// descend into b
+						stack[top++] = a;
+						stack[top++] = m_child1[b];
+						stack[top++] = a;
+						stack[top++] = m_child2[b];
+					} else {
+						// descend into a
+						stack[top++] = m_child1[a];
+						stack[top++] = b;
+						stack[top++] = m_child2[a];
+						stack[top++] = b;
+					}
+				}
+			}
+			t.stack = stack;
+			ReleaseTraversal(t);
+		}
+
+		int infSize = m_infiniteGeoms.size();
+		for (int m = 0; m < infSize; m++) {
+			DxGeom g1 = m_infiniteGeoms.get(m);
+			if (!GEOM_ENABLED(g1)) {
+				continue;
+			}
+			// collide infinite ones
+			for (int n = m + 1; n < infSize; n++) {
+				DxGeom g2 = m_infiniteGeoms.get(n);
+				if (GEOM_ENABLED(g2) && !SKIP_PAIR(g1, g2)) {
+					collideAABBs (g1, g2, data, callback);
+				}
+			}
+			// collide infinite ones with the ones in the tree
+			for (DxGeom g2 = _first; g2 != null; g2 = g2.getNext()) {
+				if (g2._dtIdxEx >= 0 && GEOM_ENABLED(g2) && !SKIP_PAIR(g1, g2)) {
+					collideAABBs (g1, g2, data, callback);
+				}
+			}
+		}
+
+		lock_count--;
+	}
+
+
+	/**
+	 * Set m_active for the nodes whose subtree contains an enabled and
+	 * active geom, so that collide() can skip the other subtrees.
+	 */
+	private void MarkActiveNodes ()
+	{
+		if (m_active.length < m_nodeCapacity) {
+			m_active = new boolean[m_nodeCapacity];
+		} else {
+			Arrays.fill(m_active, 0, m_nodeCapacity, false);
+		}
+		for (DxGeom g = _first; g != null; g = g.getNext()) {
+			if (g._dtIdxEx >= 0 && GEOM_ENABLED(g) && GEOM_ACTIVE(g)) {
+				for (int node = g._dtIdxEx; node != NULL_NODE && !m_active[node];
+						node = m_parent[node]) {
+					m_active[node] = true;
+				}
+			}
+		}
+	}
+
+
+	@Override
+	void collide2 (Object data, DxGeom geom, DNearCallback callback)
+	{
+		dAASSERT (geom != null && callback != null);
+
+		lock_count++;
+		cleanGeoms();
+		geom.recomputeAABB();
+
+		if (m_root != NULL_NODE) {
+			Traversal t = AcquireTraversal();
+			boolean isRay = geom instanceof DxRay;
+			if (isRay) {
+				// only visit the nodes that are hit by the ray
+				DxRay ray = (DxRay) geom;
+				ray.get(t.start, t.dir);
+				SetRay(t.ray, t.start, t.dir, ray.getLength());
+			}
+			DAABB aabb = geom._aabb;
+			int[] stack = t.stack;
+			int top = 0;
+			stack[top++] = m_root;
+			while (top > 0) {
+				int node = stack[--top];
+				if (isRay ? !RayOverlaps(t.ray, node) : !Overlaps(node, aabb)) {
+					continue;
+				}
+				if (m_height[node] == 0) {
+					DxGeom g = m_geom[node];
+					if (GEOM_ENABLED(g) && (!isRay || RayOverlaps(t.ray, g._aabb))) {
+						collideAABBs (g, geom, data, callback);
+					}
+				} else {
+					if (top + 2 > stack.length) {
+						stack = Arrays.copyOf(stack, stack.length * 2);
+					}
+					stack[top++] = m_child1[node];
+					stack[top++] = m_child2[node];
+				}
+			}
+			t.stack = stack;
+			ReleaseTraversal(t);
+		}
+
+		for (int i = 0; i < m_infiniteGeoms.size(); i++) {
+			DxGeom g = m_infiniteGeoms.get(i);
+			if (GEOM_ENABLED(g)) {
+				collideAABBs (g, geom, data, callback);
+			}
+		}
+
+		lock_count--;
+	}
+
+
+	private void dDynamicTreeSpaceQueryAABB (DAABBC aabb, Object data,
+			DQueryCallback callback)
+	{
+		dAASSERT (aabb != null && callback != null);
+
+		lock_count++;
+		cleanGeoms();
+
+		if (m_root != NULL_NODE) {
+			Traversal t = AcquireTraversal();
+			int[] stack = t.stack;
+			int top = 0;
+			stack[top++] = m_root;
+			while (top > 0) {
+				int node = stack[--top];
+				if (!Overlaps(node, aabb)) {
+					continue;
+				}
+				if (m_height[node] == 0) {
+					DxGeom g = m_geom[node];
+					if (GEOM_ENABLED(g) && !g._aabb.isDisjoint(aabb)) {
+						callback.call(data, g);
+					}
+				} else {
+					if (top + 2 > stack.length) {
+						stack = Arrays.copyOf(stack, stack.length * 2);
+					}
+					stack[top++] = m_child1[node];
+					stack[top++] = m_child2[node];
+				}
+			}
+			t.stack = stack;
+			ReleaseTraversal(t);
+		}
+
+		for (int i = 0; i < m_infiniteGeoms.size(); i++) {
+			DxGeom g = m_infiniteGeoms.get(i);
+			if (GEOM_ENABLED(g) && !g._aabb.isDisjoint(aabb)) {
+				callback.call(data, g);
+			}
+		}
+
+		lock_count--;
+	}
+
+
+	private void dDynamicTreeSpaceRaycast (DVector3C start, DVector3C dir,
+			double length, Object data, DQueryCallback callback)
+	{
+		dAASSERT (start != null && dir != null && callback != null);
+
+		lock_count++;
+		cleanGeoms();
+
+		Traversal t = AcquireTraversal();
+		double[] ray = t.ray;
+		SetRay(ray, start, dir, length);
+		if (m_root != NULL_NODE) {
+			int[] stack = t.stack;
+			int top = 0;
+			stack[top++] = m_root;
+			while (top > 0) {
+				int node = stack[--top];
+				if (!RayOverlaps(ray, node)) {
+					continue;
+				}
+				if (m_height[node] == 0) {
+					DxGeom g = m_geom[node];
+					if (GEOM_ENABLED(g) && RayOverlaps(ray, g._aabb)) {
+						callback.call(data, g);
+					}
+				} else {
+					if (top + 2 > stack.length) {
+						stack = Arrays.copyOf(stack, stack.length * 2);
+					}
+					stack[top++] = m_child1[node];
+					stack[top++] = m_child2[node];
+				}
+			}
+			t.stack = stack;
+		}
+
+		for (int i = 0; i < m_infiniteGeoms.size(); i++) {
+			DxGeom g = m_infiniteGeoms.get(i);
+			if (GEOM_ENABLED(g) && RayOverlaps(ray, g._aabb)) {
+				callback.call(data, g);
+			}
+		}
+		ReleaseTraversal(t);
+
+		lock_count--;
+	}
+
+
+	/**
+	 * Visit the leaves front to back: the nearer child is visited first,
+	 * and nodes that the ray enters behind the clip distance of the query
+	 * are skipped.
+	 */
+	@Override
+	boolean raycastGeoms (DxRayQuery q)
+	{
+		lock_count++;
+		cleanGeoms();
+
+		boolean done = false;
+		// infinite geoms first, a hit may clip the ray
+		for (int i = 0; i < m_infiniteGeoms.size() && !done; i++) {
+			DxGeom g = m_infiniteGeoms.get(i);
+			if (GEOM_ENABLED(g)) {
+				done = q.Test(g);
+			}
+		}
+
+		if (!done && m_root != NULL_NODE) {
+			Traversal t = AcquireTraversal();
+			int[] stack = t.stack;
+			double[] dist = t.dist;
+			int top = 0;
+			double d = Enter(q, m_root);
+			if (d <= q.GetClip()) {
+				stack[top] = m_root;
+				dist[top++] = d;
+			}
+			while (top > 0 && !done) {
+				top--;
+				int node = stack[top];
+				if (dist[top] > q.GetClip()) {
+					continue;
+				}
+				if (m_height[node] == 0) {
+					DxGeom g = m_geom[node];
+					if (GEOM_ENABLED(g)) {
+						done = q.Test(g);
+					}
+					continue;
+				}
+				int c1 = m_child1[node];
+				int c2 = m_child2[node];
+				double d1 = Enter(q, c1);
+				double d2 = Enter(q, c2);
+				if (d1 < d2) {
+					// push the farther child first
+					int c = c1;
+					c1 = c2;
+					c2 = c;
+					double dt = d1;
+					d1 = d2;
+					d2 = dt;
+				}
+				if (top + 2 > stack.length) {
+					stack = Arrays.copyOf(stack, stack.length * 2);
+					dist = Arrays.copyOf(dist, dist.length * 2);
+				}
+				if (d1 <= q.GetClip()) {
+					stack[top] = c1;
+					dist[top++] = d1;
+				}
+				if (d2 <= q.GetClip()) {
+					stack[top] = c2;
+					dist[top++] = d2;
+				}
+			}
+			t.stack = stack;
+			t.dist = dist;
+			ReleaseTraversal(t);
+		}
+
+		lock_count--;
+		return done;
+	}
+
+
+	private double Enter (DxRayQuery q, int node)
+	{
+		int i = node * 6;
+		return q.Enter(m_aabb[i], m_aabb[i+1], m_aabb[i+2],
+				m_aabb[i+3], m_aabb[i+4], m_aabb[i+5]);
+	}
+
+
+	//****************************************************************************
+	// tree maintenance
+
+	/**
+	 * Update the leaf of a geom whose AABB has just been recomputed.
+	 */
+	private void UpdateLeaf (DxGeom g)
+	{
+		DAABB aabb = g._aabb;
+		boolean infinite = IsInfinite(aabb);
+		int leaf = g._dtIdxEx;
+		if (leaf == INFINITE_LEAF) {
+			if (infinite) {
+				return;
+			}
+			m_infiniteGeoms.remove(g);
+			leaf = NULL_NODE;
+		}
+		if (infinite) {
+			if (leaf != NULL_NODE) {
+				RemoveLeaf(leaf);
+				FreeNode(leaf);
+			}
+			m_infiniteGeoms.add(g);
+			g._dtIdxEx = INFINITE_LEAF;
+			return;
+		}
+		if (leaf == NULL_NODE) {
+			leaf = AllocateNode();
+			m_geom[leaf] = g;
+			SetFatAABB(leaf, aabb, 0, 0, 0);
+			InsertLeaf(leaf);
+			g._dtIdxEx = leaf;
+			return;
+		}
+		if (Contains(leaf, aabb)) {
+			// the geom is still inside of its fat AABB
+			return;
+		}
+		// predict the motion from the motion of the center
+		int i = leaf * 6;
+		double d0 = aabb.getMin0() + aabb.getMax0() - m_aabb[i] - m_aabb[i+3];
+		double d1 = aabb.getMin1() + aabb.getMax1() - m_aabb[i+1] - m_aabb[i+4];
+		double d2 = aabb.getMin2() + aabb.getMax2() - m_aabb[i+2] - m_aabb[i+5];
+		RemoveLeaf(leaf);
+		SetFatAABB(leaf, aabb, 0.5*d0, 0.5*d1, 0.5*d2);
+		InsertLeaf(leaf);
+	}
+
+
+	private static boolean IsInfinite (DAABB aabb)
+	{
+		return Double.isInfinite(aabb.getMin0()) || Double.isInfinite(aabb.getMax0()) ||
+				Double.isInfinite(aabb.getMin1()) || Double.isInfinite(aabb.getMax1()) ||
+				Double.isInfinite(aabb.getMin2()) || Double.isInfinite(aabb.getMax2());
+	}
+
+
+	private void SetFatAABB (int node, DAABB aabb, double d0, double d1, double d2)
+	{
+		int i = node * 6;
+		m_aabb[i]   = aabb.getMin0() - m_margin;
+		m_aabb[i+1] = aabb.getMin1() - m_margin;
+		m_aabb[i+2] = aabb.getMin2() - m_margin;
+		m_aabb[i+3] = aabb.getMax0() + m_margin;
+		m_aabb[i+4] = aabb.getMax1() + m_margin;
+		m_aabb[i+5] = aabb.getMax2() + m_margin;
+		d0 *= DISPLACEMENT_MULTIPLIER;
+		d1 *= DISPLACEMENT_MULTIPLIER;
+		d2 *= DISPLACEMENT_MULTIPLIER;
+		if (d0 < 0) m_aabb[i] += d0; else m_aabb[i+3] += d0;
+		if (d1 < 0) m_aabb[i+1] += d1; else m_aabb[i+4] += d1;
+		if (d2 < 0) m_aabb[i+2] += d2; else m_aabb[i+5] += d2;
+	}
+
+
+	private int AllocateNode ()
+	{
+		if (m_freeList == NULL_NODE) {
+			// grow the node pool
+			int oldCapacity = m_nodeCapacity;
+			m_nodeCapacity = oldCapacity == 0 ? INITIAL_CAPACITY : oldCapacity * 2;
+			m_aabb = Arrays.copyOf(m_aabb, m_nodeCapacity * 6);
+			m_parent = Arrays.copyOf(m_parent, m_nodeCapacity);
+			m_child1 = Arrays.copyOf(m_child1, m_nodeCapacity);
+			m_child2 = Arrays.copyOf(m_child2, m_nodeCapacity);
+			m_height = Arrays.copyOf(m_height, m_nodeCapacity);
+			m_geom = Arrays.copyOf(m_geom, m_nodeCapacity);
+			for (int i = oldCapacity; i < m_nodeCapacity - 1; i++) {
+				m_parent[i] = i + 1;
+				m_height[i] = -1;
+			}
+			m_parent[m_nodeCapacity - 1] = NULL_NODE;
+			m_height[m_nodeCapacity - 1] = -1;
+			m_freeList = oldCapacity;
+		}
+		int node = m_freeList;
+		m_freeList = m_parent[node];
+		m_parent[node] = NULL_NODE;
+		m_child1[node] = NULL_NODE;
+		m_child2[node] = NULL_NODE;
+		m_height[node] = 0;
+		m_geom[node] = null;
+		m_nodeCount++;
+		return node;
+	}
+
+
+	private void FreeNode (int node)
+	{
+		dIASSERT(node >= 0 && node < m_nodeCapacity && m_nodeCount > 0);
+		m_parent[node] = m_freeList;
+		m_height[node] = -1;
+		m_geom[node] = null;
+		m_freeList = node;
+		m_nodeCount--;
+	}
+
+
+	private void InsertLeaf (int leaf)
+	{
+		if (m_root == NULL_NODE) {
+			m_root = leaf;
+			m_parent[leaf] = NULL_NODE;
+			return;
+		}
+
+		// find the best sibling for the new leaf
+		int index = m_root;
+		while (m_height[index] != 0) {
+			int child1 = m_child1[index];
+			int child2 = m_child2[index];
+
+			double area = Area(index);
+			double combinedArea = CombinedArea(index, leaf);
+
+			// cost of creating a new parent for this node and the new leaf
+			double cost = 2 * combinedArea;
+			// minimum cost of pushing the leaf further down the tree
+			double inheritanceCost = 2 * (combinedArea - area);
+
+			double cost1 = CombinedArea(child1, leaf) + inheritanceCost;
+			if (m_height[child1] != 0) {
+				cost1 -= Area(child1);
+			}
+			double cost2 = CombinedArea(child2, leaf) + inheritanceCost;
+			if (m_height[child2] != 0) {
+				cost2 -= Area(child2);
+			}
+
+			if (cost < cost1 && cost < cost2) {
+				break;
+			}
+			index = cost1 < cost2 ? child1 : child2;
+		}
+		int sibling = index;
+
+		// create a new parent
+		int oldParent = m_parent[sibling];
+		int newParent = AllocateNode();
+		m_parent[newParent] = oldParent;
+		Combine(newParent, leaf, sibling);
+		m_height[newParent] = m_height[sibling] + 1;
+		if (oldParent != NULL_NODE) {
+			if (m_child1[oldParent] == sibling) {
+				m_child1[oldParent] = newParent;
+			} else {
+				m_child2[oldParent] = newParent;
+			}
+		} else {
+			m_root = newParent;
+		}
+		m_child1[newParent] = sibling;
+		m_child2[newParent] = leaf;
+		m_parent[sibling] = newParent;
+		m_parent[leaf] = newParent;
+
+		// walk back up the tree, fixing heights and AABBs
+		FixUpwards(m_parent[leaf]);
+	}
+
+
+	private void RemoveLeaf (int leaf)
+	{
+		if (leaf == m_root) {
+			m_root = NULL_NODE;
+			return;
+		}
+
+		int parent = m_parent[leaf];
+		int grandParent = m_parent[parent];
+		int sibling = m_child1[parent] == leaf ? m_child2[parent] : m_child1[parent];
+
+		if (grandParent != NULL_NODE) {
+			// destroy the parent and connect the sibling to the grand parent
+			if (m_child1[grandParent] == parent) {
+				m_child1[grandParent] = sibling;
+			} else {
+				m_child2[grandParent] = sibling;
+			}
+			m_parent[sibling] = grandParent;
+			FreeNode(parent);
+			FixUpwards(grandParent);
+		} else {
+			m_root = sibling;
+			m_parent[sibling] = NULL_NODE;
+			FreeNode(parent);
+		}
+	}
+
+
+	private void FixUpwards (int index)
+	{
+		while (index != NULL_NODE) {
+			index = Balance(index);
+			int child1 = m_child1[index];
+			int child2 = m_child2[index];
+			m_height[index] = 1 + Math.max(m_height[child1], m_height[child2]);
+			Combine(index, child1, child2);
+			index = m_parent[index];
+		}
+	}
+
+
+	/**
+	 * Perform a left or right rotation if node A is imbalanced.
+	 * @return the new root of the subtree
+	 */
+	private int Balance (int iA)
+	{
+		if (m_height[iA] < 2) {
+			return iA;
+		}
+
+		int iB = m_child1[iA];
+		int iC = m_child2[iA];
+		int balance = m_height[iC] - m_height[iB];
+
+		// rotate C up
+		if (balance > 1) {
+			int iF = m_child1[iC];
+			int iG = m_child2[iC];
+
+			// swap A and C
+			m_child1[iC] = iA;
+			m_parent[iC] = m_parent[iA];
+			m_parent[iA] = iC;
+			ReplaceChild(m_parent[iC], iA, iC);
+
+			if (m_height[iF] > m_height[iG]) {
+				m_child2[iC] = iF;
+				m_child2[iA] = iG;
+				m_parent[iG] = iA;
+				Combine(iA, iB, iG);
+				Combine(iC, iA, iF);
+				m_height[iA] = 1 + Math.max(m_height[iB], m_height[iG]);
+				m_height[iC] = 1 + Math.max(m_height[iA], m_height[iF]);
+			} else {
+				m_child2[iC] = iG;
+				m_child2[iA] = iF;
+				m_parent[iF] = iA;
+				Combine(iA, iB, iF);
+				Combine(iC, iA, iG);
+				m_height[iA] = 1 + Math.max(m_height[iB], m_height[iF]);
+				m_height[iC] = 1 + Math.max(m_height[iA], m_height[iG]);
+			}
+			return iC;
+		}
+
+		// rotate B up
+		if (balance < -1) {
+			int iD = m_child1[iB];
+			int iE = m_child2[iB];
+
+			// swap A and B
+			m_child1[iB] = iA;
+			m_parent[iB] = m_parent[iA];
+			m_parent[iA] = iB;
+			ReplaceChild(m_parent[iB], iA, iB);
+
+			if (m_height[iD] > m_height[iE]) {
+				m_child2[iB] = iD;
+				m_child1[iA] = iE;
+				m_parent[iE] = iA;
+				Combine(iA, iC, iE);
+				Combine(iB, iA, iD);
+				m_height[iA] = 1 + Math.max(m_height[iC], m_height[iE]);
+				m_height[iB] = 1 + Math.max(m_height[iA], m_height[iD]);
+			} else {
+				m_child2[iB] = iE;
+				m_child1[iA] = iD;
+				m_parent[iD] = iA;
+				Combine(iA, iC, iD);
+				Combine(iB, iA, iE);
+				m_height[iA] = 1 + Math.max(m_height[iC], m_height[iD]);
+				m_height[iB] = 1 + Math.max(m_height[iA], m_height[iE]);
+			}
+			return iB;
+		}
+
+		return iA;
+	}
+
+
+	private void ReplaceChild (int parent, int oldChild, int newChild)
+	{
+		if (parent == NULL_NODE) {
+			m_root = newChild;
+		} else if (m_child1[parent] == oldChild) {
+			m_child1[parent] = newChild;
+		} else {
+			dIASSERT(m_child2[parent] == oldChild);
+			m_child2[parent] = newChild;
+		}
+	}
+
+
+	//****************************************************************************
+	// AABB helpers
+
+	/** Set the AABB of node to the union of the AABBs of n1 and n2. */
+	private void Combine (int node, int n1, int n2)
+	{
+		int i = node * 6, i1 = n1 * 6, i2 = n2 * 6;
+		m_aabb[i]   = Math.min(m_aabb[i1],   m_aabb[i2]);
+		m_aabb[i+1] = Math.min(m_aabb[i1+1], m_aabb[i2+1]);
+		m_aabb[i+2] = Math.min(m_aabb[i1+2], m_aabb[i2+2]);
+		m_aabb[i+3] = Math.max(m_aabb[i1+3], m_aabb[i2+3]);
+		m_aabb[i+4] = Math.max(m_aabb[i1+4], m_aabb[i2+4]);
+		m_aabb[i+5] = Math.max(m_aabb[i1+5], m_aabb[i2+5]);
+	}
+
+
+	/** @return half the surface area of the AABB of node */
+	private double Area (int node)
+	{
+		int i = node * 6;
+		double l0 = m_aabb[i+3] - m_aabb[i];
+		double l1 = m_aabb[i+4] - m_aabb[i+1];
+		double l2 = m_aabb[i+5] - m_aabb[i+2];
+		return l0*l1 + l1*l2 + l2*l0;
+	}
+
+
+	/** @return half the surface area of the union of the AABBs of n1 and n2 */
+	private double CombinedArea (int n1, int n2)
+	{
+		int i1 = n1 * 6, i2 = n2 * 6;
+		double l0 = Math.max(m_aabb[i1+3], m_aabb[i2+3]) - Math.min(m_aabb[i1],   m_aabb[i2]);
+		double l1 = Math.max(m_aabb[i1+4], m_aabb[i2+4]) - Math.min(m_aabb[i1+1], m_aabb[i2+1]);
+		double l2 = Math.max(m_aabb[i1+5], m_aabb[i2+5]) - Math.min(m_aabb[i1+2], m_aabb[i2+2]);
+		return l0*l1 + l1*l2 + l2*l0;
+	}
+
+
+	private boolean Contains (int node, DAABB aabb)
+	{
+		int i = node * 6;
+		return m_aabb[i] <= aabb.getMin0() && m_aabb[i+1] <= aabb.getMin1() &&
+				m_aabb[i+2] <= aabb.getMin2() && m_aabb[i+3] >= aabb.getMax0() &&
+				m_aabb[i+4] >= aabb.getMax1() && m_aabb[i+5] >= aabb.getMax2();
+	}
+
+
+	private boolean Overlaps (int n1, int n2)
+	{
+		int i1 = n1 * 6, i2 = n2 * 6;
+		return m_aabb[i1] <= m_aabb[i2+3] && m_aabb[i1+3] >= m_aabb[i2] &&
+				m_aabb[i1+1] <= m_aabb[i2+4] && m_aabb[i1+4] >= m_aabb[i2+1] &&
+				m_aabb[i1+2] <= m_aabb[i2+5] && m_aabb[i1+5] >= m_aabb[i2+2];
+	}
+
+
+	private boolean Overlaps (int node, DAABBC aabb)
+	{
+		int i = node * 6;
+		return m_aabb[i] <= aabb.getMax0() && m_aabb[i+3] >= aabb.getMin0() &&
+				m_aabb[i+1] <= aabb.getMax1() && m_aabb[i+4] >= aabb.getMin1() &&
+				m_aabb[i+2] <= aabb.getMax2() && m_aabb[i+5] >= aabb.getMin2();
+	}
+
+
+	private static void SetRay (double[] ray, DVector3C start, DVector3C dir,
+			double length)
+	{
+		ray[0] = start.get0();
+		ray[1] = start.get1();
+		ray[2] = start.get2();
+		ray[3] = dir.get0();
+		ray[4] = dir.get1();
+		ray[5] = dir.get2();
+		ray[6] = length;
+	}
+
+
+	private boolean RayOverlaps (double[] ray, int node)
+	{
+		int i = node * 6;
+		return RayOverlaps(ray, m_aabb[i], m_aabb[i+1], m_aabb[i+2],
+				m_aabb[i+3], m_aabb[i+4], m_aabb[i+5]);
+	}
+
+
+	private static boolean RayOverlaps (double[] ray, DAABB aabb)
+	{
+		return RayOverlaps(ray, aabb.getMin0(), aabb.getMin1(), aabb.getMin2(),
+				aabb.getMax0(), aabb.getMax1(), aabb.getMax2());
+	}
+
+
+	/**
+	 * Slab test of a ray against an AABB.
+	 */
+	private static boolean RayOverlaps (double[] ray,
+			double min0, double min1, double min2,
+			double max0, double max1, double max2)
+	{
+		double tmin = 0;
+		double tmax = ray[6];
+		for (int k = 0; k < 3; k++) {
+			double min = k == 0 ? min0 : (k == 1 ? min1 : min2);
+			double max = k == 0 ? max0 : (k == 1 ? max1 : max2);
+			double p = ray[k];
+			double d = ray[3+k];
+			if (d == 0) {
+				if (p < min || p > max) {
+					return false;
+				}
+				continue;
+			}
+			double inv = 1.0 / d;
+			double t1 = (min - p) * inv;
+			double t2 = (max - p) * inv;
+			if (t1 > t2) {
+				double t = t1;
+				t1 = t2;
+				t2 = t;
+			}
+			if (t1 > tmin) tmin = t1;
+			if (t2 < tmax) tmax = t2;
+			if (tmin > tmax) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	private Traversal AcquireTraversal ()
+	{
+		Traversal t = m_traversal;
+		if (t == null) {
+			// nested traversal, e.g. a query from inside of a callback
+			return new Traversal();
+		}
+		m_traversal = null;
+		return t;
+	}
+
+
+	private void ReleaseTraversal (Traversal t)
+	{
+		m_traversal = t;
+	}
+
+
+	// *********************************************
+	// dDynamicTreeSpace API
+	// *********************************************
+
+	@Override
+	public void setMargin (double margin)
+	{
+		dUASSERT (margin >= 0, "margin must not be negative");
+		m_margin = margin;
+	}
+
+	@Override
+	public double getMargin ()
+	{
+		return m_margin;
+	}
+
+	@Override
+	public void queryAABB (DAABBC aabb, Object data, DQueryCallback callback)
+	{
+		dDynamicTreeSpaceQueryAABB (aabb, data, callback);
+	}
+
+	@Override
+	public void raycast (DVector3C start, DVector3C dir, double length,
+			Object data, DQueryCallback callback)
+	{
+		dDynamicTreeSpaceRaycast (start, dir, length, data, callback);
+	}
+}
@@ -27,6 +27,8 @@ package org.ode4j.ode.internal;
 import static org.ode4j.ode.OdeMath.*;
 import static org.ode4j.ode.internal.Rotation.dQfromR;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.ode4j.ode.DColliderFn;
 import org.ode4j.math.DMatrix3;
 import org.ode4j.math.DMatrix3C;
@@ -130,6 +132,9 @@ public abstract class DxGeom extends DBase implements DGeom {
 	protected final static int GEOM_ENABLE_TEST_MASK = GEOM_ENABLED | GEOM_ZERO_SIZED;
 	protected final static int GEOM_ENABLE_TEST_VALUE = GEOM_ENABLED;
 
+	// source of _sacKeyEx, starts at 1 so that 0 marks an empty cache entry
+	private static final AtomicLong sacKeys = new AtomicLong(1);
+
 	enum dxContactMergeOptions {
 	    DONT_MERGE_CONTACTS,
 	    MERGE_CONTACT_NORMALS,
@@ -170,7 +175,12 @@ public abstract class DxGeom extends DBase implements DGeom {
 	DxSpace parent_space;// the space this geom is contained in, 0 if none
 	int _sapIdxDirtyEx; // TZ: Used by SAP-Space.
 	int _sapIdxGeomEx; // TZ: Used by SAP-Space.
+	boolean _sapSleepEx; // Used by SAP-Space, true if in its list of sleeping geoms.
 	Block _qtIdxEx; // TZ: Used by QuadTree-Space.
+	int _dtIdxEx; // Used by DynamicTree-Space.
+	int _otIdxEx; // Used by LooseOctree-Space.
+	int _hsIdxEx; // Used by Hash-Space.
+	final long _sacKeyEx = sacKeys.getAndIncrement(); // Used by DxSeparatingAxisCache, unique per geom.
 	
 	//double[] aabb = new double[6];	// cached AABB for this space
 	DAABB _aabb = new DAABB();	// cached AABB for this space
@@ -1711,6 +1721,16 @@ public abstract class DxGeom extends DBase implements DGeom {
 		return count;
 	}
 
+	/**
+	 * @return true if dCollide() of the two geoms must not run at the same
+	 * time as other colliders. The heightfield colliders move the other geom
+	 * into the space of the heightfield while they collide.
+	 */
+	static boolean dCollideIsSerial (DGeom o1, DGeom o2)
+	{
+		return o1 instanceof DxAbstractHeightfield || o2 instanceof DxAbstractHeightfield;
+	}
+
 
 	// **************** from collision_space_internal.h TZ
 
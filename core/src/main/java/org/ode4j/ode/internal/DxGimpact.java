@@ -51,6 +51,8 @@ public class DxGimpact extends DxTriMesh {
 	DxGimpactData _Data;
 
 	GimTrimesh m_collision_trimesh;
+	/** DxGimpactData.getUpdateCount() of the vertices in m_collision_trimesh */
+	private int m_dataUpdateCount;
 
 
 	//void dGeomTriMeshSetLastTransform( DMatrix4 last_trans ) { //stub
@@ -151,6 +153,12 @@ public class DxGimpact extends DxTriMesh {
 	//void dxTriMesh::computeAABB()
 	void computeAABB()
 	{
+		if (m_dataUpdateCount != _Data.getUpdateCount()) {
+			//the vertices of the data have been changed
+			m_collision_trimesh.gim_trimesh_update_source_vertices(_Data.getDataRef());
+			m_dataUpdateCount = _Data.getUpdateCount();
+		}
+
 		//update trimesh transform
 		mat4f transform = new mat4f();
 		GimGeometry.IDENTIFY_MATRIX_4X4(transform);
@@ -160,7 +168,7 @@ public class DxGimpact extends DxTriMesh {
 		//Update trimesh boxes
 		m_collision_trimesh.gim_trimesh_update();
 
-		GIM_AABB_COPY( m_collision_trimesh.getAabbSet().getGlobalBound(), _aabb );
+		GIM_AABB_COPY( m_collision_trimesh.gim_trimesh_get_global_bound(), _aabb );
 	}
 
 
@@ -274,8 +282,10 @@ public class DxGimpact extends DxTriMesh {
 					_Data.getIndexRef(),//[0],	// indices
 					//_Data.m_TriangleCount*3,		// nr of indices
 					false,					// copy indices?
-					true				// transformed reply
+					true,				// transformed reply
+					_Data.getBvh()
 			);
+			m_dataUpdateCount = _Data.getUpdateCount();
 		}
 	}
 
@@ -29,6 +29,7 @@ import static org.ode4j.ode.internal.Common.dIASSERT;
 import java.util.ArrayList;
 
 import org.ode4j.math.DVector4;
+import org.ode4j.ode.internal.gimpact.GimBvh;
 import org.ode4j.ode.internal.cpp4j.java.Ref;
 import org.ode4j.ode.internal.cpp4j.java.RefInt;
 
@@ -42,6 +43,10 @@ public class DxGimpactData extends DxTriMeshData {
 //	int m_VertexStride;   //see docs below, GIMPACT does not support strides other than 3 (TZ)
 //	int m_VertexCount;
 	private int[] m_Indices;//const char* m_Indices;
+	/** Tree of the triangles, shared by all trimeshes with this data. */
+	private GimBvh m_bvh;
+	/** Counts the calls to UpdateData() */
+	private int m_updateCount;
 //	int m_TriangleCount;
 //	int m_TriStride;
 //	boolean m_single;
@@ -66,6 +71,14 @@ public class DxGimpactData extends DxTriMeshData {
     	return m_Indices;
     }
 
+    GimBvh getBvh() {
+    	return m_bvh;
+    }
+
+    int getUpdateCount() {
+    	return m_updateCount;
+    }
+
 //    void Build(const void* Vertices, int VertexStride, int VertexCount,
 //	       const void* Indices, int IndexCount, int TriStride,
 //	       const void* Normals,
@@ -116,6 +129,7 @@ public class DxGimpactData extends DxTriMeshData {
  		dIASSERT(Indices!=null);
  		m_Vertices = Vertices;
  		m_Indices = Indices;
+ 		m_bvh = GimBvh.gim_bvh_create(Vertices, Indices);
  		//TODO remove?
  		//check();
   	}
@@ -166,8 +180,8 @@ public class DxGimpactData extends DxTriMeshData {
 	//void dxTriMeshData::UpdateData()
 	void UpdateData() {
 		//  BVTree.Refit();
-		// TODO Auto-generated method stub
-		throw new UnsupportedOperationException();
+		m_bvh.gim_bvh_refit(m_Vertices, m_Indices);
+		m_updateCount++;
 	}
 
 	
@@ -24,7 +24,7 @@
  *************************************************************************/
 package org.ode4j.ode.internal;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 
 import org.ode4j.ode.DAABB;
 import org.ode4j.ode.DHashSpace;
@@ -35,6 +35,14 @@ import static org.ode4j.ode.internal.cpp4j.C_All.*;
 
 /**
  * From collision_space.cpp
+ * <p>
+ * Unlike the original, the multi-level hash table is persistent. Each geom
+ * has a handle (DxGeom._hsIdxEx) and stays in the cells of its level until
+ * it is removed or its discretized AABB changes, so cleanGeoms() only has
+ * to update the cells of the dirty geoms. The cells and their lists of
+ * handles are stored in int arrays, and collide() reports each pair only
+ * in the lowest cell that both AABBs occupy, which replaces the n*n
+ * 'tested' bit matrix.
  */
 public class DxHashSpace extends DxSpace implements DHashSpace {
 	//****************************************************************************
@@ -46,37 +54,11 @@ public class DxHashSpace extends DxSpace implements DHashSpace {
 	//	#endif
 	private static final int MAXINT = Integer.MAX_VALUE;
 
-
-	// prime[i] is the largest prime smaller than 2^i
-	//	#define NUM_PRIMES 31
-	//	static const long int prime[NUM_PRIMES] = {1L,2L,3L,7L,13L,31L,61L,127L,251L,509L,
-	//	  1021L,2039L,4093L,8191L,16381L,32749L,65521L,131071L,262139L,
-	//	  524287L,1048573L,2097143L,4194301L,8388593L,16777213L,33554393L,
-	//	  67108859L,134217689L,268435399L,536870909L,1073741789L};
-	private static final int NUM_PRIMES = 31;
-	private static final int[] prime =  {1,2,3,7,13,31,61,127,251,509,
-		1021,2039,4093,8191,16381,32749,65521,131071,262139,
-		524287,1048573,2097143,4194301,8388593,16777213,33554393,
-		67108859,134217689,268435399,536870909,1073741789};
-
-
-	// an axis aligned bounding box in the hash table
-	private static class dxAABB {
-		int level;		// the level this is stored in (cell size = 2^level)
-		//TODO do not initialise?
-		int[] dbounds = new int[6];	// AABB bounds, discretized to cell size
-		DxGeom geom;		// corresponding geometry object (AABB stored here)
-		int index;		// index of this AABB, starting from 0
-	}
-
-
-	// a hash table node that represents an AABB that intersects a particular cell
-	// at a particular level
-	private static class Node {
-		Node next;		// next node in hash table collision list, 0 if none
-		int x,y,z;		// cell position in space, discretized to cell size
-		dxAABB aabb;		// axis aligned bounding box that intersects this cell
-	};
+	/** Level of handles that are not in the hash table yet. */
+	private static final int NOT_INSERTED = Integer.MIN_VALUE;
+	/** Level of handles that are too big for the hash table. */
+	private static final int BIG = MAXINT;
+	private static final int INITIAL_CAPACITY = 16;
 
 
 	// return the `level' of an AABB. the AABB will be put into cells at this
@@ -86,7 +68,7 @@ public class DxHashSpace extends DxSpace implements DHashSpace {
 	//		size/2 < q <= size
 	// where q is the maximum AABB dimension.
 
-	private static int findLevel (DAABB boundsV) //[6])
+	private int findLevel (DAABB boundsV) //[6])
 	{
 		//double[] bounds = boundsV.v;
 		//	  if (bounds[0] <= -dInfinity || bounds[1] >= dInfinity ||
@@ -107,27 +89,17 @@ public class DxHashSpace extends DxSpace implements DHashSpace {
 		if (q2 > q) q = q2;
 
 		// find level such that 0.5 * 2^level < q <= 2^level
-		RefInt level = new RefInt();
-		frexp (q,level);	// q = (0.5 .. 1.0) * 2^level (definition of frexp)
-		return level.i;
+		frexp (q,frexpLevel);	// q = (0.5 .. 1.0) * 2^level (definition of frexp)
+		return frexpLevel.i;
 	}
-	// find a virtual memory address for a cell at the given level and x,y,z
-	// position.
-	// @@@ currently this is not very sophisticated, e.g. the scaling
-	// factors could be better designed to avoid collisions, and they should
-	// probably depend on the hash table physical size.
-
-	//	static unsigned long getVirtualAddress (int level, int x, int y, int z)
-	private static int getVirtualAddress (int level, int x, int y, int z)
+
+	private static int hashCell (int level, int x, int y, int z)
 	{
-		int r = level*1000 + x*100 + y*10 + z;
-		//TODO remove check ?!?
-		if (r>=Integer.MAX_VALUE) {
-		    throw new IllegalArgumentException("level: " + level + " x=" + x + 
-		            " y=" + y + " z="+ z);
-		}
-		return Math.abs(r);
-		//return level*1000 + x*100 + y*10 + z;
+		int h = level * 0x9E3779B9;
+		h = (h ^ x) * 0x85EBCA6B;
+		h = (h ^ y) * 0xC2B2AE35;
+		h = (h ^ z) * 0x27D4EB2F;
+		return h ^ (h >>> 15);
 	}
 
 	//****************************************************************************
@@ -138,6 +110,44 @@ public class DxHashSpace extends DxSpace implements DHashSpace {
 	private int global_maxlevel;	// objects that need a level larger than this will be
 	// put in a "big objects" list instead of a hash table
 
+	private final RefInt frexpLevel = new RefInt();
+
+	// handles: geom, level (cell size = 2^level) and AABB bounds discretized
+	// to the cell size of each geom in the space
+	private int handleCount = 0;
+	private DxGeom[] handleGeom = new DxGeom[INITIAL_CAPACITY];
+	private int[] handleLevel = new int[INITIAL_CAPACITY];
+	private int[] handleBounds = new int[6 * INITIAL_CAPACITY];
+	private int[] freeHandles = new int[INITIAL_CAPACITY];
+	private int freeHandleCount = 0;
+	// number of handles per level, from global_minlevel to global_maxlevel
+	private int[] levelCount;
+	private int bigCount = 0;
+	// set by setLevels(), all geoms have to be inserted again
+	private boolean reinsert = false;
+
+	// cells: level and x,y,z position, discretized to the cell size, and the
+	// first entry of the handles that intersect the cell
+	private int cellCount = 0;
+	private int[] cellKey = new int[4 * INITIAL_CAPACITY];
+	private int[] cellFirst = new int[INITIAL_CAPACITY];
+	private int[] freeCells = new int[INITIAL_CAPACITY];
+	private int freeCellCount = 0;
+	// open addressing hash table with linear probing, cell index + 1 or 0
+	private int[] table = new int[4 * INITIAL_CAPACITY];
+	private int tableMask = table.length - 1;
+	private int tableSize = 0;
+	// entries of the cell lists, free entries are linked through entryNext
+	private int[] entryHandle = new int[8 * INITIAL_CAPACITY];
+	private int[] entryNext = new int[8 * INITIAL_CAPACITY];
+	private int entryCount = 0;
+	private int freeEntry = -1;
+
+	// scratch for collide()
+	private final int[] db = new int[6];
+	private int collideMaxlevel;
+	private int[] bigHandles = new int[INITIAL_CAPACITY];
+
 	//	  dxHashSpace (dSpace _space);
 	//	  void setLevels (int minlevel, int maxlevel);
 	//	  void getLevels (int *minlevel, int *maxlevel);
@@ -153,6 +163,7 @@ public class DxHashSpace extends DxSpace implements DHashSpace {
 		type = dHashSpaceClass;
 		global_minlevel = -3;
 		global_maxlevel = 10;
+		levelCount = new int[global_maxlevel - global_minlevel + 1];
 	}
 
 
@@ -162,6 +173,20 @@ public class DxHashSpace extends DxSpace implements DHashSpace {
 		dAASSERT (minlevel <= maxlevel);
 		global_minlevel = minlevel;
 		global_maxlevel = maxlevel;
+
+		// all geoms are put into the hash table again by cleanGeoms()
+		levelCount = new int[global_maxlevel - global_minlevel + 1];
+		bigCount = 0;
+		Arrays.fill(table, 0);
+		tableSize = 0;
+		cellCount = 0;
+		freeCellCount = 0;
+		entryCount = 0;
+		freeEntry = -1;
+		for (int h = 0; h < handleCount; h++) {
+			handleLevel[h] = NOT_INSERTED;
+		}
+		reinsert = true;
 	}
 
 
@@ -178,20 +203,64 @@ public class DxHashSpace extends DxSpace implements DHashSpace {
 	}
 
 
+	@Override
+	void add (DxGeom g)
+	{
+		CHECK_NOT_LOCKED (this);
+		int h;
+		if (freeHandleCount > 0) {
+			h = freeHandles[--freeHandleCount];
+		} else {
+			if (handleCount == handleGeom.length) {
+				int n = handleCount * 2;
+				handleGeom = Arrays.copyOf(handleGeom, n);
+				handleLevel = Arrays.copyOf(handleLevel, n);
+				handleBounds = Arrays.copyOf(handleBounds, 6 * n);
+				freeHandles = Arrays.copyOf(freeHandles, n);
+			}
+			h = handleCount++;
+		}
+		handleGeom[h] = g;
+		handleLevel[h] = NOT_INSERTED;
+		g._hsIdxEx = h;
+		super.add(g);
+	}
+
+
+	@Override
+	void remove (DxGeom g)
+	{
+		CHECK_NOT_LOCKED (this);
+		int h = g._hsIdxEx;
+		removeHandle(h);
+		handleGeom[h] = null;
+		freeHandles[freeHandleCount++] = h;
+		g._hsIdxEx = -1;
+		super.remove(g);
+	}
+
+
 	@Override
 	public void cleanGeoms()
 	{
 		// compute the AABBs of all dirty geoms, and clear the dirty flags
 		lock_count++;
-		for (DxGeom g : getGeoms()) {
-			//if ((g._gflags & GEOM_DIRTY)==0) break;
-			if (!g.hasFlagDirty()) break;
+		for (DxGeom g = _first; g != null && g.hasFlagDirty(); g = g.getNext()) {
 			if (g instanceof DxSpace) {
 				((DxSpace)g).cleanGeoms();
 			}
 			g.recomputeAABB();
 			//g._gflags &= (~(GEOM_DIRTY|GEOM_AABB_BAD));
 			g.unsetFlagDirtyAndBad();
+			updateHandle(g._hsIdxEx);
+		}
+		if (reinsert) {
+			for (int h = 0; h < handleCount; h++) {
+				if (handleGeom[h] != null && handleLevel[h] == NOT_INSERTED) {
+					updateHandle(h);
+				}
+			}
+			reinsert = false;
 		}
 		lock_count--;
 	}
@@ -200,8 +269,6 @@ public class DxHashSpace extends DxSpace implements DHashSpace {
 	public void collide (Object data, DNearCallback callback)
 	{
 		dAASSERT(callback);
-		//dxGeom geom; //*
-		int i,maxlevel;
 
 		// 0 or 1 geoms can't collide with anything
 		if (getNumGeoms() < 2) return;
@@ -209,171 +276,150 @@ public class DxHashSpace extends DxSpace implements DHashSpace {
 		lock_count++;
 		cleanGeoms();
 
-		// create a list of auxiliary information for all geom axis aligned bounding
-		// boxes. set the level for all AABBs. put AABBs larger than the space's
-		// global_maxlevel in the big_boxes list, check everything else against
-		// that list at the end. for AABBs that are not too big, record the maximum
-		// level that we need.
-
-		ArrayList<dxAABB> hash_boxes = new ArrayList<dxAABB>();	// list of AABBs in hash table
-		ArrayList<dxAABB> big_boxes = new ArrayList<dxAABB>();	// list of AABBs too big for hash table
-		maxlevel = global_minlevel - 1;
-		for (DxGeom geom : getGeoms()) {
-			if (!GEOM_ENABLED(geom)){
-				continue;
-			}
-			dxAABB aabb = new dxAABB(); //(dxAABB) ALLOCA (sizeof(dxAABB));
-			aabb.geom = geom;
-			// compute level, but prevent cells from getting too small
-			int level = findLevel (geom._aabb);
-			if (level < global_minlevel) level = global_minlevel;
-			if (level <= global_maxlevel) {
-				aabb.level = level;
-				if (level > maxlevel) maxlevel = level;
-				// cellsize = 2^level
-				double cellsize = ldexp (1.0,level);
-				// discretize AABB position to cell size
-				for (i=0; i < 3; i++) {
-					aabb.dbounds[2*i] = (int)Math.floor (geom._aabb.getMin(i)/cellsize);
-					aabb.dbounds[2*i+1] = (int)Math.floor (geom._aabb.getMax(i)/cellsize);
-				}
-				// set AABB index
-				aabb.index = hash_boxes.size();
-	            // aabb goes in main list
-	            hash_boxes.add(aabb);
-			}
-			else {
-				// aabb is too big, put it in the big_boxes list. we don't care about
-				// setting level, dbounds, index, or the maxlevel
-				big_boxes.add(aabb);
-			}
-		}
+		collideMaxlevel = findMaxLevel();
+		collideHandles (0, handleCount, db, data, callback);
+		collideBigHandles (data, callback);
 
-	    int n = hash_boxes.size(); // number of AABBs in main list
+		lock_count--;
+	}
 
-		// for `n' objects, an n*n array of bits is used to record if those objects
-		// have been intersection-tested against each other yet. this array can
-		// grow large with high n, but oh well...
-		int tested_rowsize = (n+7) >> 3;	// number of bytes needed for n bits
-		//std::vector<unsigned char> tested(n * tested_rowsize);
-		int[] tested = new int[n * tested_rowsize];
+	/**
+	 * Like collide(), but the handles are split into chunks that are
+	 * collided with the hash table on all threads.
+	 */
+	@Override
+	public void collideThreaded (Object data, DNearCallback callback)
+	{
+		dAASSERT(callback);
 
-		// create a hash table to store all AABBs. each AABB may take up to 8 cells.
-		// we use chaining to resolve collisions, but we use a relatively large table
-		// to reduce the chance of collisions.
+		// 0 or 1 geoms can't collide with anything
+		if (getNumGeoms() < 2) return;
 
-		// compute hash table size sz to be a prime > 8*n
-		for (i=0; i<NUM_PRIMES; i++) {
-			if (prime[i] >= (8*n)) break;
-		}
-		if (i >= NUM_PRIMES) 
-			i = NUM_PRIMES-1;	// probably pointless
-		int sz = prime[i];
-
-		// allocate and initialize hash table node pointers
-		//std::vector<Node*> table(sz);
-		Node[] table = new Node[sz];
-
-		// add each AABB to the hash table (may need to add it to up to 8 cells)
-		//TODO use proper List here!
-		//for (aabb=first_aabb; aabb != null; aabb=aabb.next) {
-		for (dxAABB aabb: hash_boxes) {
-			int[] dbounds = aabb.dbounds;
-			for (int xi = dbounds[0]; xi <= dbounds[1]; xi++) {
-				for (int yi = dbounds[2]; yi <= dbounds[3]; yi++) {
-					for (int zi = dbounds[4]; zi <= dbounds[5]; zi++) {
-						// get the hash index  TODO TZ: cast to int
-						int hi = getVirtualAddress (aabb.level,xi,yi,zi) % sz;
-						// add a new node to the hash table
-						Node node = new Node();//(Node) ALLOCA (sizeof (Node));
-						node.x = xi;
-						node.y = yi;
-						node.z = zi;
-						node.aabb = aabb;
-						node.next = table[hi];
-						table[hi] = node;
-					}
-				}
-			}
+		lock_count++;
+		cleanGeoms();
+
+		collideMaxlevel = findMaxLevel();
+		collideChunks (chunkCollider, handleCount, data, callback);
+		collideBigHandles (data, callback);
+
+		lock_count--;
+	}
+
+	private final dxChunkCollider chunkCollider = new dxChunkCollider() {
+		@Override
+		public void collideChunk (int begin, int end, Object data, DNearCallback callback)
+		{
+			collideHandles (begin, end, new int[6], data, callback);
 		}
+	};
 
-		// now that all AABBs are loaded into the hash table, we do the actual
-		// collision detection. for all AABBs, check for other AABBs in the
-		// same cells for collisions, and then check for other AABBs in all
-		// intersecting higher level cells.
+	/**
+	 * @return the highest level that contains AABBs
+	 */
+	private int findMaxLevel ()
+	{
+		int maxlevel = global_maxlevel;
+		while (maxlevel >= global_minlevel && levelCount[maxlevel - global_minlevel] == 0) {
+			maxlevel--;
+		}
+		return maxlevel;
+	}
 
-		int[] db = new int[6];			// discrete bounds at current level
-		for (dxAABB aabb: hash_boxes) {
-			// we are searching for collisions with aabb
-			for (i=0; i<6; i++) db[i] = aabb.dbounds[i];
-			for (int level = aabb.level; level <= maxlevel; level++) {
+	/**
+	 * Collide the handles [begin, end) with the hash table.
+	 * @param db scratch for the discrete bounds at the current level
+	 */
+	private void collideHandles (int begin, int end, int[] db,
+			Object data, DNearCallback callback)
+	{
+		int i;
+		int maxlevel = collideMaxlevel;
+
+		// for all AABBs, check for other AABBs in the same cells for
+		// collisions, and then check for other AABBs in all intersecting
+		// higher level cells. two AABBs can share several cells, the pair is
+		// only reported in the cell of the lowest corner of their
+		// intersection.
+		for (int h = begin; h < end; h++) {
+			DxGeom geom = handleGeom[h];
+			int hlevel = handleLevel[h];
+			if (geom == null || hlevel == BIG || !GEOM_ENABLED(geom)) {
+				continue;
+			}
+			for (i=0; i<6; i++) db[i] = handleBounds[6*h+i];
+			for (int level = hlevel; level <= maxlevel; level++) {
 				for (int xi = db[0]; xi <= db[1]; xi++) {
 					for (int yi = db[2]; yi <= db[3]; yi++) {
 						for (int zi = db[4]; zi <= db[5]; zi++) {
-							// get the hash index
-							//int TZ long 
-							int hi = getVirtualAddress (level,xi,yi,zi) % sz;
-							// search all nodes at this index
-							for (Node node = table[hi]; node != null; node=node.next) {
-								// node points to an AABB that may intersect aabb
-								if (node.aabb == aabb) 
+							int cell = findCell (level,xi,yi,zi);
+							if (cell < 0) {
+								continue;
+							}
+							for (int e = cellFirst[cell]; e >= 0; e = entryNext[e]) {
+								int h2 = entryHandle[e];
+								// pairs on the same level are found from both sides
+								if (level == hlevel && h2 <= h) {
 									continue;
-								if (node.aabb.level == level &&
-										node.x == xi && node.y == yi && node.z == zi) {
-									// see if aabb and node->aabb have already been tested
-									// against each other
-									//TZ unsigned char mask;
-									int mask;
-									if (aabb.index <= node.aabb.index) {
-										i = (aabb.index * tested_rowsize)+(node.aabb.index >> 3);
-										mask = 1 << (node.aabb.index & 7);
-									}
-									else {
-										i = (node.aabb.index * tested_rowsize)+(aabb.index >> 3);
-										mask = 1 << (aabb.index & 7);
-									}
-									dIASSERT (i >= 0 && i < (tested_rowsize*n));
-									if ((tested[i] & mask)==0) {
-										collideAABBs (aabb.geom,node.aabb.geom,data,callback);
-									}
-									tested[i] |= mask;
+								}
+								int b = 6*h2;
+								if (Math.max(db[0], handleBounds[b]) != xi ||
+										Math.max(db[2], handleBounds[b+2]) != yi ||
+										Math.max(db[4], handleBounds[b+4]) != zi) {
+									continue;
+								}
+								DxGeom geom2 = handleGeom[h2];
+								if (GEOM_ENABLED(geom2) && !SKIP_PAIR(geom,geom2)) {
+									collideAABBs (geom,geom2,data,callback);
 								}
 							}
 						}
 					}
 				}
 				// get the discrete bounds for the next level up
-				for (i=0; i<6; i++) 
+				for (i=0; i<6; i++)
 					db[i] >>= 1;
 			}
 		}
+	}
 
-		// every AABB in the normal list must now be intersected against every
-		// AABB in the big_boxes list. so let's hope there are not too many objects
-		// in the big_boxes list.
-		for (dxAABB aabb: hash_boxes) {
-			for (dxAABB aabb2: big_boxes) {
-				collideAABBs (aabb.geom,aabb2.geom,data,callback);
+	private void collideBigHandles (Object data, DNearCallback callback)
+	{
+		int i;
+		if (bigCount > 0) {
+			int n = 0;
+			if (bigHandles.length < bigCount) {
+				bigHandles = new int[handleGeom.length];
 			}
-		}
-
-		// intersected all AABBs in the big_boxes list together
-		for (dxAABB aabb: big_boxes) {
-			for (dxAABB aabb2: big_boxes) {
-				collideAABBs (aabb.geom,aabb2.geom,data,callback);
+			for (int h = 0; h < handleCount; h++) {
+				if (handleGeom[h] != null && handleLevel[h] == BIG && GEOM_ENABLED(handleGeom[h])) {
+					bigHandles[n++] = h;
+				}
 			}
-		}
 
-		//(TZ): Not necessary in Java
-//	    // deallocate table
-//	    for (int ii=0; ii<table.length; ++i)
-//	        for (Node node = table[ii]; node != null;) {
-//	            Node next = node.next;
-//	            delete node;
-//	            node = next;
-//	        }
+			// every AABB in the normal list must now be intersected against every
+			// AABB in the big_boxes list. so let's hope there are not too many objects
+			// in the big_boxes list.
+			for (int h = 0; h < handleCount; h++) {
+				DxGeom geom = handleGeom[h];
+				if (geom == null || handleLevel[h] == BIG || !GEOM_ENABLED(geom)) {
+					continue;
+				}
+				for (i = 0; i < n; i++) {
+					if (!SKIP_PAIR(geom,handleGeom[bigHandles[i]])) {
+						collideAABBs (geom,handleGeom[bigHandles[i]],data,callback);
+					}
+				}
+			}
 
-		lock_count--;
+			// intersected all AABBs in the big_boxes list together
+			for (i = 0; i < n; i++) {
+				for (int j = i + 1; j < n; j++) {
+					if (!SKIP_PAIR(handleGeom[bigHandles[i]],handleGeom[bigHandles[j]])) {
+						collideAABBs (handleGeom[bigHandles[i]],handleGeom[bigHandles[j]],data,callback);
+					}
+				}
+			}
+		}
 	}
 
 	@Override
@@ -390,13 +436,249 @@ public class DxHashSpace extends DxSpace implements DHashSpace {
 		geom.recomputeAABB();
 
 		// intersect bounding boxes
-		for (DxGeom g : getGeoms()) {
+		for (DxGeom g = _first; g != null; g = g.getNext()) {
 			if (GEOM_ENABLED(g)) collideAABBs (g,geom,data,callback);
 		}
 
 		lock_count--;
 	}
 
+	//****************************************************************************
+	// persistent hash table
+
+	/**
+	 * Move a handle to the cells of the current AABB of its geom, if its
+	 * level or discretized bounds have changed.
+	 */
+	private void updateHandle (int h)
+	{
+		DxGeom geom = handleGeom[h];
+		int newLevel = findLevel (geom._aabb);
+		// prevent cells from getting too small
+		if (newLevel < global_minlevel) newLevel = global_minlevel;
+		if (newLevel > global_maxlevel) newLevel = BIG;
+		int oldLevel = handleLevel[h];
+		if (newLevel == BIG) {
+			if (oldLevel != BIG) {
+				removeHandle(h);
+				handleLevel[h] = BIG;
+				bigCount++;
+			}
+			return;
+		}
+
+		// discretize AABB position to cell size (cellsize = 2^level)
+		double cellsize = ldexp (1.0,newLevel);
+		int x0 = (int)Math.floor (geom._aabb.getMin0()/cellsize);
+		int x1 = (int)Math.floor (geom._aabb.getMax0()/cellsize);
+		int y0 = (int)Math.floor (geom._aabb.getMin1()/cellsize);
+		int y1 = (int)Math.floor (geom._aabb.getMax1()/cellsize);
+		int z0 = (int)Math.floor (geom._aabb.getMin2()/cellsize);
+		int z1 = (int)Math.floor (geom._aabb.getMax2()/cellsize);
+		int b = 6*h;
+		if (newLevel == oldLevel &&
+				handleBounds[b] == x0 && handleBounds[b+1] == x1 &&
+				handleBounds[b+2] == y0 && handleBounds[b+3] == y1 &&
+				handleBounds[b+4] == z0 && handleBounds[b+5] == z1) {
+			return;
+		}
+
+		removeHandle(h);
+		handleLevel[h] = newLevel;
+		handleBounds[b] = x0;
+		handleBounds[b+1] = x1;
+		handleBounds[b+2] = y0;
+		handleBounds[b+3] = y1;
+		handleBounds[b+4] = z0;
+		handleBounds[b+5] = z1;
+		levelCount[newLevel - global_minlevel]++;
+		// each AABB may take up to 8 cells
+		for (int xi = x0; xi <= x1; xi++) {
+			for (int yi = y0; yi <= y1; yi++) {
+				for (int zi = z0; zi <= z1; zi++) {
+					addEntry (getCell (newLevel,xi,yi,zi), h);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Remove a handle from all its cells.
+	 */
+	private void removeHandle (int h)
+	{
+		int hlevel = handleLevel[h];
+		if (hlevel == NOT_INSERTED) {
+			return;
+		}
+		handleLevel[h] = NOT_INSERTED;
+		if (hlevel == BIG) {
+			bigCount--;
+			return;
+		}
+		levelCount[hlevel - global_minlevel]--;
+		int b = 6*h;
+		for (int xi = handleBounds[b]; xi <= handleBounds[b+1]; xi++) {
+			for (int yi = handleBounds[b+2]; yi <= handleBounds[b+3]; yi++) {
+				for (int zi = handleBounds[b+4]; zi <= handleBounds[b+5]; zi++) {
+					removeEntry (findSlot (hlevel,xi,yi,zi), h);
+				}
+			}
+		}
+	}
+
+	private void addEntry (int cell, int h)
+	{
+		int e;
+		if (freeEntry >= 0) {
+			e = freeEntry;
+			freeEntry = entryNext[e];
+		} else {
+			if (entryCount == entryHandle.length) {
+				entryHandle = Arrays.copyOf(entryHandle, entryCount * 2);
+				entryNext = Arrays.copyOf(entryNext, entryCount * 2);
+			}
+			e = entryCount++;
+		}
+		entryHandle[e] = h;
+		entryNext[e] = cellFirst[cell];
+		cellFirst[cell] = e;
+	}
+
+	/**
+	 * Remove a handle from the cell in a table slot. Empty cells are
+	 * removed from the table.
+	 */
+	private void removeEntry (int slot, int h)
+	{
+		dIASSERT (slot >= 0);
+		int cell = table[slot] - 1;
+		int prev = -1;
+		int e = cellFirst[cell];
+		while (entryHandle[e] != h) {
+			prev = e;
+			e = entryNext[e];
+		}
+		if (prev < 0) {
+			cellFirst[cell] = entryNext[e];
+		} else {
+			entryNext[prev] = entryNext[e];
+		}
+		entryNext[e] = freeEntry;
+		freeEntry = e;
+
+		if (cellFirst[cell] < 0) {
+			deleteSlot(slot);
+			freeCells[freeCellCount++] = cell;
+		}
+	}
+
+	/**
+	 * @return the cell, or -1 if the cell is empty.
+	 */
+	private int findCell (int level, int x, int y, int z)
+	{
+		int slot = findSlot (level,x,y,z);
+		return slot < 0 ? -1 : table[slot] - 1;
+	}
+
+	private int findSlot (int level, int x, int y, int z)
+	{
+		int slot = hashCell (level,x,y,z) & tableMask;
+		for (int c = table[slot]; c != 0; c = table[slot]) {
+			int k = 4*(c-1);
+			if (cellKey[k] == level && cellKey[k+1] == x && cellKey[k+2] == y && cellKey[k+3] == z) {
+				return slot;
+			}
+			slot = (slot + 1) & tableMask;
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the cell, a new empty cell if there is none yet.
+	 */
+	private int getCell (int level, int x, int y, int z)
+	{
+		int slot = findSlot (level,x,y,z);
+		if (slot >= 0) {
+			return table[slot] - 1;
+		}
+		int cell;
+		if (freeCellCount > 0) {
+			cell = freeCells[--freeCellCount];
+		} else {
+			if (cellCount == cellFirst.length) {
+				cellKey = Arrays.copyOf(cellKey, 8 * cellCount);
+				cellFirst = Arrays.copyOf(cellFirst, 2 * cellCount);
+				freeCells = Arrays.copyOf(freeCells, 2 * cellCount);
+			}
+			cell = cellCount++;
+		}
+		int k = 4*cell;
+		cellKey[k] = level;
+		cellKey[k+1] = x;
+		cellKey[k+2] = y;
+		cellKey[k+3] = z;
+		cellFirst[cell] = -1;
+		// keep the load factor of the table below 1/2
+		if (2 * (tableSize + 1) > table.length) {
+			rehash (2 * table.length);
+		}
+		insertSlot (cell);
+		tableSize++;
+		return cell;
+	}
+
+	private void insertSlot (int cell)
+	{
+		int k = 4*cell;
+		int slot = hashCell (cellKey[k],cellKey[k+1],cellKey[k+2],cellKey[k+3]) & tableMask;
+		while (table[slot] != 0) {
+			slot = (slot + 1) & tableMask;
+		}
+		table[slot] = cell + 1;
+	}
+
+	/**
+	 * Empty a slot and shift the following cells back, so that no
+	 * tombstones are required.
+	 */
+	private void deleteSlot (int slot)
+	{
+		int i = slot;
+		int j = i;
+		while (true) {
+			j = (j + 1) & tableMask;
+			int c = table[j];
+			if (c == 0) {
+				break;
+			}
+			int k = 4*(c-1);
+			int home = hashCell (cellKey[k],cellKey[k+1],cellKey[k+2],cellKey[k+3]) & tableMask;
+			// move the cell back if its home is not cyclically in (i, j]
+			boolean inRange = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+			if (!inRange) {
+				table[i] = c;
+				i = j;
+			}
+		}
+		table[i] = 0;
+		tableSize--;
+	}
+
+	private void rehash (int capacity)
+	{
+		int[] old = table;
+		table = new int[capacity];
+		tableMask = capacity - 1;
+		for (int slot = 0; slot < old.length; slot++) {
+			if (old[slot] != 0) {
+				insertSlot (old[slot] - 1);
+			}
+		}
+	}
+
 	//****************************************************************************
 	// space functions
 
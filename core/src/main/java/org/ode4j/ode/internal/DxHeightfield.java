@@ -173,19 +173,14 @@ public class DxHeightfield extends DxAbstractHeightfield {
 	//		HeightFieldVertex   *tempHeightInstances;
 	//	    size_t              tempHeightBufferSizeX;
 	//	    size_t              tempHeightBufferSizeZ;
-	//private HeightFieldPlane[]    tempPlaneBuffer;
-	private ObjArray<HeightFieldPlane>[]  tempPlaneBuffer;
-	private HeightFieldPlane[]    tempPlaneInstances;
-	private int              tempPlaneBufferSize;
-
-	private HeightFieldTriangle[] tempTriangleBuffer;
-	private int              tempTriangleBufferSize;
-
-	//private HeightFieldVertex[]  tempHeightBuffer;
-	private ObjArray<HeightFieldVertex>[]  tempHeightBuffer;
-	private HeightFieldVertex[]   tempHeightInstances;
-	private int              tempHeightBufferSizeX;
-	private int              tempHeightBufferSizeZ;
+	//TZ the temporary buffers are per thread instead of per geom, so several
+	// threads can collide other geoms with the same heightfield.
+	private static final ThreadLocal<TempBuffers> tempBuffers = new ThreadLocal<TempBuffers>() {
+		@Override
+		protected TempBuffers initialValue() {
+			return new TempBuffers();
+		}
+	};
 
 
 
@@ -202,15 +197,6 @@ public class DxHeightfield extends DxAbstractHeightfield {
 		//	    tempHeightBufferSizeX(0),
 		//	    tempHeightBufferSizeZ(0)
 		super( space, bPlaceable );
-		tempPlaneBuffer = null;
-		tempPlaneInstances = null;
-		tempPlaneBufferSize = 0;
-		tempTriangleBuffer = null;
-		tempTriangleBufferSize = 0;
-		tempHeightBuffer = null;
-		tempHeightInstances = null;
-		tempHeightBufferSizeX = 0;
-		tempHeightBufferSizeZ = 0;
 
 		type = dHeightfieldClass;
 		m_p_data = data;
@@ -356,91 +342,131 @@ public class DxHeightfield extends DxAbstractHeightfield {
 	}
 
 
-	// dxHeightfield destructor
-	//dxHeightfield::~dxHeightfield()
-	@Override
-	public void DESTRUCTOR()
+	/**
+	 * Temporary buffers of dCollideHeightfieldZone().
+	 */
+	private static class TempBuffers
 	{
-		resetTriangleBuffer();
-		resetPlaneBuffer();
-		resetHeightBuffer();
-		super.DESTRUCTOR();
-	}
+		//private HeightFieldPlane[]    tempPlaneBuffer;
+		private ObjArray<HeightFieldPlane>[]  tempPlaneBuffer;
+		private HeightFieldPlane[]    tempPlaneInstances;
+		private int              tempPlaneBufferSize;
 
-	private void allocateTriangleBuffer(int numTri)
-	{
-		int alignedNumTri = AlignBufferSize(numTri, TEMP_TRIANGLE_BUFFER_ELEMENT_COUNT_ALIGNMENT);
-		tempTriangleBufferSize = alignedNumTri;
-		tempTriangleBuffer = new HeightFieldTriangle[alignedNumTri];
-		for (int i = 0; i < tempTriangleBuffer.length; i++) tempTriangleBuffer[i] = new HeightFieldTriangle();
-	}
+		private HeightFieldTriangle[] tempTriangleBuffer;
+		private int              tempTriangleBufferSize;
 
-	private void resetTriangleBuffer()
-	{
-		//delete[] tempTriangleBuffer;
-		tempTriangleBuffer = null;
-		//TODO set size == 0? TZ
-	}
+		//private HeightFieldVertex[]  tempHeightBuffer;
+		private ObjArray<HeightFieldVertex>[]  tempHeightBuffer;
+		private HeightFieldVertex[]   tempHeightInstances;
+		private int              tempHeightBufferSizeX;
+		private int              tempHeightBufferSizeZ;
 
-	@SuppressWarnings("unchecked")
-    private void allocatePlaneBuffer(int numTri)
-	{
-		int alignedNumTri = AlignBufferSize(numTri, TEMP_PLANE_BUFFER_ELEMENT_COUNT_ALIGNMENT);
-		tempPlaneBufferSize = alignedNumTri;
-		//tempPlaneBuffer = new HeightFieldPlane [alignedNumTri];
-		tempPlaneBuffer = new ObjArray[alignedNumTri];
-		tempPlaneInstances = new HeightFieldPlane[alignedNumTri];
-		for (int indexTri = 0; indexTri != alignedNumTri; indexTri++)
-			tempPlaneInstances[indexTri] = new HeightFieldPlane();
-
-		//HeightFieldPlane ptrPlaneMatrix = tempPlaneInstances;
-		for (int indexTri = 0; indexTri != alignedNumTri; indexTri++)
+		private void allocateTriangleBuffer(int numTri)
 		{
-			//tempPlaneBuffer[indexTri] = tempPlaneInstances[indexTri];//ptrPlaneMatrix;
-			//ptrPlaneMatrix += 1;
-			tempPlaneBuffer[indexTri] = new ObjArray<HeightFieldPlane>(tempPlaneInstances, indexTri);//ptrPlaneMatrix;
+			int alignedNumTri = AlignBufferSize(numTri, TEMP_TRIANGLE_BUFFER_ELEMENT_COUNT_ALIGNMENT);
+			tempTriangleBufferSize = alignedNumTri;
+			tempTriangleBuffer = new HeightFieldTriangle[alignedNumTri];
+			for (int i = 0; i < tempTriangleBuffer.length; i++) tempTriangleBuffer[i] = new HeightFieldTriangle();
 		}
-	}
 
-	private void resetPlaneBuffer()
-	{
-		//		delete[] tempPlaneInstances;
-		//		delete[] tempPlaneBuffer;
-		tempPlaneInstances = null;
-		tempPlaneBuffer = null;
-	}
+		private void resetTriangleBuffer()
+		{
+			//delete[] tempTriangleBuffer;
+			tempTriangleBuffer = null;
+			//TODO set size == 0? TZ
+		}
 
-	@SuppressWarnings("unchecked")
-    private void allocateHeightBuffer(int numX, int numZ)
-	{
-		int alignedNumX = AlignBufferSize(numX, TEMP_HEIGHT_BUFFER_ELEMENT_COUNT_ALIGNMENT_X);
-		int alignedNumZ = AlignBufferSize(numZ, TEMP_HEIGHT_BUFFER_ELEMENT_COUNT_ALIGNMENT_Z);
-		tempHeightBufferSizeX = alignedNumX;
-		tempHeightBufferSizeZ = alignedNumZ;
-		//tempHeightBuffer = new HeightFieldVertex *[alignedNumX];
-		tempHeightBuffer = new ObjArray[alignedNumX];
-		int numCells = alignedNumX * alignedNumZ;
-		tempHeightInstances = new HeightFieldVertex [numCells];
-		for (int i = 0; i < tempHeightInstances.length; i++) {
-			tempHeightInstances[i] = new HeightFieldVertex();
+		@SuppressWarnings("unchecked")
+		private void allocatePlaneBuffer(int numTri)
+		{
+			int alignedNumTri = AlignBufferSize(numTri, TEMP_PLANE_BUFFER_ELEMENT_COUNT_ALIGNMENT);
+			tempPlaneBufferSize = alignedNumTri;
+			//tempPlaneBuffer = new HeightFieldPlane [alignedNumTri];
+			tempPlaneBuffer = new ObjArray[alignedNumTri];
+			tempPlaneInstances = new HeightFieldPlane[alignedNumTri];
+			for (int indexTri = 0; indexTri != alignedNumTri; indexTri++)
+				tempPlaneInstances[indexTri] = new HeightFieldPlane();
+
+			//HeightFieldPlane ptrPlaneMatrix = tempPlaneInstances;
+			for (int indexTri = 0; indexTri != alignedNumTri; indexTri++)
+			{
+				//tempPlaneBuffer[indexTri] = tempPlaneInstances[indexTri];//ptrPlaneMatrix;
+				//ptrPlaneMatrix += 1;
+				tempPlaneBuffer[indexTri] = new ObjArray<HeightFieldPlane>(tempPlaneInstances, indexTri);//ptrPlaneMatrix;
+			}
 		}
 
-		//HeightFieldVertex *ptrHeightMatrix = tempHeightInstances;
-		for (int indexX = 0; indexX != alignedNumX; indexX++)
+		private void resetPlaneBuffer()
 		{
-			//			tempHeightBuffer[indexX] = ptrHeightMatrix;
-			//			ptrHeightMatrix += alignedNumZ;
-			//tempHeightBuffer[indexX] = tempHeightInstances[indexX];
-			tempHeightBuffer[indexX] = new ObjArray<HeightFieldVertex>(tempHeightInstances, indexX*alignedNumZ);
+			//		delete[] tempPlaneInstances;
+			//		delete[] tempPlaneBuffer;
+			tempPlaneInstances = null;
+			tempPlaneBuffer = null;
 		}
-	}
 
-	void resetHeightBuffer()
-	{
-		//delete[] tempHeightInstances;
-		//delete[] tempHeightBuffer;
-		tempHeightInstances = null;
-		tempHeightBuffer = null;
+		@SuppressWarnings("unchecked")
+		private void allocateHeightBuffer(int numX, int numZ)
+		{
+			int alignedNumX = AlignBufferSize(numX, TEMP_HEIGHT_BUFFER_ELEMENT_COUNT_ALIGNMENT_X);
+			int alignedNumZ = AlignBufferSize(numZ, TEMP_HEIGHT_BUFFER_ELEMENT_COUNT_ALIGNMENT_Z);
+			tempHeightBufferSizeX = alignedNumX;
+			tempHeightBufferSizeZ = alignedNumZ;
+			//tempHeightBuffer = new HeightFieldVertex *[alignedNumX];
+			tempHeightBuffer = new ObjArray[alignedNumX];
+			int numCells = alignedNumX * alignedNumZ;
+			tempHeightInstances = new HeightFieldVertex [numCells];
+			for (int i = 0; i < tempHeightInstances.length; i++) {
+				tempHeightInstances[i] = new HeightFieldVertex();
+			}
+
+			//HeightFieldVertex *ptrHeightMatrix = tempHeightInstances;
+			for (int indexX = 0; indexX != alignedNumX; indexX++)
+			{
+				//			tempHeightBuffer[indexX] = ptrHeightMatrix;
+				//			ptrHeightMatrix += alignedNumZ;
+				//tempHeightBuffer[indexX] = tempHeightInstances[indexX];
+				tempHeightBuffer[indexX] = new ObjArray<HeightFieldVertex>(tempHeightInstances, indexX*alignedNumZ);
+			}
+		}
+
+		void resetHeightBuffer()
+		{
+			//delete[] tempHeightInstances;
+			//delete[] tempHeightBuffer;
+			tempHeightInstances = null;
+			tempHeightBuffer = null;
+		}
+
+		//static inline boolean DescendingPlaneSort(final HeightFieldPlane * final A, final HeightFieldPlane * final B)
+		private static boolean DescendingPlaneSort(final HeightFieldPlane A, final HeightFieldPlane B)
+		{
+			return ((A.maxAAAB - B.maxAAAB) > dEpsilon);
+		}
+
+		void sortPlanes(final int numPlanes)
+		{
+			boolean has_swapped = true;
+			do
+			{
+				has_swapped = false;//reset flag
+				for (int i = 0; i < numPlanes - 1; i++)
+				{
+					//if they are in the wrong order
+					if (DescendingPlaneSort(tempPlaneBuffer[i].at0(), tempPlaneBuffer[i + 1].at0()))
+					{
+						//exchange them
+						//HeightFieldPlane * tempPlane = tempPlaneBuffer[i];
+						ObjArray<HeightFieldPlane> tempPlane = tempPlaneBuffer[i];
+						tempPlaneBuffer[i] = tempPlaneBuffer[i + 1];
+						tempPlaneBuffer[i + 1] = tempPlane;
+
+						//we have swapped at least once, list may not be sorted yet
+						has_swapped = true;
+					}
+				}
+			}    //if no swaps were made during this pass, the list has been sorted
+			while (has_swapped);
+		}
 	}
 
 	//////// Heightfield geom interface ////////////////////////////////////////////////////
@@ -481,7 +507,7 @@ public class DxHeightfield extends DxAbstractHeightfield {
 
 	//typedef int HeightFieldVertexCoords[2];
 
-	class HeightFieldVertex
+	static class HeightFieldVertex
 	{
 		//	public:
 		HeightFieldVertex(){};
@@ -503,7 +529,7 @@ public class DxHeightfield extends DxAbstractHeightfield {
 //		HeightFieldVertex[]   vertices = new HeightFieldVertex[2];  //TODO v1/v1 (TZ)
 //	};
 
-	private class HeightFieldTriangle
+	private static class HeightFieldTriangle
 	{
 		//public:
 		HeightFieldTriangle(){};
@@ -525,7 +551,7 @@ public class DxHeightfield extends DxAbstractHeightfield {
 		boolean                state;
 	};
 
-	private class HeightFieldPlane
+	private static class HeightFieldPlane
 	{
 		void setMinMax()
 		{
@@ -607,36 +633,6 @@ public class DxHeightfield extends DxAbstractHeightfield {
 //	{
 //		return ((A.maxAAAB - B.maxAAAB) > dEpsilon);
 //	}
-	//static inline boolean DescendingPlaneSort(final HeightFieldPlane * final A, final HeightFieldPlane * final B)
-	private boolean DescendingPlaneSort(final HeightFieldPlane A, final HeightFieldPlane B)
-	{
-		return ((A.maxAAAB - B.maxAAAB) > dEpsilon);
-	}
-
-	void sortPlanes(final int numPlanes)
-	{
-		boolean has_swapped = true;
-		do
-		{
-			has_swapped = false;//reset flag
-			for (int i = 0; i < numPlanes - 1; i++)
-			{
-				//if they are in the wrong order
-				if (DescendingPlaneSort(tempPlaneBuffer[i].at0(), tempPlaneBuffer[i + 1].at0()))
-				{
-					//exchange them
-					//HeightFieldPlane * tempPlane = tempPlaneBuffer[i];
-					ObjArray<HeightFieldPlane> tempPlane = tempPlaneBuffer[i];
-					tempPlaneBuffer[i] = tempPlaneBuffer[i + 1];
-					tempPlaneBuffer[i + 1] = tempPlane;
-
-					//we have swapped at least once, list may not be sorted yet
-					has_swapped = true;
-				}
-			}
-		}    //if no swaps were made during this pass, the list has been sorted
-		while (has_swapped);
-	}
 
 	//TZ not used
 	//	static inline dReal DistancePointToLine(final dVector3 &_point,
@@ -686,6 +682,7 @@ public class DxHeightfield extends DxAbstractHeightfield {
 			int flags, DContactGeomBuffer contacts,
 			int skip )
 	{
+		final TempBuffers buffers = tempBuffers.get();
 		DContactGeom pContact = null;
 		int  x, z;
 		// check if not above or inside terrain first
@@ -704,10 +701,10 @@ public class DxHeightfield extends DxAbstractHeightfield {
 		final double cfSampleWidth = m_p_data.m_fSampleWidth;
 		final double cfSampleDepth = m_p_data.m_fSampleDepth;
 		{
-			if (tempHeightBufferSizeX < numX || tempHeightBufferSizeZ < numZ)
+			if (buffers.tempHeightBufferSizeX < numX || buffers.tempHeightBufferSizeZ < numZ)
 			{
-				resetHeightBuffer();
-				allocateHeightBuffer(numX, numZ);
+				buffers.resetHeightBuffer();
+				buffers.allocateHeightBuffer(numX, numZ);
 			}
 
 			double Xpos, Ypos;
@@ -719,7 +716,7 @@ public class DxHeightfield extends DxAbstractHeightfield {
 				final double c_Xpos = Xpos;
 				//HeightFieldVertex HeightFieldRow = tempHeightBuffer[x_local];
 				//ObjArray<HeightFieldVertex> HeightFieldRow = new ObjArray<HeightFieldVertex>(tempHeightBuffer, x_local);
-				ObjArray<HeightFieldVertex> HeightFieldRow = tempHeightBuffer[x_local];
+				ObjArray<HeightFieldVertex> HeightFieldRow = buffers.tempHeightBuffer[x_local];
 				for ( z = minZ, z_local = 0; z_local < numZ; z++, z_local++)
 				{
 					Ypos = z * cfSampleDepth; // Always calculate pos via multiplication to avoid computational error accumulation during multiple additions
@@ -963,10 +960,10 @@ public class DxHeightfield extends DxAbstractHeightfield {
 
 		//final unsigned 
 		final int numTriMax = (maxX - minX) * (maxZ - minZ) * 2;
-		if (tempTriangleBufferSize < numTriMax)
+		if (buffers.tempTriangleBufferSize < numTriMax)
 		{
-			resetTriangleBuffer();
-			allocateTriangleBuffer(numTriMax);
+			buffers.resetTriangleBuffer();
+			buffers.allocateTriangleBuffer(numTriMax);
 		}
 
 		// Sorting triangle/plane  resulting from heightfield zone
@@ -1034,8 +1031,8 @@ public class DxHeightfield extends DxAbstractHeightfield {
 			//			HeightFieldVertex HeightFieldNextRow  = tempHeightBuffer[x_local + 1];
 //			int posHeightFieldRow      = x_local;
 //			int posHeightFieldNextRow  = x_local + 1;
-			ObjArray<HeightFieldVertex> HeightFieldRow      = tempHeightBuffer[x_local];
-			ObjArray<HeightFieldVertex> HeightFieldNextRow  = tempHeightBuffer[x_local + 1];
+			ObjArray<HeightFieldVertex> HeightFieldRow      = buffers.tempHeightBuffer[x_local];
+			ObjArray<HeightFieldVertex> HeightFieldNextRow  = buffers.tempHeightBuffer[x_local + 1];
 
 			// First A
 	        //C = &HeightFieldRow    [0];
@@ -1075,7 +1072,7 @@ public class DxHeightfield extends DxAbstractHeightfield {
 
 				if (isACollide || isBCollide || isCCollide)
 				{
-					HeightFieldTriangle CurrTriUp = tempTriangleBuffer[numTri++];// final ?? TZ
+					HeightFieldTriangle CurrTriUp = buffers.tempTriangleBuffer[numTri++];// final ?? TZ
 
 					CurrTriUp.state = false;
 
@@ -1091,7 +1088,7 @@ public class DxHeightfield extends DxAbstractHeightfield {
 
 				if (isBCollide || isCCollide || isDCollide)
 				{
-					HeightFieldTriangle CurrTriDown = tempTriangleBuffer[numTri++];//final ?? TZ
+					HeightFieldTriangle CurrTriDown = buffers.tempTriangleBuffer[numTri++];//final ?? TZ
 
 					CurrTriDown.state = false;
 					// changing point order here implies to change it in isOnHeightField
@@ -1137,7 +1134,7 @@ public class DxHeightfield extends DxAbstractHeightfield {
 			//compute all triangles normals.
 			for (int k = 0; k < numTri; k++)
 			{
-				HeightFieldTriangle itTriangle = tempTriangleBuffer[k];  // final? TZ
+				HeightFieldTriangle itTriangle = buffers.tempTriangleBuffer[k];  // final? TZ
 
 				// define 2 edges and a point that will define collision plane
 				//dVector3Subtract(itTriangle.vertices[2].vertex, itTriangle.vertices[0].vertex, Edge1);
@@ -1170,22 +1167,22 @@ public class DxHeightfield extends DxAbstractHeightfield {
 			}
 
 			// group by Triangles by Planes sharing shame plane definition
-			if (tempPlaneBufferSize  < numTri)
+			if (buffers.tempPlaneBufferSize  < numTri)
 			{
-				resetPlaneBuffer();
-				allocatePlaneBuffer(numTri);
+				buffers.resetPlaneBuffer();
+				buffers.allocatePlaneBuffer(numTri);
 			}
 			//unsigned 
 			int numPlanes = 0;
 			for (int k = 0; k < numTri; k++)
 			{
-				HeightFieldTriangle tri_base = tempTriangleBuffer[k];  // final ? TZ
+				HeightFieldTriangle tri_base = buffers.tempTriangleBuffer[k];  // final ? TZ
 
 				if (tri_base.state == true)
 					continue;// already tested or added to plane list.
 
 				//HeightFieldPlane * const currPlane = tempPlaneBuffer[numPlanes];
-				HeightFieldPlane currPlane = tempPlaneBuffer[numPlanes].at0();// final ? TZ
+				HeightFieldPlane currPlane = buffers.tempPlaneBuffer[numPlanes].at0();// final ? TZ
 				currPlane.resetTriangleListSize(numTri - k);
 				currPlane.addTriangle(tri_base);
 				// saves normal for collision check (planes, triangles, vertices and edges.)
@@ -1202,7 +1199,7 @@ public class DxHeightfield extends DxAbstractHeightfield {
 				for (int m = k + 1; m < numTri; m++)
 				{
 
-					HeightFieldTriangle tri_test = tempTriangleBuffer[m];  // final? TZ
+					HeightFieldTriangle tri_test = buffers.tempTriangleBuffer[m];  // final? TZ
 					if (tri_test.state == true)
 						continue;// already tested or added to plane list.
 
@@ -1228,7 +1225,7 @@ public class DxHeightfield extends DxAbstractHeightfield {
 
 			// sort planes
 			if (isContactNumPointsLimited)
-				sortPlanes(numPlanes);
+				buffers.sortPlanes(numPlanes);
 
 			int numMaxContactsPerPlane;
 			int planeTestFlags;
@@ -1256,7 +1253,7 @@ public class DxHeightfield extends DxAbstractHeightfield {
 			for (int k = 0; k < numPlanes; k++)
 			{
 	            //HeightFieldPlane * const itPlane = tempPlaneBuffer[k];
-				HeightFieldPlane itPlane = tempPlaneBuffer[k].at0();//final TZ
+				HeightFieldPlane itPlane = buffers.tempPlaneBuffer[k].at0();//final TZ
 
 				//set Geom
 				dGeomPlaneSetNoNormalize (sliding_plane,  itPlane.planeDefV, itPlane.planeDefD);
@@ -1341,7 +1338,7 @@ public class DxHeightfield extends DxAbstractHeightfield {
 			for (int k = 0; k < numTri; k++)
 			{
 				//final HeightFieldTriangle * final itTriangle = &tempTriangleBuffer[k];
-				HeightFieldTriangle itTriangle = tempTriangleBuffer[k];  // final ? TZ
+				HeightFieldTriangle itTriangle = buffers.tempTriangleBuffer[k];  // final ? TZ
 				if (itTriangle.state == true)
 					continue;// plane triangle did already collide.
 
@@ -0,0 +1,773 @@
+/*************************************************************************
+ *                                                                       *
+ * Open Dynamics Engine, Copyright (C) 2001,2002 Russell L. Smith.       *
+ * All rights reserved.  Email: russ@q12.org   Web: www.q12.org          *
+ * Open Dynamics Engine 4J, Copyright (C) 2009-2014 Tilmann Zaeschke     *
+ * All rights reserved.  Email: ode4j@gmx.de   Web: www.ode4j.org        *
+ *                                                                       *
+ * This library is free software; you can redistribute it and/or         *
+ * modify it under the terms of EITHER:                                  *
+ *   (1) The GNU Lesser General Public License as published by the Free  *
+ *       Software Foundation; either version 2.1 of the License, or (at  *
+ *       your option) any later version. The text of the GNU Lesser      *
+ *       General Public License is included with this library in the     *
+ *       file LICENSE.TXT.                                               *
+ *   (2) The BSD-style license that is included with this library in     *
+ *       the file ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT.         *
+ *                                                                       *
+ * This library is distributed in the hope that it will be useful,       *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the files    *
+ * LICENSE.TXT, ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT for more   *
+ * details.                                                              *
+ *                                                                       *
+ *************************************************************************/
+package org.ode4j.ode.internal;
+
+import static org.ode4j.ode.internal.Common.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.ode4j.ode.DAABB;
+import org.ode4j.ode.DSapSpace;
+
+/**
+ * Temporally coherent sweep and prune space.
+ * <p>
+ * Unlike DxSAPSpace, which sorts all geoms in every collide(), this space
+ * keeps the sorted min and max endpoints of all AABBs on all three axes
+ * and a persistent set of the pairs whose AABBs overlap, in the style of
+ * the axis sweep of Bullet. cleanGeoms() only moves the endpoints of the
+ * dirty geoms with insertion sort. Whenever a min endpoint passes a max
+ * endpoint, the two AABBs start or stop to overlap on that axis, and the
+ * pair is added to or removed from the pair set. collide() then simply
+ * reports the pairs in the set. So the cost of a collide() depends on the
+ * motion of the geoms and the number of overlapping pairs, not on the
+ * number of geoms.
+ * <p>
+ * Endpoints with equal values are sorted min first, so touching AABBs
+ * overlap, like in collideAABBs().
+ * <p>
+ * Geoms with infinite AABBs are kept in a separate list, like in
+ * DxSAPSpace. Removed geoms are only marked, their endpoints and pairs are
+ * dropped all at once in the next cleanGeoms().
+ */
+public class DxIncrementalSAPSpace extends DxSpace implements DSapSpace {
+
+	/** Value of DxGeom._sapIdxGeomEx for geoms that have no handle yet. */
+	private static final int NO_HANDLE = -1;
+	/** Value of DxGeom._sapIdxGeomEx for geoms with infinite AABBs. */
+	private static final int INFINITE_HANDLE = -2;
+	/** Handle of the sentinels at both ends of the axes. */
+	private static final int SENTINEL = 0;
+	private static final int INITIAL_CAPACITY = 16;
+	/**
+	 * Inserting a geom takes O(n), sorting all endpoints O(n*log(n)). If
+	 * more than 1/REBUILD_FRACTION of the geoms are new, the axes are
+	 * rebuilt.
+	 */
+	private static final int REBUILD_FRACTION = 8;
+
+	// the DAABB axes of the internal axes 0, 1 and 2
+	private final int[] m_axis = new int[3];
+
+	// proxy handles, handle 0 is the sentinel
+	private int m_handleCount = 1;
+	private int m_handleCapacity = 0;
+	private int m_freeHandles = 0;
+	private int[] m_handleFree = new int[0];
+	// geom of each handle, null for free and removed handles
+	private DxGeom[] m_handleGeom = new DxGeom[0];
+	// index of the min and max endpoint of each handle per axis,
+	// m_minEdge[0][h] is -1 for free handles
+	private final int[][] m_minEdge = new int[3][];
+	private final int[][] m_maxEdge = new int[3][];
+	private int m_removedCount = 0;
+
+	// the sorted endpoints, including the two sentinels
+	private int m_edgeCount = 2;
+	private final double[][] m_edgeValue = new double[3][];
+	// handle << 1, | 1 for max endpoints
+	private final int[][] m_edgeData = new int[3][];
+
+	// pairs of handles with overlapping AABBs
+	private final DxPairSet m_pairs = new DxPairSet();
+
+	// geoms with infinite AABBs, they have no handle
+	private final List<DxGeom> m_infiniteGeoms = new ArrayList<DxGeom>();
+
+	// scratch lists for cleanGeoms() and Rebuild()
+	private final List<DxGeom> m_newGeoms = new ArrayList<DxGeom>();
+	private final List<DxGeom> m_movedGeoms = new ArrayList<DxGeom>();
+	private int[] m_active = new int[INITIAL_CAPACITY];
+	private int[] m_activePos = new int[0];
+	private double[] m_sortValue = new double[0];
+	private int[] m_sortData = new int[0];
+
+
+	public static DxIncrementalSAPSpace dIncrementalSweepAndPruneSpaceCreate( DxSpace space, int axisorder ) {
+		return new DxIncrementalSAPSpace( space, axisorder );
+	}
+
+
+	private DxIncrementalSAPSpace( DxSpace space, int axisorder )
+	{
+		super(space);
+		type = dSweepAndPruneSpaceClass;
+		_aabb.setZero();
+
+		m_axis[0] = ( ( axisorder ) & 3 );
+		m_axis[1] = ( ( axisorder >> 2 ) & 3 );
+		m_axis[2] = ( ( axisorder >> 4 ) & 3 );
+
+		for (int axis = 0; axis < 3; axis++) {
+			m_minEdge[axis] = new int[0];
+			m_maxEdge[axis] = new int[0];
+			m_edgeValue[axis] = new double[2 * INITIAL_CAPACITY + 2];
+			m_edgeData[axis] = new int[2 * INITIAL_CAPACITY + 2];
+			m_edgeValue[axis][0] = -dInfinity;
+			m_edgeData[axis][0] = SENTINEL << 1;
+			m_edgeValue[axis][1] = dInfinity;
+			m_edgeData[axis][1] = (SENTINEL << 1) | 1;
+		}
+		EnsureHandleCapacity(INITIAL_CAPACITY);
+		m_minEdge[0][SENTINEL] = 0;
+		m_maxEdge[0][SENTINEL] = 1;
+	}
+
+
+	@Override
+	void add (DxGeom g)
+	{
+		CHECK_NOT_LOCKED (this);
+		dUASSERT(g.parent_space == null, "geom is already in a space");
+
+		// the geom gets its handle in cleanGeoms(), when its AABB is known
+		g._sapIdxGeomEx = NO_HANDLE;
+		super.add(g);
+	}
+
+
+	@Override
+	void remove (DxGeom g)
+	{
+		CHECK_NOT_LOCKED (this);
+		dUASSERT(g.parent_space == this, "object is not in this space");
+
+		int h = g._sapIdxGeomEx;
+		if (h >= 0) {
+			MarkRemoved(h);
+		} else if (h == INFINITE_HANDLE) {
+			m_infiniteGeoms.remove(g);
+		}
+		g._sapIdxGeomEx = NO_HANDLE;
+		super.remove(g);
+	}
+
+
+	@Override
+	public void cleanGeoms()
+	{
+		lock_count++;
+
+		// compute the AABBs of all dirty geoms and clear the dirty flags.
+		// The dirty geoms are at the front of the list.
+		for (DxGeom g = _first; g != null && g.hasFlagDirty(); g = g.getNext()) {
+			if (g instanceof DxSpace) {
+				((DxSpace)g).cleanGeoms();
+			}
+			g.recomputeAABB();
+			g.unsetFlagDirtyAndBad();
+
+			boolean infinite = IsInfinite(g._aabb);
+			int h = g._sapIdxGeomEx;
+			if (h == INFINITE_HANDLE) {
+				if (!infinite) {
+					m_infiniteGeoms.remove(g);
+					g._sapIdxGeomEx = NO_HANDLE;
+					m_newGeoms.add(g);
+				}
+			} else if (infinite) {
+				if (h >= 0) {
+					MarkRemoved(h);
+				}
+				m_infiniteGeoms.add(g);
+				g._sapIdxGeomEx = INFINITE_HANDLE;
+			} else if (h == NO_HANDLE) {
+				m_newGeoms.add(g);
+			} else {
+				m_movedGeoms.add(g);
+			}
+		}
+
+		if (m_removedCount > 0) {
+			Compact();
+		}
+
+		int newCount = m_newGeoms.size();
+		if (newCount > 0) {
+			for (int i = 0; i < newCount; i++) {
+				DxGeom g = m_newGeoms.get(i);
+				int h = AllocateHandle();
+				m_handleGeom[h] = g;
+				g._sapIdxGeomEx = h;
+			}
+			if (newCount * REBUILD_FRACTION > m_handleCount - m_freeHandles) {
+				// the moved geoms are rebuilt as well
+				Rebuild();
+			} else {
+				for (int i = 0; i < newCount; i++) {
+					InsertHandle(m_newGeoms.get(i)._sapIdxGeomEx);
+				}
+				UpdateMoved();
+			}
+			m_newGeoms.clear();
+		} else {
+			UpdateMoved();
+		}
+		m_movedGeoms.clear();
+
+		lock_count--;
+	}
+
+
+	@Override
+	public void collide (Object data, DNearCallback callback)
+	{
+		dAASSERT (callback);
+
+		lock_count++;
+		cleanGeoms();
+
+		// report the persistent pairs
+		for (int i = 0; i < m_pairs.Size(); i++) {
+			DxGeom g1 = m_handleGeom[m_pairs.GetFirst(i)];
+			DxGeom g2 = m_handleGeom[m_pairs.GetSecond(i)];
+			if (GEOM_ENABLED(g1) && GEOM_ENABLED(g2) && !SKIP_PAIR(g1, g2)) {
+				DxSAPSpace.collideGeomsNoAABBs (g1, g2, data, callback);
+			}
+		}
+
+		int infSize = m_infiniteGeoms.size();
+		for (int m = 0; m < infSize; m++) {
+			DxGeom g1 = m_infiniteGeoms.get(m);
+			if (!GEOM_ENABLED(g1)) {
+				continue;
+			}
+			// collide infinite ones
+			for (int n = m + 1; n < infSize; n++) {
+				DxGeom g2 = m_infiniteGeoms.get(n);
+				if (GEOM_ENABLED(g2) && !SKIP_PAIR(g1, g2)) {
+					collideAABBs (g1, g2, data, callback);
+				}
+			}
+			// collide infinite ones with normal ones
+			for (int h = 1; h < m_handleCount; h++) {
+				DxGeom g2 = m_handleGeom[h];
+				if (g2 != null && GEOM_ENABLED(g2) && !SKIP_PAIR(g1, g2)) {
+					collideAABBs (g1, g2, data, callback);
+				}
+			}
+		}
+
+		lock_count--;
+	}
+
+
+	@Override
+	void collide2 (Object data, DxGeom geom, DNearCallback callback)
+	{
+		dAASSERT (geom != null && callback != null);
+
+		lock_count++;
+		cleanGeoms();
+		geom.recomputeAABB();
+
+		// walk the min endpoints of the first axis up to the max of the geom
+		int ax = m_axis[0];
+		double qmin = geom._aabb.getMin(ax);
+		double qmax = geom._aabb.getMax(ax);
+		double[] value = m_edgeValue[0];
+		int[] edgeData = m_edgeData[0];
+		int[] maxEdge = m_maxEdge[0];
+		for (int e = 1; e < m_edgeCount - 1 && value[e] <= qmax; e++) {
+			int d = edgeData[e];
+			if ((d & 1) == 0 && value[maxEdge[d >> 1]] >= qmin) {
+				DxGeom g = m_handleGeom[d >> 1];
+				if (GEOM_ENABLED(g)) {
+					collideAABBs (g, geom, data, callback);
+				}
+			}
+		}
+
+		for (int i = 0; i < m_infiniteGeoms.size(); i++) {
+			DxGeom g = m_infiniteGeoms.get(i);
+			if (GEOM_ENABLED(g)) {
+				collideAABBs (g, geom, data, callback);
+			}
+		}
+
+		lock_count--;
+	}
+
+
+	//****************************************************************************
+	// pair events
+
+	/** Called when the AABBs of two handles start to overlap. */
+	private void AddOverlap (int h1, int h2)
+	{
+		m_pairs.Add(h1, h2);
+	}
+
+	/** Called when the AABBs of two handles may have stopped to overlap. */
+	private void RemoveOverlap (int h1, int h2)
+	{
+		m_pairs.Remove(h1, h2);
+	}
+
+
+	//****************************************************************************
+	// handles
+
+	private static boolean IsInfinite (DAABB aabb)
+	{
+		return Double.isInfinite(aabb.getMin0()) || Double.isInfinite(aabb.getMax0()) ||
+				Double.isInfinite(aabb.getMin1()) || Double.isInfinite(aabb.getMax1()) ||
+				Double.isInfinite(aabb.getMin2()) || Double.isInfinite(aabb.getMax2());
+	}
+
+
+	private void EnsureHandleCapacity (int capacity)
+	{
+		if (capacity <= m_handleCapacity) {
+			return;
+		}
+		int newCapacity = Math.max(capacity, m_handleCapacity * 2);
+		int oldCapacity = m_handleCapacity;
+		m_handleGeom = Arrays.copyOf(m_handleGeom, newCapacity);
+		m_handleFree = Arrays.copyOf(m_handleFree, newCapacity);
+		m_activePos = Arrays.copyOf(m_activePos, newCapacity);
+		for (int axis = 0; axis < 3; axis++) {
+			m_minEdge[axis] = Arrays.copyOf(m_minEdge[axis], newCapacity);
+			m_maxEdge[axis] = Arrays.copyOf(m_maxEdge[axis], newCapacity);
+			int edgeCapacity = 2 * newCapacity + 2;
+			if (m_edgeValue[axis].length < edgeCapacity) {
+				m_edgeValue[axis] = Arrays.copyOf(m_edgeValue[axis], edgeCapacity);
+				m_edgeData[axis] = Arrays.copyOf(m_edgeData[axis], edgeCapacity);
+			}
+		}
+		for (int h = oldCapacity; h < newCapacity; h++) {
+			m_minEdge[0][h] = -1;
+		}
+		m_handleCapacity = newCapacity;
+	}
+
+
+	private int AllocateHandle ()
+	{
+		int h;
+		if (m_freeHandles > 0) {
+			h = m_handleFree[--m_freeHandles];
+		} else {
+			EnsureHandleCapacity(m_handleCount + 1);
+			h = m_handleCount++;
+		}
+		// not in the axes yet
+		m_minEdge[0][h] = 0;
+		return h;
+	}
+
+
+	private void MarkRemoved (int h)
+	{
+		m_handleGeom[h] = null;
+		m_removedCount++;
+	}
+
+
+	/**
+	 * Drop the endpoints and pairs of all removed handles and free them.
+	 */
+	private void Compact ()
+	{
+		int edgeCount = m_edgeCount;
+		for (int axis = 0; axis < 3; axis++) {
+			double[] value = m_edgeValue[axis];
+			int[] edgeData = m_edgeData[axis];
+			int[] minEdge = m_minEdge[axis];
+			int[] maxEdge = m_maxEdge[axis];
+			int n = 1;
+			for (int e = 1; e < m_edgeCount; e++) {
+				int d = edgeData[e];
+				int h = d >> 1;
+				if (h != SENTINEL && m_handleGeom[h] == null) {
+					continue;
+				}
+				value[n] = value[e];
+				edgeData[n] = d;
+				if ((d & 1) == 0) {
+					minEdge[h] = n;
+				} else {
+					maxEdge[h] = n;
+				}
+				n++;
+			}
+			edgeCount = n;
+		}
+		m_edgeCount = edgeCount;
+
+		for (int i = m_pairs.Size() - 1; i >= 0; i--) {
+			if (m_handleGeom[m_pairs.GetFirst(i)] == null ||
+					m_handleGeom[m_pairs.GetSecond(i)] == null) {
+				m_pairs.RemoveAt(i);
+			}
+		}
+
+		for (int h = 1; h < m_handleCount; h++) {
+			if (m_handleGeom[h] == null && m_minEdge[0][h] != -1) {
+				m_minEdge[0][h] = -1;
+				m_handleFree[m_freeHandles++] = h;
+			}
+		}
+		m_removedCount = 0;
+	}
+
+
+	/**
+	 * Insert the endpoints of a new handle. They are appended to the axes
+	 * and sorted down. Only the sort on the last axis creates pair events,
+	 * when the other axes are already sorted.
+	 */
+	private void InsertHandle (int h)
+	{
+		DAABB aabb = m_handleGeom[h]._aabb;
+		int limit = m_edgeCount - 1;
+		for (int axis = 0; axis < 3; axis++) {
+			double[] value = m_edgeValue[axis];
+			int[] edgeData = m_edgeData[axis];
+			// move the max sentinel
+			value[limit + 2] = value[limit];
+			edgeData[limit + 2] = edgeData[limit];
+			value[limit] = aabb.getMin(m_axis[axis]);
+			edgeData[limit] = h << 1;
+			value[limit + 1] = aabb.getMax(m_axis[axis]);
+			edgeData[limit + 1] = (h << 1) | 1;
+			m_minEdge[axis][h] = limit;
+			m_maxEdge[axis][h] = limit + 1;
+		}
+		m_edgeCount += 2;
+		for (int axis = 0; axis < 3; axis++) {
+			boolean update = axis == 2;
+			SortMinDown(axis, m_minEdge[axis][h], update);
+			SortMaxDown(axis, m_maxEdge[axis][h], update);
+		}
+	}
+
+
+	private void UpdateMoved ()
+	{
+		for (int i = 0; i < m_movedGeoms.size(); i++) {
+			UpdateHandle(m_movedGeoms.get(i));
+		}
+	}
+
+
+	/**
+	 * Move the endpoints of a handle to the new AABB of its geom.
+	 */
+	private void UpdateHandle (DxGeom g)
+	{
+		int h = g._sapIdxGeomEx;
+		DAABB aabb = g._aabb;
+		for (int axis = 0; axis < 3; axis++) {
+			double[] value = m_edgeValue[axis];
+			int emin = m_minEdge[axis][h];
+			int emax = m_maxEdge[axis][h];
+			double newMin = aabb.getMin(m_axis[axis]);
+			double newMax = aabb.getMax(m_axis[axis]);
+			double dmin = newMin - value[emin];
+			double dmax = newMax - value[emax];
+			value[emin] = newMin;
+			value[emax] = newMax;
+
+			// expand first, then shrink, so that the min never passes its max
+			if (dmin < 0) {
+				SortMinDown(axis, emin, true);
+			}
+			if (dmax > 0) {
+				SortMaxUp(axis, emax, true);
+			}
+			if (dmin > 0) {
+				SortMinUp(axis, m_minEdge[axis][h], true);
+			}
+			if (dmax < 0) {
+				SortMaxDown(axis, m_maxEdge[axis][h], true);
+			}
+		}
+	}
+
+
+	/**
+	 * @return whether the endpoints of the handles overlap on the two axes
+	 * other than <tt>axis</tt>.
+	 */
+	private boolean OverlapsOnOtherAxes (int axis, int h1, int h2)
+	{
+		int a1 = axis == 0 ? 1 : 0;
+		int a2 = axis == 2 ? 1 : 2;
+		return m_minEdge[a1][h1] < m_maxEdge[a1][h2] && m_minEdge[a1][h2] < m_maxEdge[a1][h1] &&
+				m_minEdge[a2][h1] < m_maxEdge[a2][h2] && m_minEdge[a2][h2] < m_maxEdge[a2][h1];
+	}
+
+
+	private void SortMinDown (int axis, int e, boolean update)
+	{
+		double[] value = m_edgeValue[axis];
+		int[] edgeData = m_edgeData[axis];
+		double v = value[e];
+		int d = edgeData[e];
+		int h = d >> 1;
+		while (true) {
+			double pv = value[e - 1];
+			int pd = edgeData[e - 1];
+			// mins come before maxes with the same value
+			if (!(pv > v || (pv == v && (pd & 1) != 0))) {
+				break;
+			}
+			int ph = pd >> 1;
+			if ((pd & 1) != 0) {
+				// passing a max: the handles start to overlap on this axis
+				if (update && OverlapsOnOtherAxes(axis, h, ph)) {
+					AddOverlap(h, ph);
+				}
+				m_maxEdge[axis][ph] = e;
+			} else {
+				m_minEdge[axis][ph] = e;
+			}
+			value[e] = pv;
+			edgeData[e] = pd;
+			e--;
+		}
+		value[e] = v;
+		edgeData[e] = d;
+		m_minEdge[axis][h] = e;
+	}
+
+
+	private void SortMinUp (int axis, int e, boolean update)
+	{
+		double[] value = m_edgeValue[axis];
+		int[] edgeData = m_edgeData[axis];
+		double v = value[e];
+		int d = edgeData[e];
+		int h = d >> 1;
+		while (true) {
+			double nv = value[e + 1];
+			int nd = edgeData[e + 1];
+			if (!(nv < v)) {
+				break;
+			}
+			int nh = nd >> 1;
+			if ((nd & 1) != 0) {
+				// passing a max: the handles stop to overlap on this axis
+				if (update) {
+					RemoveOverlap(h, nh);
+				}
+				m_maxEdge[axis][nh] = e;
+			} else {
+				m_minEdge[axis][nh] = e;
+			}
+			value[e] = nv;
+			edgeData[e] = nd;
+			e++;
+		}
+		value[e] = v;
+		edgeData[e] = d;
+		m_minEdge[axis][h] = e;
+	}
+
+
+	private void SortMaxDown (int axis, int e, boolean update)
+	{
+		double[] value = m_edgeValue[axis];
+		int[] edgeData = m_edgeData[axis];
+		double v = value[e];
+		int d = edgeData[e];
+		int h = d >> 1;
+		while (true) {
+			double pv = value[e - 1];
+			int pd = edgeData[e - 1];
+			if (!(pv > v)) {
+				break;
+			}
+			int ph = pd >> 1;
+			if ((pd & 1) == 0) {
+				// passing a min: the handles stop to overlap on this axis
+				if (update) {
+					RemoveOverlap(h, ph);
+				}
+				m_minEdge[axis][ph] = e;
+			} else {
+				m_maxEdge[axis][ph] = e;
+			}
+			value[e] = pv;
+			edgeData[e] = pd;
+			e--;
+		}
+		value[e] = v;
+		edgeData[e] = d;
+		m_maxEdge[axis][h] = e;
+	}
+
+
+	private void SortMaxUp (int axis, int e, boolean update)
+	{
+		double[] value = m_edgeValue[axis];
+		int[] edgeData = m_edgeData[axis];
+		double v = value[e];
+		int d = edgeData[e];
+		int h = d >> 1;
+		while (true) {
+			double nv = value[e + 1];
+			int nd = edgeData[e + 1];
+			// maxes come after mins with the same value
+			if (!(nv < v || (nv == v && (nd & 1) == 0))) {
+				break;
+			}
+			int nh = nd >> 1;
+			if ((nd & 1) == 0) {
+				// passing a min: the handles start to overlap on this axis
+				if (update && OverlapsOnOtherAxes(axis, h, nh)) {
+					AddOverlap(h, nh);
+				}
+				m_minEdge[axis][nh] = e;
+			} else {
+				m_maxEdge[axis][nh] = e;
+			}
+			value[e] = nv;
+			edgeData[e] = nd;
+			e++;
+		}
+		value[e] = v;
+		edgeData[e] = d;
+		m_maxEdge[axis][h] = e;
+	}
+
+
+	/**
+	 * Sort the endpoints of all handles from scratch and find all pairs
+	 * with a sweep over the first axis.
+	 */
+	private void Rebuild ()
+	{
+		int live = 0;
+		for (int axis = 0; axis < 3; axis++) {
+			double[] value = m_edgeValue[axis];
+			int[] edgeData = m_edgeData[axis];
+			int n = 1;
+			for (int h = 1; h < m_handleCount; h++) {
+				DxGeom g = m_handleGeom[h];
+				if (g == null) {
+					continue;
+				}
+				value[n] = g._aabb.getMin(m_axis[axis]);
+				edgeData[n++] = h << 1;
+				value[n] = g._aabb.getMax(m_axis[axis]);
+				edgeData[n++] = (h << 1) | 1;
+			}
+			value[n] = dInfinity;
+			edgeData[n] = (SENTINEL << 1) | 1;
+			live = n - 1;
+			SortEdges(value, edgeData, 1, n);
+			int[] minEdge = m_minEdge[axis];
+			int[] maxEdge = m_maxEdge[axis];
+			for (int e = 1; e < n; e++) {
+				int d = edgeData[e];
+				if ((d & 1) == 0) {
+					minEdge[d >> 1] = e;
+				} else {
+					maxEdge[d >> 1] = e;
+				}
+			}
+		}
+		m_edgeCount = live + 2;
+
+		// sweep: every min endpoint overlaps with the active handles on
+		// the first axis
+		m_pairs.Clear();
+		int[] edgeData = m_edgeData[0];
+		int activeCount = 0;
+		if (m_active.length < m_handleCount) {
+			m_active = new int[m_handleCapacity];
+		}
+		for (int e = 1; e < m_edgeCount - 1; e++) {
+			int d = edgeData[e];
+			int h = d >> 1;
+			if ((d & 1) == 0) {
+				for (int i = 0; i < activeCount; i++) {
+					int a = m_active[i];
+					if (OverlapsOnOtherAxes(0, h, a)) {
+						AddOverlap(h, a);
+					}
+				}
+				m_activePos[h] = activeCount;
+				m_active[activeCount++] = h;
+			} else {
+				int pos = m_activePos[h];
+				int last = m_active[--activeCount];
+				m_active[pos] = last;
+				m_activePos[last] = pos;
+			}
+		}
+	}
+
+
+	/**
+	 * Merge sort of the endpoints in [from, to), mins before maxes with
+	 * the same value.
+	 */
+	private void SortEdges (double[] value, int[] edgeData, int from, int to)
+	{
+		int n = to - from;
+		if (m_sortValue.length < value.length) {
+			m_sortValue = new double[value.length];
+			m_sortData = new int[value.length];
+		}
+		double[] srcV = value, dstV = m_sortValue;
+		int[] srcD = edgeData, dstD = m_sortData;
+		for (int width = 1; width < n; width *= 2) {
+			for (int lo = from; lo < to; lo += 2 * width) {
+				int mid = Math.min(lo + width, to);
+				int hi = Math.min(lo + 2 * width, to);
+				int i = lo, j = mid, k = lo;
+				while (i < mid && j < hi) {
+					if (srcV[j] < srcV[i] ||
+							(srcV[j] == srcV[i] && (srcD[j] & 1) < (srcD[i] & 1))) {
+						dstV[k] = srcV[j];
+						dstD[k++] = srcD[j++];
+					} else {
+						dstV[k] = srcV[i];
+						dstD[k++] = srcD[i++];
+					}
+				}
+				while (i < mid) {
+					dstV[k] = srcV[i];
+					dstD[k++] = srcD[i++];
+				}
+				while (j < hi) {
+					dstV[k] = srcV[j];
+					dstD[k++] = srcD[j++];
+				}
+			}
+			double[] tv = srcV; srcV = dstV; dstV = tv;
+			int[] td = srcD; srcD = dstD; dstD = td;
+		}
+		if (srcV != value) {
+			System.arraycopy(srcV, from, value, from, n);
+			System.arraycopy(srcD, from, edgeData, from, n);
+		}
+	}
+}
@@ -0,0 +1,704 @@
+/*************************************************************************
+ *                                                                       *
+ * Open Dynamics Engine, Copyright (C) 2001,2002 Russell L. Smith.       *
+ * All rights reserved.  Email: russ@q12.org   Web: www.q12.org          *
+ * Open Dynamics Engine 4J, Copyright (C) 2009-2014 Tilmann Zaeschke     *
+ * All rights reserved.  Email: ode4j@gmx.de   Web: www.ode4j.org        *
+ *                                                                       *
+ * This library is free software; you can redistribute it and/or         *
+ * modify it under the terms of EITHER:                                  *
+ *   (1) The GNU Lesser General Public License as published by the Free  *
+ *       Software Foundation; either version 2.1 of the License, or (at  *
+ *       your option) any later version. The text of the GNU Lesser      *
+ *       General Public License is included with this library in the     *
+ *       file LICENSE.TXT.                                               *
+ *   (2) The BSD-style license that is included with this library in     *
+ *       the file ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT.         *
+ *                                                                       *
+ * This library is distributed in the hope that it will be useful,       *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the files    *
+ * LICENSE.TXT, ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT for more   *
+ * details.                                                              *
+ *                                                                       *
+ *************************************************************************/
+package org.ode4j.ode.internal;
+
+import static org.ode4j.ode.internal.Common.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.ode4j.ode.DAABB;
+import org.ode4j.ode.DLooseOctreeSpace;
+
+/**
+ * Loose octree space.
+ * <p>
+ * A geom with center p and half size r (the largest half extent of its AABB)
+ * is stored in the deepest node with half size h &gt;= r whose cell contains
+ * p. The loose bounds of a node with center c are c +/- 2h, so they contain
+ * the AABB of each geom in the node. The traversals use the tighter bounds
+ * c +/- (h + r'), where r' is the largest half size of the geoms that have
+ * been inserted into the subtree since the node was created.
+ * <p>
+ * collide() visits the pairs of subtrees whose bounds overlap, like the
+ * dynamic tree space, so that each pair of geoms is tested once.
+ * <p>
+ * The nodes are stored in parallel arrays and are recycled with a free list.
+ * Children are created when a geom is inserted into them, and subtrees whose
+ * geom count drops to zero are freed. Only dirty geoms are updated in
+ * cleanGeoms(), and only those that no longer fit their node are moved.
+ */
+public class DxLooseOctreeSpace extends DxSpace implements DLooseOctreeSpace {
+
+	private static final int NULL_NODE = -1;
+	/** Value of DxGeom._otIdxEx for geoms with infinite AABBs. */
+	private static final int INFINITE_NODE = -2;
+	private static final int DEFAULT_MAX_DEPTH = 10;
+	private static final int INITIAL_CAPACITY = 16;
+	private static final int INITIAL_STACK_SIZE = 64;
+
+	private int m_maxDepth = DEFAULT_MAX_DEPTH;
+	// set by setMaxDepth(), all geoms are reinserted by cleanGeoms()
+	private boolean m_reinsert = false;
+
+	private int m_root = NULL_NODE;
+	private int m_nodeCount = 0;
+	private int m_nodeCapacity = 0;
+	private int m_freeList = NULL_NODE;
+	// cell centers, 3 per node
+	private double[] m_center = new double[0];
+	// half sizes of the cells
+	private double[] m_half = new double[0];
+	// parent of used nodes, next node of free nodes
+	private int[] m_parent = new int[0];
+	// children, 8 per node, NULL_NODE if not created
+	private int[] m_child = new int[0];
+	// depth below the root, -1 for free nodes
+	private int[] m_depth = new int[0];
+	// upper bound of the half sizes of the geoms in the subtree, the
+	// bounds of these geoms are inside of the cell enlarged by this
+	private double[] m_geomHalf = new double[0];
+	// number of geoms in the node and in its subtree
+	private int[] m_size = new int[0];
+	private int[] m_count = new int[0];
+	// first geom of the node, the others are linked with DxGeom.getNextEx()
+	private DxGeom[] m_first = new DxGeom[0];
+
+	// geoms with infinite AABBs, they are not in the tree
+	private final List<DxGeom> m_infiniteGeoms = new ArrayList<DxGeom>();
+
+	// null while in use, e.g. by a callback that calls collide2() of this space
+	private int[] m_stack = new int[INITIAL_STACK_SIZE];
+
+
+	public static DxLooseOctreeSpace dLooseOctreeSpaceCreate (DxSpace space)
+	{
+		return new DxLooseOctreeSpace (space);
+	}
+
+
+	private DxLooseOctreeSpace (DxSpace space)
+	{
+		super(space);
+		type = dLooseOctreeSpaceClass;
+	}
+
+
+	@Override
+	void add (DxGeom g)
+	{
+		CHECK_NOT_LOCKED (this);
+		dUASSERT(g.parent_space == null, "geom is already in a space");
+		dUASSERT(g.getNextEx() == null, "geom is already in a node");
+
+		// the geom is inserted into the tree by cleanGeoms(), when its AABB
+		// is known
+		g._otIdxEx = NULL_NODE;
+		super.add(g);
+	}
+
+
+	@Override
+	void remove (DxGeom g)
+	{
+		CHECK_NOT_LOCKED (this);
+		dUASSERT(g.parent_space == this, "object is not in this space");
+
+		if (g._otIdxEx >= 0) {
+			RemoveGeom(g);
+		} else if (g._otIdxEx == INFINITE_NODE) {
+			m_infiniteGeoms.remove(g);
+		}
+		g._otIdxEx = NULL_NODE;
+		super.remove(g);
+	}
+
+
+	@Override
+	public void cleanGeoms()
+	{
+		// compute the AABBs of all dirty geoms, clear the dirty flags and
+		// update their nodes. The dirty geoms are at the front of the list.
+		lock_count++;
+		for (DxGeom g = _first; g != null && g.hasFlagDirty(); g = g.getNext()) {
+			if (g instanceof DxSpace) {
+				((DxSpace)g).cleanGeoms();
+			}
+			g.recomputeAABB();
+			g.unsetFlagDirtyAndBad();
+			UpdateGeom(g);
+		}
+		if (m_reinsert) {
+			m_reinsert = false;
+			for (DxGeom g = _first; g != null; g = g.getNext()) {
+				if (g._otIdxEx >= 0) {
+					RemoveGeom(g);
+					InsertGeom(g);
+				}
+			}
+		}
+		lock_count--;
+	}
+
+
+	@Override
+	public void collide (Object data, DNearCallback callback)
+	{
+		dAASSERT (callback);
+
+		lock_count++;
+		cleanGeoms();
+
+		if (m_root != NULL_NODE) {
+			int[] stack = AcquireStack();
+			int top = 0;
+			// a pair (a, a) stands for the pairs inside of subtree a, a pair
+			// (~a, b) for the pairs of the geoms of node a with subtree b.
+			// Only pairs whose bounds overlap are pushed.
+			stack[top++] = m_root;
+			stack[top++] = m_root;
+			while (top > 0) {
+				int b = stack[--top];
+				int a = stack[--top];
+				if (top + 88 > stack.length) {
+					stack = Arrays.copyOf(stack, stack.length * 2);
+				}
+				if (a == b) {
+					CollideList(a, data, callback);
+					boolean list = m_size[a] > 0;
+					for (int i = a * 8; i < a * 8 + 8; i++) {
+						int c = m_child[i];
+						if (c == NULL_NODE || m_count[c] == 0) {
+							continue;
+						}
+						if (m_count[c] > 1) {
+							stack[top++] = c;
+							stack[top++] = c;
+						}
+						if (list) {
+							stack[top++] = ~a;
+							stack[top++] = c;
+						}
+						for (int j = i + 1; j < a * 8 + 8; j++) {
+							int c2 = m_child[j];
+							if (c2 != NULL_NODE && m_count[c2] > 0 && Overlaps(c, c2)) {
+								stack[top++] = c;
+								stack[top++] = c2;
+							}
+						}
+					}
+				} else if (a < 0) {
+					// the geoms of ~a with subtree b
+					CollideLists(~a, b, data, callback);
+					top = PushPairs(stack, top, a, b);
+				} else {
+					if (m_half[a] < m_half[b]) {
+						int c = a;
+						a = b;
+						b = c;
+					}
+					// the geoms of a with subtree b, subtree b with the
+					// children of a
+					if (m_size[a] > 0) {
+						CollideLists(a, b, data, callback);
+						top = PushPairs(stack, top, ~a, b);
+					}
+					for (int i = a * 8; i < a * 8 + 8; i++) {
+						int c = m_child[i];
+						if (c != NULL_NODE && m_count[c] > 0 && Overlaps(c, b)) {
+							stack[top++] = c;
+							stack[top++] = b;
+						}
+					}
+				}
+			}
+			ReleaseStack(stack);
+		}
+
+		int infSize = m_infiniteGeoms.size();
+		for (int m = 0; m < infSize; m++) {
+			DxGeom g1 = m_infiniteGeoms.get(m);
+			if (!GEOM_ENABLED(g1)) {
+				continue;
+			}
+			// collide infinite ones
+			for (int n = m + 1; n < infSize; n++) {
+				DxGeom g2 = m_infiniteGeoms.get(n);
+				if (GEOM_ENABLED(g2) && !SKIP_PAIR(g1, g2)) {
+					collideAABBs (g1, g2, data, callback);
+				}
+			}
+			// collide infinite ones with the ones in the tree
+			for (DxGeom g2 = _first; g2 != null; g2 = g2.getNext()) {
+				if (g2._otIdxEx >= 0 && GEOM_ENABLED(g2) && !SKIP_PAIR(g1, g2)) {
+					collideAABBs (g1, g2, data, callback);
+				}
+			}
+		}
+
+		lock_count--;
+	}
+
+
+	/**
+	 * Collide the geoms of node with each other.
+	 */
+	private void CollideList (int node, Object data, DNearCallback callback)
+	{
+		for (DxGeom g1 = m_first[node]; g1 != null; g1 = g1.getNextEx()) {
+			if (!GEOM_ENABLED(g1)) {
+				continue;
+			}
+			for (DxGeom g2 = g1.getNextEx(); g2 != null; g2 = g2.getNextEx()) {
+				if (GEOM_ENABLED(g2) && !SKIP_PAIR(g1, g2)) {
+					collideAABBs (g1, g2, data, callback);
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Collide the geoms of node a with the geoms of node b.
+	 */
+	private void CollideLists (int a, int b, Object data, DNearCallback callback)
+	{
+		for (DxGeom g1 = m_first[a]; g1 != null; g1 = g1.getNextEx()) {
+			if (!GEOM_ENABLED(g1)) {
+				continue;
+			}
+			for (DxGeom g2 = m_first[b]; g2 != null; g2 = g2.getNextEx()) {
+				if (GEOM_ENABLED(g2) && !SKIP_PAIR(g1, g2)) {
+					collideAABBs (g1, g2, data, callback);
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Push the pairs of a with the children of b that overlap node a or ~a.
+	 */
+	private int PushPairs (int[] stack, int top, int a, int b)
+	{
+		int node = a < 0 ? ~a : a;
+		for (int i = b * 8; i < b * 8 + 8; i++) {
+			int c = m_child[i];
+			if (c != NULL_NODE && m_count[c] > 0 && Overlaps(node, c)) {
+				stack[top++] = a;
+				stack[top++] = c;
+			}
+		}
+		return top;
+	}
+
+
+	@Override
+	void collide2 (Object data, DxGeom geom, DNearCallback callback)
+	{
+		dAASSERT (geom != null && callback != null);
+
+		lock_count++;
+		cleanGeoms();
+		geom.recomputeAABB();
+
+		if (m_root != NULL_NODE) {
+			DAABB aabb = geom._aabb;
+			int[] stack = AcquireStack();
+			int top = 0;
+			stack[top++] = m_root;
+			while (top > 0) {
+				int n = stack[--top];
+				if (!Overlaps(n, aabb)) {
+					continue;
+				}
+				for (DxGeom g = m_first[n]; g != null; g = g.getNextEx()) {
+					if (GEOM_ENABLED(g)) {
+						collideAABBs (g, geom, data, callback);
+					}
+				}
+				if (m_count[n] > m_size[n]) {
+					if (top + 8 > stack.length) {
+						stack = Arrays.copyOf(stack, stack.length * 2);
+					}
+					top = PushChildren(stack, top, n);
+				}
+			}
+			ReleaseStack(stack);
+		}
+
+		for (int i = 0; i < m_infiniteGeoms.size(); i++) {
+			DxGeom g = m_infiniteGeoms.get(i);
+			if (GEOM_ENABLED(g)) {
+				collideAABBs (g, geom, data, callback);
+			}
+		}
+
+		lock_count--;
+	}
+
+
+	/**
+	 * Push the children of node with geoms in their subtree.
+	 */
+	private int PushChildren (int[] stack, int top, int node)
+	{
+		for (int i = node * 8; i < node * 8 + 8; i++) {
+			int c = m_child[i];
+			if (c != NULL_NODE && m_count[c] > 0) {
+				stack[top++] = c;
+			}
+		}
+		return top;
+	}
+
+
+	/**
+	 * Test the bounds of the geoms in a subtree against an AABB.
+	 */
+	private boolean Overlaps (int node, DAABB aabb)
+	{
+		int i = node * 3;
+		double h = m_half[node] + m_geomHalf[node];
+		return aabb.getMin0() <= m_center[i] + h && aabb.getMax0() >= m_center[i] - h &&
+				aabb.getMin1() <= m_center[i+1] + h && aabb.getMax1() >= m_center[i+1] - h &&
+				aabb.getMin2() <= m_center[i+2] + h && aabb.getMax2() >= m_center[i+2] - h;
+	}
+
+
+	/**
+	 * Test the bounds of the geoms in two subtrees.
+	 */
+	private boolean Overlaps (int a, int b)
+	{
+		int i = a * 3, j = b * 3;
+		double h = m_half[a] + m_geomHalf[a] + m_half[b] + m_geomHalf[b];
+		return Math.abs(m_center[i] - m_center[j]) <= h &&
+				Math.abs(m_center[i+1] - m_center[j+1]) <= h &&
+				Math.abs(m_center[i+2] - m_center[j+2]) <= h;
+	}
+
+
+	private int[] AcquireStack ()
+	{
+		int[] stack = m_stack;
+		if (stack == null) {
+			// nested traversal, e.g. collide2() from inside of a callback
+			return new int[INITIAL_STACK_SIZE];
+		}
+		m_stack = null;
+		return stack;
+	}
+
+
+	private void ReleaseStack (int[] stack)
+	{
+		m_stack = stack;
+	}
+
+
+	//****************************************************************************
+	// tree maintenance
+
+	/**
+	 * Update the node of a geom whose AABB has just been recomputed.
+	 */
+	private void UpdateGeom (DxGeom g)
+	{
+		DAABB aabb = g._aabb;
+		boolean infinite = IsInfinite(aabb);
+		int node = g._otIdxEx;
+		if (node == INFINITE_NODE) {
+			if (infinite) {
+				return;
+			}
+			m_infiniteGeoms.remove(g);
+			g._otIdxEx = NULL_NODE;
+		} else if (node >= 0) {
+			if (!infinite && Fits(node, aabb)) {
+				// the center is still in the cell and the size still matches
+				return;
+			}
+			RemoveGeom(g);
+		}
+		if (infinite) {
+			m_infiniteGeoms.add(g);
+			g._otIdxEx = INFINITE_NODE;
+		} else {
+			InsertGeom(g);
+		}
+	}
+
+
+	/**
+	 * @return Whether InsertGeom() would put a geom with this AABB into node.
+	 */
+	private boolean Fits (int node, DAABB aabb)
+	{
+		double r = HalfSize(aabb);
+		double h = m_half[node];
+		return r <= h && (r > 0.5 * h || m_depth[node] >= m_maxDepth) &&
+				InCell(node, 0.5 * (aabb.getMin0() + aabb.getMax0()),
+						0.5 * (aabb.getMin1() + aabb.getMax1()),
+						0.5 * (aabb.getMin2() + aabb.getMax2()));
+	}
+
+
+	private void InsertGeom (DxGeom g)
+	{
+		DAABB aabb = g._aabb;
+		double r = HalfSize(aabb);
+		double p0 = 0.5 * (aabb.getMin0() + aabb.getMax0());
+		double p1 = 0.5 * (aabb.getMin1() + aabb.getMax1());
+		double p2 = 0.5 * (aabb.getMin2() + aabb.getMax2());
+		if (m_root == NULL_NODE) {
+			m_root = AllocateNode(NULL_NODE, p0, p1, p2, r > 0 ? r : 1);
+		} else {
+			GrowRoot(p0, p1, p2, r);
+		}
+
+		// descend to the smallest node that is not smaller than the geom
+		int node = m_root;
+		while (m_depth[node] < m_maxDepth && r <= 0.5 * m_half[node]) {
+			int i = node * 3;
+			int octant = (p0 >= m_center[i] ? 1 : 0) | (p1 >= m_center[i+1] ? 2 : 0) |
+					(p2 >= m_center[i+2] ? 4 : 0);
+			int child = m_child[node * 8 + octant];
+			if (child == NULL_NODE) {
+				double h = 0.5 * m_half[node];
+				child = AllocateNode(node,
+						m_center[i] + ((octant & 1) != 0 ? h : -h),
+						m_center[i+1] + ((octant & 2) != 0 ? h : -h),
+						m_center[i+2] + ((octant & 4) != 0 ? h : -h), h);
+				m_child[node * 8 + octant] = child;
+			}
+			node = child;
+		}
+
+		g.setNextEx(m_first[node]);
+		m_first[node] = g;
+		m_size[node]++;
+		for (int n = node; n != NULL_NODE; n = m_parent[n]) {
+			m_count[n]++;
+			if (m_geomHalf[n] < r) {
+				m_geomHalf[n] = r;
+			}
+		}
+		g._otIdxEx = node;
+	}
+
+
+	private void RemoveGeom (DxGeom g)
+	{
+		int node = g._otIdxEx;
+		if (m_first[node] == g) {
+			m_first[node] = g.getNextEx();
+		} else {
+			DxGeom last = m_first[node];
+			while (last.getNextEx() != g) {
+				last = last.getNextEx();
+			}
+			last.setNextEx(g.getNextEx());
+		}
+		g.setNextEx(null);
+		g._otIdxEx = NULL_NODE;
+		m_size[node]--;
+		for (int n = node; n != NULL_NODE; n = m_parent[n]) {
+			m_count[n]--;
+		}
+
+		// free the largest subtree that has become empty
+		int empty = node;
+		while (m_parent[empty] != NULL_NODE && m_count[m_parent[empty]] == 0) {
+			empty = m_parent[empty];
+		}
+		if (m_count[empty] == 0) {
+			int parent = m_parent[empty];
+			if (parent == NULL_NODE) {
+				m_root = NULL_NODE;
+			} else {
+				for (int i = parent * 8; i < parent * 8 + 8; i++) {
+					if (m_child[i] == empty) {
+						m_child[i] = NULL_NODE;
+					}
+				}
+			}
+			FreeSubtree(empty);
+		}
+	}
+
+
+	/**
+	 * Add parents to the root until its cell contains the given center and
+	 * it is not smaller than the given half size.
+	 */
+	private void GrowRoot (double p0, double p1, double p2, double r)
+	{
+		while (!InCell(m_root, p0, p1, p2) || r > m_half[m_root]) {
+			// the nodes move one level down
+			for (int n = 0; n < m_nodeCapacity; n++) {
+				if (m_depth[n] >= 0) {
+					m_depth[n]++;
+				}
+			}
+			int old = m_root;
+			int i = old * 3;
+			double h = m_half[old];
+			// the old root becomes the child of the new root in direction -p
+			double c0 = m_center[i] + (p0 >= m_center[i] ? h : -h);
+			double c1 = m_center[i+1] + (p1 >= m_center[i+1] ? h : -h);
+			double c2 = m_center[i+2] + (p2 >= m_center[i+2] ? h : -h);
+			m_root = AllocateNode(NULL_NODE, c0, c1, c2, 2 * h);
+			int octant = (p0 >= m_center[i] ? 0 : 1) | (p1 >= m_center[i+1] ? 0 : 2) |
+					(p2 >= m_center[i+2] ? 0 : 4);
+			m_child[m_root * 8 + octant] = old;
+			m_parent[old] = m_root;
+			m_count[m_root] = m_count[old];
+			m_geomHalf[m_root] = m_geomHalf[old];
+		}
+	}
+
+
+	/**
+	 * @return Whether a point is in [c - h, c + h) of node.
+	 */
+	private boolean InCell (int node, double p0, double p1, double p2)
+	{
+		int i = node * 3;
+		double h = m_half[node];
+		return p0 >= m_center[i] - h && p0 < m_center[i] + h &&
+				p1 >= m_center[i+1] - h && p1 < m_center[i+1] + h &&
+				p2 >= m_center[i+2] - h && p2 < m_center[i+2] + h;
+	}
+
+
+	private static double HalfSize (DAABB aabb)
+	{
+		return 0.5 * Math.max(aabb.getMax0() - aabb.getMin0(),
+				Math.max(aabb.getMax1() - aabb.getMin1(), aabb.getMax2() - aabb.getMin2()));
+	}
+
+
+	/**
+	 * Geoms with infinite or undefined AABBs are kept out of the tree.
+	 */
+	private static boolean IsInfinite (DAABB aabb)
+	{
+		double s = aabb.getMin0() + aabb.getMax0() + aabb.getMin1() + aabb.getMax1() +
+				aabb.getMin2() + aabb.getMax2();
+		return Double.isInfinite(aabb.getMin0()) || Double.isInfinite(aabb.getMax0()) ||
+				Double.isInfinite(aabb.getMin1()) || Double.isInfinite(aabb.getMax1()) ||
+				Double.isInfinite(aabb.getMin2()) || Double.isInfinite(aabb.getMax2()) ||
+				Double.isNaN(s);
+	}
+
+
+	//****************************************************************************
+	// node pool
+
+	private int AllocateNode (int parent, double c0, double c1, double c2, double half)
+	{
+		if (m_freeList == NULL_NODE) {
+			// grow the node pool
+			int oldCapacity = m_nodeCapacity;
+			m_nodeCapacity = oldCapacity == 0 ? INITIAL_CAPACITY : oldCapacity * 2;
+			m_center = Arrays.copyOf(m_center, m_nodeCapacity * 3);
+			m_half = Arrays.copyOf(m_half, m_nodeCapacity);
+			m_geomHalf = Arrays.copyOf(m_geomHalf, m_nodeCapacity);
+			m_parent = Arrays.copyOf(m_parent, m_nodeCapacity);
+			m_child = Arrays.copyOf(m_child, m_nodeCapacity * 8);
+			m_depth = Arrays.copyOf(m_depth, m_nodeCapacity);
+			m_size = Arrays.copyOf(m_size, m_nodeCapacity);
+			m_count = Arrays.copyOf(m_count, m_nodeCapacity);
+			m_first = Arrays.copyOf(m_first, m_nodeCapacity);
+			for (int i = oldCapacity; i < m_nodeCapacity - 1; i++) {
+				m_parent[i] = i + 1;
+				m_depth[i] = -1;
+			}
+			m_parent[m_nodeCapacity - 1] = NULL_NODE;
+			m_depth[m_nodeCapacity - 1] = -1;
+			m_freeList = oldCapacity;
+		}
+		int node = m_freeList;
+		m_freeList = m_parent[node];
+		m_parent[node] = parent;
+		m_center[node * 3] = c0;
+		m_center[node * 3 + 1] = c1;
+		m_center[node * 3 + 2] = c2;
+		m_half[node] = half;
+		m_geomHalf[node] = 0;
+		Arrays.fill(m_child, node * 8, node * 8 + 8, NULL_NODE);
+		m_depth[node] = parent == NULL_NODE ? 0 : m_depth[parent] + 1;
+		m_size[node] = 0;
+		m_count[node] = 0;
+		m_first[node] = null;
+		m_nodeCount++;
+		return node;
+	}
+
+
+	private void FreeSubtree (int node)
+	{
+		dIASSERT(node >= 0 && node < m_nodeCapacity && m_nodeCount > 0);
+		dIASSERT(m_count[node] == 0);
+		for (int i = node * 8; i < node * 8 + 8; i++) {
+			if (m_child[i] != NULL_NODE) {
+				FreeSubtree(m_child[i]);
+			}
+		}
+		m_parent[node] = m_freeList;
+		m_depth[node] = -1;
+		m_freeList = node;
+		m_nodeCount--;
+	}
+
+
+	// *********************************************
+	// dLooseOctreeSpace API
+	// *********************************************
+
+	@Override
+	public void setMaxDepth (int maxDepth)
+	{
+		dUASSERT (maxDepth >= 0, "max depth must not be negative");
+		if (maxDepth != m_maxDepth) {
+			m_maxDepth = maxDepth;
+			m_reinsert = true;
+		}
+	}
+
+	@Override
+	public int getMaxDepth ()
+	{
+		return m_maxDepth;
+	}
+
+	@Override
+	public int getNodeCount ()
+	{
+		return m_nodeCount;
+	}
+}
@@ -0,0 +1,387 @@
+/*************************************************************************
+ *                                                                       *
+ * Open Dynamics Engine, Copyright (C) 2001,2002 Russell L. Smith.       *
+ * All rights reserved.  Email: russ@q12.org   Web: www.q12.org          *
+ * Open Dynamics Engine 4J, Copyright (C) 2009-2014 Tilmann Zaeschke     *
+ * All rights reserved.  Email: ode4j@gmx.de   Web: www.ode4j.org        *
+ *                                                                       *
+ * This library is free software; you can redistribute it and/or         *
+ * modify it under the terms of EITHER:                                  *
+ *   (1) The GNU Lesser General Public License as published by the Free  *
+ *       Software Foundation; either version 2.1 of the License, or (at  *
+ *       your option) any later version. The text of the GNU Lesser      *
+ *       General Public License is included with this library in the     *
+ *       file LICENSE.TXT.                                               *
+ *   (2) The BSD-style license that is included with this library in     *
+ *       the file ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT.         *
+ *                                                                       *
+ * This library is distributed in the hope that it will be useful,       *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the files    *
+ * LICENSE.TXT, ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT for more   *
+ * details.                                                              *
+ *                                                                       *
+ *************************************************************************/
+package org.ode4j.ode.internal;
+
+import static org.ode4j.ode.internal.Common.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.ode4j.math.DMatrix3C;
+import org.ode4j.math.DVector3C;
+import org.ode4j.ode.DContactGeomBuffer;
+import org.ode4j.ode.DGeom;
+import org.ode4j.ode.DGeom.DNearCallback;
+import org.ode4j.ode.DPairManager;
+import org.ode4j.ode.DSpace;
+
+/**
+ * Pair manager, see DPairManager.
+ * <p>
+ * The pairs of the last update are kept in dense arrays and are found by
+ * their geoms through an open addressing table, like in DxContactCache.
+ * Each update copies the pairs that are reported again into a second set
+ * of arrays, the pairs that are left over have ended. Then the two sets
+ * are swapped and the table is rebuilt. The contact buffers of the pairs
+ * are recycled, so that updates do not create garbage after the number of
+ * pairs has stopped growing.
+ */
+public class DxPairManager implements DPairManager, DNearCallback {
+
+	private static final double DEFAULT_TOLERANCE = 0.001;
+	private static final int INITIAL_CAPACITY = 16;
+	/** Doubles per pair: position and rotation of both geoms. */
+	private static final int XF = 24;
+
+	private final DxSpace m_space;
+	private final int m_maxContacts;
+	private double m_linearTolerance = DEFAULT_TOLERANCE;
+	private double m_angularTolerance = DEFAULT_TOLERANCE;
+
+	// pairs of the last update, and the pairs of the running update
+	private Pairs m_old = new Pairs();
+	private Pairs m_new = new Pairs();
+	// index + 1 of the pair of m_old in each slot, 0 for empty slots
+	private int[] m_table = new int[INITIAL_CAPACITY * 2];
+	private final List<DContactGeomBuffer> m_freeBuffers = new ArrayList<DContactGeomBuffer>();
+
+	// set during update()
+	private DPairListener m_listener = null;
+	private int m_reused = 0;
+
+	/**
+	 * Pairs in dense arrays.
+	 */
+	private static class Pairs {
+		int size = 0;
+		DxGeom[] geom1 = new DxGeom[INITIAL_CAPACITY];
+		DxGeom[] geom2 = new DxGeom[INITIAL_CAPACITY];
+		DContactGeomBuffer[] contacts = new DContactGeomBuffer[INITIAL_CAPACITY];
+		// number of contacts, -1 if they have to be computed
+		int[] count = new int[INITIAL_CAPACITY];
+		boolean[] touching = new boolean[INITIAL_CAPACITY];
+		// reported again by the running update
+		boolean[] seen = new boolean[INITIAL_CAPACITY];
+		// transforms of the geoms when the contacts were computed
+		double[] xf = new double[INITIAL_CAPACITY * XF];
+
+		int Add()
+		{
+			if (size == geom1.length) {
+				int capacity = size * 2;
+				geom1 = Arrays.copyOf(geom1, capacity);
+				geom2 = Arrays.copyOf(geom2, capacity);
+				contacts = Arrays.copyOf(contacts, capacity);
+				count = Arrays.copyOf(count, capacity);
+				touching = Arrays.copyOf(touching, capacity);
+				seen = Arrays.copyOf(seen, capacity);
+				xf = Arrays.copyOf(xf, capacity * XF);
+			}
+			return size++;
+		}
+
+		void Clear()
+		{
+			Arrays.fill(geom1, 0, size, null);
+			Arrays.fill(geom2, 0, size, null);
+			Arrays.fill(contacts, 0, size, null);
+			Arrays.fill(seen, 0, size, false);
+			size = 0;
+		}
+	}
+
+
+	public static DxPairManager dPairManagerCreate (DxSpace space, int maxContacts)
+	{
+		return new DxPairManager(space, maxContacts);
+	}
+
+
+	private DxPairManager (DxSpace space, int maxContacts)
+	{
+		dAASSERT (space);
+		dUASSERT (maxContacts > 0 && maxContacts <= DxGeom.NUMC_MASK,
+				"invalid number of contacts");
+		m_space = space;
+		m_maxContacts = maxContacts;
+	}
+
+
+	@Override
+	public void update (Object data, DPairListener listener)
+	{
+		dAASSERT (listener);
+		m_listener = listener;
+		m_reused = 0;
+		try {
+			CollideSpace(m_space, data);
+
+			// the pairs that were not reported again have ended
+			Pairs old = m_old;
+			for (int i = 0; i < old.size; i++) {
+				if (!old.seen[i]) {
+					if (old.touching[i]) {
+						listener.end(data, old.geom1[i], old.geom2[i]);
+					}
+					m_freeBuffers.add(old.contacts[i]);
+				}
+			}
+		} finally {
+			m_listener = null;
+			m_old.Clear();
+			Pairs p = m_old;
+			m_old = m_new;
+			m_new = p;
+			Rebuild();
+		}
+	}
+
+
+	/**
+	 * Collide a space and all spaces in it.
+	 */
+	private void CollideSpace (DxSpace space, Object data)
+	{
+		space.collide(data, this);
+		for (DxGeom g = space._first; g != null; g = g.getNext()) {
+			if (g instanceof DxSpace) {
+				CollideSpace((DxSpace) g, data);
+			}
+		}
+	}
+
+
+	/**
+	 * Near callback of the spaces.
+	 */
+	@Override
+	public void call (Object data, DGeom o1, DGeom o2)
+	{
+		if (o1 instanceof DSpace || o2 instanceof DSpace) {
+			// the geoms of a nested space with a geom or another space
+			DxSpace.dSpaceCollide2((DxGeom) o1, (DxGeom) o2, data, this);
+			return;
+		}
+		DxGeom g1 = (DxGeom) o1;
+		DxGeom g2 = (DxGeom) o2;
+		Pairs p = m_new;
+		int i = p.Add();
+		int old = Find(g1, g2);
+		if (old >= 0) {
+			// keep the order of the geoms and the contacts
+			Pairs o = m_old;
+			o.seen[old] = true;
+			p.geom1[i] = o.geom1[old];
+			p.geom2[i] = o.geom2[old];
+			p.contacts[i] = o.contacts[old];
+			p.count[i] = o.count[old];
+			p.touching[i] = o.touching[old];
+			System.arraycopy(o.xf, old * XF, p.xf, i * XF, XF);
+		} else {
+			p.geom1[i] = g1;
+			p.geom2[i] = g2;
+			int n = m_freeBuffers.size();
+			p.contacts[i] = n > 0 ? m_freeBuffers.remove(n - 1) :
+				new DContactGeomBuffer(m_maxContacts);
+			p.count[i] = -1;
+			p.touching[i] = false;
+		}
+		g1 = p.geom1[i];
+		g2 = p.geom2[i];
+
+		int xf = i * XF;
+		if (p.count[i] >= 0 && !Moved(g1, p.xf, xf) && !Moved(g2, p.xf, xf + 12)) {
+			m_reused++;
+		} else {
+			p.count[i] = DxGeom.dCollide(g1, g2, m_maxContacts, p.contacts[i], 1);
+			StoreTransform(g1, p.xf, xf);
+			StoreTransform(g2, p.xf, xf + 12);
+		}
+
+		int count = p.count[i];
+		if (count > 0) {
+			if (p.touching[i]) {
+				m_listener.persist(data, g1, g2, p.contacts[i], count);
+			} else {
+				p.touching[i] = true;
+				m_listener.begin(data, g1, g2, p.contacts[i], count);
+			}
+		} else if (p.touching[i]) {
+			p.touching[i] = false;
+			m_listener.end(data, g1, g2);
+		}
+	}
+
+
+	/**
+	 * @return Whether a geom has left the tolerances of the transform at
+	 * xf[ofs].
+	 */
+	private boolean Moved (DxGeom g, double[] xf, int ofs)
+	{
+		if (g._final_posr == null) {
+			// not placeable
+			return false;
+		}
+		g.recomputePosr();
+		DVector3C pos = g._final_posr.pos();
+		DMatrix3C R = g._final_posr.R();
+		double lin = m_linearTolerance;
+		double ang = m_angularTolerance;
+		for (int k = 0; k < 3; k++) {
+			if (Math.abs(pos.get(k) - xf[ofs + k]) > lin) {
+				return true;
+			}
+		}
+		for (int k = 0; k < 9; k++) {
+			if (Math.abs(R.get(k / 3, k % 3) - xf[ofs + 3 + k]) > ang) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+
+	private static void StoreTransform (DxGeom g, double[] xf, int ofs)
+	{
+		if (g._final_posr == null) {
+			return;
+		}
+		g.recomputePosr();
+		DVector3C pos = g._final_posr.pos();
+		DMatrix3C R = g._final_posr.R();
+		for (int k = 0; k < 3; k++) {
+			xf[ofs + k] = pos.get(k);
+		}
+		for (int k = 0; k < 9; k++) {
+			xf[ofs + 3 + k] = R.get(k / 3, k % 3);
+		}
+	}
+
+
+	//****************************************************************************
+	// table of the pairs of the last update
+
+	private static int Hash (DxGeom g1, DxGeom g2)
+	{
+		// symmetric, the spaces may report the geoms in either order
+		int h = System.identityHashCode(g1) + System.identityHashCode(g2);
+		h *= 0x85EBCA6B;
+		return h ^ (h >>> 16);
+	}
+
+
+	/**
+	 * @return The index of the pair of g1 and g2 in m_old, or -1.
+	 */
+	private int Find (DxGeom g1, DxGeom g2)
+	{
+		Pairs o = m_old;
+		int mask = m_table.length - 1;
+		int slot = Hash(g1, g2) & mask;
+		while (m_table[slot] != 0) {
+			int i = m_table[slot] - 1;
+			if ((o.geom1[i] == g1 && o.geom2[i] == g2) ||
+					(o.geom1[i] == g2 && o.geom2[i] == g1)) {
+				return i;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+
+	private void Rebuild ()
+	{
+		Pairs o = m_old;
+		int capacity = m_table.length;
+		while (o.size * 2 > capacity) {
+			capacity *= 2;
+		}
+		if (capacity != m_table.length) {
+			m_table = new int[capacity];
+		} else {
+			Arrays.fill(m_table, 0);
+		}
+		int mask = capacity - 1;
+		for (int i = 0; i < o.size; i++) {
+			int slot = Hash(o.geom1[i], o.geom2[i]) & mask;
+			while (m_table[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			m_table[slot] = i + 1;
+		}
+	}
+
+
+	// *********************************************
+	// dPairManager API
+	// *********************************************
+
+	@Override
+	public void setTolerance (double linear, double angular)
+	{
+		dUASSERT (linear >= 0 && angular >= 0, "tolerances must not be negative");
+		m_linearTolerance = linear;
+		m_angularTolerance = angular;
+	}
+
+	@Override
+	public double getLinearTolerance ()
+	{
+		return m_linearTolerance;
+	}
+
+	@Override
+	public double getAngularTolerance ()
+	{
+		return m_angularTolerance;
+	}
+
+	@Override
+	public void reset ()
+	{
+		Arrays.fill(m_old.count, 0, m_old.size, -1);
+	}
+
+	@Override
+	public int getPairCount ()
+	{
+		return m_old.size;
+	}
+
+	@Override
+	public int getReusedCount ()
+	{
+		return m_reused;
+	}
+
+	@Override
+	public DSpace getSpace ()
+	{
+		return m_space;
+	}
+}
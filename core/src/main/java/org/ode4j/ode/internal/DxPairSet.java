@@ -0,0 +1,201 @@
+/*************************************************************************
+ *                                                                       *
+ * Open Dynamics Engine, Copyright (C) 2001,2002 Russell L. Smith.       *
+ * All rights reserved.  Email: russ@q12.org   Web: www.q12.org          *
+ * Open Dynamics Engine 4J, Copyright (C) 2009-2014 Tilmann Zaeschke     *
+ * All rights reserved.  Email: ode4j@gmx.de   Web: www.ode4j.org        *
+ *                                                                       *
+ * This library is free software; you can redistribute it and/or         *
+ * modify it under the terms of EITHER:                                  *
+ *   (1) The GNU Lesser General Public License as published by the Free  *
+ *       Software Foundation; either version 2.1 of the License, or (at  *
+ *       your option) any later version. The text of the GNU Lesser      *
+ *       General Public License is included with this library in the     *
+ *       file LICENSE.TXT.                                               *
+ *   (2) The BSD-style license that is included with this library in     *
+ *       the file ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT.         *
+ *                                                                       *
+ * This library is distributed in the hope that it will be useful,       *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the files    *
+ * LICENSE.TXT, ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT for more   *
+ * details.                                                              *
+ *                                                                       *
+ *************************************************************************/
+package org.ode4j.ode.internal;
+
+import java.util.Arrays;
+
+/**
+ * Set of unordered pairs of non-negative ints, e.g. of proxy handles.
+ * <p>
+ * The pairs are kept in dense arrays, so they can be iterated by index,
+ * and are found through an open addressing hash table with linear probing.
+ * Removing a pair moves the last pair into its place, so the set does not
+ * create garbage after it has grown to its final size.
+ */
+final class DxPairSet {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	// dense index + 1 of the pair in each slot, 0 for empty slots
+	private int[] m_table = new int[INITIAL_CAPACITY * 2];
+	private int m_mask = m_table.length - 1;
+	// the pairs, with first < second
+	private int[] m_first = new int[INITIAL_CAPACITY];
+	private int[] m_second = new int[INITIAL_CAPACITY];
+	private int m_size = 0;
+
+	int Size ()
+	{
+		return m_size;
+	}
+
+	/** @return the smaller int of pair i */
+	int GetFirst (int i)
+	{
+		return m_first[i];
+	}
+
+	/** @return the larger int of pair i */
+	int GetSecond (int i)
+	{
+		return m_second[i];
+	}
+
+	void Clear ()
+	{
+		Arrays.fill(m_table, 0);
+		m_size = 0;
+	}
+
+	boolean Contains (int a, int b)
+	{
+		return FindSlot(Math.min(a, b), Math.max(a, b)) >= 0;
+	}
+
+	/**
+	 * @return <tt>false</tt> if the pair was already in the set.
+	 */
+	boolean Add (int a, int b)
+	{
+		int first = Math.min(a, b);
+		int second = Math.max(a, b);
+		int slot = Hash(first, second) & m_mask;
+		while (m_table[slot] != 0) {
+			int i = m_table[slot] - 1;
+			if (m_first[i] == first && m_second[i] == second) {
+				return false;
+			}
+			slot = (slot + 1) & m_mask;
+		}
+		if (m_size == m_first.length) {
+			m_first = Arrays.copyOf(m_first, m_size * 2);
+			m_second = Arrays.copyOf(m_second, m_size * 2);
+		}
+		m_first[m_size] = first;
+		m_second[m_size] = second;
+		m_size++;
+		m_table[slot] = m_size;
+		if (m_size * 2 > m_table.length) {
+			Rehash(m_table.length * 2);
+		}
+		return true;
+	}
+
+	/**
+	 * @return <tt>false</tt> if the pair was not in the set.
+	 */
+	boolean Remove (int a, int b)
+	{
+		int slot = FindSlot(Math.min(a, b), Math.max(a, b));
+		if (slot < 0) {
+			return false;
+		}
+		RemoveSlot(slot);
+		return true;
+	}
+
+	/**
+	 * Remove pair i. The last pair is moved to index i.
+	 */
+	void RemoveAt (int i)
+	{
+		RemoveSlot(FindSlot(m_first[i], m_second[i]));
+	}
+
+	private void RemoveSlot (int slot)
+	{
+		int i = m_table[slot] - 1;
+		DeleteSlot(slot);
+		// move the last pair into the gap
+		int last = m_size - 1;
+		if (i != last) {
+			int lastSlot = FindSlot(m_first[last], m_second[last]);
+			m_first[i] = m_first[last];
+			m_second[i] = m_second[last];
+			m_table[lastSlot] = i + 1;
+		}
+		m_size--;
+	}
+
+	/**
+	 * Empty a slot and shift the following entries back, so that no
+	 * tombstones are required.
+	 */
+	private void DeleteSlot (int slot)
+	{
+		int i = slot;
+		int j = i;
+		while (true) {
+			j = (j + 1) & m_mask;
+			int entry = m_table[j];
+			if (entry == 0) {
+				break;
+			}
+			int home = Hash(m_first[entry - 1], m_second[entry - 1]) & m_mask;
+			// move the entry back if its home is not cyclically in (i, j]
+			boolean inRange = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+			if (!inRange) {
+				m_table[i] = entry;
+				i = j;
+			}
+		}
+		m_table[i] = 0;
+	}
+
+	private int FindSlot (int first, int second)
+	{
+		int slot = Hash(first, second) & m_mask;
+		while (m_table[slot] != 0) {
+			int i = m_table[slot] - 1;
+			if (m_first[i] == first && m_second[i] == second) {
+				return slot;
+			}
+			slot = (slot + 1) & m_mask;
+		}
+		return -1;
+	}
+
+	private void Rehash (int capacity)
+	{
+		m_table = new int[capacity];
+		m_mask = capacity - 1;
+		for (int i = 0; i < m_size; i++) {
+			int slot = Hash(m_first[i], m_second[i]) & m_mask;
+			while (m_table[slot] != 0) {
+				slot = (slot + 1) & m_mask;
+			}
+			m_table[slot] = i + 1;
+		}
+	}
+
+	private static int Hash (int first, int second)
+	{
+		int h = first * 0x9E3779B9 + second;
+		h ^= h >>> 16;
+		h *= 0x85EBCA6B;
+		h ^= h >>> 13;
+		return h;
+	}
+}
@@ -199,7 +199,7 @@ public class DxQuadTreeSpace extends DxSpace implements DQuadTreeSpace {
 			DxGeom g = mFirst;
 			while (g != null){
 				if (GEOM_ENABLED(g)){
-					Collide(g, g.getNextEx(), UserData, Callback);
+					Collide(g, g.getNextEx(), UserData, Callback, skipSleepingPairs);
 				}
 				g = g.getNextEx();
 			}
@@ -217,16 +217,17 @@ public class DxQuadTreeSpace extends DxSpace implements DQuadTreeSpace {
 		}
 
 		// Note: g2 is assumed to be in this Block
+		// skip: skip pairs without active geom, see setSkipSleepingPairs()
 		//void Block::Collide(dxGeom* g1, dxGeom* g2, void* UserData, 
 		//dNearCallback* Callback){
 		void Collide(DxGeom g1, DxGeom g2, Object UserData, 
-				DNearCallback Callback){
+				DNearCallback Callback, boolean skip){
 			if (DRAWBLOCKS) {//#ifdef DRAWBLOCKS
 				DrawBlock(this);
 			}//#endif
 			// Collide against local list
 			while (g2!=null){
-				if (GEOM_ENABLED(g2)){
+				if (GEOM_ENABLED(g2) && !(skip && SKIP_PAIR(g1, g2))){
 					collideAABBs (g1, g2, UserData, Callback);
 				}
 				g2 = g2.getNextEx();
@@ -256,7 +257,7 @@ public class DxQuadTreeSpace extends DxSpace implements DQuadTreeSpace {
 								g1._aabb.getMin(AXIS1) >= CurrentChild.mMaxZ ||
 								g1._aabb.getMax(AXIS1) < CurrentChild.mMinZ) continue;
 					}
-					CurrentChild.Collide(g1, CurrentChild.mFirst, UserData, Callback);
+					CurrentChild.Collide(g1, CurrentChild.mFirst, UserData, Callback, skip);
 				}
 			}
 		}
@@ -616,7 +617,7 @@ public class DxQuadTreeSpace extends DxSpace implements DQuadTreeSpace {
 
 			// Collide against block and its children
 			DataCallback dc = new DataCallback(UserData, Callback);
-			CurrentBlock.Collide(g2, CurrentBlock.mFirst, dc, swap_callback);
+			CurrentBlock.Collide(g2, CurrentBlock.mFirst, dc, swap_callback, false);
 
 			// Collide against parents
 			while ((CurrentBlock = CurrentBlock.mParent) != null)
@@ -625,7 +626,7 @@ public class DxQuadTreeSpace extends DxSpace implements DQuadTreeSpace {
 		}
 		else {
 			DataCallback dc = new DataCallback(UserData, Callback);
-			Blocks[0].Collide(g2, Blocks[0].mFirst, dc, swap_callback);
+			Blocks[0].Collide(g2, Blocks[0].mFirst, dc, swap_callback, false);
 		}
 
 		lock_count--;
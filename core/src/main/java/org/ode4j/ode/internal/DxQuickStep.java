@@ -46,11 +46,8 @@ import static org.ode4j.ode.internal.Timer.dTimerStart;
 import static org.ode4j.ode.internal.cpp4j.Cstdio.stdout;
 import static org.ode4j.ode.internal.QuickStepEnums.*;
 
-import java.util.Arrays;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.ode4j.math.DMatrix3;
 import org.ode4j.math.DVector3;
@@ -58,11 +55,11 @@ import org.ode4j.ode.DJoint;
 import org.ode4j.ode.internal.Objects_H.dxQuickStepParameters;
 import org.ode4j.ode.internal.cpp4j.java.Ref;
 import org.ode4j.ode.internal.joints.DxJoint;
+import org.ode4j.ode.internal.joints.DxJointContact;
 import org.ode4j.ode.internal.joints.Info2DescrQuickStep;
 import org.ode4j.ode.internal.processmem.DxStepperProcessingCallContext;
 import org.ode4j.ode.internal.processmem.DxStepperProcessingCallContext.dmaxcallcountestimate_fn_t;
 import org.ode4j.ode.internal.processmem.DxStepperProcessingCallContext.dstepper_fn_t;
-import org.ode4j.ode.internal.processmem.DxUtil.BlockPointer;
 import org.ode4j.ode.internal.processmem.DxWorldProcessIslandsInfo.dmemestimate_fn_t;
 import org.ode4j.ode.internal.processmem.DxWorldProcessMemArena;
 import org.ode4j.ode.threading.ThreadingUtils;
@@ -77,15 +74,15 @@ import org.ode4j.ode.threading.Threading_H.dThreadedCallFunction;
 public class DxQuickStep extends AbstractStepper implements dstepper_fn_t,
 dmemestimate_fn_t, dmaxcallcountestimate_fn_t {
 
-	//TODO evaluate this
 	/**
-	 * Experimental improvement to reduce GC, see issue #36
+	 * Experimental improvement to reduce GC, see issue #36.
+	 * @deprecated This has no effect any more. The stepper now always reuses 
+	 * its arrays and context objects (they are pooled in the stepper memory 
+	 * arena), so stepping doesn't allocate once the world has been stepped 
+	 * a few times.
 	 */
+	@Deprecated
 	public static boolean REUSE_OBJECTS = false;
-	
-	public static final int THREADS = 4;
-	static final ThreadPoolExecutor POOL = new ThreadPoolExecutor(
-			THREADS, THREADS, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
 
 	//TZ where is this defined???
     private static final boolean CHECK_VELOCITY_OBEYS_CONSTRAINT = false;
@@ -115,6 +112,14 @@ dmemestimate_fn_t, dmaxcallcountestimate_fn_t {
 	 */
 	//not defined because 'ifdef 0' around 'multiply_invM_JT' causes comp error.
 	//private static boolean WARM_STARTING = false;
+	//TZ Warm starting is enabled per world, see dxQuickStepParameters.warm_starting.
+	//Contact joints are matched with the ones of the previous step by DxContactCache.
+	/**
+	 * Part of the last step's lambda that is used as starting value.
+	 * (TZ) ODE used 0.9, which lets long chains and stacks oscillate
+	 * at low iteration counts.
+	 */
+	private static final double WARM_STARTING_FACTOR = 0.7;
 
 	/** for the SOR method:
 	 * uncomment the following line to determine a new constraint-solving
@@ -232,7 +237,7 @@ dmemestimate_fn_t, dmaxcallcountestimate_fn_t {
 	private static class dxQuickStepperStage1CallContext implements CallContext
 	{
 		void Initialize(DxStepperProcessingCallContext stepperCallContext, 
-				BlockPointer stageMemArenaState, double[] invI, DJointWithInfo1[] jointinfos)
+				int stageMemArenaState, double[] invI, DJointWithInfo1[] jointinfos)
 		{
 			m_stepperCallContext = stepperCallContext;
 			m_stageMemArenaState = stageMemArenaState; 
@@ -241,10 +246,12 @@ dmemestimate_fn_t, dmaxcallcountestimate_fn_t {
 		}
 
 		DxStepperProcessingCallContext m_stepperCallContext;
-		BlockPointer                       m_stageMemArenaState;
+		int                                m_stageMemArenaState;
 		double[]                           m_invI;
 		DJointWithInfo1[]                 m_jointinfos;
 		final dxQuickStepperStage0Outputs     m_stage0Outputs = new dxQuickStepperStage0Outputs();
+		//TZ holder for the releasee of stage 1, reused with the context
+		final Ref<DCallReleasee>           m_stage1CallReleasee = new Ref<DCallReleasee>();
 	}
 
 	private static class dxQuickStepperStage0BodiesCallContext implements CallContext
@@ -254,9 +261,9 @@ dmemestimate_fn_t, dmaxcallcountestimate_fn_t {
 		{
 			m_stepperCallContext = stepperCallContext;
 			m_invI = invI;
-			//m_tagsTaken = 0;
-			//m_gravityTaken = 0;
-			//m_inertiaBodyIndex = 0;
+			m_tagsTaken.set(0);
+			m_gravityTaken.set(0);
+			m_inertiaBodyIndex.set(0);
 		}
 
 		DxStepperProcessingCallContext m_stepperCallContext;
@@ -328,7 +335,7 @@ dmemestimate_fn_t, dmaxcallcountestimate_fn_t {
 	{
 		void Initialize(DxStepperProcessingCallContext callContext, 
 				dxQuickStepperLocalContext localContext, 
-				BlockPointer stage1MemArenaState)
+				int stage1MemArenaState)
 		{
 			m_stepperCallContext = callContext;
 			m_localContext = localContext;
@@ -337,27 +344,50 @@ dmemestimate_fn_t, dmaxcallcountestimate_fn_t {
 
 		DxStepperProcessingCallContext m_stepperCallContext;
 		dxQuickStepperLocalContext   m_localContext;
-		BlockPointer                            m_stage1MemArenaState;
+		int                                     m_stage1MemArenaState;
+		//TZ holder for the releasee of stage 3, reused with the context
+		final Ref<DCallReleasee>                m_stage3CallReleasee = new Ref<DCallReleasee>();
+	};
+
+	//TZ The velocity update and integration were part of stage 3 and serial. 
+	//They only touch one body at a time, so they run as a separate stage, split by body.
+	private static class dxQuickStepperStage4CallContext implements CallContext
+	{
+		void Initialize(DxStepperProcessingCallContext callContext, 
+				double[] invI, double[] cforce)
+		{
+			m_stepperCallContext = callContext;
+			m_invI = invI;
+			m_cforce = cforce;
+			m_bi.set(0);
+		}
+
+		DxStepperProcessingCallContext m_stepperCallContext;
+		double[]                           m_invI;
+		double[]                           m_cforce;
+		final AtomicInteger           m_bi = new AtomicInteger();
 	};
 
 	private static class dxQuickStepperStage2CallContext implements CallContext
 	{
 		void Initialize(DxStepperProcessingCallContext callContext, 
 				dxQuickStepperLocalContext localContext, 
-				double[] rhs_tmp)
+				double[] rhs_tmp, Info2DescrQuickStep[] Jinfos)
 		{
 			m_stepperCallContext = callContext;
 			m_localContext = localContext;
 			m_rhs_tmp = rhs_tmp;
-			//m_ji_J = 0;
-			//m_ji_jb = 0;
-			//m_bi = 0;
-			//m_Jrhsi = 0;
+			m_Jinfos = Jinfos;
+			m_ji_J.set(0);
+			m_ji_jb.set(0);
+			m_bi.set(0);
+			m_Jrhsi.set(0);
 		}
 
 		DxStepperProcessingCallContext m_stepperCallContext;
 		dxQuickStepperLocalContext   m_localContext;
 		double[]                           m_rhs_tmp;
+		Info2DescrQuickStep[]              m_Jinfos; // one per thread of stage 2a
 //		volatile unsigned int           m_ji_J;
 //		volatile unsigned int           m_ji_jb;
 //		volatile unsigned int           m_bi;
@@ -366,6 +396,9 @@ dmemestimate_fn_t, dmaxcallcountestimate_fn_t {
 		final AtomicInteger           m_ji_jb = new AtomicInteger();
 		final AtomicInteger           m_bi = new AtomicInteger();
 		final AtomicInteger           m_Jrhsi = new AtomicInteger();
+		//TZ holders for the releasees of the sync calls, reused with the context
+		final Ref<DCallReleasee>      m_stage2aSyncReleasee = new Ref<DCallReleasee>();
+		final Ref<DCallReleasee>      m_stage2bSyncReleasee = new Ref<DCallReleasee>();
 	};
 
 	//static int dxQuickStepIsland_Stage2a_Callback(void *callContext, dcallindex_t callInstanceIndex, dCallReleaseeID callThisReleasee);
@@ -374,11 +407,13 @@ dmemestimate_fn_t, dmaxcallcountestimate_fn_t {
 	//static int dxQuickStepIsland_Stage2bSync_Callback(void *callContext, dcallindex_t callInstanceIndex, dCallReleaseeID callThisReleasee);
 	//static int dxQuickStepIsland_Stage2c_Callback(void *callContext, dcallindex_t callInstanceIndex, dCallReleaseeID callThisReleasee);
 	//static int dxQuickStepIsland_Stage3_Callback(void *callContext, dcallindex_t callInstanceIndex, dCallReleaseeID callThisReleasee);
+	//static int dxQuickStepIsland_Stage4_Callback(void *callContext, dcallindex_t callInstanceIndex, dCallReleaseeID callThisReleasee);
 
 	//static void dxQuickStepIsland_Stage2a(dxQuickStepperStage2CallContext *callContext);
 	//static void dxQuickStepIsland_Stage2b(dxQuickStepperStage2CallContext *callContext);
 	//static void dxQuickStepIsland_Stage2c(dxQuickStepperStage2CallContext *callContext);
 	//static void dxQuickStepIsland_Stage3(dxQuickStepperStage3CallContext *callContext);
+	//static void dxQuickStepIsland_Stage4(dxQuickStepperStage4CallContext *callContext);
 
 
 	//***************************************************************************
@@ -421,27 +456,27 @@ dmemestimate_fn_t, dmaxcallcountestimate_fn_t {
 	//#if WARM_STARTING
 	//static void multiply_invM_JT (int m, int nb, dRealMutablePtr iMJ, int[] *jb,
 	//		dRealMutablePtr in, dRealMutablePtr out)
-//	private static void multiply_invM_JT (int m, int nb, double[] iMJ, int[] jb,
-//			double[] in, double[] out)
-//	{
-//		dSetZero (out,6*nb);
-//		int iMJ_ofs = 0;//final double[] iMJ_ptr = iMJ;
-//		for (int i=0; i<m; i++) {
-//			int b1 = jb[i*2];
-//			int b2 = jb[i*2+1];
-//			final double in_i = in[i];
-//			int out_ofs = b1*6;//double[] out_ptr = out + b1*6;
-//			//for (j=0; j<6; j++) out_ptr[j] += iMJ_ptr[j] * in[i];
-//			for (int j=0; j<6; j++) out[j + out_ofs] += iMJ[j + iMJ_ofs] * in_i;
-//			iMJ_ofs +=6;//iMJ_ptr += 6;
-//			if (b2 != -1) {
-//				out_ofs = b2*6;//out_ptr = out + b2*6;
-//				//for (j=0; j<6; j++) out_ptr[j] += iMJ_ptr[j] * in[i];
-//				for (int j=0; j<6; j++) out[j + out_ofs] += iMJ[j + iMJ_ofs] * in_i;
-//			}
-//			iMJ_ofs +=6;//iMJ_ptr += 6;
-//		}
-//	}
+	private static void multiply_invM_JT (int m, int nb, double[] iMJ, int[] jb,
+			double[] in, double[] out)
+	{
+		dSetZero (out,6*nb);
+		int iMJ_ofs = 0;//final double[] iMJ_ptr = iMJ;
+		for (int i=0; i<m; i++) {
+			int b1 = jb[i*2];
+			int b2 = jb[i*2+1];
+			final double in_i = in[i];
+			int out_ofs = b1*6;//double[] out_ptr = out + b1*6;
+			//for (j=0; j<6; j++) out_ptr[j] += iMJ_ptr[j] * in[i];
+			for (int j=0; j<6; j++) out[j + out_ofs] += iMJ[j + iMJ_ofs] * in_i;
+			iMJ_ofs +=6;//iMJ_ptr += 6;
+			if (b2 != -1) {
+				out_ofs = b2*6;//out_ptr = out + b2*6;
+				//for (j=0; j<6; j++) out_ptr[j] += iMJ_ptr[j] * in[i];
+				for (int j=0; j<6; j++) out[j + out_ofs] += iMJ[j + iMJ_ofs] * in_i;
+			}
+			iMJ_ofs +=6;//iMJ_ptr += 6;
+		}
+	}
 	//#endif
 
 	/** 
@@ -639,11 +674,13 @@ dmemestimate_fn_t, dmaxcallcountestimate_fn_t {
 	// b, lo and hi are modified on exit
 
 
-	private static class IndexError {
+	//TZ Without REORDER_CONSTRAINTS only the row index is used, so the order 
+	//is a plain int[] of row indices instead of an array of IndexError objects.
+//	private static class IndexError {
 //		double error;		// error to sort on
 //		int findex;
-		int index;		// row index
-	}
+//		int index;		// row index
+//	}
 
 
 	//#ifdef REORDER_CONSTRAINTS
@@ -687,72 +724,19 @@ dmemestimate_fn_t, dmaxcallcountestimate_fn_t {
 	//		dRealPtr invI, dRealMutablePtr lambda, dRealMutablePtr fc, dRealMutablePtr b,
 	//		dRealMutablePtr lo, dRealMutablePtr hi, dRealPtr cfm, int *findex,
 	//		dxQuickStepParameters *qs)
-	private static void SOR_LCP (DxWorldProcessMemArena memarena,
+	/**
+	 * @return the number of iterations performed
+	 */
+	private static int SOR_LCP (DxWorldProcessMemArena memarena,
 	        final int m, final int nb, double[] J, int[] jb, final DxBody []bodyP,
 	        final int bodyOfs, final double[] invI, double[] lambda, double[] fc, 
 			final int []findex, dxQuickStepParameters qs)
 	{
-		//TZ not defined
-//		if (WARM_STARTING) {//#ifdef WARM_STARTING
-//			// for warm starting, this seems to be necessary to prevent
-//			// jerkiness in motor-driven joints. i have no idea why this works.
-//			for (int i=0; i<m; i++) lambda[i] *= 0.9;
-//		} else { //#else
-			dSetZero (lambda,m);
-//		}//#endif
-
-		// precompute iMJ = inv(M)*J'
-		//double[] iMJ = new double[m*12];//dRealAllocaArray (iMJ,m*12);
-		double[] iMJ = memarena.AllocateArrayDReal (m*12);
-		compute_invM_JT (m,J,iMJ,jb,bodyP,bodyOfs,invI);
-
-		// compute fc=(inv(M)*J')*lambda. we will incrementally maintain fc
-		// as we change lambda.
-		//not defined:
-//		if (WARM_STARTING) {//TZ #ifdef WARM_STARTING
-//			throw new UnsupportedOperationException();
-//			//multiply_invM_JT (m,nb,iMJ,jb,lambda,fc);
-//		} else {//#else
-		//TODO (TZ) should not be necessary (is created just before given to this method)
-			dSetZero (fc,nb*6);
-//		}//#endif
-
-        {
-            final double sor_w = qs.w;      // SOR over-relaxation parameter
-            // precompute 1 / diagonals of A
-            int iMJ_ofs = 0;//final double[] iMJ_ptr = iMJ;
-            int j_ptr = 0;//double[] J_ptr = J;
-            for (int i=0; i<m; i++ ) {
-                double sum = 0;
-                for (int j=JVE__MIN; j != JVE__MAX; j++) sum += iMJ[iMJ_ofs + j + IMJ__1_MIN] * J[j_ptr + j + JME__J1_MIN];
-                int b2 = jb[i*2+1];
-                if (b2 != -1) {
-                    for (int j=JVE__MIN; j != JVE__MAX; j++) sum += iMJ[iMJ_ofs + j + IMJ__2_MIN] * J[j_ptr + j + JME__J2_MIN];
-                }
-                double cfm_i = J[j_ptr + JME_CFM];
-                double Ad_i = sor_w / (sum + cfm_i);
-
-                // NOTE: This may seem unnecessary but it's indeed an optimization 
-                // to move multiplication by Ad[i] and cfm[i] out of iteration loop.
-                
-                // scale J and b by Ad
-                J[j_ptr + JME_CFM] = cfm_i * Ad_i;
-                J[j_ptr + JME_RHS] *= Ad_i;
-
-                for (int j = JVE__MIN; j != JVE__MAX; ++j) J[j_ptr + JME__J1_MIN + j] *= Ad_i;
-
-                if (b2 != -1) {
-                    for (int k = JVE__MIN; k != JVE__MAX; ++k) J[j_ptr + JME__J2_MIN + k] *= Ad_i;
-                }
-                iMJ_ofs += IMJ__MAX;
-                j_ptr += JME__MAX;
-            }
-        }
+		double[] iMJ = SOR_LCP_Prepare(memarena,m,nb,J,jb,bodyP,bodyOfs,invI,lambda,fc,qs);
 
 		// order to solve constraint rows in
 		//IndexError *order = (IndexError*) ALLOCA (m*sizeof(IndexError));
-		IndexError[] order = new IndexError[m];
-		for (int iii=0; iii<m; iii++) order[iii] = new IndexError();
+		int[] order = memarena.AllocateArrayInt(m);
 		int head_size = 0;
 
 		if (!REORDER_CONSTRAINTS) {//TZ #ifndef REORDER_CONSTRAINTS
@@ -763,10 +747,10 @@ dmemestimate_fn_t, dmaxcallcountestimate_fn_t {
 		    // Fill the array from both ends
 		    for (int i=0; i<m; i++) {
 		        if (findex[i] == -1) {
-		            order[orderhead].index = i; // Place them at the front
+		            order[orderhead] = i; // Place them at the front
 		            ++orderhead;
 		        } else {
-		            order[ordertail].index = i; // Place them at the end
+		            order[ordertail] = i; // Place them at the end
 		            --ordertail;
 		        }
 		    }
@@ -782,6 +766,7 @@ dmemestimate_fn_t, dmaxcallcountestimate_fn_t {
 		
 		
 		final int num_iterations = qs.num_iterations;
+		final double tolerance = qs.tolerance;
 		for (int iteration=0; iteration < num_iterations; iteration++) {
 
 			//TODO commented out for now because it's 'false'
@@ -832,146 +817,495 @@ dmemestimate_fn_t, dmaxcallcountestimate_fn_t {
 				if ((iteration & 7) == 0) {
 					for (int i=1; i<head_size; i++) {
 					    int swapi = dRandInt(i+1);
-                        IndexError tmp = order[i];
+                        int tmp = order[i];
 						order[i] = order[swapi];
 						order[swapi] = tmp;
 					}
 		            int tail_size = m - head_size;
 		            for (int j=1; j<tail_size; j++) {
 		                int swapj = dRandInt(j+1);
-		                IndexError tmp = order[head_size + j];
+		                int tmp = order[head_size + j];
 		                order[head_size + j] = order[head_size + swapj];
 		                order[head_size + swapj] = tmp;
 		            }
 				}
 			}//#endif
 
+			double max_delta = 0;
 			for (int i=0; i<m; i++) {
 				// @@@ potential optimization: we could pre-sort J and iMJ, thereby
 				//     linearizing access to those arrays. hmmm, this does not seem
 				//     like a win, but we should think carefully about our memory
 				//     access pattern.
-				int index = order[i].index;
-				int j_ofs = index * JME__MAX;
-				double delta;
-				final int NULL = -1;
-				
-			    int b1 = jb[index*2];
-			    int b2 = jb[index*2+1];
-		        int fc_ofs1 = b1 * CFE__MAX;
-		        int fc_ofs2 = (b2 != -1) ? b2 * CFE__MAX : NULL;
-
-				double old_lambda = lambda[index];
-
-			    delta = J[j_ofs + JME_RHS] - old_lambda * J[j_ofs + JME_CFM];
-
-			    //dRealPtr J_ptr = J + index*12;
-			    final int J_ofs = index * JME__MAX;
-			    // @@@ potential optimization: SIMD-ize this and the b2 >= 0 case
-		        delta -= fc[fc_ofs1 + CFE_LX] * J[J_ofs + JME_J1LX] + fc[fc_ofs1 + CFE_LY] * J[J_ofs + JME_J1LY] +
-		        		fc[fc_ofs1 + CFE_LZ] * J[J_ofs + JME_J1LZ] + fc[fc_ofs1 + CFE_AX] * J[J_ofs + JME_J1AX] +
-		        		fc[fc_ofs1 + CFE_AY] * J[J_ofs + JME_J1AY] + fc[fc_ofs1 + CFE_AZ] * J[J_ofs + JME_J1AZ];
-		        // @@@ potential optimization: handle 1-body constraints in a separate
-			    // @@@ potential optimization: handle 1-body constraints in a separate
-			    //     loop to avoid the cost of test & jump?
-			    if (fc_ofs2 != NULL) {
-			        delta -= fc[fc_ofs2 + CFE_LX] * J[J_ofs + JME_J2LX] + fc[fc_ofs2 + CFE_LY] * J[J_ofs + JME_J2LY] +
-			        		fc[fc_ofs2 + CFE_LZ] * J[J_ofs + JME_J2LZ] + fc[fc_ofs2 + CFE_AX] * J[J_ofs + JME_J2AX] +
-			        		fc[fc_ofs2 + CFE_AY] * J[J_ofs + JME_J2AY] + fc[fc_ofs2 + CFE_AZ] * J[J_ofs + JME_J2AZ];
-			    }
-
-			    double hi_act, lo_act;
-			
-			    // set the limits for this constraint. note that 'hicopy' is used.
-			    // this is the place where the QuickStep method differs from the
-			    // direct LCP solving method, since that method only performs this
-			    // limit adjustment once per time step, whereas this method performs
-			    // once per iteration per constraint row.
-			    // the constraints are ordered so that all lambda[] values needed have
-			    // already been computed.
-			    if (findex[index] != -1) {
-			        hi_act = dFabs (J[j_ofs + JME_HI] * lambda[findex[index]]);
-			        lo_act = -hi_act;
-			    } else {
-			        hi_act = J[j_ofs + JME_HI];
-			        lo_act = J[j_ofs + JME_LO];
-			    }
-
-			    // compute lambda and clamp it to [lo,hi].
-			    // @@@ potential optimization: does SSE have clamping instructions
-			    //     to save test+jump penalties here?
-			    double new_lambda = old_lambda + delta;
-			    if (new_lambda < lo_act) {
-			        delta = lo_act-old_lambda;
-			        lambda[index] = lo_act;
-			    }
-			    else if (new_lambda > hi_act) {
-			        delta = hi_act-old_lambda;
-			        lambda[index] = hi_act;
-			    }
-			    else {
-			        lambda[index] = new_lambda;
-			    }
-
-				//@@@ a trick that may or may not help
-				//dReal ramp = (1-((dReal)(iteration+1)/(dReal)num_iterations));
-				//delta *= ramp;
-
-			    final int iMJ_ofs = index*IMJ__MAX; //dRealPtr iMJ_ptr = iMJ + (size_t)index*12;
-				// update fc.
-				// @@@ potential optimization: SIMD for this and the b2 >= 0 case
-			    fc[fc_ofs1 + CFE_LX] += delta * iMJ[iMJ_ofs + 0];//fc_ptr[0] += delta * iMJ_ptr[0];
-				fc[fc_ofs1 + CFE_LY] += delta * iMJ[iMJ_ofs + 1];//fc_ptr[1] += delta * iMJ_ptr[1];
-				fc[fc_ofs1 + CFE_LZ] += delta * iMJ[iMJ_ofs + 2];//fc_ptr[2] += delta * iMJ_ptr[2];
-				fc[fc_ofs1 + CFE_AX] += delta * iMJ[iMJ_ofs + 3];//fc_ptr[3] += delta * iMJ_ptr[3];
-				fc[fc_ofs1 + CFE_AY] += delta * iMJ[iMJ_ofs + 4];//fc_ptr[4] += delta * iMJ_ptr[4];
-				fc[fc_ofs1 + CFE_AZ] += delta * iMJ[iMJ_ofs + 5];//fc_ptr[5] += delta * iMJ_ptr[5];
-				// @@@ potential optimization: handle 1-body constraints in a separate
-				//     loop to avoid the cost of test & jump?
-				if (fc_ofs2 != NULL) {
-					fc[fc_ofs2 + CFE_LX] += delta * iMJ[iMJ_ofs + 6];//fc_ptr[0] += delta * iMJ_ptr[6];
-					fc[fc_ofs2 + CFE_LY] += delta * iMJ[iMJ_ofs + 7];//fc_ptr[1] += delta * iMJ_ptr[7];
-					fc[fc_ofs2 + CFE_LZ] += delta * iMJ[iMJ_ofs + 8];//fc_ptr[2] += delta * iMJ_ptr[8];
-					fc[fc_ofs2 + CFE_AX] += delta * iMJ[iMJ_ofs + 9];//fc_ptr[3] += delta * iMJ_ptr[9];
-					fc[fc_ofs2 + CFE_AY] += delta * iMJ[iMJ_ofs + 10];//fc_ptr[4] += delta * iMJ_ptr[10];
-					fc[fc_ofs2 + CFE_AZ] += delta * iMJ[iMJ_ofs + 11];//fc_ptr[5] += delta * iMJ_ptr[11];
-				}
+				double delta = dFabs(SOR_LCP_Row(order[i], J, jb, iMJ, lambda, fc, findex));
+				if (delta > max_delta) max_delta = delta;
+			}
+			if (tolerance > 0 && iteration + 1 >= qs.min_iterations && max_delta <= tolerance) {
+				return iteration + 1;
 			}
 		}
+		return num_iterations;
 	}
 
+	/**
+	 * Prepares J and the returned iMJ for the SOR iterations and zeroes lambda 
+	 * and fc. This is shared by the serial and the coloured solver.
+	 */
+	private static double[] SOR_LCP_Prepare (DxWorldProcessMemArena memarena,
+	        final int m, final int nb, double[] J, int[] jb, final DxBody []bodyP,
+	        final int bodyOfs, final double[] invI, double[] lambda, double[] fc, 
+			dxQuickStepParameters qs)
+	{
+		if (qs.warm_starting) {//#ifdef WARM_STARTING
+			// for warm starting, this seems to be necessary to prevent
+			// jerkiness in motor-driven joints. i have no idea why this works.
+			for (int i=0; i<m; i++) lambda[i] *= WARM_STARTING_FACTOR;
+		} else { //#else
+			dSetZero (lambda,m);
+		}//#endif
+
+		// precompute iMJ = inv(M)*J'
+		//double[] iMJ = new double[m*12];//dRealAllocaArray (iMJ,m*12);
+		double[] iMJ = memarena.AllocateArrayDReal (m*12);
+		compute_invM_JT (m,J,iMJ,jb,bodyP,bodyOfs,invI);
+
+		// compute fc=(inv(M)*J')*lambda. we will incrementally maintain fc
+		// as we change lambda.
+		if (qs.warm_starting) {//TZ #ifdef WARM_STARTING
+			multiply_invM_JT (m,nb,iMJ,jb,lambda,fc);
+		} else {//#else
+		//TODO (TZ) should not be necessary (is created just before given to this method)
+			dSetZero (fc,nb*6);
+		}//#endif
+
+        {
+            final double sor_w = qs.w;      // SOR over-relaxation parameter
+            // precompute 1 / diagonals of A
+            int iMJ_ofs = 0;//final double[] iMJ_ptr = iMJ;
+            int j_ptr = 0;//double[] J_ptr = J;
+            for (int i=0; i<m; i++ ) {
+                double sum = 0;
+                for (int j=JVE__MIN; j != JVE__MAX; j++) sum += iMJ[iMJ_ofs + j + IMJ__1_MIN] * J[j_ptr + j + JME__J1_MIN];
+                int b2 = jb[i*2+1];
+                if (b2 != -1) {
+                    for (int j=JVE__MIN; j != JVE__MAX; j++) sum += iMJ[iMJ_ofs + j + IMJ__2_MIN] * J[j_ptr + j + JME__J2_MIN];
+                }
+                double cfm_i = J[j_ptr + JME_CFM];
+                double Ad_i = sor_w / (sum + cfm_i);
+
+                // NOTE: This may seem unnecessary but it's indeed an optimization 
+                // to move multiplication by Ad[i] and cfm[i] out of iteration loop.
+                
+                // scale J and b by Ad
+                J[j_ptr + JME_CFM] = cfm_i * Ad_i;
+                J[j_ptr + JME_RHS] *= Ad_i;
+
+                for (int j = JVE__MIN; j != JVE__MAX; ++j) J[j_ptr + JME__J1_MIN + j] *= Ad_i;
+
+                if (b2 != -1) {
+                    for (int k = JVE__MIN; k != JVE__MAX; ++k) J[j_ptr + JME__J2_MIN + k] *= Ad_i;
+                }
+                iMJ_ofs += IMJ__MAX;
+                j_ptr += JME__MAX;
+            }
+        }
+
+		return iMJ;
+	}
+
+	/**
+	 * Performs one SOR update of constraint row <tt>index</tt>.
+	 * @return the change of <tt>lambda[index]</tt>
+	 */
+	private static double SOR_LCP_Row (final int index, final double[] J, final int[] jb, 
+			final double[] iMJ, double[] lambda, double[] fc, final int[] findex)
+	{
+		int j_ofs = index * JME__MAX;
+		double delta;
+		final int NULL = -1;
+		
+	    int b1 = jb[index*2];
+	    int b2 = jb[index*2+1];
+        int fc_ofs1 = b1 * CFE__MAX;
+        int fc_ofs2 = (b2 != -1) ? b2 * CFE__MAX : NULL;
+
+		double old_lambda = lambda[index];
+
+	    delta = J[j_ofs + JME_RHS] - old_lambda * J[j_ofs + JME_CFM];
+
+	    //dRealPtr J_ptr = J + index*12;
+	    final int J_ofs = index * JME__MAX;
+	    // @@@ potential optimization: SIMD-ize this and the b2 >= 0 case
+        delta -= fc[fc_ofs1 + CFE_LX] * J[J_ofs + JME_J1LX] + fc[fc_ofs1 + CFE_LY] * J[J_ofs + JME_J1LY] +
+        		fc[fc_ofs1 + CFE_LZ] * J[J_ofs + JME_J1LZ] + fc[fc_ofs1 + CFE_AX] * J[J_ofs + JME_J1AX] +
+        		fc[fc_ofs1 + CFE_AY] * J[J_ofs + JME_J1AY] + fc[fc_ofs1 + CFE_AZ] * J[J_ofs + JME_J1AZ];
+        // @@@ potential optimization: handle 1-body constraints in a separate
+	    // @@@ potential optimization: handle 1-body constraints in a separate
+	    //     loop to avoid the cost of test & jump?
+	    if (fc_ofs2 != NULL) {
+	        delta -= fc[fc_ofs2 + CFE_LX] * J[J_ofs + JME_J2LX] + fc[fc_ofs2 + CFE_LY] * J[J_ofs + JME_J2LY] +
+	        		fc[fc_ofs2 + CFE_LZ] * J[J_ofs + JME_J2LZ] + fc[fc_ofs2 + CFE_AX] * J[J_ofs + JME_J2AX] +
+	        		fc[fc_ofs2 + CFE_AY] * J[J_ofs + JME_J2AY] + fc[fc_ofs2 + CFE_AZ] * J[J_ofs + JME_J2AZ];
+	    }
+
+	    double hi_act, lo_act;
 	
-	private double[] buf_invI = new double[100];
-	private double[] ensureSize_invI(int size) {
-		if (buf_invI.length < size || !REUSE_OBJECTS) {
-			buf_invI = new double[size];
-		} else {
-			Arrays.fill(buf_invI, 0);
+	    // set the limits for this constraint. note that 'hicopy' is used.
+	    // this is the place where the QuickStep method differs from the
+	    // direct LCP solving method, since that method only performs this
+	    // limit adjustment once per time step, whereas this method performs
+	    // once per iteration per constraint row.
+	    // the constraints are ordered so that all lambda[] values needed have
+	    // already been computed.
+	    if (findex[index] != -1) {
+	        hi_act = dFabs (J[j_ofs + JME_HI] * lambda[findex[index]]);
+	        lo_act = -hi_act;
+	    } else {
+	        hi_act = J[j_ofs + JME_HI];
+	        lo_act = J[j_ofs + JME_LO];
+	    }
+
+	    // compute lambda and clamp it to [lo,hi].
+	    // @@@ potential optimization: does SSE have clamping instructions
+	    //     to save test+jump penalties here?
+	    double new_lambda = old_lambda + delta;
+	    if (new_lambda < lo_act) {
+	        delta = lo_act-old_lambda;
+	        lambda[index] = lo_act;
+	    }
+	    else if (new_lambda > hi_act) {
+	        delta = hi_act-old_lambda;
+	        lambda[index] = hi_act;
+	    }
+	    else {
+	        lambda[index] = new_lambda;
+	    }
+
+		//@@@ a trick that may or may not help
+		//dReal ramp = (1-((dReal)(iteration+1)/(dReal)num_iterations));
+		//delta *= ramp;
+
+	    final int iMJ_ofs = index*IMJ__MAX; //dRealPtr iMJ_ptr = iMJ + (size_t)index*12;
+		// update fc.
+		// @@@ potential optimization: SIMD for this and the b2 >= 0 case
+	    fc[fc_ofs1 + CFE_LX] += delta * iMJ[iMJ_ofs + 0];//fc_ptr[0] += delta * iMJ_ptr[0];
+		fc[fc_ofs1 + CFE_LY] += delta * iMJ[iMJ_ofs + 1];//fc_ptr[1] += delta * iMJ_ptr[1];
+		fc[fc_ofs1 + CFE_LZ] += delta * iMJ[iMJ_ofs + 2];//fc_ptr[2] += delta * iMJ_ptr[2];
+		fc[fc_ofs1 + CFE_AX] += delta * iMJ[iMJ_ofs + 3];//fc_ptr[3] += delta * iMJ_ptr[3];
+		fc[fc_ofs1 + CFE_AY] += delta * iMJ[iMJ_ofs + 4];//fc_ptr[4] += delta * iMJ_ptr[4];
+		fc[fc_ofs1 + CFE_AZ] += delta * iMJ[iMJ_ofs + 5];//fc_ptr[5] += delta * iMJ_ptr[5];
+		// @@@ potential optimization: handle 1-body constraints in a separate
+		//     loop to avoid the cost of test & jump?
+		if (fc_ofs2 != NULL) {
+			fc[fc_ofs2 + CFE_LX] += delta * iMJ[iMJ_ofs + 6];//fc_ptr[0] += delta * iMJ_ptr[6];
+			fc[fc_ofs2 + CFE_LY] += delta * iMJ[iMJ_ofs + 7];//fc_ptr[1] += delta * iMJ_ptr[7];
+			fc[fc_ofs2 + CFE_LZ] += delta * iMJ[iMJ_ofs + 8];//fc_ptr[2] += delta * iMJ_ptr[8];
+			fc[fc_ofs2 + CFE_AX] += delta * iMJ[iMJ_ofs + 9];//fc_ptr[3] += delta * iMJ_ptr[9];
+			fc[fc_ofs2 + CFE_AY] += delta * iMJ[iMJ_ofs + 10];//fc_ptr[4] += delta * iMJ_ptr[10];
+			fc[fc_ofs2 + CFE_AZ] += delta * iMJ[iMJ_ofs + 11];//fc_ptr[5] += delta * iMJ_ptr[11];
+		}
+		return delta;
+	}
+
+	//***************************************************************************
+	// coloured SOR-LCP method
+	//
+	// the joints are coloured so that no two joints of one colour share a body.
+	// the joints of a colour batch can then be solved in any order and on any
+	// number of threads, without changing the result. the batches are solved
+	// one after the other. all rows of a joint are solved by one thread, the
+	// rows with findex < 0 first, so the friction limits see the normal force
+	// of the current iteration.
+
+	private static final int SOR_MAX_COLOURS = 64; // one bit per colour in a long
+	private static final int SOR_MIN_JOINTS_PER_THREAD = 8;
+
+	private static class dxQuickStepperSORCallContext implements CallContext
+	{
+		void Initialize(DxStepperProcessingCallContext callContext, 
+				dxQuickStepperLocalContext localContext, double[] iMJ, 
+				double[] lambda, double[] fc, int[] jointOrder, int[] batchStarts, 
+				int batchCount, boolean lastBatchSerial, dxQuickStepParameters qs)
+		{
+			m_stepperCallContext = callContext;
+			m_localContext = localContext;
+			m_iMJ = iMJ;
+			m_lambda = lambda;
+			m_fc = fc;
+			m_jointOrder = jointOrder;
+			m_batchStarts = batchStarts;
+			m_batchCount = batchCount;
+			m_lastBatchSerial = lastBatchSerial;
+			m_numIterations = qs.num_iterations;
+			m_minIterations = qs.min_iterations;
+			m_tolerance = qs.tolerance;
+			m_iteration = 0;
+			m_batch = 0;
+			m_releasee = null;
+			m_ji.set(0);
+			m_pending.set(0);
+			m_maxDelta.set(0);
+		}
+
+		DxStepperProcessingCallContext m_stepperCallContext;
+		dxQuickStepperLocalContext   m_localContext;
+		double[]                           m_iMJ;
+		double[]                           m_lambda;
+		double[]                           m_fc;
+		int[]                              m_jointOrder;
+		int[]                              m_batchStarts;
+		int                                m_batchCount;
+		boolean                            m_lastBatchSerial;
+		int                                m_numIterations;
+		int                                m_minIterations;
+		double                             m_tolerance;
+		int                                m_iteration;
+		int                                m_batch;
+		DCallReleasee                      m_releasee;
+		final AtomicInteger           m_ji = new AtomicInteger();
+		final AtomicInteger           m_pending = new AtomicInteger();
+		// largest lambda change of the current iteration. the bits of non 
+		// negative doubles have the same order as the values.
+		final AtomicLong              m_maxDelta = new AtomicLong();
+
+		void UpdateMaxDelta(double delta) {
+			final long bits = Double.doubleToRawLongBits(delta);
+			long current;
+			while ((current = m_maxDelta.get()) < bits && !m_maxDelta.compareAndSet(current, bits)) {
+				// retry
+			}
+		}
+
+		/** 
+		 * Completes an iteration. 
+		 * @return <tt>true</tt> if no more iterations are needed
+		 */
+		boolean FinishIteration() {
+			++m_iteration;
+			double maxDelta = Double.longBitsToDouble(m_maxDelta.getAndSet(0));
+			return m_iteration == m_numIterations || (m_tolerance > 0 && 
+					m_iteration >= m_minIterations && maxDelta <= m_tolerance);
 		}
-		return buf_invI;
 	}
-	private DJointWithInfo1[] buf_jointinfos = new DJointWithInfo1[0];
-	private DJointWithInfo1[] ensureSize_jointinfos(int size) {
-		if (buf_jointinfos.length < size || !REUSE_OBJECTS) {
-			//TODO we could partially copy the old array...
-			buf_jointinfos = new DJointWithInfo1[size];
-			for (int i = 0; i < size; i++) {
-				buf_jointinfos[i] = new DJointWithInfo1();
+
+	/**
+	 * Greedy colouring of the joints. Joints that don't find a free colour go 
+	 * to a last batch that is solved by a single thread.
+	 * @return the number of batches
+	 */
+	private static int SOR_LCP_ColourJoints (DxWorldProcessMemArena memarena, 
+			final int nj, final int nb, 
+			final int[] mindex, final int[] jb, int[] jointOrder, int[] batchStarts)
+	{
+		int colourstate = memarena.BEGIN_STATE_SAVE();
+		long[] bodyColours = memarena.AllocateArrayLong(nb);
+		int[] colours = memarena.AllocateArrayInt(nj);
+		int[] counts = memarena.AllocateArrayInt(SOR_MAX_COLOURS + 1);
+		for (int ji = 0; ji < nj; ji++) {
+			int row = mindex[ji * 2];
+			int b1 = jb[row * 2];
+			int b2 = jb[row * 2 + 1];
+			long used = bodyColours[b1] | (b2 != -1 ? bodyColours[b2] : 0);
+			int colour = Long.numberOfTrailingZeros(~used); // SOR_MAX_COLOURS if all are used
+			if (colour != SOR_MAX_COLOURS) {
+				bodyColours[b1] |= 1L << colour;
+				if (b2 != -1) bodyColours[b2] |= 1L << colour;
 			}
-		} else {
-			//Obviously this doesn't reset all objects, only the
-			//ones that are likely to be needed.
-			for (int i = 0; i < size; i++) {
-				DJointWithInfo1 j = buf_jointinfos[i];
-				if (j != null) {
-					j.joint = null;
-					j.info.m = 0;
-					j.info.nub = 0;
+			colours[ji] = colour;
+			counts[colour]++;
+		}
+
+		int batchCount = 0;
+		int[] starts = memarena.AllocateArrayInt(SOR_MAX_COLOURS + 1);
+		int start = 0;
+		for (int colour = 0; colour <= SOR_MAX_COLOURS; colour++) {
+			starts[colour] = start;
+			if (counts[colour] != 0) {
+				batchStarts[batchCount++] = start;
+				start += counts[colour];
+			}
+		}
+		batchStarts[batchCount] = start;
+		for (int ji = 0; ji < nj; ji++) {
+			jointOrder[starts[colours[ji]]++] = ji;
+		}
+		memarena.END_STATE_SAVE(colourstate);
+		return batchCount;
+	}
+
+	/**
+	 * @return the largest absolute change of the joint's lambda
+	 */
+	private static double SOR_LCP_Joint (final int ji, final int[] mindex, final double[] J, 
+			final int[] jb, final double[] iMJ, double[] lambda, double[] fc, final int[] findex)
+	{
+		final int ofs = mindex[ji * 2], end = mindex[ji * 2 + 2];
+		double max_delta = 0;
+		for (int index = ofs; index != end; index++) {
+			if (findex[index] == -1) {
+				double delta = dFabs(SOR_LCP_Row(index, J, jb, iMJ, lambda, fc, findex));
+				if (delta > max_delta) max_delta = delta;
+			}
+		}
+		for (int index = ofs; index != end; index++) {
+			if (findex[index] != -1) {
+				double delta = dFabs(SOR_LCP_Row(index, J, jb, iMJ, lambda, fc, findex));
+				if (delta > max_delta) max_delta = delta;
+			}
+		}
+		return max_delta;
+	}
+
+	private static void SOR_LCP_ShuffleBatches (dxQuickStepperSORCallContext sorCallContext)
+	{
+		if (RANDOMLY_REORDER_CONSTRAINTS) {//#ifdef RANDOMLY_REORDER_CONSTRAINTS
+			if ((sorCallContext.m_iteration & 7) == 0) {
+				int[] jointOrder = sorCallContext.m_jointOrder;
+				int[] batchStarts = sorCallContext.m_batchStarts;
+				for (int batch = 0; batch != sorCallContext.m_batchCount; batch++) {
+					int start = batchStarts[batch];
+					int size = batchStarts[batch + 1] - start;
+					for (int j=1; j<size; j++) {
+						int swapj = dRandInt(j+1);
+						int tmp = jointOrder[start + j];
+						jointOrder[start + j] = jointOrder[start + swapj];
+						jointOrder[start + swapj] = tmp;
+					}
 				}
 			}
+		}//#endif
+	}
+
+	private static void dxQuickStepIsland_SOR_Batch (dxQuickStepperSORCallContext sorCallContext)
+	{
+		final dxQuickStepperLocalContext localContext = sorCallContext.m_localContext;
+		final int[] mindex = localContext.m_mindex;
+		final int[] findex = localContext.m_findex;
+		final double[] J = localContext.m_J;
+		final int[] jb = localContext.m_jb;
+		final double[] iMJ = sorCallContext.m_iMJ;
+		double[] lambda = sorCallContext.m_lambda;
+		double[] fc = sorCallContext.m_fc;
+		final int[] jointOrder = sorCallContext.m_jointOrder;
+
+		final int start = sorCallContext.m_batchStarts[sorCallContext.m_batch];
+		final int size = sorCallContext.m_batchStarts[sorCallContext.m_batch + 1] - start;
+		int i;
+		double max_delta = 0;
+		while ((i = ThreadingUtils.ThrsafeIncrementIntUpToLimit(sorCallContext.m_ji, size)) != size) {
+			double delta = SOR_LCP_Joint(jointOrder[start + i], mindex, J, jb, iMJ, lambda, fc, findex);
+			if (delta > max_delta) max_delta = delta;
 		}
-		return buf_jointinfos;
+		sorCallContext.UpdateMaxDelta(max_delta);
 	}
+
+	private static 
+	dThreadedCallFunction dxQuickStepIsland_SOR_Batch_Callback = new dThreadedCallFunction() {
+		@Override
+		public boolean run(CallContext _sorCallContext, int callInstanceIndex,
+				DCallReleasee callThisReleasee) {
+			//(void)callInstanceIndex; // unused
+			//(void)callThisReleasee; // unused
+			dxQuickStepperSORCallContext sorCallContext = (dxQuickStepperSORCallContext)_sorCallContext;
+			dxQuickStepIsland_SOR_Batch(sorCallContext);
+			// the last thread to finish a batch moves on to the next one
+			if (sorCallContext.m_pending.decrementAndGet() == 0) {
+				dxQuickStepIsland_SOR_Next(sorCallContext);
+			}
+			return true;
+		}
+	};
+
+	private static void dxQuickStepIsland_SOR_PostBatch (dxQuickStepperSORCallContext sorCallContext)
+	{
+		final DxStepperProcessingCallContext callContext = sorCallContext.m_stepperCallContext;
+		DxWorld world = callContext.m_world();
+		final int batch = sorCallContext.m_batch;
+		final int size = sorCallContext.m_batchStarts[batch + 1] - sorCallContext.m_batchStarts[batch];
+
+		int threads = 1;
+		if (!(sorCallContext.m_lastBatchSerial && batch == sorCallContext.m_batchCount - 1)) {
+			threads = Math.min(callContext.m_stepperAllowedThreads(), 
+					(size + SOR_MIN_JOINTS_PER_THREAD - 1) / SOR_MIN_JOINTS_PER_THREAD);
+		}
+		sorCallContext.m_ji.set(0);
+		sorCallContext.m_pending.set(threads);
+
+		// the releasee stays blocked for the whole solver
+		world.threading().AlterThreadedCallDependenciesCount(sorCallContext.m_releasee, threads);
+		world.threading().PostThreadedCallsGroup(null, threads, sorCallContext.m_releasee, 
+				dxQuickStepIsland_SOR_Batch_Callback, sorCallContext, "QuickStepIsland SOR Batch");
+	}
+
+	private static void dxQuickStepIsland_SOR_Next (dxQuickStepperSORCallContext sorCallContext)
+	{
+		if (++sorCallContext.m_batch == sorCallContext.m_batchCount) {
+			sorCallContext.m_batch = 0;
+			if (sorCallContext.FinishIteration()) {
+				sorCallContext.m_stepperCallContext.SetIslandIterationCount(sorCallContext.m_iteration);
+				dxQuickStepIsland_Stage3Finish(sorCallContext.m_stepperCallContext, 
+						sorCallContext.m_localContext, sorCallContext.m_lambda, sorCallContext.m_fc, 
+						sorCallContext.m_releasee);
+				return;
+			}
+			SOR_LCP_ShuffleBatches(sorCallContext);
+		}
+		dxQuickStepIsland_SOR_PostBatch(sorCallContext);
+	}
+
+	/**
+	 * Coloured SOR-LCP. With <tt>callThisReleasee</tt> the batches are posted 
+	 * to the threading implementation and stage 3 is finished by the thread 
+	 * that completes the last batch. Otherwise everything runs here.
+	 * @return <tt>true</tt> if the solver was posted and stage 3 must not be 
+	 * finished by the caller
+	 */
+	private static boolean SOR_LCP_Coloured (DxWorldProcessMemArena memarena, 
+			DxStepperProcessingCallContext callContext, dxQuickStepperLocalContext localContext, 
+			final DxBody[] bodyP, final int bodyOfs, double[] lambda, double[] fc, 
+			dxQuickStepParameters qs, DCallReleasee callThisReleasee)
+	{
+		final int m = localContext.m_m;
+		final int nj = localContext.m_nj;
+		final int nb = callContext.m_islandBodiesCount();
+		double[] J = localContext.m_J;
+		int[] jb = localContext.m_jb;
+		double[] iMJ = SOR_LCP_Prepare(memarena,m,nb,J,jb,bodyP,bodyOfs,localContext.m_invI,lambda,fc,qs);
+		if (qs.num_iterations == 0) {
+			return false;
+		}
+
+		int[] jointOrder = memarena.AllocateArrayInt(nj);
+		int[] batchStarts = memarena.AllocateArrayInt(SOR_MAX_COLOURS + 2);
+		int batchCount = SOR_LCP_ColourJoints(memarena, nj, nb, localContext.m_mindex, jb, jointOrder, batchStarts);
+		boolean lastBatchSerial = batchCount > SOR_MAX_COLOURS;
+
+		dxQuickStepperSORCallContext sorCallContext = memarena.AllocateBlock(dxQuickStepperSORCallContext.class);
+		//(dxQuickStepperSORCallContext*)memarena.AllocateBlock(sizeof(dxQuickStepperSORCallContext));
+		sorCallContext.Initialize(callContext, localContext, iMJ, lambda, fc, 
+				jointOrder, batchStarts, batchCount, lastBatchSerial, qs);
+		SOR_LCP_ShuffleBatches(sorCallContext);
+
+		if (callThisReleasee != null && callContext.m_stepperAllowedThreads() > 1) {
+			sorCallContext.m_releasee = callThisReleasee;
+			dxQuickStepIsland_SOR_PostBatch(sorCallContext);
+			return true;
+		}
+
+		while (true) {
+			for (sorCallContext.m_batch = 0; sorCallContext.m_batch != batchCount; sorCallContext.m_batch++) {
+				sorCallContext.m_ji.set(0);
+				dxQuickStepIsland_SOR_Batch(sorCallContext);
+			}
+			if (sorCallContext.FinishIteration()) {
+				break;
+			}
+			SOR_LCP_ShuffleBatches(sorCallContext);
+		}
+		callContext.SetIslandIterationCount(sorCallContext.m_iteration);
+		return false;
+	}
+
 	
 	/*extern */
 	private void dxQuickStepIsland(DxStepperProcessingCallContext callContext)
@@ -983,88 +1317,55 @@ dmemestimate_fn_t, dmaxcallcountestimate_fn_t {
 	    int nb = callContext.m_islandBodiesCount();
 	    int _nj = callContext.m_islandJointsCount();
 
-	    //double[] invI = memarena.AllocateArrayDReal(nb*3*4);//new double[3*4*nb];//dRealAllocaArray (invI,3*4*nb);
-	    double[] invI = ensureSize_invI(nb*3*4);
-	    
-	    //dJointWithInfo1[] const jointinfos = memarena.AllocateArray<dJointWithInfo1>(_nj);
-	    memarena.dummy();
-	    //DJointWithInfo1[] jointinfos = new DJointWithInfo1[_nj];
-	    DJointWithInfo1[] jointinfos = ensureSize_jointinfos(_nj);	    
-	    //TODO this is done in dxQuickStepIsland_Stage0_Joints()
-//	    for (int i = 0; i < jointinfos.length; i++) {
-//	    	jointinfos[i] = new DJointWithInfo1();
-//	    }
-	    
 	    final int allowedThreads = callContext.m_stepperAllowedThreads();
 	    dIASSERT(allowedThreads != 0);
 
-	    BlockPointer stagesMemArenaState = memarena.SaveState();
+	    double[] invI = memarena.AllocateArrayDReal(nb*3*4);//new double[3*4*nb];//dRealAllocaArray (invI,3*4*nb);
+	    
+	    //dJointWithInfo1[] const jointinfos = memarena.AllocateArray<dJointWithInfo1>(_nj);
+	    //TZ the elements are reused, getInfo1() sets all fields of info just like in C++
+	    DJointWithInfo1[] jointinfos = memarena.AllocateArrayBlocks(DJointWithInfo1[].class, _nj);
+
+	    int stagesMemArenaState = memarena.SaveState();
 
-	    memarena.dummy();
-	    final dxQuickStepperStage1CallContext stage1CallContext = new dxQuickStepperStage1CallContext(); 
-	    		//(dxQuickStepperStage1CallContext )memarena.AllocateBlock(sizeof(dxQuickStepperStage1CallContext));
+	    final dxQuickStepperStage1CallContext stage1CallContext = 
+	    		memarena.AllocateBlock(dxQuickStepperStage1CallContext.class);
 	    stage1CallContext.Initialize(callContext, stagesMemArenaState, invI, jointinfos);
 
-	    memarena.dummy();
-	    final dxQuickStepperStage0BodiesCallContext stage0BodiesCallContext = new dxQuickStepperStage0BodiesCallContext(); 
-	    		//(dxQuickStepperStage0BodiesCallContext)memarena.AllocateBlock(sizeof(dxQuickStepperStage0BodiesCallContext));
+	    final dxQuickStepperStage0BodiesCallContext stage0BodiesCallContext = 
+	    		memarena.AllocateBlock(dxQuickStepperStage0BodiesCallContext.class);
 	    stage0BodiesCallContext.Initialize(callContext, invI);
 
-	    memarena.dummy();
-	    final dxQuickStepperStage0JointsCallContext stage0JointsCallContext = new dxQuickStepperStage0JointsCallContext(); 
-	    		//(dxQuickStepperStage0JointsCallContext)memarena.AllocateBlock(sizeof(dxQuickStepperStage0JointsCallContext));
+	    final dxQuickStepperStage0JointsCallContext stage0JointsCallContext = 
+	    		memarena.AllocateBlock(dxQuickStepperStage0JointsCallContext.class);
 	    stage0JointsCallContext.Initialize(callContext, jointinfos, stage1CallContext.m_stage0Outputs);
 
-//	    if (allowedThreads == 1)
-//	    {
+	    if (allowedThreads == 1)
+	    {
 	        dxQuickStepIsland_Stage0_Bodies(stage0BodiesCallContext);
 	        dxQuickStepIsland_Stage0_Joints(stage0JointsCallContext);
-	        dxQuickStepIsland_Stage1(stage1CallContext);
-//	    }
-//	    else
-//	    {
-//			//TODO
-////			try {
-////				ArrayList<Callable<Boolean>> tasks = new ArrayList<>(); 
-////				for (int i = 0; i < THREADS; i++) {
-////					tasks.add(new Callable<Boolean>() {
-////						@Override
-////						public Boolean call() {
-////							dxQuickStepIsland_Stage0_Bodies(stage0BodiesCallContext);
-////							return Boolean.TRUE;
-////						}
-////					});
-////				}
-////				for (Future<Boolean> f: POOL.invokeAll(tasks, 1, TimeUnit.HOURS)) {
-////					f.get();
-////				}
-////
-////				dxQuickStepIsland_Stage0_Joints(stage0JointsCallContext);
-////				dxQuickStepIsland_Stage1(stage1CallContext);
-////			} catch (InterruptedException e) {
-////				throw new RuntimeException(e);
-////			} catch (ExecutionException e) {
-////				throw new RuntimeException(e);
-////			}
-//
-//			int bodyThreads = allowedThreads;
-//	        int jointThreads = 1;
-//
-//	        Ref<DCallReleasee> stage1CallReleasee = new Ref<DCallReleasee>();
-//	        world.threading().PostThreadedCallForUnawareReleasee(null, stage1CallReleasee, 
-//	        		bodyThreads + jointThreads, callContext.m_finalReleasee(), 
-//	        		null, dxQuickStepIsland_Stage1_Callback, stage1CallContext, 0, 
-//	        		"QuickStepIsland Stage1");
-//
-//	        world.threading().PostThreadedCallsGroup(null, bodyThreads, stage1CallReleasee.get(), 
-//	        		dxQuickStepIsland_Stage0_Bodies_Callback, stage0BodiesCallContext, 
-//	        		"QuickStepIsland Stage0-Bodies");
-//
-//	        world.threading().PostThreadedCall(null, null, 0, stage1CallReleasee.get(), null, 
-//	        		dxQuickStepIsland_Stage0_Joints_Callback, stage0JointsCallContext, 0, 
-//	        		"QuickStepIsland Stage0-Joints");
-//	        dIASSERT(jointThreads == 1);
-//	    }
+	        dxQuickStepIsland_Stage1(stage1CallContext, null);
+	    }
+	    else
+	    {
+	        int bodyThreads = allowedThreads;
+	        int jointThreads = 1;
+
+	        final Ref<DCallReleasee> stage1CallReleasee = stage1CallContext.m_stage1CallReleasee;
+	        world.threading().PostThreadedCallForUnawareReleasee(null, stage1CallReleasee, 
+	        		bodyThreads + jointThreads, callContext.m_finalReleasee(), 
+	        		null, dxQuickStepIsland_Stage1_Callback, stage1CallContext, 0, 
+	        		"QuickStepIsland Stage1");
+
+	        world.threading().PostThreadedCallsGroup(null, bodyThreads, stage1CallReleasee.get(), 
+	        		dxQuickStepIsland_Stage0_Bodies_Callback, stage0BodiesCallContext, 
+	        		"QuickStepIsland Stage0-Bodies");
+
+	        world.threading().PostThreadedCall(null, null, 0, stage1CallReleasee.get(), null, 
+	        		dxQuickStepIsland_Stage0_Joints_Callback, stage0JointsCallContext, 0, 
+	        		"QuickStepIsland Stage0-Joints");
+	        dIASSERT(jointThreads == 1);
+	    }
 	}    
 
 	private static dThreadedCallFunction dxQuickStepIsland_Stage0_Bodies_Callback = new dThreadedCallFunction() {
@@ -1136,10 +1437,11 @@ dmemestimate_fn_t, dmaxcallcountestimate_fn_t {
 	        double[] invIrowA = callContext.m_invI;
 	        int invIrowP = 0;
 	        int bodyIndex = ThreadingUtils.ThrsafeIncrementIntUpToLimit(callContext.m_inertiaBodyIndex, nb);
+	        final dxBodyTemporaries temps = GetBodyTemporaries();
 
 	        for (int i = 0; i != nb; invIrowP += 12, ++i) {
 	            if (i == bodyIndex) {
-	                DMatrix3 tmp = new DMatrix3();
+	                DMatrix3 tmp = temps.tmp;
 	                DxBody b = bodyP[bodyOfs+i];
 
 	                // compute inverse inertia tensor in global frame
@@ -1149,7 +1451,7 @@ dmemestimate_fn_t, dmaxcallcountestimate_fn_t {
 	                // Don't apply gyroscopic torques to bodies
 	                // if not flagged or the body is kinematic
 	                if (b.isFlagsGyroscopic() && (b.invMass>0)) {
-	                    DMatrix3 I = new DMatrix3();
+	                    DMatrix3 I = temps.I;
 	                    // compute inertia tensor in global frame
 	                    dMultiply2_333 (tmp,b.mass._I,b.posr().R());
 	                    dMultiply0_333 (I,b.posr().R(),tmp);
@@ -1163,7 +1465,7 @@ dmemestimate_fn_t, dmaxcallcountestimate_fn_t {
 	                    //"Stabilizing Gyroscopic Forces in Rigid Multibody Simulations"
 	                    // (LacoursiÃ¨re 2006)
 	                    double h = callContext.m_stepperCallContext.m_stepSize(); // Step size
-	                    DVector3 L = new DVector3(); // Compute angular momentum
+	                    DVector3 L = temps.L; // Compute angular momentum
 	                    dMultiply0_331(L,I,b.avel);
 	                    
 	                    // Compute a new effective 'inertia tensor'
@@ -1173,7 +1475,8 @@ dmemestimate_fn_t, dmaxcallcountestimate_fn_t {
 	                    // Itild may not be symmetric pos-definite, 
 	                    // but we can still use it to compute implicit
 	                    // gyroscopic torques.
-	                    DMatrix3 Itild= new DMatrix3();//{0};  
+	                    DMatrix3 Itild = temps.Itild;//{0};
+	                    Itild.setZero();
 	                    dSetCrossMatrixMinus(Itild,L);//,4);
 //	                    for (int ii=0;ii<12;++ii) {
 //	                      Itild[ii]=Itild[ii]*h+I[ii];
@@ -1185,7 +1488,7 @@ dmemestimate_fn_t, dmaxcallcountestimate_fn_t {
 	                    // a sort of "torque"
 	                    L.scale(dRecip(h));//dScaleVector3(L,dRecip(h)); 
 	                    // Invert the pseudo-tensor
-	                    DMatrix3 itInv = new DMatrix3();
+	                    DMatrix3 itInv = temps.itInv;
 	                    // This is a closed-form inversion.
 	                    // It's probably not numerically stable
 	                    // when dealing with small masses with
@@ -1207,7 +1510,7 @@ dmemestimate_fn_t, dmaxcallcountestimate_fn_t {
 	                        // to the old inertia matrix as explicit
 	                        // torques with a semi-implicit update
 	                        // step.
-	                        DVector3 tau0 = new DVector3();
+	                        DVector3 tau0 = temps.tau0;
 	                        dMultiply0_331(tau0,Itild,L);
 	                        
 	                        // Add the gyro torques to the torque 
@@ -1284,15 +1587,15 @@ dmemestimate_fn_t, dmaxcallcountestimate_fn_t {
 				int/*dcallindex_t*/ callInstanceIndex, DCallReleasee callThisReleasee)
 		{
 			//(void)callInstanceIndex; // unused
-			//(void)callThisReleasee; // unused
 			dxQuickStepperStage1CallContext stage1CallContext = (dxQuickStepperStage1CallContext)_stage1CallContext;
-			dxQuickStepIsland_Stage1(stage1CallContext);
+			dxQuickStepIsland_Stage1(stage1CallContext, callThisReleasee);
 			return true;
 		}
 	};
 
 	private static 
-	void dxQuickStepIsland_Stage1(dxQuickStepperStage1CallContext stage1CallContext)
+	void dxQuickStepIsland_Stage1(dxQuickStepperStage1CallContext stage1CallContext, 
+			DCallReleasee callThisReleasee)
 	{
 		final DxStepperProcessingCallContext callContext = stage1CallContext.m_stepperCallContext;
 		double[] invI = stage1CallContext.m_invI;
@@ -1306,10 +1609,8 @@ dmemestimate_fn_t, dmaxcallcountestimate_fn_t {
 		stage1CallContext = null; // WARNING! _stage1CallContext is not valid after this point!
 		dIVERIFY(stage1CallContext == null); // To suppress unused variable assignment warnings
 
-		{
-			int _nj = callContext.m_islandJointsCount();
-			memarena.ShrinkArrayDJointWithInfo1(jointinfos, _nj, nj);
-		}
+		//TZ the jointinfos array is not shrunk, there is no equivalent of
+		// memarena.ShrinkArray<dJointWithInfo1>(jointinfos, _nj, nj) in Java.
 
 		DxWorld world = callContext.m_world();
 		//dxBody * const *body = callContext.m_islandBodiesStart;
@@ -1322,8 +1623,7 @@ dmemestimate_fn_t, dmaxcallcountestimate_fn_t {
 		// if there are constraints, compute the constraint force
 		if (m > 0) {
 			//mindex = memarena.AllocateArray<unsigned int>(2 * (size_t)(nj + 1));
-			memarena.dummy();
-			mindex = new int[2 * (nj + 1)];
+			mindex = memarena.AllocateArrayInt(2 * (nj + 1));
 			{
 				int mcurrO = 0;//mindex;
 				int moffs = 0, mfboffs = 0;
@@ -1346,28 +1646,18 @@ dmemestimate_fn_t, dmaxcallcountestimate_fn_t {
 				}
 			}
 
-			memarena.dummy();
-			memarena.dummy();
-			memarena.dummy();
-			memarena.dummy();
-			memarena.dummy();
-			memarena.dummy();
-			memarena.dummy();
-			memarena.dummy();
-			findex = new int[m];//memarena.AllocateArray<int>(m);
-			J = new double[m * JME__MAX];
-			jb = new int[m*2];//memarena.AllocateArray<int>((size_t)m*2);
-			Jcopy = new double[m * JME__MAX];
+			findex = memarena.AllocateArrayInt(m);//memarena.AllocateArray<int>(m);
+			J = memarena.AllocateArrayDReal(m * JME__MAX);
+			jb = memarena.AllocateArrayInt(m*2);//memarena.AllocateArray<int>((size_t)m*2);
+			Jcopy = memarena.AllocateArrayDReal(m * JME__MAX);
 		}
 
-		memarena.dummy();
-		dxQuickStepperLocalContext localContext = new dxQuickStepperLocalContext(); 
+		dxQuickStepperLocalContext localContext = memarena.AllocateBlock(dxQuickStepperLocalContext.class); 
 		//(dxQuickStepperLocalContext *)memarena.AllocateBlock(sizeof(dxQuickStepperLocalContext));
 		localContext.Initialize(invI, jointinfos, nj, m, mfb, mindex, findex, J, jb, Jcopy);
 
-		BlockPointer stage1MemarenaState = memarena.SaveState();
-		memarena.dummy();
-		dxQuickStepperStage3CallContext stage3CallContext = new dxQuickStepperStage3CallContext();
+		int stage1MemarenaState = memarena.SaveState();
+		dxQuickStepperStage3CallContext stage3CallContext = memarena.AllocateBlock(dxQuickStepperStage3CallContext.class);
 		//(dxQuickStepperStage3CallContext*)memarena.AllocateBlock(sizeof(dxQuickStepperStage3CallContext));
 		stage3CallContext.Initialize(callContext, localContext, stage1MemarenaState);
 
@@ -1376,36 +1666,36 @@ dmemestimate_fn_t, dmaxcallcountestimate_fn_t {
 			// force mixing vector `cfm', and LCP low and high bound vectors, and an
 			// 'findex' vector.
 			//dReal *rhs_tmp = memarena.AllocateArray<dReal>((size_t)nb*6);
-			memarena.dummy();
-			double[] rhs_tmp = new double[nb*6];
-
-			memarena.dummy();
-			dxQuickStepperStage2CallContext stage2CallContext = new dxQuickStepperStage2CallContext(); 
-			//(dxQuickStepperStage2CallContext*)memarena.AllocateBlock(sizeof(dxQuickStepperStage2CallContext));
-			stage2CallContext.Initialize(callContext, localContext, rhs_tmp);
+			double[] rhs_tmp = memarena.AllocateArrayDReal(nb*6);
 
 			final int allowedThreads = callContext.m_stepperAllowedThreads();
 			dIASSERT(allowedThreads != 0);
 
+			Info2DescrQuickStep[] Jinfos = memarena.AllocateArrayBlocks(Info2DescrQuickStep[].class, allowedThreads);
+
+			dxQuickStepperStage2CallContext stage2CallContext = memarena.AllocateBlock(dxQuickStepperStage2CallContext.class); 
+			//(dxQuickStepperStage2CallContext*)memarena.AllocateBlock(sizeof(dxQuickStepperStage2CallContext));
+			stage2CallContext.Initialize(callContext, localContext, rhs_tmp, Jinfos);
+
 			if (allowedThreads == 1)
 			{
-				dxQuickStepIsland_Stage2a(stage2CallContext);
+				dxQuickStepIsland_Stage2a(stage2CallContext, 0);
 				dxQuickStepIsland_Stage2b(stage2CallContext);
 				dxQuickStepIsland_Stage2c(stage2CallContext);
-				dxQuickStepIsland_Stage3(stage3CallContext);
+				dxQuickStepIsland_Stage3(stage3CallContext, null);
 			}
 			else
 			{
-				final Ref<DCallReleasee> stage3CallReleasee = new Ref<DCallReleasee>();
+				final Ref<DCallReleasee> stage3CallReleasee = stage3CallContext.m_stage3CallReleasee;
 				world.threading().PostThreadedCallForUnawareReleasee(null, stage3CallReleasee, 1, callContext.m_finalReleasee(), 
 						null, dxQuickStepIsland_Stage3_Callback, stage3CallContext, 0, "QuickStepIsland Stage3");
 
-				final Ref<DCallReleasee> stage2bSyncReleasee = new Ref<DCallReleasee>();
+				final Ref<DCallReleasee> stage2bSyncReleasee = stage2CallContext.m_stage2bSyncReleasee;
 				world.threading().PostThreadedCall(
 						null, stage2bSyncReleasee, 1, stage3CallReleasee.get(), 
 						null, dxQuickStepIsland_Stage2bSync_Callback, stage2CallContext, 0, "QuickStepIsland Stage2b Sync");
 
-				final Ref<DCallReleasee> stage2aSyncReleasee = new Ref<DCallReleasee>();
+				final Ref<DCallReleasee> stage2aSyncReleasee = stage2CallContext.m_stage2aSyncReleasee;
 				world.threading().PostThreadedCall(
 						null, stage2aSyncReleasee, allowedThreads, stage2bSyncReleasee.get(), 
 						null, dxQuickStepIsland_Stage2aSync_Callback, stage2CallContext, 0, "QuickStepIsland Stage2a Sync");
@@ -1415,7 +1705,7 @@ dmemestimate_fn_t, dmaxcallcountestimate_fn_t {
 			}
 		}
 		else {
-			dxQuickStepIsland_Stage3(stage3CallContext);
+			dxQuickStepIsland_Stage3(stage3CallContext, callThisReleasee);
 		}
 	}
 
@@ -1425,16 +1715,16 @@ dmemestimate_fn_t, dmaxcallcountestimate_fn_t {
 		public boolean run(CallContext _stage2CallContext, 
 				int/*dcallindex_t*/ callInstanceIndex, DCallReleasee callThisReleasee)
 		{
-			//(void)callInstanceIndex; // unused
 			//(void)callThisReleasee; // unused
 			dxQuickStepperStage2CallContext stage2CallContext = (dxQuickStepperStage2CallContext)_stage2CallContext;
-			dxQuickStepIsland_Stage2a(stage2CallContext);
+			dxQuickStepIsland_Stage2a(stage2CallContext, callInstanceIndex);
 			return true;
 		}
 	};
 
 	private static 
-	void dxQuickStepIsland_Stage2a(dxQuickStepperStage2CallContext stage2CallContext)
+	void dxQuickStepIsland_Stage2a(dxQuickStepperStage2CallContext stage2CallContext, 
+			int callInstanceIndex)
 	{
 	    final DxStepperProcessingCallContext callContext = stage2CallContext.m_stepperCallContext;
 	    final dxQuickStepperLocalContext localContext = stage2CallContext.m_localContext;
@@ -1448,7 +1738,6 @@ dmemestimate_fn_t, dmaxcallcountestimate_fn_t {
 	        int[] findex = localContext.m_findex;
 	        double[] J = localContext.m_J;
 	        double[] Jcopy = localContext.m_Jcopy;
-            int jCopy_ofs = 0;
 
 	        if (TIMING) dTimerNow ("create J");
 	        // get jacobian data from constraints. an m*12 matrix will be created
@@ -1467,7 +1756,7 @@ dmemestimate_fn_t, dmaxcallcountestimate_fn_t {
 	        final double worldERP = world.getERP();
 	        final double worldCFM = world.getCFM();
 
-	        Info2DescrQuickStep Jinfo = new Info2DescrQuickStep();
+	        Info2DescrQuickStep Jinfo = stage2CallContext.m_Jinfos[callInstanceIndex];
 	        Jinfo.setRowskip(JME__MAX, JME__MAX);
 	        Jinfo.setArrays(J, findex);
 		            
@@ -1512,6 +1801,8 @@ dmemestimate_fn_t, dmaxcallcountestimate_fn_t {
 	            int mfbcurr = mindex[ji * 2 + 1], mfbnext = mindex[ji * 2 + 3];
                 int mfbCount = mfbnext - mfbcurr;
                 if (mfbCount != 0) {
+                    // Offset from the feedback index so that threads do not overlap
+                    int jCopy_ofs = mfbcurr * JCE__MAX;
                     int jEndMfb = jRow + mfbCount * JME__MAX;
                     for (int jCurr = jRow; jCurr < jEndMfb ;jCurr += JME__MAX) {
                     	System.arraycopy(J, jCurr + JME__J1_MIN, Jcopy, jCopy_ofs + JCE__J1_MIN, JME__J1_COUNT);
@@ -1676,15 +1967,15 @@ dmemestimate_fn_t, dmaxcallcountestimate_fn_t {
 		public boolean run(CallContext _stage3CallContext, int callInstanceIndex,
 				DCallReleasee callThisReleasee) {
 			//(void)callInstanceIndex; // unused
-			//(void)callThisReleasee; // unused
 			dxQuickStepperStage3CallContext stage3CallContext = (dxQuickStepperStage3CallContext)_stage3CallContext;
-			dxQuickStepIsland_Stage3(stage3CallContext);
+			dxQuickStepIsland_Stage3(stage3CallContext, callThisReleasee);
 			return true;
 		}
 	};
 
 	private static 
-	void dxQuickStepIsland_Stage3(dxQuickStepperStage3CallContext stage3CallContext)
+	void dxQuickStepIsland_Stage3(dxQuickStepperStage3CallContext stage3CallContext, 
+			DCallReleasee callThisReleasee)
 	{
 	    final DxStepperProcessingCallContext callContext = stage3CallContext.m_stepperCallContext;
 	    final dxQuickStepperLocalContext localContext = stage3CallContext.m_localContext;
@@ -1695,46 +1986,60 @@ dmemestimate_fn_t, dmaxcallcountestimate_fn_t {
 	    dIVERIFY(stage3CallContext == null); // To suppress unused variable assignment warnings
 
 	    double[] invI = localContext.m_invI;
-	    DJointWithInfo1[] jointinfos = localContext.m_jointinfos;
-	    int nj = localContext.m_nj;
 	    int m = localContext.m_m;
-	    int mfb = localContext.m_mfb;
 	    //const unsigned int *mindex = localContext->m_mindex;
 	    int[] findex = localContext.m_findex;
 	    double[] J = localContext.m_J;
 	    int[] jb = localContext.m_jb;
-        double[] Jcopy = localContext.m_Jcopy;
 
 	    DxWorld world = callContext.m_world();
 	    DxBody[] bodyA = callContext.m_islandBodiesStartA();
 	    int bodyOfs = callContext.m_islandBodiesStartOfs();
 	    int nb = callContext.m_islandBodiesCount();
 
+	    double[] lambda = null;
+	    double[] cforce = null;
 	    if (m > 0) {
     			
 			// load lambda from the value saved on the previous iteration
-			double[] lambda = memarena.AllocateArrayDReal(m);//new double[m];//dRealAllocaArray (lambda,m);
+			lambda = memarena.AllocateArrayDReal(m);//new double[m];//dRealAllocaArray (lambda,m);
 			
-			//TZ not defined
-//			if (WARM_STARTING) {//#ifdef WARM_STARTING
-//	           dReal *lambdscurr = lambda;
-//	            const dJointWithInfo1 *jicurr = jointinfos;
-//	            const dJointWithInfo1 *const jiend = jicurr + nj;
-//	            for (; jicurr != jiend; jicurr++) {
-//	                unsigned int infom = jicurr->info.m;
-//	                memcpy (lambdscurr, jicurr->joint->lambda, infom * sizeof(dReal));
-//	                lambdscurr += infom;
-//	            }
-//			}//#endif
+			if (world.qs.warm_starting) {//#ifdef WARM_STARTING
+	            DJointWithInfo1[] jointinfos = localContext.m_jointinfos;
+	            final int nj = localContext.m_nj;
+	            int lambdacurr = 0;
+	            for (int i = 0; i < nj; i++) {
+	                DxJoint joint = jointinfos[i].joint;
+	                int infom = jointinfos[i].info.m;
+	                if (joint instanceof DxJointContact) {
+	                    // contact joints are recreated every step
+	                    world.contact_cache.Load(((DxJointContact)joint).contact.geom, lambda, lambdacurr, infom);
+	                } else {
+	                    System.arraycopy(joint.lambda, 0, lambda, lambdacurr, Math.min(infom, joint.lambda.length));
+	                }
+	                lambdacurr += infom;
+	            }
+			}//#endif
 
-			double[] cforce = memarena.AllocateArrayDReal(nb*6);
-			BlockPointer lcpstate = memarena.BEGIN_STATE_SAVE(); 
-			{
-	            if (TIMING) dTimerNow ("solving LCP problem");
-	            // solve the LCP problem and get lambda and invM*constraint_force
-	            SOR_LCP (memarena,m,nb,J,jb,bodyA,bodyOfs,invI,lambda,cforce,findex,world.qs);
+			cforce = memarena.AllocateArrayDReal(nb*6);
+			if (world.qs.parallel_sor) {
+	            if (TIMING) dTimerNow ("solving coloured LCP problem");
+	            // the solver may still be running when this returns, so the 
+	            // arena state is not restored here
+	            if (SOR_LCP_Coloured (memarena,callContext,localContext,bodyA,bodyOfs,lambda,cforce,world.qs,callThisReleasee)) {
+	                return;
+	            }
+			}
+			else {
+				int lcpstate = memarena.BEGIN_STATE_SAVE(); 
+				{
+		            if (TIMING) dTimerNow ("solving LCP problem");
+		            // solve the LCP problem and get lambda and invM*constraint_force
+		            int iterations = SOR_LCP (memarena,m,nb,J,jb,bodyA,bodyOfs,invI,lambda,cforce,findex,world.qs);
+		            callContext.SetIslandIterationCount(iterations);
+				}
+				memarena.END_STATE_SAVE(lcpstate);
 			}
-			memarena.END_STATE_SAVE(lcpstate);
 			    
 //			System.err.println("SOR_LCP m=" + m + " nb=" + nb + " ");
 //			System.err.println("SOR_LCP J=" + Arrays.toString(J));
@@ -1748,40 +2053,46 @@ dmemestimate_fn_t, dmaxcallcountestimate_fn_t {
 //			System.err.println("SOR_LCP cfm=" + Arrays.toString(cfm));
 //			System.err.println("SOR_LCP findex=" + Arrays.toString(findex));
 //			System.err.println("SOR_LCP qs=" + world.qs.num_iterations + " w=" + world.qs.w);
-			
-			//TZ not defined
-//			if (WARM_STARTING) {//#ifdef WARM_STARTING
-//		    {
-//            // save lambda for the next iteration
-//            //@@@ note that this doesn't work for contact joints yet, as they are
-//            // recreated every iteration
-//            const dReal *lambdacurr = lambda;
-//            const dJointWithInfo1 *jicurr = jointinfos;
-//            const dJointWithInfo1 *const jiend = jicurr + nj;
-//            for (; jicurr != jiend; jicurr++) {
-//                unsigned int infom = jicurr->info.m;
-//                memcpy (jicurr->joint->lambda, lambdacurr, infom * sizeof(dReal));
-//                lambdacurr += infom;
-//            }
-//		      }
-//				//#endif
+		}
+
+		dxQuickStepIsland_Stage3Finish(callContext, localContext, lambda, cforce, callThisReleasee);
+	}
+
+	/**
+	 * The part of stage 3 that follows the LCP solver.
+	 */
+	private static 
+	void dxQuickStepIsland_Stage3Finish(DxStepperProcessingCallContext callContext, 
+			dxQuickStepperLocalContext localContext, double[] lambda, double[] cforce, 
+			DCallReleasee callThisReleasee)
+	{
+	    double[] invI = localContext.m_invI;
+	    DJointWithInfo1[] jointinfos = localContext.m_jointinfos;
+	    int nj = localContext.m_nj;
+	    int m = localContext.m_m;
+	    int mfb = localContext.m_mfb;
+        double[] Jcopy = localContext.m_Jcopy;
+
+	    DxWorldProcessMemArena memarena = callContext.m_stepperArena();
+	    DxWorld world = callContext.m_world();
+	    int nb = callContext.m_islandBodiesCount();
+
+	    if (m > 0) {
+			if (world.qs.warm_starting) {//#ifdef WARM_STARTING
+	            // save lambda for the next iteration. the lambda of contact 
+	            // joints is moved to the world's contact cache after the step.
+	            int lambdacurr = 0;
+	            for (int i = 0; i < nj; i++) {
+	                DxJoint joint = jointinfos[i].joint;
+	                int infom = jointinfos[i].info.m;
+	                System.arraycopy(lambda, lambdacurr, joint.lambda, 0, Math.min(infom, joint.lambda.length));
+	                lambdacurr += infom;
+	            }
+			}//#endif
 
 			// note that the SOR method overwrites rhs and J at this point, so
 			// they should not be used again.
 
-			{
-	            double stepsize = callContext.m_stepSize();
-			    // add stepsize * cforce to the body velocity
-			    int cforcecurrP = 0; //cforce
-			    for (int i=0; i<nb; cforcecurrP+=6, i++) {
-			        DxBody b = bodyA[i+bodyOfs];
-			        for (int j=0; j<3; j++) {
-			            b.lvel.add(j, stepsize * cforce[cforcecurrP+j] );
-			            b.avel.add(j, stepsize * cforce[cforcecurrP+3+j] );
-			        }
-			    }
-			}
-
 			if (mfb > 0) {
 			    // straightforward computation of joint constraint forces:
 			    // multiply related lambdas with respective J' block for joints
@@ -1823,21 +2134,6 @@ dmemestimate_fn_t, dmaxcallcountestimate_fn_t {
 			}
 		}
 
-		{
-		    if (TIMING) dTimerNow ("compute velocity update");
-	        double stepsize = callContext.m_stepSize();
-		    // compute the velocity update:
-		    // add stepsize * invM * fe to the body velocity
-		    int invIrowP = 0;//invI
-		    for (int i=0; i<nb; invIrowP += 12, i++) {
-		        DxBody b = bodyA[i+bodyOfs]; 
-		        double body_invMass_mul_stepsize = stepsize * b.invMass;
-		        b.lvel.addScaled(b.facc, body_invMass_mul_stepsize);
-		        b.tacc.scale( stepsize );
-		        dMultiplyAdd0_331 (b.avel, invI,invIrowP, b.tacc);
-		    }
-		}
-
 		if (CHECK_VELOCITY_OBEYS_CONSTRAINT) {//#ifdef CHECK_VELOCITY_OBEYS_CONSTRAINT
 		    throw new UnsupportedOperationException();
 //		  if (m > 0) {
@@ -1863,31 +2159,83 @@ dmemestimate_fn_t, dmaxcallcountestimate_fn_t {
 //		  }
 		} //#endif
 
+		dxQuickStepperStage4CallContext stage4CallContext = memarena.AllocateBlock(dxQuickStepperStage4CallContext.class);
+		//(dxQuickStepperStage4CallContext*)memarena.AllocateBlock(sizeof(dxQuickStepperStage4CallContext));
+		stage4CallContext.Initialize(callContext, invI, cforce);
+
+		final int allowedThreads = callContext.m_stepperAllowedThreads();
+		final int stage4Threads = Math.min(allowedThreads, nb);
+		if (callThisReleasee == null || stage4Threads <= 1)
 		{
-	        double stepsize = callContext.m_stepSize();
-    		// update the position and orientation from the new linear/angular velocity
-    		// (over the given timestep)
-		    if (TIMING) dTimerNow ("update position");
-		    for (int i=0; i<nb; i++) {
-		        bodyA[i+bodyOfs].dxStepBody (stepsize);
-		    }
+			dxQuickStepIsland_Stage4(stage4CallContext);
 		}
-		
+		else
 		{
-		    if (TIMING) dTimerNow ("tidy up");
-    
-    		// zero all force accumulators
-    		for (int i=0; i<nb; i++) {
-    		    DxBody b = bodyA[i+bodyOfs];
-    			b.facc.setZero();//dSetZero (body[i].facc,3);
-    			b.tacc.setZero();//dSetZero (body[i].tacc,3);
-    		}
+			world.threading().AlterThreadedCallDependenciesCount(callThisReleasee, stage4Threads);
+			world.threading().PostThreadedCallsGroup(null, stage4Threads, callThisReleasee, 
+					dxQuickStepIsland_Stage4_Callback, stage4CallContext, "QuickStepIsland Stage4");
 		}
 
 		if (TIMING) dTimerEnd();
 		if (TIMING) if (m > 0) dTimerReport (stdout,1);
 	}
 
+	private static 
+	dThreadedCallFunction dxQuickStepIsland_Stage4_Callback = new dThreadedCallFunction() {
+		@Override
+		public boolean run(CallContext _stage4CallContext, int callInstanceIndex,
+				DCallReleasee callThisReleasee) {
+			//(void)callInstanceIndex; // unused
+			//(void)callThisReleasee; // unused
+			dxQuickStepperStage4CallContext stage4CallContext = (dxQuickStepperStage4CallContext)_stage4CallContext;
+			dxQuickStepIsland_Stage4(stage4CallContext);
+			return true;
+		}
+	};
+
+	private static 
+	void dxQuickStepIsland_Stage4(dxQuickStepperStage4CallContext stage4CallContext)
+	{
+	    final DxStepperProcessingCallContext callContext = stage4CallContext.m_stepperCallContext;
+	    double[] invI = stage4CallContext.m_invI;
+	    double[] cforce = stage4CallContext.m_cforce;
+
+	    DxBody[] bodyA = callContext.m_islandBodiesStartA();
+	    int bodyOfs = callContext.m_islandBodiesStartOfs();
+	    int nb = callContext.m_islandBodiesCount();
+	    double stepsize = callContext.m_stepSize();
+
+	    int bi;
+	    while ((bi = ThreadingUtils.ThrsafeIncrementIntUpToLimit(stage4CallContext.m_bi, nb)) != nb) {
+	        DxBody b = bodyA[bi+bodyOfs];
+
+	        if (cforce != null) {
+	            // add stepsize * cforce to the body velocity
+	            int cforcecurrP = bi * 6; //cforce
+	            for (int j=0; j<3; j++) {
+	                b.lvel.add(j, stepsize * cforce[cforcecurrP+j] );
+	                b.avel.add(j, stepsize * cforce[cforcecurrP+3+j] );
+	            }
+	        }
+
+	        // compute the velocity update:
+	        // add stepsize * invM * fe to the body velocity
+	        int invIrowP = bi * 12;//invI
+	        double body_invMass_mul_stepsize = stepsize * b.invMass;
+	        b.lvel.addScaled(b.facc, body_invMass_mul_stepsize);
+	        b.tacc.scale( stepsize );
+	        dMultiplyAdd0_331 (b.avel, invI,invIrowP, b.tacc);
+
+	        // update the position and orientation from the new linear/angular velocity
+	        // (over the given timestep)
+	        b.dxStepBody (stepsize);
+
+	        // zero all force accumulators
+	        b.facc.setZero();//dSetZero (body[i].facc,3);
+	        b.tacc.setZero();//dSetZero (body[i].tacc,3);
+	    }
+	}
+
 //	static size_t EstimateGR_LCPMemoryRequirements(unsigned int m)
 //	{
 //	    //TZ not defined
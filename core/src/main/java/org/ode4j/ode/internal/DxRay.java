@@ -25,6 +25,7 @@
 package org.ode4j.ode.internal;
 
 import org.ode4j.ode.DColliderFn;
+import org.ode4j.math.DMatrix3;
 import org.ode4j.math.DMatrix3C;
 import org.ode4j.math.DVector3;
 import org.ode4j.math.DVector3C;
@@ -69,13 +70,17 @@ public class DxRay extends DxGeom implements DRay {
 	@Override
 	void computeAABB()
 	{
-		DVector3 e = new DVector3();
 		//  e[0] = final_posr.pos[0] + final_posr.R[0*4+2]*length;
 		//  e[1] = final_posr.pos[1] + final_posr.R[1*4+2]*length;
 		//  e[2] = final_posr.pos[2] + final_posr.R[2*4+2]*length;
-		e.eqSum(final_posr().R().viewCol(2), _length, final_posr().pos(), 1);
-
-		_aabb.setMinMax( final_posr().pos(),  e);
+		DVector3C p = final_posr().pos();
+		DMatrix3C R = final_posr().R();
+		double e0 = p.get0() + R.get02() * _length;
+		double e1 = p.get1() + R.get12() * _length;
+		double e2 = p.get2() + R.get22() * _length;
+		_aabb.set(Math.min(p.get0(), e0), Math.max(p.get0(), e0),
+				Math.min(p.get1(), e1), Math.max(p.get1(), e1),
+				Math.min(p.get2(), e2), Math.max(p.get2(), e2));
 //		if (_final_posr.pos.get0() < e.get0()){
 //			_aabb.v[0] = _final_posr.pos.get0();
 //			_aabb.v[1] = e.get0();
@@ -169,6 +174,24 @@ public class DxRay extends DxGeom implements DRay {
 	}
 
 
+	/**
+	 * Set start, direction and length without allocations, for the ray
+	 * queries of the spaces.
+	 * @param dir unit direction
+	 */
+	void SetRay (DVector3C start, DVector3C dir, double length)
+	{
+		recomputePosr();
+		_final_posr.pos.set(start);
+		DMatrix3 rot = _final_posr.Rw();
+		rot.set02(dir.get0());
+		rot.set12(dir.get1());
+		rot.set22(dir.get2());
+		_length = length;
+		dGeomMoved ();
+	}
+
+
 	//void dGeomRayGet (dxGeom g, dVector3 start, dVector3 dir)
 	private void dGeomRayGet (DVector3 start, DVector3 dir)
 	{
@@ -0,0 +1,266 @@
+/*************************************************************************
+ *                                                                       *
+ * Open Dynamics Engine, Copyright (C) 2001,2002 Russell L. Smith.       *
+ * All rights reserved.  Email: russ@q12.org   Web: www.q12.org          *
+ * Open Dynamics Engine 4J, Copyright (C) 2009-2014 Tilmann Zaeschke     *
+ * All rights reserved.  Email: ode4j@gmx.de   Web: www.ode4j.org        *
+ *                                                                       *
+ * This library is free software; you can redistribute it and/or         *
+ * modify it under the terms of EITHER:                                  *
+ *   (1) The GNU Lesser General Public License as published by the Free  *
+ *       Software Foundation; either version 2.1 of the License, or (at  *
+ *       your option) any later version. The text of the GNU Lesser      *
+ *       General Public License is included with this library in the     *
+ *       file LICENSE.TXT.                                               *
+ *   (2) The BSD-style license that is included with this library in     *
+ *       the file ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT.         *
+ *                                                                       *
+ * This library is distributed in the hope that it will be useful,       *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the files    *
+ * LICENSE.TXT, ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT for more   *
+ * details.                                                              *
+ *                                                                       *
+ *************************************************************************/
+package org.ode4j.ode.internal;
+
+import static org.ode4j.ode.internal.Common.*;
+
+import org.ode4j.math.DVector3;
+import org.ode4j.math.DVector3C;
+import org.ode4j.ode.DAABBC;
+import org.ode4j.ode.DContactGeom;
+import org.ode4j.ode.DContactGeomBuffer;
+
+/**
+ * State of a ray cast query of a space, see DSpace.raycastClosest().
+ * <p>
+ * The spaces pass the geoms whose AABB may be hit to Test(), which runs the
+ * ray colliders with a ray that ends at the current clip distance. Closest
+ * hit and all hit queries move the clip distance closer with each hit, so
+ * spaces that visit their geoms front to back can skip the rest of the
+ * geoms early. The query keeps its ray geom and contact buffer between
+ * queries.
+ */
+final class DxRayQuery {
+
+	static final int CLOSEST = 0;
+	static final int ANY = 1;
+	static final int ALL = 2;
+
+	private final DxRay m_ray = DxRay.dCreateRay(null, 1);
+	private final DContactGeomBuffer m_contact = new DContactGeomBuffer(1);
+	private final DVector3 m_start = new DVector3();
+	// unit direction
+	private final DVector3 m_dir = new DVector3();
+	// only hits closer than this are reported
+	private double m_clip;
+	private int m_mode;
+
+	// result of CLOSEST and ANY
+	private DContactGeom m_result;
+	private boolean m_hit;
+
+	// results of ALL, sorted by distance
+	private DContactGeomBuffer m_hits;
+	private int m_maxHits;
+	private int m_hitCount;
+
+
+	void Init (DVector3C start, DVector3C dir, double length, int mode)
+	{
+		m_start.set(start);
+		m_dir.set(dir);
+		Init(length, mode);
+	}
+
+
+	/**
+	 * Like Init(), for the ray at rays[r] of the array of
+	 * DSpace.raycastClosest(double[], int, DContactGeomBuffer).
+	 */
+	void Init (double[] rays, int r, int mode)
+	{
+		m_start.set(rays[r], rays[r+1], rays[r+2]);
+		m_dir.set(rays[r+3], rays[r+4], rays[r+5]);
+		Init(rays[r+6], mode);
+	}
+
+
+	private void Init (double length, int mode)
+	{
+		double len = m_dir.length();
+		dUASSERT (len > 0, "ray direction must not be zero");
+		dUASSERT (length >= 0, "ray length must not be negative");
+		m_dir.scale(1.0 / len);
+		m_clip = length;
+		m_mode = mode;
+		m_hit = false;
+		m_hitCount = 0;
+		// the closest hit of each geom, or any hit for ANY
+		m_ray.dGeomRaySetClosestHit(mode != ANY);
+		m_ray.dGeomRaySetFirstContact(mode == ANY);
+	}
+
+
+	void SetResult (DContactGeom result)
+	{
+		m_result = result;
+	}
+
+
+	void SetHits (DContactGeomBuffer hits, int maxHits)
+	{
+		m_hits = hits;
+		m_maxHits = maxHits;
+	}
+
+
+	boolean IsHit ()
+	{
+		return m_hit;
+	}
+
+
+	int GetHitCount ()
+	{
+		return m_hitCount;
+	}
+
+
+	double GetClip ()
+	{
+		return m_clip;
+	}
+
+
+	/**
+	 * @return the distance at which the ray enters the AABB, or
+	 * <tt>dInfinity</tt> if it misses the AABB
+	 */
+	double Enter (DAABBC aabb)
+	{
+		return Enter(aabb.getMin0(), aabb.getMin1(), aabb.getMin2(),
+				aabb.getMax0(), aabb.getMax1(), aabb.getMax2());
+	}
+
+
+	/**
+	 * Slab test of the ray up to the clip distance against an AABB.
+	 * @return the distance at which the ray enters the AABB, or
+	 * <tt>dInfinity</tt> if it misses the AABB
+	 */
+	double Enter (double min0, double min1, double min2,
+			double max0, double max1, double max2)
+	{
+		double tmin = 0;
+		double tmax = m_clip;
+		for (int k = 0; k < 3; k++) {
+			double min = k == 0 ? min0 : (k == 1 ? min1 : min2);
+			double max = k == 0 ? max0 : (k == 1 ? max1 : max2);
+			double p = m_start.get(k);
+			double d = m_dir.get(k);
+			if (d == 0) {
+				if (p < min || p > max) {
+					return dInfinity;
+				}
+				continue;
+			}
+			double inv = 1.0 / d;
+			double t1 = (min - p) * inv;
+			double t2 = (max - p) * inv;
+			if (t1 > t2) {
+				double t = t1;
+				t1 = t2;
+				t2 = t;
+			}
+			if (t1 > tmin) tmin = t1;
+			if (t2 < tmax) tmax = t2;
+			if (tmin > tmax) {
+				return dInfinity;
+			}
+		}
+		return tmin;
+	}
+
+
+	/**
+	 * Test a geom against the ray. The geoms of spaces are tested by the
+	 * space.
+	 * @return true if the query is done
+	 */
+	boolean Test (DxGeom g)
+	{
+		if (Enter(g._aabb) > m_clip) {
+			return false;
+		}
+		if (g instanceof DxSpace) {
+			return ((DxSpace) g).raycastGeoms(this);
+		}
+
+		m_ray.SetRay(m_start, m_dir, m_clip);
+		m_ray.recomputeAABB();
+		if (DxGeom.dCollide(m_ray, g, 1, m_contact, 1) == 0) {
+			return false;
+		}
+		DContactGeom c = m_contact.get(0);
+		if (c.depth > m_clip) {
+			return false;
+		}
+
+		switch (m_mode) {
+		case CLOSEST:
+			Copy(c, m_result);
+			m_hit = true;
+			m_clip = c.depth;
+			return false;
+		case ANY:
+			Copy(c, m_result);
+			m_hit = true;
+			return true;
+		default:
+			AddHit(c);
+			return false;
+		}
+	}
+
+
+	/**
+	 * Insert a hit into the sorted hits. If there are m_maxHits hits, the
+	 * farthest one is dropped and the ray is clipped to the new farthest
+	 * one.
+	 */
+	private void AddHit (DContactGeom c)
+	{
+		int i = m_hitCount;
+		if (i == m_maxHits) {
+			if (c.depth >= m_hits.get(i - 1).depth) {
+				return;
+			}
+			i--;
+		} else {
+			m_hitCount++;
+		}
+		// keep the DContactGeom objects in the buffer, move the data
+		for (; i > 0 && m_hits.get(i - 1).depth > c.depth; i--) {
+			Copy(m_hits.get(i - 1), m_hits.get(i));
+		}
+		Copy(c, m_hits.get(i));
+		if (m_hitCount == m_maxHits) {
+			m_clip = m_hits.get(m_hitCount - 1).depth;
+		}
+	}
+
+
+	private static void Copy (DContactGeom src, DContactGeom dst)
+	{
+		dst.pos.set(src.pos);
+		dst.normal.set(src.normal);
+		dst.depth = src.depth;
+		// the ray of the query is internal
+		dst.g1 = null;
+		dst.g2 = src.g2;
+		dst.side1 = src.side1;
+		dst.side2 = src.side2;
+	}
+}
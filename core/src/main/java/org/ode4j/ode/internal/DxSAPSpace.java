@@ -77,7 +77,12 @@ public class DxSAPSpace extends DxSpace implements DSapSpace {
 	// infinite geoms anyway).
 	//private dArray<dxGeom> TmpGeomList;	// temporary for normal geoms
 	private ArrayList<DxGeom> TmpGeomList = new ArrayList<DxGeom>();	// temporary for normal geoms
+	private final GeomComparator geomComparator = new GeomComparator();
 	private List<DxGeom> TmpInfGeomList = new ArrayList<DxGeom>();	// temporary for geoms with infinite AABBs
+	// If sleeping pairs are skipped, the normal geoms that are not active are
+	// kept here instead of in TmpGeomList. The list stays sorted between
+	// calls, so sorting it again is cheap while the geoms sleep.
+	private ArrayList<DxGeom> SleepGeomList = new ArrayList<DxGeom>();
 
 	// Our sorting axes. (X,Z,Y is often best). Stored *2 for minor speedup
 	// Axis indices into geom's aabb are: min=idx, max=idx+1
@@ -254,6 +259,10 @@ public class DxSAPSpace extends DxSpace implements DSapSpace {
 			GEOM_SET_GEOM_IDX(g,GEOM_INVALID_IDX);
 			GeomList.remove( geomSize-1 );
 		}
+		if( g._sapSleepEx ) {
+			SleepGeomList.remove( g );
+			g._sapSleepEx = false;
+		}
 		
 		super.remove(g);
 	}
@@ -329,7 +338,66 @@ public class DxSAPSpace extends DxSpace implements DSapSpace {
 		lock_count++;
 
 		cleanGeoms();
+		SeparateGeoms();
+
+		// do SAP on normal AABBs
+		int normSize = TmpGeomList.size();
+		if ( normSize > 0 )
+		{
+			// Size the poslist (+1 for infinity end cap)
+			//poslist.setSize( tmp_geom_count + 1 );
+			//TODO TZ not used at the moment
+			//poslist = new float[ tmp_geom_count + 1 ];
+			//poslist = new float[ tmp_geom_count ];
+
+			// Generate a list of overlapping boxes
+			//BoxPruning( tmp_geom_count, (final dxGeom**)TmpGeomList.data(), overlapBoxes );
+			BoxPruning( TmpGeomList, data, callback );
+		}
+		PruneSleeping( data, callback );
+
+		CollideInfiniteGeoms( data, callback );
+
+		lock_count--;
+	}
+
+	/**
+	 * Like collide(), but the pruning of the sorted list is split into
+	 * chunks that are collided on all threads.
+	 */
+	@Override
+	public void collideThreaded( Object data, DNearCallback callback )
+	{
+		dAASSERT (callback);
+
+		lock_count++;
+
+		cleanGeoms();
+		SeparateGeoms();
+
+		int normSize = TmpGeomList.size();
+		if ( normSize > 0 )
+		{
+			Collections.sort(TmpGeomList, geomComparator);
+			collideChunks( chunkCollider, normSize, data, callback );
+		}
+		PruneSleeping( data, callback );
+
+		CollideInfiniteGeoms( data, callback );
 
+		lock_count--;
+	}
+
+	private final dxChunkCollider chunkCollider = new dxChunkCollider() {
+		@Override
+		public void collideChunk( int begin, int end, Object data, DNearCallback callback )
+		{
+			PruneRange( TmpGeomList, begin, end, data, callback );
+		}
+	};
+
+	private void SeparateGeoms()
+	{
 		// by now all geoms are in GeomList, and DirtyList must be empty
 		int geom_count = GeomList.size();
 		dUASSERT( geom_count == getNumGeoms(), "geom counts messed up" );
@@ -338,6 +406,7 @@ public class DxSAPSpace extends DxSpace implements DSapSpace {
 		TmpGeomList.clear();//setSize(0);
 		TmpInfGeomList.clear();
 		int axis0max = ax0id;// + 1;
+		UpdateSleepGeoms();
 		for( int i = 0; i < geom_count; ++i ) {
 			DxGeom g = GeomList.get(i);
 			if( !GEOM_ENABLED(g) ) // skip disabled ones
@@ -345,25 +414,44 @@ public class DxSAPSpace extends DxSpace implements DSapSpace {
 			final double amax = g._aabb.getMax(axis0max);
 			if( amax == dInfinity ) // HACK? probably not...
 				TmpInfGeomList.add( g );
+			else if( skipSleepingPairs && !GEOM_ACTIVE(g) ) {
+				if( !g._sapSleepEx ) {
+					g._sapSleepEx = true;
+					SleepGeomList.add( g );
+				}
+			}
 			else
 				TmpGeomList.add( g );//push( g );
 		}
+		if( !SleepGeomList.isEmpty() ) {
+			// the old geoms are still sorted, only new and moved ones are not
+			Collections.sort(SleepGeomList, geomComparator);
+		}
+	}
 
-		// do SAP on normal AABBs
-		int normSize = TmpGeomList.size();
-		if ( normSize > 0 )
-		{
-			// Size the poslist (+1 for infinity end cap)
-			//poslist.setSize( tmp_geom_count + 1 );
-			//TODO TZ not used at the moment
-			//poslist = new float[ tmp_geom_count + 1 ];
-			//poslist = new float[ tmp_geom_count ];
-
-			// Generate a list of overlapping boxes
-			//BoxPruning( tmp_geom_count, (final dxGeom**)TmpGeomList.data(), overlapBoxes );
-			BoxPruning( TmpGeomList, data, callback );
+	/**
+	 * Remove the geoms that woke up, were disabled or got an infinite AABB
+	 * from SleepGeomList, keeping the order of the others.
+	 */
+	private void UpdateSleepGeoms()
+	{
+		int size = SleepGeomList.size();
+		int n = 0;
+		for( int i = 0; i < size; ++i ) {
+			DxGeom g = SleepGeomList.get(i);
+			if( skipSleepingPairs && GEOM_ENABLED(g) && !GEOM_ACTIVE(g) &&
+					g._aabb.getMax(ax0id) != dInfinity ) {
+				SleepGeomList.set(n++, g);
+			} else {
+				g._sapSleepEx = false;
+			}
 		}
+		SleepGeomList.subList(n, size).clear();
+	}
 
+	private void CollideInfiniteGeoms( Object data, DNearCallback callback )
+	{
+		int normSize = TmpGeomList.size();
 		int infSize = TmpInfGeomList.size();
 		int m, n;
 
@@ -374,7 +462,15 @@ public class DxSAPSpace extends DxSpace implements DSapSpace {
 			// collide infinite ones
 			for( n = m+1; n < infSize; ++n ) {
 				DxGeom g2 = TmpInfGeomList.get(n);
-				collideGeomsNoAABBs( g1, g2, data, callback );
+				if( !SKIP_PAIR(g1, g2) )
+					collideGeomsNoAABBs( g1, g2, data, callback );
+			}
+
+			// collide active infinite ones with sleeping ones
+			if( GEOM_ACTIVE(g1) ) {
+				for( n = 0; n < SleepGeomList.size(); ++n ) {
+					collideGeomsNoAABBs( g1, SleepGeomList.get(n), data, callback );
+				}
 			}
 
 			// collide infinite ones with normal ones
@@ -383,8 +479,6 @@ public class DxSAPSpace extends DxSpace implements DSapSpace {
 				collideGeomsNoAABBs( g1, g2, data, callback );
 			}
 		}
-
-		lock_count--;
 	}
 
 	//void dxSAPSpace::collide2( void *data, dxGeom *geom, dNearCallback *callback )
@@ -443,28 +537,74 @@ public class DxSAPSpace extends DxSpace implements DSapSpace {
 
 		// 2) Sort the list
 		List<DxGeom> buffer = geoms;
-		Collections.sort(buffer, new GeomComparator());
-		int size = buffer.size();
+		Collections.sort(buffer, geomComparator);
 		// 3) Prune the list
-		for (int i = 0; i < size; i++) {
-			DxGeom g0 = buffer.get(i);
-			DAABB aabb0 = g0._aabb;
-			final double idx0ax0max = aabb0.getMax(ax0id);//(ax0idx+1);
-			for (int j = i+1; j < size; j++) {
-				DxGeom g1 = buffer.get(j);
-				if (g1._aabb.getMin(ax0id) > idx0ax0max) {
-					//This and following elements can not intersect with g1.
-					break;
-				}
-//				if ( aabb0.get(ax1idx+1) >= g1._aabb.get(ax1idx)) 
-//					if (g1._aabb.get(ax1idx+1) >= aabb0.get(ax1idx) )
-//						if ( aabb0.get(ax2idx+1) >= g1._aabb.get(ax2idx))
-//							if (g1._aabb.get(ax2idx+1) >= aabb0.get(ax2idx) )
-				if ( aabb0.getMax(ax1id) >= g1._aabb.getMin(ax1id)) 
-					if (g1._aabb.getMax(ax1id) >= aabb0.getMin(ax1id) )
-						if ( aabb0.getMax(ax2id) >= g1._aabb.getMin(ax2id))
-							if (g1._aabb.getMax(ax2id) >= aabb0.getMin(ax2id) )
-								collideGeomsNoAABBs(g0, g1, data, callback);
+		PruneRange(buffer, 0, buffer.size(), data, callback);
+	}
+
+	/**
+	 * Prune the geoms [begin, end) of the sorted list against all following
+	 * geoms.
+	 */
+	private void PruneRange(final List<DxGeom> buffer, int begin, int end,
+			Object data, DNearCallback callback)
+	{
+		for (int i = begin; i < end; i++) {
+			PruneGeom(buffer.get(i), buffer, i+1, data, callback);
+		}
+	}
+
+	/**
+	 * Prune a geom against the geoms of a sorted list, starting with the
+	 * geom at <tt>begin</tt>, whose minimum on the first axis must not be
+	 * smaller than the one of the geom.
+	 */
+	private void PruneGeom(DxGeom g0, final List<DxGeom> buffer, int begin,
+			Object data, DNearCallback callback)
+	{
+		int size = buffer.size();
+		DAABB aabb0 = g0._aabb;
+		final double idx0ax0max = aabb0.getMax(ax0id);//(ax0idx+1);
+		for (int j = begin; j < size; j++) {
+			DxGeom g1 = buffer.get(j);
+			if (g1._aabb.getMin(ax0id) > idx0ax0max) {
+				//This and following elements can not intersect with g1.
+				break;
+			}
+//			if ( aabb0.get(ax1idx+1) >= g1._aabb.get(ax1idx)) 
+//				if (g1._aabb.get(ax1idx+1) >= aabb0.get(ax1idx) )
+//					if ( aabb0.get(ax2idx+1) >= g1._aabb.get(ax2idx))
+//						if (g1._aabb.get(ax2idx+1) >= aabb0.get(ax2idx) )
+			if ( aabb0.getMax(ax1id) >= g1._aabb.getMin(ax1id)) 
+				if (g1._aabb.getMax(ax1id) >= aabb0.getMin(ax1id) )
+					if ( aabb0.getMax(ax2id) >= g1._aabb.getMin(ax2id))
+						if (g1._aabb.getMax(ax2id) >= aabb0.getMin(ax2id) )
+							collideGeomsNoAABBs(g0, g1, data, callback);
+		}
+	}
+
+	/**
+	 * Find the overlapping pairs of the sorted active geoms in TmpGeomList
+	 * and the sorted sleeping geoms in SleepGeomList. Both lists are merged
+	 * on the first axis, and each geom is pruned against the following
+	 * geoms of the other list, so the sleeping geoms are never pruned
+	 * against each other.
+	 */
+	private void PruneSleeping(Object data, DNearCallback callback)
+	{
+		int activeSize = TmpGeomList.size();
+		int sleepSize = SleepGeomList.size();
+		int a = 0;
+		int s = 0;
+		while (a < activeSize && s < sleepSize) {
+			DxGeom ga = TmpGeomList.get(a);
+			DxGeom gs = SleepGeomList.get(s);
+			if (ga._aabb.getMin(ax0id) <= gs._aabb.getMin(ax0id)) {
+				PruneGeom(ga, SleepGeomList, s, data, callback);
+				a++;
+			} else {
+				PruneGeom(gs, TmpGeomList, a, data, callback);
+				s++;
 			}
 		}
 	}
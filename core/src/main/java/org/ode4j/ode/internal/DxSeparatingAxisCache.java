@@ -0,0 +1,193 @@
+/*************************************************************************
+ *                                                                       *
+ * Open Dynamics Engine, Copyright (C) 2001,2002 Russell L. Smith.       *
+ * All rights reserved.  Email: russ@q12.org   Web: www.q12.org          *
+ * Open Dynamics Engine 4J, Copyright (C) 2009-2014 Tilmann Zaeschke     *
+ * All rights reserved.  Email: ode4j@gmx.de   Web: www.ode4j.org        *
+ *                                                                       *
+ * This library is free software; you can redistribute it and/or         *
+ * modify it under the terms of EITHER:                                  *
+ *   (1) The GNU Lesser General Public License as published by the Free  *
+ *       Software Foundation; either version 2.1 of the License, or (at  *
+ *       your option) any later version. The text of the GNU Lesser      *
+ *       General Public License is included with this library in the     *
+ *       file LICENSE.TXT.                                               *
+ *   (2) The BSD-style license that is included with this library in     *
+ *       the file ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT.         *
+ *                                                                       *
+ * This library is distributed in the hope that it will be useful,       *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the files    *
+ * LICENSE.TXT, ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT for more   *
+ * details.                                                              *
+ *                                                                       *
+ *************************************************************************/
+package org.ode4j.ode.internal;
+
+import org.ode4j.math.DVector3;
+import org.ode4j.ode.OdeConfig;
+
+/**
+ * The separating axis of the last collision of each geom pair, used by the
+ * box-box and the convex-convex SAT colliders. Pairs that stay separated
+ * by the same axis are found with a single axis test instead of all axes.
+ * The colliders store the separating axis, or the axis of minimum
+ * penetration if the geoms intersect, and test it first the next time.
+ * The convex-convex colliders also store the support points of the last
+ * collision of a pair, large convex shapes start their hill-climbing
+ * there the next time.
+ * <p>
+ * The cache is only a hint: the colliders return the same contacts with
+ * or without it, except that a support point search may end at another
+ * point of a face that is perpendicular to the search direction. Every
+ * thread has its own cache, so concurrent collisions need no locking. The
+ * size is bounded by {@link OdeConfig#setSeparatingAxisCacheSize(int)}:
+ * pairs are kept in sets of two, and a new pair replaces the least
+ * recently used pair of its set. The pairs are stored by the unique keys
+ * of the geoms (DxGeom._sacKeyEx), so the cache does not keep destroyed
+ * geoms alive.
+ */
+final class DxSeparatingAxisCache {
+
+	private static final int WAYS = 2;
+
+	private static final ThreadLocal<DxSeparatingAxisCache> caches =
+			new ThreadLocal<DxSeparatingAxisCache>();
+
+	private final int m_size;
+	private final int m_mask;
+	private final long[] m_keys1;
+	private final long[] m_keys2;
+	private final int[] m_axes;
+	private final int[] m_support1;
+	private final int[] m_support2;
+	// the way of each set that was used last
+	private final byte[] m_recent;
+
+	/** Temporaries for the axis tests, the cache belongs to one thread. */
+	final DVector3 tmp1 = new DVector3(), tmp2 = new DVector3();
+
+	/** The support points found by findSupport(). */
+	int support1, support2;
+
+	private DxSeparatingAxisCache(int size) {
+		m_size = size;
+		int sets = 1;
+		while (sets * 2 * WAYS <= size) {
+			sets *= 2;
+		}
+		m_mask = sets - 1;
+		m_keys1 = new long[sets * WAYS];
+		m_keys2 = new long[sets * WAYS];
+		m_axes = new int[sets * WAYS];
+		m_support1 = new int[sets * WAYS];
+		m_support2 = new int[sets * WAYS];
+		m_recent = new byte[sets];
+	}
+
+	/**
+	 * @return The cache of the current thread, or <tt>null</tt> if the
+	 * cache is disabled.
+	 */
+	static DxSeparatingAxisCache get() {
+		int size = OdeConfig.getSeparatingAxisCacheSize();
+		if (size <= 0) {
+			return null;
+		}
+		DxSeparatingAxisCache cache = caches.get();
+		if (cache == null || cache.m_size != size) {
+			cache = new DxSeparatingAxisCache(size);
+			caches.set(cache);
+		}
+		return cache;
+	}
+
+	/**
+	 * Drops the cache of the current thread.
+	 */
+	static void cleanupForThread() {
+		caches.remove();
+	}
+
+	private static int hash(long k1, long k2) {
+		long h = k1 * 31 + k2;
+		int i = (int) (h ^ (h >>> 32));
+		return i ^ (i >>> 16);
+	}
+
+	/**
+	 * @return The entry of the pair, or -1 if there is none.
+	 */
+	private int entry(long k1, long k2) {
+		int set = hash(k1, k2) & m_mask;
+		for (int w = 0; w < WAYS; w++) {
+			int e = set * WAYS + w;
+			if (m_keys1[e] == k1 && m_keys2[e] == k2) {
+				m_recent[set] = (byte) w;
+				return e;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return The entry of the pair, a new pair replaces the least recently
+	 * used pair of its set and has neither axis nor support points.
+	 */
+	private int add(long k1, long k2) {
+		int e = entry(k1, k2);
+		if (e != -1) {
+			return e;
+		}
+		int set = hash(k1, k2) & m_mask;
+		// with two ways, the other one is the least recently used
+		int way = 1 - m_recent[set];
+		e = set * WAYS + way;
+		m_keys1[e] = k1;
+		m_keys2[e] = k2;
+		m_axes[e] = 0;
+		m_support1[e] = -1;
+		m_support2[e] = -1;
+		m_recent[set] = (byte) way;
+		return e;
+	}
+
+	/**
+	 * @return The axis stored for the pair, or 0 if there is none.
+	 */
+	int find(DxGeom g1, DxGeom g2) {
+		int e = entry(g1._sacKeyEx, g2._sacKeyEx);
+		return e == -1 ? 0 : m_axes[e];
+	}
+
+	/**
+	 * Stores the axis of the pair.
+	 */
+	void put(DxGeom g1, DxGeom g2, int axis) {
+		m_axes[add(g1._sacKeyEx, g2._sacKeyEx)] = axis;
+	}
+
+	/**
+	 * Looks up the support points of the last collision of the pair and
+	 * returns them in support1 and support2, -1 if there are none.
+	 * @return true if the pair is in the cache
+	 */
+	boolean findSupport(DxGeom g1, DxGeom g2) {
+		int e = entry(g1._sacKeyEx, g2._sacKeyEx);
+		if (e == -1) {
+			return false;
+		}
+		support1 = m_support1[e];
+		support2 = m_support2[e];
+		return true;
+	}
+
+	/**
+	 * Stores the support points of the pair.
+	 */
+	void putSupport(DxGeom g1, DxGeom g2, int s1, int s2) {
+		int e = add(g1._sacKeyEx, g2._sacKeyEx);
+		m_support1[e] = s1;
+		m_support2[e] = s2;
+	}
+}
@@ -84,7 +84,7 @@ public class DxSimpleSpace extends DxSpace implements DSimpleSpace {
 		for (DxGeom g1 : getGeoms()) {
 			if (GEOM_ENABLED(g1)){
 				for (DxGeom g2=g1.getNext(); g2!=null; g2=g2.getNext()) {
-					if (GEOM_ENABLED(g2)){
+					if (GEOM_ENABLED(g2) && !SKIP_PAIR(g1,g2)){
 						collideAABBs (g1,g2,data,callback);
 					}
 				}
@@ -24,11 +24,18 @@
  *************************************************************************/
 package org.ode4j.ode.internal;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
+import org.ode4j.math.DVector3C;
 import org.ode4j.ode.DAABB;
+import org.ode4j.ode.DContactGeom;
+import org.ode4j.ode.DContactGeomBuffer;
 import org.ode4j.ode.DGeom;
 import org.ode4j.ode.DSpace;
+import org.ode4j.ode.threading.DThreadingImplementation;
+import org.ode4j.ode.threading.Threading_H.DThreadingFunctionsInfo;
 
 import static org.ode4j.ode.internal.Common.*;
 
@@ -86,6 +93,16 @@ public abstract class DxSpace extends DxGeom implements DSpace {
 	// is locked.
 	int lock_count;
 
+	// threading implementation of collideThreaded()
+	private DxThreadedChunks threading = null;
+
+	// null while in use, e.g. by a nested query. one per space, the ray
+	// queries are not thread-safe (see DSpace.raycastClosest())
+	private DxRayQuery rayQuery = null;
+
+	// skip pairs without active geom in collide()
+	boolean skipSleepingPairs = false;
+
 	/**
 	 * Turn all dirty geoms into clean geoms by computing their AABBs and any
 	 * other space data structures that are required. this should clear the
@@ -99,6 +116,77 @@ public abstract class DxSpace extends DxGeom implements DSpace {
 	public abstract void collide (Object data, DNearCallback callback);
 	abstract void collide2 (Object data, DxGeom geom, DNearCallback callback);
 
+	/**
+	 * Spaces that can split their pair search override this and call
+	 * collideChunks() with their dxChunkCollider.
+	 */
+	@Override
+	public void collideThreaded (Object data, DNearCallback callback)
+	{
+		collide (data, callback);
+	}
+
+	/**
+	 * The pair search of a space that can be split into chunks of items,
+	 * see collideChunks().
+	 */
+	interface dxChunkCollider {
+		/**
+		 * Collide the items [begin, end) of the current collideThreaded() call.
+		 * This is called concurrently by collideChunks().
+		 */
+		void collideChunk (int begin, int end, Object data, DNearCallback callback);
+	}
+
+	/**
+	 * @return true if the geom is a space or attached to an enabled body
+	 */
+	static boolean GEOM_ACTIVE (DxGeom g)
+	{
+		return g instanceof DxSpace || (g.body != null && g.body.dBodyIsEnabled());
+	}
+
+	/**
+	 * @return true if collide() skips the pair because neither geom is
+	 * active
+	 */
+	final boolean SKIP_PAIR (DxGeom g1, DxGeom g2)
+	{
+		return skipSleepingPairs && !GEOM_ACTIVE(g1) && !GEOM_ACTIVE(g2);
+	}
+
+	@Override
+	public void setSkipSleepingPairs (boolean skip)
+	{
+		skipSleepingPairs = skip;
+	}
+
+	@Override
+	public boolean getSkipSleepingPairs ()
+	{
+		return skipSleepingPairs;
+	}
+
+	/**
+	 * Pass the enabled geoms of this space whose AABB may be hit by the ray
+	 * of the query to q.Test(), until it returns true. Spaces that can
+	 * find these geoms faster, or sort them by distance, override this.
+	 * @return true if the query is done
+	 */
+	boolean raycastGeoms (DxRayQuery q)
+	{
+		lock_count++;
+		cleanGeoms();
+		boolean done = false;
+		for (DxGeom g = _first; g != null && !done; g = g.getNext()) {
+			if (GEOM_ENABLED(g)) {
+				done = q.Test(g);
+			}
+		}
+		lock_count--;
+		return done;
+	}
+
 
 	public void dSpaceDestroy ()
 	{
@@ -560,4 +648,150 @@ public abstract class DxSpace extends DxGeom implements DSpace {
 			}
 		};
 	}
+
+	// *********************************************
+	// threaded collide
+	// *********************************************
+
+	@Override
+	public void setThreadingImplementation (DThreadingFunctionsInfo functions_info,
+			DThreadingImplementation threading_impl)
+	{
+		if (threading == null) {
+			threading = new DxThreadedChunks();
+		}
+		threading.setThreadingImplementation(functions_info, threading_impl);
+	}
+
+	/**
+	 * Call collider.collideChunk() for chunks of the items [0, itemCount) on all
+	 * threads of the threading implementation and wait until all items
+	 * are done. Without threading implementation, all items are collided
+	 * on the calling thread.
+	 * <p>
+	 * Pairs that must not be collided concurrently (see
+	 * DxGeom.dCollideIsSerial()) are passed to the callback on the calling
+	 * thread after all chunks are done.
+	 */
+	void collideChunks (final dxChunkCollider collider, int itemCount,
+			final Object data, final DNearCallback callback)
+	{
+		if (threading == null || !threading.isThreaded()) {
+			collider.collideChunk (0, itemCount, data, callback);
+			return;
+		}
+		final List<DGeom> serialPairs = new ArrayList<DGeom>();
+		final DNearCallback chunkCallback = new DNearCallback() {
+			@Override
+			public void call(Object data, DGeom o1, DGeom o2) {
+				if (DxGeom.dCollideIsSerial(o1, o2)) {
+					synchronized (serialPairs) {
+						serialPairs.add(o1);
+						serialPairs.add(o2);
+					}
+				} else {
+					callback.call(data, o1, o2);
+				}
+			}
+		};
+		threading.run(itemCount, new DxThreadedChunks.dxChunkFunction() {
+			@Override
+			public void run(int begin, int end) {
+				collider.collideChunk (begin, end, data, chunkCallback);
+			}
+		});
+		for (int i = 0; i < serialPairs.size(); i += 2) {
+			callback.call(data, serialPairs.get(i), serialPairs.get(i + 1));
+		}
+	}
+
+
+	// *********************************************
+	// ray queries
+	// *********************************************
+
+	private DxRayQuery AcquireRayQuery ()
+	{
+		DxRayQuery q = rayQuery;
+		if (q == null) {
+			// first or nested query
+			return new DxRayQuery();
+		}
+		rayQuery = null;
+		return q;
+	}
+
+	private void ReleaseRayQuery (DxRayQuery q)
+	{
+		q.SetResult(null);
+		q.SetHits(null, 0);
+		rayQuery = q;
+	}
+
+	private boolean raycastOne (DVector3C start, DVector3C dir, double length,
+			DContactGeom result, int mode)
+	{
+		dAASSERT (start, dir, result);
+		DxRayQuery q = AcquireRayQuery();
+		q.Init(start, dir, length, mode);
+		q.SetResult(result);
+		raycastGeoms(q);
+		boolean hit = q.IsHit();
+		ReleaseRayQuery(q);
+		return hit;
+	}
+
+	@Override
+	public boolean raycastClosest (DVector3C start, DVector3C dir, double length,
+			DContactGeom result)
+	{
+		return raycastOne(start, dir, length, result, DxRayQuery.CLOSEST);
+	}
+
+	@Override
+	public boolean raycastAny (DVector3C start, DVector3C dir, double length,
+			DContactGeom result)
+	{
+		return raycastOne(start, dir, length, result, DxRayQuery.ANY);
+	}
+
+	@Override
+	public int raycastAll (DVector3C start, DVector3C dir, double length,
+			DContactGeomBuffer hits, int maxHits)
+	{
+		dAASSERT (start, dir, hits);
+		if (maxHits <= 0) {
+			return 0;
+		}
+		DxRayQuery q = AcquireRayQuery();
+		q.Init(start, dir, length, DxRayQuery.ALL);
+		q.SetHits(hits, maxHits);
+		raycastGeoms(q);
+		int n = q.GetHitCount();
+		ReleaseRayQuery(q);
+		return n;
+	}
+
+	@Override
+	public int raycastClosest (double[] rays, int rayCount, DContactGeomBuffer results)
+	{
+		dAASSERT (rays, results);
+		dUASSERT (rays.length >= 7 * rayCount, "rays too short for rayCount");
+		DxRayQuery q = AcquireRayQuery();
+		int hits = 0;
+		for (int i = 0; i < rayCount; i++) {
+			DContactGeom result = results.get(i);
+			q.Init(rays, 7 * i, DxRayQuery.CLOSEST);
+			q.SetResult(result);
+			raycastGeoms(q);
+			if (q.IsHit()) {
+				hits++;
+			} else {
+				result.g1 = null;
+				result.g2 = null;
+			}
+		}
+		ReleaseRayQuery(q);
+		return hits;
+	}
 }
@@ -0,0 +1,148 @@
+/*************************************************************************
+ *                                                                       *
+ * Open Dynamics Engine, Copyright (C) 2001,2002 Russell L. Smith.       *
+ * All rights reserved.  Email: russ@q12.org   Web: www.q12.org          *
+ * Open Dynamics Engine 4J, Copyright (C) 2009-2014 Tilmann Zaeschke     *
+ * All rights reserved.  Email: ode4j@gmx.de   Web: www.ode4j.org        *
+ *                                                                       *
+ * This library is free software; you can redistribute it and/or         *
+ * modify it under the terms of EITHER:                                  *
+ *   (1) The GNU Lesser General Public License as published by the Free  *
+ *       Software Foundation; either version 2.1 of the License, or (at  *
+ *       your option) any later version. The text of the GNU Lesser      *
+ *       General Public License is included with this library in the     *
+ *       file LICENSE.TXT.                                               *
+ *   (2) The BSD-style license that is included with this library in     *
+ *       the file ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT.         *
+ *                                                                       *
+ * This library is distributed in the hope that it will be useful,       *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the files    *
+ * LICENSE.TXT, ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT for more   *
+ * details.                                                              *
+ *                                                                       *
+ *************************************************************************/
+package org.ode4j.ode.internal;
+
+import static org.ode4j.ode.internal.Common.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.ode4j.ode.internal.cpp4j.java.Ref;
+import org.ode4j.ode.internal.cpp4j.java.RefInt;
+import org.ode4j.ode.threading.DThreadingImplementation;
+import org.ode4j.ode.threading.DxThreadingBase;
+import org.ode4j.ode.threading.Threading_H;
+import org.ode4j.ode.threading.Threading_H.CallContext;
+import org.ode4j.ode.threading.Threading_H.DCallReleasee;
+import org.ode4j.ode.threading.Threading_H.DCallWait;
+import org.ode4j.ode.threading.Threading_H.DThreadingFunctionsInfo;
+import org.ode4j.ode.threading.Threading_H.DxThreadingFunctionsInfo;
+import org.ode4j.ode.threading.Threading_H.dThreadedCallFunction;
+
+/**
+ * Splits a range of items into chunks and processes them on all threads of
+ * a threading implementation, e.g. for DSpace.collideThreaded(). The
+ * threads take the chunks from a shared counter, so that threads that
+ * finish early help out.
+ */
+final class DxThreadedChunks {
+
+	/** Processes the items [begin, end). Called concurrently. */
+	interface dxChunkFunction {
+		void run(int begin, int end);
+	}
+
+	// null to process all items on the calling thread
+	private DxThreadingBase threading = null;
+
+	void setThreadingImplementation (DThreadingFunctionsInfo functions_info,
+			DThreadingImplementation threading_impl)
+	{
+		dUASSERT ((functions_info == null) == (threading_impl == null),
+				"functions_info and threading_impl must both be set or both be null");
+		if (Threading_H.dTHREADING_INTF_DISABLED) {
+			dUASSERT(functions_info == null && threading_impl == null, "Threading interface is not available");
+		} else if (functions_info == null) {
+			threading = null;
+		} else {
+			if (threading == null) {
+				threading = new DxThreadingBase();
+			}
+			threading.AssignThreadingImpl((DxThreadingFunctionsInfo) functions_info, threading_impl);
+		}
+	}
+
+	boolean isThreaded ()
+	{
+		return threading != null;
+	}
+
+	/**
+	 * Call the function for chunks of the items [0, itemCount) on all
+	 * threads of the threading implementation and wait until all items
+	 * are done.
+	 */
+	void run (int itemCount, dxChunkFunction function)
+	{
+		if (threading == null || itemCount < 2) {
+			function.run (0, itemCount);
+			return;
+		}
+		int threadCount = Math.max(1, threading.RetrieveThreadingThreadCount());
+		// several chunks per thread, so that threads that finish early help out
+		int chunkSize = Math.max(1, itemCount / (threadCount * 8));
+		int jobCount = Math.min(threadCount, (itemCount + chunkSize - 1) / chunkSize);
+		dxChunksCallContext callContext = new dxChunksCallContext(function, itemCount, chunkSize);
+
+		RefInt summaryFault = new RefInt();
+		Ref<DCallReleasee> groupReleasee = new Ref<DCallReleasee>();
+		DCallWait callWait = threading.AllocThreadedCallWait();
+		try {
+			threading.PostThreadedCall(summaryFault, groupReleasee, jobCount, null, callWait,
+					dxChunksGroup_Callback, callContext, 0, "Chunks Group");
+			threading.PostThreadedCallsGroup(null, jobCount, groupReleasee.get(),
+					dxChunksJob_Callback, callContext, "Chunks Job");
+			threading.WaitThreadedCallExclusively(null, callWait, null, "Chunks Wait");
+		} finally {
+			threading.FreeThreadedCallWait(callWait);
+		}
+	}
+
+	private static class dxChunksCallContext implements CallContext
+	{
+		dxChunksCallContext(dxChunkFunction function, int itemCount, int chunkSize)
+		{
+			m_function = function;
+			m_itemCount = itemCount;
+			m_chunkSize = chunkSize;
+		}
+
+		final dxChunkFunction m_function;
+		final int m_itemCount;
+		final int m_chunkSize;
+		final AtomicInteger m_nextItem = new AtomicInteger();
+	}
+
+	private static final dThreadedCallFunction dxChunksGroup_Callback = new dThreadedCallFunction() {
+		@Override
+		public boolean run(CallContext callContext, int callInstanceIndex,
+				DCallReleasee callThisReleasee) {
+			// Do nothing - it's just a wrapper call
+			return true;
+		}
+	};
+
+	private static final dThreadedCallFunction dxChunksJob_Callback = new dThreadedCallFunction() {
+		@Override
+		public boolean run(CallContext callContext, int callInstanceIndex,
+				DCallReleasee callThisReleasee) {
+			dxChunksCallContext ctx = (dxChunksCallContext) callContext;
+			int begin;
+			while ((begin = ctx.m_nextItem.getAndAdd(ctx.m_chunkSize)) < ctx.m_itemCount) {
+				ctx.m_function.run(begin, Math.min(begin + ctx.m_chunkSize, ctx.m_itemCount));
+			}
+			return true;
+		}
+	};
+}
@@ -48,6 +48,11 @@ public abstract class DxTriMeshData implements DTriMeshData {
     /* For when app changes the vertices */
     abstract void UpdateData();
 
+    @Override
+    public void update() {
+    	UpdateData();
+    }
+
     public static DTriMeshData dGeomTriMeshDataCreate() {
 		switch (OdeConfig.dTRIMESH_TYPE) {
 		case DISABLED: return new DxTriMeshDisabled.dxTriMeshDisabledData();
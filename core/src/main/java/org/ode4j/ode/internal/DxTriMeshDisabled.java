@@ -39,7 +39,7 @@ class DxTriMeshDisabled extends DxTriMesh {
 
 		@Override
 		void UpdateData() {
-			throw new UnsupportedOperationException();
+			//
 		}
 
 //		@Override
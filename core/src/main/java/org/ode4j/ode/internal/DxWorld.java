@@ -56,6 +56,7 @@ import org.ode4j.ode.internal.processmem.DxUtil.free_block_fn_t;
 import org.ode4j.ode.internal.processmem.DxUtil.shrink_block_fn_t;
 import org.ode4j.ode.internal.processmem.DxWorldProcessContext;
 import org.ode4j.ode.internal.processmem.DxWorldProcessIslandsInfo;
+import org.ode4j.ode.internal.processmem.DxWorldStepReport;
 import org.ode4j.ode.internal.processmem.DxWorldProcessMemArena;
 import org.ode4j.ode.internal.processmem.DxWorldProcessMemoryManager;
 import org.ode4j.ode.internal.processmem.DxWorldProcessMemoryReserveInfo;
@@ -90,9 +91,18 @@ public class DxWorld extends DBase implements DWorld, DxIThreadingDefaultImplPro
 	dxAutoDisable adis;		// auto-disable parameters
 	int body_flags;               // flags for new bodies
     private int islands_max_threads; // maximum threads to allocate for island processing
+    private DxWorldStepReport step_report; // islands processing report of the last step, null if disabled
 	public DxStepWorkingMemory wmem; // Working memory object for dWorldStep/dWorldQuickStep
 
 	dxQuickStepParameters qs;
+	final DxContactCache contact_cache = new DxContactCache(); // contact impulses for warm starting
+	//TZ These live on the stack in C++. They are kept for the following steps, a 
+	//world is never stepped by two threads at the same time.
+	private final DxWorldProcessIslandsInfo islandsinfo = new DxWorldProcessIslandsInfo();
+	private final DxIslandsProcessingCallContext islandsCallContext = new DxIslandsProcessingCallContext();
+	private final RefInt islandsSummaryFault = new RefInt();
+	private final RefInt islandsActiveThreadCount = new RefInt();
+	private final Ref<DCallReleasee> islandsGroupReleasee = new Ref<DCallReleasee>();
 	public dxContactParameters contactp;
 	dxDampingParameters dampingp; // damping parameters
 	double max_angular_speed;      // limit the angular velocity to this magnitude
@@ -444,7 +454,7 @@ public class DxWorld extends DBase implements DWorld, DxIThreadingDefaultImplPro
 
 	    boolean result = false;
 
-	    DxWorldProcessIslandsInfo islandsinfo = new DxWorldProcessIslandsInfo();
+	    DxWorldProcessIslandsInfo islandsinfo = this.islandsinfo;
         if (DxWorldProcessContext.dxReallocateWorldProcessContext (this, islandsinfo, stepsize, 
         		Step.INSTANCE))//dxEstimateQuickStepMemoryRequirements))
         {
@@ -464,13 +474,16 @@ public class DxWorld extends DBase implements DWorld, DxIThreadingDefaultImplPro
 
 	    boolean result = false;
 
-	    DxWorldProcessIslandsInfo islandsinfo = new DxWorldProcessIslandsInfo();
+	    DxWorldProcessIslandsInfo islandsinfo = this.islandsinfo;
 	    if (DxWorldProcessContext.dxReallocateWorldProcessContext (this, islandsinfo, stepsize, 
 	            DxQuickStep.INSTANCE))//dxEstimateQuickStepMemoryRequirements))
 	    {
 	    	//if (dxProcessIslands (w, islandsinfo, stepsize, &dxQuickStepIsland, &dxEstimateQuickStepMaxCallCount))
 	        if (dxProcessIslands (islandsinfo, stepsize, DxQuickStep.INSTANCE, Step.INSTANCE))
 	        {
+	        	if (qs.warm_starting) {
+	        		contact_cache.Store(this);
+	        	}
 	        	result = true;
 	        }
 	    }
@@ -679,6 +692,58 @@ public class DxWorld extends DBase implements DWorld, DxIThreadingDefaultImplPro
 	}
 
 
+	private void dWorldSetQuickStepParallelSOR (boolean parallel)
+	{
+		qs.parallel_sor = parallel;
+	}
+
+
+	private boolean dWorldGetQuickStepParallelSOR ()
+	{
+		return qs.parallel_sor;
+	}
+
+
+	private void dWorldSetQuickStepWarmStarting (boolean warm)
+	{
+		qs.warm_starting = warm;
+		if (!warm) {
+			contact_cache.Clear();
+		}
+	}
+
+
+	private boolean dWorldGetQuickStepWarmStarting ()
+	{
+		return qs.warm_starting;
+	}
+
+
+	private void dWorldSetQuickStepMinIterations (int num)
+	{
+		qs.min_iterations = num;
+	}
+
+
+	private int dWorldGetQuickStepMinIterations ()
+	{
+		return qs.min_iterations;
+	}
+
+
+	private void dWorldSetQuickStepTolerance (double tolerance)
+	{
+		dUASSERT (tolerance >= 0, "tolerance must be >= 0");
+		qs.tolerance = tolerance;
+	}
+
+
+	private double dWorldGetQuickStepTolerance ()
+	{
+		return qs.tolerance;
+	}
+
+
 //	void dWorldSetContactMaxCorrectingVel (dxWorld w, double vel)
 	public void dWorldSetContactMaxCorrectingVel (double vel)
 	{
@@ -796,8 +861,8 @@ public class DxWorld extends DBase implements DWorld, DxIThreadingDefaultImplPro
 	{
 		boolean result = false;
 
-		DxIslandsProcessingCallContext callContext = new DxIslandsProcessingCallContext(this, 
-				islandsInfo, stepSize, stepper);
+		DxIslandsProcessingCallContext callContext = islandsCallContext;
+		callContext.Initialize(this, islandsInfo, stepSize, stepper);
 
 		do {
 			//DxStepWorkingMemory wmem = world.wmem;
@@ -806,13 +871,20 @@ public class DxWorld extends DBase implements DWorld, DxIThreadingDefaultImplPro
 			dIASSERT(context != null);
 			DCallWait pcwGroupCallWait = context.GetIslandsSteppingWait();
 
-			RefInt summaryFault = new RefInt();
+			RefInt summaryFault = islandsSummaryFault;
+			summaryFault.set(0);
 
-			RefInt activeThreadCount = new RefInt();
+			RefInt activeThreadCount = islandsActiveThreadCount;
 			final int islandsAllowedThreadCount = GetThreadingIslandsMaxThreadsCount(activeThreadCount);
 			dIASSERT(islandsAllowedThreadCount != 0);
 			dIASSERT(activeThreadCount.get() >= islandsAllowedThreadCount);
 
+			//TZ: With several threads, start the biggest islands first so that a large island
+			// is not picked up last while the other threads run out of work.
+			if (islandsAllowedThreadCount > 1) {
+				islandsInfo.SortScheduleBySizeDescending();
+			}
+
 			// For now, set stepper allowed threads equal to island stepping threads
 			int stepperAllowedThreadCount = islandsAllowedThreadCount; 
 
@@ -823,7 +895,16 @@ public class DxWorld extends DBase implements DWorld, DxIThreadingDefaultImplPro
 				break;
 			}
 
-			Ref<DCallReleasee> groupReleasee = new Ref<DCallReleasee>();
+			final DxWorldStepReport stepReport = step_report;
+			long startTime = 0;
+			if (stepReport != null) {
+				callContext.EnableSteppingTimeMeasurement();
+				callContext.AssignIslandIterationCounts(
+						stepReport.PrepareIslandIterationCounts(islandsInfo.GetIslandsCount()));
+				startTime = System.nanoTime();
+			}
+
+			Ref<DCallReleasee> groupReleasee = islandsGroupReleasee;
 			// First post a group call with dependency count set to number of expected threads
 			threading().PostThreadedCall(summaryFault, groupReleasee, islandsAllowedThreadCount, null, 
 					pcwGroupCallWait, 
@@ -847,6 +928,11 @@ public class DxWorld extends DBase implements DWorld, DxIThreadingDefaultImplPro
 				break;
 			}
 
+			if (stepReport != null) {
+				stepReport.Assign(islandsInfo, islandsAllowedThreadCount, 
+						System.nanoTime() - startTime, callContext);
+			}
+
 			result = true;
 		}
 		while (false);
@@ -1088,12 +1174,18 @@ public class DxWorld extends DBase implements DWorld, DxIThreadingDefaultImplPro
 
 	//private!
 	@Override
-	public DxThreadingFunctionsInfo RetrieveThreadingDefaultImpl(Ref<DThreadingImplementation> out_default_impl)
+	public DxThreadingFunctionsInfo RetrieveThreadingDefaultImpl()
 	{
-	    out_default_impl.set( g_world_default_threading_impl );
 	    return (DxThreadingFunctionsInfo) g_world_default_threading_functions;
 	}
 
+	//private!
+	@Override
+	public DThreadingImplementation RetrieveThreadingDefaultImplInstance()
+	{
+	    return g_world_default_threading_impl;
+	}
+
 	public DxThreadingBase threading() {
 		return dxThreadingBase;
 	}
@@ -1141,6 +1233,30 @@ public class DxWorld extends DBase implements DWorld, DxIThreadingDefaultImplPro
 	@Override
 	public double getQuickStepW() 
 	{ return dWorldGetQuickStepW (); }
+	@Override
+	public void setQuickStepParallelSOR(boolean parallel)
+	{ dWorldSetQuickStepParallelSOR (parallel); }
+	@Override
+	public boolean getQuickStepParallelSOR() 
+	{ return dWorldGetQuickStepParallelSOR (); }
+	@Override
+	public void setQuickStepWarmStarting(boolean warm)
+	{ dWorldSetQuickStepWarmStarting (warm); }
+	@Override
+	public boolean getQuickStepWarmStarting() 
+	{ return dWorldGetQuickStepWarmStarting (); }
+	@Override
+	public void setQuickStepMinIterations(int num)
+	{ dWorldSetQuickStepMinIterations (num); }
+	@Override
+	public int getQuickStepMinIterations() 
+	{ return dWorldGetQuickStepMinIterations (); }
+	@Override
+	public void setQuickStepTolerance(double tolerance)
+	{ dWorldSetQuickStepTolerance (tolerance); }
+	@Override
+	public double getQuickStepTolerance() 
+	{ return dWorldGetQuickStepTolerance (); }
 
 	@Override
 	public void  setAutoDisableLinearThreshold (double threshold) 
@@ -1308,19 +1424,33 @@ public class DxWorld extends DBase implements DWorld, DxIThreadingDefaultImplPro
 
 
 	@Override
-	@Deprecated
 	public void setStepIslandsProcessingMaxThreadCount(int count) {
 		dWorldSetStepIslandsProcessingMaxThreadCount(count);
 	}
 
 
 	@Override
-	@Deprecated
 	public int getStepIslandsProcessingMaxThreadCount() {
 		return dWorldGetStepIslandsProcessingMaxThreadCount();
 	}
 
 
+	@Override
+	public void setStepReportEnabled(boolean enabled) {
+		if (!enabled) {
+			step_report = null;
+		} else if (step_report == null) {
+			step_report = new DxWorldStepReport();
+		}
+	}
+
+
+	@Override
+	public DWorldStepReport getStepReport() {
+		return step_report;
+	}
+
+
 //	@Override
 //	public void dWorldSetStepThreadingImplementation(
 //			DThreadingFunctionsInfo functions_info,
@@ -1330,7 +1460,6 @@ public class DxWorld extends DBase implements DWorld, DxIThreadingDefaultImplPro
 
 
 	@Override
-	@Deprecated
 	public void setStepThreadingImplementation(
 			DThreadingFunctionsInfo functions_info,
 			DThreadingImplementation threading_impl) {
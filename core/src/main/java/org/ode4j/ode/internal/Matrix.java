@@ -33,7 +33,6 @@ import org.ode4j.math.DMatrix3;
 import org.ode4j.math.DMatrix3C;
 import org.ode4j.math.DVector3;
 import org.ode4j.math.DVector3C;
-import org.ode4j.ode.internal.processmem.DxWorldProcessMemArena;
 import org.ode4j.ode.internal.processmem.DxUtil.BlockPointer;
 
 public class Matrix extends FastDot {
@@ -728,7 +727,6 @@ public class Matrix extends FastDot {
 		double[] Acopy;
 		dAASSERT(n > 0);
 		int nskip = dPAD(n);
-		DxWorldProcessMemArena.dummyStatic();//tmpbuf
 		Acopy = new double[nskip * n]; // TZ (double*) ALLOCA (nskip*n *
 										// sizeof(double));
 		//memcpy(Acopy, A, nskip * n);// * sizeof(double));
@@ -815,7 +813,6 @@ public class Matrix extends FastDot {
 
 		if (n < 2)
 			return;
-		DxWorldProcessMemArena.dummyStatic();
 		double[] W1 = new double[n]; // (double*) ALLOCA (n*sizeof(double));
 		double[] W2 = new double[n]; // (double*) ALLOCA (n*sizeof(double));
 
@@ -932,7 +929,6 @@ public class Matrix extends FastDot {
 		if (r == n2 - 1) {
 			return; // deleting last row/col is easy
 		} else {
-		DxWorldProcessMemArena.dummyStatic();
 //		    int LDLTAddTL_size = _dEstimateLDLTAddTLTmpbufSize(nskip);
 //		    dIASSERT(LDLTAddTL_size % 8 /*sizeof(dReal)*/ == 0);
 //		    double[] tmp = tmpbuf!=null ? tmpbuf : new double[LDLTAddTL_size + n2];
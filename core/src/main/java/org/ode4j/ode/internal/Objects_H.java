@@ -108,7 +108,11 @@ public class Objects_H {
 	/** quick-step parameters. */
 	public static class dxQuickStepParameters extends CloneableParameter {
 		public int num_iterations;		// number of SOR iterations to perform
+		public int min_iterations;		// iterations to perform before checking for convergence
+		public double tolerance;		// stop once no lambda changes more than this (0 = never)
 		public double w;			// the SOR over-relaxation parameter
+		public boolean parallel_sor;	// solve coloured batches of joints in parallel
+		public boolean warm_starting;	// start with the lambda of the previous step
 		@Override
 		protected dxQuickStepParameters clone() {
 			return cloneThis();
@@ -117,6 +121,7 @@ public class Objects_H {
 		//TZ: 'explicit' not required in Java
 	    dxQuickStepParameters() {
 	    	num_iterations = 20;
+	    	min_iterations = 1;
 	    	w = 1.3;
 	    }
 	}
@@ -468,6 +468,10 @@ public class OdeInit {
                 CloseODEForMode(uiCurrentMode);
             }
         }
+        if (g_uiODEInitCounter == 0)
+        {
+            InternalCleanupODEAllDataForThread();
+        }
     }
 
     private static boolean InternalAllocateODEDataForThread(int uiAllocateFlags)
@@ -496,6 +500,7 @@ public class OdeInit {
 //    #if dTLS_ENABLED
 //        COdeTls::CleanupForThread();
 //    #endif
+        DxSeparatingAxisCache.cleanupForThread();
     }
 
     //****************************************************************************
@@ -60,7 +60,6 @@ import org.ode4j.ode.internal.joints.Info2DescrStep;
 import org.ode4j.ode.internal.processmem.DxStepperProcessingCallContext;
 import org.ode4j.ode.internal.processmem.DxStepperProcessingCallContext.dmaxcallcountestimate_fn_t;
 import org.ode4j.ode.internal.processmem.DxStepperProcessingCallContext.dstepper_fn_t;
-import org.ode4j.ode.internal.processmem.DxUtil.BlockPointer;
 import org.ode4j.ode.internal.processmem.DxWorldProcessIslandsInfo.dmemestimate_fn_t;
 import org.ode4j.ode.internal.processmem.DxWorldProcessMemArena;
 import org.ode4j.ode.threading.Threading_H.CallContext;
@@ -125,8 +124,8 @@ dmaxcallcountestimate_fn_t {
 
 	private static class dxStepperStage1CallContext implements CallContext
 	{
-		dxStepperStage1CallContext(final DxStepperProcessingCallContext stepperCallContext, 
-				BlockPointer stageMemArenaState, double[] invI, 
+		void Initialize(final DxStepperProcessingCallContext stepperCallContext, 
+				int stageMemArenaState, double[] invI, 
 				dJointWithInfo1[] jointinfosA, int jointinfosOfs)    {
 			m_stepperCallContext = stepperCallContext;
 			m_stageMemArenaState = stageMemArenaState; 
@@ -135,37 +134,39 @@ dmaxcallcountestimate_fn_t {
 			m_jointinfosOfs = jointinfosOfs;
 		}
 
-		final DxStepperProcessingCallContext m_stepperCallContext;
-		BlockPointer                    m_stageMemArenaState;
+		DxStepperProcessingCallContext m_stepperCallContext;
+		int                             m_stageMemArenaState;
 		double[]                        m_invI;
 		dJointWithInfo1[]               m_jointinfosA;
 		int				                m_jointinfosOfs;
 		final dxStepperStage0Outputs          m_stage0Outputs = new dxStepperStage0Outputs();
+		//TZ holder for the releasee of stage 1, reused with the context
+		final Ref<DCallReleasee>              m_stage1CallReleasee = new Ref<DCallReleasee>();
 	}
 
 	private static class dxStepperStage0BodiesCallContext implements CallContext
 	{
-		dxStepperStage0BodiesCallContext(final DxStepperProcessingCallContext stepperCallContext, 
+		void Initialize(final DxStepperProcessingCallContext stepperCallContext, 
 				double[] invI)
 				{
 			m_stepperCallContext = stepperCallContext;
 			m_invI = invI; 
-			m_tagsTaken = new AtomicInteger(0);
-			m_gravityTaken = new AtomicInteger(0);
-			//m_inertiaBodyIndex = 0;
+			m_tagsTaken.set(0);
+			m_gravityTaken.set(0);
+			m_inertiaBodyIndex.set(0);
 				}
 
-		final DxStepperProcessingCallContext m_stepperCallContext;
+		DxStepperProcessingCallContext m_stepperCallContext;
 		double[]                        m_invI;
-		final AtomicInteger                   m_tagsTaken;
-		final AtomicInteger                   m_gravityTaken;
+		final AtomicInteger                   m_tagsTaken = new AtomicInteger();
+		final AtomicInteger                   m_gravityTaken = new AtomicInteger();
 		//volatile int                    m_inertiaBodyIndex;
 		final AtomicInteger                     m_inertiaBodyIndex = new AtomicInteger();
 	}
 
 	private static class dxStepperStage0JointsCallContext implements CallContext
 	{
-		dxStepperStage0JointsCallContext(final DxStepperProcessingCallContext stepperCallContext, 
+		void Initialize(final DxStepperProcessingCallContext stepperCallContext, 
 				dJointWithInfo1[] jointinfosA, int jointinfosOfs, 
 				dxStepperStage0Outputs stage0Outputs) {
 			m_stepperCallContext = stepperCallContext;
@@ -174,7 +175,7 @@ dmaxcallcountestimate_fn_t {
 			m_stage0Outputs = stage0Outputs;
 		}
 
-		final DxStepperProcessingCallContext m_stepperCallContext;
+		DxStepperProcessingCallContext m_stepperCallContext;
 		dJointWithInfo1[]                 m_jointinfosA;
 		int				                  m_jointinfosOfs;
 		dxStepperStage0Outputs            m_stage0Outputs;
@@ -232,7 +233,7 @@ dmaxcallcountestimate_fn_t {
 	{
 		void Initialize(final DxStepperProcessingCallContext callContext, 
 				final dxStepperLocalContext localContext, 
-				BlockPointer stage1MemArenaState)
+				int stage1MemArenaState)
 		{
 			m_stepperCallContext = callContext;
 			m_localContext = localContext;
@@ -241,31 +242,38 @@ dmaxcallcountestimate_fn_t {
 
 		DxStepperProcessingCallContext m_stepperCallContext;
 		dxStepperLocalContext     m_localContext;
-		BlockPointer                           m_stage1MemArenaState;
+		int                                    m_stage1MemArenaState;
+		//TZ holder for the releasee of stage 3, reused with the context
+		final Ref<DCallReleasee>               m_stage3CallReleasee = new Ref<DCallReleasee>();
 	}
 
 	private static class dxStepperStage2CallContext implements CallContext
 	{
 		void Initialize(final DxStepperProcessingCallContext callContext, 
 				final dxStepperLocalContext localContext, 
-				double[] JinvM, double[] rhs_tmp_or_cfm)
+				double[] JinvM, double[] cfm, double[] rhs_tmp, Info2DescrStep[] Jinfos)
 		{
 			m_stepperCallContext = callContext;
 			m_localContext = localContext;
 			m_JinvM = JinvM;
-			m_rhs_tmp_or_cfm = rhs_tmp_or_cfm;
-			//m_ji_J = 0;
-			//m_ji_Ainit = 0;
-			//m_ji_JinvM = 0;
-			//m_ji_Aaddjb = 0;
-			//m_bi_rhs_tmp = 0;
-			//m_ji_rhs.set(0);
+			m_cfm = cfm;
+			m_rhs_tmp = rhs_tmp;
+			m_Jinfos = Jinfos;
+			m_ji_J.set(0);
+			m_ji_Ainit.set(0);
+			m_ji_JinvM.set(0);
+			m_ji_Aaddjb.set(0);
+			m_bi_rhs_tmp.set(0);
+			m_ji_rhs.set(0);
 		}
 
 		DxStepperProcessingCallContext m_stepperCallContext;
 		dxStepperLocalContext     m_localContext;
 		double[]                        m_JinvM;
-		double[]                        m_rhs_tmp_or_cfm;
+		//double[]                        m_rhs_tmp_or_cfm;
+		double[]                        m_cfm;
+		double[]                        m_rhs_tmp;
+		Info2DescrStep[]                m_Jinfos; // one per thread of stage 2a
 		//volatile int               m_ji_J;
 		final AtomicInteger               m_ji_J = new AtomicInteger();
 		//volatile int               m_ji_Ainit;
@@ -278,6 +286,9 @@ dmaxcallcountestimate_fn_t {
 		final AtomicInteger               m_bi_rhs_tmp = new AtomicInteger();
 		//volatile int               m_ji_rhs;
 		final AtomicInteger              m_ji_rhs = new AtomicInteger();
+		//TZ holders for the releasees of the sync calls, reused with the context
+		final Ref<DCallReleasee>          m_stage2aSyncReleasee = new Ref<DCallReleasee>();
+		final Ref<DCallReleasee>          m_stage2bSyncReleasee = new Ref<DCallReleasee>();
 	}
 
 	//static int dxStepIsland_Stage2a_Callback(Object[] callContext, int/*dcallindex_t*/ callInstanceIndex, DCallReleasee callThisReleasee) {/*TZ*/};
@@ -448,42 +459,38 @@ dmaxcallcountestimate_fn_t {
 		int nb = callContext.m_islandBodiesCount();
 		int _nj = callContext.m_islandJointsCount();
 
-		memarena.dummy();
-		double[] invI = new double[3*4*nb];//memarena.AllocateArray<dReal> (3*4*(size_t)nb);
+		double[] invI = memarena.AllocateArrayDReal(3*4*nb);//memarena.AllocateArray<dReal> (3*4*(size_t)nb);
 		// Reserve twice as much memory and start from the middle so that regardless of 
 		// what direction the array grows to there would be sufficient room available.
 		final int ji_reserve_count = 2 * _nj;
-		memarena.dummy();
-		dJointWithInfo1[] jointinfosA = new dJointWithInfo1[ji_reserve_count];//memarena.AllocateArray<dJointWithInfo1>(ji_reserve_count);
-		//TZ: init
-		for (int i = 0; i < jointinfosA.length; i++) {
-			jointinfosA[i] = new dJointWithInfo1();
-		}
+		//memarena.AllocateArray<dJointWithInfo1>(ji_reserve_count);
+		//TZ the elements are reused, getInfo1() sets all fields of info just like in C++
+		dJointWithInfo1[] jointinfosA = memarena.AllocateArrayBlocks(dJointWithInfo1[].class, ji_reserve_count);
 		int jointinfosOfs = 0;
 
 		final int allowedThreads = callContext.m_stepperAllowedThreads();
 		dIASSERT(allowedThreads != 0);
 
-		BlockPointer stagesMemArenaState = memarena.SaveState();
+		int stagesMemArenaState = memarena.SaveState();
 
 		//dxStepperStage1CallContext stage1CallContext = (dxStepperStage1CallContext *)memarena->AllocateBlock(sizeof(dxStepperStage1CallContext));
 		//new(stage1CallContext) dxStepperStage1CallContext(callContext, stagesMemArenaState, invI, jointinfos);
-		memarena.dummy();
-		final dxStepperStage1CallContext stage1CallContext = new dxStepperStage1CallContext(callContext, 
-				stagesMemArenaState, invI, jointinfosA, jointinfosOfs);
+		final dxStepperStage1CallContext stage1CallContext = 
+				memarena.AllocateBlock(dxStepperStage1CallContext.class);
+		stage1CallContext.Initialize(callContext, stagesMemArenaState, invI, jointinfosA, jointinfosOfs);
 
 		//dxStepperStage0BodiesCallContext *stage0BodiesCallContext = (dxStepperStage0BodiesCallContext *)memarena->AllocateBlock(sizeof(dxStepperStage0BodiesCallContext));
 		//new(stage0BodiesCallContext) dxStepperStage0BodiesCallContext(callContext, invI);
-		memarena.dummy();
 		final dxStepperStage0BodiesCallContext stage0BodiesCallContext = 
-				new dxStepperStage0BodiesCallContext(callContext, invI);
+				memarena.AllocateBlock(dxStepperStage0BodiesCallContext.class);
+		stage0BodiesCallContext.Initialize(callContext, invI);
 
 		//dxStepperStage0JointsCallContext *stage0JointsCallContext = (dxStepperStage0JointsCallContext *)memarena->AllocateBlock(sizeof(dxStepperStage0JointsCallContext));
 		//new(stage0JointsCallContext) dxStepperStage0JointsCallContext(callContext, jointinfos, &stage1CallContext->m_stage0Outputs);
-		memarena.dummy();
 		final dxStepperStage0JointsCallContext stage0JointsCallContext = 
-				new dxStepperStage0JointsCallContext(callContext, jointinfosA, jointinfosOfs, 
-						stage1CallContext.m_stage0Outputs);
+				memarena.AllocateBlock(dxStepperStage0JointsCallContext.class);
+		stage0JointsCallContext.Initialize(callContext, jointinfosA, jointinfosOfs, 
+				stage1CallContext.m_stage0Outputs);
 
 		if (allowedThreads == 1)
 		{
@@ -496,7 +503,7 @@ dmaxcallcountestimate_fn_t {
 			int bodyThreads = allowedThreads;
 			int jointThreads = 1;
 
-			Ref<DCallReleasee> stage1CallReleasee = new Ref<DCallReleasee>();
+			Ref<DCallReleasee> stage1CallReleasee = stage1CallContext.m_stage1CallReleasee;
 			world.threading().PostThreadedCallForUnawareReleasee(null, stage1CallReleasee, 
 					bodyThreads + jointThreads, callContext.m_finalReleasee(), 
 					null, dxStepIsland_Stage1_Callback, stage1CallContext, 0, 
@@ -511,31 +518,6 @@ dmaxcallcountestimate_fn_t {
 					"StepIsland Stage0-Joints");
 			dIASSERT(jointThreads == 1);
 		}
-//		{
-//			//TODO
-//			try {
-//				dxStepIsland_Stage1(stage1CallContext);
-//				ArrayList<Callable<Boolean>> tasks = new ArrayList<>(); 
-//				for (int i = 0; i < DxQuickStep.THREADS; i++) {
-//					tasks.add(new Callable<Boolean>() {
-//						@Override
-//						public Boolean call() {
-//							//dxStepIsland_Stage1_Callback.run(call_context, i, this_releasee);
-//							//dxStepperStage0BodiesCallContext callContext = (dxStepperStage0BodiesCallContext )_callContext;
-//							dxStepIsland_Stage0_Bodies(stage0BodiesCallContext);
-//							return Boolean.TRUE;
-//						}
-//					});
-//				}
-//				for (Future<Boolean> f: DxQuickStep.POOL.invokeAll(tasks, 1, TimeUnit.HOURS)) {
-//					f.get();
-//				}
-//				dxStepIsland_Stage0_Joints(stage0JointsCallContext);
-//			} catch (InterruptedException e) {
-//				throw new RuntimeException(e);
-//			} catch (ExecutionException e) {
-//				throw new RuntimeException(e);
-//			}
 	}    
 
 	private static dThreadedCallFunction dxStepIsland_Stage0_Bodies_Callback = new dThreadedCallFunction() {
@@ -611,10 +593,11 @@ dmaxcallcountestimate_fn_t {
 			int invIrowO = 0;
 			double[] invIrowA = callContext.m_invI;
 			int bodyIndex = ThrsafeIncrementIntUpToLimit(callContext.m_inertiaBodyIndex, nb);
+			final dxBodyTemporaries temps = GetBodyTemporaries();
 
 			for (int i = 0; i != nb; invIrowO += 12, ++i) {
 				if (i == bodyIndex) {
-					DMatrix3 tmp = new DMatrix3();
+					DMatrix3 tmp = temps.tmp;
 					DxBody b = bodyA[i+bOfs];
 
 					// compute inverse inertia tensor in global frame
@@ -625,7 +608,7 @@ dmaxcallcountestimate_fn_t {
 					// if not flagged or the body is kinematic
 					//if ((b.flags & DxBody.dxBodyGyroscopic)&& (b.invMass>0)) {
 					if (b.isFlagsGyroscopic() && (b.invMass>0)) {
-						DMatrix3 I = new DMatrix3();
+						DMatrix3 I = temps.I;
 						// compute inertia tensor in global frame
 						dMultiply2_333 (tmp,b.mass._I,b.posr().R());
 						dMultiply0_333 (I,b.posr().R(),tmp);
@@ -639,7 +622,7 @@ dmaxcallcountestimate_fn_t {
 						//"Stabilizing Gyroscopic Forces in Rigid Multibody Simulations"
 						// (LacoursiÃ¨re 2006)
 						double h = callContext.m_stepperCallContext.m_stepSize(); // Step size
-						DVector3 L = new DVector3(); // Compute angular momentum
+						DVector3 L = temps.L; // Compute angular momentum
 						dMultiply0_331(L,I,b.avel);
 
 						// Compute a new effective 'inertia tensor'
@@ -649,7 +632,8 @@ dmaxcallcountestimate_fn_t {
 						// Itild may not be symmetric pos-definite, 
 						// but we can still use it to compute implicit
 						// gyroscopic torques.
-						DMatrix3 Itild=new DMatrix3();//{0};  
+						DMatrix3 Itild = temps.Itild;//{0};
+						Itild.setZero();
 						dSetCrossMatrixMinus(Itild,L);//,4);
 						//for (int ii=0;ii<12;++ii) {
 						//	Itild[ii]=Itild[ii]*h+I[ii];
@@ -661,7 +645,7 @@ dmaxcallcountestimate_fn_t {
 						// a sort of "torque"
 						L.scale(dRecip(h));//dScaleVector3(L,dRecip(h));
 						// Invert the pseudo-tensor
-						DMatrix3 itInv = new DMatrix3();
+						DMatrix3 itInv = temps.itInv;
 						// This is a closed-form inversion.
 						// It's probably not numerically stable
 						// when dealing with small masses with
@@ -683,7 +667,7 @@ dmaxcallcountestimate_fn_t {
 							// to the old inertia matrix as explicit
 							// torques with a semi-implicit update
 							// step.
-							DVector3 tau0 = new DVector3();
+							DVector3 tau0 = temps.tau0;
 							dMultiply0_331(tau0,Itild,L);
 
 							// Add the gyro torques to the torque 
@@ -954,7 +938,6 @@ dmaxcallcountestimate_fn_t {
 			//int _nj = callContext.m_islandJointsCount();
 			//final int ji_reserve_count = 2 * _nj;
 			//memarena.ShrinkArray<dJointWithInfo1>(jointiinfos, ji_reserve_count, ji_end);
-			memarena.dummy();
 		}
 
 		DxWorld world = callContext.m_world();
@@ -970,8 +953,7 @@ dmaxcallcountestimate_fn_t {
 		// if there are constraints, compute cforce
 		if (m > 0) {
 			//mindex = memarena->AllocateArray<unsigned int>((size_t)(nj + 1));
-			memarena.dummy();
-			mindex = new int[nj + 1];
+			mindex = memarena.AllocateArrayInt(nj + 1);
 			{
 				//unsigned int *mcurr = mindex;
 				int[] mcurrA = mindex;
@@ -1003,29 +985,21 @@ dmaxcallcountestimate_fn_t {
 			//	        J = memarena->AllocateArray<dReal>(2 * 8 * (size_t)m);
 			//	        A = memarena->AllocateArray<dReal>(m * (size_t)dPAD(m));
 			//	        rhs = memarena->AllocateArray<dReal>(m);
-			memarena.dummy();
-			memarena.dummy();
-			memarena.dummy();
-			memarena.dummy();
-			memarena.dummy();
-			memarena.dummy();
-			findex = new int[m];
-			lo = new double[m];
-			hi = new double[m];
-			J = new double[2 * 8 * m];
-			A = new double[m * dPAD(m)];
-			rhs = new double[m];
+			findex = memarena.AllocateArrayInt(m);
+			lo = memarena.AllocateArrayDReal(m);
+			hi = memarena.AllocateArrayDReal(m);
+			J = memarena.AllocateArrayDReal(2 * 8 * m);
+			A = memarena.AllocateArrayDReal(m * dPAD(m));
+			rhs = memarena.AllocateArrayDReal(m);
 		}
 
 		//dxStepperLocalContext *localContext = (dxStepperLocalContext *)memarena->AllocateBlock(sizeof(dxStepperLocalContext));
-		memarena.dummy();
-		dxStepperLocalContext localContext = new dxStepperLocalContext();
+		dxStepperLocalContext localContext = memarena.AllocateBlock(dxStepperLocalContext.class);
 		localContext.Initialize(invI, jointinfosA, jiP, nj, m, nub, mindex, findex, lo, hi, J, A, rhs);
 
-		BlockPointer stage1MemarenaState = memarena.SaveState();
+		int stage1MemarenaState = memarena.SaveState();
 		//dxStepperStage3CallContext *stage3CallContext = (dxStepperStage3CallContext*)memarena->AllocateBlock(sizeof(dxStepperStage3CallContext));
-		memarena.dummy();
-		dxStepperStage3CallContext stage3CallContext = new dxStepperStage3CallContext();
+		dxStepperStage3CallContext stage3CallContext = memarena.AllocateBlock(dxStepperStage3CallContext.class);
 		stage3CallContext.Initialize(callContext, localContext, stage1MemarenaState);
 
 		if (m > 0) {
@@ -1033,42 +1007,44 @@ dmaxcallcountestimate_fn_t {
 			// force mixing vector `cfm', and LCP low and high bound vectors, and an
 			// 'findex' vector.
 			//double[] JinvM = memarena->AllocateArray<dReal>(2 * 8 * (size_t)m);
-			memarena.dummy();
-			double[] JinvM = new double[2 * 8 * m];
+			double[] JinvM = memarena.AllocateArrayDReal(2 * 8 * m);
 			final int nb = callContext.m_islandBodiesCount();
 			int cfm_elem = m, rhs_tmp_elem = nb*8;
 			//dReal *cfm = memarena->AllocateArray<dReal>(dMAX(cfm_elem, rhs_tmp_elem));
-			memarena.dummy();
-			double[] cfm = new double[dMAX(cfm_elem, rhs_tmp_elem)];
 			// dReal *rhs_tmp = cfm; // Reuse the same memory since rhs calculations start after cfm is not needed anymore
+			//TZ: cfm and rhs_tmp are separate arrays here: with several stepper threads rhs_tmp is  
+			// written in Stage2b while other threads may still be reading cfm for the A initialization.
+			double[] cfm = memarena.AllocateArrayDReal(cfm_elem);
+			double[] rhs_tmp = memarena.AllocateArrayDReal(rhs_tmp_elem);
 
 			//dxStepperStage2CallContext *stage2CallContext = (dxStepperStage2CallContext *)memarena->AllocateBlock(sizeof(dxStepperStage2CallContext));
-			memarena.dummy();
-			dxStepperStage2CallContext stage2CallContext = new dxStepperStage2CallContext();
-			stage2CallContext.Initialize(callContext, localContext, JinvM, cfm);
-
 			int allowedThreads = callContext.m_stepperAllowedThreads();
 			dIASSERT(allowedThreads != 0);
 
+			Info2DescrStep[] Jinfos = memarena.AllocateArrayBlocks(Info2DescrStep[].class, allowedThreads);
+
+			dxStepperStage2CallContext stage2CallContext = memarena.AllocateBlock(dxStepperStage2CallContext.class);
+			stage2CallContext.Initialize(callContext, localContext, JinvM, cfm, rhs_tmp, Jinfos);
+
 			if (allowedThreads == 1)
 			{
-				dxStepIsland_Stage2a(stage2CallContext);
+				dxStepIsland_Stage2a(stage2CallContext, 0);
 				dxStepIsland_Stage2b(stage2CallContext);
 				dxStepIsland_Stage2c(stage2CallContext);
 				dxStepIsland_Stage3(stage3CallContext);
 			}
 			else
 			{
-				Ref<DCallReleasee> stage3CallReleasee = new Ref<DCallReleasee>();
+				Ref<DCallReleasee> stage3CallReleasee = stage3CallContext.m_stage3CallReleasee;
 				world.threading().PostThreadedCallForUnawareReleasee(null, stage3CallReleasee, 1, 
 						callContext.m_finalReleasee(), 
 						null, dxStepIsland_Stage3_Callback, stage3CallContext, 0, "StepIsland Stage3");
 
-				Ref<DCallReleasee> stage2bSyncReleasee = new Ref<DCallReleasee>();
+				Ref<DCallReleasee> stage2bSyncReleasee = stage2CallContext.m_stage2bSyncReleasee;
 				world.threading().PostThreadedCall(null, stage2bSyncReleasee, 1, stage3CallReleasee.get(), 
 						null, dxStepIsland_Stage2bSync_Callback, stage2CallContext, 0, "StepIsland Stage2b Sync");
 
-				Ref<DCallReleasee> stage2aSyncReleasee = new Ref<DCallReleasee>();
+				Ref<DCallReleasee> stage2aSyncReleasee = stage2CallContext.m_stage2aSyncReleasee;
 				world.threading().PostThreadedCall(null, stage2aSyncReleasee, allowedThreads, stage2bSyncReleasee.get(), 
 						null, dxStepIsland_Stage2aSync_Callback, stage2CallContext, 0, "StepIsland Stage2a Sync");
 
@@ -1090,16 +1066,16 @@ dmaxcallcountestimate_fn_t {
 		public boolean run(CallContext _stage2CallContext, 
 				int /*dcallindex_t*/ callInstanceIndex, DCallReleasee callThisReleasee)
 		{
-			//(void)callInstanceIndex; // unused
 			//(void)callThisReleasee; // unused
 			dxStepperStage2CallContext stage2CallContext = (dxStepperStage2CallContext )_stage2CallContext;
-			dxStepIsland_Stage2a(stage2CallContext);
+			dxStepIsland_Stage2a(stage2CallContext, callInstanceIndex);
 			return true;
 		}
 	};
 
 	static 
-	void dxStepIsland_Stage2a(dxStepperStage2CallContext stage2CallContext)
+	void dxStepIsland_Stage2a(dxStepperStage2CallContext stage2CallContext, 
+			int callInstanceIndex)
 	{
 		final DxStepperProcessingCallContext callContext = stage2CallContext.m_stepperCallContext;
 		final dxStepperLocalContext localContext = stage2CallContext.m_localContext;
@@ -1114,7 +1090,7 @@ dmaxcallcountestimate_fn_t {
 		{
 			int[] findex = localContext.m_findex;
 			double[] J = localContext.m_J;
-			double[] cfm = stage2CallContext.m_rhs_tmp_or_cfm;
+			double[] cfm = stage2CallContext.m_cfm;
 			double[] lo = localContext.m_lo;
 			double[] hi = localContext.m_hi;
 			double[] rhs = localContext.m_rhs;
@@ -1140,7 +1116,7 @@ dmaxcallcountestimate_fn_t {
 
 			final double worldERP = world.getERP();
 
-			Info2DescrStep Jinfo = new Info2DescrStep();
+			Info2DescrStep Jinfo = stage2CallContext.m_Jinfos[callInstanceIndex];
 			Jinfo.setRowskip(8);
 			Jinfo.setArrays(J, rhs, cfm, lo, hi, findex); //TZ
 
@@ -1252,7 +1228,7 @@ dmaxcallcountestimate_fn_t {
 			final double stepsizeRecip = dRecip(callContext.m_stepSize());
 
 			double[] A = localContext.m_A;
-			final double[] cfm = stage2CallContext.m_rhs_tmp_or_cfm;
+			final double[] cfm = stage2CallContext.m_cfm;
 			final int m = localContext.m_m;
 
 			final int mskip = dPAD(m);
@@ -1343,7 +1319,7 @@ dmaxcallcountestimate_fn_t {
 			int bodyP = callContext.m_islandBodiesStartOfs();
 			final int nb = callContext.m_islandBodiesCount();
 			final double[] invI = localContext.m_invI;
-			double[] rhs_tmp = stage2CallContext.m_rhs_tmp_or_cfm;
+			double[] rhs_tmp = stage2CallContext.m_rhs_tmp;
 
 			// compute the right hand side `rhs'
 			IFTIMING_dTimerNow ("compute rhs_tmp");
@@ -1489,7 +1465,7 @@ dmaxcallcountestimate_fn_t {
 			// proper synchronization and avoid accessing numbers being modified.
 			// Warning!!!
 			double[] J = localContext.m_J;
-			double[] rhs_tmp = stage2CallContext.m_rhs_tmp_or_cfm;
+			double[] rhs_tmp = stage2CallContext.m_rhs_tmp;
 			double[] rhs = localContext.m_rhs;
 
 			// compute the right hand side `rhs'
@@ -1569,11 +1545,10 @@ dmaxcallcountestimate_fn_t {
 
 		if (m > 0) {
 			//lambda = memarena->AllocateArray<dReal>(m);
-			memarena.dummy();
-			lambda = new double[m];
+			lambda = memarena.AllocateArrayDReal(m);
 
 
-			BlockPointer lcpstate = memarena.BEGIN_STATE_SAVE();
+			int lcpstate = memarena.BEGIN_STATE_SAVE();
 			{
 				IFTIMING_dTimerNow ("solving LCP problem");
 
@@ -1587,8 +1562,7 @@ dmaxcallcountestimate_fn_t {
 
 		// this will be set to the force due to the constraints
 		//dReal *cforce = memarena->AllocateArray<dReal>((size_t)nb * 8);
-		memarena.dummy();
-		double[] cforce = new double[nb * 8];
+		double[] cforce = memarena.AllocateArrayDReal(nb * 8);
 		//dSetZero (cforce,(size_t)nb*8);
 
 		if (m > 0) {
@@ -1598,6 +1572,7 @@ dmaxcallcountestimate_fn_t {
 				// compute the constraint force `cforce'
 				// compute cforce = J'*lambda
 				int ofsi = 0;
+				double[] data = memarena.AllocateArrayDReal(8);
 				dJointWithInfo1 jicurrO = jointinfosA[jointinfosP];
 				int jicurrP = 0;
 				int jiend = jicurrP + nj;
@@ -1616,7 +1591,6 @@ dmaxcallcountestimate_fn_t {
 						// joint is applying to the bodies. we use a slightly slower
 						// computation that splits out the force components and puts them
 						// in the feedback structure.
-						double[] data=new double[8];
 						Multiply1_8q1 (data, 0, J,JJ, lambda,lambdarow, infom);
 
 						DxBody b1 = joint.node[0].body;
@@ -1670,7 +1644,7 @@ dmaxcallcountestimate_fn_t {
 			double stepsize = callContext.m_stepSize();
 
 			// add fe to cforce and multiply cforce by stepsize
-			double[] data = new double[4];
+			double[] data = memarena.AllocateArrayDReal(4);
 			int invIrowP = 0;//invI;
 			int cforcecurrP = 0;//cforce;
 			//        dxBody *const *const bodyend = body + nb;
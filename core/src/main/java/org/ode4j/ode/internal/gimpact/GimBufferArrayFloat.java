@@ -118,6 +118,9 @@ public class GimBufferArrayFloat implements GimConstants { //formerly GBUFFER_AR
 	//#define GIM_BUFFER_ARRAY_POINTER(_type,_array_data,_index) (_type *)((_array_data).m_buffer_data + (_index)*(_array_data).m_byte_stride)
 	ObjArray<vec3f> GIM_BUFFER_ARRAY_POINTER(int _index) { return new ObjArray<vec3f>(m_buffer_data, _index*m_byte_stride ); }
 
+	//!Return the element at the _index, without creating a pointer
+	vec3f GIM_BUFFER_ARRAY_AT(int _index) { return m_buffer_data[_index*m_byte_stride]; }
+
 
 
 	//!Kernel function prototype for process streams, given a buffered array as source and
@@ -274,6 +277,18 @@ public class GimBufferArrayFloat implements GimConstants { //formerly GBUFFER_AR
 	}
 
 
+	/**
+	 * Copies the values of the array into the existing vertices.
+	 */
+	public void updateValues(float[] array) {
+		for (int i = 0; i < m_element_count; i++) {
+			vec3f v = m_buffer_data[i];
+			v.f[0] = array[i*3];
+			v.f[1] = array[i*3+1];
+			v.f[2] = array[i*3+2];
+		}
+	}
+
 	public int size() {
 		return m_element_count;
 	}
@@ -0,0 +1,346 @@
+/**
+ * ----------------------------------------------------------------------------
+ * This source file is part of the ODE4J library (ported to
+ * Java from the GIMPACT Library).
+ * 
+ * For the latest info on ODE4J, see http://www.ode4j.org/
+ * For the latest info on GIMPACT, see http://gimpact.sourceforge.net/
+ * 
+ * Copyright of GIMPACT (c) 2006 Francisco Leon. C.C. 80087371.
+ * email: projectileman@yahoo.com
+ * Copyright of ODE4J (c) 2009-2014 Tilmann Zäschke.
+ * email: ode4j.gmx.de
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of EITHER:
+ *   (1) The GNU Lesser General Public License as published by the Free
+ *       Software Foundation; either version 2.1 of the License, or (at
+ *       your option) any later version. The text of the GNU Lesser
+ *       General Public License is included with this library in the
+ *       file GIMPACT-LICENSE-LGPL.TXT and LICENSE.TXT.
+ *   (2) The BSD-style license that is included with this library in
+ *       the file GIMPACT-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the files
+ * GIMPACT-LICENSE-LGPL.TXT, GIMPACT-LICENSE-BSD.TXT, LICENSE.TXT and 
+ * ODE4J-LICENSE-BSD.TXT for more details.
+ * 
+ * ----------------------------------------------------------------------------
+ */
+package org.ode4j.ode.internal.gimpact;
+
+import static org.ode4j.ode.internal.gimpact.GimMath.IS_ZERO;
+
+import org.ode4j.ode.internal.gimpact.GimGeometry.vec3f;
+
+/**
+ * Bounding volume hierarchy of the triangles of a trimesh.
+ * <p>
+ * The tree is an AABB tree with one triangle per leaf, built top down with a
+ * median split along the longest axis of the triangle centroids. The boxes
+ * are stored in mesh local coordinates, so the tree is built only once per
+ * mesh and can be shared by all trimeshes with the same data. When the
+ * vertices change, the tree can be refitted with
+ * {@link #gim_bvh_refit(float[], int[])}, which keeps the topology and only
+ * recomputes the boxes.
+ * <p>
+ * The children of a node are always stored next to each other and after
+ * their parent, node 0 is the root.
+ */
+public class GimBvh {
+
+	/** Box of each node: min x, y, z and max x, y, z. */
+	private float[] m_bounds;
+	/**
+	 * First child of an internal node, the second child follows it.
+	 * For leaves it is ~triangle_index.
+	 */
+	private int[] m_child;
+	private int m_node_count;
+
+	private GimBvh() {
+		//private
+	}
+
+	/**
+	 * Builds the tree.
+	 * @param vertices vertices, groups of three coordinates
+	 * @param indices triangle indices, groups of three vertex indices
+	 * @return the tree
+	 */
+	public static GimBvh gim_bvh_create(final float[] vertices, final int[] indices)
+	{
+		GimBvh bvh = new GimBvh();
+		int triangle_count = indices.length/3;
+		int node_count = triangle_count > 0 ? 2*triangle_count - 1 : 0;
+		bvh.m_bounds = new float[node_count*6];
+		bvh.m_child = new int[node_count];
+		if (triangle_count == 0) {
+			return bvh;
+		}
+
+		//triangle boxes and centroids
+		float[] tri_bounds = new float[triangle_count*6];
+		float[] centroids = new float[triangle_count*3];
+		int[] order = new int[triangle_count];
+		for (int i = 0; i < triangle_count; i++) {
+			TRIANGLE_BOX(vertices, indices, i, tri_bounds, i*6);
+			for (int k = 0; k < 3; k++) {
+				centroids[i*3+k] = 0.5f*(tri_bounds[i*6+k] + tri_bounds[i*6+3+k]);
+			}
+			order[i] = i;
+		}
+
+		bvh.m_node_count = 1;
+		bvh.build_node(0, order, 0, triangle_count, tri_bounds, centroids);
+		return bvh;
+	}
+
+	private void build_node(int node, int[] order, int start, int end,
+			float[] tri_bounds, float[] centroids)
+	{
+		//bounds of the node and of the centroids
+		int o = node*6;
+		float[] cmin = {Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE};
+		float[] cmax = {-Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE};
+		for (int k = 0; k < 3; k++) {
+			m_bounds[o+k] = Float.MAX_VALUE;
+			m_bounds[o+3+k] = -Float.MAX_VALUE;
+		}
+		for (int i = start; i < end; i++) {
+			int t = order[i];
+			for (int k = 0; k < 3; k++) {
+				m_bounds[o+k] = Math.min(m_bounds[o+k], tri_bounds[t*6+k]);
+				m_bounds[o+3+k] = Math.max(m_bounds[o+3+k], tri_bounds[t*6+3+k]);
+				cmin[k] = Math.min(cmin[k], centroids[t*3+k]);
+				cmax[k] = Math.max(cmax[k], centroids[t*3+k]);
+			}
+		}
+
+		if (end - start == 1) {
+			m_child[node] = ~order[start];
+			return;
+		}
+
+		int axis = 0;
+		if (cmax[1] - cmin[1] > cmax[axis] - cmin[axis]) axis = 1;
+		if (cmax[2] - cmin[2] > cmax[axis] - cmin[axis]) axis = 2;
+		int mid = (start + end) >>> 1;
+		SELECT_NTH(order, start, end, mid, centroids, axis);
+
+		int child = m_node_count;
+		m_node_count += 2;
+		m_child[node] = child;
+		build_node(child, order, start, mid, tri_bounds, centroids);
+		build_node(child+1, order, mid, end, tri_bounds, centroids);
+	}
+
+	/**
+	 * Partially sorts order[start..end) by the centroid coordinate, so that
+	 * the element at nth is in its sorted place, smaller ones before it and
+	 * larger ones after it.
+	 */
+	private static void SELECT_NTH(int[] order, int start, int end, int nth,
+			float[] centroids, int axis)
+	{
+		int lo = start;
+		int hi = end - 1;
+		while (hi > lo) {
+			float pivot = centroids[order[(lo + hi) >>> 1]*3 + axis];
+			int i = lo;
+			int j = hi;
+			while (i <= j) {
+				while (centroids[order[i]*3 + axis] < pivot) i++;
+				while (centroids[order[j]*3 + axis] > pivot) j--;
+				if (i <= j) {
+					int tmp = order[i];
+					order[i] = order[j];
+					order[j] = tmp;
+					i++;
+					j--;
+				}
+			}
+			if (nth <= j) {
+				hi = j;
+			} else if (nth >= i) {
+				lo = i;
+			} else {
+				return;
+			}
+		}
+	}
+
+	private static void TRIANGLE_BOX(final float[] vertices, final int[] indices,
+			int triangle_index, float[] bounds, int o)
+	{
+		int v1 = indices[triangle_index*3]*3;
+		int v2 = indices[triangle_index*3+1]*3;
+		int v3 = indices[triangle_index*3+2]*3;
+		for (int k = 0; k < 3; k++) {
+			float a = vertices[v1+k];
+			float b = vertices[v2+k];
+			float c = vertices[v3+k];
+			bounds[o+k] = Math.min(a, Math.min(b, c));
+			bounds[o+3+k] = Math.max(a, Math.max(b, c));
+		}
+	}
+
+	/**
+	 * Recomputes the boxes after the vertices have changed. The topology of
+	 * the tree is kept, so the tree may get less efficient if the mesh
+	 * deforms a lot.
+	 * @param vertices vertices, groups of three coordinates
+	 * @param indices triangle indices, the same as for building the tree
+	 */
+	public void gim_bvh_refit(final float[] vertices, final int[] indices)
+	{
+		//children are always stored after their parent
+		for (int node = m_node_count - 1; node >= 0; node--) {
+			int child = m_child[node];
+			int o = node*6;
+			if (child < 0) {
+				TRIANGLE_BOX(vertices, indices, ~child, m_bounds, o);
+			} else {
+				int c1 = child*6;
+				int c2 = c1+6;
+				for (int k = 0; k < 3; k++) {
+					m_bounds[o+k] = Math.min(m_bounds[c1+k], m_bounds[c2+k]);
+					m_bounds[o+3+k] = Math.max(m_bounds[c1+3+k], m_bounds[c2+3+k]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Finds the triangles whose boxes overlap a box.
+	 * @param box box in local coordinates: min x, y, z and max x, y, z
+	 * @param collided the triangle indices are appended, in tree order
+	 */
+	void gim_bvh_box_query(final float[] box, final GimDynArrayInt collided)
+	{
+		if (m_node_count == 0) return;
+		//the tree is balanced, so its depth is at most 32
+		int[] stack = new int[64];
+		int depth = 0;
+		stack[depth++] = 0;
+		while (depth > 0) {
+			int node = stack[--depth];
+			int o = node*6;
+			if (m_bounds[o] > box[3] || m_bounds[o+3] < box[0] ||
+					m_bounds[o+1] > box[4] || m_bounds[o+4] < box[1] ||
+					m_bounds[o+2] > box[5] || m_bounds[o+5] < box[2]) {
+				continue;
+			}
+			int child = m_child[node];
+			if (child < 0) {
+				collided.GIM_DYNARRAY_PUSH_ITEM(~child);
+			} else {
+				stack[depth++] = child+1;
+				stack[depth++] = child;
+			}
+		}
+	}
+
+	/**
+	 * Finds the triangles whose boxes are hit by a ray.
+	 * @param origin origin of the ray in local coordinates
+	 * @param dir direction of the ray in local coordinates
+	 * @param tmax length of the ray
+	 * @param collided the triangle indices are appended, in tree order
+	 */
+	void gim_bvh_ray_query(final vec3f origin, final vec3f dir, final float tmax,
+			final GimDynArrayInt collided)
+	{
+		if (m_node_count == 0) return;
+		int[] stack = new int[64];
+		int depth = 0;
+		stack[depth++] = 0;
+		while (depth > 0) {
+			int node = stack[--depth];
+			if (!RAY_INTERSECTS_NODE(node*6, origin, dir, tmax)) {
+				continue;
+			}
+			int child = m_child[node];
+			if (child < 0) {
+				collided.GIM_DYNARRAY_PUSH_ITEM(~child);
+			} else {
+				stack[depth++] = child+1;
+				stack[depth++] = child;
+			}
+		}
+	}
+
+	/**
+	 * Same test as GimGeometry.BOX_INTERSECTS_RAY(), for the box of a node.
+	 */
+	private boolean RAY_INTERSECTS_NODE(int o, final vec3f origin, final vec3f dir,
+			final float tmax)
+	{
+		float tfirst = 0.0f;
+		float tlast = tmax;
+		for (int k = 0; k < 3; k++) {
+			float a = origin.f[k];
+			float d = dir.f[k];
+			float min = m_bounds[o+k];
+			float max = m_bounds[o+3+k];
+			if (IS_ZERO(d)) {
+				if (a < min || a > max) return false;
+			} else {
+				float a0 = (min - a)/d;
+				float a1 = (max - a)/d;
+				if (a0 > a1) {
+					float ax = a0;
+					a0 = a1;
+					a1 = ax;
+				}
+				tfirst = Math.max(a0, tfirst);
+				tlast = Math.min(a1, tlast);
+				if (tlast < tfirst) return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return number of nodes, 0 for an empty mesh
+	 */
+	public int gim_bvh_get_node_count()
+	{
+		return m_node_count;
+	}
+
+	/**
+	 * @return whether the node is a leaf
+	 */
+	boolean gim_bvh_is_leaf(int node)
+	{
+		return m_child[node] < 0;
+	}
+
+	/**
+	 * @return the triangle of a leaf
+	 */
+	int gim_bvh_get_triangle(int node)
+	{
+		return ~m_child[node];
+	}
+
+	/**
+	 * @return the first child of an internal node, the second one is
+	 * first child + 1
+	 */
+	int gim_bvh_get_child(int node)
+	{
+		return m_child[node];
+	}
+
+	/**
+	 * @return the box array, 6 floats per node: min x, y, z and max x, y, z
+	 */
+	float[] gim_bvh_get_bounds()
+	{
+		return m_bounds;
+	}
+}
@@ -33,9 +33,12 @@ package org.ode4j.ode.internal.gimpact;
 
 import static org.ode4j.ode.internal.gimpact.GimGeometry.*;
 
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
 import org.ode4j.ode.internal.cpp4j.java.IntArray;
-import org.ode4j.ode.internal.cpp4j.java.ObjArray;
-import org.ode4j.ode.internal.gimpact.GimBufferArrayFloat.GIM_PROCESS_BUFFER_ARRAY_FN;
+import org.ode4j.ode.internal.cpp4j.java.RefBoolean;
+import org.ode4j.ode.internal.cpp4j.java.RefFloat;
 import org.ode4j.ode.internal.gimpact.GimTriCollision.GIM_TRIANGLE_DATA;
 import org.ode4j.ode.internal.gimpact.GimTriCollision.GIM_TRIANGLE_RAY_CONTACT_DATA;
 import org.ode4j.ode.internal.gimpact.GimTriCollision.GIM_TRIPLANES_CACHE;
@@ -116,6 +119,9 @@ import org.ode4j.ode.internal.gimpact.GimTrimeshCapsuleCollision.GIM_CAPSULE_DAT
 	<li> Aplying a transformation. Simply use \ref gim_trimesh_set_tranform . Remember that with this method trimeshes must be created with \ref gim_trimesh_create_from_data with parameter <strong>transformed_reply</strong> = 1.
 	</ul>
 	<p> After updating vertices, you must call \ref gim_trimesh_update()</p>
+	<p>gim_trimesh_update() doesn't transform the vertices. A vertex is transformed when it is
+	used for the first time after the update, and the queries bring the query geometry into the
+	local coordinates of the trimesh, so only the triangles near the query are transformed.</p>
 	<p><strong>TRIMESHES COLLISION</strong></p>
 	<p>Before collide trimeshes, you need to update them first.</p>
 	<p>Then you must use \ref gim_trimesh_trimesh_collision().</p>
@@ -158,9 +164,19 @@ public class GimTrimesh implements GimConstants {
 
 	// Auxiliary data
 
-	GimAABBSet m_aabbset;
-	GimDynArray<GIM_TRIPLANES_CACHE> m_planes_cache_buffer;//! Allocated GIM_TRIPLANES_CACHE
-	GimBitSet m_planes_cache_bitset;
+	GimBvh m_bvh;//! Tree of the triangles in local coordinates
+	private final aabb3f m_global_bound = new aabb3f();//! Bound of the transformed trimesh
+	/**
+	 * Incremented by gim_trimesh_update(). The transformed vertices and the
+	 * planes are computed when they are used and tagged with the version,
+	 * so they are valid if their tag matches the current version.
+	 * The tags are atomic, because several threads may collide the same
+	 * trimesh. They only write the same values.
+	 */
+	private int m_transform_version = 1;
+	private AtomicIntegerArray m_vertex_version;
+	private AtomicIntegerArray m_planes_version;
+	GIM_TRIPLANES_CACHE[] m_planes_cache_buffer;//! Allocated when used
 	gim_update_trimesh_function m_update_callback;//! If null, then m_transform is applied.
 	mat4f m_transform = new mat4f();
 
@@ -502,7 +518,7 @@ public class GimTrimesh implements GimConstants {
 	\param vertex_array
 	\param triindex_array
 	\param transformed_reply If 1, then the m_transformed_vertices is a reply of the source vertices. Else it just be a reference to the original array.
-	\post it copies the arrays by reference, and creates the auxiliary data (m_aabbset,m_planes_cache_buffer)
+	\post it copies the arrays by reference, and creates the auxiliary data (m_planes_cache_buffer)
 	*/
 //	void gim_trimesh_create_from_arrays(GBUFFER_MANAGER_DATA buffer_managers[],
 //			GIM_TRIMESH * trimesh, GBUFFER_ARRAY * vertex_array, GBUFFER_ARRAY * triindex_array,char transformed_reply)
@@ -533,14 +549,14 @@ public class GimTrimesh implements GimConstants {
 	    	//GimBufferArrayFloat.gim_buffer_array_copy_ref(vertex_array,trimesh.m_transformed_vertex_buffer);
 	    	trimesh.m_transformed_vertex_buffer = vertex_array.cloneRefs();
 	    }
-	    //create the box set
 	    int facecount = trimesh.gim_trimesh_get_triangle_count();
 
-	    trimesh.m_aabbset = GimAABBSet.gim_aabbset_alloc(facecount);
+	    INVALIDATE_AABB(trimesh.m_global_bound);
 	    //create the planes cache
-	    trimesh.m_planes_cache_buffer = GimDynArray.GIM_DYNARRAY_CREATE_SIZED(facecount);
-	    //Create the bitset
-	    trimesh.m_planes_cache_bitset = GimBitSet.GIM_BITSET_CREATE_SIZED(facecount);
+	    trimesh.m_planes_cache_buffer = new GIM_TRIPLANES_CACHE[facecount];
+	    //Create the version tags, 0 is never valid
+	    trimesh.m_vertex_version = new AtomicIntegerArray(vertex_array.size());
+	    trimesh.m_planes_version = new AtomicIntegerArray(facecount);
 	    //Callback is 0
 	    trimesh.m_update_callback = null;
 	    //set to identity
@@ -567,6 +583,24 @@ public class GimTrimesh implements GimConstants {
 	public static GimTrimesh gim_trimesh_create_from_data(
 			float[] vertex_array, boolean copy_vertices, 
 			int[] triindex_array, boolean copy_indices, boolean transformed_reply)
+	{
+		return gim_trimesh_create_from_data(vertex_array, copy_vertices,
+				triindex_array, copy_indices, transformed_reply,
+				GimBvh.gim_bvh_create(vertex_array, triindex_array));
+	}
+
+	/**
+	 * Create a trimesh from vertex array and an index array, with a tree
+	 * of the triangles that has been built before.
+	 * This allows meshes with the same data to share the tree.
+	 * @param bvh The tree of the triangles, see
+	 * {@link GimBvh#gim_bvh_create(float[], int[])}
+	 * @see #gim_trimesh_create_from_data(float[], boolean, int[], boolean, boolean)
+	 */
+	public static GimTrimesh gim_trimesh_create_from_data(
+			float[] vertex_array, boolean copy_vertices, 
+			int[] triindex_array, boolean copy_indices, boolean transformed_reply,
+			GimBvh bvh)
 	{
 		GimTrimesh THIS;
 		
@@ -614,7 +648,8 @@ public class GimTrimesh implements GimConstants {
 	    ///always call this after create a buffer_array
 	    buffer_vertex_array.GIM_BUFFER_ARRAY_DESTROY();
 	    buffer_triindex_array.GIM_BUFFER_ARRAY_DESTROY();
-	    
+
+	    THIS.m_bvh = bvh;
 	    return THIS;
 	}
 
@@ -622,10 +657,7 @@ public class GimTrimesh implements GimConstants {
 	//void gim_trimesh_destroy(GIM_TRIMESH * trimesh)
 	public void gim_trimesh_destroy()
 	{
-		m_aabbset.gim_aabbset_destroy();
-
-	    m_planes_cache_buffer.GIM_DYNARRAY_DESTROY();
-	    m_planes_cache_bitset.GIM_DYNARRAY_DESTROY();
+	    m_planes_cache_buffer = null;
 
 	    m_transformed_vertex_buffer.GIM_BUFFER_ARRAY_DESTROY();
 	    m_source_vertex_buffer.GIM_BUFFER_ARRAY_DESTROY();
@@ -674,6 +706,7 @@ public class GimTrimesh implements GimConstants {
 
 	        GimTrimesh dest_trimesh = gim_trimesh_create_from_arrays(//dest_buffer_managers,
 				buffer_vertex_array, buffer_triindex_array, transformed_reply);
+	        dest_trimesh.m_bvh = source_trimesh.m_bvh;
 
 	        ///always call this after create a buffer_array
 	        buffer_vertex_array.GIM_BUFFER_ARRAY_DESTROY();
@@ -719,7 +752,7 @@ public class GimTrimesh implements GimConstants {
 		return (m_mask&GIM_TRIMESH_TRANSFORMED_REPLY) != 0;
 	}
 
-	//! Returns 1 if the trimesh needs to update their aabbset and the planes cache.
+	//! Returns 1 if the trimesh needs to update its global bound and the caches.
 	//char gim_trimesh_needs_update(GIM_TRIMESH * trimesh)
 	boolean gim_trimesh_needs_update()
 	{
@@ -740,86 +773,220 @@ public class GimTrimesh implements GimConstants {
 	    m_mask |= GIM_TRIMESH_NEED_UPDATE;
 	}
 
-	//kernel
-	//#define MULT_MAT_VEC4_KERNEL(_mat,_src,_dst) MAT_DOT_VEC_3X4((_dst),(_mat),(_src))
-	private final GIM_PROCESS_BUFFER_ARRAY_FN MULT_MAT_VEC4_KERNEL = 
-		new GIM_PROCESS_BUFFER_ARRAY_FN() {
-		@Override
-		public void run(mat4f _mat, vec3f _src, vec3f _dst) {MAT_DOT_VEC_3X4( _dst, _mat, _src); }	
-	};
+	/**
+	 * Copies new source vertices into the trimesh, for meshes that deform.
+	 * The tree of the triangles has to be refitted separately, see
+	 * {@link GimBvh#gim_bvh_refit(float[], int[])}.
+	 * Afterwards gim_trimesh_needs_update() returns true.
+	 * @param vertex_array the vertices, with the same number of vertices as before
+	 */
+	public void gim_trimesh_update_source_vertices(float[] vertex_array)
+	{
+	    m_source_vertex_buffer.updateValues(vertex_array);
+	    gim_trimesh_post_update();
+	}
 
-	//! Updates m_transformed_vertex_buffer
+	//! Calls before perfom collisions. Updates the trimesh if needed
 	/*!
-	\pre m_transformed_vertex_buffer must be unlocked
+	The vertices are not transformed here, it only invalidates the transformed
+	vertices and the planes cache and updates the global bound.
+	\post If gim_trimesh_needs_update returns 1, then it calls gim_trimesh_update_global_bound
 	*/
-	//void gim_trimesh_update_vertices(GIM_TRIMESH * trimesh)
-	void gim_trimesh_update_vertices()
+	//void gim_trimesh_update(GIM_TRIMESH * trimesh)
+	public void gim_trimesh_update()
 	{
-	    if(gim_trimesh_has_tranformed_reply() == false) return; //Don't perform transformation
+		if(gim_trimesh_needs_update()==false) return;
+		m_transform_version++;
+		if(m_transform_version == 0)
+		{
+			//wrapped around, make sure that no old tag is valid
+			for (int i = 0; i < m_vertex_version.length(); i++) m_vertex_version.set(i, 0);
+			for (int i = 0; i < m_planes_version.length(); i++) m_planes_version.set(i, 0);
+			m_transform_version = 1;
+		}
+		gim_trimesh_update_global_bound();
 
-	    //Vertices
-	    GimBufferArrayFloat psource_vertex_buffer = m_source_vertex_buffer;
-	    GimBufferArrayFloat ptransformed_vertex_buffer = m_transformed_vertex_buffer;
-	    //Temp transform
-	    mat4f transform = new mat4f();
-	    COPY_MATRIX_4X4(transform,m_transform);  //TODO TZ why copy?
+		//Clear update flag
+		m_mask &= ~GIM_TRIMESH_NEED_UPDATE;
+	}
 
-	    GimBufferArrayFloat.GIM_PROCESS_BUFFER_ARRAY(transform, psource_vertex_buffer, ptransformed_vertex_buffer,
-	    		MULT_MAT_VEC4_KERNEL);//,vec3f,vec3f);
+	//! Updates the global bound from the root box of the tree
+	/*!
+	The root box is transformed, so the bound is not tight for rotated trimeshes,
+	but no vertex needs to be transformed.
+	*/
+	void gim_trimesh_update_global_bound()
+	{
+	    if(m_bvh.gim_bvh_get_node_count() == 0)
+	    {
+	        INVALIDATE_AABB(m_global_bound);
+	        return;
+	    }
+	    float[] root = m_bvh.gim_bvh_get_bounds();
+	    if(gim_trimesh_has_tranformed_reply() == false)
+	    {
+	        m_global_bound.minX = root[0];
+	        m_global_bound.minY = root[1];
+	        m_global_bound.minZ = root[2];
+	        m_global_bound.maxX = root[3];
+	        m_global_bound.maxY = root[4];
+	        m_global_bound.maxZ = root[5];
+	        return;
+	    }
+	    float[] m = m_transform.f;
+	    float cx = 0.5f*(root[0] + root[3]), ex = 0.5f*(root[3] - root[0]);
+	    float cy = 0.5f*(root[1] + root[4]), ey = 0.5f*(root[4] - root[1]);
+	    float cz = 0.5f*(root[2] + root[5]), ez = 0.5f*(root[5] - root[2]);
+	    //center = R*c + p, extents = |R|*e
+	    float x = m[0]*cx + m[1]*cy + m[2]*cz + m[3];
+	    float y = m[4]*cx + m[5]*cy + m[6]*cz + m[7];
+	    float z = m[8]*cx + m[9]*cy + m[10]*cz + m[11];
+	    float dx = Math.abs(m[0])*ex + Math.abs(m[1])*ey + Math.abs(m[2])*ez;
+	    float dy = Math.abs(m[4])*ex + Math.abs(m[5])*ey + Math.abs(m[6])*ez;
+	    float dz = Math.abs(m[8])*ex + Math.abs(m[9])*ey + Math.abs(m[10])*ez;
+	    m_global_bound.minX = x - dx;
+	    m_global_bound.maxX = x + dx;
+	    m_global_bound.minY = y - dy;
+	    m_global_bound.maxY = y + dy;
+	    m_global_bound.minZ = z - dz;
+	    m_global_bound.maxZ = z + dz;
 	}
 
-	//! Updates m_aabbset and m_planes_cache_bitset
+	//! Bound of the transformed trimesh
 	/*!
-	\pre gim_trimesh_locks_work_data must be called before
+	\pre gim_trimesh_update must be called before
 	*/
-	//void gim_trimesh_update_aabbset(GIM_TRIMESH * trimesh)
-	void gim_trimesh_update_aabbset()
+	public aabb3f gim_trimesh_get_global_bound()
 	{
-	    ObjArray<vec3f> transformed_vertices = m_transformed_vertex_buffer.GIM_BUFFER_ARRAY_POINTER(0);
-	    assert(transformed_vertices!= null);
-
-	    IntArray triangle_indices = m_tri_index_buffer.GIM_BUFFER_ARRAY_POINTER(0);
-	    assert(triangle_indices!=null);
-	    // box set
-	    //aabb3f[] paabb = m_aabbset.m_boxes;
-	    int triangle_count = gim_trimesh_get_triangle_count();
-	    //float[] v1,v2,v3;
-	    //vec3f v1,v2,v3;
-	    int i;
-	    for (i=0; i<triangle_count;i++)
+		return m_global_bound;
+	}
+
+	//! Brings a world point into the local coordinates of the trimesh, p = R^T*(v - t)
+	private void INV_TRANSFORM_POINT(float[] p, int o, float vx, float vy, float vz)
+	{
+	    float[] m = m_transform.f;
+	    vx -= m[3];
+	    vy -= m[7];
+	    vz -= m[11];
+	    p[o] = m[0]*vx + m[4]*vy + m[8]*vz;
+	    p[o+1] = m[1]*vx + m[5]*vy + m[9]*vz;
+	    p[o+2] = m[2]*vx + m[6]*vy + m[10]*vz;
+	}
+
+	//! Finds the triangles whose boxes collide with a box
+	/*!
+	The box is brought into the local coordinates of the trimesh for the query of the tree,
+	so only the vertices of the triangles near the box are transformed.
+	\pre gim_trimesh_update must be called before
+	\param test_aabb Box in world coordinates
+	\param collided Array of GUINT elements, indices of the triangles in ascending order.
+	*/
+	public void gim_trimesh_box_collision(aabb3f test_aabb, GimDynArrayInt collided)
+	{
+	    collided.m_size = 0;
+	    if(AABBCOLLISION(m_global_bound,test_aabb) == false) return;
+
+	    float[] local_box = new float[6];
+	    if(gim_trimesh_has_tranformed_reply() == false)
 	    {
-//	        v1 = transformed_vertices.at(triangle_indices.at(0));//[0];
-//	        v2 = transformed_vertices.at(triangle_indices.at(1));//[0];
-//	        v3 = transformed_vertices.at(triangle_indices.at(2));//[0];
-//	        COMPUTEAABB_FOR_TRIANGLE((paabb[i]),v1,v2,v3);
-	        COMPUTEAABB_FOR_TRIANGLE(m_aabbset.at(i),//paabb[i],	        
-	        		transformed_vertices.at( triangle_indices.at(0) ),
-	        		transformed_vertices.at( triangle_indices.at(1) ),
-	        		transformed_vertices.at( triangle_indices.at(2) ));
-	        triangle_indices.inc(3);//+=3;
-	        //paabb++;
+	        local_box[0] = test_aabb.minX;
+	        local_box[1] = test_aabb.minY;
+	        local_box[2] = test_aabb.minZ;
+	        local_box[3] = test_aabb.maxX;
+	        local_box[4] = test_aabb.maxY;
+	        local_box[5] = test_aabb.maxZ;
+	        m_bvh.gim_bvh_box_query(local_box, collided);
 	    }
-	    //Clear planes cache
-	    m_planes_cache_bitset.GIM_BITSET_CLEAR_ALL();
-	    //Sorts set
-	    m_aabbset.gim_aabbset_update();
+	    else
+	    {
+	        float[] m = m_transform.f;
+	        float ex = 0.5f*(test_aabb.maxX - test_aabb.minX);
+	        float ey = 0.5f*(test_aabb.maxY - test_aabb.minY);
+	        float ez = 0.5f*(test_aabb.maxZ - test_aabb.minZ);
+	        INV_TRANSFORM_POINT(local_box, 0, test_aabb.minX + ex, test_aabb.minY + ey, test_aabb.minZ + ez);
+	        for (int k = 0; k < 3; k++)
+	        {
+	            //extents = |R^T|*e, padded for the rounding of the transformations
+	            float e = Math.abs(m[k])*ex + Math.abs(m[4+k])*ey + Math.abs(m[8+k])*ez;
+	            e += 0.00001f*(e + Math.abs(local_box[k]));
+	            local_box[k+3] = local_box[k] + e;
+	            local_box[k] -= e;
+	        }
+	        m_bvh.gim_bvh_box_query(local_box, collided);
+
+	        //The rotated query box is larger than the original one, keep only the triangles
+	        //whose transformed boxes collide with it
+	        int[] result = collided.GIM_DYNARRAY_POINTER();
+	        IntArray triangle_indices = m_tri_index_buffer.GIM_BUFFER_ARRAY_POINTER(0);
+	        aabb3f tri_aabb = new aabb3f();
+	        int count = 0;
+	        for (int i = 0; i < collided.m_size; i++)
+	        {
+	            int index = result[i]*3;
+	            COMPUTEAABB_FOR_TRIANGLE(tri_aabb,
+	                    gim_trimesh_get_transformed_vertex(triangle_indices.at(index)),
+	                    gim_trimesh_get_transformed_vertex(triangle_indices.at(index+1)),
+	                    gim_trimesh_get_transformed_vertex(triangle_indices.at(index+2)));
+	            if(AABBCOLLISION(tri_aabb,test_aabb))
+	            {
+	                result[count++] = result[i];
+	            }
+	        }
+	        collided.m_size = count;
+	    }
+	    //same order as the former query of all boxes
+	    Arrays.sort(collided.GIM_DYNARRAY_POINTER(), 0, collided.m_size);
 	}
 
-	//! Calls before perfom collisions. Updates the trimesh if needed
+	//! Finds the triangles whose boxes are hit by a ray
 	/*!
-	\post If gim_trimesh_needs_update returns 1, then it calls  gim_trimesh_update_vertices and gim_trimesh_update_aabbset
+	The ray is brought into the local coordinates of the trimesh for the query of the tree.
+	\pre gim_trimesh_update must be called before
+	\param vorigin Origin of the ray in world coordinates
+	\param vdir Direction of the ray in world coordinates
+	\param tmax Max distance param for ray
+	\param collided Array of GUINT elements, indices of the triangles in ascending order.
 	*/
-	//void gim_trimesh_update(GIM_TRIMESH * trimesh)
-	public void gim_trimesh_update()
+	void gim_trimesh_ray_box_collision(vec3f vorigin, vec3f vdir, float tmax,
+			GimDynArrayInt collided)
 	{
-		if(gim_trimesh_needs_update()==false) return;
-		gim_trimesh_update_vertices();
-		gim_trimesh_locks_work_data();
-		gim_trimesh_update_aabbset();
-		gim_trimesh_unlocks_work_data();
+	    collided.m_size = 0;
+	    RefBoolean intersected = new RefBoolean(false);
+	    RefFloat tparam = new RefFloat();
+	    BOX_INTERSECTS_RAY(m_global_bound, vorigin, vdir, tparam, tmax, intersected);
+	    if(intersected.b == false) return;
 
-		//Clear update flag
-		m_mask &= ~GIM_TRIMESH_NEED_UPDATE;
+	    if(gim_trimesh_has_tranformed_reply() == false)
+	    {
+	        m_bvh.gim_bvh_ray_query(vorigin, vdir, tmax, collided);
+	    }
+	    else
+	    {
+	        vec3f local_origin = new vec3f();
+	        vec3f local_dir = new vec3f();
+	        INV_TRANSFORM_POINT(local_origin.f, 0, vorigin.f[0], vorigin.f[1], vorigin.f[2]);
+	        INV_TRANSFORM_POINT(local_dir.f, 0, vdir.f[0] + m_transform.f[3],
+	                vdir.f[1] + m_transform.f[7], vdir.f[2] + m_transform.f[11]);
+	        m_bvh.gim_bvh_ray_query(local_origin, local_dir, tmax, collided);
+	    }
+	    Arrays.sort(collided.GIM_DYNARRAY_POINTER(), 0, collided.m_size);
+	}
+
+	//! Returns a transformed vertex
+	/*!
+	The vertex is transformed when it is used for the first time after gim_trimesh_update().
+	\return the vertex in m_transformed_vertex_buffer, don't modify it
+	*/
+	vec3f gim_trimesh_get_transformed_vertex(int vertex_index)
+	{
+	    vec3f v = m_transformed_vertex_buffer.GIM_BUFFER_ARRAY_AT(vertex_index);
+	    if(gim_trimesh_has_tranformed_reply() &&
+	            m_vertex_version.get(vertex_index) != m_transform_version)
+	    {
+	        MAT_DOT_VEC_3X4(v, m_transform, m_source_vertex_buffer.GIM_BUFFER_ARRAY_AT(vertex_index));
+	        m_vertex_version.lazySet(vertex_index, m_transform_version);
+	    }
+	    return v;
 	}
 
 	//! Set the transform of a trimesh
@@ -855,27 +1022,21 @@ public class GimTrimesh implements GimConstants {
 	void gim_trimesh_get_triangle_data(int triangle_index, 
 			final GIM_TRIANGLE_DATA tri_data)
 	{
-	    ObjArray<vec3f> transformed_vertices = m_transformed_vertex_buffer.GIM_BUFFER_ARRAY_POINTER(0);
-
 	    IntArray triangle_indices = m_tri_index_buffer.GIM_BUFFER_ARRAY_POINTER(triangle_index*3);
 
 
 	    //Copy the vertices
-	    VEC_COPY(tri_data.m_vertices[0],transformed_vertices.at( triangle_indices.at(0) ));
-	    VEC_COPY(tri_data.m_vertices[1],transformed_vertices.at( triangle_indices.at(1) ));
-	    VEC_COPY(tri_data.m_vertices[2],transformed_vertices.at( triangle_indices.at(2) ));
+	    VEC_COPY(tri_data.m_vertices[0],gim_trimesh_get_transformed_vertex( triangle_indices.at(0) ));
+	    VEC_COPY(tri_data.m_vertices[1],gim_trimesh_get_transformed_vertex( triangle_indices.at(1) ));
+	    VEC_COPY(tri_data.m_vertices[2],gim_trimesh_get_transformed_vertex( triangle_indices.at(2) ));
 
 	    //Get the planes
-	    ObjArray<GIM_TRIPLANES_CACHE> planes = m_planes_cache_buffer.GIM_DYNARRAY_POINTER_V();
-	    planes.inc(triangle_index);
-	    if (planes.at0()==null) planes.setAt0(new GIM_TRIPLANES_CACHE());
-    	GIM_TRIPLANES_CACHE plane = planes.at0();
+	    GIM_TRIPLANES_CACHE plane = m_planes_cache_buffer[triangle_index];
 
 	    //verify planes cache
-	    boolean bit_eval;
-	    bit_eval = m_planes_cache_bitset.GIM_BITSET_GET(triangle_index);
-	    if(bit_eval == false)// Needs to calc the planes
+	    if(plane == null || m_planes_version.get(triangle_index) != m_transform_version)// Needs to calc the planes
 	    {
+	        if(plane == null) plane = new GIM_TRIPLANES_CACHE();
 	        //Calc the face plane
 	        TRIANGLE_PLANE(tri_data.m_vertices[0], tri_data.m_vertices[1], tri_data.m_vertices[2], plane.m_planes[0]);
 	        //Calc the edge 1
@@ -888,7 +1049,8 @@ public class GimTrimesh implements GimConstants {
 	        EDGE_PLANE(tri_data.m_vertices[2], tri_data.m_vertices[0], plane.m_planes[0], plane.m_planes[3] );
 
 	        //mark
-	        m_planes_cache_bitset.GIM_BITSET_SET(triangle_index);
+	        m_planes_cache_buffer[triangle_index] = plane;
+	        m_planes_version.lazySet(triangle_index, m_transform_version);
 	    }
 
 
@@ -907,20 +1069,12 @@ public class GimTrimesh implements GimConstants {
 	public void gim_trimesh_get_triangle_vertices( 
 			int triangle_index, vec3f v1, vec3f v2, vec3f v3)
 	{
-		//vec3f[] transformed_vertices = GIM_BUFFER_ARRAY_POINTER(vec3f.class,trimesh.m_transformed_vertex_buffer,0);
-		ObjArray<vec3f> transformed_vertices = m_transformed_vertex_buffer.GIM_BUFFER_ARRAY_POINTER(0);
-
 	    //int[] triangle_indices = GIM_BUFFER_ARRAY_POINTER(GUINT32,trimesh.m_tri_index_buffer,triangle_index*3);
 	    IntArray triangle_indices = m_tri_index_buffer.GIM_BUFFER_ARRAY_POINTER(triangle_index*3);
 	    
 	    //Copy the vertices
-	    VEC_COPY(v1,transformed_vertices.at( triangle_indices.at(0) ));
-	    VEC_COPY(v2,transformed_vertices.at( triangle_indices.at(1) ));
-	    VEC_COPY(v3,transformed_vertices.at( triangle_indices.at(2) ));
-	}
-
-	
-	public GimAABBSet getAabbSet() {
-		return m_aabbset;
+	    VEC_COPY(v1,gim_trimesh_get_transformed_vertex( triangle_indices.at(0) ));
+	    VEC_COPY(v2,gim_trimesh_get_transformed_vertex( triangle_indices.at(1) ));
+	    VEC_COPY(v3,gim_trimesh_get_transformed_vertex( triangle_indices.at(2) ));
 	}
 }
@@ -177,7 +177,7 @@ public class GimTrimeshSphereCollision {
 
 		GimDynArrayInt collision_result = GimDynArrayInt.GIM_CREATE_BOXQUERY_LIST();
 
-		trimesh.m_aabbset.gim_aabbset_box_collision(test_aabb, collision_result);
+		trimesh.gim_trimesh_box_collision(test_aabb, collision_result);
 
 		if(collision_result.size()==0)
 		{
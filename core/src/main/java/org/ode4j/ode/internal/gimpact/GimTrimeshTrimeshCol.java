@@ -31,9 +31,8 @@
  */
 package org.ode4j.ode.internal.gimpact;
 
-import org.ode4j.ode.internal.cpp4j.java.ObjArray;
 import org.ode4j.ode.internal.cpp4j.java.RefFloat;
-import org.ode4j.ode.internal.gimpact.GimAABBSet.GIM_PAIR;
+import org.ode4j.ode.internal.gimpact.GimGeometry.mat4f;
 import org.ode4j.ode.internal.gimpact.GimGeometry.vec3f;
 import org.ode4j.ode.internal.gimpact.GimGeometry.vec4f;
 import org.ode4j.ode.internal.gimpact.GimTriCollision.GIM_TRIANGLE_CONTACT_DATA;
@@ -47,6 +46,62 @@ import static org.ode4j.ode.internal.gimpact.GimTriCollision.*;
  * @author Francisco Leon
 */
 public class GimTrimeshTrimeshCol {
+
+	//TZ temporaries of the collision, these live on the stack in C++.
+	private static final class GimTrimeshTrimeshTemporaries {
+		final int[] _max_candidates = new int[MAX_TRI_CLIPPING];
+		final vec3f[] _temp_clip = new vec3f[MAX_TRI_CLIPPING];
+		final vec3f[] _temp_clip2 = new vec3f[MAX_TRI_CLIPPING];
+		final vec3f[] clipped_points2 = new vec3f[MAX_TRI_CLIPPING];
+		final vec3f[] deep_points2 = new vec3f[MAX_TRI_CLIPPING];
+		final vec3f[] clipped_points1 = new vec3f[MAX_TRI_CLIPPING];
+		final vec3f[] deep_points1 = new vec3f[MAX_TRI_CLIPPING];
+		final RefFloat maxdeep = new RefFloat();
+		final RefFloat dist = new RefFloat();
+
+		final GIM_TRIANGLE_CONTACT_DATA tri_contact_data = new GIM_TRIANGLE_CONTACT_DATA();
+		final GIM_TRIANGLE_DATA tri1data = new GIM_TRIANGLE_DATA();
+		final GIM_TRIANGLE_DATA tri2data = new GIM_TRIANGLE_DATA();
+		final GimDynArray<GimContact> dummycontacts = GimContact.GIM_CREATE_CONTACT_LIST();
+		/** The contacts in dummycontacts, reused by each collision */
+		GimContact[] contact_pool = new GimContact[0];
+		/** Node pairs of the tree descent */
+		int[] node_stack = new int[128];
+		/** Rotation (3x3) and translation from trimesh2 into trimesh1 coordinates */
+		final double[] rel = new double[12];
+		final double[] abs_rot = new double[9];
+
+		GimTrimeshTrimeshTemporaries() {
+			for (int i = 0; i < MAX_TRI_CLIPPING; i++) {
+				_temp_clip[i] = new vec3f();
+				_temp_clip2[i] = new vec3f();
+				clipped_points1[i] = new vec3f();
+				clipped_points2[i] = new vec3f();
+				deep_points1[i] = new vec3f();
+				deep_points2[i] = new vec3f();
+			}
+		}
+
+		GimContact getContact(int i) {
+			if (i >= contact_pool.length) {
+				GimContact[] pool = new GimContact[Math.max(64, i*2)];
+				System.arraycopy(contact_pool, 0, pool, 0, contact_pool.length);
+				for (int j = contact_pool.length; j < pool.length; j++) {
+					pool[j] = new GimContact();
+				}
+				contact_pool = pool;
+			}
+			return contact_pool[i];
+		}
+	}
+
+	private static final ThreadLocal<GimTrimeshTrimeshTemporaries> temporaries = 
+			new ThreadLocal<GimTrimeshTrimeshTemporaries>() {
+		@Override
+		protected GimTrimeshTrimeshTemporaries initialValue() {
+			return new GimTrimeshTrimeshTemporaries();
+		}
+	};
 	
 	// ******************************************************
 	// TZ: gim_trimesh_trimesh.collision.cpp
@@ -163,29 +218,22 @@ public class GimTrimeshTrimeshCol {
 //			GIM_TRIANGLE_DATA *tri1,
 //			GIM_TRIANGLE_DATA *tri2,
 //			GIM_TRIANGLE_CONTACT_DATA * contact_data)
-	static boolean _gim_triangle_triangle_collision(
+	private static boolean _gim_triangle_triangle_collision(
 			final GIM_TRIANGLE_DATA tri1,
 			final GIM_TRIANGLE_DATA tri2,
-			final GIM_TRIANGLE_CONTACT_DATA contact_data)
+			final GIM_TRIANGLE_CONTACT_DATA contact_data,
+			final GimTrimeshTrimeshTemporaries tmp)
 	{
 	    //Cache variables for triangle intersection
-	    int[] _max_candidates = new int[MAX_TRI_CLIPPING];
-	    vec3f[] _temp_clip = new vec3f[MAX_TRI_CLIPPING];
+	    int[] _max_candidates = tmp._max_candidates;
+	    vec3f[] _temp_clip = tmp._temp_clip;
 //	    int _temp_clip_count = 0;
-	    vec3f[] _temp_clip2 = new vec3f[MAX_TRI_CLIPPING];
+	    vec3f[] _temp_clip2 = tmp._temp_clip2;
 //	    int _temp_clip_count2 = 0;
-	    vec3f[] clipped_points2 = new vec3f[MAX_TRI_CLIPPING];
-	    vec3f[] deep_points2 = new vec3f[MAX_TRI_CLIPPING];
-	    vec3f[] clipped_points1 = new vec3f[MAX_TRI_CLIPPING];
-	    vec3f[] deep_points1 = new vec3f[MAX_TRI_CLIPPING];
-	    for (int i = 0; i < MAX_TRI_CLIPPING; i++) {
-	    	_temp_clip[i] = new vec3f(); //TODO is all this really necessary ??? TZ
-	    	_temp_clip2[i] = new vec3f();
-	    	clipped_points1[i] = new vec3f();
-	    	clipped_points2[i] = new vec3f();
-	    	deep_points1[i] = new vec3f();
-	    	deep_points2[i] = new vec3f();
-	    }
+	    vec3f[] clipped_points2 = tmp.clipped_points2;
+	    vec3f[] deep_points2 = tmp.deep_points2;
+	    vec3f[] clipped_points1 = tmp.clipped_points1;
+	    vec3f[] deep_points1 = tmp.deep_points1;
 
 
 
@@ -206,7 +254,7 @@ public class GimTrimeshTrimeshCol {
 		//find most deep interval face1
 		int deep2_count=0;
 
-		RefFloat maxdeep = new RefFloat();
+		RefFloat maxdeep = tmp.maxdeep;
 
 		deep2_count = MOST_DEEP_POINTS((tri1.m_planes.m_planes[0]), clipped_points2, clipped2_count, 
 				deep_points2, maxdeep, _max_candidates);
@@ -237,7 +285,7 @@ public class GimTrimeshTrimeshCol {
 		//find interval face2
 		int deep1_count=0;
 
-		RefFloat dist = new RefFloat();
+		RefFloat dist = tmp.dist;
 
 		deep1_count = MOST_DEEP_POINTS((tri2.m_planes.m_planes[0]), clipped_points1, clipped1_count, 
 				deep_points1, dist, _max_candidates);
@@ -250,7 +298,7 @@ public class GimTrimeshTrimeshCol {
 
 		if(dist.d<maxdeep.d)
 		{
-			maxdeep = dist;
+			maxdeep.d = dist.d;
 			mostdir = 1;
 			VEC_COPY(contact_data.m_separating_normal, tri2.m_planes.m_planes[0] );
 		}
@@ -294,6 +342,15 @@ public class GimTrimeshTrimeshCol {
 			final GIM_TRIANGLE_DATA tri2,
 			final GIM_TRIANGLE_CONTACT_DATA contact_data)
 	{
+		return gim_triangle_triangle_collision(tri1, tri2, contact_data, temporaries.get());
+	}
+
+	private static boolean gim_triangle_triangle_collision(
+			final GIM_TRIANGLE_DATA tri1,
+			final GIM_TRIANGLE_DATA tri2,
+			final GIM_TRIANGLE_CONTACT_DATA contact_data,
+			final GimTrimeshTrimeshTemporaries tmp)
+	{
 //	    vec3f _distances = new vec3f();
 
 //	    if (CLASSIFY_TRI_BY_FACE(tri1.m_vertices, tri2.m_planes.m_planes[0], _distances)) {
@@ -306,13 +363,76 @@ public class GimTrimeshTrimeshCol {
 	    	return false;
 	    }
 
-	    return _gim_triangle_triangle_collision(tri1, tri2, contact_data);
+	    return _gim_triangle_triangle_collision(tri1, tri2, contact_data, tmp);
 	}
 
  
+	/**
+	 * Writes the transformation from local coordinates of trimesh2 into local
+	 * coordinates of trimesh1 into rel (3x3 rotation, then translation), and
+	 * the absolute values of the rotation into abs_rot.
+	 * The transforms of the trimeshes must be rigid.
+	 */
+	private static void RELATIVE_TRANSFORM(final GimTrimesh trimesh1, final GimTrimesh trimesh2,
+			final double[] rel, final double[] abs_rot)
+	{
+	    //meshes without transformed reply are in world coordinates
+	    mat4f m1 = trimesh1.gim_trimesh_has_tranformed_reply() ? trimesh1.m_transform : null;
+	    mat4f m2 = trimesh2.gim_trimesh_has_tranformed_reply() ? trimesh2.m_transform : null;
+	    for (int i = 0; i < 3; i++) {
+	        for (int j = 0; j < 3; j++) {
+	            //(R1^T * R2)[i][j]
+	            double r = 0;
+	            for (int k = 0; k < 3; k++) {
+	                double r1 = m1 != null ? m1.f[k*4+i] : (k == i ? 1 : 0);
+	                double r2 = m2 != null ? m2.f[k*4+j] : (k == j ? 1 : 0);
+	                r += r1 * r2;
+	            }
+	            rel[i*3+j] = r;
+	            abs_rot[i*3+j] = Math.abs(r);
+	        }
+	        //R1^T * (p2 - p1)
+	        double t = 0;
+	        for (int k = 0; k < 3; k++) {
+	            double r1 = m1 != null ? m1.f[k*4+i] : (k == i ? 1 : 0);
+	            double p = (m2 != null ? m2.f[k*4+3] : 0) - (m1 != null ? m1.f[k*4+3] : 0);
+	            t += r1 * p;
+	        }
+	        rel[9+i] = t;
+	    }
+	}
+
+	/**
+	 * Tests a box of trimesh1 against a box of trimesh2, after transforming
+	 * the second box into coordinates of trimesh1.
+	 */
+	private static boolean NODE_BOXES_OVERLAP(final float[] b1, final int o1, final float[] b2, final int o2,
+			final double[] rel, final double[] abs_rot)
+	{
+	    double c0 = 0.5*(b2[o2] + b2[o2+3]);
+	    double c1 = 0.5*(b2[o2+1] + b2[o2+4]);
+	    double c2 = 0.5*(b2[o2+2] + b2[o2+5]);
+	    double e0 = 0.5*(b2[o2+3] - b2[o2]);
+	    double e1 = 0.5*(b2[o2+4] - b2[o2+1]);
+	    double e2 = 0.5*(b2[o2+5] - b2[o2+2]);
+	    for (int i = 0; i < 3; i++) {
+	        double c = rel[i*3]*c0 + rel[i*3+1]*c1 + rel[i*3+2]*c2 + rel[9+i];
+	        double e = abs_rot[i*3]*e0 + abs_rot[i*3+1]*e1 + abs_rot[i*3+2]*e2;
+	        if (c + e < b1[o1+i] || c - e > b1[o1+3+i]) {
+	            return false;
+	        }
+	    }
+	    return true;
+	}
+
 	/**
 	 * Trimesh Trimesh Collisions.
 	 * 
+	 * The candidate triangle pairs are found with a simultaneous descent of
+	 * the triangle trees of both trimeshes, in local coordinates of trimesh1.
+	 * So the cost depends on the overlap of the meshes rather than on the
+	 * number of triangles.
+	 * 
 	 * In each contact:
 	 * <ul>
 	 * <li> m_handle1 points to trimesh1.
@@ -330,73 +450,121 @@ public class GimTrimeshTrimeshCol {
 			final GimDynArray<GimContact> contacts)
 	{
 	    contacts.m_size = 0;
-	    GimDynArray<GIM_PAIR> collision_pairs = GimAABBSet.GIM_CREATE_PAIR_SET();
-
-	    GimAABBSet.gim_aabbset_bipartite_intersections(trimesh1.m_aabbset,trimesh2.m_aabbset,collision_pairs);
-
-	    if(collision_pairs.size()==0)
+	    GimBvh bvh1 = trimesh1.m_bvh;
+	    GimBvh bvh2 = trimesh2.m_bvh;
+	    if (bvh1.gim_bvh_get_node_count() == 0 || bvh2.gim_bvh_get_node_count() == 0)
 	    {
-	    	collision_pairs.GIM_DYNARRAY_DESTROY();
 	    	return; //no collisioin
 	    }
 
+	    GimTrimeshTrimeshTemporaries tmp = temporaries.get();
+	    double[] rel = tmp.rel;
+	    double[] abs_rot = tmp.abs_rot;
+	    RELATIVE_TRANSFORM(trimesh1, trimesh2, rel, abs_rot);
+
 	    //Locks meshes
 	    trimesh1.gim_trimesh_locks_work_data();
 	    trimesh2.gim_trimesh_locks_work_data();
 
-
-	    //pair pointer
-	    ObjArray<GIM_PAIR> pairs = collision_pairs.GIM_DYNARRAY_POINTER_V();
 	    //dummy contacts
-	    GimDynArray<GimContact> dummycontacts = GimContact.GIM_CREATE_CONTACT_LIST();
+	    GimDynArray<GimContact> dummycontacts = tmp.dummycontacts;
+	    dummycontacts.m_size = 0;
 
 	    //Auxiliary triangle data
-	    GIM_TRIANGLE_CONTACT_DATA tri_contact_data = new GIM_TRIANGLE_CONTACT_DATA();
-	    GIM_TRIANGLE_DATA tri1data = new GIM_TRIANGLE_DATA(), tri2data = new GIM_TRIANGLE_DATA();
+	    GIM_TRIANGLE_CONTACT_DATA tri_contact_data = tmp.tri_contact_data;
+	    GIM_TRIANGLE_DATA tri1data = tmp.tri1data, tri2data = tmp.tri2data;
 
+	    float[] bounds1 = bvh1.gim_bvh_get_bounds();
+	    float[] bounds2 = bvh2.gim_bvh_get_bounds();
+	    int[] stack = tmp.node_stack;
+	    int stack_size = 0;
+	    stack[stack_size++] = 0;
+	    stack[stack_size++] = 0;
 
 	    int ti1,ti2,ci;
 	    boolean colresult;
-	    for (int i=0;i<collision_pairs.size(); i++)
+	    while (stack_size > 0)
 	    {
-	        ti1 = pairs.at(i).m_index1;
-	        ti2 = pairs.at(i).m_index2;
-	        //Get triangles data
-	        trimesh1.gim_trimesh_get_triangle_data(ti1,tri1data);
-	        trimesh2.gim_trimesh_get_triangle_data(ti2,tri2data);
-
-	        //collide triangles
-	        colresult = gim_triangle_triangle_collision(tri1data,tri2data,tri_contact_data);
-	        if(colresult == true)
+	        int n2 = stack[--stack_size];
+	        int n1 = stack[--stack_size];
+	        if (!NODE_BOXES_OVERLAP(bounds1, n1*6, bounds2, n2*6, rel, abs_rot))
 	        {
-	            //Add contacts
-	            for (ci=0;ci<tri_contact_data.m_point_count ;ci++ )
+	            continue;
+	        }
+	        boolean leaf1 = bvh1.gim_bvh_is_leaf(n1);
+	        boolean leaf2 = bvh2.gim_bvh_is_leaf(n2);
+	        if (leaf1 && leaf2)
+	        {
+	            ti1 = bvh1.gim_bvh_get_triangle(n1);
+	            ti2 = bvh2.gim_bvh_get_triangle(n2);
+	            //Get triangles data
+	            trimesh1.gim_trimesh_get_triangle_data(ti1,tri1data);
+	            trimesh2.gim_trimesh_get_triangle_data(ti2,tri2data);
+
+	            //collide triangles
+	            colresult = gim_triangle_triangle_collision(tri1data,tri2data,tri_contact_data,tmp);
+	            if(colresult == true)
 	            {
-	            	GimContact.GIM_PUSH_CONTACT(dummycontacts, tri_contact_data.m_points[ci],
-	            			tri_contact_data.m_separating_normal,
-	            			tri_contact_data.m_penetration_depth, trimesh1, trimesh2, ti1, ti2);
+	                //Add contacts
+	                for (ci=0;ci<tri_contact_data.m_point_count ;ci++ )
+	                {
+	                    GimContact _last = tmp.getContact(dummycontacts.size());
+	                    VEC_COPY(_last.m_point,tri_contact_data.m_points[ci]);
+	                    VEC_COPY(_last.m_normal,tri_contact_data.m_separating_normal);
+	                    _last.m_depth = tri_contact_data.m_penetration_depth;
+	                    _last.m_handle1 = trimesh1;
+	                    _last.m_handle2 = trimesh2;
+	                    _last.m_feature1 = ti1;
+	                    _last.m_feature2 = ti2;
+	                    dummycontacts.GIM_DYNARRAY_PUSH_ITEM_TZ(_last);
+	                }
 	            }
+	            continue;
+	        }
+
+	        if (stack_size + 4 > stack.length)
+	        {
+	            int[] s = new int[stack.length*2];
+	            System.arraycopy(stack, 0, s, 0, stack_size);
+	            stack = s;
+	            tmp.node_stack = s;
+	        }
+	        //descend into the larger node
+	        if (leaf2 || (!leaf1 && BOX_SIZE(bounds1, n1*6) >= BOX_SIZE(bounds2, n2*6)))
+	        {
+	            int c = bvh1.gim_bvh_get_child(n1);
+	            stack[stack_size++] = c;
+	            stack[stack_size++] = n2;
+	            stack[stack_size++] = c+1;
+	            stack[stack_size++] = n2;
+	        }
+	        else
+	        {
+	            int c = bvh2.gim_bvh_get_child(n2);
+	            stack[stack_size++] = n1;
+	            stack[stack_size++] = c;
+	            stack[stack_size++] = n1;
+	            stack[stack_size++] = c+1;
 	        }
 	    }
 
-	    if(dummycontacts.size() == 0) //reject
+	    if(dummycontacts.size() != 0)
 	    {
-	    	dummycontacts.GIM_DYNARRAY_DESTROY();
-	    	collision_pairs.GIM_DYNARRAY_DESTROY();
-	        return;
+	        //merge contacts
+	        GimContact.gim_merge_contacts(dummycontacts,contacts);
 	    }
-	    //merge contacts
-	    GimContact.gim_merge_contacts(dummycontacts,contacts);
-
-	    //Terminate
-	    dummycontacts.GIM_DYNARRAY_DESTROY();
-	    collision_pairs.GIM_DYNARRAY_DESTROY();
 
 	    //Unlocks meshes
 	    trimesh1.gim_trimesh_unlocks_work_data();
 	    trimesh2.gim_trimesh_unlocks_work_data();
 	}
 
+	/** Sum of the box extents, decides which node to descend into. */
+	private static float BOX_SIZE(final float[] b, final int o)
+	{
+	    return (b[o+3] - b[o]) + (b[o+4] - b[o+1]) + (b[o+5] - b[o+2]);
+	}
+
 
 	/**
 	 * Trimesh Plane Collisions.
@@ -411,24 +579,50 @@ public class GimTrimeshTrimeshCol {
 			final vec4f plane, final GimDynArray<vec4f> contacts)
 	{
 	    contacts.m_size = 0;
-	    int classify = PLANE_CLASSIFY_BOX(plane,trimesh.m_aabbset.m_global_bound);
+	    aabb3f bound = trimesh.gim_trimesh_get_global_bound();
+	    int classify = PLANE_CLASSIFY_BOX(plane,bound);
 	    if(classify>1) return; // in front of plane
 
+	    //The plane is brought into the local coordinates of the trimesh, so only
+	    //the vertices near or behind it need to be transformed
+	    vec4f local_plane = new vec4f();
+	    float tolerance = 0.0f;
+	    if(trimesh.gim_trimesh_has_tranformed_reply())
+	    {
+	        float[] m = trimesh.m_transform.f;
+	        for (int k = 0; k < 3; k++)
+	        {
+	            local_plane.f[k] = m[k]*plane.f[0] + m[4+k]*plane.f[1] + m[8+k]*plane.f[2];
+	        }
+	        local_plane.f[3] = plane.f[3] -
+	            (plane.f[0]*m[3] + plane.f[1]*m[7] + plane.f[2]*m[11]);
+	        //rounding of the transformations, the exact test uses the transformed vertex
+	        float scale = MAX3(Math.abs(bound.minX), Math.abs(bound.minY), Math.abs(bound.minZ));
+	        scale = MAX(scale, MAX3(Math.abs(bound.maxX), Math.abs(bound.maxY), Math.abs(bound.maxZ)));
+	        tolerance = 0.00001f*(1.0f + scale + Math.abs(plane.f[3]) + Math.abs(local_plane.f[3]));
+	    }
+	    else
+	    {
+	        VEC_COPY_4(local_plane,plane);
+	    }
+
 	    //Locks mesh
 	    trimesh.gim_trimesh_locks_work_data();
 	    //Get vertices
-	    int i, vertcount = trimesh.m_transformed_vertex_buffer.size();//m_element_count;
-	    ObjArray<vec3f> vertices = trimesh.m_transformed_vertex_buffer.GIM_BUFFER_ARRAY_POINTER(0);//vec3f,,0);
+	    int i, vertcount = trimesh.m_source_vertex_buffer.size();//m_element_count;
 
 	    float dist;
 
 	    for (i=0;i<vertcount;i++)
 	    {
-	        dist = DISTANCE_PLANE_POINT(plane,vertices.at(i));
+	        dist = DISTANCE_PLANE_POINT(local_plane,trimesh.m_source_vertex_buffer.GIM_BUFFER_ARRAY_AT(i));
+	        if(dist>tolerance) continue;
+	        vec3f vertex = trimesh.gim_trimesh_get_transformed_vertex(i);
+	        dist = DISTANCE_PLANE_POINT(plane,vertex);
 	        if(dist<=0.0f)
 	        {
 	        	vec4f result_contact = new vec4f();
-	        	VEC_COPY(result_contact,vertices.at(i));
+	        	VEC_COPY(result_contact,vertex);
 	        	result_contact.f[3] = -dist;
 	        	contacts.GIM_DYNARRAY_PUSH_ITEM_TZ(result_contact);
 //	             GIM_DYNARRAY_PUSH_EMPTY(vec4f,(*contacts));
@@ -280,8 +280,9 @@ public abstract class DxJoint extends DObject implements DJoint, Cloneable {
 	void setBall( DxJoint joint, double fps, double erp, Info2Descr info,
 			DVector3 anchor1, DVector3 anchor2 )
 	{
+		final DxJointTemporaries.Util temps = DxJointTemporaries.get().util;
 		// anchor points in global coordinates with respect to body PORs.
-		DVector3 a1 = new DVector3(), a2 = new DVector3();
+		DVector3 a1 = temps.a1, a2 = temps.a2;
 
 		// set jacobian
 		info.setJ1l(0, 0, 1);
@@ -345,12 +346,13 @@ public abstract class DxJoint extends DObject implements DJoint, Cloneable {
 			DVector3 anchor1, DVector3 anchor2,
 			DVector3 axis, double erp1 )
 	{
+		final DxJointTemporaries.Util temps = DxJointTemporaries.get().util;
 		// anchor points in global coordinates with respect to body PORs.
-		DVector3 a1 = new DVector3(), a2 = new DVector3();
+		DVector3 a1 = temps.a1, a2 = temps.a2;
 
 		// get vectors normal to the axis. in setBall() axis,q1,q2 is [1 0 0],
 		// [0 1 0] and [0 0 1], which makes everything much easier.
-		DVector3 q1 = new DVector3(), q2 = new DVector3();
+		DVector3 q1 = temps.q1, q2 = temps.q2;
 		dPlaneSpace( axis, q1, q2 );
 
 		// set jacobian
@@ -361,7 +363,7 @@ public abstract class DxJoint extends DObject implements DJoint, Cloneable {
 		info.setJ1l(1, q1);
 		info.setJ1l(2, q2);
 		dMultiply0_331( a1, joint.node[0].body.posr().R(), anchor1 );
-		DVector3 v = new DVector3();
+		DVector3 v = temps.v;
 		dCalcVectorCross3( v, a1, axis );
 		info.setJ1a(0, v);
 		dCalcVectorCross3( v, a1, q1 );
@@ -411,7 +413,7 @@ public abstract class DxJoint extends DObject implements DJoint, Cloneable {
 		{
 //			for ( i = 0; i < 3; i++ ) a2.v[i] += joint.node[1].body._posr.pos.v[i];
 			a2.add(b1.posr().pos());
-			DVector3 a2_minus_a1 = new DVector3();
+			DVector3 a2_minus_a1 = v;
 			a2_minus_a1.eqDiff(a2, a1);
 			info.setC(0, k1 * ( dCalcVectorDot3( axis, a2_minus_a1 ) ));
 			info.setC(1, k * ( dCalcVectorDot3( q1, a2_minus_a1 ) ));
@@ -419,7 +421,7 @@ public abstract class DxJoint extends DObject implements DJoint, Cloneable {
 		}
 		else
 		{
-            DVector3 anchor2_minus_a1 = new DVector3();
+            DVector3 anchor2_minus_a1 = v;
             anchor2_minus_a1.eqDiff(anchor2, a1);
 			info.setC(0, k1 * ( dCalcVectorDot3( axis, anchor2_minus_a1 ) ));
 			info.setC(1, k * ( dCalcVectorDot3( q1, anchor2_minus_a1 ) ));
@@ -467,12 +469,13 @@ public abstract class DxJoint extends DObject implements DJoint, Cloneable {
 		//    q = [cos(theta/2) sin(theta/2)*u] = [s v]
 
 		// get qerr = relative rotation (rotation error) between two bodies
-		DQuaternion qerr = new DQuaternion();
-		DVector3 e = new DVector3();
+		final DxJointTemporaries.Util temps = DxJointTemporaries.get().util;
+		DQuaternion qerr = temps.qerr;
+		DVector3 e = temps.e;
 		DxBody b0 = joint.node[0].body;
 		if ( b1 != null)
 		{
-			DQuaternion qq = new DQuaternion();
+			DQuaternion qq = temps.qq;
 			dQMultiply1( qq, b0._q, b1._q );
 			dQMultiply2( qerr, qq, qrel );
 		}
@@ -488,7 +491,7 @@ public abstract class DxJoint extends DObject implements DJoint, Cloneable {
 		}
 		//TZ:
 //		dMULTIPLY0_331( e, joint.node[0].body.posr.R, qerr + 1 );  // @@@ bad SIMD padding!
-		DVector3 qerr2 = new DVector3();
+		DVector3 qerr2 = temps.v;
 		qerr2.set0( qerr.get1() );
 		qerr2.set1( qerr.get2() );
 		qerr2.set2( qerr.get3() );
@@ -726,10 +729,11 @@ public abstract class DxJoint extends DObject implements DJoint, Cloneable {
 			DQuaternion q_initial )
 	{
 		// get qrel = relative rotation between the two bodies
-		DQuaternion qrel = new DQuaternion();
+		final DxJointTemporaries.Util temps = DxJointTemporaries.get().util;
+		DQuaternion qrel = temps.qerr;
 		if ( body2 != null )
 		{
-			DQuaternion qq = new DQuaternion();
+			DQuaternion qq = temps.qq;
 			dQMultiply1( qq, body1._q, body2._q );
 			dQMultiply2( qrel, qq, q_initial );
 		}
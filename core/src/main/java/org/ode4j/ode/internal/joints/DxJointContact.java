@@ -127,6 +127,7 @@ public class DxJointContact extends DxJoint implements DContactJoint
 	public void
 	getInfo2( double worldFPS, double worldERP, Info2Descr info )
 	{
+		final DxJointTemporaries.Contact temps = DxJointTemporaries.get().contact;
 
 	    final int rowNormal = 0;
 	    final int rowFriction1 = 1;
@@ -134,7 +135,7 @@ public class DxJointContact extends DxJoint implements DContactJoint
 	    int rollRow=3;
 
 	    // get normal, with sign adjusted for body1/body2 polarity
-		DVector3 normal = new DVector3();
+		DVector3 normal = temps.normal;
 		if ( isFlagsReverse() )
 		{
 //			normal.v[0] = - contact.geom.normal.v[0];
@@ -152,14 +153,14 @@ public class DxJointContact extends DxJoint implements DContactJoint
 		//normal.v[3] = 0; // @@@ hmmm
 
 		// c1,c2 = contact points with respect to body PORs
-		DVector3 c1 = new DVector3(), c2 = new DVector3(); //{0,0,0};
+		DVector3 c1 = temps.c1, c2 = temps.c2; //{0,0,0};
 //		c1.v[0] = contact.geom.pos.v[0] - node[0].body._posr.pos.v[0];
 //		c1.v[1] = contact.geom.pos.v[1] - node[0].body._posr.pos.v[1];
 //		c1.v[2] = contact.geom.pos.v[2] - node[0].body._posr.pos.v[2];
 		c1.eqDiff( contact.geom.pos, node[0].body.posr().pos() );
 
-		DVector3 j1l = new DVector3();
-		DVector3 j1a = new DVector3();
+		DVector3 j1l = temps.j1l;
+		DVector3 j1a = temps.j1a;
 		// set jacobian for normal
 		info.setJ1l(0, normal);
 		j1l.set(normal);
@@ -167,8 +168,8 @@ public class DxJointContact extends DxJoint implements DContactJoint
 		info.setJ1a(0, j1a);
 
 		DxBody b1 = node[1].body;
-		DVector3 j2l = new DVector3();
-		DVector3 j2a = new DVector3();
+		DVector3 j2l = temps.j2l;
+		DVector3 j2a = temps.j2a;
 		if ( b1 != null)
 		{
 //			c2.v[0] = contact.geom.pos.v[0] - node[1].body._posr.pos.v[0];
@@ -238,7 +239,7 @@ public class DxJointContact extends DxJoint implements DContactJoint
 		    return;
 
 		// now do jacobian for tangential forces
-		DVector3 t1 = new DVector3(), t2 = new DVector3(); // two vectors tangential to normal
+		DVector3 t1 = temps.t1, t2 = temps.t2; // two vectors tangential to normal
 
 		if (( contact.surface.mode & dContactFDir1) != 0)   // use fdir1 ?
 		{
@@ -257,13 +258,13 @@ public class DxJointContact extends DxJoint implements DContactJoint
 	    if ( contact.surface.mu > 0 )
 	    {
 	    	info.setJ1l(1, t1);
-			DVector3 j1a_1 = new DVector3();
+			DVector3 j1a_1 = temps.v;
 	    	dCalcVectorCross3( j1a_1, c1, t1 );
     		info.setJ1a(1, j1a_1);
 	    	
 	    	if ( node[1].body != null)
 	    	{
-				DVector3 j2a_1 = new DVector3();
+				DVector3 j2a_1 = temps.v;
 		    	info.setJ2lNegated(1, t1);
 	    		//			    dReal *J2a_plus_s = info->J2a + s;
 	    		//	            dCalcVectorCross3( J2a_plus_s, c2, t1 );
@@ -300,7 +301,7 @@ public class DxJointContact extends DxJoint implements DContactJoint
 		if ( mu2 > 0 )
 		{
 			info.setJ1l(rowFriction2, t2);
-			DVector3 j1a_2 = new DVector3();
+			DVector3 j1a_2 = temps.v;
 			dCalcVectorCross3( j1a_2, c1, t2 );
 			info.setJ1a(rowFriction2, j1a_2);
 			
@@ -310,7 +311,7 @@ public class DxJointContact extends DxJoint implements DContactJoint
 //				dReal *J2a_plus_s2 = info->J2a + s2;
 //				dCalcVectorCross3( J2a_plus_s2, c2, t2 );
 //				dNegateVector3( J2a_plus_s2 );
-				DVector3 j2a_2 = new DVector3();
+				DVector3 j2a_2 = temps.v;
 				dCalcVectorCross3( j2a_2, c2, t2 );
 				info.setJ2aNegated(rowFriction2, j2a_2);
 			}
@@ -339,9 +340,9 @@ public class DxJointContact extends DxJoint implements DContactJoint
 
 	    // Handle rolling/spinning friction
 	    if ((contact.surface.mode&OdeConstants.dContactRolling)!=0) {
-	        double[] rho = new double[3];
-	        DVector3[] ax = new DVector3[3];
-	        int[] approx = new int[3];
+	        double[] rho = temps.rho;
+	        DVector3[] ax = temps.ax;
+	        int[] approx = temps.approx;
 	  
 	        // Get the coefficients
 	        rho[0] = contact.surface.rho;
@@ -123,8 +123,9 @@ public class DxJointHinge extends DxJoint implements DHingeJoint
 		// where p and q are unit vectors normal to the hinge axis, and w1 and w2
 		// are the angular velocity vectors of the two bodies.
 
-		DVector3 ax1 = new DVector3();  // length 1 joint axis in global coordinates, from 1st body
-		DVector3 p = new DVector3(), q = new DVector3(); // plane space vectors for ax1
+		final DxJointTemporaries.Hinge temps = DxJointTemporaries.get().hinge;
+		DVector3 ax1 = temps.ax1;  // length 1 joint axis in global coordinates, from 1st body
+		DVector3 p = temps.p, q = temps.q; // plane space vectors for ax1
 		dMultiply0_331( ax1, node[0].body.posr().R(), _axis1 );
 		dPlaneSpace( ax1, p, q );
 
@@ -153,7 +154,7 @@ public class DxJointHinge extends DxJoint implements DHingeJoint
 		// ax1 x ax2 is in the plane space of ax1, so we project the angular
 		// velocity to p and q to find the right hand side.
 
-		DVector3 ax2 = new DVector3(), b = new DVector3();
+		DVector3 ax2 = temps.ax2, b = temps.b;
 		if ( node[1].body != null)
 		{
 			dMultiply0_331( ax2, node[1].body.posr().R(), _axis2 );
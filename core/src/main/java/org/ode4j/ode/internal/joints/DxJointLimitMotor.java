@@ -214,11 +214,13 @@ public class DxJointLimitMotor {
 			// extra tiny bit of computation) in doing this adjustment. note that we
 			// only need to do this if the constraint connects two bodies.
 
-			DVector3 ltd = new DVector3(0, 0, 0);//{0,0,0}); // Linear Torque Decoupling vector (a torque)
+			final DxJointTemporaries.Limot temps = DxJointTemporaries.get().limot;
+			DVector3 ltd = temps.ltd;//{0,0,0}); // Linear Torque Decoupling vector (a torque)
+			ltd.setZero();
 			if ( (!rotational) && (b1 != null))
 			{
 				DxBody b0 = joint.node[0].body;
-				DVector3 c = new DVector3();
+				DVector3 c = temps.c;
 //				c.v[0] = 0.5 * ( joint.node[1].body._posr.pos.v[0] - joint.node[0].body._posr.pos.v[0] );
 //				c.v[1] = 0.5 * ( joint.node[1].body._posr.pos.v[1] - joint.node[0].body._posr.pos.v[1] );
 //				c.v[2] = 0.5 * ( joint.node[1].body._posr.pos.v[2] - joint.node[0].body._posr.pos.v[2] );
@@ -388,9 +390,10 @@ public class DxJointLimitMotor {
 
 		// if the joint is powered, or has joint limits, add in the extra row
 		boolean powered = fmax > 0;
-		DVector3 j1a = new DVector3();
-		DVector3 j2l = new DVector3();
-		DVector3 j2a = new DVector3();
+		final DxJointTemporaries.Limot temps = DxJointTemporaries.get().limot;
+		DVector3 j1a = temps.j1a;
+		DVector3 j2l = temps.j2l;
+		DVector3 j2a = temps.j2a;
 		if ( powered || limit != 0)
 		{
 			// Set the linear portion
@@ -72,7 +72,8 @@ public class DxJointSlider extends DxJoint implements DSliderJoint
 	public double dJointGetSliderPosition ( )
 	{
 		// get axis1 in global coordinates
-		DVector3 ax1 = new DVector3(), q = new DVector3();
+		final DxJointTemporaries.Slider temps = DxJointTemporaries.get().slider;
+		DVector3 ax1 = temps.ax1, q = temps.q;
 		dMultiply0_331 ( ax1, node[0].body.posr().R(), axis1 );
 
 		if ( node[1].body!= null )
@@ -182,7 +183,8 @@ public class DxJointSlider extends DxJoint implements DSliderJoint
 		DVector3C pos1, pos2;
 		DMatrix3C R1;
 		DMatrix3C R2;
-		DVector3 c = new DVector3();
+		final DxJointTemporaries.Slider temps = DxJointTemporaries.get().slider;
+		DVector3 c = temps.c;
 		pos1 = node[0].body.posr().pos();
 		R1 = node[0].body.posr().R();
 		if ( node[1].body!= null )
@@ -205,13 +207,13 @@ public class DxJointSlider extends DxJoint implements DSliderJoint
 		// so that sliding along the slider axis is disregarded. for symmetry we
 		// also substitute (w1+w2)/2 for w1, as w1 is supposed to equal w2.
 
-		DVector3 ax1 = new DVector3(); // joint axis in global coordinates (unit length)
-		DVector3 p = new DVector3(), q = new DVector3(); // plane space of ax1
+		DVector3 ax1 = temps.ax1; // joint axis in global coordinates (unit length)
+		DVector3 p = temps.p, q = temps.q; // plane space of ax1
 		dMultiply0_331 ( ax1, R1, axis1 );
 		dPlaneSpace ( ax1, p, q );
 		if ( node[1].body!= null )
 		{
-			DVector3 tmp = new DVector3();
+			DVector3 tmp = temps.tmp;
 			//dCalcVectorCross3 ( tmp, =  0.5 * , c, p );
 			dCalcVectorCross3 ( tmp, c, p );
 			tmp.scale(0.5);
@@ -235,7 +237,7 @@ public class DxJointSlider extends DxJoint implements DSliderJoint
 		double k = worldFPS * worldERP;
 		if ( node[1].body != null)
 		{
-			DVector3 ofs = new DVector3();  // offset point in global coordinates
+			DVector3 ofs = temps.tmp;  // offset point in global coordinates
 			dMultiply0_331 ( ofs, R2, offset );
 			//for ( i = 0; i < 3; i++ ) c.v[i] += ofs.v[i];
 			c.add(ofs);
@@ -244,7 +246,7 @@ public class DxJointSlider extends DxJoint implements DSliderJoint
 		}
 		else
 		{
-			DVector3 ofs = new DVector3();  // offset point in global coordinates
+			DVector3 ofs = temps.tmp;  // offset point in global coordinates
 			//for ( i = 0; i < 3; i++ ) ofs.v[i] = offset.v[i] - pos1[i];
 			ofs.eqDiff(offset, pos1);
 			info.setC(3, k * dCalcVectorDot3 ( p, ofs ) );
@@ -0,0 +1,127 @@
+/*************************************************************************
+ *                                                                       *
+ * Open Dynamics Engine, Copyright (C) 2001,2002 Russell L. Smith.       *
+ * All rights reserved.  Email: russ@q12.org   Web: www.q12.org          *
+ * Open Dynamics Engine 4J, Copyright (C) 2009-2014 Tilmann Zaeschke     *
+ * All rights reserved.  Email: ode4j@gmx.de   Web: www.ode4j.org        *
+ *                                                                       *
+ * This library is free software; you can redistribute it and/or         *
+ * modify it under the terms of EITHER:                                  *
+ *   (1) The GNU Lesser General Public License as published by the Free  *
+ *       Software Foundation; either version 2.1 of the License, or (at  *
+ *       your option) any later version. The text of the GNU Lesser      *
+ *       General Public License is included with this library in the     *
+ *       file LICENSE.TXT.                                               *
+ *   (2) The BSD-style license that is included with this library in     *
+ *       the file ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT.         *
+ *                                                                       *
+ * This library is distributed in the hope that it will be useful,       *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the files    *
+ * LICENSE.TXT, ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT for more   *
+ * details.                                                              *
+ *                                                                       *
+ *************************************************************************/
+package org.ode4j.ode.internal.joints;
+
+import org.ode4j.math.DQuaternion;
+import org.ode4j.math.DVector3;
+
+/**
+ * Temporaries of getInfo2() of the joints and of the utility functions of
+ * DxJoint and DxJointLimitMotor. In C++ these live on the stack, here each
+ * thread has one instance, so the joints of several islands can be
+ * processed at the same time without allocating.
+ * <p>
+ * Each group below belongs to one class. A function may call functions that
+ * use another group (e.g. getInfo2() of the hinge calls setBall() and
+ * addLimot()), but none that use its own group.
+ */
+final class DxJointTemporaries {
+
+	/**
+	 * setBall(), setBall2(), setFixedOrientation() and getHingeAngle() of
+	 * DxJoint, they do not call each other.
+	 */
+	static final class Util {
+		final DVector3 a1 = new DVector3();
+		final DVector3 a2 = new DVector3();
+		final DVector3 q1 = new DVector3();
+		final DVector3 q2 = new DVector3();
+		final DVector3 v = new DVector3();
+		final DVector3 e = new DVector3();
+		final DQuaternion qerr = new DQuaternion();
+		final DQuaternion qq = new DQuaternion();
+	}
+
+	/** DxJointContact.getInfo2() */
+	static final class Contact {
+		final DVector3 normal = new DVector3();
+		final DVector3 c1 = new DVector3();
+		final DVector3 c2 = new DVector3();
+		final DVector3 j1l = new DVector3();
+		final DVector3 j1a = new DVector3();
+		final DVector3 j2l = new DVector3();
+		final DVector3 j2a = new DVector3();
+		final DVector3 t1 = new DVector3();
+		final DVector3 t2 = new DVector3();
+		final DVector3 v = new DVector3();
+		final double[] rho = new double[3];
+		final DVector3[] ax = new DVector3[3];
+		final int[] approx = new int[3];
+	}
+
+	/** DxJointHinge.getInfo2() */
+	static final class Hinge {
+		final DVector3 ax1 = new DVector3();
+		final DVector3 ax2 = new DVector3();
+		final DVector3 p = new DVector3();
+		final DVector3 q = new DVector3();
+		final DVector3 b = new DVector3();
+	}
+
+	/** DxJointSlider.getInfo2() and dJointGetSliderPosition() */
+	static final class Slider {
+		final DVector3 ax1 = new DVector3();
+		final DVector3 p = new DVector3();
+		final DVector3 q = new DVector3();
+		final DVector3 c = new DVector3();
+		final DVector3 tmp = new DVector3();
+	}
+
+	/** DxJointLimitMotor.addLimot() and addTwoPointLimot() */
+	static final class Limot {
+		final DVector3 ltd = new DVector3();
+		final DVector3 c = new DVector3();
+		final DVector3 j1a = new DVector3();
+		final DVector3 j2l = new DVector3();
+		final DVector3 j2a = new DVector3();
+	}
+
+	final Util util = new Util();
+	final Contact contact = new Contact();
+	final Hinge hinge = new Hinge();
+	final Slider slider = new Slider();
+	final Limot limot = new Limot();
+	/** DxJointFixed.getInfo2() */
+	final DVector3 fixedOfs = new DVector3();
+
+	private static final ThreadLocal<DxJointTemporaries> temporaries = 
+			new ThreadLocal<DxJointTemporaries>() {
+		@Override
+		protected DxJointTemporaries initialValue() {
+			return new DxJointTemporaries();
+		}
+	};
+
+	private DxJointTemporaries() {
+		// one instance per thread
+	}
+
+	/**
+	 * @return the temporaries of the calling thread
+	 */
+	static DxJointTemporaries get() {
+		return temporaries.get();
+	}
+}
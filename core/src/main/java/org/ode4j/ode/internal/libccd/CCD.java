@@ -78,18 +78,34 @@ public class CCD {
 		public long max_iterations; //!< Maximal number of iterations
 		double epa_tolerance;
 		public double mpr_tolerance; //!< Boundary tolerance for MPR algorithm
+
+		//TZ temporaries of GJK and MPR, these live on the stack in C.
+		//A ccd_t can therefore be used by only one thread at a time.
+		final ccd_simplex_t simplex = new ccd_simplex_t();
+		final ccd_vec3_t supp_dir = new ccd_vec3_t();
+		// GJK
+		final ccd_vec3_t gjk_dir = new ccd_vec3_t();
+		final ccd_support_t gjk_last = new ccd_support_t();
+		final ccd_support_t gjk_Ctmp = new ccd_support_t();
+		final ccd_vec3_t gjk_AO = new ccd_vec3_t(), gjk_AB = new ccd_vec3_t();
+		final ccd_vec3_t gjk_AC = new ccd_vec3_t(), gjk_AD = new ccd_vec3_t();
+		final ccd_vec3_t gjk_ABC = new ccd_vec3_t(), gjk_ACD = new ccd_vec3_t();
+		final ccd_vec3_t gjk_ADB = new ccd_vec3_t(), gjk_tmp = new ccd_vec3_t();
+		final ccd_vec3_t gjk_e = new ccd_vec3_t();
+		// MPR
+		final ccd_vec3_t mpr_dir = new ccd_vec3_t();
+		final ccd_vec3_t mpr_va = new ccd_vec3_t(), mpr_vb = new ccd_vec3_t();
+		final ccd_support_t mpr_v4 = new ccd_support_t();
+		final ccd_vec3_t mpr_pos_dir = new ccd_vec3_t(), mpr_vec = new ccd_vec3_t();
+		final ccd_vec3_t mpr_p1 = new ccd_vec3_t(), mpr_p2 = new ccd_vec3_t();
+		final ccd_vec3_t mpr_v2v1 = new ccd_vec3_t(), mpr_v3v1 = new ccd_vec3_t();
+		final ccd_vec3_t mpr_v4v0 = new ccd_vec3_t();
 	};
 	//	typedef struct _ccd_t ccd_t;
 
 	//	#define CCD_INIT(ccd) \
 	public static final void CCD_INIT(ccd_t ccd) {
-		(ccd).first_dir = new ccd_first_dir_fn() {
-			
-			@Override
-			public void run(Object obj1, Object obj2, ccd_vec3_t dir) {
-				ccdFirstDirDefault(obj1, obj2, dir);
-			}
-		}; 
+		(ccd).first_dir = ccdFirstDirDefault; 
 		(ccd).support1 = null; 
 		(ccd).support2 = null; 
 		(ccd).center1  = null; 
@@ -109,14 +125,20 @@ public class CCD {
 		ccdVec3Set(dir, CCD_ONE, CCD_ZERO, CCD_ZERO);
 	}
 
+	private static final ccd_first_dir_fn ccdFirstDirDefault = new ccd_first_dir_fn() {
+		@Override
+		public void run(Object obj1, Object obj2, ccd_vec3_t dir) {
+			ccdFirstDirDefault(obj1, obj2, dir);
+		}
+	};
+
 
 	/**
 	 * Returns true if two given objects interest.
 	 */
 	public static boolean ccdGJKIntersect(final Object obj1, final Object obj2, final ccd_t ccd)
 	{
-		ccd_simplex_t simplex = new ccd_simplex_t();
-		return __ccdGJK(obj1, obj2, ccd, simplex) == 0;
+		return __ccdGJK(obj1, obj2, ccd, ccd.simplex) == 0;
 	}
 
 
@@ -257,8 +279,8 @@ public class CCD {
 			final ccd_t ccd, ccd_simplex_t simplex)
 	{
 		long iterations;
-		ccd_vec3_t dir = new ccd_vec3_t(); // direction vector
-		ccd_support_t last = new ccd_support_t(); // last support point
+		final ccd_vec3_t dir = ccd.gjk_dir; // direction vector
+		final ccd_support_t last = ccd.gjk_last; // last support point
 		int do_simplex_res;
 
 		// initialize simplex struct
@@ -292,7 +314,7 @@ public class CCD {
 
 			// if doSimplex returns 1 if objects intersect, -1 if objects don't
 			// intersect and 0 if algorithm should continue
-			do_simplex_res = doSimplex(simplex, dir);
+			do_simplex_res = doSimplex(simplex, dir, ccd);
 			if (do_simplex_res == 1){
 				return 0; // intersection found
 			}else if (do_simplex_res == -1){
@@ -362,10 +384,10 @@ public class CCD {
 	/** Returns true if simplex contains origin.
 	 *  This function also alteres simplex and dir according to further
 	 *  processing of GJK algorithm. */
-	private static int doSimplex2(ccd_simplex_t simplex, ccd_vec3_t dir)
+	private static int doSimplex2(ccd_simplex_t simplex, ccd_vec3_t dir, final ccd_t ccd)
 	{
 		final ccd_support_t A, B;
-		ccd_vec3_t AB = new ccd_vec3_t(), AO = new ccd_vec3_t(), tmp = new ccd_vec3_t();
+		final ccd_vec3_t AB = ccd.gjk_AB, AO = ccd.gjk_AO, tmp = ccd.gjk_tmp;
 		double dot;
 
 		// get last added as A
@@ -398,7 +420,7 @@ public class CCD {
 
 			// keep simplex untouched and set direction to
 			// AB x AO x AB
-			tripleCross(AB, AO, AB, dir);
+			tripleCross(AB, AO, AB, dir, ccd);
 		}
 
 		return 0;
@@ -407,11 +429,11 @@ public class CCD {
 	/** Returns true if simplex contains origin.
 	 *  This function also alteres simplex and dir according to further
 	 *  processing of GJK algorithm. */
-	private static int doSimplex3(ccd_simplex_t simplex, ccd_vec3_t dir)
+	private static int doSimplex3(ccd_simplex_t simplex, ccd_vec3_t dir, final ccd_t ccd)
 	{
 		final ccd_support_t A, B, C;
-		final ccd_vec3_t AO = new ccd_vec3_t(), AB = new ccd_vec3_t(), AC = new ccd_vec3_t();
-		final ccd_vec3_t ABC = new ccd_vec3_t(), tmp = new ccd_vec3_t();
+		final ccd_vec3_t AO = ccd.gjk_AO, AB = ccd.gjk_AB, AC = ccd.gjk_AC;
+		final ccd_vec3_t ABC = ccd.gjk_ABC, tmp = ccd.gjk_tmp;
 		double dot, dist;
 
 		// get last added as A
@@ -449,7 +471,7 @@ public class CCD {
 				// C is already in place
 				ccdSimplexSet1(simplex, A);
 				ccdSimplexSetSize(simplex, 2);
-				tripleCross(AC, AO, AC, dir);
+				tripleCross(AC, AO, AC, dir, ccd);
 			}else{
 				//ccd_do_simplex3_45:
 				dot = ccdVec3Dot(AB, AO);
@@ -457,7 +479,7 @@ public class CCD {
 					ccdSimplexSet0(simplex, B);
 					ccdSimplexSet1(simplex, A);
 					ccdSimplexSetSize(simplex, 2);
-					tripleCross(AB, AO, AB, dir);
+					tripleCross(AB, AO, AB, dir, ccd);
 				}else{
 					ccdSimplexSet0(simplex, A);
 					ccdSimplexSetSize(simplex, 1);
@@ -475,7 +497,7 @@ public class CCD {
 					ccdSimplexSet0(simplex, B);
 					ccdSimplexSet1(simplex, A);
 					ccdSimplexSetSize(simplex, 2);
-					tripleCross(AB, AO, AB, dir);
+					tripleCross(AB, AO, AB, dir, ccd);
 				}else{
 					ccdSimplexSet0(simplex, A);
 					ccdSimplexSetSize(simplex, 1);
@@ -486,7 +508,7 @@ public class CCD {
 				if (ccdIsZero(dot) || dot > CCD_ZERO){
 					ccdVec3Copy(dir, ABC);
 				}else{
-					ccd_support_t Ctmp = new ccd_support_t();
+					final ccd_support_t Ctmp = ccd.gjk_Ctmp;
 					ccdSupportCopy(Ctmp, C);
 					ccdSimplexSet0(simplex, B);
 					ccdSimplexSet1(simplex, Ctmp);
@@ -503,12 +525,12 @@ public class CCD {
 	/** Returns true if simplex contains origin.
 	 *  This function also alteres simplex and dir according to further
 	 *  processing of GJK algorithm. */
-	private static int doSimplex4(ccd_simplex_t simplex, ccd_vec3_t dir)
+	private static int doSimplex4(ccd_simplex_t simplex, ccd_vec3_t dir, final ccd_t ccd)
 	{
 		final ccd_support_t A, B, C, D;
-		ccd_vec3_t AO = new ccd_vec3_t(), AB = new ccd_vec3_t(), AC = new ccd_vec3_t();
-		ccd_vec3_t AD = new ccd_vec3_t();
-		ccd_vec3_t ABC = new ccd_vec3_t(), ACD = new ccd_vec3_t(), ADB = new ccd_vec3_t();
+		final ccd_vec3_t AO = ccd.gjk_AO, AB = ccd.gjk_AB, AC = ccd.gjk_AC;
+		final ccd_vec3_t AD = ccd.gjk_AD;
+		final ccd_vec3_t ABC = ccd.gjk_ABC, ACD = ccd.gjk_ACD, ADB = ccd.gjk_ADB;
 		int B_on_ACD, C_on_ADB, D_on_ABC;
 		boolean AB_O, AC_O, AD_O;
 		double dist;
@@ -591,32 +613,32 @@ public class CCD {
 			ccdSimplexSetSize(simplex, 3);
 		}
 
-		return doSimplex3(simplex, dir);
+		return doSimplex3(simplex, dir, ccd);
 	}
 
 	/** Returns true if simplex contains origin.
 	 *  This function also alteres simplex and dir according to further
 	 *  processing of GJK algorithm. */
-	private static int doSimplex(ccd_simplex_t simplex, ccd_vec3_t dir)
+	private static int doSimplex(ccd_simplex_t simplex, ccd_vec3_t dir, final ccd_t ccd)
 	{
 		if (ccdSimplexSize(simplex) == 2){
 			// simplex contains segment only one segment
-			return doSimplex2(simplex, dir);
+			return doSimplex2(simplex, dir, ccd);
 		}else if (ccdSimplexSize(simplex) == 3){
 			// simplex contains triangle
-			return doSimplex3(simplex, dir);
+			return doSimplex3(simplex, dir, ccd);
 		}else{ // ccdSimplexSize(simplex) == 4
 			// tetrahedron - this is the only shape which can encapsule origin
 			// so doSimplex4() also contains test on it
-			return doSimplex4(simplex, dir);
+			return doSimplex4(simplex, dir, ccd);
 		}
 	}
 
 	/** d = a x b x c */
 	private static void tripleCross(final ccd_vec3_t a, final ccd_vec3_t b,
-			final ccd_vec3_t c, ccd_vec3_t d)
+			final ccd_vec3_t c, ccd_vec3_t d, final ccd_t ccd)
 	{
-		ccd_vec3_t e = new ccd_vec3_t();
+		final ccd_vec3_t e = ccd.gjk_e;
 		ccdVec3Cross(e, a, b);
 		ccdVec3Cross(d, e, c);
 	}
@@ -36,8 +36,9 @@ public class CCDSimplex {
 //			ps[3] = new ccd_support_t();
 //		}
 		private final ccd_support_t ps0 = new ccd_support_t();
-		private final ccd_support_t ps1 = new ccd_support_t();
-		private final ccd_support_t ps2 = new ccd_support_t();
+		//TZ not final, ccdSimplexSwap12() swaps the references
+		private ccd_support_t ps1 = new ccd_support_t();
+		private ccd_support_t ps2 = new ccd_support_t();
 		private final ccd_support_t ps3 = new ccd_support_t();
 	};
 
@@ -149,11 +150,9 @@ public class CCDSimplex {
 	 */
 	static final void ccdSimplexSwap12(ccd_simplex_t s)
 	{
-		ccd_support_t supp = new ccd_support_t();
-
-		ccdSupportCopy(supp, s.ps1);
-		ccdSupportCopy(s.ps1, s.ps2);
-		ccdSupportCopy(s.ps2, supp);
+		ccd_support_t supp = s.ps1;
+		s.ps1 = s.ps2;
+		s.ps2 = supp;
 	}
 
 }
\ No newline at end of file
@@ -172,9 +172,8 @@ public class CCDVec3 {
 	 */
 	public static final double ccdVec3Dist2(final ccd_vec3_t a, final ccd_vec3_t b)
 	{
-	    ccd_vec3_t ab = new ccd_vec3_t();
-	    ccdVec3Sub2(ab, a, b);
-	    return ccdVec3Len2(ab);
+	    final double ab0 = a.v0 - b.v0, ab1 = a.v1 - b.v1, ab2 = a.v2 - b.v2;
+	    return ab0 * ab0 + ab1 * ab1 + ab2 * ab2;
 	}
 
 	public static final void ccdVec3Set(ccd_vec3_t v, double x, double y, double z)
@@ -337,6 +336,19 @@ public class CCDVec3 {
 	                                                  final ccd_vec3_t x0,
 	                                                  final ccd_vec3_t b,
 	                                                  ccd_vec3_t witness)
+	{
+	    return pointSegmentDist2(P, x0, b, witness, witness != null);
+	}
+
+	/**
+	 * TZ: __ccdVec3PointSegmentDist2() without temporary vectors. If
+	 * witnessDist is set, the distance is computed via the witness point
+	 * even if witness is null, as it is done for a given witness.
+	 */
+	private static double pointSegmentDist2(final ccd_vec3_t P,
+	                                        final ccd_vec3_t x0,
+	                                        final ccd_vec3_t b,
+	                                        ccd_vec3_t witness, boolean witnessDist)
 	{
 	    // The computation comes from solving equation of segment:
 	    //      S(t) = x0 + t.d
@@ -354,16 +366,15 @@ public class CCDVec3 {
 	    // Bonus of this method is witness point for free.
 
 	    double dist, t;
-	    ccd_vec3_t d = new ccd_vec3_t(), a = new ccd_vec3_t();
 
 	    // direction of segment
-	    ccdVec3Sub2(d, b, x0);
+	    final double d0 = b.v0 - x0.v0, d1 = b.v1 - x0.v1, d2 = b.v2 - x0.v2;
 
 	    // precompute vector from P to x0
-	    ccdVec3Sub2(a, x0, P);
+	    final double a0 = x0.v0 - P.v0, a1 = x0.v1 - P.v1, a2 = x0.v2 - P.v2;
 
-	    t  = -(1.) * ccdVec3Dot(a, d);
-	    t /= ccdVec3Len2(d);
+	    t  = -(1.) * (a0 * d0 + a1 * d1 + a2 * d2);
+	    t /= d0 * d0 + d1 * d1 + d2 * d2;
 
 	    if (t < CCD_ZERO || ccdIsZero(t)){
 	        dist = ccdVec3Dist2(x0, P);
@@ -373,18 +384,15 @@ public class CCDVec3 {
 	        dist = ccdVec3Dist2(b, P);
 	        if (witness!=null)
 	            ccdVec3Copy(witness, b);
+	    }else if (witnessDist){
+	        final double w0 = d0 * t + x0.v0, w1 = d1 * t + x0.v1, w2 = d2 * t + x0.v2;
+	        if (witness!=null)
+	            ccdVec3Set(witness, w0, w1, w2);
+	        final double wp0 = w0 - P.v0, wp1 = w1 - P.v1, wp2 = w2 - P.v2;
+	        dist = wp0 * wp0 + wp1 * wp1 + wp2 * wp2;
 	    }else{
-	        if (witness!=null){
-	            ccdVec3Copy(witness, d);
-	            ccdVec3Scale(witness, t);
-	            ccdVec3Add(witness, x0);
-	            dist = ccdVec3Dist2(witness, P);
-	        }else{
-	            // recycling variables
-	            ccdVec3Scale(d, t);
-	            ccdVec3Add(d, a);
-	            dist = ccdVec3Len2(d);
-	        }
+	        final double e0 = d0 * t + a0, e1 = d1 * t + a1, e2 = d2 * t + a2;
+	        dist = e0 * e0 + e1 * e1 + e2 * e2;
 	    }
 
 	    return dist;
@@ -421,21 +429,20 @@ public class CCDVec3 {
 	    // between 0 and 1 and t + s < 1, otherwise distance from segment is
 	    // computed.
 
-	    ccd_vec3_t d1 = new ccd_vec3_t(), d2 = new ccd_vec3_t(), a = new ccd_vec3_t();
 	    double u, v, w, p, q, r;
 	    double s, t, dist, dist2;
-	    ccd_vec3_t witness2 = new ccd_vec3_t();
+	    int nearest;
 
-	    ccdVec3Sub2(d1, B, x0);
-	    ccdVec3Sub2(d2, C, x0);
-	    ccdVec3Sub2(a, x0, P);
+	    final double d10 = B.v0 - x0.v0, d11 = B.v1 - x0.v1, d12 = B.v2 - x0.v2;
+	    final double d20 = C.v0 - x0.v0, d21 = C.v1 - x0.v1, d22 = C.v2 - x0.v2;
+	    final double a0 = x0.v0 - P.v0, a1 = x0.v1 - P.v1, a2 = x0.v2 - P.v2;
 
-	    u = ccdVec3Dot(a, a);
-	    v = ccdVec3Dot(d1, d1);
-	    w = ccdVec3Dot(d2, d2);
-	    p = ccdVec3Dot(a, d1);
-	    q = ccdVec3Dot(a, d2);
-	    r = ccdVec3Dot(d1, d2);
+	    u = a0 * a0 + a1 * a1 + a2 * a2;
+	    v = d10 * d10 + d11 * d11 + d12 * d12;
+	    w = d20 * d20 + d21 * d21 + d22 * d22;
+	    p = a0 * d10 + a1 * d11 + a2 * d12;
+	    q = a0 * d20 + a1 * d21 + a2 * d22;
+	    r = d10 * d20 + d11 * d21 + d12 * d22;
 
 	    s = (q * r - w * p) / (w * v - r * r);
 	    t = (-s * r - q) / w;
@@ -447,11 +454,9 @@ public class CCDVec3 {
 	            && (ccdEq(t + s, CCD_ONE) || t + s < CCD_ONE)){
 
 	        if (witness!=null){
-	            ccdVec3Scale(d1, s);
-	            ccdVec3Scale(d2, t);
-	            ccdVec3Copy(witness, x0);
-	            ccdVec3Add(witness, d1);
-	            ccdVec3Add(witness, d2);
+	            ccdVec3Set(witness, x0.v0 + d10 * s + d20 * t,
+	                    x0.v1 + d11 * s + d21 * t,
+	                    x0.v2 + d12 * s + d22 * t);
 
 	            dist = ccdVec3Dist2(witness, P);
 	        }else{
@@ -464,19 +469,28 @@ public class CCDVec3 {
 	        }
 	    }else{
 	        dist = __ccdVec3PointSegmentDist2(P, x0, B, witness);
+	        nearest = 0;
 
-	        dist2 = __ccdVec3PointSegmentDist2(P, x0, C, witness2);
+	        dist2 = pointSegmentDist2(P, x0, C, null, true);
 	        if (dist2 < dist){
 	            dist = dist2;
-	            if (witness!=null)
-	                ccdVec3Copy(witness, witness2);
+	            nearest = 1;
 	        }
 
-	        dist2 = __ccdVec3PointSegmentDist2(P, B, C, witness2);
+	        dist2 = pointSegmentDist2(P, B, C, null, true);
 	        if (dist2 < dist){
 	            dist = dist2;
-	            if (witness!=null)
-	                ccdVec3Copy(witness, witness2);
+	            nearest = 2;
+	        }
+
+	        // TZ: the witness of the nearest segment is computed again
+	        // instead of being copied from a temporary vector
+	        if (witness!=null){
+	            if (nearest == 1){
+	                pointSegmentDist2(P, x0, C, witness, true);
+	            }else if (nearest == 2){
+	                pointSegmentDist2(P, B, C, witness, true);
+	            }
 	        }
 	    }
 
@@ -25,6 +25,7 @@
 package org.ode4j.ode.internal.processmem;
 
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.ode4j.ode.internal.Common;
 import org.ode4j.ode.internal.DxBody;
@@ -32,7 +33,6 @@ import org.ode4j.ode.internal.DxWorld;
 import org.ode4j.ode.internal.cpp4j.java.Ref;
 import org.ode4j.ode.internal.joints.DxJoint;
 import org.ode4j.ode.internal.processmem.DxStepperProcessingCallContext.dstepper_fn_t;
-import org.ode4j.ode.internal.processmem.DxUtil.BlockPointer;
 import org.ode4j.ode.threading.ThreadingUtils;
 import org.ode4j.ode.threading.Threading_H.CallContext;
 import org.ode4j.ode.threading.Threading_H.DCallReleasee;
@@ -40,19 +40,32 @@ import org.ode4j.ode.threading.Threading_H.dThreadedCallFunction;
 
 public class DxIslandsProcessingCallContext implements CallContext {
 
-	public DxIslandsProcessingCallContext(DxWorld world, DxWorldProcessIslandsInfo islandsInfo, 
+	//TZ The context is kept by the world and initialized for every step
+	public DxIslandsProcessingCallContext() {
+		// nothing
+	}
+
+	public void Initialize(DxWorld world, DxWorldProcessIslandsInfo islandsInfo, 
 			double stepSize, dstepper_fn_t stepper) {
 		m_world = world;
 		m_islandsInfo = islandsInfo;
 		m_stepSize = stepSize;
 		m_stepper = stepper;
 		m_groupReleasee = null;
-		//m_islandToProcessStorage = 0;
+		m_islandToProcessStorage.set(0);
 		m_stepperAllowedThreads = 0;
+		m_steppingTimeMeasured = false;
+		m_steppingTimeTotal.set(0);
+		m_steppingTimeMaximum.set(0);
+		m_islandIterationCounts = null;
 	}
 
 	public void AssignGroupReleasee(DCallReleasee groupReleasee) { m_groupReleasee = groupReleasee; }
 	public void SetStepperAllowedThreads(int allowedThreadsLimit) { m_stepperAllowedThreads = allowedThreadsLimit; }
+	public void EnableSteppingTimeMeasurement() { m_steppingTimeMeasured = true; }
+	public long GetSteppingTimeTotal() { return m_steppingTimeTotal.get(); }
+	public long GetSteppingTimeMaximum() { return m_steppingTimeMaximum.get(); }
+	public void AssignIslandIterationCounts(int[] islandIterationCounts) { m_islandIterationCounts = islandIterationCounts; }
 
 //    static int ThreadedProcessGroup_Callback(void callContext, 
 //    		dcallindex_t callInstanceIndex, DCallReleasee callThisReleasee);
@@ -72,14 +85,18 @@ public class DxIslandsProcessingCallContext implements CallContext {
 //
 //    int ObtainNextIslandToBeProcessed(int islandsCount);
 
-    final DxWorld                   m_world;
-    final DxWorldProcessIslandsInfo m_islandsInfo;
-    final double                    m_stepSize;
-    final dstepper_fn_t             m_stepper;
+    DxWorld                   		m_world;
+    DxWorldProcessIslandsInfo 		m_islandsInfo;
+    double                    		m_stepSize;
+    dstepper_fn_t             		m_stepper;
     DCallReleasee                 m_groupReleasee;
     //volatile int                  m_islandToProcessStorage;
     final AtomicInteger             m_islandToProcessStorage = new AtomicInteger();
     int                        m_stepperAllowedThreads;
+    private boolean                 m_steppingTimeMeasured;
+    private final AtomicLong        m_steppingTimeTotal = new AtomicLong();
+    private final AtomicLong        m_steppingTimeMaximum = new AtomicLong();
+    int[]                           m_islandIterationCounts; // solver iterations per island, may be null
 
     
     public static dThreadedCallFunction ThreadedProcessGroup_Callback = new dThreadedCallFunction() {
@@ -122,12 +139,11 @@ public class DxIslandsProcessingCallContext implements CallContext {
         DxBody[] islandBodiesStart = islandsInfo.GetBodiesArray();
         DxJoint[] islandJointsStart = islandsInfo.GetJointsArray();
         
-        DxSingleIslandCallContext stepperCallContext = null;//TZ (DxSingleIslandCallContext)stepperArena.AllocateBlock(sizeof(dxSingleIslandCallContext));
+        DxSingleIslandCallContext stepperCallContext = stepperArena.AllocateBlock(DxSingleIslandCallContext.class);
         // Save area state after context allocation to be restored for the stepper
-        BlockPointer arenaState = stepperArena.SaveState();
+        int arenaState = stepperArena.SaveState();
         //new(stepperCallContext) DxSingleIslandCallContext(this, stepperArena, arenaState, islandBodiesStart, islandJointsStart);
-        //stepperCallContext = new DxSingleIslandCallContext(this, stepperArena, arenaState, islandBodiesStart, islandJointsStart);
-        stepperCallContext = new DxSingleIslandCallContext(this, stepperArena, arenaState, 
+        stepperCallContext.Initialize(this, stepperArena, arenaState, 
         		islandBodiesStart, 
     			islandJointsStart);
         
@@ -155,53 +171,40 @@ public class DxIslandsProcessingCallContext implements CallContext {
         boolean finalizeJob = false;
 
         final DxWorldProcessIslandsInfo islandsInfo = m_islandsInfo;
-        int[] islandSizes = islandsInfo.GetIslandSizes();
 
         final int islandsCount = islandsInfo.GetIslandsCount();
-        int islandToProcess = ObtainNextIslandToBeProcessed(islandsCount);
-
-        if (islandToProcess != islandsCount) {
-            // First time, the counts are zeros and on next passes, adding counts will skip island that has just been processed by stepper
-            DxBody[] islandBodiesStartA = stepperCallContext.GetSelectedIslandBodiesA();
-            int islandBodiesStartP = stepperCallContext.GetSelectedIslandBodiesEndP();
-            DxJoint[] islandJointsStartA = stepperCallContext.GetSelectedIslandJointsA();
-            int islandJointsStartP = stepperCallContext.GetSelectedIslandJointsEndP();
-            int islandIndex = stepperCallContext.m_islandIndex;
-
-            for (; ; ++islandIndex) {
-                int bcount = islandSizes[islandIndex * DxWorldProcessIslandsInfo.dxISE__MAX + DxWorldProcessIslandsInfo.dxISE_BODIES_COUNT];
-                int jcount = islandSizes[islandIndex * DxWorldProcessIslandsInfo.dxISE__MAX + DxWorldProcessIslandsInfo.dxISE_JOINTS_COUNT];
-
-                if (islandIndex == islandToProcess) {
-                    // Store selected island details
-                    stepperCallContext.AssignIslandSelection(
-                    		islandBodiesStartA, islandBodiesStartP, 
-                    		islandJointsStartA, islandJointsStartP, bcount, jcount);
+        int islandSlotToProcess = ObtainNextIslandToBeProcessed(islandsCount);
 
-                    // Store next island index to continue search from
-                    ++islandIndex;
-                    stepperCallContext.AssignIslandSearchProgress(islandIndex);
+        if (islandSlotToProcess != islandsCount) {
+            // TZ: Instead of walking the island sizes from the previously processed island, 
+            // the island is looked up in the schedule. This allows the islands to be 
+            // handed out in any order (e.g. biggest first).
+            int islandIndex = islandsInfo.GetScheduledIsland(islandSlotToProcess);
+            int bcount = islandsInfo.GetIslandBodiesCount(islandIndex);
+            int jcount = islandsInfo.GetIslandJointsCount(islandIndex);
 
-                    // Restore saved stepper memory arena position
-                    stepperCallContext.RestoreSavedMemArenaStateForStepper();
+            // Store selected island details
+            stepperCallContext.AssignIslandSelection(
+            		islandsInfo.GetBodiesArray(), islandsInfo.GetIslandBodiesStart(islandIndex), 
+            		islandsInfo.GetJointsArray(), islandsInfo.GetIslandJointsStart(islandIndex), 
+            		bcount, jcount);
 
-                    Ref<DCallReleasee> nextSearchReleasee = new Ref<DCallReleasee>();
+            // Store the selected island index
+            stepperCallContext.AssignIslandSearchProgress(islandIndex);
 
-                    // Summary fault flag may be omitted as any failures will automatically propagate to dependent releasee (i.e. to m_groupReleasee)
-                    m_world.threading().PostThreadedCallForUnawareReleasee(null, nextSearchReleasee, 1, m_groupReleasee, null, 
-                        DxIslandsProcessingCallContext.ThreadedProcessIslandSearch_Callback, stepperCallContext, 0, "World Islands Stepping Selection");
+            // Restore saved stepper memory arena position
+            stepperCallContext.RestoreSavedMemArenaStateForStepper();
 
-                    stepperCallContext.AssignStepperCallFinalReleasee(nextSearchReleasee.get());
+            Ref<DCallReleasee> nextSearchReleasee = stepperCallContext.m_nextSearchReleasee;
 
-                    m_world.threading().PostThreadedCall(null, null, 0, nextSearchReleasee.get(), null, 
-                        DxIslandsProcessingCallContext.ThreadedProcessIslandStepper_Callback, stepperCallContext, 0, "Island Stepping Job Start");
+            // Summary fault flag may be omitted as any failures will automatically propagate to dependent releasee (i.e. to m_groupReleasee)
+            m_world.threading().PostThreadedCallForUnawareReleasee(null, nextSearchReleasee, 1, m_groupReleasee, null, 
+                DxIslandsProcessingCallContext.ThreadedProcessIslandSearch_Callback, stepperCallContext, 0, "World Islands Stepping Selection");
 
-                    break;
-                }
+            stepperCallContext.AssignStepperCallFinalReleasee(nextSearchReleasee.get());
 
-                islandBodiesStartP += bcount;
-                islandJointsStartP += jcount;
-            }
+            m_world.threading().PostThreadedCall(null, null, 0, nextSearchReleasee.get(), null, 
+                DxIslandsProcessingCallContext.ThreadedProcessIslandStepper_Callback, stepperCallContext, 0, "Island Stepping Job Start");
         }
         else {
             finalizeJob = true;
@@ -232,7 +235,21 @@ public class DxIslandsProcessingCallContext implements CallContext {
 
     private void ThreadedProcessIslandStepper(DxSingleIslandCallContext stepperCallContext)
     {
+        if (!m_steppingTimeMeasured) {
+            m_stepper.run(stepperCallContext.m_stepperCallContext);
+            return;
+        }
+
+        long startTime = System.nanoTime();
         m_stepper.run(stepperCallContext.m_stepperCallContext);
+        long steppingTime = System.nanoTime() - startTime;
+
+        m_steppingTimeTotal.addAndGet(steppingTime);
+        long maximum;
+        while ((maximum = m_steppingTimeMaximum.get()) < steppingTime 
+                && !m_steppingTimeMaximum.compareAndSet(maximum, steppingTime)) {
+            // retry
+        }
     }
 
     int ObtainNextIslandToBeProcessed(int islandsCount)
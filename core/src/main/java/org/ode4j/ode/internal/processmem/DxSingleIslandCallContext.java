@@ -25,24 +25,32 @@
 package org.ode4j.ode.internal.processmem;
 
 import org.ode4j.ode.internal.DxBody;
+import org.ode4j.ode.internal.cpp4j.java.Ref;
 import org.ode4j.ode.internal.joints.DxJoint;
 import org.ode4j.ode.threading.Threading_H.CallContext;
 import org.ode4j.ode.threading.Threading_H.DCallReleasee;
 
 public class DxSingleIslandCallContext implements CallContext {
-	DxSingleIslandCallContext(DxIslandsProcessingCallContext islandsProcessingContext, 
-			DxWorldProcessMemArena stepperArena, DxUtil.BlockPointer arenaInitialState, 
+	//TZ The context is allocated from the stepper arena with AllocateBlock() 
+	//and initialized with Initialize(), it is reused in the following steps.
+	DxSingleIslandCallContext() {
+		m_stepperCallContext = new DxStepperProcessingCallContext(null, 0, 0, null, null, null);
+	}
+
+	void Initialize(DxIslandsProcessingCallContext islandsProcessingContext, 
+			DxWorldProcessMemArena stepperArena, int arenaInitialState, 
 			DxBody[] islandBodiesStart, 
 			DxJoint[] islandJointsStart) {
 		m_islandsProcessingContext = islandsProcessingContext;
 		m_islandIndex = 0; 
 		m_stepperArena = stepperArena;
 		m_arenaInitialState = arenaInitialState; 
-		m_stepperCallContext = new DxStepperProcessingCallContext(islandsProcessingContext.m_world, 
+		m_stepperCallContext.Initialize(islandsProcessingContext.m_world, 
 				islandsProcessingContext.m_stepSize, 
 				islandsProcessingContext.m_stepperAllowedThreads, 
 				stepperArena, 
 				islandBodiesStart, islandJointsStart);
+		m_nextSearchReleasee.set(null);
 	}
 
 	//TZ
@@ -53,6 +61,8 @@ public class DxSingleIslandCallContext implements CallContext {
 	void AssignIslandSearchProgress(int islandIndex)
 	{
 		m_islandIndex = islandIndex; 
+		m_stepperCallContext.AssignIslandStatistics(islandIndex, 
+				m_islandsProcessingContext.m_islandIterationCounts);
 	}
 
 	void AssignIslandSelection(DxBody[] islandBodiesStartA, int islandBodiesStartP, 
@@ -90,8 +100,9 @@ public class DxSingleIslandCallContext implements CallContext {
 	DxIslandsProcessingCallContext  m_islandsProcessingContext;
 	int                          	m_islandIndex;
 	DxWorldProcessMemArena          m_stepperArena;
-	DxUtil.BlockPointer            	m_arenaInitialState;
-	DxStepperProcessingCallContext  m_stepperCallContext;
+	int                            	m_arenaInitialState;
+	final DxStepperProcessingCallContext  m_stepperCallContext;
+	final Ref<DCallReleasee>        m_nextSearchReleasee = new Ref<DCallReleasee>();
 
 
 }
@@ -46,6 +46,15 @@ public final class DxStepperProcessingCallContext {
 			DxWorldProcessMemArena stepperArena, 
 			DxBody[] islandBodiesStart,
 			DxJoint[] islandJointsStart) {
+		Initialize(world, stepSize, stepperAllowedThreads, stepperArena, 
+				islandBodiesStart, islandJointsStart);
+	}
+
+	//TZ The context is reused for every island, see DxSingleIslandCallContext
+	void Initialize(DxWorld world, double stepSize, int stepperAllowedThreads, 
+			DxWorldProcessMemArena stepperArena, 
+			DxBody[] islandBodiesStart,
+			DxJoint[] islandJointsStart) {
 		m_world = world;
 		m_stepSize = stepSize;
 		m_stepperArena = stepperArena;
@@ -57,6 +66,8 @@ public final class DxStepperProcessingCallContext {
 		m_islandBodiesCount = 0;
 		m_islandJointsCount = 0;
 		m_stepperAllowedThreads = stepperAllowedThreads;
+		m_islandIndex = 0;
+		m_islandIterationCounts = null;
 	}
 
 	void AssignIslandSelection(DxBody[] islandBodiesStartA, int islandBodiesStartOfs,
@@ -79,6 +90,24 @@ public final class DxStepperProcessingCallContext {
 		m_finalReleasee = finalReleasee;
 	}
 
+	//TZ solver statistics of the selected island, islandIterationCounts is null 
+	//if they are not collected
+	void AssignIslandStatistics(int islandIndex, int[] islandIterationCounts)
+	{
+		m_islandIndex = islandIndex;
+		m_islandIterationCounts = islandIterationCounts;
+	}
+
+	/**
+	 * Records the number of solver iterations performed for the selected island.
+	 */
+	public void SetIslandIterationCount(int iterations)
+	{
+		if (m_islandIterationCounts != null) {
+			m_islandIterationCounts[m_islandIndex] = iterations;
+		}
+	}
+
 	private DxWorld            m_world;
 	private double             m_stepSize;
 	private DxWorldProcessMemArena  m_stepperArena;
@@ -90,6 +119,8 @@ public final class DxStepperProcessingCallContext {
 	private int                m_islandBodiesCount;
 	private int                m_islandJointsCount;
 	private int                m_stepperAllowedThreads;
+	private int                m_islandIndex;
+	private int[]              m_islandIterationCounts;
 	
 	public DxWorldProcessMemArena m_stepperArena() {
 		return m_stepperArena;
@@ -29,7 +29,6 @@ import java.util.concurrent.atomic.AtomicReference;
 import org.ode4j.ode.internal.Common;
 import org.ode4j.ode.internal.DxWorld;
 import org.ode4j.ode.internal.processmem.DxWorldProcessIslandsInfo.dmemestimate_fn_t;
-import org.ode4j.ode.threading.DxThreadingBase.DxMutexGroupLockHelper;
 import org.ode4j.ode.threading.ThreadingUtils;
 import org.ode4j.ode.threading.Threading_H.DCallWait;
 import org.ode4j.ode.threading.Threading_H.DMutexGroup;
@@ -226,15 +225,15 @@ public class DxWorldProcessContext {
 
             // Extraction must be locked so that other thread does not "steal" head arena,
             // use it and then reinsert back with a different "next"
-            DxMutexGroupLockHelper lhLockHelper = 
-            		new DxMutexGroupLockHelper(m_pswObjectsAllocWorld.threading(), 
-            				m_pmgStepperMutexGroup, 
-            				dxProcessContextMutex.dxPCM_STEPPER_ARENA_OBTAIN);
+            //TZ lock directly instead of allocating a dxMutexGroupLockHelper in every step
+            m_pswObjectsAllocWorld.threading().LockMutexGroupMutex(m_pmgStepperMutexGroup, 
+            		dxProcessContextMutex.dxPCM_STEPPER_ARENA_OBTAIN);
 
             DxWorldProcessMemArena pmaArenasHead = GetStepperArenasHead(); // Arenas head must be re-extracted after mutex has been locked
             boolean bExchangeResult = pmaArenasHead != null && TryExtractingStepperArenasHead(pmaArenasHead);
 
-            lhLockHelper.UnlockMutex();
+            m_pswObjectsAllocWorld.threading().UnlockMutexGroupMutex(m_pmgStepperMutexGroup, 
+            		dxProcessContextMutex.dxPCM_STEPPER_ARENA_OBTAIN);
 
             if (bExchangeResult)
             {
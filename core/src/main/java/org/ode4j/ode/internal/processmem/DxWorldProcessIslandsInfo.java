@@ -29,12 +29,12 @@ import org.ode4j.ode.internal.DxBody;
 import org.ode4j.ode.internal.DxWorld;
 import org.ode4j.ode.internal.joints.DxJoint;
 import org.ode4j.ode.internal.joints.DxJointNode;
-import org.ode4j.ode.internal.processmem.DxUtil.BlockPointer;
 import static org.ode4j.ode.internal.ErrorHandler.*;
 
 public class DxWorldProcessIslandsInfo {
 
-    void AssignInfo(int islandcount, int[] islandsizes, DxBody[] bodies, DxJoint[] joints)
+    void AssignInfo(int islandcount, int[] islandsizes, DxBody[] bodies, DxJoint[] joints, 
+            int[] islandstarts, int[] islandorder)
     {
         m_IslandCount = islandcount;
         m_pIslandSizes = islandsizes;
@@ -42,6 +42,8 @@ public class DxWorldProcessIslandsInfo {
         m_pBodiesP = 0;
         m_pJoints = joints;
         m_pJointsP = 0;
+        m_pIslandStarts = islandstarts;
+        m_pIslandOrder = islandorder;
     }
 
     public int GetIslandsCount() { return m_IslandCount; }
@@ -51,6 +53,77 @@ public class DxWorldProcessIslandsInfo {
     public DxJoint[] GetJointsArray() { return m_pJoints; }
     public int GetJointsArrayP() { return m_pJointsP; }
 
+    //TZ island schedule, allows to pick the n-th island to process without walking the sizes
+    public int GetScheduledIsland(int islandSlot) { return m_pIslandOrder[islandSlot]; }
+    public int GetIslandBodiesStart(int islandIndex) { 
+        return m_pIslandStarts[islandIndex * dxISE__MAX + dxISE_BODIES_COUNT]; 
+    }
+    public int GetIslandJointsStart(int islandIndex) { 
+        return m_pIslandStarts[islandIndex * dxISE__MAX + dxISE_JOINTS_COUNT]; 
+    }
+    public int GetIslandBodiesCount(int islandIndex) { 
+        return m_pIslandSizes[islandIndex * dxISE__MAX + dxISE_BODIES_COUNT]; 
+    }
+    public int GetIslandJointsCount(int islandIndex) { 
+        return m_pIslandSizes[islandIndex * dxISE__MAX + dxISE_JOINTS_COUNT]; 
+    }
+
+    /**
+     * Reorders the island schedule so that the biggest islands are handed out 
+     * to stepping threads first (longest processing time first). 
+     * Otherwise a single big island that happens to be found last keeps 
+     * one thread busy while all the others have already run out of work.
+     * Islands of equal size retain their original order.
+     */
+    public void SortScheduleBySizeDescending()
+    {
+        final int[] order = m_pIslandOrder;
+        final int count = m_IslandCount;
+
+        // In-place heap sort, the heap top is the island that is to be processed last 
+        for (int i = count / 2 - 1; i >= 0; --i) {
+            SiftScheduleDown(order, i, count);
+        }
+        for (int end = count - 1; end > 0; --end) {
+            int tmp = order[0];
+            order[0] = order[end];
+            order[end] = tmp;
+            SiftScheduleDown(order, 0, end);
+        }
+    }
+
+    private void SiftScheduleDown(int[] order, int root, int count)
+    {
+        while (true) {
+            int child = root * 2 + 1;
+            if (child >= count) {
+                break;
+            }
+            if (child + 1 < count && IsScheduledAfter(order[child + 1], order[child])) {
+                ++child;
+            }
+            if (!IsScheduledAfter(order[child], order[root])) {
+                break;
+            }
+            int tmp = order[root];
+            order[root] = order[child];
+            order[child] = tmp;
+            root = child;
+        }
+    }
+
+    private boolean IsScheduledAfter(int island1, int island2)
+    {
+        int cost1 = GetIslandProcessingCost(island1);
+        int cost2 = GetIslandProcessingCost(island2);
+        return cost1 < cost2 || (cost1 == cost2 && island1 > island2);
+    }
+
+    private int GetIslandProcessingCost(int islandIndex)
+    {
+        return GetIslandBodiesCount(islandIndex) + GetIslandJointsCount(islandIndex);
+    }
+
     //private:
     private int m_IslandCount;
     private int[] m_pIslandSizes;
@@ -58,6 +131,8 @@ public class DxWorldProcessIslandsInfo {
     private int m_pBodiesP;
     private DxJoint[] m_pJoints;
     private int m_pJointsP;
+    private int[] m_pIslandStarts;
+    private int[] m_pIslandOrder;
 
     // *******************************
     // from util.cpp (TZ)
@@ -96,7 +171,7 @@ public class DxWorldProcessIslandsInfo {
         DxBody[] body = memarena.AllocateArrayDxBody(nb);
         DxJoint[] joint = memarena.AllocateArrayDxJoint(nj);
 
-        BlockPointer stackstate = memarena.BEGIN_STATE_SAVE();
+        int stackstate = memarena.BEGIN_STATE_SAVE();
         {
             // allocate a stack of unvisited bodies in the island. the maximum size of
             // the stack can be the lesser of the number of bodies or joints, because
@@ -218,7 +293,21 @@ public class DxWorldProcessIslandsInfo {
 
         //int islandcount = ((size_t)(sizescurr - islandsizes) / sizeelements);
         int islandcount = sizescurrP / dxISE__MAX;
-        islandsinfo.AssignInfo(islandcount, islandsizes, body, joint);
+
+        // Island start offsets and the default (discovery order) schedule
+        int[] islandstarts = memarena.AllocateArrayInt(sizescurrP);
+        int[] islandorder = memarena.AllocateArrayInt(islandcount);
+        {
+            int bodystart = 0, jointstart = 0;
+            for (int i = 0; i < islandcount; ++i) {
+                islandstarts[i * dxISE__MAX + dxISE_BODIES_COUNT] = bodystart;
+                islandstarts[i * dxISE__MAX + dxISE_JOINTS_COUNT] = jointstart;
+                bodystart += islandsizes[i * dxISE__MAX + dxISE_BODIES_COUNT];
+                jointstart += islandsizes[i * dxISE__MAX + dxISE_JOINTS_COUNT];
+                islandorder[i] = i;
+            }
+        }
+        islandsinfo.AssignInfo(islandcount, islandsizes, body, joint, islandstarts, islandorder);
 
         return maxreq;
     }
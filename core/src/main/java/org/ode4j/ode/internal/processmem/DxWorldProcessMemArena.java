@@ -24,6 +24,10 @@
  *************************************************************************/
 package org.ode4j.ode.internal.processmem;
 
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.util.Arrays;
+
 import org.ode4j.ode.internal.Common;
 import org.ode4j.ode.internal.DxBody;
 import org.ode4j.ode.internal.joints.DxJoint;
@@ -56,45 +60,40 @@ public final class DxWorldProcessMemArena {
 
     boolean IsStructureValid() //const
     {
-        return m_pAllocBegin!=null 
-        && m_pAllocEnd!=null 
-        && m_pAllocBegin.toInt() <= m_pAllocEnd.toInt() 
-        && (m_pAllocCurrentOrNextArena == null || m_pAllocCurrentOrNextArena == m_pAllocBegin) 
-        && m_pArenaBegin!=null  
-        && m_pArenaBegin.toInt() <= m_pAllocBegin.toInt(); 
+        return m_pArenaBegin != null 
+        && m_pArenaMemMgr != null 
+        && m_nSlotTop >= 0 
+        && m_nSlotTop <= m_nSlotCount 
+        && m_nSlotCount <= m_aSlots.length; 
     }
 
     int GetMemorySize() //const
     {
-        return m_pAllocEnd.toInt() - m_pAllocBegin.toInt();
+        return m_nMemorySize;
     }
 
-    public BlockPointer SaveState() //const
+    //TZ The state is the number of slots in use, see AllocateSlot().
+    public int SaveState() //const
     {
-        return m_pAllocCurrentOrNextArena;
+        return m_nSlotTop;
     }
 
-    public void RestoreState(BlockPointer state)
+    public void RestoreState(int state)
     {
-    	m_pAllocCurrentOrNextArena = state;
+        Common.dIASSERT(state >= 0 && state <= m_nSlotCount);
+        m_nSlotTop = state;
     }
 
     void ResetState()
     {
-    	m_pAllocCurrentOrNextArena = m_pAllocBegin;
+        m_nSlotTop = 0;
     }
 
+    //TZ The remainder of the buffer can not be addressed in Java, the pointer 
+    //is only passed on (see Matrix.dLDLTRemove()).
     public BlockPointer PeekBufferRemainder() //const
     {
-        return m_pAllocCurrentOrNextArena;
-    }
-
-    BlockPointer AllocateBlock(int size)
-    {
-        BlockPointer block = m_pAllocCurrentOrNextArena;
-        m_pAllocCurrentOrNextArena = DxUtil.dOFFSET_EFFICIENTLY(block, size);
-        Common.dIASSERT(m_pAllocCurrentOrNextArena.toInt() <= m_pAllocEnd.toInt());
-        return block;
+        return m_pArenaBegin;
     }
 
     //          //template<typename ElementType>
@@ -122,18 +121,30 @@ public final class DxWorldProcessMemArena {
     //    }
 
     //dxWorldProcessMemArena *GetNextMemArena() const { return (dxWorldProcessMemArena *)m_pAllocCurrentOrNextArena; }
-    DxWorldProcessMemArena GetNextMemArena() { return m_pAllocCurrentOrNextArena.asDxWorldProcessMemArena(); }
+    DxWorldProcessMemArena GetNextMemArena() { return m_pNextMemArena; }
     //void SetNextMemArena(dxWorldProcessMemArena *pArenaInstance) { m_pAllocCurrentOrNextArena = pArenaInstance; }
-    void SetNextMemArena(DxWorldProcessMemArena pArenaInstance) { m_pAllocCurrentOrNextArena.setTo( pArenaInstance ); }
+    void SetNextMemArena(DxWorldProcessMemArena pArenaInstance) { m_pNextMemArena = pArenaInstance; }
 
     
-    private BlockPointer m_pAllocCurrentOrNextArena = new BlockPointer(this, 0);
-    private BlockPointer m_pAllocBegin = new BlockPointer(this, 0);
-    private BlockPointer m_pAllocEnd = new BlockPointer(this, 0);
+    //TZ In C++ the arena is a single block with a pointer to the next free 
+    //byte (m_pAllocCurrentOrNextArena). Java arrays can not be carved out of 
+    //a block, so the arena is a stack of slots instead, each holding an array 
+    //that is handed out again whenever the slot is reached after the state 
+    //has been reset or restored. m_nSlotTop takes the role of the pointer, 
+    //slots from m_nSlotTop to m_nSlotCount are free.
+    private Object[] m_aSlots = new Object[INITIAL_SLOT_COUNT];
+    private int[] m_anSlotLengths = new int[INITIAL_SLOT_COUNT];
+    private int m_nSlotTop;
+    private int m_nSlotCount;
+    private DxWorldProcessMemArena m_pNextMemArena;
+    private int m_nMemorySize;
+    private double m_fReserveFactor = 1.0;
     private BlockPointer m_pArenaBegin;
 
     DxWorldProcessMemoryManager m_pArenaMemMgr;
 
+    private static final int INITIAL_SLOT_COUNT = 32;
+
 
     //****************************************************************************
     // World processing context management
@@ -146,15 +157,9 @@ public final class DxWorldProcessMemArena {
         DxWorldProcessMemArena arena = oldarena;
         boolean allocsuccess = false;
 
-        int nOldArenaSize = 0; 
-        BlockPointer pOldArenaBuffer = null;
-
         do {
             int oldmemsize = oldarena!=null ? oldarena.GetMemorySize() : 0;
             if (oldarena == null || oldmemsize < memreq) {
-                nOldArenaSize = oldarena!=null ? MakeArenaSize(oldmemsize) : 0;
-                pOldArenaBuffer = oldarena!=null ? oldarena.m_pArenaBegin : null;
-
                 if (!IsArenaPossible(memreq)) {
                     break;
                 }
@@ -163,42 +168,31 @@ public final class DxWorldProcessMemArena {
                 int arenareq_with_reserve = AdjustArenaSizeForReserveRequirements(arenareq, rsrvfactor, rsrvminimum);
                 int memreq_with_reserve = memreq + (arenareq_with_reserve - arenareq);
 
-                if (oldarena != null) {
-                    oldarena.m_pArenaMemMgr.m_fnFree.run(pOldArenaBuffer, nOldArenaSize);
-                    oldarena = null;
-
-                    // Zero variables to avoid another freeing on exit
-                    pOldArenaBuffer = null;
-                    nOldArenaSize = 0;
+                //TZ An existing arena is grown in place rather than being freed, 
+                //its pooled arrays stay valid and are grown on demand.
+                if (oldarena == null) {
+                    // Allocate new arena
+                    BlockPointer pNewArenaBuffer = memmgr.m_fnAlloc.run(arenareq_with_reserve);
+                    if (pNewArenaBuffer == null) {
+                        break;
+                    }
+
+                    arena = DxUtil.dEFFICIENT_PTR(pNewArenaBuffer).asDxWorldProcessMemArena();
+                    arena.m_pArenaBegin = pNewArenaBuffer;
+                    arena.m_pNextMemArena = null;
+                    arena.m_pArenaMemMgr = memmgr;
                 }
 
-                // Allocate new arena
-                BlockPointer pNewArenaBuffer = memmgr.m_fnAlloc.run(arenareq_with_reserve);
-                if (pNewArenaBuffer == null) {
-                    break;
-                }
-
-                arena = DxUtil.dEFFICIENT_PTR(pNewArenaBuffer).asDxWorldProcessMemArena();
-
-                BlockPointer blockbegin = DxUtil.dEFFICIENT_PTR(arena, 1);
-                BlockPointer blockend = DxUtil.dOFFSET_EFFICIENTLY(blockbegin, memreq_with_reserve);
-
-                arena.m_pAllocBegin = blockbegin;
-                arena.m_pAllocEnd = blockend;
-                arena.m_pArenaBegin = pNewArenaBuffer;
-                arena.m_pAllocCurrentOrNextArena.setTo(null);
-                arena.m_pArenaMemMgr = memmgr;
+                arena.m_nMemorySize = memreq_with_reserve;
             }
 
+            // The reserve factor also applies to every array that grows later on
+            arena.m_fReserveFactor = rsrvfactor;
             allocsuccess = true;
         } 
         while (false);
 
         if (!allocsuccess) {
-            if (pOldArenaBuffer != null) {
-                Common.dIASSERT(oldarena != null);
-                oldarena.m_pArenaMemMgr.m_fnFree.run(pOldArenaBuffer, nOldArenaSize);
-            }
             arena = null;
         }
 
@@ -251,67 +245,217 @@ public final class DxWorldProcessMemArena {
     // Java methods to simulate the C++ manager (TZ)
     // ***********************************************
 
-    public final double[] AllocateArrayDReal(int size) {
-        return new double[size];
+    /**
+     * Takes the next slot. A free slot that already holds an array of the 
+     * given type and sufficient length is moved to the top and returned. 
+     * Otherwise null is returned and the caller must put a new array into 
+     * the slot with PutSlot().
+     * Free slots are searched so that a different order of allocations 
+     * (e.g. for an island without joints) doesn't throw the arrays away.
+     */
+    private Object AllocateSlot(Class<?> arrayType, int size)
+    {
+        final int top = m_nSlotTop;
+        int fit = -1, sameType = -1;
+        for (int i = top; i != m_nSlotCount; i++) {
+            if (m_aSlots[i].getClass() == arrayType) {
+                if (m_anSlotLengths[i] >= size) {
+                    fit = i;
+                    break;
+                }
+                if (sameType == -1) {
+                    sameType = i;
+                }
+            }
+        }
+
+        int slot = fit != -1 ? fit : sameType;
+        if (slot == -1) {
+            if (m_nSlotCount == m_aSlots.length) {
+                m_aSlots = Arrays.copyOf(m_aSlots, m_nSlotCount * 2);
+                m_anSlotLengths = Arrays.copyOf(m_anSlotLengths, m_nSlotCount * 2);
+            }
+            slot = m_nSlotCount++;
+            m_aSlots[slot] = null;
+        }
+        if (slot != top) {
+            Object tmp = m_aSlots[top];
+            m_aSlots[top] = m_aSlots[slot];
+            m_aSlots[slot] = tmp;
+            int tmpLength = m_anSlotLengths[top];
+            m_anSlotLengths[top] = m_anSlotLengths[slot];
+            m_anSlotLengths[slot] = tmpLength;
+        }
+        m_nSlotTop = top + 1;
+
+        return fit != -1 ? m_aSlots[top] : null;
     }
 
-    public final int[] AllocateArrayInt(int size) {
-        return new int[size];
+    private void PutSlot(Object array, int length)
+    {
+        m_aSlots[m_nSlotTop - 1] = array;
+        m_anSlotLengths[m_nSlotTop - 1] = length;
     }
 
     /**
-     * Reminder function. At the place where it is called, something needs to 
-     * be implemented with respect to ProcessMemManagement.
+     * @return the length of a new array for the given size, including the 
+     * reserve.
      */
-    public final void dummy() {
-        // TODO Auto-generated method stub
+    private int ReserveLength(int size)
+    {
+        double scaled = size * m_fReserveFactor;
+        int reserved = (scaled < DxUtil.SIZE_MAX) ? (int)scaled : DxUtil.SIZE_MAX;
+        return (reserved > size) ? reserved : size;
+    }
 
+    // The arrays are cleared up to the requested size, the steppers rely on 
+    // this just as if they were allocated with new. They must not rely on 
+    // the length of the array though, it may be larger.
+
+    public final double[] AllocateArrayDReal(int size) {
+        double[] array = (double[]) AllocateSlot(double[].class, size);
+        if (array != null) {
+            Arrays.fill(array, 0, size, 0);
+        } else {
+            array = new double[ReserveLength(size)];
+            PutSlot(array, array.length);
+        }
+        return array;
     }
 
-    public static final void dummyStatic() {
-        // TODO Auto-generated method stub
+    public final int[] AllocateArrayInt(int size) {
+        int[] array = (int[]) AllocateSlot(int[].class, size);
+        if (array != null) {
+            Arrays.fill(array, 0, size, 0);
+        } else {
+            array = new int[ReserveLength(size)];
+            PutSlot(array, array.length);
+        }
+        return array;
+    }
 
+    public final long[] AllocateArrayLong(int size) {
+        long[] array = (long[]) AllocateSlot(long[].class, size);
+        if (array != null) {
+            Arrays.fill(array, 0, size, 0);
+        } else {
+            array = new long[ReserveLength(size)];
+            PutSlot(array, array.length);
+        }
+        return array;
     }
 
-    public final void ShrinkArrayDJointWithInfo1(
-            Object[] jointiinfos,
-            int _nj, int njXXX) {
-        // TODO Auto-generated method stub
+    public final boolean[] AllocateArrayBool(int size) {
+        boolean[] array = (boolean[]) AllocateSlot(boolean[].class, size);
+        if (array != null) {
+            Arrays.fill(array, 0, size, false);
+        } else {
+            array = new boolean[ReserveLength(size)];
+            PutSlot(array, array.length);
+        }
+        return array;
+    }
 
+    public final double[][] AllocateArrayDRealDReal(int size) {
+        double[][] array = (double[][]) AllocateSlot(double[][].class, size);
+        if (array != null) {
+            Arrays.fill(array, 0, size, null);
+        } else {
+            array = new double[ReserveLength(size)][];
+            PutSlot(array, array.length);
+        }
+        return array;
     }
 
-    public final double[][] AllocateArrayDRealDReal(int n) {
-        return new double[n][];
+    public final DxBody[] AllocateArrayDxBody(int size) {
+        DxBody[] array = (DxBody[]) AllocateSlot(DxBody[].class, size);
+        if (array != null) {
+            Arrays.fill(array, 0, size, null);
+        } else {
+            array = new DxBody[ReserveLength(size)];
+            PutSlot(array, array.length);
+        }
+        return array;
     }
 
-    public final boolean[] AllocateArrayBool(int n) {
-        return new boolean[n];
+    public final DxJoint[] AllocateArrayDxJoint(int size) {
+        DxJoint[] array = (DxJoint[]) AllocateSlot(DxJoint[].class, size);
+        if (array != null) {
+            Arrays.fill(array, 0, size, null);
+        } else {
+            array = new DxJoint[ReserveLength(size)];
+            PutSlot(array, array.length);
+        }
+        return array;
     }
 
-    public BlockPointer BEGIN_STATE_SAVE() {
-        return SaveState();
+    /**
+     * Takes an instance of the given class from the next slot, this replaces 
+     * <tt>AllocateBlock(sizeof(Type))</tt> for the call contexts of the 
+     * steppers. A new instance is only created (with the no-argument 
+     * constructor) if no free slot holds one. 
+     * The instance is not cleared, it keeps the values from its last use and 
+     * the caller has to initialize all fields.
+     */
+    public final <T> T AllocateBlock(Class<T> type) {
+        T block = type.cast(AllocateSlot(type, 0));
+        if (block == null) {
+            block = NewInstance(type);
+            PutSlot(block, 0);
+        }
+        return block;
     }
 
-    public void END_STATE_SAVE(BlockPointer saveInner) {
-        RestoreState(saveInner);
+    /**
+     * Same as AllocateBlock(), but for an array of instances. 
+     * All elements of the array are created with the no-argument constructor 
+     * when the array is created, they are not cleared when the array is 
+     * handed out again.
+     */
+    public final <T> T[] AllocateArrayBlocks(Class<T[]> arrayType, int size) {
+        T[] array = arrayType.cast(AllocateSlot(arrayType, size));
+        if (array == null) {
+            @SuppressWarnings("unchecked")
+            Class<T> type = (Class<T>) arrayType.getComponentType();
+            int length = ReserveLength(size);
+            array = arrayType.cast(Array.newInstance(type, length));
+            for (int i = 0; i < length; i++) {
+                array[i] = NewInstance(type);
+            }
+            PutSlot(array, length);
+        }
+        return array;
     }
 
-    public static DxWorldProcessMemArena allocateTemporary(int memreq,
-            Object object, Object object2) {
-        return new DxWorldProcessMemArena();
+    private static <T> T NewInstance(Class<T> type) {
+        try {
+            Constructor<T> constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return constructor.newInstance();
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Can not allocate " + type.getName(), e);
+        }
     }
 
-    public static void freeTemporary(DxWorldProcessMemArena arena) {
-        // TODO Auto-generated method stub
+    public int BEGIN_STATE_SAVE() {
+        return SaveState();
+    }
 
+    public void END_STATE_SAVE(int saveInner) {
+        RestoreState(saveInner);
     }
 
-    public DxBody[] AllocateArrayDxBody(int nb) {
-        return new DxBody[nb];
+    public static DxWorldProcessMemArena allocateTemporary(int memreq,
+            DxWorldProcessMemoryManager memmgr, DxWorldProcessMemoryReserveInfo reserveinfo) {
+        DxWorldProcessMemArena arena = dxAllocateTemporaryWorldProcessMemArena(memreq, memmgr, reserveinfo);
+        if (arena != null) {
+            arena.ResetState();
+        }
+        return arena;
     }
 
-    public DxJoint[] AllocateArrayDxJoint(int nj) {
-        return new DxJoint[nj];
+    public static void freeTemporary(DxWorldProcessMemArena arena) {
+        dxFreeTemporaryWorldProcessMemArena(arena);
     }
 
 }
@@ -0,0 +1,139 @@
+/*************************************************************************
+ *                                                                       *
+ * Open Dynamics Engine, Copyright (C) 2001,2002 Russell L. Smith.       *
+ * All rights reserved.  Email: russ@q12.org   Web: www.q12.org          *
+ * Open Dynamics Engine 4J, Copyright (C) 2009-2014 Tilmann Zaeschke     *
+ * All rights reserved.  Email: ode4j@gmx.de   Web: www.ode4j.org        *
+ *                                                                       *
+ * This library is free software; you can redistribute it and/or         *
+ * modify it under the terms of EITHER:                                  *
+ *   (1) The GNU Lesser General Public License as published by the Free  *
+ *       Software Foundation; either version 2.1 of the License, or (at  *
+ *       your option) any later version. The text of the GNU Lesser      *
+ *       General Public License is included with this library in the     *
+ *       file LICENSE.TXT.                                               *
+ *   (2) The BSD-style license that is included with this library in     *
+ *       the file ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT.         *
+ *                                                                       *
+ * This library is distributed in the hope that it will be useful,       *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the files    *
+ * LICENSE.TXT, ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT for more   *
+ * details.                                                              *
+ *                                                                       *
+ *************************************************************************/
+package org.ode4j.ode.internal.processmem;
+
+import java.util.Arrays;
+
+import org.ode4j.ode.DWorld.DWorldStepReport;
+
+/**
+ * Islands processing report, updated by the world after every step.
+ */
+public class DxWorldStepReport implements DWorldStepReport {
+
+	private int m_islandCount;
+	private int[] m_islandSizes = new int[0];
+	private int[] m_islandIterations = new int[0];
+	private int m_threadCount;
+	private long m_elapsedTime;
+	private long m_steppingTime;
+	private long m_longestIslandSteppingTime;
+
+	/**
+	 * @return The zeroed array that the steppers fill with the iterations 
+	 * performed per island.
+	 */
+	public int[] PrepareIslandIterationCounts(int islandCount)
+	{
+		if (m_islandIterations.length < islandCount) {
+			m_islandIterations = new int[islandCount];
+		} else {
+			Arrays.fill(m_islandIterations, 0, islandCount, 0);
+		}
+		return m_islandIterations;
+	}
+
+	public void Assign(DxWorldProcessIslandsInfo islandsInfo, int threadCount, 
+			long elapsedTime, DxIslandsProcessingCallContext callContext)
+	{
+		final int islandCount = islandsInfo.GetIslandsCount();
+		final int sizesCount = islandCount * DxWorldProcessIslandsInfo.dxISE__MAX;
+		if (m_islandSizes.length < sizesCount) {
+			m_islandSizes = new int[sizesCount];
+		}
+		System.arraycopy(islandsInfo.GetIslandSizes(), 0, m_islandSizes, 0, sizesCount);
+		m_islandCount = islandCount;
+		m_threadCount = threadCount;
+		m_elapsedTime = elapsedTime;
+		m_steppingTime = callContext.GetSteppingTimeTotal();
+		m_longestIslandSteppingTime = callContext.GetSteppingTimeMaximum();
+	}
+
+	@Override
+	public int getIslandCount() {
+		return m_islandCount;
+	}
+
+	@Override
+	public int getIslandBodyCount(int island) {
+		return m_islandSizes[island * DxWorldProcessIslandsInfo.dxISE__MAX + DxWorldProcessIslandsInfo.dxISE_BODIES_COUNT];
+	}
+
+	@Override
+	public int getIslandJointCount(int island) {
+		return m_islandSizes[island * DxWorldProcessIslandsInfo.dxISE__MAX + DxWorldProcessIslandsInfo.dxISE_JOINTS_COUNT];
+	}
+
+	@Override
+	public int getIslandIterationCount(int island) {
+		return m_islandIterations[island];
+	}
+
+	@Override
+	public int getThreadCount() {
+		return m_threadCount;
+	}
+
+	@Override
+	public long getElapsedTime() {
+		return m_elapsedTime;
+	}
+
+	@Override
+	public long getSteppingTime() {
+		return m_steppingTime;
+	}
+
+	@Override
+	public long getLongestIslandSteppingTime() {
+		return m_longestIslandSteppingTime;
+	}
+
+	@Override
+	public double getThreadUtilization() {
+		if (m_elapsedTime <= 0 || m_threadCount == 0) {
+			return 0;
+		}
+		double utilization = (double)m_steppingTime / ((double)m_elapsedTime * m_threadCount);
+		return utilization < 1 ? utilization : 1;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("islands=").append(m_islandCount);
+		int iterations = 0;
+		for (int i = 0; i < m_islandCount; i++) {
+			iterations = Math.max(iterations, m_islandIterations[i]);
+		}
+		sb.append(" maxIterations=").append(iterations);
+		sb.append(" threads=").append(m_threadCount);
+		sb.append(" elapsed=").append(m_elapsedTime / 1000).append("us");
+		sb.append(" stepping=").append(m_steppingTime / 1000).append("us");
+		sb.append(" longest=").append(m_longestIslandSteppingTime / 1000).append("us");
+		sb.append(" utilization=").append((int)(getThreadUtilization() * 100)).append("%");
+		return sb.toString();
+	}
+}
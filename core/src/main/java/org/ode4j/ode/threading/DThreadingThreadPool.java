@@ -28,7 +28,6 @@ package org.ode4j.ode.threading;
 /**
  * 
  * @author Tilmann Zäschke
- * @Deprecated Not supported in ode4j.
  */
 public abstract class DThreadingThreadPool {
 
@@ -58,7 +57,10 @@ public abstract class DThreadingThreadPool {
 	 */
 	public static DThreadingThreadPool allocateThreadPool(int thread_count, 
 	  int stack_size, int ode_data_allocate_flags, Object[][] reserved/*=NULL*/) {
-		throw new UnsupportedOperationException();
+		//dIASSERT(reserved == NULL);
+		DThreadingThreadPool thread_pool = DxThreadingThreadPool.AllocateInstance(thread_count, 
+				stack_size, ode_data_allocate_flags);
+		return thread_pool;
 	}
 
 	/**
@@ -29,6 +29,7 @@ import static org.ode4j.ode.internal.Common.dAASSERT;
 import org.ode4j.ode.internal.cpp4j.java.Ref;
 import org.ode4j.ode.internal.cpp4j.java.RefInt;
 import org.ode4j.ode.internal.processmem.DxWorldProcessContext.dxProcessContextMutex;
+import org.ode4j.ode.threading.ThreadingImpl_H.dxMultiThreadedThreading;
 import org.ode4j.ode.threading.ThreadingImpl_H.dxSelfThreadedThreading;
 import org.ode4j.ode.threading.ThreadingTemplates.dIMutexGroup;
 import org.ode4j.ode.threading.ThreadingTemplates.dxICallWait;
@@ -57,7 +58,6 @@ import org.ode4j.ode.threading.Threading_H.dThreadingImplThreadCountRetrieveFunc
 /**
  * 
  * @author Tilmann Zaeschke
- * @Deprecated Not supported in ode4j.
  */
 public abstract class DxThreadingImplementation extends DThreadingImplementation {
 
@@ -125,24 +125,19 @@ public abstract class DxThreadingImplementation extends DThreadingImplementation
 
 	/*extern */public static DThreadingImplementation dThreadingAllocateMultiThreadedImplementation()
 	{
-		throw new UnsupportedOperationException();
-//		dxIThreadingImplementation threading = null;
-//		if (dBUILTIN_THREADING_IMPL_ENABLED) {
-//			//dxMultiThreadedThreading 
-//			threading = new dxMultiThreadedThreading();
-//
-//			if (threading != null && !threading.InitializeObject())
-//			{
-//				//delete threading;
-//				threading.DESTRUCTOR();
-//				threading = null;
-//			}
-//			//			} else {
-//			//				dxIThreadingImplementation threading = null;
-//		}//endif // #if dBUILTIN_THREADING_IMPL_ENABLED
-//
-//		dxIThreadingImplementation impl = threading;
-//		return (DThreadingImplementation)impl;
+		//#if dBUILTIN_THREADING_IMPL_ENABLED
+		dxMultiThreadedThreading threading = new dxMultiThreadedThreading();
+
+		if (threading != null && !threading.InitializeObject())
+		{
+			//delete threading;
+			threading.DESTRUCTOR();
+			threading = null;
+		}
+		//#endif // #if dBUILTIN_THREADING_IMPL_ENABLED
+
+		dxIThreadingImplementation impl = threading;
+		return impl;
 	}
 
 	@Override
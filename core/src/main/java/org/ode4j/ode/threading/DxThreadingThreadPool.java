@@ -0,0 +1,339 @@
+/*************************************************************************
+ *                                                                       *
+ * Open Dynamics Engine, Copyright (C) 2001,2002 Russell L. Smith.       *
+ * All rights reserved.  Email: russ@q12.org   Web: www.q12.org          *
+ * Open Dynamics Engine 4J, Copyright (C) 2009-2014 Tilmann Zaeschke     *
+ * All rights reserved.  Email: ode4j@gmx.de   Web: www.ode4j.org        *
+ *                                                                       *
+ * This library is free software; you can redistribute it and/or         *
+ * modify it under the terms of EITHER:                                  *
+ *   (1) The GNU Lesser General Public License as published by the Free  *
+ *       Software Foundation; either version 2.1 of the License, or (at  *
+ *       your option) any later version. The text of the GNU Lesser      *
+ *       General Public License is included with this library in the     *
+ *       file LICENSE.TXT.                                               *
+ *   (2) The BSD-style license that is included with this library in     *
+ *       the file ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT.         *
+ *                                                                       *
+ * This library is distributed in the hope that it will be useful,       *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the files    *
+ * LICENSE.TXT, ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT for more   *
+ * details.                                                              *
+ *                                                                       *
+ *************************************************************************/
+package org.ode4j.ode.threading;
+
+import static org.ode4j.ode.internal.Common.dIASSERT;
+
+import org.ode4j.ode.internal.OdeInit;
+import org.ode4j.ode.threading.DThreadingImplementation.DThreadReadyToServeCallback;
+import org.ode4j.ode.threading.ThreadingJava.dxEventWakeup;
+import org.ode4j.ode.threading.Threading_H.CallContext;
+
+/**
+ * Built-in thread pool that serves multi-threaded threading implementations.
+ * 
+ * This is the Java version of ODE's threading_pool_posix.cpp/threading_pool_win.cpp. 
+ * Each pool thread runs a command loop and, when commanded, sticks to 
+ * job processing of a multi-threaded implementation until its processing 
+ * is shut down.
+ * 
+ * @see DThreadingThreadPool#allocateThreadPool(int, int, int, Object[][])
+ */
+class DxThreadingThreadPool extends DThreadingThreadPool {
+
+	private static final String THREAD_NAME_PREFIX = "ode4j-pool-";
+
+	/************************************************************************/
+	/* dxThreadPoolThreadInfo class definition                              */
+	/************************************************************************/
+
+	private static class dxThreadPoolThreadInfo implements Runnable
+	{
+		private enum dxTHREAD_COMMAND
+		{
+			dxTHREAD_COMMAND_EXIT,
+			dxTHREAD_COMMAND_NOOP,
+			dxTHREAD_COMMAND_SERVE_IMPLEMENTATION,
+		};
+
+		//public:
+		dxThreadPoolThreadInfo() {
+			m_thread_handle = null;
+			m_ode_data_allocate_flags = 0;
+			m_command_code = dxTHREAD_COMMAND.dxTHREAD_COMMAND_NOOP;
+			m_command_param = null;
+			m_init_succeeded = false;
+		}
+
+		boolean Initialize(int thread_index, int stack_size, int ode_data_allocate_flags)
+		{
+			m_ode_data_allocate_flags = ode_data_allocate_flags;
+
+			Thread thread_handle = new Thread(null, this, THREAD_NAME_PREFIX + thread_index, stack_size);
+			// Do not keep the JVM alive if the pool has not been freed
+			thread_handle.setDaemon(true);
+			m_thread_handle = thread_handle;
+			thread_handle.start();
+
+			// Wait for the thread to report its initialization status
+			m_acknowledgement_event.WaitWakeup(null);
+
+			boolean init_result = m_init_succeeded;
+			if (!init_result)
+			{
+				WaitAndCloseThreadHandle();
+			}
+			return init_result;
+		}
+
+		void Finalize()
+		{
+			if (m_thread_handle != null)
+			{
+				ExecuteThreadCommand(dxTHREAD_COMMAND.dxTHREAD_COMMAND_EXIT, null, true);
+
+				WaitAndCloseThreadHandle();
+			}
+		}
+
+		void ExecuteThreadCommand(dxTHREAD_COMMAND command, Object param, boolean wait_response)
+		{
+			m_command_code = command;
+			m_command_param = param;
+
+			// The wakeup lock publishes the command fields to the pool thread
+			m_command_event.WakeupAThread();
+
+			if (wait_response)
+			{
+				m_acknowledgement_event.WaitWakeup(null);
+			}
+		}
+
+		//private:
+		private void WaitAndCloseThreadHandle()
+		{
+			Thread thread_handle = m_thread_handle;
+			m_thread_handle = null;
+
+			boolean interrupted = false;
+			while (true)
+			{
+				try {
+					thread_handle.join();
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if (interrupted)
+			{
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		@Override
+		public void run()
+		{
+			// ThreadProcedure()
+			boolean init_result = OdeInit.dAllocateODEDataForThread(m_ode_data_allocate_flags);
+			ReportInitStatus(init_result);
+
+			if (init_result)
+			{
+				RunCommandHandlingLoop();
+			}
+		}
+
+		private void ReportInitStatus(boolean init_result)
+		{
+			m_init_succeeded = init_result;
+			m_acknowledgement_event.WakeupAThread();
+		}
+
+		private void RunCommandHandlingLoop()
+		{
+			boolean exit_requested = false;
+
+			while (!exit_requested)
+			{
+				m_command_event.WaitWakeup(null);
+
+				final dxTHREAD_COMMAND command_code = m_command_code;
+				switch (command_code)
+				{
+					case dxTHREAD_COMMAND_EXIT:
+					{
+						m_acknowledgement_event.WakeupAThread();
+
+						exit_requested = true;
+						break;
+					}
+
+					case dxTHREAD_COMMAND_NOOP:
+					{
+						m_acknowledgement_event.WakeupAThread();
+
+						// Do nothing
+						break;
+					}
+
+					case dxTHREAD_COMMAND_SERVE_IMPLEMENTATION:
+					{
+						final dxServeImplementationParams serve_params = (dxServeImplementationParams)m_command_param;
+						final DThreadingImplementation impl = serve_params.m_impl;
+						// Wake up caller as soon as possible. Parameters are already copied.
+						m_acknowledgement_event.WakeupAThread();
+
+						impl.dExternalThreadingServeMultiThreadedImplementation(
+								ProcessThreadServeReadiness, serve_params);
+						break;
+					}
+
+					default:
+					{
+						dIASSERT(false); // Command code must be valid
+						break;
+					}
+				}
+			}
+		}
+
+		private static final DThreadReadyToServeCallback ProcessThreadServeReadiness = 
+				new DThreadReadyToServeCallback() {
+			@Override
+			public void run(CallContext callback_context) {
+				dxServeImplementationParams serve_params = (dxServeImplementationParams)callback_context;
+				serve_params.m_ready_wait_event.WakeupAThread();
+			}
+		};
+
+		//private:
+		private Thread                   m_thread_handle;
+		private int                      m_ode_data_allocate_flags;
+		private dxTHREAD_COMMAND         m_command_code;
+		private Object                   m_command_param;
+		private volatile boolean         m_init_succeeded;
+		private final dxEventWakeup      m_command_event = new dxEventWakeup();
+		private final dxEventWakeup      m_acknowledgement_event = new dxEventWakeup();
+	};
+
+	private static class dxServeImplementationParams implements CallContext
+	{
+		dxServeImplementationParams(DThreadingImplementation impl, dxEventWakeup ready_wait_event) {
+			m_impl = impl;
+			m_ready_wait_event = ready_wait_event;
+		}
+
+		final DThreadingImplementation m_impl;
+		final dxEventWakeup            m_ready_wait_event;
+	};
+
+
+	/************************************************************************/
+	/* dxThreadingThreadPool class implementation                           */
+	/************************************************************************/
+
+	//public:
+	private DxThreadingThreadPool() {
+		m_thread_infos = null;
+	}
+
+	static DxThreadingThreadPool AllocateInstance(int thread_count, int stack_size, 
+			int ode_data_allocate_flags)
+	{
+		dIASSERT(thread_count > 0);
+
+		DxThreadingThreadPool thread_pool = new DxThreadingThreadPool();
+
+		if (!thread_pool.InitializeThreads(thread_count, stack_size, ode_data_allocate_flags))
+		{
+			thread_pool = null;
+		}
+
+		return thread_pool;
+	}
+
+	private boolean InitializeThreads(int thread_count, int stack_size, int ode_data_allocate_flags)
+	{
+		dxThreadPoolThreadInfo[] thread_infos = new dxThreadPoolThreadInfo[thread_count];
+
+		int thread_index = 0;
+		for (; thread_index != thread_count; ++thread_index)
+		{
+			dxThreadPoolThreadInfo thread_info = new dxThreadPoolThreadInfo();
+
+			if (!thread_info.Initialize(thread_index, stack_size, ode_data_allocate_flags))
+			{
+				break;
+			}
+
+			thread_infos[thread_index] = thread_info;
+		}
+
+		boolean init_result = thread_index == thread_count;
+
+		if (init_result)
+		{
+			m_thread_infos = thread_infos;
+		}
+		else
+		{
+			FinalizeThreads(thread_infos, thread_index);
+		}
+
+		return init_result;
+	}
+
+	private static void FinalizeThreads(dxThreadPoolThreadInfo[] thread_infos, int thread_count)
+	{
+		for (int thread_index = 0; thread_index != thread_count; ++thread_index)
+		{
+			thread_infos[thread_index].Finalize();
+		}
+	}
+
+	@Override
+	public void serveMultiThreadedImplementation(DThreadingImplementation impl)
+	{
+		dIASSERT(m_thread_infos != null);
+
+		dxServeImplementationParams params = new dxServeImplementationParams(impl, m_ready_wait_event);
+
+		for (dxThreadPoolThreadInfo current_info: m_thread_infos)
+		{
+			current_info.ExecuteThreadCommand(
+					dxThreadPoolThreadInfo.dxTHREAD_COMMAND.dxTHREAD_COMMAND_SERVE_IMPLEMENTATION, params, true);
+
+			params.m_ready_wait_event.WaitWakeup(null);
+		}
+	}
+
+	@Override
+	public void waitIdleState()
+	{
+		dIASSERT(m_thread_infos != null);
+
+		for (dxThreadPoolThreadInfo current_info: m_thread_infos)
+		{
+			current_info.ExecuteThreadCommand(
+					dxThreadPoolThreadInfo.dxTHREAD_COMMAND.dxTHREAD_COMMAND_NOOP, null, true);
+		}
+	}
+
+	@Override
+	public void freeThreadPool()
+	{
+		if (m_thread_infos != null)
+		{
+			FinalizeThreads(m_thread_infos, m_thread_infos.length);
+			m_thread_infos = null;
+		}
+	}
+
+	//private:
+	private dxThreadPoolThreadInfo[]    m_thread_infos;
+	private final dxEventWakeup         m_ready_wait_event = new dxEventWakeup();
+}
@@ -200,6 +200,41 @@ public class ThreadingAtomics {
 //
 //	#endif // #if dBUILTIN_THREADING_IMPL_ENABLED
 
+	/************************************************************************/
+	/* dxOUAtomicsProvider class implementation                             */
+	/************************************************************************/
+
+	//TZ Java version of the OU based provider, backed by java.util.concurrent.atomic.
+	static class dxOUAtomicsProvider
+	{
+	    public static void IncrementTargetNoRet(AtomicInteger value_accumulator_ptr)
+	    {
+	    	value_accumulator_ptr.incrementAndGet();
+	    }
+
+	    public static void DecrementTargetNoRet(AtomicInteger value_accumulator_ptr)
+	    {
+	    	value_accumulator_ptr.decrementAndGet();
+	    }
+
+	    public static int QueryTargetValue(AtomicInteger value_storage_ptr)
+	    {
+	        // Volatile read provides the memory barrier
+	        return value_storage_ptr.get();
+	    }
+
+	    public static <T> boolean CompareExchangeTargetPtr(AtomicReference<T> pointer_storage_ptr, 
+		        T comparand_value, T new_value)
+	    {
+	        return pointer_storage_ptr.compareAndSet(comparand_value, new_value);
+	    }
+
+	    public static final int AddValueToTarget1(AtomicInteger value_accumulator_ptr, int value_addend)
+	    {
+	    	return value_accumulator_ptr.getAndAdd(value_addend);
+	    }
+	};
+
 
 //	#endif // #ifndef _ODE_THREADING_ATOMICS_PROVS_H_
 
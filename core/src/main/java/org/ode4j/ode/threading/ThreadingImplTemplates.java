@@ -30,9 +30,10 @@ package org.ode4j.ode.threading;
 
 import static org.ode4j.ode.internal.Common.dAASSERT;
 import static org.ode4j.ode.internal.Common.dIASSERT;
-import static org.ode4j.ode.threading.ThreadingAtomics.dxFakeAtomicsProvider.CompareExchangeTargetPtr;
+import static org.ode4j.ode.threading.ThreadingAtomics.dxOUAtomicsProvider.CompareExchangeTargetPtr;
 import static org.ode4j.ode.threading.ThreadingImpl_H.THREAD_FACTORY;
 
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.ode4j.ode.internal.DBase;
@@ -41,6 +42,8 @@ import org.ode4j.ode.internal.cpp4j.java.RefBoolean;
 import org.ode4j.ode.internal.cpp4j.java.RefInt;
 import org.ode4j.ode.internal.processmem.DxWorldProcessContext.dxProcessContextMutex;
 import org.ode4j.ode.threading.DThreadingImplementation.DThreadReadyToServeCallback;
+import org.ode4j.ode.threading.ThreadingAtomics.dxOUAtomicsProvider;
+import org.ode4j.ode.threading.ThreadingImpl_H.ThreadFactory;
 import org.ode4j.ode.threading.ThreadingTemplates.dxtemplateJobListContainer.dWaitSignallingFunction;
 import org.ode4j.ode.threading.Threading_H.CallContext;
 import org.ode4j.ode.threading.Threading_H.DCallReleasee;
@@ -56,7 +59,10 @@ import org.ode4j.ode.threading.Threading_H.dThreadedCallFunction;
 class ThreadingTemplates { 
 
 	//TZ
-	public static class dxCallWait extends dxICallWait {} //<tThreadWakeup> {};
+	public static class dxCallWait extends dxICallWait { //<tThreadWakeup> {};
+		public dxCallWait() { super(); }
+		public dxCallWait(tThreadWakeup wait_wakeup) { super(wait_wakeup); }
+	}
 
 	//TZ
 	public static interface tThreadMutex {
@@ -71,6 +77,7 @@ class ThreadingTemplates {
 	public static interface tThreadWakeup {
 		boolean InitializeObject();
 		void ResetWakeup();
+		void WakeupAThread();
 		void WakeupAllThreads();
 		boolean WaitWakeup(DThreadedWaitTime timeout_time_ptr);
 	}
@@ -95,12 +102,13 @@ class ThreadingTemplates {
 				int max_simultaneous_calls_estimate);
 		dxThreadedJobInfo AllocateJobInfoFromPool();
 		void QueueJobForProcessing(dxThreadedJobInfo new_job);
-		void AlterJobProcessingDependencies(dxThreadedJobInfo job_instance,
-				int dependencies_count_change, RefBoolean job_has_become_ready);
+		boolean AlterJobProcessingDependencies(dxThreadedJobInfo job_instance,
+				int dependencies_count_change);
 		dxThreadedJobInfo ReleaseAJobAndPickNextPendingOne(
 				dxThreadedJobInfo current_job, boolean job_result,
 				dWaitSignallingFunction abstractSignalTheWait,
 				RefBoolean dummy_last_job_flag);
+		boolean IsJobListReadyForShutdown();
 	}
 
 	//TZ
@@ -172,6 +180,13 @@ class ThreadingTemplates {
 		// /*static */dxtemplateMutexGroup<tThreadMutex> *dxtemplateMutexGroup<tThreadMutex>::
 		public static dxtemplateMutexGroup AllocateInstance(
 				dxProcessContextMutex /*dmutexindex_t*/ Mutex_count)
+		{
+			return AllocateInstance(Mutex_count, THREAD_FACTORY);
+		}
+
+		//TZ the factory replaces the tThreadMutex template parameter
+		public static dxtemplateMutexGroup AllocateInstance(
+				dxProcessContextMutex /*dmutexindex_t*/ Mutex_count, ThreadFactory thread_factory)
 		{
 			dAASSERT(Mutex_count != null);
 
@@ -184,7 +199,7 @@ class ThreadingTemplates {
 			{
 				mutex_group./*m_un.*/m_mutex_count = Mutex_count;
 
-				if (!mutex_group.InitializeMutexArray(Mutex_count))
+				if (!mutex_group.InitializeMutexArray(Mutex_count, thread_factory))
 				{
 					//dFree((void *)mutex_group, size_requited);
 					mutex_group = null;
@@ -211,7 +226,8 @@ class ThreadingTemplates {
 		}
 
 		//template<class tThreadMutex>
-		private boolean InitializeMutexArray(dxProcessContextMutex /*dmutexindex_t*/ Mutex_count)
+		private boolean InitializeMutexArray(dxProcessContextMutex /*dmutexindex_t*/ Mutex_count, 
+				ThreadFactory thread_factory)
 		{
 			boolean any_fault = false;
 
@@ -231,7 +247,7 @@ class ThreadingTemplates {
 			//				}
 			//			}
 			for (int i = 0; i < m_Mutex_array.length; ++i) {
-				tThreadMutex mutex_storage = THREAD_FACTORY.createThreadMutex();//new tThreadMutex();
+				tThreadMutex mutex_storage = thread_factory.createThreadMutex();//new tThreadMutex();
 				m_Mutex_array[i] = mutex_storage;
 				if (!mutex_storage.InitializeObject())
 				{
@@ -277,7 +293,11 @@ class ThreadingTemplates {
 		//public:
 		public dxtemplateCallWait() {
 			//TZ
-			m_wait_wakeup = THREAD_FACTORY.createThreadWakeup();
+			this(THREAD_FACTORY.createThreadWakeup());
+		}
+		//TZ the wakeup replaces the tThreadWakeup template parameter
+		public dxtemplateCallWait(tThreadWakeup wait_wakeup) {
+			m_wait_wakeup = wait_wakeup;
 		}
 		//~dxtemplateCallWait() { DoFinalizeObject(); }
 		@Override
@@ -294,12 +314,30 @@ class ThreadingTemplates {
 		//TZ see top of class 
 
 		//public:
-		public void ResetTheWait() { m_wait_wakeup.ResetWakeup(); }
+		public void ResetTheWait() { m_wait_wakeup.ResetWakeup(); m_call_exception = null; }
 		public void SignalTheWait() { m_wait_wakeup.WakeupAllThreads(); }
 		public boolean PerformWaiting(final DThreadedWaitTime timeout_time_ptr) { 
 			return m_wait_wakeup.WaitWakeup(timeout_time_ptr); 
 		}
 
+		//TZ Java only: an exception thrown by a call on a pool thread is handed over to 
+		// the waiting thread instead of terminating the pool thread.
+		void AssignCallException(Throwable call_exception) {
+			if (m_call_exception == null) {
+				m_call_exception = call_exception;
+			}
+		}
+		void RethrowCallException() {
+			Throwable call_exception = m_call_exception;
+			if (call_exception != null) {
+				m_call_exception = null;
+				if (call_exception instanceof Error) {
+					throw (Error)call_exception;
+				}
+				throw (RuntimeException)call_exception;
+			}
+		}
+
 		//public:
 		public static dWaitSignallingFunction AbstractSignalTheWait = new dWaitSignallingFunction() {
 			@Override
@@ -309,11 +347,11 @@ class ThreadingTemplates {
 		};
 
 		//private:
-		private tThreadWakeup           m_wait_wakeup;
+		private final tThreadWakeup           m_wait_wakeup;
+		private volatile Throwable            m_call_exception;
 	};
 
 
-	//TODO TZ implement for multi-threading
 	//#if dBUILTIN_THREADING_IMPL_ENABLED
 	//
 	//template<class tThreadWakeup, class tAtomicsProvider, const bool tatomic_test_required>
@@ -353,6 +391,46 @@ class ThreadingTemplates {
 	//
 	//#endif // #if dBUILTIN_THREADING_IMPL_ENABLED
 
+	//template<class tThreadWakeup, class tAtomicsProvider, const bool tatomic_test_required>
+	//TZ tAtomicsProvider is always dxOUAtomicsProvider, the atomic test is always performed
+	static class dxtemplateThreadedLull implements tThreadLull
+	{
+		//public:
+		public dxtemplateThreadedLull(tThreadWakeup alarm_wakeup) {
+			m_alarm_wakeup = alarm_wakeup;
+		}
+		//~dxtemplateThreadedLull() { dIASSERT(m_registrant_count == 0); DoFinalizeObject(); }
+		public void DESTRUCTOR() { dIASSERT(m_registrant_count.get() == 0); DoFinalizeObject(); }
+
+		@Override
+		public boolean InitializeObject() { return DoInitializeObject(); }
+
+		//private:
+		private boolean DoInitializeObject() { return m_alarm_wakeup.InitializeObject(); }
+		private void DoFinalizeObject() { /* Do nothing */ }
+
+		//public:
+		@Override
+		public void RegisterToLull() { dxOUAtomicsProvider.IncrementTargetNoRet(m_registrant_count); }
+		@Override
+		public void WaitForLullAlarm() { dIASSERT(m_registrant_count.get() != 0); m_alarm_wakeup.WaitWakeup(null); }
+		@Override
+		public void UnregisterFromLull() { dxOUAtomicsProvider.DecrementTargetNoRet(m_registrant_count); }
+
+		@Override
+		public void SignalLullAlarmIfAnyRegistrants()
+		{
+			if (dxOUAtomicsProvider.QueryTargetValue(m_registrant_count) != 0)
+			{
+				m_alarm_wakeup.WakeupAThread();
+			}
+		}
+
+		//private:
+		private final AtomicInteger     m_registrant_count = new AtomicInteger(0);
+		private final tThreadWakeup     m_alarm_wakeup;
+	};
+
 
 	static class dxThreadedJobInfo extends
 	DBase implements DCallReleasee
@@ -378,6 +456,7 @@ class ThreadingTemplates {
 			m_fault_accumulator_ptr = fault_accumulator_ptr;
 
 			m_call_fault = 0;
+			m_call_exception = null;
 			m_call_function = call_function;
 			m_call_context = call_context;
 			m_call_index = call_index;
@@ -390,14 +469,20 @@ class ThreadingTemplates {
 		}
 
 		dxThreadedJobInfo       m_next_job;
-		Ref<dxThreadedJobInfo>   m_prev_job_next_ptr;
+		//Ref<dxThreadedJobInfo>   m_prev_job_next_ptr;
+		//TZ Java has no pointer to the previous job's m_next_job, the list is doubly linked instead.
+		// m_job_queued replaces the 'm_prev_job_next_ptr != NULL' indicator. 
+		dxThreadedJobInfo       m_prev_job;
+		volatile boolean        m_job_queued;
 
-		int/*ddependencycount_t*/ m_dependencies_count;
+		volatile int/*ddependencycount_t*/ m_dependencies_count;
 		dxThreadedJobInfo       m_dependent_job;
 		dxCallWait              m_call_wait;
 		RefInt                  m_fault_accumulator_ptr = new RefInt();
 
-		int                     m_call_fault;
+		volatile int            m_call_fault;
+		//TZ Java only: exception thrown by the call on a pool thread, see dxtemplateCallWait
+		volatile Throwable      m_call_exception;
 		dThreadedCallFunction   m_call_function;
 		CallContext             m_call_context;
 		int /*dcallindex_t*/            m_call_index;
@@ -440,18 +525,23 @@ class ThreadingTemplates {
 	{
 		//public:
 		public dxtemplateJobListContainer() {
-			m_job_list.set(null);//(NULL),
+			this(THREAD_FACTORY);
+		}
+
+		//TZ the factory replaces the tThreadLull and tThreadMutex template parameters
+		public dxtemplateJobListContainer(ThreadFactory thread_factory) {
+			m_job_list = null;//(NULL),
 			//m_info_pool = new ((atomicptr_t)NULL);
-			m_pool_access_lock = THREAD_FACTORY.createThreadMutex();//();
-			m_list_access_lock = THREAD_FACTORY.createThreadMutex();//();
-			m_info_wait_lull = THREAD_FACTORY.createThreadLull();//();
+			m_pool_access_lock = thread_factory.createThreadMutex();//();
+			m_list_access_lock = thread_factory.createThreadMutex();//();
+			m_info_wait_lull = thread_factory.createThreadLull();//();
 			m_info_count_known_to_be_preallocated = 0;//(0)
 		}
 
 		//~dxtemplateJobListContainer()
 		public void DESTRUCTOR()
 		{
-			dIASSERT(m_job_list.get() == null); // Would not it be nice to wait for jobs to complete before deleting the list?
+			dIASSERT(m_job_list == null); // Would not it be nice to wait for jobs to complete before deleting the list?
 
 			FreeJobInfoPoolInfos();
 			DoFinalizeObject();
@@ -513,10 +603,11 @@ class ThreadingTemplates {
 		//private boolean DoPreallocateJobInfos(int /*ddependencycount_t*/ required_info_count);
 
 		//public:
-		public boolean IsJobListReadyForShutdown() { return m_job_list.get() == null; }
+		@Override
+		public boolean IsJobListReadyForShutdown() { return m_job_list == null; }
 
 		//private:
-		private final Ref<dxThreadedJobInfo>       m_job_list = new Ref<dxThreadedJobInfo>();
+		private volatile dxThreadedJobInfo       m_job_list;
 		//private volatile atomicptr_t    m_info_pool; // dxThreadedJobInfo *
 		private final AtomicReference<dxThreadedJobInfo> m_info_pool = 
 				new AtomicReference<dxThreadedJobInfo>(); // dxThreadedJobInfo *
@@ -551,10 +642,15 @@ class ThreadingTemplates {
 			}
 
 			//dxMutexLockHelper list_access(m_list_access_lock);
-			dxtemplateThreadingLockHelper list_access = new dxtemplateThreadingLockHelper(m_list_access_lock);
-
-			dxThreadedJobInfo picked_job = PickNextPendingJob(out_last_job_flag);
-			return picked_job;
+			//TZ The mutex is locked directly instead of through a helper object, 
+			//which would be allocated for every job.
+			m_list_access_lock.LockMutex();
+			try {
+				dxThreadedJobInfo picked_job = PickNextPendingJob(out_last_job_flag);
+				return picked_job;
+			} finally {
+				m_list_access_lock.UnlockMutex();
+			}
 		}
 
 		//template<class tThreadLull, class tThreadMutex, class tAtomicsProvider>
@@ -562,7 +658,7 @@ class ThreadingTemplates {
 		private dxThreadedJobInfo PickNextPendingJob(
 				RefBoolean out_last_job_flag)
 		{
-			dxThreadedJobInfo current_job = m_job_list.get();
+			dxThreadedJobInfo current_job = m_job_list;
 			boolean last_job_flag = false;
 
 			while (current_job != null)
@@ -581,7 +677,11 @@ class ThreadingTemplates {
 				current_job = current_job.m_next_job;
 			}
 
-			out_last_job_flag.set(last_job_flag);
+			//TZ null if the caller is not interested, see dxtemplateJobListSelfHandler
+			if (out_last_job_flag != null)
+			{
+				out_last_job_flag.set(last_job_flag);
+			}
 			return current_job;
 		}
 
@@ -600,7 +700,7 @@ class ThreadingTemplates {
 			}
 
 			boolean job_dequeued = true;
-			dIASSERT(current_job.m_prev_job_next_ptr == null);
+			dIASSERT(!current_job.m_job_queued);
 
 			while (true)
 			{
@@ -614,9 +714,14 @@ class ThreadingTemplates {
 				}
 
 				dxCallWait job_call_wait = current_job.m_call_wait;
+				Throwable call_exception = current_job.m_call_exception;
 
 				if (job_call_wait != null)
 				{
+					if (call_exception != null)
+					{
+						job_call_wait.AssignCallException(call_exception);
+					}
 					wait_signal_proc_ptr.run(job_call_wait);
 				}
 
@@ -641,8 +746,13 @@ class ThreadingTemplates {
 					dependent_job.m_call_fault = 1;
 				}
 
+				if (call_exception != null && dependent_job.m_call_exception == null)
+				{
+					dependent_job.m_call_exception = call_exception;
+				}
+
 				current_job = dependent_job;
-				job_dequeued = dependent_job.m_prev_job_next_ptr == null;
+				job_dequeued = !dependent_job.m_job_queued;
 			}
 		}
 
@@ -662,18 +772,21 @@ class ThreadingTemplates {
 		public void QueueJobForProcessing(dxThreadedJobInfo job_instance)
 		{
 			//dxMutexLockHelper list_access(m_list_access_lock);
-			dxtemplateThreadingLockHelper list_access = new dxtemplateThreadingLockHelper(m_list_access_lock);
-
-			InsertJobInfoIntoListHead(job_instance);
+			m_list_access_lock.LockMutex();
+			try {
+				InsertJobInfoIntoListHead(job_instance);
+			} finally {
+				m_list_access_lock.UnlockMutex();
+			}
 		}
 
 
 		@Override
 		//template<class tThreadLull, class tThreadMutex, class tAtomicsProvider>
 		//void dxtemplateJobListContainer<tThreadLull, tThreadMutex, tAtomicsProvider>::
-		public void AlterJobProcessingDependencies(dxThreadedJobInfo job_instance, 
-				int /*ddependencychange_t*/ dependencies_count_change, 
-				RefBoolean out_job_has_become_ready)
+		//TZ returns out_job_has_become_ready
+		public boolean AlterJobProcessingDependencies(dxThreadedJobInfo job_instance, 
+				int /*ddependencychange_t*/ dependencies_count_change)
 		{
 			// Dependencies should not be changed when job has already become ready for execution
 			dIASSERT(job_instance.m_dependencies_count != 0);
@@ -684,7 +797,7 @@ class ThreadingTemplates {
 			//dIASSERT(dependencies_count_change < 0 ? (job_instance.m_dependencies_count >= (-dependencies_count_change)) : ((-job_instance.m_dependencies_count) > (int)dependencies_count_change));
 
 			int /*ddependencycount_t*/ new_dependencies_count = SmartAddJobDependenciesCount(job_instance, dependencies_count_change);
-			out_job_has_become_ready.set( new_dependencies_count == 0 );
+			return new_dependencies_count == 0;
 		}
 
 
@@ -714,17 +827,19 @@ class ThreadingTemplates {
 		private void InsertJobInfoIntoListHead(
 				dxThreadedJobInfo job_instance)
 		{
-			dxThreadedJobInfo job_list_head = m_job_list.get();
+			dxThreadedJobInfo job_list_head = m_job_list;
 			job_instance.m_next_job = job_list_head;
 
 			if (job_list_head != null)
 			{
-				job_list_head.m_prev_job_next_ptr = 
-						new Ref<dxThreadedJobInfo>(job_instance.m_next_job);
+				//job_list_head.m_prev_job_next_ptr = &job_instance.m_next_job;
+				job_list_head.m_prev_job = job_instance;
 			}
 
-			job_instance.m_prev_job_next_ptr = m_job_list;
-			m_job_list.set( job_instance );
+			//job_instance.m_prev_job_next_ptr = &m_job_list;
+			job_instance.m_prev_job = null;
+			job_instance.m_job_queued = true;
+			m_job_list = job_instance;
 		}
 
 		//template<class tThreadLull, class tThreadMutex, class tAtomicsProvider>
@@ -734,13 +849,21 @@ class ThreadingTemplates {
 		{
 			if (job_instance.m_next_job != null)
 			{ 
-				job_instance.m_next_job.m_prev_job_next_ptr = job_instance.m_prev_job_next_ptr;
+				job_instance.m_next_job.m_prev_job = job_instance.m_prev_job;
+			}
+
+			if (job_instance.m_prev_job != null)
+			{
+				job_instance.m_prev_job.m_next_job = job_instance.m_next_job;
+			}
+			else
+			{
+				m_job_list = job_instance.m_next_job;
 			}
 
-			job_instance.m_prev_job_next_ptr.set(job_instance.m_next_job);
+			job_instance.m_prev_job = null;
 			// Assign NULL to m_prev_job_next_ptr as an indicator that instance has been dequeued
-			//TZ this makes sense if the pointer equals the m_job_list REF.
-			job_instance.m_prev_job_next_ptr = null;
+			job_instance.m_job_queued = false;
 		}
 
 		//template<class tThreadLull, class tThreadMutex, class tAtomicsProvider>
@@ -772,19 +895,22 @@ class ThreadingTemplates {
 				// Extraction must be locked so that other thread does not "steal" head info,
 				// use it and then reinsert back with a different "next"
 				//dxMutexLockHelper pool_access(m_pool_access_lock);
-				dxtemplateThreadingLockHelper pool_access = new dxtemplateThreadingLockHelper(m_pool_access_lock);
-
-				dxThreadedJobInfo head_info = m_info_pool.get(); // Head info must be re-read after mutex had been locked
+				m_pool_access_lock.LockMutex();
+				try {
+					dxThreadedJobInfo head_info = m_info_pool.get(); // Head info must be re-read after mutex had been locked
 
-				if (head_info != null)
-				{
-					dxThreadedJobInfo next_info = head_info.m_next_job;
-					//if (tAtomicsProvider::CompareExchangeTargetPtr(&m_info_pool, (atomicptr_t)head_info, (atomicptr_t)next_info))
-					if (CompareExchangeTargetPtr(m_info_pool, head_info, next_info))
+					if (head_info != null)
 					{
-						result_info = head_info;
-						break;
+						dxThreadedJobInfo next_info = head_info.m_next_job;
+						//if (tAtomicsProvider::CompareExchangeTargetPtr(&m_info_pool, (atomicptr_t)head_info, (atomicptr_t)next_info))
+						if (CompareExchangeTargetPtr(m_info_pool, head_info, next_info))
+						{
+							result_info = head_info;
+							break;
+						}
 					}
+				} finally {
+					m_pool_access_lock.UnlockMutex();
 				}
 			}
 
@@ -917,7 +1043,6 @@ class ThreadingTemplates {
 	//}
 
 
-	//TODO TZ implement for multi-threading
 	//#if dBUILTIN_THREADING_IMPL_ENABLED
 	//
 	//template<class tThreadWakeup, class tJobListContainer>
@@ -988,6 +1113,169 @@ class ThreadingTemplates {
 	//
 	//#endif // #if dBUILTIN_THREADING_IMPL_ENABLED
 
+	//template<class tThreadWakeup, class tJobListContainer>
+	static class dxtemplateJobListThreadedHandler
+	implements tJobListHandler
+	{
+		//public:
+		public dxtemplateJobListThreadedHandler(tJobListContainer list_container_ptr, 
+				tThreadWakeup processing_wakeup)
+		{
+			m_job_list_ptr = list_container_ptr;
+			m_processing_wakeup = processing_wakeup;
+			m_shutdown_requested = false;
+		}
+
+		//~dxtemplateJobListThreadedHandler()
+		public void DESTRUCTOR()
+		{
+			dIASSERT(m_active_thread_count.get() == 0);
+
+			DoFinalizeObject();
+		}
+
+		@Override
+		public boolean InitializeObject() { return DoInitializeObject(); }
+
+		//private:
+		private boolean DoInitializeObject() { return m_processing_wakeup.InitializeObject(); }
+		private void DoFinalizeObject() { /* Do nothing */ }
+
+		//private:
+		private boolean IsShutdownRequested() { return m_shutdown_requested; }
+
+		private int GetActiveThreadsCount() { return m_active_thread_count.get(); }
+		private void RegisterAsActiveThread() { dxOUAtomicsProvider.AddValueToTarget1(m_active_thread_count, 1); }
+		private void UnregisterAsActiveThread() { dxOUAtomicsProvider.AddValueToTarget1(m_active_thread_count, -1); }
+
+		//private:
+		private final tJobListContainer       m_job_list_ptr;
+		private final tThreadWakeup           m_processing_wakeup;
+		private final AtomicInteger           m_active_thread_count = new AtomicInteger(0);
+		private volatile boolean              m_shutdown_requested;
+
+		/************************************************************************/
+		/* Implementation of dxtemplateJobListThreadedHandler                   */
+		/************************************************************************/
+
+		@Override
+		public void ProcessActiveJobAddition()
+		{
+			ActivateAnIdleThread();
+		}
+
+		@Override
+		public void PrepareForWaitingAJobCompletion()
+		{
+			// Do nothing
+		}
+
+		@Override
+		public int RetrieveActiveThreadsCount()
+		{
+			return GetActiveThreadsCount();
+		}
+
+		@Override
+		public void StickToJobsProcessing(DThreadReadyToServeCallback readiness_callback/*=NULL*/, 
+				CallContext callback_context/*=NULL*/)
+		{
+			RegisterAsActiveThread();
+
+			try {
+				if (readiness_callback != null)
+				{
+					readiness_callback.run(callback_context);
+				}
+
+				PerformJobProcessingUntilShutdown();
+			} finally {
+				UnregisterAsActiveThread();
+			}
+		}
+
+		private void PerformJobProcessingUntilShutdown()
+		{
+			//TZ one flag per serving thread, not one per session
+			final RefBoolean last_job_flag = new RefBoolean(false);
+			while (true)
+			{
+				// It is expected that new jobs will not be queued any longer after shutdown had been requested
+				if (IsShutdownRequested() && m_job_list_ptr.IsJobListReadyForShutdown())
+				{
+					break;
+				}
+
+				PerformJobProcessingSession(last_job_flag);
+
+				// It is expected that new jobs will not be queued any longer after shutdown had been requested
+				if (IsShutdownRequested() && m_job_list_ptr.IsJobListReadyForShutdown())
+				{
+					break;
+				}
+
+				BlockAsIdleThread();
+			}
+		}
+
+		private void PerformJobProcessingSession(RefBoolean last_job_flag)
+		{
+			dxThreadedJobInfo current_job = null;
+			boolean job_result = false;
+			last_job_flag.set(false);
+
+			while (true)
+			{
+				current_job = m_job_list_ptr.ReleaseAJobAndPickNextPendingOne(
+						current_job, job_result, dxCallWait.AbstractSignalTheWait, last_job_flag);
+
+				if (current_job == null)
+				{
+					break;
+				}
+
+				if (!last_job_flag.get())
+				{
+					ActivateAnIdleThread();
+				}
+
+				try {
+					job_result = current_job.InvokeCallFunction();
+				} catch (RuntimeException e) {
+					current_job.m_call_exception = e;
+					job_result = false;
+				} catch (Error e) {
+					current_job.m_call_exception = e;
+					job_result = false;
+				}
+			}
+		}
+
+		private void BlockAsIdleThread()
+		{
+			m_processing_wakeup.WaitWakeup(null);
+		}
+
+		private void ActivateAnIdleThread()
+		{
+			m_processing_wakeup.WakeupAThread();
+		}
+
+		@Override
+		public void ShutdownProcessing()
+		{
+			m_shutdown_requested = true;
+			m_processing_wakeup.WakeupAllThreads();
+		}
+
+		@Override
+		public void CleanupForRestart()
+		{
+			m_shutdown_requested = false;
+			m_processing_wakeup.ResetWakeup();
+		}
+	};
+
 
 	//template<class tThreadWakeup, class tJobListContainer>
 	static class dxtemplateJobListSelfHandlertemplate//<tThreadWakeup, tJobListContainer>
@@ -1093,9 +1381,8 @@ class ThreadingTemplates {
 
 			while (true)
 			{
-				RefBoolean dummy_last_job_flag = new RefBoolean(false);
 				current_job = m_job_list_ptr.ReleaseAJobAndPickNextPendingOne(
-						current_job, job_result, dxCallWait.AbstractSignalTheWait, dummy_last_job_flag);
+						current_job, job_result, dxCallWait.AbstractSignalTheWait, null);
 
 				if (current_job == null)
 				{
@@ -1127,7 +1414,10 @@ class ThreadingTemplates {
 	//struct dIMutexGroup;
 	public static interface dIMutexGroup {}
 	//struct dxICallWait;
-	public static class dxICallWait extends dxtemplateCallWait {}
+	public static class dxICallWait extends dxtemplateCallWait {
+		public dxICallWait() { super(); }
+		public dxICallWait(tThreadWakeup wait_wakeup) { super(wait_wakeup); }
+	}
 
 	abstract static class dxIThreadingImplementation extends DxThreadingImplementation
 	{
@@ -1175,9 +1465,15 @@ class ThreadingTemplates {
 	{
 		//public:
 		public dxtemplateThreadingImplementation() {
+			this(THREAD_FACTORY);
+		}
+
+		//TZ the factory replaces the tJobListContainer and tJobListHandler template parameters
+		protected dxtemplateThreadingImplementation(ThreadFactory thread_factory) {
 			super();//dBase();
-			m_list_container = THREAD_FACTORY.createJobListContainer();//();
-			m_list_handler = new dxtemplateJobListSelfHandlertemplate(m_list_container);//(&m_list_container);
+			m_thread_factory = thread_factory;
+			m_list_container = thread_factory.createJobListContainer();//();
+			m_list_handler = thread_factory.createJobListHandler(m_list_container);//(&m_list_container);
 		}
 
 		//virtual ~dxtemplateThreadingImplementation()
@@ -1234,6 +1530,7 @@ class ThreadingTemplates {
 		//TZ TOD why on earth are there two separate fields?
 		private final tJobListContainer     m_list_container;
 		private final tJobListHandler       m_list_handler;
+		private final ThreadFactory         m_thread_factory;
 
 		/************************************************************************/
 		/* Implementation of dxtemplateThreadingImplementation                          */
@@ -1254,7 +1551,7 @@ class ThreadingTemplates {
 		@Override
 		public dIMutexGroup AllocMutexGroup(dxProcessContextMutex /*dmutexindex_t*/ Mutex_count)
 		{
-			dxtemplateMutexGroup mutex_group = dxtemplateMutexGroup.AllocateInstance(Mutex_count);
+			dxtemplateMutexGroup mutex_group = dxtemplateMutexGroup.AllocateInstance(Mutex_count, m_thread_factory);
 			return mutex_group;
 		}
 
@@ -1299,7 +1596,7 @@ class ThreadingTemplates {
 		@Override
 		public dxICallWait AllocACallWait()
 		{
-			dxCallWait call_wait = new dxCallWait();
+			dxCallWait call_wait = new dxCallWait(m_thread_factory.createThreadWakeup());
 
 			if (call_wait != null && !call_wait.InitializeObject())
 			{
@@ -1382,10 +1679,9 @@ class ThreadingTemplates {
 
 			dxThreadedJobInfo job_instance = dMAKE_RELEASEE_JOBINSTANCE(target_releasee);
 
-			RefBoolean job_has_become_ready = new RefBoolean(false);
-			m_list_container.AlterJobProcessingDependencies(job_instance, dependencies_count_change, job_has_become_ready);
+			boolean job_has_become_ready = m_list_container.AlterJobProcessingDependencies(job_instance, dependencies_count_change);
 
-			if (job_has_become_ready.get())
+			if (job_has_become_ready)
 			{
 				m_list_handler.ProcessActiveJobAddition();
 			}
@@ -1405,6 +1701,11 @@ class ThreadingTemplates {
 			boolean wait_status = ((dxCallWait)call_wait).PerformWaiting(timeout_time_ptr);
 			dIASSERT(timeout_time_ptr != null || wait_status);
 
+			if (wait_status)
+			{
+				((dxCallWait)call_wait).RethrowCallException();
+			}
+
 			if (out_wait_status_ptr != null)
 			{
 				out_wait_status_ptr.set( wait_status ? 1 : 0 );
@@ -1452,7 +1753,6 @@ class ThreadingTemplates {
 
 
 
-	//TODO TZ implement for multi-threading
 	//#if dBUILTIN_THREADING_IMPL_ENABLED
 	//
 	///************************************************************************/
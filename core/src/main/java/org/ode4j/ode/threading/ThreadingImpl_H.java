@@ -29,10 +29,15 @@ package org.ode4j.ode.threading;
 
 import org.ode4j.ode.threading.ThreadingFake.dxFakeLull;
 import org.ode4j.ode.threading.ThreadingFake.dxFakeMutex;
+import org.ode4j.ode.threading.ThreadingJava.dxCriticalSectionMutex;
+import org.ode4j.ode.threading.ThreadingJava.dxEventWakeup;
 import org.ode4j.ode.threading.ThreadingTemplates.dxtemplateJobListContainer;
 import org.ode4j.ode.threading.ThreadingTemplates.dxtemplateJobListSelfHandlertemplate;
+import org.ode4j.ode.threading.ThreadingTemplates.dxtemplateJobListThreadedHandler;
+import org.ode4j.ode.threading.ThreadingTemplates.dxtemplateThreadedLull;
 import org.ode4j.ode.threading.ThreadingTemplates.dxtemplateThreadingImplementation;
 import org.ode4j.ode.threading.ThreadingTemplates.tJobListContainer;
+import org.ode4j.ode.threading.ThreadingTemplates.tJobListHandler;
 import org.ode4j.ode.threading.ThreadingTemplates.tThreadLull;
 import org.ode4j.ode.threading.ThreadingTemplates.tThreadMutex;
 import org.ode4j.ode.threading.ThreadingTemplates.tThreadWakeup;
@@ -68,6 +73,10 @@ public class ThreadingImpl_H {
 		public tThreadWakeup createThreadWakeup() {
 			return new ThreadingFake.dxSelfWakeup();
 		}
+		@Override
+		public tJobListHandler createJobListHandler(tJobListContainer list_container) {
+			return new dxtemplateJobListSelfHandlertemplate(list_container);
+		}
 	};
 	public static interface ThreadFactory {
 		public tThreadMutex createThreadMutex();
@@ -75,6 +84,7 @@ public class ThreadingImpl_H {
 		//public tThreadMutex createThreadMutex();
 		public tJobListContainer createJobListContainer();
 		public tThreadWakeup createThreadWakeup();
+		public tJobListHandler createJobListHandler(tJobListContainer list_container);
 	}
 
 //	#if dBUILTIN_THREADING_IMPL_ENABLED
@@ -86,9 +96,41 @@ public class ThreadingImpl_H {
 //	typedef dxtemplateJobListContainer<dxtemplateThreadedLull<dxEventWakeup, dxOUAtomicsProvider, false>, dxCriticalSectionMutex, dxOUAtomicsProvider> dxMultiThreadedJobListContainer;
 //	typedef dxtemplateJobListThreadedHandler<dxEventWakeup, dxMultiThreadedJobListContainer> dxMultiThreadedJobListHandler;
 //	typedef dxtemplateThreadingImplementation<dxMultiThreadedJobListContainer, dxMultiThreadedJobListHandler> dxMultiThreadedThreading;
-//	typedef dxtemplateJobListContainer<dxtemplateThreadedLull<dxEventWakeup, dxOUAtomicsProvider, false>, dxCriticalSectionMutex, dxOUAtomicsProvider> dxMultiThreadedJobListContainer;
-//	typedef dxtemplateJobListThreadedHandler<dxEventWakeup, dxMultiThreadedJobListContainer> dxMultiThreadedJobListHandler;
-//	typedef dxtemplateThreadingImplementation<dxMultiThreadedJobListContainer, dxMultiThreadedJobListHandler> dxMultiThreadedThreading;
+	public static class dxMultiThreadedJobListContainer extends dxtemplateJobListContainer {
+		public dxMultiThreadedJobListContainer() { super(MULTI_THREAD_FACTORY); }
+	};
+	public static class dxMultiThreadedJobListHandler extends dxtemplateJobListThreadedHandler {
+		public dxMultiThreadedJobListHandler(tJobListContainer list_container_ptr) { 
+			super(list_container_ptr, new dxEventWakeup()); 
+		}
+	};
+	public static class dxMultiThreadedThreading extends dxtemplateThreadingImplementation {
+		public dxMultiThreadedThreading() { super(MULTI_THREAD_FACTORY); }
+	};
+
+	//TZ
+	public static final ThreadFactory MULTI_THREAD_FACTORY = new ThreadFactory() {
+		@Override
+		public tThreadMutex createThreadMutex() {
+			return new dxCriticalSectionMutex();
+		}
+		@Override
+		public tThreadLull createThreadLull() {
+			return new dxtemplateThreadedLull(new dxEventWakeup());
+		}
+		@Override
+		public tJobListContainer createJobListContainer() {
+			return new dxMultiThreadedJobListContainer();
+		}
+		@Override
+		public tThreadWakeup createThreadWakeup() {
+			return new dxEventWakeup();
+		}
+		@Override
+		public tJobListHandler createJobListHandler(tJobListContainer list_container) {
+			return new dxMultiThreadedJobListHandler(list_container);
+		}
+	};
 
 //	#endif // #if dBUILTIN_THREADING_IMPL_ENABLED
 
@@ -25,35 +25,36 @@
  * LICENSE.TXT and LICENSE-BSD.TXT for more details.                     *
  *                                                                       *
  *************************************************************************/
+
 package org.ode4j.ode.threading;
 
-import static org.ode4j.ode.internal.Common.*;
+import static org.ode4j.ode.internal.Common.dIASSERT;
 
-import java.util.List;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
-import org.ode4j.ode.threading.ThreadingTemplates.tThreadLull;
 import org.ode4j.ode.threading.ThreadingTemplates.tThreadMutex;
 import org.ode4j.ode.threading.ThreadingTemplates.tThreadWakeup;
 import org.ode4j.ode.threading.Threading_H.DThreadedWaitTime;
+import org.ode4j.ode.threading.Threading_H.DxThreadedWaitTime;
 
 /*
- *  Self-wakeup implementation for built-in threading support provider.
- *  Fake mutex implementation for built-in threading support provider.
+ *  Event-wakeup implementation for built-in threading support provider.
+ *  Critical section mutex implementation for built-in threading support provider.
  *
- *  The classes have been moved into a separate header as they are to be used 
- *  in both WIN and POSIX implementations.
+ *  TZ: These are the Java counterparts of the WIN/POSIX primitives in 
+ *  threading_pool_win.cpp and threading_pool_posix.cpp. Both are built 
+ *  on plain monitors, which do not allocate when a thread has to wait.
  */
 public class ThreadingJava {
 
 	/************************************************************************/
-	/* dxSelfWakeup class definition                                        */
+	/* dxEventWakeup class implementation                                   */
 	/************************************************************************/
 
-	static class dxSelfWakeup implements tThreadWakeup
+	static class dxEventWakeup implements tThreadWakeup
 	{
 	//public:
-	    public dxSelfWakeup() {
+	    public dxEventWakeup() {
 	        m_wakeup_state = false;
 	        m_state_is_permanent = false;
 	    }
@@ -63,67 +64,147 @@ public class ThreadingJava {
 
 	//public:
 	    @Override
-		public void ResetWakeup() { m_wakeup_state = false; m_state_is_permanent = false; }
-	    public void WakeupAThread() { dIASSERT(!m_state_is_permanent); m_wakeup_state = true; } // Wakeup should not be used after permanent signal
-	    @Override
-		public void WakeupAllThreads() { m_wakeup_state = true; m_state_is_permanent = true; }
-
-	    //public boolean WaitWakeup(const dThreadedWaitTime *timeout_time_ptr);
-
-	//private:
-	    private boolean          m_wakeup_state;
-	    private boolean          m_state_is_permanent;
-//	};
-
+		public void ResetWakeup() 
+	    {
+	    	synchronized (m_wakeup_monitor) {
+	    		m_wakeup_state = false; 
+	    		m_state_is_permanent = false;
+	    	}
+	    }
 
-	@Override
-	public
-	boolean WaitWakeup(final DThreadedWaitTime timeout_time_ptr)
-	{
-	    //(void)timeout_time_ptr; // unused
-	    boolean wait_result = m_wakeup_state;
+	    @Override
+	    public void WakeupAThread() 
+	    {
+	    	synchronized (m_wakeup_monitor) {
+	    		dIASSERT(!m_state_is_permanent); // Wakeup should not be used after permanent signal
+
+	    		if (!m_wakeup_state)
+	    		{
+	    			m_wakeup_state = true;
+	    			m_wakeup_monitor.notify();
+	    		}
+	    	}
+	    }
 
-	    if (m_wakeup_state)
+	    @Override
+		public void WakeupAllThreads() 
 	    {
-	        m_wakeup_state = m_state_is_permanent;
+	    	synchronized (m_wakeup_monitor) {
+	    		m_wakeup_state = true; 
+	    		m_state_is_permanent = true;
+	    		m_wakeup_monitor.notifyAll();
+	    	}
 	    }
-	    else
+
+	    @Override
+	    public boolean WaitWakeup(final DThreadedWaitTime timeout_time_ptr)
 	    {
-	        dICHECK(false); // Self-wakeup should only be used in cases when waiting is called after object is signaled
+	    	boolean wait_result = false;
+	    	boolean interrupted = false;
+
+	    	synchronized (m_wakeup_monitor) {
+	    		if (timeout_time_ptr == null)
+	    		{
+	    			while (!m_wakeup_state)
+	    			{
+	    				try {
+	    					m_wakeup_monitor.wait();
+	    				} catch (InterruptedException e) {
+	    					interrupted = true;
+	    				}
+	    			}
+	    		}
+	    		else
+	    		{
+	    			DxThreadedWaitTime wait_time = (DxThreadedWaitTime) timeout_time_ptr;
+	    			long remaining_nanos = TimeUnit.SECONDS.toNanos(wait_time.wait_sec) + wait_time.wait_nsec;
+	    			final long deadline = System.nanoTime() + remaining_nanos;
+
+	    			while (!m_wakeup_state && remaining_nanos > 0)
+	    			{
+	    				try {
+	    					TimeUnit.NANOSECONDS.timedWait(m_wakeup_monitor, remaining_nanos);
+	    				} catch (InterruptedException e) {
+	    					interrupted = true;
+	    					break;
+	    				}
+	    				remaining_nanos = deadline - System.nanoTime();
+	    			}
+	    		}
+
+	    		wait_result = m_wakeup_state;
+
+	    		if (wait_result)
+	    		{
+	    			// Non-permanent state is consumed by the thread that has been woken up
+	    			m_wakeup_state = m_state_is_permanent;
+	    		}
+	    	}
+
+	    	if (interrupted) {
+	    		Thread.currentThread().interrupt();
+	    	}
+	    	return wait_result;
 	    }
 
-	    return wait_result;
-	}
+	//private:
+	    //TZ A plain monitor, Condition.await() allocates a node per call.
+	    private final Object     m_wakeup_monitor = new Object();
+	    private boolean          m_wakeup_state;
+	    private boolean          m_state_is_permanent;
 	}
 
 	/************************************************************************/
-	/* Java mutex class implementation                                      */
+	/* dxCriticalSectionMutex class implementation                          */
 	/************************************************************************/
 
-	static class dxFakeMutex implements tThreadMutex {
-		private final Semaphore s = new Semaphore(1);
+	//TZ Not reentrant, like the POSIX mutex. It is built on a monitor, because a 
+	// contended ReentrantLock.lock() allocates a queue node.
+	static class dxCriticalSectionMutex implements tThreadMutex {
+		private final Object m_critical_section = new Object();
+		private boolean m_locked;
 	
-		public dxFakeMutex() {}
+		public dxCriticalSectionMutex() {}
 
 		@Override
 	    public boolean InitializeObject() { return true; }
 
 		@Override
 	    public void LockMutex() { 
-			try {
-				s.acquire();
-			} catch (InterruptedException e) {
-				throw new RuntimeException(e);
-			} 
+			boolean interrupted = false;
+			synchronized (m_critical_section) {
+				while (m_locked) {
+					try {
+						m_critical_section.wait();
+					} catch (InterruptedException e) {
+						interrupted = true;
+					}
+				}
+				m_locked = true;
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
 		}
 		
 		@Override
 	    public boolean TryLockMutex() {
-			return s.tryAcquire(); 
+			synchronized (m_critical_section) {
+				if (m_locked) {
+					return false;
+				}
+				m_locked = true;
+				return true;
+			}
 		}
+		
 		@Override
 	    public void UnlockMutex() { 
-			s.release(); 
+			synchronized (m_critical_section) {
+				dIASSERT(m_locked);
+				m_locked = false;
+				m_critical_section.notify();
+			}
 		}
 
 		@Override
@@ -132,45 +213,4 @@ public class ThreadingJava {
 		}
 	};
 
-
-	/************************************************************************/
-	/* Fake lull class implementation                                      */
-	/************************************************************************/
-
-	static class dxFakeLull implements tThreadLull {
-		
-		List<Thread> threads;
-	//public:
-		public dxFakeLull() {}
-
-		@Override
-		public boolean InitializeObject() { 
-			return true; 
-		}
-
-	//public:
-		@Override
-		public void RegisterToLull() { 
-			/* Do nothing */ 
-		}
-		
-		@Override
-		public void WaitForLullAlarm() { 
-			dICHECK(false); 
-		} // Fake lull can't be waited
-		
-		@Override
-		public void UnregisterFromLull() { 
-			/* Do nothing */ 
-		}
-
-		@Override
-		public void SignalLullAlarmIfAnyRegistrants() { 
-			/* Do nothing */ 
-		}
-	};
-
-
-//	#endif // #ifndef _ODE_THREADING_FAKE_SYNC_H_
-
 }
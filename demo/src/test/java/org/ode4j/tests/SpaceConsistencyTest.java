@@ -0,0 +1,203 @@
+package org.ode4j.tests;
+
+import static org.junit.Assert.*;
+import static org.ode4j.tests.SpaceTestUtil.pairs;
+import static org.ode4j.tests.SpaceTestUtil.pairs2;
+
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.ode4j.math.DVector3;
+import org.ode4j.ode.DGeom;
+import org.ode4j.ode.DSimpleSpace;
+import org.ode4j.ode.DSpace;
+import org.ode4j.ode.OdeHelper;
+
+/**
+ * A space has to report the same pairs as the simple space, also after
+ * geoms have moved, been added, removed or disabled. The tests of the
+ * spaces extend this class and add the checks of their own features.
+ * @param <S> the type of the space under test
+ */
+public abstract class SpaceConsistencyTest<S extends DSpace> {
+
+	protected static final int N = 300;
+	protected static final double EXTENT = 20;
+
+	protected S space;
+	protected DSimpleSpace simple;
+	protected DGeom[] spaceGeoms;
+	protected DGeom[] simpleGeoms;
+	protected final Random r = new Random(4711);
+
+	/**
+	 * @return a new, empty space of the tested type
+	 */
+	protected abstract S createSpace();
+
+	/**
+	 * @param i index of the geom
+	 * @return the size of the i-th geom
+	 */
+	protected double size(int i) {
+		return 0.2 + 2 * r.nextDouble();
+	}
+
+	/**
+	 * @param step the step of testAddRemove()
+	 * @return the distance of the geoms that are replaced in the step
+	 */
+	protected int addRemoveStride(int step) {
+		return 7;
+	}
+
+	@Before
+	public void setUp() {
+		OdeHelper.initODE2(0);
+		space = createSpace();
+		simple = OdeHelper.createSimpleSpace();
+		spaceGeoms = new DGeom[N];
+		simpleGeoms = new DGeom[N];
+		for (int i = 0; i < N; i++) {
+			create(i);
+		}
+	}
+
+	@After
+	public void tearDown() {
+		space.destroy();
+		simple.destroy();
+		OdeHelper.closeODE();
+	}
+
+	protected void create(int i) {
+		double size = size(i);
+		if (i % 3 == 0) {
+			spaceGeoms[i] = OdeHelper.createSphere(space, size / 2);
+			simpleGeoms[i] = OdeHelper.createSphere(simple, size / 2);
+		} else {
+			spaceGeoms[i] = OdeHelper.createBox(space, size, size / 2, size);
+			simpleGeoms[i] = OdeHelper.createBox(simple, size, size / 2, size);
+		}
+		spaceGeoms[i].setData(i);
+		simpleGeoms[i].setData(i);
+		moveTo(i, r.nextDouble() * EXTENT, r.nextDouble() * EXTENT, r.nextDouble() * EXTENT);
+	}
+
+	protected void moveTo(int i, double x, double y, double z) {
+		spaceGeoms[i].setPosition(x, y, z);
+		simpleGeoms[i].setPosition(x, y, z);
+	}
+
+	protected void assertSamePairs() {
+		Set<String> expected = pairs(simple);
+		assertFalse(expected.isEmpty());
+		assertEquals(expected, pairs(space));
+	}
+
+	@Test
+	public void testCollide() {
+		assertEquals(N, space.getNumGeoms());
+		assertSamePairs();
+		// nothing moved
+		assertSamePairs();
+	}
+
+	@Test
+	public void testCollideMoving() {
+		assertSamePairs();
+		for (int step = 0; step < 30; step++) {
+			for (int i = 0; i < N; i++) {
+				DVector3 p = new DVector3(spaceGeoms[i].getPosition());
+				if (i % 10 == step % 10) {
+					// teleport
+					moveTo(i, r.nextDouble() * EXTENT, r.nextDouble() * EXTENT, r.nextDouble() * EXTENT);
+				} else if (i % 2 == 0) {
+					moveTo(i, p.get0() + 0.1 * r.nextGaussian(), p.get1() - 0.05,
+							p.get2() + 0.1 * r.nextGaussian());
+				}
+			}
+			assertSamePairs();
+		}
+	}
+
+	@Test
+	public void testAddRemove() {
+		assertSamePairs();
+		for (int step = 0; step < 10; step++) {
+			for (int i = step; i < N; i += addRemoveStride(step)) {
+				spaceGeoms[i].destroy();
+				simpleGeoms[i].destroy();
+				create(i);
+			}
+			for (int i = step + 1; i < N; i += 13) {
+				moveTo(i, r.nextDouble() * EXTENT, r.nextDouble() * EXTENT, r.nextDouble() * EXTENT);
+			}
+			assertSamePairs();
+			assertEquals(N, space.getNumGeoms());
+		}
+		// removed without replacement
+		for (int i = 2; i < N; i += 5) {
+			spaceGeoms[i].destroy();
+			simpleGeoms[i].destroy();
+		}
+		assertSamePairs();
+		assertEquals(simple.getNumGeoms(), space.getNumGeoms());
+	}
+
+	@Test
+	public void testDisableAndPlanes() {
+		for (int i = 1; i < N; i += 11) {
+			spaceGeoms[i].disable();
+			simpleGeoms[i].disable();
+		}
+		assertSamePairs();
+		// planes have infinite AABBs
+		DGeom p1 = OdeHelper.createPlane(space, 0, 0, 1, 2);
+		DGeom p2 = OdeHelper.createPlane(simple, 0, 0, 1, 2);
+		p1.setData(N);
+		p2.setData(N);
+		assertSamePairs();
+		for (int i = 1; i < N; i += 11) {
+			spaceGeoms[i].enable();
+			simpleGeoms[i].enable();
+		}
+		assertSamePairs();
+		p1.destroy();
+		p2.destroy();
+		assertSamePairs();
+	}
+
+	@Test
+	public void testTouching() {
+		S s = createSpace();
+		DGeom b1 = OdeHelper.createBox(s, 1, 1, 1);
+		DGeom b2 = OdeHelper.createBox(s, 1, 1, 1);
+		b1.setData(1);
+		b2.setData(2);
+		b1.setPosition(0, 0, 0);
+		b2.setPosition(1, 0, 0);
+		assertEquals(1, pairs(s).size());
+		b2.setPosition(1.5, 0, 0);
+		assertEquals(0, pairs(s).size());
+		b2.setPosition(1, 0, 0);
+		assertEquals(1, pairs(s).size());
+		b2.setPosition(-1, 0, 0);
+		assertEquals(1, pairs(s).size());
+		s.destroy();
+	}
+
+	@Test
+	public void testCollide2() {
+		DGeom probe = OdeHelper.createBox(4, 5, 6);
+		probe.setData(-1);
+		for (int i = 0; i < 10; i++) {
+			probe.setPosition(r.nextDouble() * EXTENT, r.nextDouble() * EXTENT, r.nextDouble() * EXTENT);
+			assertEquals(pairs2(simple, probe), pairs2(space, probe));
+		}
+		probe.destroy();
+	}
+}
@@ -0,0 +1,61 @@
+package org.ode4j.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.ode4j.ode.DGeom;
+import org.ode4j.ode.DGeom.DNearCallback;
+import org.ode4j.ode.DSpace;
+import org.ode4j.ode.OdeHelper;
+
+/**
+ * Helpers of the space tests: the pairs that a space reports, identified by
+ * the data of the geoms.
+ */
+final class SpaceTestUtil {
+
+	private SpaceTestUtil() {
+		// static helpers only
+	}
+
+	/**
+	 * @return a key of the pair that does not depend on the order of the
+	 * geoms
+	 */
+	static String key(DGeom o1, DGeom o2) {
+		String k1 = String.valueOf(o1.getData());
+		String k2 = String.valueOf(o2.getData());
+		return k1.compareTo(k2) < 0 ? k1 + "/" + k2 : k2 + "/" + k1;
+	}
+
+	/**
+	 * @return the pairs of space.collide(), each pair has to be reported once
+	 */
+	static Set<String> pairs(DSpace space) {
+		final Set<String> pairs = new HashSet<String>();
+		space.collide(null, new DNearCallback() {
+			@Override
+			public void call(Object data, DGeom o1, DGeom o2) {
+				assertTrue(pairs.add(key(o1, o2)));
+			}
+		});
+		return pairs;
+	}
+
+	/**
+	 * @return the data of the geoms of the space that spaceCollide2() pairs
+	 * with the geom
+	 */
+	static Set<String> pairs2(DSpace space, DGeom geom) {
+		final Set<String> pairs = new HashSet<String>();
+		OdeHelper.spaceCollide2(space, geom, null, new DNearCallback() {
+			@Override
+			public void call(Object data, DGeom o1, DGeom o2) {
+				assertTrue(pairs.add(String.valueOf(o1.getData())));
+			}
+		});
+		return pairs;
+	}
+}
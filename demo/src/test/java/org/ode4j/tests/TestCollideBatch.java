@@ -0,0 +1,184 @@
+package org.ode4j.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.ode4j.ode.DCollideBatch;
+import org.ode4j.ode.DContactGeom;
+import org.ode4j.ode.DContactGeomBuffer;
+import org.ode4j.ode.DGeom;
+import org.ode4j.ode.DGeom.DNearCallback;
+import org.ode4j.ode.DHeightfield;
+import org.ode4j.ode.DHeightfieldData;
+import org.ode4j.ode.DSpace;
+import org.ode4j.ode.OdeHelper;
+import org.ode4j.ode.threading.DThreadingImplementation;
+import org.ode4j.ode.threading.DThreadingThreadPool;
+
+/**
+ * DCollideBatch has to return the same contacts as OdeHelper.collide() for
+ * each pair, with and without threads.
+ */
+public class TestCollideBatch {
+
+	private static final int N = 500;
+	private static final int MAX = 4;
+	private static final double EXTENT = 15;
+
+	private DSpace space;
+	private DHeightfieldData heightfieldData;
+	private DGeom[] geoms;
+	private int[] pairs;
+	private int pairCount;
+
+	@Before
+	public void setUp() {
+		OdeHelper.initODE2(0);
+		space = OdeHelper.createSimpleSpace();
+		Random r = new Random(4711);
+		List<DGeom> list = new ArrayList<DGeom>();
+		for (int i = 0; i < N; i++) {
+			double size = 0.2 + 2 * r.nextDouble();
+			DGeom g;
+			switch (i % 4) {
+			case 0:
+				g = OdeHelper.createSphere(space, size / 2);
+				break;
+			case 1:
+				g = OdeHelper.createCapsule(space, size / 4, size);
+				break;
+			default:
+				g = OdeHelper.createBox(space, size, size / 2, size);
+			}
+			g.setPosition(r.nextDouble() * EXTENT, r.nextDouble() * EXTENT, r.nextDouble() * EXTENT);
+			list.add(g);
+		}
+		list.add(OdeHelper.createPlane(space, 0, 0, 1, 1));
+		// a heightfield in the x-z plane, its collider is not thread-safe
+		int samples = 32;
+		double[] heights = new double[samples * samples];
+		for (int i = 0; i < heights.length; i++) {
+			heights[i] = Math.sin(i * 0.3);
+		}
+		heightfieldData = OdeHelper.createHeightfieldData();
+		heightfieldData.build(heights, false, 2 * EXTENT, 2 * EXTENT, samples, samples, 1, 1, 1, false);
+		heightfieldData.setBounds(0, 2);
+		list.add(OdeHelper.createHeightfield(space, heightfieldData, false));
+		geoms = list.toArray(new DGeom[list.size()]);
+		for (int i = 0; i < geoms.length; i++) {
+			geoms[i].setData(i);
+		}
+
+		final List<Integer> pairList = new ArrayList<Integer>();
+		space.collide(null, new DNearCallback() {
+			@Override
+			public void call(Object data, DGeom o1, DGeom o2) {
+				pairList.add((Integer) o1.getData());
+				pairList.add((Integer) o2.getData());
+			}
+		});
+		pairCount = pairList.size() / 2;
+		assertTrue(pairCount > 100);
+		assertTrue(pairList.contains(N + 1));
+		pairs = new int[pairList.size()];
+		for (int i = 0; i < pairs.length; i++) {
+			pairs[i] = pairList.get(i);
+		}
+	}
+
+	@After
+	public void tearDown() {
+		space.destroy();
+		heightfieldData.destroy();
+		OdeHelper.closeODE();
+	}
+
+	private void checkBatch(DCollideBatch batch) {
+		DContactGeomBuffer contacts = new DContactGeomBuffer(pairCount * MAX);
+		int[] offsets = new int[pairCount];
+		int[] counts = new int[pairCount];
+		int total = batch.collide(geoms, pairs, pairCount, MAX, contacts, offsets, counts);
+
+		int sum = 0;
+		boolean[] used = new boolean[total];
+		DContactGeomBuffer single = new DContactGeomBuffer(MAX);
+		for (int i = 0; i < pairCount; i++) {
+			int n = OdeHelper.collide(geoms[pairs[2*i]], geoms[pairs[2*i+1]], MAX, single);
+			assertEquals(n, counts[i]);
+			for (int c = 0; c < n; c++) {
+				assertFalse(used[offsets[i] + c]);
+				used[offsets[i] + c] = true;
+				DContactGeom expected = single.get(c);
+				DContactGeom actual = contacts.get(offsets[i] + c);
+				assertEquals(0, expected.pos.distance(actual.pos), 1e-12);
+				assertEquals(0, expected.normal.distance(actual.normal), 1e-12);
+				assertEquals(expected.depth, actual.depth, 1e-12);
+				assertSame(expected.g1, actual.g1);
+				assertSame(expected.g2, actual.g2);
+			}
+			sum += n;
+		}
+		assertEquals(sum, total);
+		assertTrue(total > 0);
+	}
+
+	@Test
+	public void testCollide() {
+		DCollideBatch batch = OdeHelper.createCollideBatch();
+		checkBatch(batch);
+		// the working memory is reused
+		checkBatch(batch);
+	}
+
+	@Test
+	public void testCollideThreaded() {
+		DThreadingImplementation threading = OdeHelper.allocateMultiThreaded();
+		DThreadingThreadPool pool = OdeHelper.allocateThreadPool(4, 0, null);
+		pool.serveMultiThreadedImplementation(threading);
+		try {
+			DCollideBatch batch = OdeHelper.createCollideBatch();
+			batch.setThreadingImplementation(threading.dThreadingImplementationGetFunctions(), threading);
+			for (int i = 0; i < 5; i++) {
+				checkBatch(batch);
+			}
+			batch.setThreadingImplementation(null, null);
+			checkBatch(batch);
+		} finally {
+			threading.shutdownProcessing();
+			pool.freeThreadPool();
+			threading.free();
+		}
+	}
+
+	@Test
+	public void testBufferFull() {
+		DCollideBatch batch = OdeHelper.createCollideBatch();
+		int[] offsets = new int[pairCount];
+		int[] counts = new int[pairCount];
+		int size = 10 * MAX;
+		DContactGeomBuffer contacts = new DContactGeomBuffer(size);
+		int total = batch.collide(geoms, pairs, pairCount, MAX, contacts, offsets, counts);
+		assertTrue(total <= size);
+		int skipped = 0;
+		int sum = 0;
+		for (int i = 0; i < pairCount; i++) {
+			if (counts[i] < 0) {
+				assertEquals(-1, offsets[i]);
+				skipped++;
+			} else {
+				assertTrue(offsets[i] + counts[i] <= total);
+				sum += counts[i];
+			}
+		}
+		assertEquals(sum, total);
+		assertTrue(skipped > 0);
+		// there was no room for MAX more contacts
+		assertTrue(total + MAX > size);
+	}
+}
@@ -0,0 +1,189 @@
+package org.ode4j.tests;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.ode4j.math.DVector3;
+import org.ode4j.ode.DBody;
+import org.ode4j.ode.DContact;
+import org.ode4j.ode.DContact.DSurfaceParameters;
+import org.ode4j.ode.DContactArray;
+import org.ode4j.ode.DContactBuffer;
+import org.ode4j.ode.DContactGeom;
+import org.ode4j.ode.DContactGeomBuffer;
+import org.ode4j.ode.DGeom;
+import org.ode4j.ode.DGeom.DNearCallback;
+import org.ode4j.ode.DJointGroup;
+import org.ode4j.ode.DMass;
+import org.ode4j.ode.DMisc;
+import org.ode4j.ode.DSpace;
+import org.ode4j.ode.DWorld;
+import org.ode4j.ode.OdeConstants;
+import org.ode4j.ode.OdeHelper;
+
+/**
+ * Contacts in a DContactArray have to behave like contacts in a
+ * DContactBuffer.
+ */
+public class TestContactArray {
+
+	private static final int MAX = 4;
+	private static final int BODIES = 20;
+
+	@Before
+	public void setUp() {
+		OdeHelper.initODE2(0);
+	}
+
+	@After
+	public void tearDown() {
+		OdeHelper.closeODE();
+	}
+
+	@Test
+	public void testCollide() {
+		DGeom box = OdeHelper.createBox(1, 1, 1);
+		DGeom sphere = OdeHelper.createSphere(0.5);
+		sphere.setPosition(0.3, 0.2, 0.8);
+		DContactArray array = new DContactArray(1);
+		for (int round = 0; round < 3; round++) {
+			array.clear();
+			for (int k = 0; k < 10; k++) {
+				box.setPosition(0.1 * k, 0, 0);
+				DContactGeomBuffer buffer = new DContactGeomBuffer(MAX);
+				int n = OdeHelper.collide(box, sphere, MAX, buffer);
+				int first = array.size();
+				assertEquals(n, array.collide(box, sphere, MAX));
+				assertEquals(first + n, array.size());
+				DVector3 v = new DVector3();
+				for (int c = 0; c < n; c++) {
+					DContactGeom g = buffer.get(c);
+					array.getPos(first + c, v);
+					assertEquals(g.pos, v);
+					array.getNormal(first + c, v);
+					assertEquals(g.normal, v);
+					assertEquals(g.depth, array.getDepth(first + c), 0);
+					assertSame(box, array.getG1(first + c));
+					assertSame(sphere, array.getG2(first + c));
+				}
+			}
+			assertTrue(array.size() > 1);
+		}
+		box.destroy();
+		sphere.destroy();
+	}
+
+	@Test
+	public void testSurface() {
+		DGeom box = OdeHelper.createBox(1, 1, 1);
+		DGeom plane = OdeHelper.createPlane(null, 0, 0, 1, 0.4);
+		DContactArray array = new DContactArray(2);
+		int n = array.collide(box, plane, MAX);
+		assertEquals(4, n);
+		DSurfaceParameters surface = new DContact.DSurfaceParameters();
+		surface.mode = OdeConstants.dContactBounce | OdeConstants.dContactSoftCFM;
+		surface.mu = 0.5;
+		surface.bounce = 0.2;
+		surface.soft_cfm = 0.01;
+		array.setSurface(1, 3, surface);
+		DSurfaceParameters result = new DContact.DSurfaceParameters();
+		array.getSurface(0, result);
+		assertEquals(0, result.mode);
+		assertEquals(0, result.mu, 0);
+		array.getSurface(2, result);
+		assertEquals(surface.mode, result.mode);
+		assertEquals(0.5, result.mu, 0);
+		assertEquals(0.2, result.bounce, 0);
+		assertEquals(0.01, result.soft_cfm, 0);
+		// new contacts have no surface parameters
+		array.clear();
+		array.collide(box, plane, MAX);
+		array.getSurface(2, result);
+		assertEquals(0, result.mode);
+		assertEquals(0, result.bounce, 0);
+		try {
+			array.getDepth(4);
+			fail();
+		} catch (IndexOutOfBoundsException e) {
+			// expected
+		}
+		box.destroy();
+		plane.destroy();
+	}
+
+	private static DVector3[] simulate(final boolean useArray) {
+		DMisc.dRandSetSeed(0);
+		final DWorld world = OdeHelper.createWorld();
+		world.setGravity(0, 0, -9.81);
+		DSpace space = OdeHelper.createSimpleSpace();
+		final DJointGroup contactGroup = OdeHelper.createJointGroup();
+		OdeHelper.createPlane(space, 0, 0, 1, 0);
+		DBody[] bodies = new DBody[BODIES];
+		for (int i = 0; i < BODIES; i++) {
+			bodies[i] = OdeHelper.createBody(world);
+			DMass m = OdeHelper.createMass();
+			m.setBox(1, 1, 1, 1);
+			bodies[i].setMass(m);
+			bodies[i].setPosition(0.3 * (i % 5), 0.2 * (i / 5), 0.5 + 1.1 * i);
+			DGeom g = OdeHelper.createBox(space, 1, 1, 1);
+			g.setBody(bodies[i]);
+		}
+		final DSurfaceParameters surface = new DContact.DSurfaceParameters();
+		surface.mode = OdeConstants.dContactBounce;
+		surface.mu = 0.8;
+		surface.bounce = 0.1;
+		final DContactArray array = new DContactArray(4);
+		DNearCallback callback = new DNearCallback() {
+			@Override
+			public void call(Object data, DGeom o1, DGeom o2) {
+				if (useArray) {
+					int first = array.size();
+					int n = array.collide(o1, o2, MAX);
+					array.setSurface(first, first + n, surface);
+					for (int i = first; i < first + n; i++) {
+						OdeHelper.createContactJoint(world, contactGroup, array, i)
+								.attach(o1.getBody(), o2.getBody());
+					}
+				} else {
+					DContactBuffer contacts = new DContactBuffer(MAX);
+					int n = OdeHelper.collide(o1, o2, MAX, contacts.getGeomBuffer());
+					for (int i = 0; i < n; i++) {
+						DContact c = contacts.get(i);
+						c.surface.mode = surface.mode;
+						c.surface.mu = surface.mu;
+						c.surface.bounce = surface.bounce;
+						OdeHelper.createContactJoint(world, contactGroup, c)
+								.attach(o1.getBody(), o2.getBody());
+					}
+				}
+			}
+		};
+		for (int step = 0; step < 300; step++) {
+			space.collide(null, callback);
+			world.quickStep(0.01);
+			contactGroup.empty();
+			array.clear();
+		}
+		DVector3[] result = new DVector3[BODIES];
+		for (int i = 0; i < BODIES; i++) {
+			result[i] = new DVector3(bodies[i].getPosition());
+		}
+		contactGroup.destroy();
+		space.destroy();
+		world.destroy();
+		return result;
+	}
+
+	@Test
+	public void testContactJoints() {
+		DVector3[] expected = simulate(false);
+		DVector3[] actual = simulate(true);
+		for (int i = 0; i < BODIES; i++) {
+			assertEquals(expected[i], actual[i]);
+		}
+		// the bodies rest on the plane or on each other
+		assertTrue(expected[0].get2() < 1);
+	}
+}
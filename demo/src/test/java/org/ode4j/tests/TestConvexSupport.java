@@ -0,0 +1,315 @@
+/*************************************************************************
+ *                                                                       *
+ * Open Dynamics Engine 4J, Copyright (C) 2009-2014 Tilmann Zaeschke     *
+ * All rights reserved.  Email: ode4j@gmx.de   Web: www.ode4j.org        *
+ *                                                                       *
+ * This library is free software; you can redistribute it and/or         *
+ * modify it under the terms of EITHER:                                  *
+ *   (1) The GNU Lesser General Public License as published by the Free  *
+ *       Software Foundation; either version 2.1 of the License, or (at  *
+ *       your option) any later version. The text of the GNU Lesser      *
+ *       General Public License is included with this library in the     *
+ *       file LICENSE.TXT.                                               *
+ *   (2) The BSD-style license that is included with this library in     *
+ *       the file ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT.         *
+ *                                                                       *
+ * This library is distributed in the hope that it will be useful,       *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the files    *
+ * LICENSE.TXT, ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT for more   *
+ * details.                                                              *
+ *                                                                       *
+ *************************************************************************/
+package org.ode4j.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.ode4j.math.DMatrix3;
+import org.ode4j.ode.DColliderFn;
+import org.ode4j.ode.DContactGeom;
+import org.ode4j.ode.DContactGeomBuffer;
+import org.ode4j.ode.DConvex;
+import org.ode4j.ode.DGeom;
+import org.ode4j.ode.OdeConfig;
+import org.ode4j.ode.OdeHelper;
+import org.ode4j.ode.OdeMath;
+import org.ode4j.ode.internal.DxConvex;
+
+/**
+ * Large convex shapes find their support points by hill-climbing over the
+ * edges. They have to give the same contacts as a convex that looks at all
+ * points, in poses where no face is perpendicular to a search direction.
+ * A convex with a point that is not part of any polygon always looks at
+ * all points.
+ */
+public class TestConvexSupport {
+
+	private static final int SUBDIVISIONS = 3;
+	private static final int POSES = 300;
+	private static final int MAX_CONTACTS = 8;
+
+	private final DContactGeomBuffer contacts1 = new DContactGeomBuffer(MAX_CONTACTS);
+	private final DContactGeomBuffer contacts2 = new DContactGeomBuffer(MAX_CONTACTS);
+
+	@Before
+	public void beforeTest() {
+		OdeHelper.initODE2(0);
+	}
+
+	@After
+	public void afterTest() {
+		OdeConfig.setSeparatingAxisCacheSize(0);
+		OdeHelper.closeODE();
+	}
+
+	private static double[] normalize(double x, double y, double z) {
+		double len = Math.sqrt(x * x + y * y + z * z);
+		return new double[] {x / len, y / len, z / len};
+	}
+
+	private static int midpoint(List<double[]> vertices, Map<Long, Integer> midpoints, int a, int b) {
+		long key = ((long) Math.min(a, b) << 32) | Math.max(a, b);
+		Integer m = midpoints.get(key);
+		if (m == null) {
+			double[] p = vertices.get(a);
+			double[] q = vertices.get(b);
+			vertices.add(normalize(p[0] + q[0], p[1] + q[1], p[2] + q[2]));
+			m = vertices.size() - 1;
+			midpoints.put(key, m);
+		}
+		return m;
+	}
+
+	private static class Hull {
+		double[] planes;
+		double[] points;
+		int[] polygons;
+	}
+
+	/**
+	 * @param unused Whether to add a point that is not part of any polygon
+	 * @return A subdivided icosahedron with radius 0.5, 642 points for
+	 * three subdivisions.
+	 */
+	private static Hull icosphere(boolean unused) {
+		double t = (1 + Math.sqrt(5)) / 2;
+		double[][] corners = {
+				{-1, t, 0}, {1, t, 0}, {-1, -t, 0}, {1, -t, 0},
+				{0, -1, t}, {0, 1, t}, {0, -1, -t}, {0, 1, -t},
+				{t, 0, -1}, {t, 0, 1}, {-t, 0, -1}, {-t, 0, 1} };
+		List<double[]> vertices = new ArrayList<double[]>();
+		for (double[] c : corners) {
+			vertices.add(normalize(c[0], c[1], c[2]));
+		}
+		int[] faces = {
+				0, 11, 5,  0, 5, 1,  0, 1, 7,  0, 7, 10,  0, 10, 11,
+				1, 5, 9,  5, 11, 4,  11, 10, 2,  10, 7, 6,  7, 1, 8,
+				3, 9, 4,  3, 4, 2,  3, 2, 6,  3, 6, 8,  3, 8, 9,
+				4, 9, 5,  2, 4, 11,  6, 2, 10,  8, 6, 7,  9, 8, 1 };
+		for (int s = 0; s < SUBDIVISIONS; s++) {
+			Map<Long, Integer> midpoints = new HashMap<Long, Integer>();
+			int[] sub = new int[faces.length * 4];
+			int p = 0;
+			for (int i = 0; i < faces.length; i += 3) {
+				int a = faces[i], b = faces[i + 1], c = faces[i + 2];
+				int ab = midpoint(vertices, midpoints, a, b);
+				int bc = midpoint(vertices, midpoints, b, c);
+				int ca = midpoint(vertices, midpoints, c, a);
+				int[] f = {a, ab, ca,  b, bc, ab,  c, ca, bc,  ab, bc, ca};
+				System.arraycopy(f, 0, sub, p, f.length);
+				p += f.length;
+			}
+			faces = sub;
+		}
+
+		int pointCount = vertices.size() + (unused ? 1 : 0);
+		double[] points = new double[pointCount * 3];
+		for (int i = 0; i < vertices.size(); i++) {
+			for (int k = 0; k < 3; k++) {
+				points[i * 3 + k] = vertices.get(i)[k] * 0.5;
+			}
+		}
+		int planeCount = faces.length / 3;
+		double[] planes = new double[planeCount * 4];
+		int[] polygons = new int[planeCount * 4];
+		for (int i = 0; i < planeCount; i++) {
+			int a = faces[i * 3] * 3, b = faces[i * 3 + 1] * 3, c = faces[i * 3 + 2] * 3;
+			double ux = points[b] - points[a], uy = points[b + 1] - points[a + 1], uz = points[b + 2] - points[a + 2];
+			double vx = points[c] - points[a], vy = points[c + 1] - points[a + 1], vz = points[c + 2] - points[a + 2];
+			double[] n = normalize(uy * vz - uz * vy, uz * vx - ux * vz, ux * vy - uy * vx);
+			planes[i * 4] = n[0];
+			planes[i * 4 + 1] = n[1];
+			planes[i * 4 + 2] = n[2];
+			planes[i * 4 + 3] = n[0] * points[a] + n[1] * points[a + 1] + n[2] * points[a + 2];
+			polygons[i * 4] = 3;
+			polygons[i * 4 + 1] = faces[i * 3];
+			polygons[i * 4 + 2] = faces[i * 3 + 1];
+			polygons[i * 4 + 3] = faces[i * 3 + 2];
+		}
+		Hull hull = new Hull();
+		hull.planes = planes;
+		hull.points = points;
+		hull.polygons = polygons;
+		return hull;
+	}
+
+	private static DConvex createConvex(boolean unused) {
+		Hull h = icosphere(unused);
+		return OdeHelper.createConvex(h.planes, h.planes.length / 4, h.points, h.points.length / 3, h.polygons);
+	}
+
+	private static DGeom createGeom(String name) {
+		if ("SPHERE".equals(name)) {
+			return OdeHelper.createSphere(0.5);
+		} else if ("BOX".equals(name)) {
+			return OdeHelper.createBox(1, 0.8, 1.2);
+		} else if ("CAPSULE".equals(name)) {
+			return OdeHelper.createCapsule(0.3, 0.8);
+		} else if ("CYLINDER".equals(name)) {
+			return OdeHelper.createCylinder(0.5, 1);
+		}
+		throw new IllegalArgumentException(name);
+	}
+
+	private static final DColliderFn COLLIDE = new DColliderFn() {
+		@Override
+		public int dColliderFn(DGeom o1, DGeom o2, int flags, DContactGeomBuffer contacts) {
+			return OdeHelper.collide(o1, o2, flags, contacts);
+		}
+	};
+
+	private int assertSameContacts(DGeom a1, DGeom b1, DGeom a2, DGeom b2) {
+		return assertSameContacts(COLLIDE, a1, b1, a2, b2);
+	}
+
+	/**
+	 * Collides both pairs in the same random poses.
+	 * @return number of contacts
+	 */
+	private int assertSameContacts(DColliderFn collider, DGeom a1, DGeom b1, DGeom a2, DGeom b2) {
+		Random r = new Random(4711);
+		DMatrix3 R = new DMatrix3();
+		int total = 0;
+		for (int i = 0; i < POSES; i++) {
+			OdeMath.dRFromAxisAndAngle(R, r.nextDouble() - 0.5, r.nextDouble() - 0.5,
+					r.nextDouble() - 0.5, r.nextDouble() * Math.PI);
+			a1.setRotation(R);
+			a2.setRotation(R);
+			OdeMath.dRFromAxisAndAngle(R, r.nextDouble() - 0.5, r.nextDouble() - 0.5,
+					r.nextDouble() - 0.5, r.nextDouble() * Math.PI);
+			b1.setRotation(R);
+			b2.setRotation(R);
+			double x = r.nextDouble() - 0.5, y = r.nextDouble() - 0.5, z = r.nextDouble() * 1.2;
+			b1.setPosition(x, y, z);
+			b2.setPosition(x, y, z);
+
+			// update the positions, a collider may be called directly
+			b1.getAABB();
+			b2.getAABB();
+			a1.getAABB();
+			a2.getAABB();
+			int n1 = collider.dColliderFn(a1, b1, MAX_CONTACTS, contacts1);
+			int n2 = collider.dColliderFn(a2, b2, MAX_CONTACTS, contacts2);
+			assertEquals(n2, n1);
+			for (int k = 0; k < n1; k++) {
+				DContactGeom c1 = contacts1.get(k);
+				DContactGeom c2 = contacts2.get(k);
+				assertEquals(c2.depth, c1.depth, 0);
+				assertEquals(0, c1.pos.distance(c2.pos), 0);
+				assertEquals(0, c1.normal.distance(c2.normal), 0);
+			}
+			total += n1;
+		}
+		return total;
+	}
+
+	@Test
+	public void testConvexOther() {
+		DConvex convex = createConvex(false);
+		DConvex reference = createConvex(true);
+		for (String name : new String[] {"SPHERE", "BOX", "CAPSULE", "CYLINDER"}) {
+			DGeom g1 = createGeom(name);
+			DGeom g2 = createGeom(name);
+			assertTrue(name, assertSameContacts(convex, g1, reference, g2) > 0);
+			g1.destroy();
+			g2.destroy();
+		}
+		convex.destroy();
+		reference.destroy();
+	}
+
+	@Test
+	public void testConvexConvex() {
+		DConvex a1 = createConvex(false);
+		DConvex b1 = createConvex(false);
+		DConvex a2 = createConvex(true);
+		DConvex b2 = createConvex(true);
+		assertTrue(assertSameContacts(a1, b1, a2, b2) > 0);
+		a1.destroy();
+		b1.destroy();
+		a2.destroy();
+		b2.destroy();
+	}
+
+	/**
+	 * With the separating axis cache, the support point searches of a pair
+	 * start at the support points of its last collision.
+	 */
+	@Test
+	public void testConvexConvexCached() {
+		DConvex a1 = createConvex(false);
+		DConvex b1 = createConvex(false);
+		DConvex a2 = createConvex(true);
+		DConvex b2 = createConvex(true);
+		OdeConfig.setSeparatingAxisCacheSize(1024);
+		assertTrue(assertSameContacts(a1, b1, a2, b2) > 0);
+		// the SAT collider, it is only used without LIBCCD
+		assertTrue(assertSameContacts(new DxConvex.CollideConvexConvex(), a1, b1, a2, b2) > 0);
+		a1.destroy();
+		b1.destroy();
+		a2.destroy();
+		b2.destroy();
+	}
+
+	/**
+	 * The edges of a convex have to be updated when its shape is set again.
+	 */
+	@Test
+	public void testSetConvex() {
+		double h = 0.5;
+		double[] planes = {
+				1, 0, 0, h,   0, 1, 0, h,   0, 0, 1, h,
+				0, 0, -1, h,  0, -1, 0, h,  -1, 0, 0, h };
+		double[] points = {
+				h, h, h,    -h, h, h,    h, -h, h,    -h, -h, h,
+				h, h, -h,   -h, h, -h,   h, -h, -h,   -h, -h, -h };
+		int[] polygons = {
+				4, 0, 2, 6, 4,
+				4, 1, 0, 4, 5,
+				4, 0, 1, 3, 2,
+				4, 3, 1, 5, 7,
+				4, 2, 3, 7, 6,
+				4, 5, 4, 6, 7 };
+		DConvex a1 = OdeHelper.createConvex(planes, 6, points, 8, polygons);
+		DConvex b1 = OdeHelper.createConvex(planes, 6, points, 8, polygons);
+		Hull ico = icosphere(false);
+		a1.setConvex(ico.planes, ico.planes.length / 4, ico.points, ico.points.length / 3, ico.polygons);
+		b1.setConvex(ico.planes, ico.planes.length / 4, ico.points, ico.points.length / 3, ico.polygons);
+		DConvex a2 = createConvex(true);
+		DConvex b2 = createConvex(true);
+		assertTrue(assertSameContacts(a1, b1, a2, b2) > 0);
+		a1.destroy();
+		b1.destroy();
+		a2.destroy();
+		b2.destroy();
+	}
+}
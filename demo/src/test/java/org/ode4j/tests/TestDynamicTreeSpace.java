@@ -0,0 +1,105 @@
+package org.ode4j.tests;
+
+import static org.junit.Assert.*;
+import static org.ode4j.tests.SpaceTestUtil.pairs2;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+import org.ode4j.math.DVector3;
+import org.ode4j.ode.DAABB;
+import org.ode4j.ode.DContactGeomBuffer;
+import org.ode4j.ode.DDynamicTreeSpace;
+import org.ode4j.ode.DDynamicTreeSpace.DQueryCallback;
+import org.ode4j.ode.DGeom;
+import org.ode4j.ode.DRay;
+import org.ode4j.ode.DSpace;
+import org.ode4j.ode.OdeHelper;
+
+/**
+ * The dynamic tree space has to report the same pairs as the simple space.
+ */
+public class TestDynamicTreeSpace extends SpaceConsistencyTest<DDynamicTreeSpace> {
+
+	@Override
+	protected DDynamicTreeSpace createSpace() {
+		return OdeHelper.createDynamicTreeSpace();
+	}
+
+	@Test
+	public void testRay() {
+		DRay ray = OdeHelper.createRay(null, 2 * EXTENT);
+		ray.setData(-1);
+		final Set<String> hits = new HashSet<String>();
+		DQueryCallback cb = new DQueryCallback() {
+			@Override
+			public void call(Object data, DGeom geom) {
+				assertTrue(hits.add(String.valueOf(geom.getData())));
+			}
+		};
+		DContactGeomBuffer contacts = new DContactGeomBuffer(1);
+		int total = 0;
+		for (int i = 0; i < 20; i++) {
+			DVector3 dir = new DVector3(r.nextGaussian(), r.nextGaussian(), r.nextGaussian());
+			dir.normalize();
+			ray.set(EXTENT / 2, EXTENT / 2, EXTENT / 2, dir.get0(), dir.get1(), dir.get2());
+			Set<String> expected = pairs2(simple, ray);
+			// the tree only reports geoms whose AABB is hit by the ray
+			Set<String> actual = pairs2(space, ray);
+			assertTrue(expected.containsAll(actual));
+			hits.clear();
+			space.raycast(ray.getPosition(), dir, ray.getLength(), null, cb);
+			assertEquals(actual, hits);
+			// all geoms that the ray really hits are reported
+			for (String s : expected) {
+				int n = OdeHelper.collide(ray, spaceGeoms[Integer.parseInt(s)], 1, contacts);
+				assertTrue(n == 0 || actual.contains(s));
+				total += n;
+			}
+		}
+		assertTrue(total > 0);
+		ray.destroy();
+	}
+
+	@Test
+	public void testQueryAABB() {
+		final Set<Integer> found = new HashSet<Integer>();
+		DQueryCallback cb = new DQueryCallback() {
+			@Override
+			public void call(Object data, DGeom geom) {
+				assertTrue(found.add((Integer) geom.getData()));
+			}
+		};
+		for (int i = 0; i < 10; i++) {
+			double x = r.nextDouble() * EXTENT, y = r.nextDouble() * EXTENT, z = r.nextDouble() * EXTENT;
+			DAABB aabb = new DAABB();
+			aabb.set(x, x + 3, y, y + 4, z, z + 5);
+			found.clear();
+			space.queryAABB(aabb, null, cb);
+			Set<Integer> expected = new HashSet<Integer>();
+			for (int j = 0; j < N; j++) {
+				if (!spaceGeoms[j].getAABB().isDisjoint(aabb)) {
+					expected.add(j);
+				}
+			}
+			assertEquals(expected, found);
+		}
+	}
+
+	@Test
+	public void testNestedSpaces() {
+		DSpace inner = OdeHelper.createDynamicTreeSpace(space);
+		DSpace inner2 = OdeHelper.createSimpleSpace(simple);
+		inner.setData(N);
+		inner2.setData(N);
+		DGeom b1 = OdeHelper.createBox(inner, 3, 3, 3);
+		DGeom b2 = OdeHelper.createBox(inner2, 3, 3, 3);
+		b1.setPosition(EXTENT / 2, EXTENT / 2, EXTENT / 2);
+		b2.setPosition(EXTENT / 2, EXTENT / 2, EXTENT / 2);
+		assertSamePairs();
+		b1.setPosition(0, 0, 0);
+		b2.setPosition(0, 0, 0);
+		assertSamePairs();
+	}
+}
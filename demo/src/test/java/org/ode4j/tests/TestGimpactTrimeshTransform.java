@@ -0,0 +1,217 @@
+package org.ode4j.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.ode4j.math.DMatrix3;
+import org.ode4j.math.DVector3;
+import org.ode4j.ode.DContactGeom;
+import org.ode4j.ode.DContactGeomBuffer;
+import org.ode4j.ode.DGeom;
+import org.ode4j.ode.DRay;
+import org.ode4j.ode.DTriMesh;
+import org.ode4j.ode.DTriMeshData;
+import org.ode4j.ode.OdeHelper;
+import org.ode4j.ode.OdeMath;
+
+/**
+ * A moving GIMPACT trimesh transforms its vertices only when they are used.
+ * It has to give the same contacts as a trimesh whose vertices are already
+ * in world coordinates.
+ */
+public class TestGimpactTrimeshTransform {
+
+	private static final int N = 20;
+	private static final int MAX_CONTACTS = 100;
+
+	private final DContactGeomBuffer contacts1 = new DContactGeomBuffer(MAX_CONTACTS);
+	private final DContactGeomBuffer contacts2 = new DContactGeomBuffer(MAX_CONTACTS);
+
+	@Before
+	public void beforeTest() {
+		OdeHelper.initODE2(0);
+	}
+
+	@After
+	public void afterTest() {
+		OdeHelper.closeODE();
+	}
+
+	private static float[] gridVertices() {
+		float[] vertices = new float[(N + 1) * (N + 1) * 3];
+		for (int y = 0; y <= N; y++) {
+			for (int x = 0; x <= N; x++) {
+				int p = (x + y * (N + 1)) * 3;
+				vertices[p] = x - N / 2;
+				vertices[p + 1] = y - N / 2;
+				vertices[p + 2] = (float) (0.3 * Math.sin(x * 0.7) * Math.cos(y * 0.5));
+			}
+		}
+		return vertices;
+	}
+
+	private static int[] gridIndices() {
+		int[] indices = new int[N * N * 6];
+		for (int y = 0; y < N; y++) {
+			for (int x = 0; x < N; x++) {
+				int p = (x + y * N) * 6;
+				int v = x + y * (N + 1);
+				indices[p] = v;
+				indices[p + 1] = v + 1;
+				indices[p + 2] = v + N + 2;
+				indices[p + 3] = v;
+				indices[p + 4] = v + N + 2;
+				indices[p + 5] = v + N + 1;
+			}
+		}
+		return indices;
+	}
+
+	private static DTriMesh createMesh(float[] vertices, int[] indices) {
+		DTriMeshData data = OdeHelper.createTriMeshData();
+		data.build(vertices, indices);
+		return OdeHelper.createTriMesh(null, data, null, null, null);
+	}
+
+	private static float[] transform(float[] vertices, DMatrix3 R, DVector3 pos) {
+		float[] result = new float[vertices.length];
+		DVector3 v = new DVector3();
+		DVector3 w = new DVector3();
+		for (int i = 0; i < vertices.length; i += 3) {
+			v.set(vertices[i], vertices[i + 1], vertices[i + 2]);
+			OdeMath.dMultiply0_331(w, R, v);
+			w.add(pos);
+			result[i] = (float) w.get0();
+			result[i + 1] = (float) w.get1();
+			result[i + 2] = (float) w.get2();
+		}
+		return result;
+	}
+
+	private int assertSameContacts(DTriMesh mesh, DTriMesh reference, DGeom probe) {
+		int c1 = OdeHelper.collide(mesh, probe, MAX_CONTACTS, contacts1);
+		int c2 = OdeHelper.collide(reference, probe, MAX_CONTACTS, contacts2);
+		assertEquals(c2, c1);
+		for (int i = 0; i < c1; i++) {
+			DContactGeom cg1 = contacts1.get(i);
+			DContactGeom cg2 = contacts2.get(i);
+			assertEquals(0, cg1.pos.distance(cg2.pos), 1e-5);
+			assertEquals(cg2.depth, cg1.depth, 1e-5);
+			assertEquals(0, cg1.normal.distance(cg2.normal), 1e-5);
+		}
+		return c1;
+	}
+
+	/**
+	 * Collides the mesh with probes near a point of the mesh.
+	 * @return number of contacts
+	 */
+	private int assertSameContacts(DTriMesh mesh, DTriMesh reference, Random r) {
+		DMatrix3 R = mesh.getRotation().clone();
+		DVector3 world = new DVector3();
+		OdeMath.dMultiply0_331(world, R, new DVector3(r.nextInt(16) - 8, r.nextInt(16) - 8, 0.25));
+		world.add(mesh.getPosition());
+		DMatrix3 probeR = new DMatrix3();
+		OdeMath.dRFromAxisAndAngle(probeR, r.nextDouble(), r.nextDouble(), 1, r.nextDouble());
+
+		int total = 0;
+		DGeom[] probes = {
+				OdeHelper.createSphere(0.8),
+				OdeHelper.createBox(1.2, 0.7, 1.0),
+				OdeHelper.createCapsule(0.4, 2) };
+		for (DGeom probe : probes) {
+			probe.setPosition(world);
+			probe.setRotation(probeR);
+			total += assertSameContacts(mesh, reference, probe);
+			probe.destroy();
+		}
+		// along the z axis of the mesh
+		DRay ray = OdeHelper.createRay(10);
+		ray.set(world.get0() + 3 * R.get02(), world.get1() + 3 * R.get12(),
+				world.get2() + 3 * R.get22(), -R.get02(), -R.get12(), -R.get22());
+		total += assertSameContacts(mesh, reference, ray);
+		ray.destroy();
+
+		DGeom plane = OdeHelper.createPlane(null, 0, 0, 1, world.get2() + r.nextDouble() - 0.5);
+		assertSameContacts(mesh, reference, plane);
+		plane.destroy();
+		return total;
+	}
+
+	/**
+	 * A mesh that is moved again and again has to give the same contacts as
+	 * a new mesh at the same place.
+	 */
+	@Test
+	public void testMovingMesh() {
+		float[] vertices = gridVertices();
+		DTriMeshData data = OdeHelper.createTriMeshData();
+		data.build(vertices, gridIndices());
+		DTriMesh moving = OdeHelper.createTriMesh(null, data, null, null, null);
+
+		Random r = new Random(4711);
+		DMatrix3 R = new DMatrix3();
+		int total = 0;
+		for (int i = 0; i < 20; i++) {
+			// small moves in between, as for a slowly moving mesh
+			double angle = i % 4 == 0 ? r.nextDouble() * Math.PI : 0.01 * i;
+			OdeMath.dRFromAxisAndAngle(R, r.nextDouble() - 0.5, r.nextDouble() - 0.5, 1, angle);
+			DVector3 pos = new DVector3(r.nextDouble() * 10, r.nextDouble() * 10, 5 + r.nextDouble());
+			moving.setRotation(R);
+			moving.setPosition(pos);
+			DTriMesh fresh = OdeHelper.createTriMesh(null, data, null, null, null);
+			fresh.setRotation(R);
+			fresh.setPosition(pos);
+
+			total += assertSameContacts(moving, fresh, r);
+			fresh.destroy();
+		}
+		assertTrue(total > 0);
+	}
+
+	/**
+	 * The queries in the local coordinates of a mesh have to find the same
+	 * triangles as the queries of a mesh whose vertices are in world
+	 * coordinates. The rotations and positions are exact in float, so the
+	 * contacts are the same.
+	 */
+	@Test
+	public void testLocalQueries() {
+		float[] vertices = gridVertices();
+		int[] indices = gridIndices();
+		DTriMesh mesh = createMesh(vertices, indices);
+
+		Random r = new Random(4711);
+		int total = 0;
+		for (int i = 0; i < 24; i++) {
+			// rotations by multiples of 90 degrees
+			DMatrix3 R = new DMatrix3();
+			int a = i % 3;
+			int b = (a + 1 + (i / 3) % 2) % 3;
+			double sa = (i / 6) % 2 == 0 ? 1 : -1;
+			double sb = (i / 12) % 2 == 0 ? 1 : -1;
+			R.set(a, 0, sa);
+			R.set(b, 1, sb);
+			// third column is the cross product of the first two
+			DVector3 c0 = new DVector3(R.get00(), R.get10(), R.get20());
+			DVector3 c1 = new DVector3(R.get01(), R.get11(), R.get21());
+			DVector3 c2 = new DVector3();
+			c2.eqCross(c0, c1);
+			R.set(0, 2, c2.get0());
+			R.set(1, 2, c2.get1());
+			R.set(2, 2, c2.get2());
+			DVector3 pos = new DVector3(r.nextInt(40) * 0.25, r.nextInt(40) * 0.25, r.nextInt(40) * 0.25);
+			mesh.setRotation(R);
+			mesh.setPosition(pos);
+			DTriMesh reference = createMesh(transform(vertices, R, pos), indices);
+
+			total += assertSameContacts(mesh, reference, r);
+			reference.destroy();
+		}
+		assertTrue(total > 0);
+	}
+}
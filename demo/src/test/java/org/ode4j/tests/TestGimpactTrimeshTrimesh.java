@@ -0,0 +1,187 @@
+package org.ode4j.tests;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.ode4j.math.DMatrix3;
+import org.ode4j.ode.DContactGeom;
+import org.ode4j.ode.DContactGeomBuffer;
+import org.ode4j.ode.DTriMesh;
+import org.ode4j.ode.DTriMeshData;
+import org.ode4j.ode.OdeHelper;
+import org.ode4j.ode.OdeMath;
+
+/**
+ * Trimesh-trimesh collisions with the triangle trees of the meshes.
+ */
+public class TestGimpactTrimeshTrimesh {
+
+	private static final int MAX_CONTACTS = 1000;
+
+	private final DContactGeomBuffer contacts1 = new DContactGeomBuffer(MAX_CONTACTS);
+	private final DContactGeomBuffer contacts2 = new DContactGeomBuffer(MAX_CONTACTS);
+
+	@Before
+	public void beforeTest() {
+		OdeHelper.initODE2(0);
+	}
+
+	@After
+	public void afterTest() {
+		OdeHelper.closeODE();
+	}
+
+	private static float height(int x, int y) {
+		return (float) (0.3 * Math.sin(x * 0.7) * Math.cos(y * 0.5));
+	}
+
+	private static float[] gridVertices(int x0, int y0, int n) {
+		float[] vertices = new float[(n + 1) * (n + 1) * 3];
+		for (int y = 0; y <= n; y++) {
+			for (int x = 0; x <= n; x++) {
+				int p = (x + y * (n + 1)) * 3;
+				vertices[p] = x0 + x;
+				vertices[p + 1] = y0 + y;
+				vertices[p + 2] = height(x0 + x, y0 + y);
+			}
+		}
+		return vertices;
+	}
+
+	private static int[] gridIndices(int n) {
+		int[] indices = new int[n * n * 6];
+		for (int y = 0; y < n; y++) {
+			for (int x = 0; x < n; x++) {
+				int p = (x + y * n) * 6;
+				int v = x + y * (n + 1);
+				indices[p] = v;
+				indices[p + 1] = v + 1;
+				indices[p + 2] = v + n + 2;
+				indices[p + 3] = v;
+				indices[p + 4] = v + n + 2;
+				indices[p + 5] = v + n + 1;
+			}
+		}
+		return indices;
+	}
+
+	private static DTriMesh createMesh(float[] vertices, int[] indices) {
+		DTriMeshData data = OdeHelper.createTriMeshData();
+		data.build(vertices, indices);
+		return OdeHelper.createTriMesh(null, data, null, null, null);
+	}
+
+	private static DTriMesh createBox(float h) {
+		float[] vertices = {
+				-h, -h, -h,  h, -h, -h,  h, h, -h,  -h, h, -h,
+				-h, -h, h,  h, -h, h,  h, h, h,  -h, h, h };
+		int[] indices = {
+				0, 2, 1,  0, 3, 2,  4, 5, 6,  4, 6, 7,
+				0, 1, 5,  0, 5, 4,  1, 2, 6,  1, 6, 5,
+				2, 3, 7,  2, 7, 6,  3, 0, 4,  3, 4, 7 };
+		return createMesh(vertices, indices);
+	}
+
+	private static void rotate(DTriMesh g, double ax, double ay, double az, double angle) {
+		DMatrix3 R = new DMatrix3();
+		OdeMath.dRFromAxisAndAngle(R, ax, ay, az, angle);
+		g.setRotation(R);
+	}
+
+	/**
+	 * A small part of a large grid has to give the same contacts as the
+	 * whole grid.
+	 */
+	@Test
+	public void testSameContactsAsPatch() {
+		final int n = 100;
+		final int px = 40, py = 50, pn = 10;
+		DTriMesh grid = createMesh(gridVertices(0, 0, n), gridIndices(n));
+		DTriMesh patch = createMesh(gridVertices(px, py, pn), gridIndices(pn));
+		DTriMesh box = createBox(1.5f);
+
+		int checked = 0;
+		for (int i = 0; i < 10; i++) {
+			double x = px + 3 + i * 0.4;
+			double y = py + 7 - i * 0.3;
+			box.setPosition(x, y, 1.0 + 0.1 * i);
+			rotate(box, 1, 0.5 * i, 0.3, 0.2 * i);
+
+			int c1 = OdeHelper.collide(grid, box, MAX_CONTACTS, contacts1);
+			int c2 = OdeHelper.collide(patch, box, MAX_CONTACTS, contacts2);
+			assertEquals(c2, c1);
+			for (int j = 0; j < c1; j++) {
+				DContactGeom cg1 = contacts1.get(j);
+				DContactGeom cg2 = contacts2.get(j);
+				// contacts with the same position and depth are merged, which
+				// one is kept depends on the order of the triangle pairs
+				assertEquals(0, cg1.pos.distance(cg2.pos), 1e-2);
+				assertEquals(cg2.depth, cg1.depth, 1e-4);
+				assertEquals(1, cg1.normal.length(), 1e-5);
+				// a triangle of the patch
+				int cell = cg1.side1 / 2;
+				assertTrue(cell % n >= px && cell % n < px + pn);
+				assertTrue(cell / n >= py && cell / n < py + pn);
+				assertSame(grid, cg1.g1);
+				assertSame(box, cg1.g2);
+			}
+			checked += c1;
+		}
+		assertTrue(checked > 0);
+	}
+
+	/**
+	 * Two grids with about 50k triangles each touch along a line.
+	 */
+	@Test
+	public void testLargeMeshes() {
+		final int n = 157;
+		float[] vertices = gridVertices(0, 0, n);
+		DTriMeshData data = OdeHelper.createTriMeshData();
+		data.build(vertices, gridIndices(n));
+		DTriMesh grid1 = OdeHelper.createTriMesh(null, data, null, null, null);
+		DTriMesh grid2 = OdeHelper.createTriMesh(null, data, null, null, null);
+
+		// grid2 is tilted and crosses grid1 at x = 80
+		rotate(grid2, 0, 1, 0, -0.3);
+		grid2.setPosition(80, 0, 0);
+		int c = OdeHelper.collide(grid1, grid2, MAX_CONTACTS, contacts1);
+		assertTrue(c > 0);
+		for (int i = 0; i < c; i++) {
+			DContactGeom cg = contacts1.get(i);
+			assertEquals(80, cg.pos.get0(), 2);
+			assertTrue(cg.depth >= 0);
+		}
+
+		// above grid1
+		grid2.setPosition(80, 0, 50);
+		assertEquals(0, OdeHelper.collide(grid1, grid2, MAX_CONTACTS, contacts1));
+	}
+
+	/**
+	 * The tree has to follow the vertices after update().
+	 */
+	@Test
+	public void testUpdate() {
+		final int n = 20;
+		float[] vertices = gridVertices(0, 0, n);
+		DTriMeshData data = OdeHelper.createTriMeshData();
+		data.build(vertices, gridIndices(n));
+		DTriMesh grid = OdeHelper.createTriMesh(null, data, null, null, null);
+		DTriMesh box = createBox(1);
+		box.setPosition(10, 10, 0.5);
+		assertTrue(OdeHelper.collide(grid, box, MAX_CONTACTS, contacts1) > 0);
+
+		// move the vertices below the box
+		for (int i = 2; i < vertices.length; i += 3) {
+			vertices[i] -= 5;
+		}
+		data.update();
+		grid.setPosition(0, 0, 0);
+		assertEquals(0, OdeHelper.collide(grid, box, MAX_CONTACTS, contacts1));
+		box.setPosition(10, 10, -4.5);
+		assertTrue(OdeHelper.collide(grid, box, MAX_CONTACTS, contacts1) > 0);
+	}
+}
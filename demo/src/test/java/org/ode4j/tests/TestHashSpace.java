@@ -0,0 +1,59 @@
+package org.ode4j.tests;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.ode4j.ode.DGeom;
+import org.ode4j.ode.DHashSpace;
+import org.ode4j.ode.OdeHelper;
+
+/**
+ * The hash space has to report the same pairs as the simple space, also
+ * after geoms have moved, been added or removed, and with geoms on
+ * different levels of the hash table.
+ */
+public class TestHashSpace extends SpaceConsistencyTest<DHashSpace> {
+
+	@Override
+	protected DHashSpace createSpace() {
+		return OdeHelper.createHashSpace();
+	}
+
+	@Override
+	protected double size(int i) {
+		// a few geoms are much larger than the others
+		return i % 50 == 0 ? 8 * r.nextDouble() : 0.2 + 2 * r.nextDouble();
+	}
+
+	@Test
+	public void testBigGeoms() {
+		// big geoms overlap many cells, each pair is reported once
+		DGeom[] big = new DGeom[4];
+		for (int i = 0; i < big.length; i++) {
+			big[i] = OdeHelper.createBox(space, EXTENT / 2, 1 + i, EXTENT / 2);
+			DGeom b = OdeHelper.createBox(simple, EXTENT / 2, 1 + i, EXTENT / 2);
+			big[i].setData(N + i);
+			b.setData(N + i);
+			big[i].setPosition(EXTENT / 2 + i, EXTENT / 2, EXTENT / 2 - i);
+			b.setPosition(EXTENT / 2 + i, EXTENT / 2, EXTENT / 2 - i);
+		}
+		assertSamePairs();
+		// and when they are too big for the hash table
+		space.setLevels(-1, 2);
+		assertSamePairs();
+	}
+
+	@Test
+	public void testSetLevels() {
+		assertSamePairs();
+		space.setLevels(-1, 2);
+		assertEquals(-1, space.getLevelMin());
+		assertEquals(2, space.getLevelMax());
+		// the larger geoms are now too big for the hash table
+		assertSamePairs();
+		moveTo(1, EXTENT / 2, EXTENT / 2, EXTENT / 2);
+		assertSamePairs();
+		space.setLevels(-3, 10);
+		assertSamePairs();
+	}
+}
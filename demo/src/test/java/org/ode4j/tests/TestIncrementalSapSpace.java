@@ -0,0 +1,22 @@
+package org.ode4j.tests;
+
+import org.ode4j.ode.DSapSpace;
+import org.ode4j.ode.OdeHelper;
+
+/**
+ * The incremental SAP space has to report the same pairs as the simple
+ * space, also after geoms have moved, been added or removed.
+ */
+public class TestIncrementalSapSpace extends SpaceConsistencyTest<DSapSpace> {
+
+	@Override
+	protected DSapSpace createSpace() {
+		return OdeHelper.createIncrementalSapSpace(DSapSpace.AXES.XZY);
+	}
+
+	@Override
+	protected int addRemoveStride(int step) {
+		// a few changes are applied incrementally, many by a rebuild
+		return step % 2 == 0 ? 37 : 3;
+	}
+}
@@ -0,0 +1,253 @@
+/*************************************************************************
+ *                                                                       *
+ * Open Dynamics Engine 4J, Copyright (C) 2009-2014 Tilmann Zaeschke     *
+ * All rights reserved.  Email: ode4j@gmx.de   Web: www.ode4j.org        *
+ *                                                                       *
+ * This library is free software; you can redistribute it and/or         *
+ * modify it under the terms of EITHER:                                  *
+ *   (1) The GNU Lesser General Public License as published by the Free  *
+ *       Software Foundation; either version 2.1 of the License, or (at  *
+ *       your option) any later version. The text of the GNU Lesser      *
+ *       General Public License is included with this library in the     *
+ *       file LICENSE.TXT.                                               *
+ *   (2) The BSD-style license that is included with this library in     *
+ *       the file ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT.         *
+ *                                                                       *
+ * This library is distributed in the hope that it will be useful,       *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the files    *
+ * LICENSE.TXT, ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT for more   *
+ * details.                                                              *
+ *                                                                       *
+ *************************************************************************/
+package org.ode4j.tests;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.ode4j.math.DMatrix3;
+import org.ode4j.ode.DContactGeom;
+import org.ode4j.ode.DContactGeomBuffer;
+import org.ode4j.ode.DGeom;
+import org.ode4j.ode.OdeHelper;
+import org.ode4j.ode.OdeMath;
+
+/**
+ * The libccd colliders work on per-thread temporaries. After warm-up they
+ * should not allocate anything, and colliding from several threads at the
+ * same time has to give the same contacts as colliding from one thread.
+ */
+public class TestLibccdTemporaries {
+
+	private static final String[][] PAIRS = {
+		{"CYLINDER", "CYLINDER"},
+		{"BOX", "CYLINDER"},
+		{"CAPSULE", "CYLINDER"},
+		{"CONVEX", "SPHERE"},
+		{"CONVEX", "BOX"},
+		{"CONVEX", "CAPSULE"},
+		{"CONVEX", "CYLINDER"},
+		{"CONVEX", "CONVEX"} };
+	private static final int POSES = 50;
+	private static final int MAX_CONTACTS = 8;
+	private static final int THREAD_COUNT = 4;
+	/** Rounds over all pairs in a row that must not allocate. */
+	private static final int STABLE_ROUNDS = 10;
+	/** 
+	 * Upper bound for the warm-up. The JIT may allocate a few bytes now 
+	 * and then while it recompiles.
+	 */
+	private static final int MAX_ROUNDS = 200;
+
+	@Before
+	public void beforeTest() {
+		OdeHelper.initODE2(0);
+	}
+
+	@After
+	public void afterTest() {
+		OdeHelper.closeODE();
+	}
+
+	private static DGeom createGeom(String name) {
+		if ("SPHERE".equals(name)) {
+			return OdeHelper.createSphere(0.5);
+		} else if ("BOX".equals(name)) {
+			return OdeHelper.createBox(1, 0.8, 1.2);
+		} else if ("CAPSULE".equals(name)) {
+			return OdeHelper.createCapsule(0.3, 0.8);
+		} else if ("CYLINDER".equals(name)) {
+			return OdeHelper.createCylinder(0.5, 1);
+		} else if ("CONVEX".equals(name)) {
+			double h = 0.5;
+			double[] planes = {
+					1, 0, 0, h,   0, 1, 0, h,   0, 0, 1, h,
+					0, 0, -1, h,  0, -1, 0, h,  -1, 0, 0, h };
+			double[] points = {
+					h, h, h,    -h, h, h,    h, -h, h,    -h, -h, h,
+					h, h, -h,   -h, h, -h,   h, -h, -h,   -h, -h, -h };
+			int[] polygons = {
+					4, 0, 2, 6, 4,
+					4, 1, 0, 4, 5,
+					4, 0, 1, 3, 2,
+					4, 3, 1, 5, 7,
+					4, 2, 3, 7, 6,
+					4, 5, 4, 6, 7 };
+			return OdeHelper.createConvex(planes, 6, points, 8, polygons);
+		}
+		throw new IllegalArgumentException(name);
+	}
+
+	/**
+	 * @return pairs of geoms with random, mostly overlapping poses
+	 */
+	private static List<DGeom[]> createPairs() {
+		Random r = new Random(4711);
+		List<DGeom[]> pairs = new ArrayList<DGeom[]>();
+		DMatrix3 R = new DMatrix3();
+		for (String[] names : PAIRS) {
+			for (int i = 0; i < POSES; i++) {
+				DGeom g1 = createGeom(names[0]);
+				DGeom g2 = createGeom(names[1]);
+				OdeMath.dRFromAxisAndAngle(R, r.nextDouble() - 0.5, r.nextDouble() - 0.5,
+						r.nextDouble() - 0.5, r.nextDouble() * Math.PI);
+				g1.setRotation(R);
+				OdeMath.dRFromAxisAndAngle(R, r.nextDouble() - 0.5, r.nextDouble() - 0.5,
+						r.nextDouble() - 0.5, r.nextDouble() * Math.PI);
+				g2.setRotation(R);
+				g2.setPosition(r.nextDouble() - 0.5, r.nextDouble() - 0.5, r.nextDouble() * 1.2);
+				// update the AABBs, so the threads only read the geoms
+				g1.getAABB();
+				g2.getAABB();
+				pairs.add(new DGeom[] {g1, g2});
+			}
+		}
+		return pairs;
+	}
+
+	private static void destroy(List<DGeom[]> pairs) {
+		for (DGeom[] pair : pairs) {
+			pair[0].destroy();
+			pair[1].destroy();
+		}
+	}
+
+	/**
+	 * @return the contacts of all pairs: count, then depth, position and
+	 * normal of each contact
+	 */
+	private static double[] collideAll(List<DGeom[]> pairs, DContactGeomBuffer contacts) {
+		double[] result = new double[pairs.size() * (1 + MAX_CONTACTS * 7)];
+		int p = 0;
+		for (DGeom[] pair : pairs) {
+			int n = OdeHelper.collide(pair[0], pair[1], MAX_CONTACTS, contacts);
+			result[p++] = n;
+			for (int i = 0; i < n; i++) {
+				DContactGeom c = contacts.get(i);
+				result[p++] = c.depth;
+				result[p++] = c.pos.get0();
+				result[p++] = c.pos.get1();
+				result[p++] = c.pos.get2();
+				result[p++] = c.normal.get0();
+				result[p++] = c.normal.get1();
+				result[p++] = c.normal.get2();
+			}
+		}
+		return result;
+	}
+
+	@Test
+	public void testCollideDoesNotAllocate() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+		assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+		if (!threadBean.isThreadAllocatedMemoryEnabled()) {
+			threadBean.setThreadAllocatedMemoryEnabled(true);
+		}
+
+		List<DGeom[]> pairs = createPairs();
+		DContactGeomBuffer contacts = new DContactGeomBuffer(MAX_CONTACTS);
+		long threadId = Thread.currentThread().getId();
+		long[] allocated = new long[pairs.size()];
+
+		// the first round creates the temporaries of this thread
+		int total = 0;
+		int stable = 0;
+		String lastAllocation = null;
+		for (int r = 0; r < MAX_ROUNDS && stable < STABLE_ROUNDS; r++) {
+			total += collideRound(pairs, contacts, threadBean, threadId, allocated);
+			stable++;
+			for (int i = 0; i < allocated.length; i++) {
+				if (allocated[i] != 0) {
+					DGeom[] pair = pairs.get(i);
+					lastAllocation = pair[0].getClassID() + "/" + pair[1].getClassID() 
+							+ ": " + allocated[i] + " bytes";
+					stable = 0;
+				}
+			}
+		}
+		assertEquals("last allocation " + lastAllocation, STABLE_ROUNDS, stable);
+		assertTrue(total > 0);
+		destroy(pairs);
+	}
+
+	/**
+	 * Collides each pair once.
+	 * @param allocated receives the bytes allocated by each pair
+	 * @return the number of contacts
+	 */
+	private static int collideRound(List<DGeom[]> pairs, DContactGeomBuffer contacts,
+			com.sun.management.ThreadMXBean threadBean, long threadId, long[] allocated) {
+		int total = 0;
+		for (int i = 0; i < pairs.size(); i++) {
+			DGeom[] pair = pairs.get(i);
+			long before = threadBean.getThreadAllocatedBytes(threadId);
+			total += OdeHelper.collide(pair[0], pair[1], MAX_CONTACTS, contacts);
+			allocated[i] = threadBean.getThreadAllocatedBytes(threadId) - before;
+		}
+		return total;
+	}
+
+	@Test
+	public void testConcurrentCollide() throws InterruptedException {
+		final List<DGeom[]> pairs = createPairs();
+		final double[] expected = collideAll(pairs, new DContactGeomBuffer(MAX_CONTACTS));
+
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		Thread[] threads = new Thread[THREAD_COUNT];
+		for (int t = 0; t < THREAD_COUNT; t++) {
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						DContactGeomBuffer contacts = new DContactGeomBuffer(MAX_CONTACTS);
+						for (int i = 0; i < 20; i++) {
+							double[] result = collideAll(pairs, contacts);
+							assertArrayEquals(expected, result, 0);
+						}
+					} catch (Throwable e) {
+						failure.compareAndSet(null, e);
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		if (failure.get() != null) {
+			throw new AssertionError(failure.get());
+		}
+		destroy(pairs);
+	}
+}
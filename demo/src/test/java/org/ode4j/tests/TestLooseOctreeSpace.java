@@ -0,0 +1,77 @@
+package org.ode4j.tests;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+import org.ode4j.ode.DGeom;
+import org.ode4j.ode.DLooseOctreeSpace;
+import org.ode4j.ode.OdeHelper;
+
+/**
+ * The loose octree space has to report the same pairs as the simple space,
+ * also after geoms have moved, been added or removed, or left the tree.
+ */
+public class TestLooseOctreeSpace extends SpaceConsistencyTest<DLooseOctreeSpace> {
+
+	@Override
+	protected DLooseOctreeSpace createSpace() {
+		return OdeHelper.createLooseOctreeSpace();
+	}
+
+	@Override
+	protected double size(int i) {
+		// sizes from 0.02 to 5
+		return i % 50 == 0 ? 5 : (i % 7 == 0 ? 0.02 : 0.2 + 2 * r.nextDouble());
+	}
+
+	@Test
+	public void testNodeCount() {
+		assertSamePairs();
+		int nodes = space.getNodeCount();
+		assertTrue(nodes > 0);
+		// nothing moved
+		assertSamePairs();
+		assertEquals(nodes, space.getNodeCount());
+		// empty nodes are recycled
+		for (int i = 0; i < N; i++) {
+			spaceGeoms[i].destroy();
+			simpleGeoms[i].destroy();
+		}
+		assertEquals(0, space.getNodeCount());
+	}
+
+	@Test
+	public void testGrow() {
+		assertSamePairs();
+		// the root has to grow in all directions
+		for (int i = 0; i < N; i += 5) {
+			double f = i % 2 == 0 ? 1000 : -1000;
+			moveTo(i, f + r.nextDouble() * EXTENT, -f + r.nextDouble() * EXTENT,
+					f + r.nextDouble() * EXTENT);
+		}
+		assertSamePairs();
+		for (int i = 0; i < N; i += 5) {
+			moveTo(i, r.nextDouble() * EXTENT, r.nextDouble() * EXTENT, r.nextDouble() * EXTENT);
+		}
+		assertSamePairs();
+		// a geom that is larger than the root
+		DGeom b1 = OdeHelper.createBox(space, 5000, 1, 1);
+		DGeom b2 = OdeHelper.createBox(simple, 5000, 1, 1);
+		b1.setData(N);
+		b2.setData(N);
+		assertSamePairs();
+	}
+
+	@Test
+	public void testMaxDepth() {
+		assertEquals(10, space.getMaxDepth());
+		assertSamePairs();
+		int nodes = space.getNodeCount();
+		space.setMaxDepth(0);
+		assertSamePairs();
+		assertEquals(1, space.getNodeCount());
+		space.setMaxDepth(10);
+		assertSamePairs();
+		assertEquals(nodes, space.getNodeCount());
+	}
+}
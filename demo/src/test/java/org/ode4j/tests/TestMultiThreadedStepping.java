@@ -0,0 +1,444 @@
+package org.ode4j.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.ode4j.math.DVector3C;
+import org.ode4j.ode.DBallJoint;
+import org.ode4j.ode.DBody;
+import org.ode4j.ode.DContact;
+import org.ode4j.ode.DContactBuffer;
+import org.ode4j.ode.DGeom;
+import org.ode4j.ode.DGeom.DNearCallback;
+import org.ode4j.ode.DHingeJoint;
+import org.ode4j.ode.DJoint;
+import org.ode4j.ode.DJointGroup;
+import org.ode4j.ode.DMass;
+import org.ode4j.ode.DMisc;
+import org.ode4j.ode.DSpace;
+import org.ode4j.ode.DWorld;
+import org.ode4j.ode.DWorld.DWorldStepReport;
+import org.ode4j.ode.OdeConstants;
+import org.ode4j.ode.OdeHelper;
+import org.ode4j.ode.threading.DThreadingImplementation;
+import org.ode4j.ode.threading.DThreadingThreadPool;
+
+/**
+ * Steps worlds with many islands on the built-in multi-threaded
+ * threading implementation and compares them with the self-threaded ones.
+ */
+public class TestMultiThreadedStepping {
+
+	private static final int THREAD_COUNT = 4;
+	private static final int ISLAND_COUNT = 24;
+	private static final int STEP_COUNT = 100;
+	private static final double STEP_SIZE = 0.01;
+	private static final double RADIUS = 0.5;
+	private static final int CHAIN_LENGTH = 64;
+	private static final int SHEET_SIZE = 12;
+	private static final int MIN_ITERATIONS = 4;
+	private static final int MAX_ITERATIONS = 100;
+	private static final double TOLERANCE = 1e-3;
+
+	private DThreadingImplementation threading;
+	private DThreadingThreadPool pool;
+
+	private static class Scene {
+		final DWorld world;
+		final DSpace space;
+		final DJointGroup contactGroup;
+		final DBody[] bodies;
+
+		Scene() {
+			world = OdeHelper.createWorld();
+			world.setGravity(0, 0, -9.81);
+			space = OdeHelper.createSimpleSpace();
+			contactGroup = OdeHelper.createJointGroup();
+			OdeHelper.createPlane(space, 0, 0, 1, 0);
+			bodies = new DBody[ISLAND_COUNT * 2];
+			for (int i = 0; i < ISLAND_COUNT; i++) {
+				// Each island is a pair of hinged spheres dropped onto the plane
+				DBody b1 = createSphere(i * 3.0, 0, RADIUS + 0.2 + 0.01 * i);
+				DBody b2 = createSphere(i * 3.0 + 1.1, 0, RADIUS + 0.4);
+				DHingeJoint hinge = OdeHelper.createHingeJoint(world);
+				hinge.attach(b1, b2);
+				hinge.setAnchor(i * 3.0 + 0.55, 0, RADIUS + 0.3);
+				hinge.setAxis(0, 1, 0);
+				bodies[i * 2] = b1;
+				bodies[i * 2 + 1] = b2;
+			}
+		}
+
+		private DBody createSphere(double x, double y, double z) {
+			DBody b = OdeHelper.createBody(world);
+			DMass m = OdeHelper.createMass();
+			m.setSphere(1, RADIUS);
+			b.setMass(m);
+			b.setPosition(x, y, z);
+			DGeom g = OdeHelper.createSphere(space, RADIUS);
+			g.setBody(b);
+			return b;
+		}
+
+		private final DNearCallback nearCallback = new DNearCallback() {
+			@Override
+			public void call(Object data, DGeom o1, DGeom o2) {
+				DBody b1 = o1.getBody();
+				DBody b2 = o2.getBody();
+				if (b1 != null && b2 != null && OdeHelper.areConnected(b1, b2)) {
+					return;
+				}
+				DContactBuffer contacts = new DContactBuffer(4);
+				int n = OdeHelper.collide(o1, o2, 4, contacts.getGeomBuffer());
+				for (int i = 0; i < n; i++) {
+					DContact contact = contacts.get(i);
+					contact.surface.mode = OdeConstants.dContactApprox1;
+					contact.surface.mu = 0.5;
+					DJoint c = OdeHelper.createContactJoint(world, contactGroup, contact);
+					c.attach(b1, b2);
+				}
+			}
+		};
+
+		void step(boolean quick) {
+			step(quick, true);
+		}
+
+		void step(boolean quick, boolean collide) {
+			if (collide) {
+				space.collide(null, nearCallback);
+			}
+			if (quick) {
+				world.quickStep(STEP_SIZE);
+			} else {
+				world.step(STEP_SIZE);
+			}
+			contactGroup.empty();
+		}
+
+		void destroy() {
+			contactGroup.destroy();
+			space.destroy();
+			world.destroy();
+		}
+	}
+
+	@Before
+	public void beforeTest() {
+		OdeHelper.initODE2(0);
+		threading = OdeHelper.allocateMultiThreaded();
+		assertNotNull(threading);
+		pool = OdeHelper.allocateThreadPool(THREAD_COUNT, 0, null);
+		assertNotNull(pool);
+		pool.serveMultiThreadedImplementation(threading);
+	}
+
+	@After
+	public void afterTest() {
+		threading.shutdownProcessing();
+		pool.freeThreadPool();
+		threading.free();
+		OdeHelper.closeODE();
+	}
+
+	@Test
+	public void testStepMatchesSelfThreaded() {
+		Scene reference = new Scene();
+		Scene threaded = new Scene();
+		threaded.world.setStepThreadingImplementation(
+				threading.dThreadingImplementationGetFunctions(), threading);
+		for (int i = 0; i < reference.bodies.length; i += 2) {
+			reference.bodies[i].setAngularVel(0, 1 + 0.1 * i, 0);
+			threaded.bodies[i].setAngularVel(0, 1 + 0.1 * i, 0);
+		}
+
+		// Without collisions: contact joint order depends on the order in which 
+		// the island threads mark geoms as moved.
+		for (int s = 0; s < STEP_COUNT; s++) {
+			reference.step(false, false);
+			threaded.step(false, false);
+		}
+
+		for (int i = 0; i < reference.bodies.length; i++) {
+			DVector3C p0 = reference.bodies[i].getPosition();
+			DVector3C p1 = threaded.bodies[i].getPosition();
+			assertEquals(p0.get0(), p1.get0(), 1e-9);
+			assertEquals(p0.get1(), p1.get1(), 1e-9);
+			assertEquals(p0.get2(), p1.get2(), 1e-9);
+		}
+
+		threaded.world.setStepThreadingImplementation(null, null);
+		threaded.destroy();
+		reference.destroy();
+	}
+
+	@Test
+	public void testQuickStepSettles() {
+		Scene threaded = new Scene();
+		threaded.world.setStepThreadingImplementation(
+				threading.dThreadingImplementationGetFunctions(), threading);
+
+		for (int s = 0; s < STEP_COUNT * 2; s++) {
+			threaded.step(true);
+		}
+
+		for (DBody b: threaded.bodies) {
+			assertEquals(RADIUS, b.getPosition().get2(), 0.05);
+		}
+
+		threaded.world.setStepThreadingImplementation(null, null);
+		threaded.destroy();
+	}
+
+	/**
+	 * A hinged chain is one island, so all threads go to the stages inside it.
+	 */
+	private static DBody[] createChain(DWorld world) {
+		DBody[] chain = new DBody[CHAIN_LENGTH];
+		DMass m = OdeHelper.createMass();
+		m.setSphere(1, RADIUS);
+		for (int i = 0; i < CHAIN_LENGTH; i++) {
+			chain[i] = OdeHelper.createBody(world);
+			chain[i].setMass(m);
+			chain[i].setPosition(i * 1.1, 0, 10);
+			DHingeJoint hinge = OdeHelper.createHingeJoint(world);
+			if (i == 0) {
+				hinge.attach(chain[i], null);
+			} else {
+				hinge.attach(chain[i - 1], chain[i]);
+			}
+			hinge.setAnchor(i * 1.1 - 0.55, 0, 10);
+			hinge.setAxis(0, 1, 0);
+		}
+		return chain;
+	}
+
+	@Test
+	public void testQuickStepIslandMatchesSelfThreaded() {
+		DWorld reference = OdeHelper.createWorld();
+		DWorld threaded = OdeHelper.createWorld();
+		reference.setGravity(0, 0, -9.81);
+		threaded.setGravity(0, 0, -9.81);
+		threaded.setStepThreadingImplementation(
+				threading.dThreadingImplementationGetFunctions(), threading);
+		DBody[] chain0 = createChain(reference);
+		DBody[] chain1 = createChain(threaded);
+
+		// quickstep reorders the constraints randomly
+		for (int s = 0; s < STEP_COUNT; s++) {
+			DMisc.dRandSetSeed(s);
+			reference.quickStep(STEP_SIZE);
+			DMisc.dRandSetSeed(s);
+			threaded.quickStep(STEP_SIZE);
+		}
+
+		for (int i = 0; i < CHAIN_LENGTH; i++) {
+			DVector3C p0 = chain0[i].getPosition();
+			DVector3C p1 = chain1[i].getPosition();
+			assertEquals(p0.get0(), p1.get0(), 1e-9);
+			assertEquals(p0.get1(), p1.get1(), 1e-9);
+			assertEquals(p0.get2(), p1.get2(), 1e-9);
+		}
+		// the chain has swung down from its anchor
+		assertTrue(chain1[CHAIN_LENGTH - 1].getPosition().get2() < 9);
+
+		threaded.setStepThreadingImplementation(null, null);
+		threaded.destroy();
+		reference.destroy();
+	}
+
+	/**
+	 * A sheet of spheres joined to their neighbours, lying on a plane. The contacts 
+	 * are created in body order, so the whole sheet is one island that steps 
+	 * the same way every time.
+	 */
+	private static class Sheet {
+		final DWorld world;
+		final DGeom plane;
+		final DJointGroup contactGroup;
+		final DBody[] bodies;
+		final DGeom[] geoms;
+
+		Sheet() {
+			world = OdeHelper.createWorld();
+			world.setGravity(0, 0, -9.81);
+			world.setQuickStepParallelSOR(true);
+			plane = OdeHelper.createPlane(null, 0, 0, 1, 0);
+			contactGroup = OdeHelper.createJointGroup();
+			bodies = new DBody[SHEET_SIZE * SHEET_SIZE];
+			geoms = new DGeom[bodies.length];
+			DMass m = OdeHelper.createMass();
+			m.setSphere(1, RADIUS);
+			for (int i = 0; i < bodies.length; i++) {
+				int x = i % SHEET_SIZE;
+				int y = i / SHEET_SIZE;
+				bodies[i] = OdeHelper.createBody(world);
+				bodies[i].setMass(m);
+				bodies[i].setPosition(x * 1.1, y * 1.1, RADIUS + 0.05 * ((x + y) % 3));
+				geoms[i] = OdeHelper.createSphere(null, RADIUS);
+				geoms[i].setBody(bodies[i]);
+				if (x > 0) {
+					join(bodies[i - 1], bodies[i]);
+				}
+				if (y > 0) {
+					join(bodies[i - SHEET_SIZE], bodies[i]);
+				}
+			}
+		}
+
+		private void join(DBody b1, DBody b2) {
+			DBallJoint ball = OdeHelper.createBallJoint(world);
+			ball.attach(b1, b2);
+			DVector3C p1 = b1.getPosition();
+			DVector3C p2 = b2.getPosition();
+			ball.setAnchor((p1.get0() + p2.get0()) / 2, (p1.get1() + p2.get1()) / 2, 
+					(p1.get2() + p2.get2()) / 2);
+		}
+
+		void step(int seed) {
+			for (int i = 0; i < bodies.length; i++) {
+				DContactBuffer contacts = new DContactBuffer(1);
+				if (OdeHelper.collide(geoms[i], plane, 1, contacts.getGeomBuffer()) != 0) {
+					DContact contact = contacts.get(0);
+					contact.surface.mode = OdeConstants.dContactApprox1;
+					contact.surface.mu = 0.5;
+					DJoint c = OdeHelper.createContactJoint(world, contactGroup, contact);
+					c.attach(bodies[i], null);
+				}
+			}
+			// quickstep reorders the constraints randomly
+			DMisc.dRandSetSeed(seed);
+			world.quickStep(STEP_SIZE);
+			contactGroup.empty();
+		}
+
+		void destroy() {
+			contactGroup.destroy();
+			for (DGeom g: geoms) {
+				g.destroy();
+			}
+			plane.destroy();
+			world.destroy();
+		}
+	}
+
+	@Test
+	public void testParallelSORMatchesSelfThreaded() {
+		Sheet reference = new Sheet();
+		Sheet threaded = new Sheet();
+		assertTrue(threaded.world.getQuickStepParallelSOR());
+		threaded.world.setStepThreadingImplementation(
+				threading.dThreadingImplementationGetFunctions(), threading);
+
+		for (int s = 0; s < STEP_COUNT; s++) {
+			reference.step(s);
+			threaded.step(s);
+		}
+
+		for (int i = 0; i < reference.bodies.length; i++) {
+			DVector3C p0 = reference.bodies[i].getPosition();
+			DVector3C p1 = threaded.bodies[i].getPosition();
+			assertEquals(p0.get0(), p1.get0(), 1e-9);
+			assertEquals(p0.get1(), p1.get1(), 1e-9);
+			assertEquals(p0.get2(), p1.get2(), 1e-9);
+			assertEquals(RADIUS, p1.get2(), 0.05);
+		}
+
+		threaded.world.setStepThreadingImplementation(null, null);
+		threaded.destroy();
+		reference.destroy();
+	}
+
+	/**
+	 * With a tolerance the solver of an island stops early once the island 
+	 * has come to rest.
+	 */
+	@Test
+	public void testQuickStepTolerance() {
+		for (boolean parallelSOR: new boolean[] { false, true }) {
+			Scene threaded = new Scene();
+			threaded.world.setStepThreadingImplementation(
+					threading.dThreadingImplementationGetFunctions(), threading);
+			threaded.world.setQuickStepParallelSOR(parallelSOR);
+			threaded.world.setQuickStepNumIterations(MAX_ITERATIONS);
+			threaded.world.setQuickStepMinIterations(MIN_ITERATIONS);
+			threaded.world.setQuickStepTolerance(TOLERANCE);
+			assertEquals(MIN_ITERATIONS, threaded.world.getQuickStepMinIterations());
+			assertEquals(TOLERANCE, threaded.world.getQuickStepTolerance(), 0);
+			threaded.world.setStepReportEnabled(true);
+
+			for (int s = 0; s < STEP_COUNT * 2; s++) {
+				threaded.step(true);
+			}
+
+			for (DBody b: threaded.bodies) {
+				assertEquals(RADIUS, b.getPosition().get2(), 0.05);
+			}
+			DWorldStepReport report = threaded.world.getStepReport();
+			assertEquals(ISLAND_COUNT, report.getIslandCount());
+			for (int i = 0; i < report.getIslandCount(); i++) {
+				assertTrue(report.getIslandIterationCount(i) >= MIN_ITERATIONS);
+				assertTrue(report.getIslandIterationCount(i) < MAX_ITERATIONS / 4);
+			}
+
+			threaded.world.setStepThreadingImplementation(null, null);
+			threaded.destroy();
+		}
+	}
+
+	@Test
+	public void testStepReport() {
+		Scene threaded = new Scene();
+		threaded.world.setStepThreadingImplementation(
+				threading.dThreadingImplementationGetFunctions(), threading);
+		assertNull(threaded.world.getStepReport());
+		threaded.world.setStepReportEnabled(true);
+
+		for (int s = 0; s < 10; s++) {
+			threaded.step(false);
+		}
+
+		DWorldStepReport report = threaded.world.getStepReport();
+		assertNotNull(report);
+		assertEquals(ISLAND_COUNT, report.getIslandCount());
+		assertEquals(THREAD_COUNT, report.getThreadCount());
+		int bodies = 0;
+		for (int i = 0; i < report.getIslandCount(); i++) {
+			assertEquals(2, report.getIslandBodyCount(i));
+			assertTrue(report.getIslandJointCount(i) >= 1);
+			assertEquals(0, report.getIslandIterationCount(i)); // not stepped by QuickStep
+			bodies += report.getIslandBodyCount(i);
+		}
+		assertEquals(threaded.bodies.length, bodies);
+		assertTrue(report.getElapsedTime() > 0);
+		assertTrue(report.getSteppingTime() >= report.getLongestIslandSteppingTime());
+		assertTrue(report.getThreadUtilization() >= 0 && report.getThreadUtilization() <= 1);
+
+		threaded.world.setStepReportEnabled(false);
+		assertNull(threaded.world.getStepReport());
+		threaded.world.setStepThreadingImplementation(null, null);
+		threaded.destroy();
+	}
+
+	@Test
+	public void testPoolRestart() {
+		threading.shutdownProcessing();
+		pool.waitIdleState();
+		threading.dThreadingImplementationCleanupForRestart();
+		pool.serveMultiThreadedImplementation(threading);
+
+		Scene threaded = new Scene();
+		threaded.world.setStepThreadingImplementation(
+				threading.dThreadingImplementationGetFunctions(), threading);
+		for (int s = 0; s < 10; s++) {
+			threaded.step(false);
+		}
+		threaded.world.setStepThreadingImplementation(null, null);
+		threaded.destroy();
+	}
+}
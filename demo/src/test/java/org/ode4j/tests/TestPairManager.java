@@ -0,0 +1,302 @@
+package org.ode4j.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.ode4j.ode.DBody;
+import org.ode4j.ode.DContact;
+import org.ode4j.ode.DContactBuffer;
+import org.ode4j.ode.DContactGeom;
+import org.ode4j.ode.DContactGeomBuffer;
+import org.ode4j.ode.DGeom;
+import org.ode4j.ode.DJointGroup;
+import org.ode4j.ode.DMass;
+import org.ode4j.ode.DPairManager;
+import org.ode4j.ode.DPairManager.DPairListener;
+import org.ode4j.ode.DSapSpace;
+import org.ode4j.ode.DSpace;
+import org.ode4j.ode.DSphere;
+import org.ode4j.ode.DWorld;
+import org.ode4j.ode.OdeHelper;
+
+/**
+ * The pair manager has to report the events of the touching pairs and the
+ * contacts of a fresh narrow phase, also when it reuses contacts.
+ */
+public class TestPairManager {
+
+	private static final int MAX_CONTACTS = 8;
+
+	private DSpace space;
+	private DPairManager pm;
+	private final Recorder recorder = new Recorder();
+
+	/**
+	 * Records the events and checks the contacts.
+	 */
+	private static class Recorder implements DPairListener {
+		final List<String> events = new ArrayList<String>();
+		final Set<String> touching = new HashSet<String>();
+		// tolerance of the comparison with a fresh narrow phase
+		double tolerance = 1e-12;
+
+		@Override
+		public void begin(Object data, DGeom o1, DGeom o2, DContactGeomBuffer contacts, int count) {
+			events.add("begin " + key(o1, o2));
+			assertTrue(touching.add(key(o1, o2)));
+			assertContacts(o1, o2, contacts, count, tolerance);
+		}
+
+		@Override
+		public void persist(Object data, DGeom o1, DGeom o2, DContactGeomBuffer contacts, int count) {
+			events.add("persist " + key(o1, o2));
+			assertTrue(touching.contains(key(o1, o2)));
+			assertContacts(o1, o2, contacts, count, tolerance);
+		}
+
+		@Override
+		public void end(Object data, DGeom o1, DGeom o2) {
+			events.add("end " + key(o1, o2));
+			assertTrue(touching.remove(key(o1, o2)));
+		}
+	}
+
+	@Before
+	public void setUp() {
+		OdeHelper.initODE2(0);
+		space = OdeHelper.createHashSpace();
+		pm = OdeHelper.createPairManager(space, MAX_CONTACTS);
+	}
+
+	@After
+	public void tearDown() {
+		space.destroy();
+		OdeHelper.closeODE();
+	}
+
+	private static String key(DGeom o1, DGeom o2) {
+		int i1 = (Integer) o1.getData();
+		int i2 = (Integer) o2.getData();
+		return Math.min(i1, i2) + "/" + Math.max(i1, i2);
+	}
+
+	/**
+	 * The contacts have to be the same as those of a fresh narrow phase.
+	 */
+	private static void assertContacts(DGeom o1, DGeom o2, DContactGeomBuffer contacts, int count,
+			double tolerance) {
+		DContactGeomBuffer expected = new DContactGeomBuffer(MAX_CONTACTS);
+		assertEquals(OdeHelper.collide(o1, o2, MAX_CONTACTS, expected), count);
+		for (int i = 0; i < count; i++) {
+			DContactGeom e = expected.get(i);
+			DContactGeom c = contacts.get(i);
+			assertSame(o1, c.g1);
+			assertSame(o2, c.g2);
+			assertEquals(0, e.pos.distance(c.pos), tolerance);
+			assertEquals(0, e.normal.distance(c.normal), tolerance);
+			assertEquals(e.depth, c.depth, tolerance);
+		}
+	}
+
+	private void update() {
+		recorder.events.clear();
+		pm.update(null, recorder);
+	}
+
+	private DGeom box(DSpace s, int data, double x, double y, double z) {
+		DGeom g = OdeHelper.createBox(s, 1, 1, 1);
+		g.setData(data);
+		g.setPosition(x, y, z);
+		return g;
+	}
+
+	@Test
+	public void testEvents() {
+		DSphere s1 = OdeHelper.createSphere(space, 0.5);
+		DSphere s2 = OdeHelper.createSphere(space, 0.5);
+		s1.setData(1);
+		s2.setData(2);
+		s2.setPosition(0.9, 0, 0);
+		update();
+		assertEquals("[begin 1/2]", recorder.events.toString());
+		update();
+		assertEquals("[persist 1/2]", recorder.events.toString());
+		assertEquals(1, pm.getReusedCount());
+		// the AABBs still overlap, but the spheres do not touch
+		s2.setPosition(0.8, 0.8, 0);
+		update();
+		assertEquals("[end 1/2]", recorder.events.toString());
+		assertEquals(1, pm.getPairCount());
+		update();
+		assertTrue(recorder.events.isEmpty());
+		assertEquals(1, pm.getReusedCount());
+		s2.setPosition(5, 0, 0);
+		update();
+		assertTrue(recorder.events.isEmpty());
+		assertEquals(0, pm.getPairCount());
+		// touch again and destroy
+		s2.setPosition(0.5, 0.5, 0.5);
+		update();
+		assertEquals("[begin 1/2]", recorder.events.toString());
+		s2.destroy();
+		update();
+		assertEquals("[end 1/2]", recorder.events.toString());
+		assertEquals(0, pm.getPairCount());
+	}
+
+	@Test
+	public void testReuse() {
+		// a resting pyramid of boxes on a plane
+		DGeom plane = OdeHelper.createPlane(space, 0, 0, 1, 0);
+		plane.setData(0);
+		int n = 1;
+		DGeom top = null;
+		for (int layer = 0; layer < 4; layer++) {
+			for (int i = 0; i < 4 - layer; i++) {
+				top = box(space, n++, i + 0.5 * layer - 0.01 * layer, 0, 0.49 + layer * 0.99);
+			}
+		}
+		update();
+		int begins = recorder.events.size();
+		assertEquals(begins, recorder.touching.size());
+		assertTrue(begins >= 10);
+		assertEquals(0, pm.getReusedCount());
+		for (int i = 0; i < 3; i++) {
+			update();
+			assertEquals(begins, recorder.events.size());
+			assertEquals(pm.getPairCount(), pm.getReusedCount());
+		}
+		// small motions are tolerated, larger ones are not
+		pm.setTolerance(0.01, 0.01);
+		top.setPosition(top.getPosition().get0() + 0.005, 0, top.getPosition().get2());
+		recorder.tolerance = 0.02;
+		update();
+		assertEquals(pm.getPairCount(), pm.getReusedCount());
+		recorder.tolerance = 1e-12;
+		top.setPosition(top.getPosition().get0() + 0.01, 0, top.getPosition().get2());
+		// the contacts are checked against a fresh narrow phase
+		update();
+		assertTrue(pm.getReusedCount() < pm.getPairCount());
+	}
+
+	@Test
+	public void testReset() {
+		DSphere s1 = OdeHelper.createSphere(space, 1);
+		DSphere s2 = OdeHelper.createSphere(space, 1);
+		s1.setData(1);
+		s2.setData(2);
+		s2.setPosition(1.5, 0, 0);
+		update();
+		s1.setRadius(0.8);
+		s2.setRadius(0.8);
+		pm.reset();
+		// the contacts are checked against a fresh narrow phase
+		update();
+		assertEquals("[persist 1/2]", recorder.events.toString());
+		assertEquals(0, pm.getReusedCount());
+	}
+
+	@Test
+	public void testNestedSpaces() {
+		Random r = new Random(4711);
+		DSpace nested1 = OdeHelper.createSimpleSpace(space);
+		DSpace nested2 = OdeHelper.createSapSpace(space, DSapSpace.AXES.XYZ);
+		List<DGeom> geoms = new ArrayList<DGeom>();
+		DSpace[] spaces = { space, nested1, nested2 };
+		for (int i = 0; i < 60; i++) {
+			geoms.add(box(spaces[i % 3], i, 4 * r.nextDouble(), 4 * r.nextDouble(), 4 * r.nextDouble()));
+		}
+		for (int step = 0; step < 3; step++) {
+			update();
+			// all touching pairs
+			Set<String> expected = new HashSet<String>();
+			DContactGeomBuffer contacts = new DContactGeomBuffer(MAX_CONTACTS);
+			for (int i = 0; i < geoms.size(); i++) {
+				for (int j = i + 1; j < geoms.size(); j++) {
+					if (OdeHelper.collide(geoms.get(i), geoms.get(j), MAX_CONTACTS, contacts) > 0) {
+						expected.add(key(geoms.get(i), geoms.get(j)));
+					}
+				}
+			}
+			assertFalse(expected.isEmpty());
+			assertEquals(expected, recorder.touching);
+			for (int i = 0; i < geoms.size(); i += 4) {
+				geoms.get(i).setPosition(4 * r.nextDouble(), 4 * r.nextDouble(), 4 * r.nextDouble());
+			}
+		}
+	}
+
+	@Test
+	public void testSimulation() {
+		// a stack of boxes comes to rest and the narrow phase is skipped
+		DWorld world = OdeHelper.createWorld();
+		world.setGravity(0, 0, -9.81);
+		DJointGroup contactGroup = OdeHelper.createJointGroup();
+		DGeom plane = OdeHelper.createPlane(space, 0, 0, 1, 0);
+		plane.setData(0);
+		DGeom top = null;
+		for (int i = 0; i < 4; i++) {
+			DBody body = OdeHelper.createBody(world);
+			DMass m = OdeHelper.createMass();
+			m.setBox(1, 1, 1, 1);
+			body.setMass(m);
+			body.setPosition(0, 0, 0.5 + i * 1.0);
+			top = box(space, i + 1, 0, 0, 0);
+			top.setBody(body);
+		}
+		// the contact joints keep their DContact
+		final DContactBuffer contacts = new DContactBuffer(4 * MAX_CONTACTS);
+		final int[] used = new int[1];
+		final DWorld w = world;
+		final DJointGroup g = contactGroup;
+		DPairListener listener = new DPairListener() {
+			private void create(DContactGeomBuffer geoms, int count) {
+				for (int i = 0; i < count; i++) {
+					DContact c = contacts.get(used[0]++);
+					c.geom.pos.set(geoms.get(i).pos);
+					c.geom.normal.set(geoms.get(i).normal);
+					c.geom.depth = geoms.get(i).depth;
+					c.geom.g1 = geoms.get(i).g1;
+					c.geom.g2 = geoms.get(i).g2;
+					c.surface.mu = 0.5;
+					OdeHelper.createContactJoint(w, g, c).attach(
+							c.geom.g1.getBody(), c.geom.g2.getBody());
+				}
+			}
+			@Override
+			public void begin(Object data, DGeom o1, DGeom o2, DContactGeomBuffer geoms, int count) {
+				create(geoms, count);
+			}
+			@Override
+			public void persist(Object data, DGeom o1, DGeom o2, DContactGeomBuffer geoms, int count) {
+				create(geoms, count);
+			}
+			@Override
+			public void end(Object data, DGeom o1, DGeom o2) {
+			}
+		};
+		int reused = 0;
+		for (int step = 0; step < 300; step++) {
+			pm.update(null, listener);
+			reused += pm.getReusedCount();
+			used[0] = 0;
+			world.quickStep(0.01);
+			contactGroup.empty();
+		}
+		assertEquals(4, pm.getPairCount());
+		assertTrue(reused > 0);
+		// the stack is still standing
+		assertEquals(3.5, top.getPosition().get2(), 0.05);
+		assertEquals(0, top.getPosition().get0(), 0.05);
+		contactGroup.destroy();
+		world.destroy();
+	}
+}
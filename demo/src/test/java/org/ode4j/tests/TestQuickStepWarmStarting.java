@@ -0,0 +1,179 @@
+/*************************************************************************
+ *                                                                       *
+ * Open Dynamics Engine 4J, Copyright (C) 2009-2014 Tilmann Zaeschke     *
+ * All rights reserved.  Email: ode4j@gmx.de   Web: www.ode4j.org        *
+ *                                                                       *
+ * This library is free software; you can redistribute it and/or         *
+ * modify it under the terms of EITHER:                                  *
+ *   (1) The GNU Lesser General Public License as published by the Free  *
+ *       Software Foundation; either version 2.1 of the License, or (at  *
+ *       your option) any later version. The text of the GNU Lesser      *
+ *       General Public License is included with this library in the     *
+ *       file LICENSE.TXT.                                               *
+ *   (2) The BSD-style license that is included with this library in     *
+ *       the file ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT.         *
+ *                                                                       *
+ * This library is distributed in the hope that it will be useful,       *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the files    *
+ * LICENSE.TXT, ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT for more   *
+ * details.                                                              *
+ *                                                                       *
+ *************************************************************************/
+package org.ode4j.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.ode4j.ode.DBallJoint;
+import org.ode4j.ode.DBody;
+import org.ode4j.ode.DBox;
+import org.ode4j.ode.DContact;
+import org.ode4j.ode.DContactBuffer;
+import org.ode4j.ode.DGeom;
+import org.ode4j.ode.DGeom.DNearCallback;
+import org.ode4j.ode.DJoint;
+import org.ode4j.ode.DJointGroup;
+import org.ode4j.ode.DMass;
+import org.ode4j.ode.DMisc;
+import org.ode4j.ode.DSpace;
+import org.ode4j.ode.DWorld;
+import org.ode4j.ode.OdeConstants;
+import org.ode4j.ode.OdeHelper;
+
+/**
+ * Warm starting should give the results of many cold started QuickStep
+ * iterations with few iterations.
+ */
+public class TestQuickStepWarmStarting {
+
+	private static final int CHAIN_LINKS = 30;
+	private static final double LINK_LENGTH = 0.2;
+	private static final int STACK_HEIGHT = 10;
+
+	@Test
+	public void testSetWarmStarting() {
+		OdeHelper.initODE2(0);
+		DWorld world = OdeHelper.createWorld();
+		assertFalse(world.getQuickStepWarmStarting());
+		world.setQuickStepWarmStarting(true);
+		assertTrue(world.getQuickStepWarmStarting());
+		world.setQuickStepWarmStarting(false);
+		assertFalse(world.getQuickStepWarmStarting());
+		world.destroy();
+		OdeHelper.closeODE();
+	}
+
+	/**
+	 * Returns how far a heavy weight hanging on a chain of ball joints 
+	 * stretches the chain.
+	 */
+	private static double chainStretch(int iterations, boolean warmStarting) {
+		OdeHelper.initODE2(0);
+		DWorld world = OdeHelper.createWorld();
+		world.setGravity(0, 0, -9.81);
+		world.setQuickStepNumIterations(iterations);
+		world.setQuickStepWarmStarting(warmStarting);
+		DBody prev = null;
+		DBody last = null;
+		for (int i = 0; i < CHAIN_LINKS; i++) {
+			DBody b = OdeHelper.createBody(world);
+			DMass m = OdeHelper.createMass();
+			m.setSphereTotal(i == CHAIN_LINKS - 1 ? 20 : 1, 0.1);
+			b.setMass(m);
+			b.setPosition(0, 0, -LINK_LENGTH * (i + 1));
+			DBallJoint j = OdeHelper.createBallJoint(world);
+			j.attach(b, prev);
+			j.setAnchor(0, 0, -LINK_LENGTH * i);
+			prev = last = b;
+		}
+		for (int s = 0; s < 400; s++) {
+			DMisc.dRandSetSeed(s);
+			world.quickStep(0.01);
+		}
+		double stretch = -last.getPosition().get2() - LINK_LENGTH * CHAIN_LINKS;
+		world.destroy();
+		OdeHelper.closeODE();
+		return stretch;
+	}
+
+	@Test
+	public void testChain() {
+		double cold10 = chainStretch(10, false);
+		double cold40 = chainStretch(40, false);
+		double warm10 = chainStretch(10, true);
+		assertTrue(cold10 > 0);
+		assertTrue("warm " + warm10 + " cold " + cold10, 
+				warm10 > 0 && warm10 < cold10 * 0.5);
+		assertTrue("warm " + warm10 + " cold(40) " + cold40, warm10 < cold40 * 1.5);
+	}
+
+	/**
+	 * Returns how far the top box of a stack of boxes sinks into the stack. 
+	 * Contact joints are recreated every step, so the impulses are only 
+	 * reused if the contact cache finds them.
+	 */
+	private static double stackSag(int iterations, boolean warmStarting) {
+		OdeHelper.initODE2(0);
+		final DWorld world = OdeHelper.createWorld();
+		world.setGravity(0, 0, -9.81);
+		world.setQuickStepNumIterations(iterations);
+		world.setQuickStepWarmStarting(warmStarting);
+		world.setCFM(1e-5);
+		DSpace space = OdeHelper.createSimpleSpace();
+		final DJointGroup contactGroup = OdeHelper.createJointGroup();
+		OdeHelper.createPlane(space, 0, 0, 1, 0);
+		DBody top = null;
+		for (int i = 0; i < STACK_HEIGHT; i++) {
+			DBody b = OdeHelper.createBody(world);
+			DMass m = OdeHelper.createMass();
+			m.setBox(1, 1, 1, 1);
+			b.setMass(m);
+			b.setPosition(0, 0, 0.5 + i);
+			DBox box = OdeHelper.createBox(space, 1, 1, 1);
+			box.setBody(b);
+			top = b;
+		}
+		DNearCallback nearCallback = new DNearCallback() {
+			@Override
+			public void call(Object data, DGeom o1, DGeom o2) {
+				DContactBuffer contacts = new DContactBuffer(4);
+				int n = OdeHelper.collide(o1, o2, 4, contacts.getGeomBuffer());
+				for (int i = 0; i < n; i++) {
+					DContact contact = contacts.get(i);
+					contact.surface.mode = OdeConstants.dContactApprox1;
+					contact.surface.mu = 0.5;
+					DJoint c = OdeHelper.createContactJoint(world, contactGroup, contact);
+					c.attach(o1.getBody(), o2.getBody());
+				}
+			}
+		};
+		double sag = 0;
+		for (int s = 0; s < 300; s++) {
+			DMisc.dRandSetSeed(s);
+			space.collide(null, nearCallback);
+			world.quickStep(0.01);
+			contactGroup.empty();
+			if (s >= 100) {
+				sag = Math.max(sag, 0.5 + STACK_HEIGHT - 1 - top.getPosition().get2());
+			}
+		}
+		assertEquals(0, top.getPosition().get0(), 0.1);
+		assertEquals(0, top.getPosition().get1(), 0.1);
+		contactGroup.destroy();
+		space.destroy();
+		world.destroy();
+		OdeHelper.closeODE();
+		return sag;
+	}
+
+	@Test
+	public void testStack() {
+		double cold10 = stackSag(10, false);
+		double warm10 = stackSag(10, true);
+		assertTrue(cold10 > 0);
+		assertTrue("warm " + warm10 + " cold " + cold10, warm10 < cold10 * 0.5);
+	}
+}
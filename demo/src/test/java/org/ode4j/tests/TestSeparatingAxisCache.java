@@ -0,0 +1,199 @@
+/*************************************************************************
+ *                                                                       *
+ * Open Dynamics Engine 4J, Copyright (C) 2009-2014 Tilmann Zaeschke     *
+ * All rights reserved.  Email: ode4j@gmx.de   Web: www.ode4j.org        *
+ *                                                                       *
+ * This library is free software; you can redistribute it and/or         *
+ * modify it under the terms of EITHER:                                  *
+ *   (1) The GNU Lesser General Public License as published by the Free  *
+ *       Software Foundation; either version 2.1 of the License, or (at  *
+ *       your option) any later version. The text of the GNU Lesser      *
+ *       General Public License is included with this library in the     *
+ *       file LICENSE.TXT.                                               *
+ *   (2) The BSD-style license that is included with this library in     *
+ *       the file ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT.         *
+ *                                                                       *
+ * This library is distributed in the hope that it will be useful,       *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the files    *
+ * LICENSE.TXT, ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT for more   *
+ * details.                                                              *
+ *                                                                       *
+ *************************************************************************/
+package org.ode4j.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.ode4j.math.DMatrix3;
+import org.ode4j.math.DVector3;
+import org.ode4j.ode.DColliderFn;
+import org.ode4j.ode.DContactGeom;
+import org.ode4j.ode.DContactGeomBuffer;
+import org.ode4j.ode.DGeom;
+import org.ode4j.ode.OdeConfig;
+import org.ode4j.ode.OdeConstants;
+import org.ode4j.ode.OdeHelper;
+import org.ode4j.ode.OdeMath;
+import org.ode4j.ode.internal.DxConvex;
+
+/**
+ * The box-box and the convex-convex colliders test the separating axis of
+ * the last collision of a pair first. They have to give the same contacts
+ * with and without the cache, also when the cache is too small for all
+ * pairs.
+ */
+public class TestSeparatingAxisCache {
+
+	private static final int PAIRS = 20;
+	private static final int FRAMES = 200;
+	private static final int MAX_CONTACTS = 8;
+
+	private final DContactGeomBuffer contacts = new DContactGeomBuffer(MAX_CONTACTS);
+
+	@Before
+	public void beforeTest() {
+		OdeHelper.initODE2(0);
+	}
+
+	@After
+	public void afterTest() {
+		OdeConfig.setSeparatingAxisCacheSize(0);
+		OdeHelper.closeODE();
+	}
+
+	private static DGeom createConvex(boolean octahedron) {
+		double h = 0.5;
+		if (octahedron) {
+			double d = h / Math.sqrt(3);
+			double[] planes = {
+					1, 1, 1, d,    -1, 1, 1, d,    1, -1, 1, d,    -1, -1, 1, d,
+					1, 1, -1, d,   -1, 1, -1, d,   1, -1, -1, d,   -1, -1, -1, d };
+			for (int i = 0; i < planes.length; i += 4) {
+				planes[i] /= Math.sqrt(3);
+				planes[i + 1] /= Math.sqrt(3);
+				planes[i + 2] /= Math.sqrt(3);
+			}
+			double[] points = {
+					h, 0, 0,   -h, 0, 0,   0, h, 0,   0, -h, 0,   0, 0, h,   0, 0, -h };
+			int[] polygons = {
+					3, 0, 2, 4,   3, 2, 1, 4,   3, 3, 0, 4,   3, 1, 3, 4,
+					3, 2, 0, 5,   3, 1, 2, 5,   3, 0, 3, 5,   3, 3, 1, 5 };
+			return OdeHelper.createConvex(planes, 8, points, 6, polygons);
+		}
+		double[] planes = {
+				1, 0, 0, h,   0, 1, 0, h,   0, 0, 1, h,
+				0, 0, -1, h,  0, -1, 0, h,  -1, 0, 0, h };
+		double[] points = {
+				h, h, h,    -h, h, h,    h, -h, h,    -h, -h, h,
+				h, h, -h,   -h, h, -h,   h, -h, -h,   -h, -h, -h };
+		int[] polygons = {
+				4, 0, 2, 6, 4,
+				4, 1, 0, 4, 5,
+				4, 0, 1, 3, 2,
+				4, 3, 1, 5, 7,
+				4, 2, 3, 7, 6,
+				4, 5, 4, 6, 7 };
+		return OdeHelper.createConvex(planes, 6, points, 8, polygons);
+	}
+
+	/**
+	 * Moves the second geom of each pair on a circle around the first one,
+	 * so the pairs touch and separate again.
+	 * @return the contacts of all frames: count, then depth, position and
+	 * normal of each contact
+	 */
+	private double[] collideFrames(List<DGeom[]> pairs, DColliderFn collider, int flags) {
+		double[] result = new double[FRAMES * pairs.size() * (1 + MAX_CONTACTS * 7)];
+		int p = 0;
+		Random r = new Random(4711);
+		DMatrix3 R = new DMatrix3();
+		DVector3 axis = new DVector3();
+		for (int f = 0; f < FRAMES; f++) {
+			for (int i = 0; i < pairs.size(); i++) {
+				DGeom g1 = pairs.get(i)[0];
+				DGeom g2 = pairs.get(i)[1];
+				double angle = 0.05 * f + i;
+				double radius = 0.8 + 0.3 * Math.sin(0.1 * f + i);
+				g2.setPosition(radius * Math.cos(angle), radius * Math.sin(angle), 0.2 * i);
+				g1.setPosition(0, 0, 0.2 * i + 0.01 * (r.nextDouble() - 0.5));
+				axis.set(1, i, 0.5);
+				OdeMath.dRFromAxisAndAngle(R, axis, 0.02 * f);
+				g2.setRotation(R);
+				// update the positions, the convex collider is called directly
+				g1.getAABB();
+				g2.getAABB();
+				int n = collider.dColliderFn(g1, g2, flags | MAX_CONTACTS, contacts);
+				result[p++] = n;
+				for (int k = 0; k < n; k++) {
+					DContactGeom c = contacts.get(k);
+					result[p++] = c.depth;
+					result[p++] = c.pos.get0();
+					result[p++] = c.pos.get1();
+					result[p++] = c.pos.get2();
+					result[p++] = c.normal.get0();
+					result[p++] = c.normal.get1();
+					result[p++] = c.normal.get2();
+				}
+			}
+		}
+		return result;
+	}
+
+	private void assertSameContacts(List<DGeom[]> pairs, DColliderFn collider, int flags) {
+		OdeConfig.setSeparatingAxisCacheSize(0);
+		double[] expected = collideFrames(pairs, collider, flags);
+		int contacts = 0;
+		for (int i = 0; i < expected.length; i += 1 + MAX_CONTACTS * 7) {
+			contacts += (int) expected[i];
+		}
+		assertTrue(contacts > 0);
+		// a small cache forgets pairs all the time
+		for (int size : new int[] {4, 1024}) {
+			OdeConfig.setSeparatingAxisCacheSize(size);
+			assertArrayEquals("size " + size, expected, collideFrames(pairs, collider, flags), 0);
+		}
+	}
+
+	private static final DColliderFn COLLIDE = new DColliderFn() {
+		@Override
+		public int dColliderFn(DGeom o1, DGeom o2, int flags, DContactGeomBuffer contacts) {
+			return OdeHelper.collide(o1, o2, flags, contacts);
+		}
+	};
+
+	@Test
+	public void testBoxBox() {
+		List<DGeom[]> pairs = new ArrayList<DGeom[]>();
+		for (int i = 0; i < PAIRS; i++) {
+			pairs.add(new DGeom[] {
+					OdeHelper.createBox(1, 0.8, 1.2), OdeHelper.createBox(0.5, 0.7, 0.3) });
+		}
+		assertSameContacts(pairs, COLLIDE, 0);
+		assertSameContacts(pairs, COLLIDE, OdeConstants.CONTACTS_UNIMPORTANT);
+		for (DGeom[] pair : pairs) {
+			pair[0].destroy();
+			pair[1].destroy();
+		}
+	}
+
+	@Test
+	public void testConvexConvex() {
+		List<DGeom[]> pairs = new ArrayList<DGeom[]>();
+		for (int i = 0; i < PAIRS; i++) {
+			pairs.add(new DGeom[] { createConvex(i % 2 == 0), createConvex(i % 3 == 0) });
+		}
+		// the SAT collider, it is only used without LIBCCD
+		assertSameContacts(pairs, new DxConvex.CollideConvexConvex(), 0);
+		for (DGeom[] pair : pairs) {
+			pair[0].destroy();
+			pair[1].destroy();
+		}
+	}
+}
@@ -0,0 +1,182 @@
+package org.ode4j.tests;
+
+import static org.junit.Assert.*;
+import static org.ode4j.tests.SpaceTestUtil.key;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.ode4j.math.DVector3;
+import org.ode4j.ode.DBody;
+import org.ode4j.ode.DGeom;
+import org.ode4j.ode.DGeom.DNearCallback;
+import org.ode4j.ode.DSapSpace;
+import org.ode4j.ode.DSpace;
+import org.ode4j.ode.DWorld;
+import org.ode4j.ode.OdeHelper;
+
+/**
+ * With setSkipSleepingPairs(true), collide() has to report exactly the
+ * pairs of collide() in which a geom is on an enabled body or a space.
+ */
+public class TestSkipSleepingPairs {
+
+	private static final int N = 300;
+	private static final double EXTENT = 15;
+
+	private DWorld world;
+	private DGeom[] geoms;
+	private final Random r = new Random(4711);
+
+	@Before
+	public void setUp() {
+		OdeHelper.initODE2(0);
+		world = OdeHelper.createWorld();
+	}
+
+	@After
+	public void tearDown() {
+		world.destroy();
+		OdeHelper.closeODE();
+	}
+
+	private void fill(DSpace space, DSpace nested) {
+		geoms = new DGeom[N + 1];
+		for (int i = 0; i < N; i++) {
+			DSpace s = (nested != null && i % 10 == 0) ? nested : space;
+			double size = 0.5 + 2 * r.nextDouble();
+			DGeom g = i % 2 == 0 ? OdeHelper.createSphere(s, size / 2) : OdeHelper.createBox(s, size, size, size);
+			// every 4th geom is static
+			if (i % 4 != 0) {
+				DBody b = OdeHelper.createBody(world);
+				g.setBody(b);
+				if (r.nextInt(10) != 0) {
+					b.disable();
+				}
+			}
+			g.setPosition(r.nextDouble() * EXTENT, r.nextDouble() * EXTENT, r.nextDouble() * EXTENT);
+			g.setData(i);
+			geoms[i] = g;
+		}
+		geoms[N] = OdeHelper.createPlane(space, 0, 0, 1, 1);
+		geoms[N].setData(N);
+	}
+
+	private static boolean isActive(DGeom g) {
+		return g instanceof DSpace || (g.getBody() != null && g.getBody().isEnabled());
+	}
+
+	private static Set<String> pairs(DSpace space, boolean threaded, final boolean filter) {
+		final Set<String> pairs = new HashSet<String>();
+		DNearCallback callback = new DNearCallback() {
+			@Override
+			public void call(Object data, DGeom o1, DGeom o2) {
+				if (!filter || isActive(o1) || isActive(o2)) {
+					assertTrue(pairs.add(key(o1, o2)));
+				}
+			}
+		};
+		if (threaded) {
+			space.collideThreaded(null, callback);
+		} else {
+			space.collide(null, callback);
+		}
+		return pairs;
+	}
+
+	private void assertSkipped(DSpace space) {
+		space.setSkipSleepingPairs(false);
+		Set<String> expected = pairs(space, false, true);
+		assertFalse(expected.isEmpty());
+		space.setSkipSleepingPairs(true);
+		assertEquals(expected, pairs(space, false, false));
+		assertEquals(expected, pairs(space, true, false));
+	}
+
+	private void checkSpace(DSpace space, DSpace nested) {
+		fill(space, nested);
+		assertFalse(space.getSkipSleepingPairs());
+		space.setSkipSleepingPairs(true);
+		assertTrue(space.getSkipSleepingPairs());
+		if (nested != null) {
+			nested.setSkipSleepingPairs(true);
+		}
+		assertSkipped(space);
+		for (int step = 0; step < 10; step++) {
+			for (int i = step % 3; i < N; i += 3) {
+				DBody b = geoms[i].getBody();
+				if (b != null) {
+					// wake up or fall asleep
+					if (b.isEnabled()) {
+						b.disable();
+					} else if (r.nextInt(3) == 0) {
+						b.enable();
+					}
+				}
+				if (i % 7 == 0) {
+					DVector3 p = new DVector3(geoms[i].getPosition());
+					geoms[i].setPosition(p.get0() + r.nextGaussian(), p.get1(), p.get2() + r.nextGaussian());
+				}
+			}
+			if (step == 5) {
+				// removed and added
+				geoms[3].destroy();
+				geoms[3] = OdeHelper.createBox(space, 3, 3, 3);
+				geoms[3].setPosition(EXTENT / 2, EXTENT / 2, EXTENT / 2);
+				geoms[3].setData(3);
+				geoms[5].disable();
+			}
+			assertSkipped(space);
+		}
+		space.destroy();
+	}
+
+	@Test
+	public void testSimpleSpace() {
+		checkSpace(OdeHelper.createSimpleSpace(), null);
+	}
+
+	@Test
+	public void testHashSpace() {
+		checkSpace(OdeHelper.createHashSpace(), null);
+	}
+
+	@Test
+	public void testSapSpace() {
+		checkSpace(OdeHelper.createSapSpace(DSapSpace.AXES.XYZ), null);
+	}
+
+	@Test
+	public void testIncrementalSapSpace() {
+		checkSpace(OdeHelper.createIncrementalSapSpace(DSapSpace.AXES.XYZ), null);
+	}
+
+	@Test
+	public void testQuadTreeSpace() {
+		DVector3 center = new DVector3(EXTENT / 2, EXTENT / 2, EXTENT / 2);
+		DVector3 extents = new DVector3(EXTENT, EXTENT, EXTENT);
+		checkSpace(OdeHelper.createQuadTreeSpace(center, extents, 4), null);
+	}
+
+	@Test
+	public void testDynamicTreeSpace() {
+		checkSpace(OdeHelper.createDynamicTreeSpace(), null);
+	}
+
+	@Test
+	public void testLooseOctreeSpace() {
+		checkSpace(OdeHelper.createLooseOctreeSpace(), null);
+	}
+
+	@Test
+	public void testNestedSpace() {
+		DSpace space = OdeHelper.createSapSpace(DSapSpace.AXES.XZY);
+		DSpace nested = OdeHelper.createDynamicTreeSpace(space);
+		nested.setData("nested");
+		checkSpace(space, nested);
+	}
+}
@@ -0,0 +1,207 @@
+package org.ode4j.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.ode4j.math.DVector3;
+import org.ode4j.ode.DContactGeom;
+import org.ode4j.ode.DContactGeomBuffer;
+import org.ode4j.ode.DGeom;
+import org.ode4j.ode.DRay;
+import org.ode4j.ode.DSapSpace;
+import org.ode4j.ode.DSpace;
+import org.ode4j.ode.OdeHelper;
+
+/**
+ * The ray queries of the spaces have to find the same hits as a DRay that
+ * is collided with each geom.
+ */
+public class TestSpaceRaycast {
+
+	private static final int N = 400;
+	private static final int RAYS = 200;
+	private static final double EXTENT = 20;
+
+	private final List<DGeom> geoms = new ArrayList<DGeom>();
+	private final Random r = new Random(4711);
+	private DRay ray;
+
+	@Before
+	public void setUp() {
+		OdeHelper.initODE2(0);
+		ray = OdeHelper.createRay(null, 1);
+		ray.setClosestHit(true);
+	}
+
+	@After
+	public void tearDown() {
+		ray.destroy();
+		OdeHelper.closeODE();
+	}
+
+	private void fill(DSpace space, DSpace nested) {
+		for (int i = 0; i < N; i++) {
+			DSpace s = (nested != null && i % 4 == 0) ? nested : space;
+			double size = 0.2 + 2 * r.nextDouble();
+			DGeom g;
+			switch (i % 3) {
+			case 0:
+				g = OdeHelper.createSphere(s, size / 2);
+				break;
+			case 1:
+				g = OdeHelper.createCapsule(s, size / 4, size);
+				break;
+			default:
+				g = OdeHelper.createBox(s, size, size / 2, size);
+			}
+			g.setPosition(r.nextDouble() * EXTENT, r.nextDouble() * EXTENT, r.nextDouble() * EXTENT);
+			geoms.add(g);
+		}
+		geoms.get(7).disable();
+		geoms.add(OdeHelper.createPlane(space, 0, 0, 1, -1));
+	}
+
+	/** @return hits of the ray with all enabled geoms, sorted */
+	private double[] expectedHits(DVector3 start, DVector3 dir, double length, List<DGeom> hitGeoms) {
+		ray.set(start, dir);
+		ray.setLength(length);
+		DContactGeomBuffer contacts = new DContactGeomBuffer(1);
+		List<double[]> hits = new ArrayList<double[]>();
+		for (int i = 0; i < geoms.size(); i++) {
+			DGeom g = geoms.get(i);
+			if (g.isEnabled() && OdeHelper.collide(ray, g, 1, contacts) == 1) {
+				hits.add(new double[] {contacts.get(0).depth, i});
+			}
+		}
+		double[] depths = new double[hits.size()];
+		for (int i = 0; i < depths.length; i++) {
+			depths[i] = hits.get(i)[0];
+		}
+		Arrays.sort(depths);
+		if (hitGeoms != null) {
+			for (double[] h : hits) {
+				hitGeoms.add(geoms.get((int) h[1]));
+			}
+		}
+		return depths;
+	}
+
+	private void randomRay(DVector3 start, DVector3 dir) {
+		start.set(r.nextDouble() * EXTENT, r.nextDouble() * EXTENT, -2 + 4 * r.nextDouble());
+		if (r.nextInt(4) == 0) {
+			start.set(-5, -5, -5);
+		}
+		dir.set(r.nextGaussian(), r.nextGaussian(), r.nextGaussian());
+		// not normalized
+		dir.scale(3);
+	}
+
+	private void checkSpace(DSpace space, DSpace nested) {
+		fill(space, nested);
+		DVector3 start = new DVector3();
+		DVector3 dir = new DVector3();
+		DContactGeom result = new DContactGeom();
+		DContactGeomBuffer hits = new DContactGeomBuffer(5);
+		double[] rays = new double[7 * RAYS];
+		double[] closest = new double[RAYS];
+		int hitCount = 0;
+		for (int i = 0; i < RAYS; i++) {
+			randomRay(start, dir);
+			double length = 5 + 30 * r.nextDouble();
+			List<DGeom> hitGeoms = new ArrayList<DGeom>();
+			double[] expected = expectedHits(start, dir, length, hitGeoms);
+
+			boolean hit = space.raycastClosest(start, dir, length, result);
+			assertEquals(expected.length > 0, hit);
+			closest[i] = hit ? expected[0] : -1;
+			if (hit) {
+				hitCount++;
+				assertEquals(expected[0], result.depth, 1e-9);
+				assertTrue(hitGeoms.contains(result.g2));
+				assertNull(result.g1);
+				DVector3 p = new DVector3(dir);
+				p.normalize();
+				p.scale(result.depth).add(start);
+				assertEquals(0, p.distance(result.pos), 1e-9);
+			}
+
+			result.g2 = null;
+			assertEquals(expected.length > 0, space.raycastAny(start, dir, length, result));
+			if (expected.length > 0) {
+				assertTrue(hitGeoms.contains(result.g2));
+			}
+
+			int n = space.raycastAll(start, dir, length, hits, 5);
+			assertEquals(Math.min(5, expected.length), n);
+			for (int k = 0; k < n; k++) {
+				assertEquals(expected[k], hits.get(k).depth, 1e-9);
+				assertTrue(hitGeoms.contains(hits.get(k).g2));
+			}
+
+			for (int k = 0; k < 3; k++) {
+				rays[7 * i + k] = start.get(k);
+				rays[7 * i + 3 + k] = dir.get(k);
+			}
+			rays[7 * i + 6] = length;
+		}
+		assertTrue(hitCount > RAYS / 4);
+		assertTrue(hitCount < RAYS);
+
+		DContactGeomBuffer results = new DContactGeomBuffer(RAYS);
+		assertEquals(hitCount, space.raycastClosest(rays, RAYS, results));
+		for (int i = 0; i < RAYS; i++) {
+			if (closest[i] < 0) {
+				assertNull(results.get(i).g2);
+			} else {
+				assertNotNull(results.get(i).g2);
+				assertEquals(closest[i], results.get(i).depth, 1e-9);
+			}
+		}
+		space.destroy();
+	}
+
+	@Test
+	public void testSimpleSpace() {
+		checkSpace(OdeHelper.createSimpleSpace(), null);
+	}
+
+	@Test
+	public void testHashSpace() {
+		checkSpace(OdeHelper.createHashSpace(), null);
+	}
+
+	@Test
+	public void testSapSpace() {
+		checkSpace(OdeHelper.createSapSpace(DSapSpace.AXES.XYZ), null);
+	}
+
+	@Test
+	public void testQuadTreeSpace() {
+		DVector3 center = new DVector3(EXTENT / 2, EXTENT / 2, EXTENT / 2);
+		DVector3 extents = new DVector3(EXTENT, EXTENT, EXTENT);
+		checkSpace(OdeHelper.createQuadTreeSpace(center, extents, 4), null);
+	}
+
+	@Test
+	public void testDynamicTreeSpace() {
+		checkSpace(OdeHelper.createDynamicTreeSpace(), null);
+	}
+
+	@Test
+	public void testLooseOctreeSpace() {
+		checkSpace(OdeHelper.createLooseOctreeSpace(), null);
+	}
+
+	@Test
+	public void testNestedSpaces() {
+		DSpace space = OdeHelper.createDynamicTreeSpace();
+		checkSpace(space, OdeHelper.createHashSpace(space));
+	}
+}
@@ -0,0 +1,234 @@
+package org.ode4j.tests;
+
+import static org.junit.Assert.*;
+import static org.ode4j.tests.SpaceTestUtil.key;
+import static org.ode4j.tests.SpaceTestUtil.pairs;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.ode4j.ode.DContactGeom;
+import org.ode4j.ode.DContactGeomBuffer;
+import org.ode4j.ode.DGeom;
+import org.ode4j.ode.DGeom.DNearCallback;
+import org.ode4j.ode.DHeightfield;
+import org.ode4j.ode.DHeightfieldData;
+import org.ode4j.ode.DSapSpace;
+import org.ode4j.ode.DSpace;
+import org.ode4j.ode.OdeHelper;
+import org.ode4j.ode.threading.DThreadingImplementation;
+import org.ode4j.ode.threading.DThreadingThreadPool;
+
+/**
+ * collideThreaded() has to report the same pairs as collide(), each pair
+ * once.
+ */
+public class TestThreadedCollide {
+
+	private static final int THREAD_COUNT = 4;
+	private static final int N = 1000;
+	private static final double EXTENT = 25;
+
+	private DThreadingImplementation threading;
+	private DThreadingThreadPool pool;
+
+	@Before
+	public void beforeTest() {
+		OdeHelper.initODE2(0);
+		threading = OdeHelper.allocateMultiThreaded();
+		assertNotNull(threading);
+		pool = OdeHelper.allocateThreadPool(THREAD_COUNT, 0, null);
+		assertNotNull(pool);
+		pool.serveMultiThreadedImplementation(threading);
+	}
+
+	@After
+	public void afterTest() {
+		threading.shutdownProcessing();
+		pool.freeThreadPool();
+		threading.free();
+		OdeHelper.closeODE();
+	}
+
+	private static void fill(DSpace space) {
+		Random r = new Random(4711);
+		for (int i = 0; i < N; i++) {
+			double size = 0.2 + 2 * r.nextDouble();
+			DGeom g;
+			if (i % 3 == 0) {
+				g = OdeHelper.createSphere(space, size / 2);
+			} else {
+				g = OdeHelper.createBox(space, size, size / 2, size);
+			}
+			g.setData(i);
+			g.setPosition(r.nextDouble() * EXTENT, r.nextDouble() * EXTENT, r.nextDouble() * EXTENT);
+		}
+		DGeom plane = OdeHelper.createPlane(space, 0, 0, 1, 1);
+		plane.setData(N);
+	}
+
+	private static Set<String> pairsThreaded(DSpace space, final Set<Thread> threads) {
+		final Set<String> pairs = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+		final AtomicInteger duplicates = new AtomicInteger();
+		space.collideThreaded(null, new DNearCallback() {
+			@Override
+			public void call(Object data, DGeom o1, DGeom o2) {
+				threads.add(Thread.currentThread());
+				if (!pairs.add(key(o1, o2))) {
+					duplicates.incrementAndGet();
+				}
+				// the narrow phase runs on the collide threads
+				DContactGeomBuffer contacts = new DContactGeomBuffer(4);
+				OdeHelper.collide(o1, o2, 4, contacts);
+			}
+		});
+		assertEquals(0, duplicates.get());
+		return pairs;
+	}
+
+	private void checkSpace(DSpace space, boolean parallel) {
+		fill(space);
+		Set<String> expected = pairs(space);
+		assertFalse(expected.isEmpty());
+
+		Set<Thread> threads = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+		// without threading implementation on the calling thread
+		assertEquals(expected, pairsThreaded(space, threads));
+		assertEquals(Collections.singleton(Thread.currentThread()), threads);
+
+		space.setThreadingImplementation(threading.dThreadingImplementationGetFunctions(), threading);
+		threads.clear();
+		for (int i = 0; i < 5; i++) {
+			assertEquals(expected, pairsThreaded(space, threads));
+		}
+		if (parallel) {
+			assertTrue(threads.size() > 1);
+		}
+		space.setThreadingImplementation(null, null);
+		space.destroy();
+	}
+
+	/**
+	 * Spheres and boxes that lie on a heightfield.
+	 */
+	private static DHeightfieldData fillHeightfield(DSpace space) {
+		int samples = 64;
+		double[] heights = new double[samples * samples];
+		for (int x = 0; x < samples; x++) {
+			for (int z = 0; z < samples; z++) {
+				heights[x + z * samples] = Math.sin(x * 0.3) * Math.cos(z * 0.2);
+			}
+		}
+		DHeightfieldData data = OdeHelper.createHeightfieldData();
+		data.build(heights, false, EXTENT, EXTENT, samples, samples, 1, 0, 1, false);
+		data.setBounds(-1, 1);
+		DHeightfield heightfield = OdeHelper.createHeightfield(space, data, true);
+		heightfield.setData(N);
+
+		Random r = new Random(4711);
+		for (int i = 0; i < N; i++) {
+			double size = 0.2 + r.nextDouble();
+			DGeom g;
+			if (i % 3 == 0) {
+				g = OdeHelper.createSphere(space, size / 2);
+			} else {
+				g = OdeHelper.createBox(space, size, size / 2, size);
+			}
+			g.setData(i);
+			// the heightfield is centered at the origin, y is up
+			g.setPosition((r.nextDouble() - 0.5) * EXTENT, 2 * r.nextDouble() - 0.5,
+					(r.nextDouble() - 0.5) * EXTENT);
+		}
+		return data;
+	}
+
+	/**
+	 * @return the contacts of the pair: count, then depth, position and normal
+	 * of each contact
+	 */
+	private static String contacts(DGeom o1, DGeom o2) {
+		DContactGeomBuffer contacts = new DContactGeomBuffer(4);
+		int n = OdeHelper.collide(o1, o2, 4, contacts);
+		StringBuilder sb = new StringBuilder().append(n);
+		for (int i = 0; i < n; i++) {
+			DContactGeom c = contacts.get(i);
+			sb.append(' ').append(c.depth).append(' ').append(c.pos).append(' ').append(c.normal);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * The heightfield collider moves the other geom while it collides. Its
+	 * pairs are collided on the calling thread, the contacts of all pairs
+	 * have to be the same as with collide().
+	 */
+	private void checkHeightfield(DSpace space) {
+		DHeightfieldData data = fillHeightfield(space);
+		final Map<String, String> expected = new HashMap<String, String>();
+		space.collide(null, new DNearCallback() {
+			@Override
+			public void call(Object data, DGeom o1, DGeom o2) {
+				expected.put(key(o1, o2), contacts(o1, o2));
+			}
+		});
+
+		space.setThreadingImplementation(threading.dThreadingImplementationGetFunctions(), threading);
+		final Thread caller = Thread.currentThread();
+		for (int i = 0; i < 5; i++) {
+			final Map<String, String> result = new ConcurrentHashMap<String, String>();
+			final AtomicInteger heightfieldPairs = new AtomicInteger();
+			final AtomicInteger wrongThread = new AtomicInteger();
+			space.collideThreaded(null, new DNearCallback() {
+				@Override
+				public void call(Object data, DGeom o1, DGeom o2) {
+					if (o1 instanceof DHeightfield || o2 instanceof DHeightfield) {
+						heightfieldPairs.incrementAndGet();
+						if (Thread.currentThread() != caller) {
+							wrongThread.incrementAndGet();
+						}
+					}
+					result.put(key(o1, o2), contacts(o1, o2));
+				}
+			});
+			assertTrue(heightfieldPairs.get() > 0);
+			assertEquals(0, wrongThread.get());
+			assertEquals(expected, result);
+		}
+		space.setThreadingImplementation(null, null);
+		space.destroy();
+		data.destroy();
+	}
+
+	@Test
+	public void testSapSpace() {
+		checkSpace(OdeHelper.createSapSpace(DSapSpace.AXES.XYZ), true);
+	}
+
+	@Test
+	public void testHashSpace() {
+		checkSpace(OdeHelper.createHashSpace(), true);
+	}
+
+	@Test
+	public void testSapSpaceHeightfield() {
+		checkHeightfield(OdeHelper.createSapSpace(DSapSpace.AXES.XYZ));
+	}
+
+	@Test
+	public void testHashSpaceHeightfield() {
+		checkHeightfield(OdeHelper.createHashSpace());
+	}
+
+	@Test
+	public void testSimpleSpace() {
+		checkSpace(OdeHelper.createSimpleSpace(), false);
+	}
+}
@@ -0,0 +1,101 @@
+/*************************************************************************
+ *                                                                       *
+ * Open Dynamics Engine 4J, Copyright (C) 2009-2014 Tilmann Zaeschke     *
+ * All rights reserved.  Email: ode4j@gmx.de   Web: www.ode4j.org        *
+ *                                                                       *
+ * This library is free software; you can redistribute it and/or         *
+ * modify it under the terms of EITHER:                                  *
+ *   (1) The GNU Lesser General Public License as published by the Free  *
+ *       Software Foundation; either version 2.1 of the License, or (at  *
+ *       your option) any later version. The text of the GNU Lesser      *
+ *       General Public License is included with this library in the     *
+ *       file LICENSE.TXT.                                               *
+ *   (2) The BSD-style license that is included with this library in     *
+ *       the file ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT.         *
+ *                                                                       *
+ * This library is distributed in the hope that it will be useful,       *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the files    *
+ * LICENSE.TXT, ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT for more   *
+ * details.                                                              *
+ *                                                                       *
+ *************************************************************************/
+package org.ode4j.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.ode4j.ode.internal.processmem.DxWorldProcessMemArena;
+
+/**
+ * Tests that the stepper memory arena hands out pooled arrays.
+ */
+public class TestWorldProcessMemArena {
+
+	@Test
+	public void testReuseAfterRestore() {
+		DxWorldProcessMemArena arena = DxWorldProcessMemArena.allocateTemporary(0, null, null);
+		int state = arena.SaveState();
+		double[] a = arena.AllocateArrayDReal(10);
+		int[] b = arena.AllocateArrayInt(20);
+		a[9] = 1;
+		b[19] = 2;
+		// arrays above the state are still in use
+		assertNotSame(a, arena.AllocateArrayDReal(10));
+
+		arena.RestoreState(state);
+		double[] a2 = arena.AllocateArrayDReal(8);
+		int[] b2 = arena.AllocateArrayInt(20);
+		assertSame(a, a2);
+		assertSame(b, b2);
+		assertArrayEquals(new double[8], Arrays.copyOf(a2, 8), 0);
+		assertEquals(0, b2[19]);
+		DxWorldProcessMemArena.freeTemporary(arena);
+	}
+
+	@Test
+	public void testReuseInDifferentOrder() {
+		DxWorldProcessMemArena arena = DxWorldProcessMemArena.allocateTemporary(0, null, null);
+		int state = arena.SaveState();
+		int[] i1 = arena.AllocateArrayInt(5);
+		double[] d1 = arena.AllocateArrayDReal(100);
+		double[] d2 = arena.AllocateArrayDReal(5);
+
+		// e.g. an island without joints skips some of the allocations
+		arena.RestoreState(state);
+		double[] d3 = arena.AllocateArrayDReal(50);
+		double[] d4 = arena.AllocateArrayDReal(5);
+		int[] i2 = arena.AllocateArrayInt(5);
+		assertSame(d1, d3);
+		assertSame(d2, d4);
+		assertSame(i1, i2);
+		DxWorldProcessMemArena.freeTemporary(arena);
+	}
+
+	@Test
+	public void testReserve() {
+		DxWorldProcessMemArena arena = DxWorldProcessMemArena.allocateTemporary(0, null, null);
+		int state = arena.SaveState();
+		double[] d1 = arena.AllocateArrayDReal(100);
+		assertTrue(d1.length > 100);
+
+		// growing within the reserve doesn't need a new array 
+		arena.RestoreState(state);
+		assertSame(d1, arena.AllocateArrayDReal(110));
+		arena.RestoreState(state);
+		double[] d2 = arena.AllocateArrayDReal(d1.length + 1);
+		assertNotSame(d1, d2);
+
+		// the smaller array has been replaced
+		arena.RestoreState(state);
+		assertSame(d2, arena.AllocateArrayDReal(100));
+		assertNotSame(d1, arena.AllocateArrayDReal(100));
+		DxWorldProcessMemArena.freeTemporary(arena);
+	}
+}
@@ -0,0 +1,276 @@
+/*************************************************************************
+ *                                                                       *
+ * Open Dynamics Engine 4J, Copyright (C) 2009-2014 Tilmann Zaeschke     *
+ * All rights reserved.  Email: ode4j@gmx.de   Web: www.ode4j.org        *
+ *                                                                       *
+ * This library is free software; you can redistribute it and/or         *
+ * modify it under the terms of EITHER:                                  *
+ *   (1) The GNU Lesser General Public License as published by the Free  *
+ *       Software Foundation; either version 2.1 of the License, or (at  *
+ *       your option) any later version. The text of the GNU Lesser      *
+ *       General Public License is included with this library in the     *
+ *       file LICENSE.TXT.                                               *
+ *   (2) The BSD-style license that is included with this library in     *
+ *       the file ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT.         *
+ *                                                                       *
+ * This library is distributed in the hope that it will be useful,       *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the files    *
+ * LICENSE.TXT, ODE-LICENSE-BSD.TXT and ODE4J-LICENSE-BSD.TXT for more   *
+ * details.                                                              *
+ *                                                                       *
+ *************************************************************************/
+package org.ode4j.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.ode4j.ode.DBallJoint;
+import org.ode4j.ode.DBody;
+import org.ode4j.ode.DContact;
+import org.ode4j.ode.DContactBuffer;
+import org.ode4j.ode.DFixedJoint;
+import org.ode4j.ode.DGeom;
+import org.ode4j.ode.DGeom.DNearCallback;
+import org.ode4j.ode.DHingeJoint;
+import org.ode4j.ode.DJoint;
+import org.ode4j.ode.DJointGroup;
+import org.ode4j.ode.DMass;
+import org.ode4j.ode.DSliderJoint;
+import org.ode4j.ode.DSpace;
+import org.ode4j.ode.DWorld;
+import org.ode4j.ode.OdeConstants;
+import org.ode4j.ode.OdeHelper;
+import org.ode4j.ode.threading.DThreadingImplementation;
+import org.ode4j.ode.threading.DThreadingThreadPool;
+
+/**
+ * After warm-up, DWorld.quickStep() and DWorld.step() should not allocate
+ * anything on the stepping thread, nor on the threads of the built-in 
+ * thread pool when it serves the stepping.
+ */
+public class TestZeroAllocationStepping {
+
+	/** Steps in a row that must not allocate. */
+	private static final int STABLE_STEPS = 500;
+	/** 
+	 * Upper bound for the warm-up. The arenas grow during the first few 
+	 * hundred steps. The JIT may also allocate a few bytes now and then 
+	 * while it recompiles, at steps that depend on the tests that ran 
+	 * before in the same JVM.
+	 */
+	private static final int MAX_STEPS = 20000;
+	private static final double STEP_SIZE = 0.01;
+	private static final int MAX_CONTACTS = 4;
+	private static final int THREAD_COUNT = 3;
+
+	private com.sun.management.ThreadMXBean threadBean;
+	private DWorld world;
+	private DSpace space;
+	private DJointGroup contactGroup;
+	private final DContactBuffer contacts = new DContactBuffer(MAX_CONTACTS);
+	/** The threads of the thread pool, if the world uses one. */
+	private long[] poolThreadIds = new long[0];
+
+	private final DNearCallback nearCallback = new DNearCallback() {
+		@Override
+		public void call(Object data, DGeom o1, DGeom o2) {
+			int n = OdeHelper.collide(o1, o2, MAX_CONTACTS, contacts.getGeomBuffer());
+			for (int i = 0; i < n; i++) {
+				DContact contact = contacts.get(i);
+				contact.surface.mode = OdeConstants.dContactApprox1 | OdeConstants.dContactBounce;
+				contact.surface.mu = 0.5;
+				contact.surface.bounce = 0.1;
+				DJoint c = OdeHelper.createContactJoint(world, contactGroup, contact);
+				c.attach(o1.getBody(), o2.getBody());
+			}
+		}
+	};
+
+	@Before
+	public void beforeTest() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+		threadBean = (com.sun.management.ThreadMXBean) bean;
+		assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+		if (!threadBean.isThreadAllocatedMemoryEnabled()) {
+			threadBean.setThreadAllocatedMemoryEnabled(true);
+		}
+
+		OdeHelper.initODE2(0);
+		world = OdeHelper.createWorld();
+		world.setGravity(0, 0, -9.81);
+		space = OdeHelper.createHashSpace();
+		contactGroup = OdeHelper.createJointGroup();
+		OdeHelper.createPlane(space, 0, 0, 1, 0);
+
+		// a hanging chain of ball joints
+		DBody prev = null;
+		for (int i = 0; i < 10; i++) {
+			DBody b = createBody(0, i * 0.3, 5);
+			DBallJoint ball = OdeHelper.createBallJoint(world);
+			ball.attach(b, prev);
+			ball.setAnchor(0, i * 0.3 - 0.15, 5);
+			prev = b;
+		}
+
+		// a hinge with stops and a powered hinge
+		DBody h1 = createBody(2, 0, 5);
+		DBody h2 = createBody(2, 0.5, 5);
+		DHingeJoint hinge = OdeHelper.createHingeJoint(world);
+		hinge.attach(h1, null);
+		hinge.setAnchor(2, -0.25, 5);
+		hinge.setAxis(1, 0, 0);
+		hinge.setParamLoStop(-0.5);
+		hinge.setParamHiStop(0.5);
+		DHingeJoint motor = OdeHelper.createHingeJoint(world);
+		motor.attach(h1, h2);
+		motor.setAnchor(2, 0.25, 5);
+		motor.setAxis(1, 0, 0);
+		motor.setParamVel(1);
+		motor.setParamFMax(10);
+
+		// a slider with stops
+		DBody s1 = createBody(4, 0, 5);
+		DSliderJoint slider = OdeHelper.createSliderJoint(world);
+		slider.attach(s1, null);
+		slider.setAxis(0, 0, 1);
+		slider.setParamLoStop(-1);
+		slider.setParamHiStop(1);
+
+		// two fixed bodies
+		DBody f1 = createBody(6, 0, 5);
+		DBody f2 = createBody(6, 0.3, 5);
+		DFixedJoint fixed = OdeHelper.createFixedJoint(world);
+		fixed.attach(f1, f2);
+		fixed.setFixed();
+
+		// spheres resting on the plane
+		for (int i = 0; i < 4; i++) {
+			DBody b = createBody(8 + i, 0, 0.5 + i);
+			DGeom g = OdeHelper.createSphere(space, 0.3);
+			g.setBody(b);
+		}
+	}
+
+	@After
+	public void afterTest() {
+		if (world != null) {
+			contactGroup.destroy();
+			space.destroy();
+			world.destroy();
+			OdeHelper.closeODE();
+		}
+	}
+
+	private DBody createBody(double x, double y, double z) {
+		DBody b = OdeHelper.createBody(world);
+		DMass m = OdeHelper.createMass();
+		m.setBox(1, 0.2, 0.2, 0.2);
+		b.setMass(m);
+		b.setPosition(x, y, z);
+		return b;
+	}
+
+	/**
+	 * Steps until {@link #STABLE_STEPS} steps in a row did not allocate, 
+	 * for at most {@link #MAX_STEPS} steps.
+	 * @return the longest number of steps in a row that did not allocate
+	 */
+	private int stepUntilStable(boolean quick) {
+		int stable = 0;
+		int longest = 0;
+		for (int s = 0; s < MAX_STEPS && stable < STABLE_STEPS; s++) {
+			stable = step(quick) == 0 ? stable + 1 : 0;
+			longest = Math.max(longest, stable);
+		}
+		return longest;
+	}
+
+	/**
+	 * @return the number of bytes allocated by the stepping thread and 
+	 * the pool threads in the step
+	 */
+	private long step(boolean quick) {
+		long threadId = Thread.currentThread().getId();
+		space.collide(null, nearCallback);
+		long poolBefore = poolAllocatedBytes();
+		long before = threadBean.getThreadAllocatedBytes(threadId);
+		if (quick) {
+			world.quickStep(STEP_SIZE);
+		} else {
+			world.step(STEP_SIZE);
+		}
+		long after = threadBean.getThreadAllocatedBytes(threadId);
+		long poolAfter = poolAllocatedBytes();
+		contactGroup.empty();
+		return after - before + poolAfter - poolBefore;
+	}
+
+	private long poolAllocatedBytes() {
+		long allocated = 0;
+		for (long id : poolThreadIds) {
+			allocated += threadBean.getThreadAllocatedBytes(id);
+		}
+		return allocated;
+	}
+
+	/**
+	 * Steps with the built-in threading implementation and thread pool.
+	 * @return the longest number of steps in a row that did not allocate
+	 */
+	private int stepMultiThreadedUntilStable(boolean quick) {
+		DThreadingImplementation threading = OdeHelper.allocateMultiThreaded();
+		DThreadingThreadPool pool = OdeHelper.allocateThreadPool(THREAD_COUNT, 0, null);
+		pool.serveMultiThreadedImplementation(threading);
+		world.setStepThreadingImplementation(
+				threading.dThreadingImplementationGetFunctions(), threading);
+		try {
+			List<Long> ids = new ArrayList<Long>();
+			for (Thread t : Thread.getAllStackTraces().keySet()) {
+				if (t.getName().startsWith("ode4j-pool-")) {
+					ids.add(t.getId());
+				}
+			}
+			assertEquals(THREAD_COUNT, ids.size());
+			poolThreadIds = new long[ids.size()];
+			for (int i = 0; i < poolThreadIds.length; i++) {
+				poolThreadIds[i] = ids.get(i);
+			}
+			return stepUntilStable(quick);
+		} finally {
+			poolThreadIds = new long[0];
+			world.setStepThreadingImplementation(null, null);
+			threading.shutdownProcessing();
+			pool.freeThreadPool();
+			threading.free();
+		}
+	}
+
+	@Test
+	public void testQuickStepDoesNotAllocate() {
+		assertEquals(STABLE_STEPS, stepUntilStable(true));
+	}
+
+	@Test
+	public void testStepDoesNotAllocate() {
+		assertEquals(STABLE_STEPS, stepUntilStable(false));
+	}
+
+	@Test
+	public void testMultiThreadedQuickStepDoesNotAllocate() {
+		assertEquals(STABLE_STEPS, stepMultiThreadedUntilStable(true));
+	}
+
+	@Test
+	public void testMultiThreadedStepDoesNotAllocate() {
+		assertEquals(STABLE_STEPS, stepMultiThreadedUntilStable(false));
+	}
+}